@@ -20,24 +20,41 @@ import co.cask.cdap.api.annotation.Beta;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.schema.Schema;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
 /**
- * Instance of a record structured by a {@link Schema}. Fields are accessible by name.
+ * Instance of a record structured by a {@link Schema}. Fields are accessible by name, or by their position in
+ * {@link Schema#getFields()}, which avoids looking up the field by name.
  */
 @Beta
 public class StructuredRecord implements Serializable {
-  private final Schema schema;
-  private final Map<String, Object> fields;
+  // not final, since they are set by readObject
+  private Schema schema;
+  // Field values in the order of the schema fields
+  private Object[] values;
 
   private static final long serialVersionUID = -4648752378975451591L;
 
-  private StructuredRecord(Schema schema, Map<String, Object> fields) {
+  // Records are serialized in the same form as when the values were kept in a map from field name to value,
+  // so that records serialized by earlier versions can still be deserialized
+  private static final ObjectStreamField[] serialPersistentFields = {
+    new ObjectStreamField("schema", Schema.class),
+    new ObjectStreamField("fields", Map.class)
+  };
+
+  private StructuredRecord(Schema schema, Object[] values) {
     this.schema = schema;
-    this.fields = fields;
+    this.values = values;
   }
 
   /**
@@ -58,7 +75,21 @@ public class StructuredRecord implements Serializable {
    */
   @SuppressWarnings("unchecked")
   public <T> T get(String fieldName) {
-    return (T) fields.get(fieldName);
+    int position = schema.getFieldIndex(fieldName);
+    return position < 0 ? null : (T) values[position];
+  }
+
+  /**
+   * Get the value of a field in the record by the position of the field in the schema.
+   *
+   * @param position position of the field to get.
+   * @param <T> type of object of the field value.
+   * @return value of the field.
+   * @throws IndexOutOfBoundsException if the position is not in the range of the schema fields.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> T get(int position) {
+    return (T) values[position];
   }
 
   /**
@@ -72,20 +103,37 @@ public class StructuredRecord implements Serializable {
     if (schema == null || schema.getType() != Schema.Type.RECORD || schema.getFields().size() < 1) {
       throw new UnexpectedFormatException("Schema must be a record with at least one field.");
     }
-    return new Builder(schema);
+    return new Builder(schema, new Object[schema.getFields().size()], false);
   }
 
   /**
-   * Builder for creating a {@link StructuredRecord}.
+   * Get a builder for creating a record with the schema and field values of the given record. Values are only
+   * copied once the builder modifies them, so creating a modified copy of a record is cheap.
+   *
+   * @param record the record to copy.
+   * @return builder for creating a record with the schema and field values of the given record.
+   */
+  public static Builder builder(StructuredRecord record) {
+    return new Builder(record.schema, record.values, true);
+  }
+
+  /**
+   * Builder for creating a {@link StructuredRecord}. A builder can be reused to build multiple records, where
+   * each record starts with the values of the previously built one. Built records are never modified by the builder.
    * TODO: enforce schema correctness?
    */
   public static class Builder {
     private final Schema schema;
-    private Map<String, Object> fields;
+    private final List<Schema.Field> schemaFields;
+    private Object[] values;
+    // whether the values array is shared with a record and hence must be copied before modification
+    private boolean shared;
 
-    private Builder(Schema schema) {
+    private Builder(Schema schema, Object[] values, boolean shared) {
       this.schema = schema;
-      this.fields = new HashMap<>();
+      this.schemaFields = schema.getFields();
+      this.values = values;
+      this.shared = shared;
     }
 
     /**
@@ -98,8 +146,21 @@ public class StructuredRecord implements Serializable {
      *                                   value is given.
      */
     public Builder set(String fieldName, Object value) {
-      validateAndGetField(fieldName, value);
-      fields.put(fieldName, value);
+      return set(getPosition(fieldName), value);
+    }
+
+    /**
+     * Set the field at the given position in the schema to the given value.
+     *
+     * @param position Position of the field to set.
+     * @param value Value for the field.
+     * @return This builder.
+     * @throws UnexpectedFormatException if the position is not in the schema, or the field is not nullable but a null
+     *                                   value is given.
+     */
+    public Builder set(int position, Object value) {
+      validateField(position, value);
+      setValue(position, value);
       return this;
     }
 
@@ -114,8 +175,22 @@ public class StructuredRecord implements Serializable {
      *                                   value is given, or the string cannot be converted to the type for the field.
      */
     public Builder convertAndSet(String fieldName, String strVal) throws UnexpectedFormatException {
-      Schema.Field field = validateAndGetField(fieldName, strVal);
-      fields.put(fieldName, convertString(field.getSchema(), strVal));
+      return convertAndSet(getPosition(fieldName), strVal);
+    }
+
+    /**
+     * Convert the given string into the type of the field at the given position in the schema, and set the value
+     * for that field. A String can be converted to a boolean, int, long, float, double, bytes, string, or null.
+     *
+     * @param position Position of the field to set.
+     * @param strVal String value for the field.
+     * @return This builder.
+     * @throws UnexpectedFormatException if the position is not in the schema, or the field is not nullable but a null
+     *                                   value is given, or the string cannot be converted to the type for the field.
+     */
+    public Builder convertAndSet(int position, String strVal) throws UnexpectedFormatException {
+      Schema.Field field = validateField(position, strVal);
+      setValue(position, convertString(field.getSchema(), strVal));
       return this;
     }
 
@@ -126,20 +201,35 @@ public class StructuredRecord implements Serializable {
      * @throws UnexpectedFormatException if there is at least one non-nullable field without a value.
      */
     public StructuredRecord build() throws UnexpectedFormatException {
-      // check that all non-nullable fields have a value.
-      for (Schema.Field field : schema.getFields()) {
-        String fieldName = field.getName();
-        if (!fields.containsKey(fieldName)) {
-          // if the field is not nullable and there is no value set for the field, this is invalid.
+      // check that all non-nullable fields have a value. Since non-nullable fields cannot be set to null,
+      // a null value means that there is no value set for the field.
+      for (int i = 0; i < values.length; i++) {
+        if (values[i] == null) {
+          Schema.Field field = schemaFields.get(i);
           if (!field.getSchema().isNullable()) {
-            throw new UnexpectedFormatException("Field " + fieldName + " must contain a value.");
-          } else {
-            // otherwise, set the value for the field to null
-            fields.put(fieldName, null);
+            throw new UnexpectedFormatException("Field " + field.getName() + " must contain a value.");
           }
         }
       }
-      return new StructuredRecord(schema, fields);
+      // the values are shared with the record, so the next modification through this builder makes a copy
+      shared = true;
+      return new StructuredRecord(schema, values);
+    }
+
+    private void setValue(int position, Object value) {
+      if (shared) {
+        values = Arrays.copyOf(values, values.length);
+        shared = false;
+      }
+      values[position] = value;
+    }
+
+    private int getPosition(String fieldName) {
+      int position = schema.getFieldIndex(fieldName);
+      if (position < 0) {
+        throw new UnexpectedFormatException("field " + fieldName + " is not in the schema.");
+      }
+      return position;
     }
 
     private Object convertString(Schema schema, String strVal) throws UnexpectedFormatException {
@@ -181,13 +271,13 @@ public class StructuredRecord implements Serializable {
       }
     }
 
-    private Schema.Field validateAndGetField(String fieldName, Object val) {
-      Schema.Field field = schema.getField(fieldName);
-      if (field == null) {
-        throw new UnexpectedFormatException("field " + fieldName + " is not in the schema.");
+    private Schema.Field validateField(int position, Object val) {
+      if (position < 0 || position >= values.length) {
+        throw new UnexpectedFormatException("field position " + position + " is not in the schema.");
       }
-      if (!field.getSchema().isNullable() && val == null) {
-        throw new UnexpectedFormatException("field " + fieldName + " cannot be set to a null value.");
+      Schema.Field field = schemaFields.get(position);
+      if (val == null && !field.getSchema().isNullable()) {
+        throw new UnexpectedFormatException("field " + field.getName() + " cannot be set to a null value.");
       }
       return field;
     }
@@ -204,12 +294,38 @@ public class StructuredRecord implements Serializable {
 
     StructuredRecord that = (StructuredRecord) o;
 
-    return Objects.equals(schema, that.schema) && Objects.equals(fields, that.fields);
+    return Objects.equals(schema, that.schema) && Arrays.equals(values, that.values);
 
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(schema, fields);
+    return 31 * Objects.hashCode(schema) + Arrays.hashCode(values);
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    List<Schema.Field> schemaFields = schema.getFields();
+    Map<String, Object> fields = new HashMap<>();
+    for (int i = 0; i < values.length; i++) {
+      fields.put(schemaFields.get(i).getName(), values[i]);
+    }
+    ObjectOutputStream.PutField putField = out.putFields();
+    putField.put("schema", schema);
+    putField.put("fields", fields);
+    out.writeFields();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField getField = in.readFields();
+    schema = (Schema) getField.get("schema", null);
+    Map<?, ?> fields = (Map<?, ?>) getField.get("fields", null);
+    if (schema == null || fields == null) {
+      throw new InvalidObjectException("StructuredRecord must have a schema and fields.");
+    }
+    List<Schema.Field> schemaFields = schema.getFields();
+    values = new Object[schemaFields.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = fields.get(schemaFields.get(i).getName());
+    }
   }
 }
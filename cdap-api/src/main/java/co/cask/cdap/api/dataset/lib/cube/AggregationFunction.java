@@ -23,5 +23,8 @@ public enum AggregationFunction {
   SUM,
   LATEST,
   MIN,
-  MAX
+  MAX,
+  P50,
+  P95,
+  P99
 }
@@ -0,0 +1,354 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.dataset.lib.cube;
+
+import co.cask.cdap.api.annotation.Beta;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A compact and mergeable histogram of non-negative long values, used for computing percentiles of a
+ * {@link MeasureType#DISTRIBUTION} measure.
+ * <p>
+ * Values smaller than 128 are counted exactly. Larger values are counted in log-linear buckets, with each power of
+ * two split into 64 buckets, hence percentiles are accurate within 1% of the actual value. Only non-empty buckets
+ * are kept, so the size is bounded by the range of the values recorded rather than the number of values.
+ * </p>
+ * This class is not thread safe.
+ */
+@Beta
+public final class Distribution {
+
+  private static final byte FORMAT_VERSION = 1;
+  private static final int SUB_BUCKET_BITS = 7;
+  private static final int EXACT_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKETS = EXACT_BUCKETS >> 1;
+
+  // Sorted indices of the non-empty buckets and the number of values in each of them
+  private int[] buckets;
+  private long[] counts;
+  private long count;
+  private long sum;
+  private long min;
+  private long max;
+
+  /**
+   * Creates an empty {@link Distribution}.
+   */
+  public Distribution() {
+    this.buckets = new int[0];
+    this.counts = new long[0];
+  }
+
+  /**
+   * Records a value. Negative values are recorded as zero.
+   *
+   * @param value the value to record
+   * @return this instance
+   */
+  public Distribution add(long value) {
+    long v = Math.max(0L, value);
+    int bucket = getBucket(v);
+    int idx = Arrays.binarySearch(buckets, bucket);
+    if (idx >= 0) {
+      counts[idx]++;
+    } else {
+      insertBucket(-idx - 1, bucket, 1L);
+    }
+    updateSummary(1L, v, v, v);
+    return this;
+  }
+
+  /**
+   * Merges all values recorded in the given {@link Distribution} into this one.
+   *
+   * @param other the distribution to merge from
+   * @return this instance
+   */
+  public Distribution merge(Distribution other) {
+    if (other.count == 0) {
+      return this;
+    }
+
+    int[] mergedBuckets = new int[buckets.length + other.buckets.length];
+    long[] mergedCounts = new long[mergedBuckets.length];
+    int i = 0;
+    int j = 0;
+    int size = 0;
+    while (i < buckets.length || j < other.buckets.length) {
+      if (j == other.buckets.length || (i < buckets.length && buckets[i] < other.buckets[j])) {
+        mergedBuckets[size] = buckets[i];
+        mergedCounts[size++] = counts[i++];
+      } else if (i == buckets.length || other.buckets[j] < buckets[i]) {
+        mergedBuckets[size] = other.buckets[j];
+        mergedCounts[size++] = other.counts[j++];
+      } else {
+        mergedBuckets[size] = buckets[i];
+        mergedCounts[size++] = counts[i++] + other.counts[j++];
+      }
+    }
+    buckets = Arrays.copyOf(mergedBuckets, size);
+    counts = Arrays.copyOf(mergedCounts, size);
+    updateSummary(other.count, other.sum, other.min, other.max);
+    return this;
+  }
+
+  /**
+   * @return number of values recorded
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return sum of all values recorded
+   */
+  public long getSum() {
+    return sum;
+  }
+
+  /**
+   * @return the smallest value recorded, or {@code 0} if the distribution is empty
+   */
+  public long getMin() {
+    return min;
+  }
+
+  /**
+   * @return the largest value recorded, or {@code 0} if the distribution is empty
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * @return {@code true} if no value has been recorded
+   */
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * Returns the value at the given percentile.
+   *
+   * @param percentile the percentile in the range of (0, 100]
+   * @return the value at the percentile, or {@code 0} if the distribution is empty
+   */
+  public long getPercentile(double percentile) {
+    if (percentile <= 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be in the range of (0, 100]: " + percentile);
+    }
+    if (count == 0) {
+      return 0L;
+    }
+
+    long rank = Math.max(1L, (long) Math.ceil(percentile / 100 * count));
+    // The smallest and largest values are known exactly
+    if (rank == 1) {
+      return min;
+    }
+    if (rank >= count) {
+      return max;
+    }
+
+    long seen = 0;
+    int idx = 0;
+    while (idx < buckets.length - 1) {
+      seen += counts[idx];
+      if (seen >= rank) {
+        break;
+      }
+      idx++;
+    }
+
+    // Use the middle of the bucket, bounded by the actual range of values
+    long lower = getLowerBound(buckets[idx]);
+    long upper = getUpperBound(buckets[idx]);
+    return Math.max(min, Math.min(max, lower + (upper - lower) / 2));
+  }
+
+  /**
+   * Encodes this distribution. The encoded form is always longer than eight bytes, hence it can be told apart
+   * from an encoded long value.
+   *
+   * @return the encoded bytes
+   * @see #fromBytes(byte[])
+   */
+  public byte[] toBytes() {
+    ByteArrayOutputStream os = new ByteArrayOutputStream(20 + buckets.length * 3);
+    os.write(FORMAT_VERSION);
+    for (int i = 56; i >= 0; i -= 8) {
+      os.write((int) (sum >>> i));
+    }
+    writeVarLong(os, count);
+    if (count > 0) {
+      writeVarLong(os, min);
+      writeVarLong(os, max);
+      writeVarLong(os, buckets.length);
+      int previous = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        writeVarLong(os, buckets[i] - previous);
+        writeVarLong(os, counts[i]);
+        previous = buckets[i];
+      }
+    }
+    return os.toByteArray();
+  }
+
+  /**
+   * Decodes a {@link Distribution} that was encoded with {@link #toBytes()}.
+   *
+   * @param bytes the encoded bytes
+   * @return a new {@link Distribution}
+   * @throws IllegalArgumentException if the given bytes are not an encoded {@link Distribution}
+   */
+  public static Distribution fromBytes(byte[] bytes) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    try {
+      byte version = buffer.get();
+      if (version != FORMAT_VERSION) {
+        throw new IllegalArgumentException("Unsupported distribution format version " + version);
+      }
+      Distribution distribution = new Distribution();
+      distribution.sum = buffer.getLong();
+      distribution.count = readVarLong(buffer);
+      if (distribution.count > 0) {
+        distribution.min = readVarLong(buffer);
+        distribution.max = readVarLong(buffer);
+        int size = (int) readVarLong(buffer);
+        distribution.buckets = new int[size];
+        distribution.counts = new long[size];
+        int bucket = 0;
+        for (int i = 0; i < size; i++) {
+          bucket += (int) readVarLong(buffer);
+          distribution.buckets[i] = bucket;
+          distribution.counts[i] = readVarLong(buffer);
+        }
+      }
+      return distribution;
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Incomplete encoded distribution of " + bytes.length + " bytes", e);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    Distribution that = (Distribution) o;
+    return count == that.count && sum == that.sum && min == that.min && max == that.max
+      && Arrays.equals(buckets, that.buckets) && Arrays.equals(counts, that.counts);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = Arrays.hashCode(buckets);
+    result = 31 * result + Arrays.hashCode(counts);
+    result = 31 * result + (int) (sum ^ (sum >>> 32));
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return "Distribution{" +
+      "count=" + count +
+      ", sum=" + sum +
+      ", min=" + min +
+      ", max=" + max +
+      '}';
+  }
+
+  private void insertBucket(int idx, int bucket, long bucketCount) {
+    int[] newBuckets = new int[buckets.length + 1];
+    long[] newCounts = new long[counts.length + 1];
+    System.arraycopy(buckets, 0, newBuckets, 0, idx);
+    System.arraycopy(counts, 0, newCounts, 0, idx);
+    newBuckets[idx] = bucket;
+    newCounts[idx] = bucketCount;
+    System.arraycopy(buckets, idx, newBuckets, idx + 1, buckets.length - idx);
+    System.arraycopy(counts, idx, newCounts, idx + 1, counts.length - idx);
+    buckets = newBuckets;
+    counts = newCounts;
+  }
+
+  private void updateSummary(long addCount, long addSum, long addMin, long addMax) {
+    min = count == 0 ? addMin : Math.min(min, addMin);
+    max = count == 0 ? addMax : Math.max(max, addMax);
+    count += addCount;
+    sum += addSum;
+  }
+
+  /**
+   * Returns the bucket index of a non-negative value.
+   */
+  private static int getBucket(long value) {
+    if (value < EXACT_BUCKETS) {
+      return (int) value;
+    }
+    // Shift so that the value falls in [SUB_BUCKETS, EXACT_BUCKETS)
+    int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+    return shift * SUB_BUCKETS + (int) (value >>> shift);
+  }
+
+  private static long getLowerBound(int bucket) {
+    if (bucket < EXACT_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    return (long) (bucket - shift * SUB_BUCKETS) << shift;
+  }
+
+  private static long getUpperBound(int bucket) {
+    if (bucket < EXACT_BUCKETS) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKETS - 1;
+    // For the last bucket, this overflows to Long.MIN_VALUE and then wraps to Long.MAX_VALUE after minus one
+    return ((long) (bucket - shift * SUB_BUCKETS + 1) << shift) - 1;
+  }
+
+  private static void writeVarLong(ByteArrayOutputStream os, long value) {
+    long v = value;
+    while ((v & ~0x7FL) != 0) {
+      os.write((int) ((v & 0x7F) | 0x80));
+      v >>>= 7;
+    }
+    os.write((int) v);
+  }
+
+  private static long readVarLong(ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      if (shift > 63) {
+        throw new IllegalArgumentException("Malformed variable length long in encoded distribution");
+      }
+      b = buffer.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+}
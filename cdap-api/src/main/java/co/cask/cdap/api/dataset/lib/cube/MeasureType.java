@@ -23,5 +23,6 @@ import co.cask.cdap.api.annotation.Beta;
 @Beta
 public enum MeasureType {
   COUNTER,
-  GAUGE
+  GAUGE,
+  DISTRIBUTION
 }
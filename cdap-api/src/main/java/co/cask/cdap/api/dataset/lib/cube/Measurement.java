@@ -16,6 +16,8 @@
 
 package co.cask.cdap.api.dataset.lib.cube;
 
+import javax.annotation.Nullable;
+
 /**
  * A single measurement in the {@link CubeFact}.
  */
@@ -23,6 +25,7 @@ public class Measurement {
   private final String name;
   private final MeasureType type;
   private final long value;
+  private final Distribution distribution;
 
   /**
    * Creates a {@link Measurement}.
@@ -34,6 +37,19 @@ public class Measurement {
     this.name = name;
     this.type = type;
     this.value = value;
+    this.distribution = null;
+  }
+
+  /**
+   * Creates a {@link MeasureType#DISTRIBUTION} {@link Measurement}.
+   * @param name name of the measurement
+   * @param distribution values of the measurement
+   */
+  public Measurement(String name, Distribution distribution) {
+    this.name = name;
+    this.type = MeasureType.DISTRIBUTION;
+    this.value = distribution.getCount();
+    this.distribution = distribution;
   }
 
   /**
@@ -45,6 +61,7 @@ public class Measurement {
     this.name = name;
     this.type = measurement.getType();
     this.value = measurement.getValue();
+    this.distribution = measurement.getDistribution();
   }
 
   /**
@@ -67,4 +84,13 @@ public class Measurement {
   public long getValue() {
     return value;
   }
+
+  /**
+   * @return values of this {@link Measurement} if it is a {@link MeasureType#DISTRIBUTION},
+   *         otherwise {@code null}
+   */
+  @Nullable
+  public Distribution getDistribution() {
+    return distribution;
+  }
 }
@@ -76,6 +76,20 @@ public interface Table extends BatchReadable<byte[], Row>, BatchWritable<byte[],
    */
   String PROPERTY_SCHEMA_ROW_FIELD = "schema.row.field";
 
+  /**
+   * Property set to configure whether changes made within a transaction are buffered in off-heap memory instead of
+   * on the Java heap before they are persisted. This property only applies to implementations that support it.
+   * It is useful for programs, such as MapReduce tasks, that write a large number of cells in one transaction.
+   */
+  String PROPERTY_BUFFER_OFF_HEAP = "dataset.table.buffer.offheap";
+
+  /**
+   * Property set to configure the maximum size in bytes of the off-heap buffer enabled by
+   * {@link #PROPERTY_BUFFER_OFF_HEAP}. When the buffer reaches this size, the buffered changes are persisted
+   * before the transaction commits. If not set, a default size will be used.
+   */
+  String PROPERTY_BUFFER_OFF_HEAP_MAX_SIZE = "dataset.table.buffer.offheap.max.size";
+
   /**
    * Reads values of all columns of the specified row.
    * <p>
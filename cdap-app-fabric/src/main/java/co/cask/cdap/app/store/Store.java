@@ -339,4 +339,10 @@ public interface Store extends RuntimeStore {
    * @return programs that were running between given start and end time.
    */
   Set<RunId> getRunningInRange(long startTimeInSecs, long endTimeInSecs);
+
+  /**
+   * Builds the indexes of completed run records that were written before the indexes existed. This is a no-op
+   * once the indexes have been built.
+   */
+  void rebuildRunRecordIndexes();
 }
@@ -33,7 +33,9 @@ import co.cask.cdap.proto.security.Principal;
 import co.cask.cdap.proto.security.Privilege;
 import co.cask.cdap.proto.security.RevokeRequest;
 import co.cask.cdap.proto.security.Role;
+import co.cask.cdap.security.authorization.AuthorizationEnforcementService;
 import co.cask.cdap.security.authorization.AuthorizerInstantiator;
+import co.cask.cdap.security.authorization.PrivilegesFetcherProxyService;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import co.cask.cdap.security.spi.authentication.SecurityRequestContext;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
@@ -81,6 +83,9 @@ public class AuthorizationHandler extends AbstractAppFabricHttpHandler {
   private final AuthenticationContext authenticationContext;
   private final EntityExistenceVerifier entityExistenceVerifier;
 
+  private AuthorizationEnforcementService authorizationEnforcementService;
+  private PrivilegesFetcherProxyService privilegesFetcherProxyService;
+
   @Inject
   AuthorizationHandler(AuthorizerInstantiator authorizerInstantiator, CConfiguration cConf,
                        AuthorizationEnforcer authorizationEnforcer, AuthenticationContext authenticationContext,
@@ -93,6 +98,24 @@ public class AuthorizationHandler extends AbstractAppFabricHttpHandler {
     this.entityExistenceVerifier = entityExistenceVerifier;
   }
 
+  /**
+   * Sets the {@link AuthorizationEnforcementService} whose cached privileges are invalidated whenever privileges
+   * are changed through this handler.
+   */
+  @Inject(optional = true)
+  void setAuthorizationEnforcementService(AuthorizationEnforcementService authorizationEnforcementService) {
+    this.authorizationEnforcementService = authorizationEnforcementService;
+  }
+
+  /**
+   * Sets the {@link PrivilegesFetcherProxyService} whose cached privileges are invalidated whenever privileges
+   * are changed through this handler.
+   */
+  @Inject(optional = true)
+  void setPrivilegesFetcherProxyService(PrivilegesFetcherProxyService privilegesFetcherProxyService) {
+    this.privilegesFetcherProxyService = privilegesFetcherProxyService;
+  }
+
   @Path("/privileges/grant")
   @POST
   public void grant(HttpRequest httpRequest, HttpResponder httpResponder) throws Exception {
@@ -105,6 +128,7 @@ public class AuthorizationHandler extends AbstractAppFabricHttpHandler {
     // enforce that the user granting access has admin privileges on the entity
     authorizationEnforcer.enforce(request.getEntity(), authenticationContext.getPrincipal(), Action.ADMIN);
     authorizer.grant(request.getEntity(), request.getPrincipal(), actions);
+    invalidateCachedPrivileges(request.getPrincipal());
 
     httpResponder.sendStatus(HttpResponseStatus.OK);
     createLogEntry(httpRequest, request, HttpResponseStatus.OK);
@@ -126,6 +150,7 @@ public class AuthorizationHandler extends AbstractAppFabricHttpHandler {
       Set<Action> actions = request.getActions() == null ? EnumSet.allOf(Action.class) : request.getActions();
       authorizer.revoke(request.getEntity(), request.getPrincipal(), actions);
     }
+    invalidateCachedPrivileges(request.getPrincipal());
 
     httpResponder.sendStatus(HttpResponseStatus.OK);
     createLogEntry(httpRequest, request, HttpResponseStatus.OK);
@@ -163,6 +188,7 @@ public class AuthorizationHandler extends AbstractAppFabricHttpHandler {
                        @PathParam("role-name") String roleName) throws Exception {
     ensureSecurityEnabled();
     authorizer.dropRole(new Role(roleName));
+    invalidateCachedPrivileges(null);
     httpResponder.sendStatus(HttpResponseStatus.OK);
     createLogEntry(httpRequest, null, HttpResponseStatus.OK);
   }
@@ -195,6 +221,7 @@ public class AuthorizationHandler extends AbstractAppFabricHttpHandler {
     ensureSecurityEnabled();
     Principal principal = new Principal(principalName, Principal.PrincipalType.valueOf(principalType.toUpperCase()));
     authorizer.addRoleToPrincipal(new Role(roleName), principal);
+    invalidateCachedPrivileges(principal);
     httpResponder.sendStatus(HttpResponseStatus.OK);
     createLogEntry(httpRequest, null, HttpResponseStatus.OK);
   }
@@ -208,6 +235,7 @@ public class AuthorizationHandler extends AbstractAppFabricHttpHandler {
     ensureSecurityEnabled();
     Principal principal = new Principal(principalName, Principal.PrincipalType.valueOf(principalType.toUpperCase()));
     authorizer.removeRoleFromPrincipal(new Role(roleName), principal);
+    invalidateCachedPrivileges(principal);
     httpResponder.sendStatus(HttpResponseStatus.OK);
     createLogEntry(httpRequest, null, HttpResponseStatus.OK);
   }
@@ -224,6 +252,29 @@ public class AuthorizationHandler extends AbstractAppFabricHttpHandler {
     }
   }
 
+  /**
+   * Invalidates the locally cached privileges affected by a change in the privileges of the specified principal.
+   * Privileges of a group or a role apply to many users, so in that case, or if the principal is not known,
+   * privileges of all users are invalidated. Privileges cached in other processes are refreshed when they expire.
+   */
+  private void invalidateCachedPrivileges(@Nullable Principal principal) {
+    boolean singleUser = principal != null && principal.getType() == Principal.PrincipalType.USER;
+    if (authorizationEnforcementService != null) {
+      if (singleUser) {
+        authorizationEnforcementService.invalidate(principal);
+      } else {
+        authorizationEnforcementService.invalidateAll();
+      }
+    }
+    if (privilegesFetcherProxyService != null) {
+      if (singleUser) {
+        privilegesFetcherProxyService.invalidate(principal);
+      } else {
+        privilegesFetcherProxyService.invalidateAll();
+      }
+    }
+  }
+
   private void verifyAuthRequest(AuthorizationRequest request) throws BadRequestException, NotFoundException {
     if (request == null) {
       throw new BadRequestException("Missing request body");
@@ -47,9 +47,9 @@ import co.cask.cdap.proto.id.InstanceId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.authorization.AuthorizationEnforcementService;
 import co.cask.cdap.security.authorization.AuthorizerInstantiator;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
-import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.cdap.security.spi.authorization.Authorizer;
 import co.cask.cdap.store.NamespaceStore;
 import com.google.common.base.Preconditions;
@@ -89,7 +89,7 @@ public final class DefaultNamespaceAdmin extends DefaultNamespaceQueryAdmin impl
   private final ApplicationLifecycleService applicationLifecycleService;
   private final ArtifactRepository artifactRepository;
   private final Authorizer authorizer;
-  private final AuthorizationEnforcer authorizationEnforcer;
+  private final AuthorizationEnforcementService authorizationEnforcer;
   private final InstanceId instanceId;
   private final StorageProviderNamespaceAdmin storageProviderNamespaceAdmin;
   private final Impersonator impersonator;
@@ -104,7 +104,7 @@ public final class DefaultNamespaceAdmin extends DefaultNamespaceQueryAdmin impl
                         ArtifactRepository artifactRepository,
                         AuthorizerInstantiator authorizerInstantiator,
                         CConfiguration cConf, StorageProviderNamespaceAdmin storageProviderNamespaceAdmin,
-                        Impersonator impersonator, AuthorizationEnforcer authorizationEnforcer,
+                        Impersonator impersonator, AuthorizationEnforcementService authorizationEnforcer,
                         AuthenticationContext authenticationContext) {
     super(nsStore, authorizationEnforcer, authenticationContext);
     this.queueAdmin = queueAdmin;
@@ -25,15 +25,16 @@ import co.cask.cdap.proto.NamespaceMeta;
 import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.authorization.AuthorizationEnforcementService;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
-import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.cdap.security.spi.authorization.UnauthorizedException;
 import co.cask.cdap.store.NamespaceStore;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Default implementation of {@link NamespaceQueryAdmin} to query namespace details.
@@ -41,12 +42,12 @@ import java.util.List;
 public class DefaultNamespaceQueryAdmin implements NamespaceQueryAdmin {
 
   protected final NamespaceStore nsStore;
-  protected final AuthorizationEnforcer authorizationEnforcer;
+  protected final AuthorizationEnforcementService authorizationEnforcer;
   protected final AuthenticationContext authenticationContext;
 
   @Inject
   DefaultNamespaceQueryAdmin(NamespaceStore nsStore,
-                             AuthorizationEnforcer authorizationEnforcer,
+                             AuthorizationEnforcementService authorizationEnforcer,
                              AuthenticationContext authenticationContext) {
     this.nsStore = nsStore;
     this.authorizationEnforcer = authorizationEnforcer;
@@ -60,17 +61,16 @@ public class DefaultNamespaceQueryAdmin implements NamespaceQueryAdmin {
    */
   @Override
   public List<NamespaceMeta> list() throws Exception {
-    List<NamespaceMeta> namespaces = nsStore.list();
+    Map<NamespaceId, NamespaceMeta> namespaces = new LinkedHashMap<>();
+    for (NamespaceMeta namespaceMeta : nsStore.list()) {
+      namespaces.put(new NamespaceId(namespaceMeta.getName()), namespaceMeta);
+    }
     Principal principal = authenticationContext.getPrincipal();
-    final Predicate<EntityId> filter = authorizationEnforcer.createFilter(principal);
-    return Lists.newArrayList(
-      Iterables.filter(namespaces, new com.google.common.base.Predicate<NamespaceMeta>() {
-        @Override
-        public boolean apply(NamespaceMeta namespaceMeta) {
-          return filter.apply(new NamespaceId(namespaceMeta.getName()));
-        }
-      })
-    );
+    List<NamespaceMeta> result = new ArrayList<>();
+    for (NamespaceId namespaceId : authorizationEnforcer.filter(namespaces.keySet(), principal)) {
+      result.add(namespaces.get(namespaceId));
+    }
+    return result;
   }
 
   /**
@@ -40,13 +40,13 @@ import java.util.concurrent.TimeUnit;
 public final class StreamQueueReader<T> implements QueueReader<T> {
 
   private final Supplier<StreamConsumer> consumerSupplier;
-  private final int batchSize;
+  private final Supplier<Integer> batchSize;
   private final Function<StreamEvent, T> eventTransform;
   private final Principal principal;
   private final AuthorizationEnforcer authorizationEnforcer;
   private final StreamId streamId;
 
-  StreamQueueReader(Supplier<StreamConsumer> consumerSupplier, int batchSize,
+  StreamQueueReader(Supplier<StreamConsumer> consumerSupplier, Supplier<Integer> batchSize,
                     Function<StreamEvent, T> eventTransform, AuthenticationContext authenticationContext,
                     AuthorizationEnforcer authorizationEnforcer) {
     this.consumerSupplier = consumerSupplier;
@@ -68,6 +68,6 @@ public final class StreamQueueReader<T> implements QueueReader<T> {
       throw new IOException(e);
     }
     return new BasicInputDatum<>(QueueName.fromStream(consumer.getStreamId()),
-                                 consumer.poll(batchSize, timeout, timeoutUnit), eventTransform);
+                                 consumer.poll(batchSize.get(), timeout, timeoutUnit), eventTransform);
   }
 }
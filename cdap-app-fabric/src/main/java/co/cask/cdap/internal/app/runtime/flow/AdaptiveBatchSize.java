@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+
+/**
+ * Adapts the dequeue size of a batch process method based on the time spent on processing and committing the
+ * transactions, so that a transaction stays well within the transaction timeout.
+ * <p>
+ * The size starts at the maximum. It halves when processing and committing a batch takes longer than the time
+ * budget of a transaction or when processing fails, so that retries affect fewer entries. It doubles, up to the
+ * maximum, after a full batch was committed and twice the time taken still fits in the budget.
+ * </p>
+ * This class is not thread safe.
+ */
+final class AdaptiveBatchSize implements Supplier<Integer> {
+
+  private final int maxSize;
+  private final long maxTxNanos;
+  private int size;
+
+  /**
+   * Creates an instance.
+   *
+   * @param maxSize maximum dequeue size
+   * @param maxTxNanos time budget in nanoseconds for processing and committing one transaction
+   */
+  AdaptiveBatchSize(int maxSize, long maxTxNanos) {
+    Preconditions.checkArgument(maxSize > 0, "Maximum batch size must be > 0: %s", maxSize);
+    this.maxSize = maxSize;
+    this.maxTxNanos = maxTxNanos;
+    this.size = maxSize;
+  }
+
+  /**
+   * Returns the dequeue size for the next transaction.
+   */
+  @Override
+  public Integer get() {
+    return size;
+  }
+
+  /**
+   * Updates the dequeue size after a transaction is committed.
+   *
+   * @param dequeued number of entries processed in the transaction
+   * @param processNanos time in nanoseconds spent on processing
+   * @param commitNanos time in nanoseconds spent on committing
+   */
+  void committed(int dequeued, long processNanos, long commitNanos) {
+    long txNanos = processNanos + commitNanos;
+    if (txNanos > maxTxNanos) {
+      size = Math.max(1, size / 2);
+    } else if (dequeued >= size && txNanos * 2 <= maxTxNanos) {
+      size = (int) Math.min(maxSize, size * 2L);
+    }
+  }
+
+  /**
+   * Updates the dequeue size after a transaction failed.
+   */
+  void failed() {
+    size = Math.max(1, size / 2);
+  }
+}
@@ -22,6 +22,8 @@ import co.cask.cdap.api.flow.flowlet.FailureReason;
 import co.cask.cdap.api.flow.flowlet.Flowlet;
 import co.cask.cdap.api.flow.flowlet.InputContext;
 import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.MetricsContexts;
+import co.cask.cdap.api.metrics.MetricsCounter;
 import co.cask.cdap.app.queue.InputDatum;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.logging.LoggingContext;
@@ -66,10 +68,17 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
   private final LoggingContext loggingContext;
   private final PriorityQueue<FlowletProcessEntry<?>> processQueue;
 
+  // Metric handles resolved once, so that the per-event path doesn't need to look them up
+  private final MetricsCounter attemptReadCounter;
+  private final MetricsCounter errorsCounter;
+  private final MetricsCounter ticksProcessedCounter;
+  private final MetricsCounter eventsProcessedCounter;
+  private final LoadingCache<String, MetricsCounter> queueEventsProcessedCounters;
+
   private Thread runThread;
   private ExecutorService processExecutor;
 
-  FlowletProcessDriver(BasicFlowletContext flowletContext,
+  FlowletProcessDriver(final BasicFlowletContext flowletContext,
                        DataFabricFacade dataFabricFacade,
                        Callback txCallback,
                        Collection<? extends ProcessSpecification<?>> processSpecifications) {
@@ -77,6 +86,21 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     this.dataFabricFacade = dataFabricFacade;
     this.txCallback = txCallback;
     this.loggingContext = flowletContext.getLoggingContext();
+    MetricsContext programMetrics = flowletContext.getProgramMetrics();
+    this.attemptReadCounter = MetricsContexts.getCounter(programMetrics, "process.tuples.attempt.read");
+    this.errorsCounter = MetricsContexts.getCounter(programMetrics, "process.errors");
+    this.ticksProcessedCounter = MetricsContexts.getCounter(programMetrics, "process.ticks.processed");
+    this.eventsProcessedCounter = MetricsContexts.getCounter(programMetrics, "process.events.processed");
+    this.queueEventsProcessedCounters = CacheBuilder.newBuilder()
+      .expireAfterAccess(1, TimeUnit.HOURS)
+      .build(new CacheLoader<String, MetricsCounter>() {
+        @Override
+        public MetricsCounter load(String queueName) throws Exception {
+          MetricsContext queueMetrics = flowletContext.getProgramMetrics()
+            .childContext(Constants.Metrics.Tag.FLOWLET_QUEUE, queueName);
+          return MetricsContexts.getCounter(queueMetrics, "process.events.processed");
+        }
+      });
 
     processQueue = new PriorityQueue<>(processSpecifications.size());
     for (ProcessSpecification<?> spec : processSpecifications) {
@@ -95,6 +119,11 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     this.dataFabricFacade = other.dataFabricFacade;
     this.txCallback = other.txCallback;
     this.loggingContext = other.loggingContext;
+    this.attemptReadCounter = other.attemptReadCounter;
+    this.errorsCounter = other.errorsCounter;
+    this.ticksProcessedCounter = other.ticksProcessedCounter;
+    this.eventsProcessedCounter = other.eventsProcessedCounter;
+    this.queueEventsProcessedCounters = other.queueEventsProcessedCounters;
     this.processQueue = new PriorityQueue<>(other.processQueue.size());
     Iterables.addAll(processQueue, other.processQueue);
   }
@@ -214,7 +243,7 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
 
     ProcessMethod<T> processMethod = entry.getProcessSpec().getProcessMethod();
     if (processMethod.needsInput()) {
-      flowletContext.getProgramMetrics().increment("process.tuples.attempt.read", 1);
+      attemptReadCounter.increment(1);
     }
 
     // Begin transaction and dequeue
@@ -236,8 +265,24 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
 
         // Call the process method and commit the transaction. The current process entry will put
         // back to queue in the postProcess method (either a retry copy or itself).
+        long startTime = System.nanoTime();
         ProcessMethod.ProcessResult<?> result = processMethod.invoke(input);
-        postProcess(processMethodCallback(processQueue, entry, input), txContext, input, result);
+        long processNanos = System.nanoTime() - startTime;
+        MetricsContexts.distribution(flowletContext.getProgramMetrics(), "process.latency",
+                                     TimeUnit.NANOSECONDS.toMillis(processNanos));
+        if (processMethod.needsInput()) {
+          MetricsContexts.distribution(flowletContext.getProgramMetrics(), "process.batch.size", input.size());
+        }
+        long commitNanos = postProcess(processMethodCallback(processQueue, entry, input), txContext, input, result);
+
+        AdaptiveBatchSize adaptiveBatchSize = entry.getProcessSpec().getAdaptiveBatchSize();
+        if (adaptiveBatchSize != null) {
+          if (commitNanos < 0) {
+            adaptiveBatchSize.failed();
+          } else {
+            adaptiveBatchSize.committed(input.size(), processNanos, commitNanos);
+          }
+        }
         return true;
 
       } catch (Throwable t) {
@@ -257,19 +302,26 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
 
   /**
    * Process the process result. This method never throws.
+   *
+   * @return time in nanoseconds taken to commit the transaction, or {@code -1} if the transaction was not committed
    */
-  private void postProcess(ProcessMethodCallback callback, TransactionContext txContext,
+  private long postProcess(ProcessMethodCallback callback, TransactionContext txContext,
                            InputDatum input, ProcessMethod.ProcessResult result) {
     InputContext inputContext = input.getInputContext();
     Throwable failureCause = null;
     FailureReason.Type failureType = FailureReason.Type.IO_ERROR;
+    long commitNanos = -1L;
     try {
       if (result.isSuccess()) {
         // If it is a retry input, force the dequeued entries into current transaction.
         if (input.getRetry() > 0) {
           input.reclaim();
         }
+        long startTime = System.nanoTime();
         txContext.finish();
+        commitNanos = System.nanoTime() - startTime;
+        MetricsContexts.distribution(flowletContext.getProgramMetrics(), "process.tx.commit.latency",
+                                     TimeUnit.NANOSECONDS.toMillis(commitNanos));
       } else {
         failureCause = result.getCause();
         failureType = FailureReason.Type.USER;
@@ -301,6 +353,7 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     } catch (Throwable t) {
       LOG.error("Failed to invoke callback.", t);
     }
+    return commitNanos;
   }
 
   private InputAcknowledger createInputAcknowledger(final InputDatum input) {
@@ -322,15 +375,6 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     final int processedCount = processEntry.getProcessSpec().getProcessMethod().needsInput() ? input.size() : 1;
 
     return new ProcessMethodCallback() {
-      private final LoadingCache<String, MetricsContext> queueMetricsCollectors = CacheBuilder.newBuilder()
-        .expireAfterAccess(1, TimeUnit.HOURS)
-        .build(new CacheLoader<String, MetricsContext>() {
-          @Override
-          public MetricsContext load(String key) throws Exception {
-            return flowletContext.getProgramMetrics().childContext(Constants.Metrics.Tag.FLOWLET_QUEUE, key);
-          }
-        });
-
       @Override
       public void onSuccess(Object object, InputContext inputContext) {
         try {
@@ -350,7 +394,7 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
         LOG.warn("Process failure: {}, {}, input: {}", flowletContext, reason.getMessage(), input, reason.getCause());
         FailurePolicy failurePolicy;
         try {
-          flowletContext.getProgramMetrics().increment("process.errors", 1);
+          errorsCounter.increment(1);
           failurePolicy = txCallback.onFailure(inputObject, inputContext, reason);
           if (failurePolicy == null) {
             failurePolicy = FailurePolicy.RETRY;
@@ -393,12 +437,11 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
 
       private void gaugeEventProcessed(QueueName inputQueueName) {
         if (processEntry.isTick()) {
-          flowletContext.getProgramMetrics().increment("process.ticks.processed", processedCount);
+          ticksProcessedCounter.increment(processedCount);
         } else if (inputQueueName == null) {
-          flowletContext.getProgramMetrics().increment("process.events.processed", processedCount);
+          eventsProcessedCounter.increment(processedCount);
         } else {
-          queueMetricsCollectors.getUnchecked(inputQueueName.getSimpleName())
-            .increment("process.events.processed", processedCount);
+          queueEventsProcessedCounters.getUnchecked(inputQueueName.getSimpleName()).increment(processedCount);
         }
       }
     };
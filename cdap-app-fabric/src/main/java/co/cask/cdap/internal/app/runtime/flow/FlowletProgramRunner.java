@@ -46,6 +46,7 @@ import co.cask.cdap.app.runtime.ProgramController;
 import co.cask.cdap.app.runtime.ProgramOptions;
 import co.cask.cdap.app.runtime.ProgramRunner;
 import co.cask.cdap.common.async.ExecutorUtils;
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.BinaryDecoder;
 import co.cask.cdap.common.lang.InstantiatorFactory;
@@ -86,9 +87,12 @@ import co.cask.cdap.security.spi.authentication.AuthenticationContext;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.common.io.ByteBufferInputStream;
 import co.cask.tephra.TransactionSystemClient;
+import co.cask.tephra.TxConstants;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
@@ -117,6 +121,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -143,6 +148,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
   private final SecureStoreManager secureStoreManager;
   private final AuthenticationContext authenticationContext;
   private final AuthorizationEnforcer authorizationEnforcer;
+  private final CConfiguration cConf;
 
   @Inject
   public FlowletProgramRunner(SchemaGenerator schemaGenerator,
@@ -158,7 +164,8 @@ public final class FlowletProgramRunner implements ProgramRunner {
                               SecureStore secureStore,
                               SecureStoreManager secureStoreManager,
                               AuthenticationContext authenticationContext,
-                              AuthorizationEnforcer authorizationEnforcer) {
+                              AuthorizationEnforcer authorizationEnforcer,
+                              CConfiguration cConf) {
     this.schemaGenerator = schemaGenerator;
     this.datumWriterFactory = datumWriterFactory;
     this.dataFabricFacadeFactory = dataFabricFacadeFactory;
@@ -173,6 +180,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
     this.secureStoreManager = secureStoreManager;
     this.authenticationContext = authenticationContext;
     this.authorizationEnforcer = authorizationEnforcer;
+    this.cConf = cConf;
   }
 
   @SuppressWarnings("unused")
@@ -543,6 +551,9 @@ public final class FlowletProgramRunner implements ProgramRunner {
                                              ProcessMethod<T> method, ConsumerConfig consumerConfig, int batchSize,
                                              Tick tickAnnotation) {
         List<QueueReader<T>> queueReaders = Lists.newLinkedList();
+        AdaptiveBatchSize adaptiveBatchSize = createAdaptiveBatchSize(batchSize);
+        Supplier<Integer> batchSizeSupplier = adaptiveBatchSize == null
+          ? Suppliers.ofInstance(batchSize) : adaptiveBatchSize;
 
         for (Map.Entry<Node, Set<QueueSpecification>> entry : queueSpecs.column(flowletName).entrySet()) {
           for (QueueSpecification queueSpec : entry.getValue()) {
@@ -569,7 +580,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
                   }
                 });
 
-                queueReaders.add(queueReaderFactory.createStreamReader(consumerSupplier, batchSize, decoder,
+                queueReaders.add(queueReaderFactory.createStreamReader(consumerSupplier, batchSizeSupplier, decoder,
                                                                        authenticationContext, authorizationEnforcer));
 
               } else {
@@ -583,7 +594,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
                                                                                            dataFabricFacade, queueName,
                                                                                            consumerConfig, numGroups);
                 queueConsumerSupplierBuilder.add(consumerSupplier);
-                queueReaders.add(queueReaderFactory.createQueueReader(consumerSupplier, batchSize, decoder));
+                queueReaders.add(queueReaderFactory.createQueueReader(consumerSupplier, batchSizeSupplier, decoder));
               }
             }
           }
@@ -593,11 +604,25 @@ public final class FlowletProgramRunner implements ProgramRunner {
         if (!inputNames.isEmpty() && queueReaders.isEmpty()) {
           return null;
         }
-        return new ProcessSpecification<>(new RoundRobinQueueReader<>(queueReaders), method, tickAnnotation);
+        return new ProcessSpecification<>(new RoundRobinQueueReader<>(queueReaders), method, tickAnnotation,
+                                          adaptiveBatchSize);
       }
     };
   }
 
+  /**
+   * Creates an {@link AdaptiveBatchSize} for a process method with the given batch size, or returns {@code null}
+   * if the batch size is fixed. The time budget of a transaction is a tenth of the transaction timeout.
+   */
+  @Nullable
+  private AdaptiveBatchSize createAdaptiveBatchSize(int batchSize) {
+    if (batchSize <= 1 || !cConf.getBoolean(Constants.AppFabric.FLOWLET_ADAPTIVE_BATCH_ENABLED, false)) {
+      return null;
+    }
+    long txTimeout = cConf.getLong(TxConstants.Manager.CFG_TX_TIMEOUT, TxConstants.Manager.DEFAULT_TX_TIMEOUT);
+    return new AdaptiveBatchSize(batchSize, TimeUnit.SECONDS.toNanos(txTimeout) / 10);
+  }
+
   private <T> Function<ByteBuffer, T> createInputDatumDecoder(final TypeToken<T> dataType, final Schema schema,
                                                               final SchemaCache schemaCache) {
     final ReflectionDatumReader<T> datumReader = new ReflectionDatumReader<>(schema, dataType);
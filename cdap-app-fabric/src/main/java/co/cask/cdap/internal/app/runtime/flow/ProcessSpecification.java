@@ -21,6 +21,7 @@ import co.cask.cdap.app.queue.QueueReader;
 import com.google.common.base.Objects;
 
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  *
@@ -31,12 +32,19 @@ final class ProcessSpecification<T> {
   private final ProcessMethod<T> processMethod;
   private final Tick tickAnnotation;
   private final boolean isTick;
+  private final AdaptiveBatchSize adaptiveBatchSize;
 
   ProcessSpecification(QueueReader<T> queueReader, ProcessMethod<T> processMethod, Tick tickAnnotation) {
+    this(queueReader, processMethod, tickAnnotation, null);
+  }
+
+  ProcessSpecification(QueueReader<T> queueReader, ProcessMethod<T> processMethod, Tick tickAnnotation,
+                       @Nullable AdaptiveBatchSize adaptiveBatchSize) {
     this.queueReader = queueReader;
     this.processMethod = processMethod;
     this.tickAnnotation = tickAnnotation;
     this.isTick = tickAnnotation != null;
+    this.adaptiveBatchSize = adaptiveBatchSize;
   }
 
   QueueReader<T> getQueueReader() {
@@ -47,6 +55,15 @@ final class ProcessSpecification<T> {
     return processMethod;
   }
 
+  /**
+   * Returns the {@link AdaptiveBatchSize} that the queue reader uses for the dequeue size,
+   * or {@code null} if the dequeue size is fixed.
+   */
+  @Nullable
+  AdaptiveBatchSize getAdaptiveBatchSize() {
+    return adaptiveBatchSize;
+  }
+
   long getInitialCallDelay() {
     return isTick ? convertToNano(tickAnnotation.initialDelay(), tickAnnotation.unit()) : 0L;
   }
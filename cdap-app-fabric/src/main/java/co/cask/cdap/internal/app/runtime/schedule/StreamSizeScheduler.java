@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -72,7 +72,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
 
 /**
  * {@link Scheduler} that triggers program executions based on data availability in streams.
@@ -81,7 +80,6 @@ import javax.annotation.Nullable;
 public class StreamSizeScheduler implements Scheduler {
   private static final Logger LOG = LoggerFactory.getLogger(StreamSizeScheduler.class);
   private static final int STREAM_POLLING_THREAD_POOL_SIZE = 10;
-  private static final int POLLING_AFTER_NOTIFICATION_RETRY = 3;
 
   private final long pollingDelay;
   private final NotificationService notificationService;
@@ -99,10 +97,12 @@ public class StreamSizeScheduler implements Scheduler {
 
   private Executor sendPollingInfoExecutor;
 
-  // Used to schedule polling of a stream only after a certain time - the time after which the metrics are updated
+  // Used to schedule polling of a stream only after a certain time - the time after which the metrics are updated.
+  // Such polling calibrates the estimates of the stream size computed from notifications
   private ScheduledExecutorService pollBookingExecutor;
 
-  // Scheduled executor used to poll stream at regular intervals, by querying the metric system
+  // Scheduled executor used to poll stream at regular intervals, by querying the metric system, whether notifications
+  // are received or not
   private ScheduledExecutorService streamPollingExecutor;
 
   private ListeningExecutorService taskExecutorService;
@@ -453,8 +453,11 @@ public class StreamSizeScheduler implements Scheduler {
 
   /**
    * One instance of this class contains a list of {@link StreamSizeSchedule}s, which are all interested
-   * in the same stream. This instance subscribes to the size notification of the stream, and polls the
-   * stream for its size whenever the schedules it references need the information.
+   * in the same stream. This instance subscribes to the size notification of the stream, which are published by
+   * the stream writers as data gets ingested. The size given by a notification is translated to the size of events
+   * ingested as given by the metrics system, and is sent to the schedules right away, so that they do not wait for
+   * the metrics to be updated. The stream is polled using metrics to calibrate that translation and to confirm the
+   * estimated sizes, and at regular intervals in case notifications are lost.
    * The {@link StreamSizeScheduler} communicates with this class, which in turn communicates to the schedules
    * it contains to perform operations on the schedules - suspend, resume, etc.
    */
@@ -536,24 +539,29 @@ public class StreamSizeScheduler implements Scheduler {
         return;
       }
 
-      boolean poll = false;
-      Long estimate = null;
+      long estimate;
       synchronized (deltaLock) {
         if (delta == null) {
-          poll = true;
-        } else {
-          for (StreamSizeScheduleTask streamSizeScheduleTask : scheduleTasks.values()) {
-            if (streamSizeScheduleTask.shouldTriggerProgram(notification.getSize() - delta)) {
-              poll = true;
-              estimate = notification.getSize() - delta;
-              break;
-            }
-          }
+          // The size cannot be estimated yet, poll to compute the delta
+          pollAfterNotification(notification);
+          return;
+        }
+        estimate = notification.getSize() - delta;
+      }
+
+      boolean trigger = false;
+      for (StreamSizeScheduleTask streamSizeScheduleTask : scheduleTasks.values()) {
+        if (streamSizeScheduleTask.shouldTriggerProgram(estimate)) {
+          trigger = true;
+          break;
         }
       }
 
-      if (poll) {
-        pollAfterNotification(notification, estimate);
+      if (trigger) {
+        // Trigger the tasks with the estimated size instead of waiting for the metrics to be updated,
+        // and recalibrate the delta and confirm the size used by the tasks once they are
+        sendPollingInfoToActiveTasks(new StreamSize(estimate, notification.getTimestamp(), true));
+        pollAfterNotification(notification);
       }
     }
 
@@ -565,49 +573,26 @@ public class StreamSizeScheduler implements Scheduler {
     }
 
     /**
-     * Poll the stream size using metrics after receiving a notification, either to set the delta between metric value
-     * and notification value, or because the notification indicates that one {@link StreamSizeScheduleTask} will
-     * execute, and polling the stream is required to confirm the information.
+     * Poll the stream size using metrics after receiving a notification, once the metrics are updated, to set the
+     * delta between metric value and notification value. The delta is used to estimate the stream size from the
+     * notifications received afterwards.
      *
      * @param notification {@link StreamSizeNotification} received which triggered polling
-     * @param estimate size of data present in the stream, in bytes, which will trigger the execution of a program
-     *                 in one of the {@link StreamSizeScheduleTask} present in this {@link StreamSubscriber}. It
-     *                 can be null if, when receiving the {@code notification}, not enough information was present
-     *                 to compute an estimate - ie, the {@code delta} was null
      */
-    private void pollAfterNotification(final StreamSizeNotification notification, @Nullable final Long estimate) {
-      final AtomicBoolean firstPoll = new AtomicBoolean(true);
-      final AtomicInteger pollRetry = new AtomicInteger(POLLING_AFTER_NOTIFICATION_RETRY);
+    private void pollAfterNotification(final StreamSizeNotification notification) {
       pollBookingExecutor.schedule(new Runnable() {
         @Override
         public void run() {
           try {
             StreamSize streamSize;
-            boolean estimateReached = false;
             synchronized (deltaLock) {
               streamSize = pollOnce();
-              if (firstPoll.compareAndSet(true, false)) {
-                // The first polling will recalibrate the delta, for future use when receiving a notification
-                delta = notification.getSize() - streamSize.getSize();
-              }
-              if (estimate != null && streamSize.getSize() >= estimate) {
-                estimateReached = true;
-              }
+              delta = notification.getSize() - streamSize.getSize();
             }
 
-            // It is always worth it to send the latest stream size to the active tasks. Even if the estimate was
-            // not reached, one of the tasks might expect less data than shown by the estimate
+            // It is always worth it to send the latest stream size to the active tasks, to confirm the size
+            // estimated from the notification, or in case the estimate was too low
             sendPollingInfoToActiveTasks(streamSize);
-
-            // TODO instead of relying on expected size to retry polling, use notification timestamp VS
-            // metric timestamp [CDAP-1676]
-            if (estimate != null && !estimateReached && pollRetry.decrementAndGet() >= 0) {
-              pollBookingExecutor.schedule(this, Constants.MetricsCollector.DEFAULT_FREQUENCY_SECONDS,
-                                           TimeUnit.SECONDS);
-            } else if (estimate != null && !estimateReached) {
-              LOG.debug("Polling estimate {} was not reached for stream {} after {} retries",
-                        estimate, streamId.getId(), POLLING_AFTER_NOTIFICATION_RETRY);
-            }
           } catch (IOException e) {
             LOG.error("Could not poll stream {}", streamId.getId(), e);
           } catch (Throwable t) {
@@ -905,6 +890,13 @@ public class StreamSizeScheduler implements Scheduler {
     // Logical time, in milliseconds, of the last recorded execution
     private long lastRunTs;
 
+    // Size, in bytes, estimated from a notification for an execution which is not yet confirmed by polling.
+    // -1 if there is no such execution. It is only persisted as the last run, never as the base, so that a wrong
+    // estimate does not inflate the base
+    private long estimatedRunSize = -1;
+    // Logical time, in milliseconds, of the execution triggered by the previous attribute
+    private long estimatedRunTs;
+
     private StreamSizeScheduleTask(Id.Program programId, SchedulableProgramType programType,
                                    StreamSizeSchedule streamSizeSchedule, Map<String, String> properties) {
       this.programId = programId;
@@ -957,6 +949,13 @@ public class StreamSizeScheduler implements Scheduler {
       this.lastRunSize = lastRunSize;
       this.lastRunTs = lastRunTs;
       this.active.set(active);
+
+      // A last run more recent than the base was triggered by an estimate that polling has not confirmed yet.
+      // It is kept pending, so that polling the same data does not execute the program again.
+      if (lastRunTs > basePollTs) {
+        this.estimatedRunSize = lastRunSize;
+        this.estimatedRunTs = lastRunTs;
+      }
     }
 
     /**
@@ -978,37 +977,37 @@ public class StreamSizeScheduler implements Scheduler {
     }
 
     /**
-     * Received stream size information coming from polling.
+     * Received stream size information coming from polling, or estimated from a notification.
+     * Sizes received concurrently are handled one at a time, so that the program is not executed twice
+     * for the same data.
      *
-     * @param pollingInfo {@link StreamSize} info that came from polling the stream using metrics
+     * @param pollingInfo {@link StreamSize} info that came from polling the stream using metrics, or that was
+     *                    estimated from a notification
      */
-    public void receivedPollingInformation(@Nonnull StreamSize pollingInfo) {
+    public synchronized void receivedPollingInformation(@Nonnull StreamSize pollingInfo) {
       Preconditions.checkNotNull(pollingInfo);
       if (!active.get()) {
         return;
       }
 
-      final StreamSizeSchedule currentSchedule;
-      final ImmutableMap.Builder<String, String> argsBuilder = ImmutableMap.builder();
+      if (pollingInfo.isEstimated()) {
+        receivedEstimate(pollingInfo);
+        return;
+      }
+
+      if (estimatedRunSize != -1 && !confirmEstimatedRun(pollingInfo)) {
+        return;
+      }
 
       if (pollingInfo.getSize() - basePollSize < toBytes(streamSizeSchedule.getDataTriggerMB())) {
         return;
       }
 
-      argsBuilder.put(ProgramOptionConstants.SCHEDULE_NAME, streamSizeSchedule.getName());
-      argsBuilder.put(ProgramOptionConstants.LOGICAL_START_TIME, Long.toString(pollingInfo.getTimestamp()));
-      argsBuilder.put(ProgramOptionConstants.RUN_DATA_SIZE, Long.toString(pollingInfo.getSize()));
-      argsBuilder.put(ProgramOptionConstants.RUN_BASE_COUNT_TIME, Long.toString(basePollTs));
-      argsBuilder.put(ProgramOptionConstants.RUN_BASE_COUNT_SIZE, Long.toString(basePollSize));
-      argsBuilder.putAll(properties);
+      final StreamSizeSchedule currentSchedule = streamSizeSchedule;
+      final Map<String, String> systemOverrides = getSystemOverrides(pollingInfo, basePollSize, basePollTs);
       final Map<String, String> userOverrides = ImmutableMap.of(ProgramOptionConstants.LOGICAL_START_TIME,
                                                                 Long.toString(pollingInfo.getTimestamp()));
 
-      if (lastRunSize != -1 && lastRunTs != -1) {
-        argsBuilder.put(ProgramOptionConstants.LAST_SCHEDULED_RUN_LOGICAL_START_TIME, Long.toString(lastRunTs));
-        argsBuilder.put(ProgramOptionConstants.LAST_SCHEDULED_RUN_DATA_SIZE, Long.toString(lastRunSize));
-      }
-
       try {
         scheduleStore.updateBaseRun(programId, programType, streamSizeSchedule.getName(),
                                     pollingInfo.getSize(), pollingInfo.getTimestamp());
@@ -1018,7 +1017,6 @@ public class StreamSizeScheduler implements Scheduler {
         return;
       }
 
-      currentSchedule = streamSizeSchedule;
       basePollSize = pollingInfo.getSize();
       basePollTs = pollingInfo.getTimestamp();
 
@@ -1032,7 +1030,7 @@ public class StreamSizeScheduler implements Scheduler {
                                       @Override
                                       public void execute() throws Exception {
                                         LOG.info("About to start streamSizeSchedule {}", currentSchedule.getName());
-                                        taskRunner.run(programId, argsBuilder.build(), userOverrides);
+                                        taskRunner.run(programId, systemOverrides, userOverrides);
                                       }
                                     });
         lastRunSize = pollingInfo.getSize();
@@ -1043,6 +1041,98 @@ public class StreamSizeScheduler implements Scheduler {
       }
     }
 
+    /**
+     * Executes the program if the size estimated from a notification shows enough data since the base, or since
+     * the previous execution triggered by an estimate. The execution is persisted as the last run, in the same
+     * transaction that starts the program, while the base is only moved once polling the stream confirms it.
+     * A scheduler that takes over before the confirmation restores the pending execution from the last run,
+     * see {@link #startScheduleFromStore}.
+     */
+    private void receivedEstimate(final StreamSize estimate) {
+      long baseSize = estimatedRunSize == -1 ? basePollSize : estimatedRunSize;
+      if (estimate.getSize() - baseSize < toBytes(streamSizeSchedule.getDataTriggerMB())) {
+        return;
+      }
+
+      final String scheduleName = streamSizeSchedule.getName();
+      final Map<String, String> systemOverrides = getSystemOverrides(estimate, basePollSize, basePollTs);
+      final Map<String, String> userOverrides = ImmutableMap.of(ProgramOptionConstants.LOGICAL_START_TIME,
+                                                                Long.toString(estimate.getTimestamp()));
+      final ScheduleTaskRunner taskRunner = new ScheduleTaskRunner(store, lifecycleService, propertiesResolver,
+                                                                   taskExecutorService);
+      try {
+        scheduleStore.updateLastRun(programId, programType, scheduleName,
+                                    estimate.getSize(), estimate.getTimestamp(),
+                                    new DatasetBasedStreamSizeScheduleStore.TransactionMethod() {
+                                      @Override
+                                      public void execute() throws Exception {
+                                        LOG.info("About to start streamSizeSchedule {} with estimated stream size {}",
+                                                 scheduleName, estimate.getSize());
+                                        taskRunner.run(programId, systemOverrides, userOverrides);
+                                      }
+                                    });
+      } catch (Throwable t) {
+        LOG.error("Error when executing program for schedule {} with estimated stream size {}",
+                  scheduleName, estimate.getSize(), t);
+        return;
+      }
+      lastRunSize = estimate.getSize();
+      lastRunTs = estimate.getTimestamp();
+      estimatedRunSize = estimate.getSize();
+      estimatedRunTs = estimate.getTimestamp();
+    }
+
+    /**
+     * Confirms the last execution triggered by an estimate using a size obtained by polling the stream, and
+     * persists it as the new base and last run information. The estimate can be too high when the delta between
+     * notifications and metrics is stale, hence the confirmed size is clamped to the polled size, so that data
+     * received later still triggers executions.
+     *
+     * @return {@code true} if the execution was confirmed, {@code false} if the polled size cannot be used yet
+     */
+    private boolean confirmEstimatedRun(StreamSize pollingInfo) {
+      if (pollingInfo.getTimestamp() <
+        estimatedRunTs + TimeUnit.SECONDS.toMillis(Constants.MetricsCollector.DEFAULT_FREQUENCY_SECONDS)) {
+        // The metrics may not account for the data which triggered the execution yet
+        return false;
+      }
+
+      long confirmedSize = Math.min(estimatedRunSize, pollingInfo.getSize());
+      try {
+        scheduleStore.updateBaseRun(programId, programType, streamSizeSchedule.getName(),
+                                    confirmedSize, estimatedRunTs);
+        scheduleStore.updateLastRun(programId, programType, streamSizeSchedule.getName(),
+                                    confirmedSize, estimatedRunTs, null);
+      } catch (Throwable t) {
+        LOG.error("Error when persisting confirmed run information for schedule {} in store",
+                  streamSizeSchedule.getName(), t);
+        return false;
+      }
+
+      basePollSize = confirmedSize;
+      basePollTs = estimatedRunTs;
+      lastRunSize = confirmedSize;
+      lastRunTs = estimatedRunTs;
+      estimatedRunSize = -1;
+      return true;
+    }
+
+    private Map<String, String> getSystemOverrides(StreamSize streamSize, long baseSize, long baseTs) {
+      ImmutableMap.Builder<String, String> argsBuilder = ImmutableMap.builder();
+      argsBuilder.put(ProgramOptionConstants.SCHEDULE_NAME, streamSizeSchedule.getName());
+      argsBuilder.put(ProgramOptionConstants.LOGICAL_START_TIME, Long.toString(streamSize.getTimestamp()));
+      argsBuilder.put(ProgramOptionConstants.RUN_DATA_SIZE, Long.toString(streamSize.getSize()));
+      argsBuilder.put(ProgramOptionConstants.RUN_BASE_COUNT_TIME, Long.toString(baseTs));
+      argsBuilder.put(ProgramOptionConstants.RUN_BASE_COUNT_SIZE, Long.toString(baseSize));
+      argsBuilder.putAll(properties);
+
+      if (lastRunSize != -1 && lastRunTs != -1) {
+        argsBuilder.put(ProgramOptionConstants.LAST_SCHEDULED_RUN_LOGICAL_START_TIME, Long.toString(lastRunTs));
+        argsBuilder.put(ProgramOptionConstants.LAST_SCHEDULED_RUN_DATA_SIZE, Long.toString(lastRunSize));
+      }
+      return argsBuilder.build();
+    }
+
     /**
      * @return true if we successfully suspended the schedule, false if it was already suspended
      */
@@ -1100,8 +1190,9 @@ public class StreamSizeScheduler implements Scheduler {
      * @param newEstimateSize estimate of the stream size as of now
      * @return {@code true} if this task should trigger, {@code false} otherwise
      */
-    public boolean shouldTriggerProgram(long newEstimateSize) {
-      return active.get() && newEstimateSize >= basePollSize + toBytes(streamSizeSchedule.getDataTriggerMB());
+    public synchronized boolean shouldTriggerProgram(long newEstimateSize) {
+      long baseSize = estimatedRunSize == -1 ? basePollSize : estimatedRunSize;
+      return active.get() && newEstimateSize >= baseSize + toBytes(streamSizeSchedule.getDataTriggerMB());
     }
 
     /**
@@ -1110,9 +1201,10 @@ public class StreamSizeScheduler implements Scheduler {
      *
      * @param timestamp timestamp set as the new base for polling
      */
-    public void reset(long timestamp) {
+    public synchronized void reset(long timestamp) {
       basePollSize = 0L;
       basePollTs = timestamp;
+      estimatedRunSize = -1;
     }
   }
 
@@ -1122,10 +1214,16 @@ public class StreamSizeScheduler implements Scheduler {
   private final class StreamSize {
     private final long size;
     private final long timestamp;
+    private final boolean estimated;
 
     private StreamSize(long size, long timestamp) {
+      this(size, timestamp, false);
+    }
+
+    private StreamSize(long size, long timestamp, boolean estimated) {
       this.size = size;
       this.timestamp = timestamp;
+      this.estimated = estimated;
     }
 
     public long getSize() {
@@ -1135,5 +1233,13 @@ public class StreamSizeScheduler implements Scheduler {
     public long getTimestamp() {
       return timestamp;
     }
+
+    /**
+     * @return {@code true} if the size was estimated from a notification, {@code false} if it was obtained
+     *         by polling the stream using metrics
+     */
+    public boolean isEstimated() {
+      return estimated;
+    }
   }
 }
@@ -71,9 +71,9 @@ import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.id.ProgramId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.authorization.AuthorizationEnforcementService;
 import co.cask.cdap.security.authorization.AuthorizerInstantiator;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
-import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.cdap.security.spi.authorization.UnauthorizedException;
 import com.google.common.base.Joiner;
 import com.google.common.base.Predicates;
@@ -96,6 +96,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -130,7 +131,7 @@ public class ApplicationLifecycleService extends AbstractIdleService {
   private final ManagerFactory<AppDeploymentInfo, ApplicationWithPrograms> managerFactory;
   private final MetadataStore metadataStore;
   private final AuthorizerInstantiator authorizerInstantiator;
-  private final AuthorizationEnforcer authorizationEnforcer;
+  private final AuthorizationEnforcementService authorizationEnforcer;
   private final AuthenticationContext authenticationContext;
   private final Impersonator impersonator;
 
@@ -144,7 +145,7 @@ public class ApplicationLifecycleService extends AbstractIdleService {
                               ManagerFactory<AppDeploymentInfo, ApplicationWithPrograms> managerFactory,
                               MetadataStore metadataStore,
                               AuthorizerInstantiator authorizerInstantiator,
-                              AuthorizationEnforcer authorizationEnforcer,
+                              AuthorizationEnforcementService authorizationEnforcer,
                               AuthenticationContext authenticationContext, Impersonator impersonator) {
     this.runtimeService = runtimeService;
     this.store = store;
@@ -199,10 +200,10 @@ public class ApplicationLifecycleService extends AbstractIdleService {
    * @param predicate the predicate that must be satisfied in order to be returned
    * @return list of all applications in the namespace that satisfy the specified predicate
    */
-  public List<ApplicationRecord> getApps(final Id.Namespace namespace,
+  public List<ApplicationRecord> getApps(Id.Namespace namespace,
                                          com.google.common.base.Predicate<ApplicationRecord> predicate)
     throws Exception {
-    List<ApplicationRecord> appRecords = new ArrayList<>();
+    Map<ApplicationId, ApplicationRecord> appRecords = new LinkedHashMap<>();
     for (ApplicationSpecification appSpec : store.getAllApplications(namespace)) {
       // possible if this particular app was deploy prior to v3.2 and upgrade failed for some reason.
       ArtifactId artifactId = appSpec.getArtifactId();
@@ -210,18 +211,16 @@ public class ApplicationLifecycleService extends AbstractIdleService {
         new ArtifactSummary(appSpec.getName(), null) : ArtifactSummary.from(artifactId);
       ApplicationRecord record = new ApplicationRecord(artifactSummary, appSpec.getName(), appSpec.getDescription());
       if (predicate.apply(record)) {
-        appRecords.add(record);
+        appRecords.put(namespace.toEntityId().app(record.getName()), record);
       }
     }
 
     Principal principal = authenticationContext.getPrincipal();
-    final Predicate<EntityId> filter = authorizationEnforcer.createFilter(principal);
-    return Lists.newArrayList(Iterables.filter(appRecords, new com.google.common.base.Predicate<ApplicationRecord>() {
-      @Override
-      public boolean apply(ApplicationRecord appRecord) {
-        return filter.apply(namespace.toEntityId().app(appRecord.getName()));
-      }
-    }));
+    List<ApplicationRecord> result = new ArrayList<>();
+    for (ApplicationId appId : authorizationEnforcer.filter(appRecords.keySet(), principal)) {
+      result.add(appRecords.get(appId));
+    }
+    return result;
   }
 
   /**
@@ -142,6 +142,18 @@ public class ProgramLifecycleService extends AbstractIdleService {
     }
     scheduledExecutorService.scheduleWithFixedDelay(new RunRecordsCorrectorRunnable(this),
                                                     2L, interval, TimeUnit.SECONDS);
+    // Queries of completed runs across programs fall back to a full scan until the run record indexes are built
+    scheduledExecutorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          store.rebuildRunRecordIndexes();
+        } catch (Throwable t) {
+          LOG.warn("Unable to build run record indexes: {}", Throwables.getRootCause(t).getMessage());
+          LOG.debug("Exception thrown when building run record indexes.", t);
+        }
+      }
+    });
   }
 
   @Override
@@ -46,6 +46,7 @@ import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -59,6 +60,7 @@ import org.slf4j.LoggerFactory;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -80,10 +82,28 @@ public class AppMetadataStore extends MetadataStoreDataset {
   private static final String TYPE_RUN_RECORD_STARTED = "runRecordStarted";
   private static final String TYPE_RUN_RECORD_SUSPENDED = "runRecordSuspended";
   private static final String TYPE_RUN_RECORD_COMPLETED = "runRecordCompleted";
+  // Indexes of completed run records, all with the start time of the run as value:
+  // [runRecordStatusIdx][status][inverted start time][namespace][app][program type][program][run id]
+  private static final String TYPE_RUN_RECORD_STATUS_INDEX = "runRecordStatusIdx";
+  // [runRecordStopIdx][stop time][namespace][app][program type][program][run id]
+  private static final String TYPE_RUN_RECORD_STOP_INDEX = "runRecordStopIdx";
+  // [runRecordRunIdIdx][run id][namespace][app][program type][program]
+  private static final String TYPE_RUN_RECORD_RUN_ID_INDEX = "runRecordRunIdIdx";
+  // Marks that the indexes of completed run records written before the indexes existed have been built
+  private static final String TYPE_RUN_RECORD_INDEX_BUILT = "runRecordIdxBuilt";
   private static final String TYPE_WORKFLOW_NODE_STATE = "wns";
   private static final String TYPE_WORKFLOW_TOKEN = "wft";
   private static final String TYPE_NAMESPACE = "namespace";
 
+  private static final List<ProgramRunStatus> COMPLETED_STATUSES =
+    ImmutableList.of(ProgramRunStatus.COMPLETED, ProgramRunStatus.KILLED, ProgramRunStatus.FAILED);
+  private static final Comparator<RunRecordMeta> LATEST_START_FIRST = new Comparator<RunRecordMeta>() {
+    @Override
+    public int compare(RunRecordMeta o1, RunRecordMeta o2) {
+      return Long.compare(o2.getStartTs(), o1.getStartTs());
+    }
+  };
+
   private final CConfiguration cConf;
 
   private static final Function<RunRecordMeta, RunId> RUN_RECORD_META_TO_RUN_ID_FUNCTION =
@@ -311,16 +331,9 @@ public class AppMetadataStore extends MetadataStoreDataset {
 
     deleteAll(key);
 
-    key = new MDSKey.Builder()
-      .add(TYPE_RUN_RECORD_COMPLETED)
-      .add(program.getNamespaceId())
-      .add(program.getApplicationId())
-      .add(program.getType().name())
-      .add(program.getId())
-      .add(getInvertedTsKeyPart(started.getStartTs()))
-      .add(pid).build();
-
-    write(key, new RunRecordMeta(started, stopTs, runStatus));
+    MDSKey programKey = getProgramKey(program);
+    write(getCompletedRunKey(programKey, started.getStartTs(), pid), new RunRecordMeta(started, stopTs, runStatus));
+    writeRunIndexes(programKey, pid, started.getStartTs(), stopTs, runStatus);
   }
 
   public List<RunRecordMeta> getRuns(ProgramRunStatus status, Predicate<RunRecordMeta> filter) {
@@ -413,20 +426,27 @@ public class AppMetadataStore extends MetadataStoreDataset {
         .build();
 
       return get(key, RunRecordMeta.class);
-    } else {
-      // If start time is not found, scan the table (backwards compatibility when run ids were random UUIDs)
-      MDSKey startKey = new MDSKey.Builder(completedKey).add(getInvertedTsScanKeyPart(Long.MAX_VALUE)).build();
-      MDSKey stopKey = new MDSKey.Builder(completedKey).add(getInvertedTsScanKeyPart(0)).build();
-      List<RunRecordMeta> runRecords =
-        list(startKey, stopKey, RunRecordMeta.class, 1,  // Should have only one record for this runid
-             new Predicate<RunRecordMeta>() {
-               @Override
-               public boolean apply(RunRecordMeta input) {
-                 return input.getPid().equals(runid);
-               }
-             });
-      return Iterables.getFirst(runRecords, null);
     }
+
+    // If start time is not found, look up the run id index (backwards compatibility when run ids were random UUIDs)
+    MDSKey programKey = getProgramKey(program);
+    Long startTs = get(getRunIdIndexKey(programKey, runid), Long.class);
+    if (startTs != null) {
+      return get(getCompletedRunKey(programKey, startTs, runid), RunRecordMeta.class);
+    }
+
+    // Scan the table if the run record has not been indexed
+    MDSKey startKey = new MDSKey.Builder(completedKey).add(getInvertedTsScanKeyPart(Long.MAX_VALUE)).build();
+    MDSKey stopKey = new MDSKey.Builder(completedKey).add(getInvertedTsScanKeyPart(0)).build();
+    List<RunRecordMeta> runRecords =
+      list(startKey, stopKey, RunRecordMeta.class, 1,  // Should have only one record for this runid
+           new Predicate<RunRecordMeta>() {
+             @Override
+             public boolean apply(RunRecordMeta input) {
+               return input.getPid().equals(runid);
+             }
+           });
+    return Iterables.getFirst(runRecords, null);
   }
 
   private List<RunRecordMeta> getSuspendedRuns(Id.Program program, long startTime, long endTime, int limit,
@@ -452,9 +472,14 @@ public class AppMetadataStore extends MetadataStoreDataset {
                 }, filter));
   }
 
-  private List<RunRecordMeta> getHistoricalRuns(Id.Program program, ProgramRunStatus status,
+  private List<RunRecordMeta> getHistoricalRuns(@Nullable Id.Program program, ProgramRunStatus status,
                                                 final long startTime, final long endTime, int limit,
                                                 @Nullable Predicate<RunRecordMeta> filter) {
+    if (program == null) {
+      return isRunRecordIndexBuilt() ? getIndexedHistoricalRuns(status, startTime, endTime, limit, filter)
+                                     : getUnindexedHistoricalRuns(status, startTime, endTime, limit, filter);
+    }
+
     MDSKey historyKey = getProgramKeyBuilder(TYPE_RUN_RECORD_COMPLETED, program).build();
 
     MDSKey start = new MDSKey.Builder(historyKey).add(getInvertedTsScanKeyPart(endTime)).build();
@@ -477,6 +502,77 @@ public class AppMetadataStore extends MetadataStoreDataset {
                 andPredicate(getPredicate(ProgramController.State.ERROR), filter));
   }
 
+  /**
+   * Returns completed run records of all programs using the status index, which bounds the scan by the status
+   * and the start time instead of filtering every completed run record.
+   */
+  private List<RunRecordMeta> getIndexedHistoricalRuns(ProgramRunStatus status, long startTime, long endTime,
+                                                       int limit, @Nullable Predicate<RunRecordMeta> filter) {
+    Predicate<RunRecordMeta> recordFilter = filter == null ? Predicates.<RunRecordMeta>alwaysTrue() : filter;
+    if (!status.equals(ProgramRunStatus.ALL)) {
+      return scanStatusIndex(status, startTime, endTime, limit, recordFilter);
+    }
+
+    // Each status index is ordered by start time, hence the latest runs of all statuses are among the latest
+    // runs of each status. Merge them by start time, so that the limit does not favor any status.
+    List<RunRecordMeta> result = new ArrayList<>();
+    for (ProgramRunStatus indexStatus : COMPLETED_STATUSES) {
+      result.addAll(scanStatusIndex(indexStatus, startTime, endTime, limit, recordFilter));
+    }
+    Collections.sort(result, LATEST_START_FIRST);
+    return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+  }
+
+  /**
+   * Returns the latest completed run records with the given status, in descending order of start time.
+   */
+  private List<RunRecordMeta> scanStatusIndex(ProgramRunStatus status, long startTime, long endTime,
+                                              final int limit, final Predicate<RunRecordMeta> filter) {
+    final List<RunRecordMeta> result = new ArrayList<>();
+    MDSKey statusKey = new MDSKey.Builder().add(TYPE_RUN_RECORD_STATUS_INDEX, status.name()).build();
+    MDSKey start = new MDSKey.Builder(statusKey).add(getInvertedTsScanKeyPart(endTime)).build();
+    // Start times are never negative, which also keeps the inverted key from overflowing
+    MDSKey stop = new MDSKey.Builder(statusKey).add(getInvertedTsScanKeyPart(Math.max(0L, startTime))).build();
+    scan(start, stop, Long.class, new Function<KeyValue<Long>, Boolean>() {
+      @Override
+      public Boolean apply(KeyValue<Long> input) {
+        if (result.size() >= limit) {
+          return false;
+        }
+        MDSKey.Splitter splitter = input.getKey().split();
+        splitter.skipString();
+        splitter.skipString();
+        splitter.skipLong();
+        MDSKey programKey = getProgramKey(splitter);
+        RunRecordMeta record = get(getCompletedRunKey(programKey, input.getValue(), splitter.getString()),
+                                   RunRecordMeta.class);
+        if (record != null && filter.apply(record)) {
+          result.add(record);
+        }
+        return result.size() < limit;
+      }
+    });
+    return result;
+  }
+
+  /**
+   * Returns completed run records of all programs by filtering every completed run record. This is used until the
+   * indexes of existing run records have been built.
+   */
+  private List<RunRecordMeta> getUnindexedHistoricalRuns(final ProgramRunStatus status, final long startTime,
+                                                         final long endTime, int limit,
+                                                         @Nullable Predicate<RunRecordMeta> filter) {
+    MDSKey historyKey = new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED).build();
+    return list(historyKey, new MDSKey(Bytes.stopKeyForPrefix(historyKey.getKey())), RunRecordMeta.class, limit,
+                andPredicate(new Predicate<RunRecordMeta>() {
+                  @Override
+                  public boolean apply(RunRecordMeta input) {
+                    return (status.equals(ProgramRunStatus.ALL) || input.getStatus().equals(status))
+                      && input.getStartTs() >= startTime && input.getStartTs() < endTime;
+                  }
+                }, filter));
+  }
+
   private Predicate<RunRecordMeta> getPredicate(final ProgramController.State state) {
     return new Predicate<RunRecordMeta>() {
       @Override
@@ -530,16 +626,129 @@ public class AppMetadataStore extends MetadataStoreDataset {
 
   public void deleteProgramHistory(String namespaceId, String appId) {
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_STARTED, namespaceId, appId).build());
-    deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId, appId).build());
+    deleteCompletedRuns(new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId, appId).build());
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_SUSPENDED, namespaceId, appId).build());
   }
 
   public void deleteProgramHistory(String namespaceId) {
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_STARTED, namespaceId).build());
-    deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId).build());
+    deleteCompletedRuns(new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED, namespaceId).build());
     deleteAll(new MDSKey.Builder().add(TYPE_RUN_RECORD_SUSPENDED, namespaceId).build());
   }
 
+  private void deleteCompletedRuns(MDSKey prefix) {
+    final List<MDSKey> indexKeys = new ArrayList<>();
+    scan(prefix, null, RunRecordMeta.class, new Function<KeyValue<RunRecordMeta>, Boolean>() {
+      @Override
+      public Boolean apply(KeyValue<RunRecordMeta> input) {
+        MDSKey.Splitter splitter = input.getKey().split();
+        splitter.skipString();
+        MDSKey programKey = getProgramKey(splitter);
+        RunRecordMeta record = input.getValue();
+        indexKeys.add(getStatusIndexKey(programKey, record.getPid(), record.getStartTs(), record.getStatus()));
+        indexKeys.add(getRunIdIndexKey(programKey, record.getPid()));
+        if (record.getStopTs() != null) {
+          indexKeys.add(getStopIndexKey(programKey, record.getPid(), record.getStopTs()));
+        }
+        return true;
+      }
+    });
+    for (MDSKey indexKey : indexKeys) {
+      delete(indexKey);
+    }
+    deleteAll(prefix);
+  }
+
+  /**
+   * Writes the index entries of the completed run records, for run records that were written before the
+   * indexes existed.
+   *
+   * @param startKey the key to start from, or {@code null} to start from the first completed run record
+   * @param limit maximum number of run records to index
+   * @return the key to continue from, or {@code null} if all completed run records have been indexed
+   */
+  @Nullable
+  public MDSKey rebuildRunRecordIndexes(@Nullable MDSKey startKey, int limit) {
+    MDSKey prefix = new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED).build();
+    MDSKey stopKey = new MDSKey(Bytes.stopKeyForPrefix(prefix.getKey()));
+    Map<MDSKey, RunRecordMeta> records = listKV(startKey == null ? prefix : startKey, stopKey, RunRecordMeta.class,
+                                                limit, Predicates.<RunRecordMeta>alwaysTrue());
+    MDSKey lastKey = null;
+    for (Map.Entry<MDSKey, RunRecordMeta> entry : records.entrySet()) {
+      MDSKey.Splitter splitter = entry.getKey().split();
+      splitter.skipString();
+      RunRecordMeta record = entry.getValue();
+      writeRunIndexes(getProgramKey(splitter), record.getPid(), record.getStartTs(), record.getStopTs(),
+                      record.getStatus());
+      lastKey = entry.getKey();
+    }
+    if (records.size() < limit || lastKey == null) {
+      write(new MDSKey.Builder().add(TYPE_RUN_RECORD_INDEX_BUILT).build(), true);
+      return null;
+    }
+    return new MDSKey(Bytes.stopKeyForPrefix(lastKey.getKey()));
+  }
+
+  /**
+   * Returns whether the indexes of completed run records have been built by
+   * {@link #rebuildRunRecordIndexes(MDSKey, int)}. Until then, queries of completed runs across programs scan all
+   * completed run records, since records written before the indexes existed are not indexed.
+   */
+  public boolean isRunRecordIndexBuilt() {
+    return exists(new MDSKey.Builder().add(TYPE_RUN_RECORD_INDEX_BUILT).build());
+  }
+
+  private void writeRunIndexes(MDSKey programKey, String pid, long startTs, @Nullable Long stopTs,
+                               ProgramRunStatus status) {
+    write(getStatusIndexKey(programKey, pid, startTs, status), startTs);
+    write(getRunIdIndexKey(programKey, pid), startTs);
+    if (stopTs != null) {
+      write(getStopIndexKey(programKey, pid, stopTs), startTs);
+    }
+  }
+
+  /**
+   * Returns the key of the given program, which is [namespace][app][program type][program].
+   */
+  private MDSKey getProgramKey(Id.Program program) {
+    return new MDSKey.Builder()
+      .add(program.getNamespaceId())
+      .add(program.getApplicationId())
+      .add(program.getType().name())
+      .add(program.getId())
+      .build();
+  }
+
+  /**
+   * Reads the program key parts from the current position of the given {@link MDSKey.Splitter}.
+   */
+  private MDSKey getProgramKey(MDSKey.Splitter splitter) {
+    return new MDSKey.Builder()
+      .add(splitter.getString())
+      .add(splitter.getString())
+      .add(splitter.getString())
+      .add(splitter.getString())
+      .build();
+  }
+
+  private MDSKey getCompletedRunKey(MDSKey programKey, long startTs, String pid) {
+    return new MDSKey.Builder().add(TYPE_RUN_RECORD_COMPLETED).append(programKey)
+      .add(getInvertedTsKeyPart(startTs)).add(pid).build();
+  }
+
+  private MDSKey getStatusIndexKey(MDSKey programKey, String pid, long startTs, ProgramRunStatus status) {
+    return new MDSKey.Builder().add(TYPE_RUN_RECORD_STATUS_INDEX, status.name())
+      .add(getInvertedTsKeyPart(startTs)).append(programKey).add(pid).build();
+  }
+
+  private MDSKey getStopIndexKey(MDSKey programKey, String pid, long stopTs) {
+    return new MDSKey.Builder().add(TYPE_RUN_RECORD_STOP_INDEX).add(stopTs).append(programKey).add(pid).build();
+  }
+
+  private MDSKey getRunIdIndexKey(MDSKey programKey, String pid) {
+    return new MDSKey.Builder().add(TYPE_RUN_RECORD_RUN_ID_INDEX, pid).append(programKey).build();
+  }
+
   public void createNamespace(NamespaceMeta metadata) {
     write(getNamespaceKey(metadata.getName()), metadata);
   }
@@ -627,46 +836,80 @@ public class AppMetadataStore extends MetadataStoreDataset {
   @VisibleForTesting
   List<Iterable<RunId>> getRunningInRangeForStatus(String statusKey, final long startTimeInSecs,
                                                    final long endTimeInSecs, long maxScanTimeMillis, Ticker ticker) {
-    // Create time filter to get running programs between start and end time
-    Predicate<RunRecordMeta> timeFilter = new Predicate<RunRecordMeta>() {
-      @Override
-      public boolean apply(RunRecordMeta runRecordMeta) {
-        // Program is running in range [startTime, endTime) if the program started before endTime
-        // or program's stop time was after startTime
-        return runRecordMeta.getStartTs() < endTimeInSecs &&
-          (runRecordMeta.getStopTs() == null || runRecordMeta.getStopTs() >= startTimeInSecs);
-      }
-    };
+    if (TYPE_RUN_RECORD_COMPLETED.equals(statusKey) && isRunRecordIndexBuilt()) {
+      // Completed runs that were running in range must have stopped at or after the start time,
+      // hence only the part of the stop time index from the start time needs to be scanned
+      MDSKey prefix = new MDSKey.Builder().add(TYPE_RUN_RECORD_STOP_INDEX).build();
+      MDSKey startKey = new MDSKey.Builder(prefix).add(startTimeInSecs).build();
+      return scanRunIds(startKey, new MDSKey(Bytes.stopKeyForPrefix(prefix.getKey())), Long.class,
+                        new Function<KeyValue<Long>, RunId>() {
+                          @Override
+                          public RunId apply(KeyValue<Long> input) {
+                            if (input.getValue() >= endTimeInSecs) {
+                              return null;
+                            }
+                            MDSKey.Splitter splitter = input.getKey().split();
+                            splitter.skipString();
+                            splitter.skipLong();
+                            getProgramKey(splitter);
+                            return RunIds.fromString(splitter.getString());
+                          }
+                        }, maxScanTimeMillis, ticker);
+    }
 
+    MDSKey startKey = new MDSKey.Builder().add(statusKey).build();
+    return scanRunIds(startKey, new MDSKey(Bytes.stopKeyForPrefix(startKey.getKey())), RunRecordMeta.class,
+                      new Function<KeyValue<RunRecordMeta>, RunId>() {
+                        @Override
+                        public RunId apply(KeyValue<RunRecordMeta> input) {
+                          // Program is running in range [startTime, endTime) if the program started before endTime
+                          // or program's stop time was after startTime
+                          RunRecordMeta runRecordMeta = input.getValue();
+                          if (runRecordMeta.getStartTs() < endTimeInSecs &&
+                            (runRecordMeta.getStopTs() == null || runRecordMeta.getStopTs() >= startTimeInSecs)) {
+                            return RUN_RECORD_META_TO_RUN_ID_FUNCTION.apply(runRecordMeta);
+                          }
+                          return null;
+                        }
+                      }, maxScanTimeMillis, ticker);
+  }
+
+  /**
+   * Scans the given key range in batches, each of them bounded by the given scan time.
+   *
+   * @param runIdFunction function to return the {@link RunId} of an entry, or {@code null} to skip the entry
+   */
+  private <T> List<Iterable<RunId>> scanRunIds(MDSKey startKey, MDSKey endKey, Type typeOfT,
+                                               Function<KeyValue<T>, RunId> runIdFunction,
+                                               long maxScanTimeMillis, Ticker ticker) {
     // Break up scans into smaller batches to prevent transaction timeout
     List<Iterable<RunId>> batches = new ArrayList<>();
-    MDSKey startKey = new MDSKey.Builder().add(statusKey).build();
-    MDSKey endKey = new MDSKey(Bytes.stopKeyForPrefix(startKey.getKey()));
     while (true) {
-      ScanFunction scanFunction = new ScanFunction(timeFilter, ticker, maxScanTimeMillis);
+      ScanFunction<T> scanFunction = new ScanFunction<>(runIdFunction, ticker, maxScanTimeMillis);
       scanFunction.start();
-      scan(startKey, endKey, RunRecordMeta.class, scanFunction);
+      scan(startKey, endKey, typeOfT, scanFunction);
       // stop when scan returns zero elements
       if (scanFunction.getNumProcessed() == 0) {
         break;
       }
-      batches.add(Iterables.transform(scanFunction.getValues(), RUN_RECORD_META_TO_RUN_ID_FUNCTION));
+      batches.add(scanFunction.getValues());
       // key for next scan is the last key + 1 from the previous scan
       startKey = new MDSKey(Bytes.stopKeyForPrefix(scanFunction.getLastKey().getKey()));
     }
     return batches;
   }
 
-  private static class ScanFunction implements Function<MetadataStoreDataset.KeyValue<RunRecordMeta>, Boolean> {
-    private final Predicate<RunRecordMeta> filter;
+  private static class ScanFunction<T> implements Function<MetadataStoreDataset.KeyValue<T>, Boolean> {
+    private final Function<MetadataStoreDataset.KeyValue<T>, RunId> runIdFunction;
     private final Stopwatch stopwatch;
     private final long maxScanTimeMillis;
-    private final List<RunRecordMeta> values = new ArrayList<>();
+    private final List<RunId> values = new ArrayList<>();
     private int numProcessed = 0;
     private MDSKey lastKey;
 
-    ScanFunction(Predicate<RunRecordMeta> filter, Ticker ticker, long maxScanTimeMillis) {
-      this.filter = filter;
+    ScanFunction(Function<MetadataStoreDataset.KeyValue<T>, RunId> runIdFunction, Ticker ticker,
+                 long maxScanTimeMillis) {
+      this.runIdFunction = runIdFunction;
       this.maxScanTimeMillis = maxScanTimeMillis;
       this.stopwatch = new Stopwatch(ticker);
     }
@@ -675,7 +918,7 @@ public class AppMetadataStore extends MetadataStoreDataset {
       stopwatch.start();
     }
 
-    public List<RunRecordMeta> getValues() {
+    public List<RunId> getValues() {
       return Collections.unmodifiableList(values);
     }
 
@@ -688,7 +931,7 @@ public class AppMetadataStore extends MetadataStoreDataset {
     }
 
     @Override
-    public Boolean apply(MetadataStoreDataset.KeyValue<RunRecordMeta> input) {
+    public Boolean apply(MetadataStoreDataset.KeyValue<T> input) {
       long elapsedMillis = stopwatch.elapsedMillis();
       if (elapsedMillis > maxScanTimeMillis) {
         return false;
@@ -696,8 +939,9 @@ public class AppMetadataStore extends MetadataStoreDataset {
 
       ++numProcessed;
       lastKey = input.getKey();
-      if (filter.apply(input.getValue())) {
-        values.add(input.getValue());
+      RunId runId = runIdFunction.apply(input);
+      if (runId != null) {
+        values.add(runId);
       }
       return true;
     }
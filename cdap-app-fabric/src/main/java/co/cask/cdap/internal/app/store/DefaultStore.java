@@ -46,6 +46,7 @@ import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
 import co.cask.cdap.data2.datafabric.dataset.DatasetsUtil;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.data2.dataset2.MultiThreadDatasetCache;
+import co.cask.cdap.data2.dataset2.lib.table.MDSKey;
 import co.cask.cdap.internal.app.ForwardingApplicationSpecification;
 import co.cask.cdap.internal.app.ForwardingFlowSpecification;
 import co.cask.cdap.proto.BasicThrowable;
@@ -99,6 +100,7 @@ public class DefaultStore implements Store {
   // as it is not specifically metadata
   public static final String WORKFLOW_STATS_TABLE = "workflow.stats";
   private static final Logger LOG = LoggerFactory.getLogger(DefaultStore.class);
+  private static final int REBUILD_INDEX_BATCH_SIZE = 1000;
   private static final Id.DatasetInstance APP_META_INSTANCE_ID =
     Id.DatasetInstance.from(Id.Namespace.SYSTEM, Constants.AppMetaStore.TABLE);
   private static final Id.DatasetInstance WORKFLOW_STATS_INSTANCE_ID =
@@ -1114,4 +1116,33 @@ public class DefaultStore implements Store {
         }
       }, apps.get());
   }
+
+  @Override
+  public void rebuildRunRecordIndexes() {
+    boolean built = appsTx.get().executeUnchecked(
+      new TransactionExecutor.Function<AppMetadataStore, Boolean>() {
+        @Override
+        public Boolean apply(AppMetadataStore mds) throws Exception {
+          return mds.isRunRecordIndexBuilt();
+        }
+      }, apps.get());
+    if (built) {
+      return;
+    }
+    MDSKey startKey = null;
+    while ((startKey = rebuildRunRecordIndexes(startKey)) != null) {
+      LOG.debug("Completed a batch for rebuilding run record indexes.");
+    }
+  }
+
+  @Nullable
+  private MDSKey rebuildRunRecordIndexes(@Nullable final MDSKey startKey) {
+    return appsTx.get().executeUnchecked(
+      new TransactionExecutor.Function<AppMetadataStore, MDSKey>() {
+        @Override
+        public MDSKey apply(AppMetadataStore mds) throws Exception {
+          return mds.rebuildRunRecordIndexes(startKey, REBUILD_INDEX_BATCH_SIZE);
+        }
+      }, apps.get());
+  }
 }
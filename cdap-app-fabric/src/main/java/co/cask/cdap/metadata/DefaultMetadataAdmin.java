@@ -28,7 +28,9 @@ import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.metadata.MetadataRecord;
 import co.cask.cdap.proto.metadata.MetadataScope;
+import co.cask.cdap.proto.metadata.MetadataSearchResponse;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecord;
+import co.cask.cdap.proto.metadata.MetadataSearchSortOrder;
 import co.cask.cdap.proto.metadata.MetadataSearchTargetType;
 import co.cask.cdap.proto.security.Principal;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
@@ -41,6 +43,7 @@ import com.google.inject.Inject;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Implementation of {@link MetadataAdmin} that interacts directly with {@link MetadataStore}.
@@ -171,6 +174,16 @@ public class DefaultMetadataAdmin implements MetadataAdmin {
     return filterAuthorizedSearchResult(metadataStore.searchMetadataOnType(scope, namespaceId, searchQuery, types));
   }
 
+  @Override
+  public MetadataSearchResponse search(String namespaceId, String searchQuery, Set<MetadataSearchTargetType> types,
+                                       MetadataSearchSortOrder sortOrder, int offset, int limit,
+                                       @Nullable String cursor) throws Exception {
+    MetadataSearchResponse response = metadataStore.search(namespaceId, searchQuery, types, sortOrder,
+                                                           offset, limit, cursor);
+    return new MetadataSearchResponse(response.getSort(), response.getOffset(), response.getLimit(),
+                                      response.getCursor(), filterAuthorizedSearchResult(response.getResults()));
+  }
+
   /**
    * Filter a list of {@link MetadataSearchResultRecord} that ensures the logged-in user has a privilege on
    *
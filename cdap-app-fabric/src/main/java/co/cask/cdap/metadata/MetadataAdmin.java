@@ -21,11 +21,14 @@ import co.cask.cdap.common.NotFoundException;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.metadata.MetadataRecord;
 import co.cask.cdap.proto.metadata.MetadataScope;
+import co.cask.cdap.proto.metadata.MetadataSearchResponse;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecord;
+import co.cask.cdap.proto.metadata.MetadataSearchSortOrder;
 import co.cask.cdap.proto.metadata.MetadataSearchTargetType;
 
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Interface that the {@link MetadataHttpHandler} uses to interact with Metadata.
@@ -174,4 +177,24 @@ public interface MetadataAdmin {
    */
   Set<MetadataSearchResultRecord> searchMetadata(MetadataScope scope, String namespaceId, String searchQuery,
                                                  Set<MetadataSearchTargetType> types) throws Exception;
+
+  /**
+   * Executes a search for CDAP entities in the specified namespace with the specified search query and
+   * an optional set of {@link MetadataSearchTargetType entity types} in both
+   * {@link MetadataScope#USER} and {@link MetadataScope#SYSTEM}, and returns one page of the results. Results the
+   * user is not authorized to see are removed from the page, hence it can have fewer than {@code limit} results.
+   *
+   * @param namespaceId The namespace to filter the search by
+   * @param searchQuery The search query
+   * @param types The types of CDAP entity to be searched. If empty all possible types will be searched
+   * @param sortOrder The {@link MetadataSearchSortOrder} of the results
+   * @param offset The number of results to skip
+   * @param limit The maximum number of results to return
+   * @param cursor The cursor returned with a previous page to continue from, only supported with
+   *               {@link MetadataSearchSortOrder#ENTITY}
+   * @return a {@link MetadataSearchResponse} containing the page of results
+   */
+  MetadataSearchResponse search(String namespaceId, String searchQuery, Set<MetadataSearchTargetType> types,
+                                MetadataSearchSortOrder sortOrder, int offset, int limit,
+                                @Nullable String cursor) throws Exception;
 }
@@ -24,7 +24,9 @@ import co.cask.cdap.proto.ProgramType;
 import co.cask.cdap.proto.codec.NamespacedIdCodec;
 import co.cask.cdap.proto.metadata.MetadataRecord;
 import co.cask.cdap.proto.metadata.MetadataScope;
+import co.cask.cdap.proto.metadata.MetadataSearchResponse;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecord;
+import co.cask.cdap.proto.metadata.MetadataSearchSortOrder;
 import co.cask.cdap.proto.metadata.MetadataSearchTargetType;
 import co.cask.http.AbstractHttpHandler;
 import co.cask.http.HttpResponder;
@@ -838,17 +840,33 @@ public class MetadataHttpHandler extends AbstractHttpHandler {
   public void searchMetadata(HttpRequest request, HttpResponder responder,
                              @PathParam("namespace-id") String namespaceId,
                              @QueryParam("query") String searchQuery,
-                             @QueryParam("target") List<String> targets) throws Exception {
+                             @QueryParam("target") List<String> targets,
+                             @QueryParam("sort") String sort,
+                             @QueryParam("offset") String offset,
+                             @QueryParam("limit") String limit,
+                             @QueryParam("cursor") String cursor) throws Exception {
     Set<MetadataSearchTargetType> types = ImmutableSet.of();
     if (targets != null) {
       types = ImmutableSet.copyOf(Iterables.transform(targets, STRING_TO_TARGET_TYPE));
     }
+    String query = URLDecoder.decode(searchQuery, "UTF-8");
 
-    Set<MetadataSearchResultRecord> results = metadataAdmin.searchMetadata(namespaceId,
-                                                                           URLDecoder.decode(searchQuery, "UTF-8"),
-                                                                           types);
+    // Without paging parameters, respond with all results as before
+    if (sort == null && offset == null && limit == null && cursor == null) {
+      Set<MetadataSearchResultRecord> results = metadataAdmin.searchMetadata(namespaceId, query, types);
+      responder.sendJson(HttpResponseStatus.OK, results, SET_METADATA_SEARCH_RESULT_TYPE, GSON);
+      return;
+    }
 
-    responder.sendJson(HttpResponseStatus.OK, results, SET_METADATA_SEARCH_RESULT_TYPE, GSON);
+    MetadataSearchSortOrder sortOrder = sort == null ? MetadataSearchSortOrder.RELEVANCE : validateSortOrder(sort);
+    if (cursor != null && sortOrder != MetadataSearchSortOrder.ENTITY) {
+      throw new BadRequestException(String.format("A cursor is only supported with sort order '%s'",
+                                                  MetadataSearchSortOrder.ENTITY));
+    }
+    MetadataSearchResponse response =
+      metadataAdmin.search(namespaceId, query, types, sortOrder, parseNonNegative("offset", offset, 0),
+                           parseNonNegative("limit", limit, Integer.MAX_VALUE), cursor);
+    responder.sendJson(HttpResponseStatus.OK, response, MetadataSearchResponse.class, GSON);
   }
 
   private Set<MetadataRecord> getMetadata(Id.NamespacedId entityId,
@@ -868,6 +886,31 @@ public class MetadataHttpHandler extends AbstractHttpHandler {
     return  (scope == null) ? metadataAdmin.getTags(entityId) : metadataAdmin.getTags(validateScope(scope), entityId);
   }
 
+  private MetadataSearchSortOrder validateSortOrder(String sort) throws BadRequestException {
+    try {
+      return MetadataSearchSortOrder.valueOf(sort.toUpperCase());
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException(String.format("Invalid sort order '%s'. Expected '%s' or '%s'",
+                                                  sort, MetadataSearchSortOrder.RELEVANCE,
+                                                  MetadataSearchSortOrder.ENTITY));
+    }
+  }
+
+  private int parseNonNegative(String name, @Nullable String value, int defaultValue) throws BadRequestException {
+    if (value == null) {
+      return defaultValue;
+    }
+    try {
+      int result = Integer.parseInt(value);
+      if (result >= 0) {
+        return result;
+      }
+    } catch (NumberFormatException e) {
+      // fall through to the error below
+    }
+    throw new BadRequestException(String.format("Invalid %s '%s'. Expected a non-negative integer", name, value));
+  }
+
   private MetadataScope validateScope(String scope) throws BadRequestException {
     try {
       return MetadataScope.valueOf(scope.toUpperCase());
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -22,8 +22,10 @@ import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.discovery.ResolvingDiscoverable;
 import co.cask.cdap.common.http.CommonNettyHttpServiceBuilder;
 import co.cask.cdap.common.metrics.MetricsReporterHook;
+import co.cask.cdap.data2.metadata.store.MetadataStore;
 import co.cask.http.HttpHandler;
 import co.cask.http.NettyHttpService;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
@@ -38,6 +40,8 @@ import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Service to manage metadata in CDAP. This service serves the HTTP endpoints defined in {@link MetadataHttpHandler}.
@@ -49,17 +53,20 @@ public class MetadataService extends AbstractIdleService {
   private final MetricsCollectionService metricsCollectionService;
   private final DiscoveryService discoveryService;
   private final Set<HttpHandler> handlers;
+  private final MetadataStore metadataStore;
 
   private NettyHttpService httpService;
+  private ExecutorService indexRebuildExecutor;
 
   @Inject
   MetadataService(CConfiguration cConf, MetricsCollectionService metricsCollectionService,
                   DiscoveryService discoveryService,
-                  @Named(Constants.Metadata.HANDLERS_NAME) Set<HttpHandler> handlers) {
+                  @Named(Constants.Metadata.HANDLERS_NAME) Set<HttpHandler> handlers, MetadataStore metadataStore) {
     this.cConf = cConf;
     this.metricsCollectionService = metricsCollectionService;
     this.discoveryService = discoveryService;
     this.handlers = handlers;
+    this.metadataStore = metadataStore;
   }
 
   @Override
@@ -109,11 +116,27 @@ public class MetadataService extends AbstractIdleService {
     }, Threads.SAME_THREAD_EXECUTOR);
 
     httpService.startAndWait();
+
+    // Searches read the metadata indexes instead of the inverted index until it is built
+    indexRebuildExecutor = Executors.newSingleThreadExecutor(
+      Threads.createDaemonThreadFactory("metadata-index-rebuilder"));
+    indexRebuildExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          metadataStore.rebuildIndexes();
+        } catch (Throwable t) {
+          LOG.warn("Unable to build metadata search indexes: {}", Throwables.getRootCause(t).getMessage());
+          LOG.debug("Exception thrown when building metadata search indexes.", t);
+        }
+      }
+    });
   }
 
   @Override
   protected void shutDown() throws Exception {
     LOG.debug("Shutting down Metadata Service");
+    indexRebuildExecutor.shutdownNow();
     httpService.stopAndWait();
   }
 }
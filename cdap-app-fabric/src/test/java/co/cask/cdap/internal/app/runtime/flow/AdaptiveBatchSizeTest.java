@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link AdaptiveBatchSize}.
+ */
+public class AdaptiveBatchSizeTest {
+
+  private static final long BUDGET = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void testAdapt() {
+    AdaptiveBatchSize batchSize = new AdaptiveBatchSize(100, BUDGET);
+    Assert.assertEquals(100, batchSize.get().intValue());
+
+    // Fast transaction stays at the maximum
+    batchSize.committed(100, BUDGET / 10, BUDGET / 10);
+    Assert.assertEquals(100, batchSize.get().intValue());
+
+    // Slow transactions shrink the size, with the commit time counted
+    batchSize.committed(100, BUDGET, BUDGET / 10);
+    Assert.assertEquals(50, batchSize.get().intValue());
+    batchSize.committed(50, BUDGET / 2, BUDGET);
+    Assert.assertEquals(25, batchSize.get().intValue());
+
+    // Failures shrink the size down to one
+    for (int i = 0; i < 10; i++) {
+      batchSize.failed();
+    }
+    Assert.assertEquals(1, batchSize.get().intValue());
+
+    // Not growing if the dequeue was not full
+    batchSize.committed(0, 0, BUDGET / 10);
+    Assert.assertEquals(1, batchSize.get().intValue());
+
+    // Not growing if twice the time doesn't fit in the budget
+    batchSize.committed(1, BUDGET / 2, BUDGET / 10);
+    Assert.assertEquals(1, batchSize.get().intValue());
+
+    // Grows back up to the maximum
+    for (int i = 0; i < 10; i++) {
+      batchSize.committed(batchSize.get(), BUDGET / 10, BUDGET / 10);
+    }
+    Assert.assertEquals(100, batchSize.get().intValue());
+  }
+}
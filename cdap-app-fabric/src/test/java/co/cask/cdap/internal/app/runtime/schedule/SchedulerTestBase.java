@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -55,10 +55,10 @@ public abstract class SchedulerTestBase {
 
   protected static final CConfiguration CCONF = CConfiguration.create();
 
-  private static StreamSizeScheduler streamSizeScheduler;
-  private static Store store;
+  protected static StreamSizeScheduler streamSizeScheduler;
+  protected static Store store;
   private static NamespaceAdmin namespaceAdmin;
-  private static ProgramRuntimeService runtimeService;
+  protected static ProgramRuntimeService runtimeService;
   protected static MetricStore metricStore;
   protected static Injector injector;
 
@@ -76,7 +76,7 @@ public abstract class SchedulerTestBase {
   @ClassRule
   public static TemporaryFolder tmpFolder = new TemporaryFolder();
 
-  private static final Supplier<File> TEMP_FOLDER_SUPPLIER = new Supplier<File>() {
+  protected static final Supplier<File> TEMP_FOLDER_SUPPLIER = new Supplier<File>() {
     @Override
     public File get() {
       try {
@@ -173,7 +173,7 @@ public abstract class SchedulerTestBase {
   /**
    * Waits until there is nothing running for the given program.
    */
-  private void waitUntilFinished(final ProgramRuntimeService runtimeService,
+  protected void waitUntilFinished(final ProgramRuntimeService runtimeService,
                                  final Id.Program program, long maxWaitSeconds) throws Exception {
     Tasks.waitFor(false, new Callable<Boolean>() {
       @Override
@@ -186,7 +186,7 @@ public abstract class SchedulerTestBase {
   /**
    * Waits for the given program ran for the given number of times.
    */
-  private void waitForRuns(final Store store, final Id.Program programId,
+  protected void waitForRuns(final Store store, final Id.Program programId,
                            int expectedRuns, long timeoutSeconds) throws Exception {
     Tasks.waitFor(expectedRuns, new Callable<Integer>() {
       @Override
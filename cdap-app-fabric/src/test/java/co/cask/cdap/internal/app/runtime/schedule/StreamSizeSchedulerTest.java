@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -16,15 +16,24 @@
 
 package co.cask.cdap.internal.app.runtime.schedule;
 
+import co.cask.cdap.AppWithStreamSizeSchedule;
 import co.cask.cdap.api.metrics.MetricType;
 import co.cask.cdap.api.metrics.MetricValues;
+import co.cask.cdap.api.schedule.SchedulableProgramType;
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.namespace.NamespaceAdmin;
 import co.cask.cdap.common.stream.notification.StreamSizeNotification;
+import co.cask.cdap.internal.AppFabricTestHelper;
+import co.cask.cdap.internal.app.runtime.schedule.store.DatasetBasedStreamSizeScheduleStore;
 import co.cask.cdap.notifications.service.NotificationService;
 import co.cask.cdap.proto.Id;
+import co.cask.cdap.proto.ProgramRunStatus;
+import co.cask.cdap.proto.ProgramType;
 import co.cask.cdap.test.XSlowTests;
 import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 import java.util.concurrent.TimeUnit;
@@ -35,6 +44,8 @@ import java.util.concurrent.TimeUnit;
 @Category(XSlowTests.class)
 public class StreamSizeSchedulerTest extends SchedulerTestBase {
 
+  private static final long ONE_MB = 1024 * 1024;
+
   private static NotificationService notificationService;
 
   @BeforeClass
@@ -42,27 +53,88 @@ public class StreamSizeSchedulerTest extends SchedulerTestBase {
     notificationService = injector.getInstance(NotificationService.class);
   }
 
+  @Test
+  public void testEstimatedRuns() throws Exception {
+    // Test the runs triggered by the stream sizes estimated from notifications. A separate namespace is used
+    // so that the runs of testStreamSizeSchedule are not counted
+    Id.Namespace namespace = Id.Namespace.from("estimates");
+    Id.Program programId = Id.Program.from(namespace, "AppWithStreamSizeSchedule", ProgramType.WORKFLOW,
+                                           "SampleWorkflow");
+    Id.Stream streamId = Id.Stream.from(namespace, "stream");
+    AppFabricTestHelper.deployApplicationWithManager(namespace, AppWithStreamSizeSchedule.class,
+                                                     TEMP_FOLDER_SUPPLIER);
+    streamSizeScheduler.resumeSchedule(programId, SchedulableProgramType.WORKFLOW, "SampleSchedule1");
+
+    // The first notification cannot be translated to a size, the stream is polled to compute the delta
+    addMetric(streamId, ONE_MB);
+    publishNotification(streamId, ONE_MB);
+    waitForRuns(store, programId, 1, 15);
+
+    // Once the delta is known, a notification triggers a run without waiting for the metrics
+    publishNotification(streamId, 2 * ONE_MB);
+    waitForRuns(store, programId, 2, 15);
+
+    // The run is persisted as the last run, ahead of the base, so that another scheduler taking over would not
+    // run the program again for the same data
+    StreamSizeScheduleState state = getScheduleState(programId);
+    Assert.assertTrue(state.getLastRunTs() > state.getBaseRunTs());
+
+    // The metrics never show the data of the previous notification. The poll following it recalibrates the delta
+    // and lowers the base of the schedule to the polled size, so that the next megabyte triggers a run
+    TimeUnit.SECONDS.sleep(2);
+    addMetric(streamId, ONE_MB);
+    publishNotification(streamId, 3 * ONE_MB);
+    waitForRuns(store, programId, 3, 15);
+
+    // The poll confirming the estimated size of the last run must not trigger the program again
+    TimeUnit.SECONDS.sleep(3);
+    Assert.assertEquals(3, store.getRuns(programId, ProgramRunStatus.ALL, 0, Long.MAX_VALUE, 100).size());
+
+    streamSizeScheduler.suspendSchedule(programId, SchedulableProgramType.WORKFLOW, "SampleSchedule1");
+    streamSizeScheduler.deleteSchedules(programId, SchedulableProgramType.WORKFLOW);
+    waitUntilFinished(runtimeService, programId, 10);
+    injector.getInstance(NamespaceAdmin.class).delete(namespace);
+  }
+
   @Override
   protected StreamMetricsPublisher createMetricsPublisher(final Id.Stream streamId) {
-    final Id.NotificationFeed feed = new Id.NotificationFeed.Builder()
-      .setNamespaceId(streamId.getNamespaceId())
-      .setCategory(Constants.Notification.Stream.STREAM_FEED_CATEGORY)
-      .setName(streamId.getId() + "Size")
-      .build();
-
     return new StreamMetricsPublisher() {
 
       long totalSize;
 
       @Override
       public void increment(long size) throws Exception {
-        metricStore.add(new MetricValues(ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, streamId.getNamespaceId(),
-                                                        Constants.Metrics.Tag.STREAM, streamId.getId()),
-                                        "collect.bytes", TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()),
-                                        size, MetricType.COUNTER));
+        addMetric(streamId, size);
         totalSize += size;
-        notificationService.publish(feed, new StreamSizeNotification(System.currentTimeMillis(), totalSize));
+        publishNotification(streamId, totalSize);
       }
     };
   }
+
+  private StreamSizeScheduleState getScheduleState(Id.Program programId) throws Exception {
+    DatasetBasedStreamSizeScheduleStore scheduleStore = injector.getInstance(DatasetBasedStreamSizeScheduleStore.class);
+    scheduleStore.initialize();
+    for (StreamSizeScheduleState state : scheduleStore.list()) {
+      if (state.getProgramId().equals(programId)) {
+        return state;
+      }
+    }
+    throw new IllegalStateException("No stream size schedule for " + programId);
+  }
+
+  private void addMetric(Id.Stream streamId, long size) throws Exception {
+    metricStore.add(new MetricValues(ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, streamId.getNamespaceId(),
+                                                    Constants.Metrics.Tag.STREAM, streamId.getId()),
+                                    "collect.bytes", TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()),
+                                    size, MetricType.COUNTER));
+  }
+
+  private void publishNotification(Id.Stream streamId, long totalSize) throws Exception {
+    Id.NotificationFeed feed = new Id.NotificationFeed.Builder()
+      .setNamespaceId(streamId.getNamespaceId())
+      .setCategory(Constants.Notification.Stream.STREAM_FEED_CATEGORY)
+      .setName(streamId.getId() + "Size")
+      .build();
+    notificationService.publish(feed, new StreamSizeNotification(System.currentTimeMillis(), totalSize)).get();
+  }
 }
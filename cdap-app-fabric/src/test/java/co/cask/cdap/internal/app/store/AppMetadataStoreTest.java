@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -21,14 +21,18 @@ import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.common.app.RunIds;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.data2.dataset2.DatasetFramework;
+import co.cask.cdap.data2.dataset2.lib.table.MDSKey;
 import co.cask.cdap.internal.AppFabricTestHelper;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.ProgramRunStatus;
 import co.cask.cdap.proto.ProgramType;
 import com.google.common.base.Function;
+import com.google.common.base.Predicates;
 import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.inject.Injector;
 import org.apache.twill.api.RunId;
 import org.junit.Assert;
@@ -38,6 +42,7 @@ import org.junit.Test;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -108,6 +113,117 @@ public class AppMetadataStoreTest {
             TimeUnit.MILLISECONDS.toSeconds(1000), TimeUnit.MILLISECONDS.toSeconds(10000));
   }
 
+  @Test
+  public void testRunRecordIndexes() throws Exception {
+    Id.DatasetInstance storeTable = Id.DatasetInstance.from(defaultNamespace, "testRunRecordIndexes");
+    datasetFramework.addInstance(Table.class.getName(), storeTable, DatasetProperties.EMPTY);
+
+    Table table = datasetFramework.getDataset(storeTable, ImmutableMap.<String, String>of(), null);
+    Assert.assertNotNull(table);
+    AppMetadataStore metadataStoreDataset = new AppMetadataStore(table, cConf);
+
+    // Runs of three programs, each ending with one of the completed statuses in turn
+    ProgramRunStatus[] statuses = { ProgramRunStatus.COMPLETED, ProgramRunStatus.KILLED, ProgramRunStatus.FAILED };
+    long[] startTimes = new long[30];
+    for (int i = 0; i < 30; i++) {
+      Id.Program program = Id.Program.from(Id.Application.from(defaultNamespace, "app" + (i % 3)),
+                                           ProgramType.WORKER, "program");
+      RunId runId = RunIds.generate((i + 1) * 10000);
+      startTimes[i] = RunIds.getTime(runId, TimeUnit.SECONDS);
+      metadataStoreDataset.recordProgramStart(program, runId.getId(), startTimes[i], null, null, null);
+      metadataStoreDataset.recordProgramStop(program, runId.getId(), startTimes[i] + 5, statuses[i % 3], null);
+    }
+    // A running program is not in the indexes
+    Id.Program running = Id.Program.from(Id.Application.from(defaultNamespace, "app0"), ProgramType.WORKER, "program");
+    metadataStoreDataset.recordProgramStart(running, RunIds.generate(1000000).getId(), 1000, null, null, null);
+
+    // Until the indexes are built, completed runs are found by scanning all run records
+    Assert.assertFalse(metadataStoreDataset.isRunRecordIndexBuilt());
+    verifyIndexedRuns(metadataStoreDataset, startTimes, 31);
+
+    // Runs with random run ids are found through the run id index
+    String pid = UUID.randomUUID().toString();
+    metadataStoreDataset.recordProgramStart(running, pid, 5000, null, null, null);
+    metadataStoreDataset.recordProgramStop(running, pid, 5005, ProgramRunStatus.COMPLETED, null);
+    RunRecordMeta record = metadataStoreDataset.getRun(running, pid);
+    Assert.assertNotNull(record);
+    Assert.assertEquals(5000, record.getStartTs());
+    Assert.assertEquals(ProgramRunStatus.COMPLETED, record.getStatus());
+
+    // Remove all indexes and rebuild them
+    for (String indexType : ImmutableList.of("runRecordStatusIdx", "runRecordStopIdx", "runRecordRunIdIdx")) {
+      metadataStoreDataset.deleteAll(new MDSKey.Builder().add(indexType).build());
+    }
+    Assert.assertEquals(10, metadataStoreDataset.getRuns(ProgramRunStatus.FAILED,
+                                                         Predicates.<RunRecordMeta>alwaysTrue()).size());
+    MDSKey startKey = null;
+    int batches = 0;
+    while ((startKey = metadataStoreDataset.rebuildRunRecordIndexes(startKey, 7)) != null) {
+      batches++;
+    }
+    Assert.assertEquals(4, batches);
+    Assert.assertTrue(metadataStoreDataset.isRunRecordIndexBuilt());
+    verifyIndexedRuns(metadataStoreDataset, startTimes, 32);
+    Assert.assertNotNull(metadataStoreDataset.getRun(running, pid));
+
+    // With a limit, the running run comes first, followed by the latest completed runs of all statuses
+    List<RunRecordMeta> latest = metadataStoreDataset.getRuns(null, ProgramRunStatus.ALL, 0, Long.MAX_VALUE, 5,
+                                                              null);
+    Assert.assertEquals(ImmutableList.of(1000L, 5000L, startTimes[29], startTimes[28], startTimes[27]),
+                        Lists.transform(latest, new Function<RunRecordMeta, Long>() {
+                          @Override
+                          public Long apply(RunRecordMeta input) {
+                            return input.getStartTs();
+                          }
+                        }));
+
+    // Once built, the indexes are used instead of scanning all run records
+    metadataStoreDataset.deleteAll(new MDSKey.Builder().add("runRecordStatusIdx").build());
+    Assert.assertTrue(metadataStoreDataset.getRuns(ProgramRunStatus.FAILED,
+                                                   Predicates.<RunRecordMeta>alwaysTrue()).isEmpty());
+    while ((startKey = metadataStoreDataset.rebuildRunRecordIndexes(startKey, 7)) != null) {
+      // Rebuild the status index
+    }
+    verifyIndexedRuns(metadataStoreDataset, startTimes, 32);
+
+    // Deleting the run records also deletes their index entries
+    metadataStoreDataset.deleteProgramHistory(defaultNamespace.getId(), "app1");
+    Assert.assertTrue(metadataStoreDataset.getRuns(ProgramRunStatus.KILLED,
+                                                   Predicates.<RunRecordMeta>alwaysTrue()).isEmpty());
+    Assert.assertEquals(10, metadataStoreDataset.getRuns(ProgramRunStatus.FAILED,
+                                                         Predicates.<RunRecordMeta>alwaysTrue()).size());
+    Assert.assertEquals(2, metadataStoreDataset.getRunningInRange(startTimes[0], startTimes[2] + 1).size());
+  }
+
+  private void verifyIndexedRuns(AppMetadataStore metadataStoreDataset, long[] startTimes, int totalRuns) {
+    // Runs are returned by descending start time
+    List<RunRecordMeta> failed = metadataStoreDataset.getRuns(ProgramRunStatus.FAILED,
+                                                              Predicates.<RunRecordMeta>alwaysTrue());
+    Assert.assertEquals(10, failed.size());
+    for (int i = 0; i < failed.size(); i++) {
+      Assert.assertEquals(ProgramRunStatus.FAILED, failed.get(i).getStatus());
+      Assert.assertEquals(startTimes[29 - i * 3], failed.get(i).getStartTs());
+    }
+
+    // Start time range and limit are applied to the index scan
+    List<RunRecordMeta> killed = metadataStoreDataset.getRuns(null, ProgramRunStatus.KILLED, startTimes[10],
+                                                              startTimes[20], Integer.MAX_VALUE, null);
+    Assert.assertEquals(ImmutableList.of(startTimes[19], startTimes[16], startTimes[13], startTimes[10]),
+                        Lists.transform(killed, new Function<RunRecordMeta, Long>() {
+                          @Override
+                          public Long apply(RunRecordMeta input) {
+                            return input.getStartTs();
+                          }
+                        }));
+    Assert.assertEquals(5, metadataStoreDataset.getRuns(null, ProgramRunStatus.ALL, 0, Long.MAX_VALUE, 5,
+                                                        null).size());
+    Assert.assertEquals(totalRuns, metadataStoreDataset.getRuns(null, ProgramRunStatus.ALL, 0, Long.MAX_VALUE,
+                                                                Integer.MAX_VALUE, null).size());
+
+    // Runs are running in range if they stopped at or after the start of the range
+    Assert.assertEquals(3, metadataStoreDataset.getRunningInRange(startTimes[10], startTimes[12] + 1).size());
+  }
+
   private void runScan(AppMetadataStore metadataStoreDataset, Set<Long> expected, long startTime, long stopTime) {
     // Run the scan
     Set<Long> actual = new TreeSet<>();
@@ -129,9 +245,10 @@ public class AppMetadataStoreTest {
     Assert.assertEquals(expected, actual);
     int numBatches = Iterables.size(batches);
     // Each batch needs 2 extra calls to Ticker.read, once during init and once for final condition check
-    // Hence the number of batches should be --
-    // (num calls to Ticker.read - (2 * numBatches)) / number of elements per batch
-    Assert.assertEquals((countingTicker.getNumProcessed() - (2 * numBatches)) / maxScanTimeMillis, numBatches);
+    // Hence the number of elements scanned is (num calls to Ticker.read - (2 * numBatches)), and the number of
+    // batches should be the number of elements scanned / number of elements per batch, rounded up for the last batch
+    int numElements = numBatches == 0 ? 0 : countingTicker.getNumProcessed() - (2 * numBatches);
+    Assert.assertEquals((numElements + maxScanTimeMillis - 1) / maxScanTimeMillis, numBatches);
   }
 
   private static class CountingTicker extends Ticker {
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -20,12 +20,23 @@ package co.cask.cdap.etl.api;
  * Cache configuration.
   */
 public final class CacheConfig {
+  /**
+   * Maximum number of elements in the cache if no maximum size is configured.
+   */
+  public static final int DEFAULT_MAX_SIZE = 10000;
+
   private final long expirySeconds;
   private final int maxSize;
+  private final boolean preload;
 
-  public CacheConfig(long expirySeconds, int maxSize) {
+  public CacheConfig(long expirySeconds, int maxSize, boolean preload) {
     this.expirySeconds = expirySeconds;
     this.maxSize = maxSize;
+    this.preload = preload;
+  }
+
+  public CacheConfig(long expirySeconds, int maxSize) {
+    this(expirySeconds, maxSize, false);
   }
 
   public CacheConfig() {
@@ -33,16 +44,24 @@ public final class CacheConfig {
   }
 
   /**
-   * @return expiry after write in seconds
+   * @return expiry after write in seconds, or 0 if entries do not expire
    */
   public long getExpirySeconds() {
     return expirySeconds;
   }
 
   /**
-   * @return maximum number of elements in the cache
+   * @return maximum number of elements in the cache, or 0 to use the {@link #DEFAULT_MAX_SIZE}
    */
   public int getMaxSize() {
     return maxSize;
   }
+
+  /**
+   * @return true if the cache should be filled with the contents of the table, up to its maximum size,
+   *         before the first lookup. Only tables that can be scanned, such as a KeyValueTable, can be preloaded
+   */
+  public boolean isPreload() {
+    return preload;
+  }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -18,10 +18,26 @@ package co.cask.cdap.etl.api;
 
 import co.cask.cdap.api.annotation.Beta;
 
+import java.util.Map;
+
 /**
  * Context passed to ETL stages.
  */
 @Beta
 public interface TransformContext extends StageContext, LookupProvider {
 
+  /**
+   * Provides a {@link Lookup} for a table, configured by a {@link LookupTableConfig}. If caching is enabled,
+   * lookups are read through a cache with the size and expiry of its {@link CacheConfig}, and cache hits and
+   * misses are counted in the metrics of the stage. If preloading is enabled, the table is checked when the
+   * {@link Lookup} is provided, so that a table which cannot be scanned fails before any lookup is made.
+   *
+   * @param table the name of the {@link Lookup} table
+   * @param arguments arguments for initializing the {@link Lookup} table
+   * @param config configuration of the {@link Lookup} table
+   * @param <T> the type of value returned by the {@link Lookup}
+   * @return a {@link Lookup} instance
+   * @throws IllegalArgumentException if preloading is enabled for a table that cannot be scanned
+   */
+  <T> Lookup<T> provide(String table, Map<String, String> arguments, LookupTableConfig config);
 }
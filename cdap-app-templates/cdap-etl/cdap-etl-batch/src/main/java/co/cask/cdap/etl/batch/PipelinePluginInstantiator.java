@@ -56,10 +56,11 @@ public class PipelinePluginInstantiator {
   public <T> T newPluginInstance(String stageName, MacroEvaluator macroEvaluator) throws InstantiationException {
     if (connectorSources.contains(stageName)) {
       String datasetName = phaseSpec.getConnectorDatasets().get(stageName);
-      return (T) new ConnectorSource(datasetName, null);
+      return (T) new ConnectorSource(datasetName, phaseSpec.getPhase().getStage(stageName).getInputSchemas());
     } else if (connectorSinks.contains(stageName)) {
       String datasetName = phaseSpec.getConnectorDatasets().get(stageName);
-      return (T) new ConnectorSink(datasetName, phaseSpec.getPhaseName());
+      return (T) new ConnectorSink(datasetName, phaseSpec.getPhaseName(),
+                                   phaseSpec.getPhase().getStage(stageName).getInputSchemas());
     }
 
     return pluginContext.newPluginInstance(stageName, macroEvaluator);
@@ -16,23 +16,73 @@
 
 package co.cask.cdap.etl.batch;
 
-import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
-import co.cask.cdap.format.StructuredRecordStringConverter;
+import co.cask.cdap.api.data.schema.SchemaHash;
+import co.cask.cdap.format.StructuredRecordBinaryConverter;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
 
 import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Wrapper around a {@link StructuredRecord} so that it can be used as the output key and/or value of a mapper.
- * This is not very performant and must be improved soon (CDAP-5347).
+ * <p>
+ * The record is serialized in the Avro binary encoding, prefixed by the hash of its schema. Schemas registered in
+ * the job configuration through {@link #setSchemas(Configuration, Iterable)} are identified by the hash only,
+ * while any other schema is written in full before the record. Serialized records are compared in their raw form
+ * by {@link Comparator}, which orders them by schema hash and then by the encoded record, so that equal
+ * records are grouped together without deserialization.
+ * </p>
  */
-public class StructuredRecordWritable implements WritableComparable<StructuredRecordWritable> {
+public class StructuredRecordWritable implements WritableComparable<StructuredRecordWritable>, Configurable {
+
+  static final String SCHEMAS_KEY = "cdap.etl.shuffle.schemas";
+
+  private static final Gson GSON = new Gson();
+  private static final Type SCHEMAS_TYPE = new TypeToken<List<String>>() { }.getType();
+
+  // Format of the schema in the serialized record
+  private static final byte SCHEMA_REGISTERED = 0;
+  private static final byte SCHEMA_INLINE = 1;
+  private static final int SCHEMA_HASH_SIZE = 16;
+
+  // Schemas registered in the job configuration, which are known to all tasks of the job. Since a schema hash is
+  // computed from the schema, this can be shared by jobs running in the same JVM, such as in local mode.
+  private static final ConcurrentMap<SchemaHash, Schema> REGISTERED_SCHEMAS = Maps.newConcurrentMap();
+  // Schemas read from serialized records, so that each of them is only parsed once
+  private static final Cache<String, Schema> INLINE_SCHEMAS = CacheBuilder.newBuilder().maximumSize(1000).build();
+  // The last registered value from the configuration, to avoid parsing it again for every new instance
+  private static volatile String registeredSchemas;
+
+  static {
+    WritableComparator.define(StructuredRecordWritable.class, new Comparator());
+  }
+
   private StructuredRecord record;
+  private Configuration conf;
 
   // required by Hadoop
   @SuppressWarnings("unused")
@@ -51,35 +101,101 @@ public class StructuredRecordWritable implements WritableComparable<StructuredRe
     return record;
   }
 
-  @SuppressWarnings("ConstantConditions")
+  /**
+   * Sets the schemas that are known to all tasks of a job in the job configuration. Records of these schemas are
+   * serialized with the schema hash instead of the full schema.
+   *
+   * @param conf the job configuration
+   * @param schemas the schemas to register. Schemas that are not of record type are ignored.
+   */
+  public static void setSchemas(Configuration conf, Iterable<Schema> schemas) {
+    Set<String> schemaStrings = new LinkedHashSet<>();
+    for (Schema schema : schemas) {
+      if (schema != null && schema.getType() == Schema.Type.RECORD) {
+        schemaStrings.add(schema.toString());
+      }
+    }
+    conf.set(SCHEMAS_KEY, GSON.toJson(new ArrayList<>(schemaStrings), SCHEMAS_TYPE));
+  }
+
+  /**
+   * Registers the schemas set in the given job configuration by {@link #setSchemas(Configuration, Iterable)}.
+   * This must be called by every task before serializing records, which is also done when Hadoop creates instances
+   * of this class with a configuration.
+   */
+  public static void registerSchemas(Configuration conf) {
+    String schemas = conf.get(SCHEMAS_KEY);
+    if (schemas == null || schemas.equals(registeredSchemas)) {
+      return;
+    }
+    List<String> schemaStrings = GSON.fromJson(schemas, SCHEMAS_TYPE);
+    for (String schemaString : schemaStrings) {
+      try {
+        Schema schema = Schema.parseJson(schemaString);
+        REGISTERED_SCHEMAS.putIfAbsent(schema.getSchemaHash(), schema);
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Invalid schema in configuration " + SCHEMAS_KEY + ": " + schemaString, e);
+      }
+    }
+    registeredSchemas = schemas;
+  }
+
   @Override
   public void write(DataOutput out) throws IOException {
-    String schemaStr = record.getSchema().toString();
-    String recordStr = StructuredRecordStringConverter.toJsonString(record);
-    out.writeInt(schemaStr.length());
-    out.write(Bytes.toBytes(schemaStr));
-    out.writeInt(recordStr.length());
-    out.write(Bytes.toBytes(recordStr));
+    Schema schema = record.getSchema();
+    SchemaHash schemaHash = schema.getSchemaHash();
+    if (REGISTERED_SCHEMAS.containsKey(schemaHash)) {
+      out.writeByte(SCHEMA_REGISTERED);
+      out.write(schemaHash.toByteArray());
+    } else {
+      out.writeByte(SCHEMA_INLINE);
+      out.write(schemaHash.toByteArray());
+      Text.writeString(out, schema.toString());
+    }
+    byte[] recordBytes = StructuredRecordBinaryConverter.toBytes(record);
+    WritableUtils.writeVInt(out, recordBytes.length);
+    out.write(recordBytes);
   }
 
   @Override
   public void readFields(DataInput in) throws IOException {
-    int schemaLen = in.readInt();
-    byte[] schemaBytes = new byte[schemaLen];
-    in.readFully(schemaBytes, 0, schemaLen);
-    String schemaStr = Bytes.toString(schemaBytes);
-    Schema schema = Schema.parseJson(schemaStr);
+    byte format = in.readByte();
+    byte[] hashBytes = new byte[SCHEMA_HASH_SIZE];
+    in.readFully(hashBytes);
+
+    Schema schema;
+    if (format == SCHEMA_REGISTERED) {
+      schema = REGISTERED_SCHEMAS.get(new SchemaHash(ByteBuffer.wrap(hashBytes)));
+      if (schema == null) {
+        throw new IOException("Schema with hash " + new SchemaHash(ByteBuffer.wrap(hashBytes)) +
+                                " is not registered in the configuration " + SCHEMAS_KEY);
+      }
+    } else if (format == SCHEMA_INLINE) {
+      schema = getInlineSchema(Text.readString(in));
+    } else {
+      throw new IOException("Unsupported serialization format " + format + " of StructuredRecordWritable");
+    }
 
-    int recordLen = in.readInt();
-    byte[] recordBytes = new byte[recordLen];
-    in.readFully(recordBytes, 0, recordLen);
-    String recordStr = Bytes.toString(recordBytes);
-    this.record = StructuredRecordStringConverter.fromJsonString(recordStr, schema);
+    byte[] recordBytes = new byte[WritableUtils.readVInt(in)];
+    in.readFully(recordBytes);
+    this.record = StructuredRecordBinaryConverter.fromBytes(recordBytes, schema);
   }
 
   @Override
   public int compareTo(StructuredRecordWritable o) {
-    return Integer.compare(hashCode(), o.hashCode());
+    try {
+      int cmp = WritableComparator.compareBytes(record.getSchema().getSchemaHash().toByteArray(), 0, SCHEMA_HASH_SIZE,
+                                                o.record.getSchema().getSchemaHash().toByteArray(), 0,
+                                                SCHEMA_HASH_SIZE);
+      if (cmp != 0) {
+        return cmp;
+      }
+      byte[] recordBytes = StructuredRecordBinaryConverter.toBytes(record);
+      byte[] otherBytes = StructuredRecordBinaryConverter.toBytes(o.record);
+      return WritableComparator.compareBytes(recordBytes, 0, recordBytes.length, otherBytes, 0, otherBytes.length);
+    } catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
   }
 
   @Override
@@ -100,4 +216,69 @@ public class StructuredRecordWritable implements WritableComparable<StructuredRe
   public int hashCode() {
     return record != null ? record.hashCode() : 0;
   }
+
+  @Override
+  public void setConf(Configuration conf) {
+    this.conf = conf;
+    registerSchemas(conf);
+  }
+
+  @Override
+  public Configuration getConf() {
+    return conf;
+  }
+
+  private static Schema getInlineSchema(final String schemaString) throws IOException {
+    try {
+      return INLINE_SCHEMAS.get(schemaString, new Callable<Schema>() {
+        @Override
+        public Schema call() throws Exception {
+          return Schema.parseJson(schemaString);
+        }
+      });
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  /**
+   * A raw comparator of serialized {@link StructuredRecordWritable}, which compares the schema hash and the
+   * encoded record without deserializing them.
+   */
+  public static final class Comparator extends WritableComparator {
+
+    public Comparator() {
+      super(StructuredRecordWritable.class);
+    }
+
+    @Override
+    public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+      // skip the format byte, which does not affect the record
+      int cmp = compareBytes(b1, s1 + 1, SCHEMA_HASH_SIZE, b2, s2 + 1, SCHEMA_HASH_SIZE);
+      if (cmp != 0) {
+        return cmp;
+      }
+      try {
+        int start1 = getRecordStart(b1, s1);
+        int start2 = getRecordStart(b2, s2);
+        return compareBytes(b1, start1, s1 + l1 - start1, b2, start2, s2 + l2 - start2);
+      } catch (IOException e) {
+        throw new IllegalArgumentException(e);
+      }
+    }
+
+    /**
+     * Returns the offset of the encoded record in a serialized {@link StructuredRecordWritable}.
+     */
+    private static int getRecordStart(byte[] bytes, int start) throws IOException {
+      int offset = start + 1 + SCHEMA_HASH_SIZE;
+      if (bytes[start] == SCHEMA_INLINE) {
+        // skip the schema string
+        offset += WritableUtils.decodeVIntSize(bytes[offset]) + readVInt(bytes, offset);
+      }
+      // skip the length of the encoded record
+      return offset + WritableUtils.decodeVIntSize(bytes[offset]);
+    }
+  }
 }
@@ -18,17 +18,23 @@ package co.cask.cdap.etl.batch.connector;
 
 import co.cask.cdap.api.data.format.StructuredRecord;
 import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.dataset.lib.FileSetProperties;
 import co.cask.cdap.api.dataset.lib.KeyValue;
 import co.cask.cdap.api.dataset.lib.PartitionKey;
 import co.cask.cdap.api.dataset.lib.PartitionedFileSetArguments;
 import co.cask.cdap.etl.api.Emitter;
 import co.cask.cdap.etl.api.batch.BatchSink;
 import co.cask.cdap.etl.api.batch.BatchSinkContext;
-import co.cask.cdap.format.StructuredRecordStringConverter;
+import co.cask.cdap.etl.common.Constants;
+import co.cask.cdap.format.StructuredRecordBinaryConverter;
+import com.google.common.collect.ImmutableMap;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.mapred.AvroKey;
+import org.apache.avro.mapreduce.AvroJob;
 import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.io.Text;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -44,15 +50,26 @@ import java.util.Map;
  * This is because we don't want this to show up as a plugin that users can select and use, and also because
  * it uses features not exposed in the etl api (local workflow datasets).
  *
- * TODO: improve storage format. It is currently a json of the record but that is obviously not ideal
+ * The compression codec of the Avro files is taken from the {@link Constants#CONNECTOR_CODEC} runtime argument,
+ * and defaults to {@link #DEFAULT_CODEC}. See {@link ConnectorSource} for the storage format.
  */
-public class ConnectorSink extends BatchSink<KeyValue<String, StructuredRecord>, NullWritable, Text> {
+public class ConnectorSink extends BatchSink<KeyValue<String, StructuredRecord>, AvroKey<GenericRecord>, NullWritable> {
+  public static final String DEFAULT_CODEC = "deflate";
   private final String datasetName;
   private final String phaseName;
+  private final Map<String, Schema> schemas;
 
-  public ConnectorSink(String datasetName, String phaseName) {
+  /**
+   * Creates a connector sink.
+   *
+   * @param datasetName the name of the local dataset used by the connector
+   * @param phaseName the name of the phase writing to the connector
+   * @param schemas the known output schemas of the stages writing to the connector
+   */
+  public ConnectorSink(String datasetName, String phaseName, Map<String, Schema> schemas) {
     this.datasetName = datasetName;
     this.phaseName = phaseName;
+    this.schemas = ImmutableMap.copyOf(schemas);
   }
 
   @Override
@@ -60,24 +77,24 @@ public class ConnectorSink extends BatchSink<KeyValue<String, StructuredRecord>,
     Map<String, String> arguments = new HashMap<>();
     PartitionKey outputPartition = PartitionKey.builder().addStringField("phase", phaseName).build();
     PartitionedFileSetArguments.setOutputPartitionKey(arguments, outputPartition);
+    String codec = context.getRuntimeArguments().get(Constants.CONNECTOR_CODEC);
+    arguments.put(FileSetProperties.OUTPUT_PROPERTIES_PREFIX + AvroJob.CONF_OUTPUT_CODEC,
+                  codec == null ? DEFAULT_CODEC : codec);
     context.addOutput(datasetName, arguments);
   }
 
   @Override
-  public void transform(KeyValue<String, StructuredRecord> input, Emitter<KeyValue<NullWritable, Text>> emitter)
-    throws Exception {
-    StructuredRecord modifiedRecord = modifyRecord(input);
-    emitter.emit(new KeyValue<>(NullWritable.get(), new Text(StructuredRecordStringConverter.
-      toJsonString(modifiedRecord))));
-  }
-
-  private StructuredRecord modifyRecord(KeyValue<String, StructuredRecord> input) throws IOException {
+  public void transform(KeyValue<String, StructuredRecord> input,
+                        Emitter<KeyValue<AvroKey<GenericRecord>, NullWritable>> emitter) throws Exception {
     String stageName = input.getKey();
-    Schema inputSchema = input.getValue().getSchema();
-    return StructuredRecord.builder(ConnectorSource.RECORD_WITH_SCHEMA)
-      .set("stageName", stageName)
-      .set("schema", inputSchema.toString())
-      .set("record", StructuredRecordStringConverter.toJsonString(input.getValue()))
-      .build();
+    StructuredRecord record = input.getValue();
+    Schema schema = record.getSchema();
+
+    GenericRecord recordWithSchema = new GenericData.Record(ConnectorSource.AVRO_RECORD_WITH_SCHEMA);
+    recordWithSchema.put("stageName", stageName);
+    // only store the schema if the source won't know about it
+    recordWithSchema.put("schema", schema.equals(schemas.get(stageName)) ? null : schema.toString());
+    recordWithSchema.put("record", ByteBuffer.wrap(StructuredRecordBinaryConverter.toBytes(record)));
+    emitter.emit(new KeyValue<>(new AvroKey<>(recordWithSchema), NullWritable.get()));
   }
 }
@@ -30,15 +30,19 @@ import co.cask.cdap.api.workflow.WorkflowConfigurer;
 import co.cask.cdap.etl.api.Emitter;
 import co.cask.cdap.etl.api.batch.BatchSource;
 import co.cask.cdap.etl.api.batch.BatchSourceContext;
-import co.cask.cdap.format.StructuredRecordStringConverter;
-import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.io.Text;
-import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
-import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import co.cask.cdap.format.StructuredRecordBinaryConverter;
+import com.google.common.collect.ImmutableMap;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.mapred.AvroKey;
+import org.apache.avro.mapreduce.AvroKeyInputFormat;
+import org.apache.avro.mapreduce.AvroKeyOutputFormat;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
-import javax.annotation.Nullable;
 
 /**
  * Internal batch source used as a connector between pipeline phases.
@@ -52,21 +56,34 @@ import javax.annotation.Nullable;
  * This is because we don't want this to show up as a plugin that users can select and use, and also because
  * it uses features not exposed in the etl api (local workflow datasets).
  *
- * TODO: improve storage format. It is currently a json of the record but that is obviously not ideal
+ * Data is stored in compressed Avro container files, which can be split. Each entry holds the name of the stage
+ * that emitted the record and the record in the Avro binary encoding of its schema. The schema itself is only
+ * stored in an entry if it is not one of the output schemas known for the stages writing to the connector.
  */
-public class ConnectorSource extends BatchSource<LongWritable, Text, KeyValue<String, StructuredRecord>> {
+public class ConnectorSource extends BatchSource<AvroKey<GenericRecord>, NullWritable,
+  KeyValue<String, StructuredRecord>> {
   static final Schema RECORD_WITH_SCHEMA = Schema.recordOf(
     "record",
     Schema.Field.of("stageName", Schema.of(Schema.Type.STRING)),
-    Schema.Field.of("schema", Schema.of(Schema.Type.STRING)),
-    Schema.Field.of("record", Schema.of(Schema.Type.STRING)));
+    Schema.Field.of("schema", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("record", Schema.of(Schema.Type.BYTES)));
+  static final org.apache.avro.Schema AVRO_RECORD_WITH_SCHEMA =
+    new org.apache.avro.Schema.Parser().parse(RECORD_WITH_SCHEMA.toString());
   private final String datasetName;
-  @Nullable
-  private final Schema schema;
+  private final Map<String, Schema> schemas;
+  // schemas that were stored with the records, keyed by their json representation
+  private final Map<String, Schema> recordSchemas;
 
-  public ConnectorSource(String datasetName, @Nullable Schema schema) {
+  /**
+   * Creates a connector source.
+   *
+   * @param datasetName the name of the local dataset used by the connector
+   * @param schemas the known output schemas of the stages writing to the connector
+   */
+  public ConnectorSource(String datasetName, Map<String, Schema> schemas) {
     this.datasetName = datasetName;
-    this.schema = schema;
+    this.schemas = ImmutableMap.copyOf(schemas);
+    this.recordSchemas = new HashMap<>();
   }
 
   // not the standard configurePipeline method. Need a workflowConfigurer to create a local dataset
@@ -78,8 +95,13 @@ public class ConnectorSource extends BatchSource<LongWritable, Text, KeyValue<St
     workflowConfigurer.createLocalDataset(datasetName, PartitionedFileSet.class,
                                           PartitionedFileSetProperties.builder()
                                             .setPartitioning(partitioning)
-                                            .setInputFormat(TextInputFormat.class)
-                                            .setOutputFormat(TextOutputFormat.class)
+                                            .setInputFormat(AvroKeyInputFormat.class)
+                                            .setOutputFormat(AvroKeyOutputFormat.class)
+                                            .setInputProperty("avro.schema.input.key",
+                                                              AVRO_RECORD_WITH_SCHEMA.toString())
+                                            .setOutputProperty("avro.schema.output.key",
+                                                               AVRO_RECORD_WITH_SCHEMA.toString())
+                                            .setOutputProperty(FileOutputFormat.COMPRESS, "true")
                                             .build());
   }
 
@@ -94,20 +116,28 @@ public class ConnectorSource extends BatchSource<LongWritable, Text, KeyValue<St
   }
 
   @Override
-  public void transform(KeyValue<LongWritable, Text> input,
+  public void transform(KeyValue<AvroKey<GenericRecord>, NullWritable> input,
                         Emitter<KeyValue<String, StructuredRecord>> emitter) throws Exception {
-    StructuredRecord output;
-    String inputStr = input.getValue().toString();
-    StructuredRecord recordWithSchema =
-      StructuredRecordStringConverter.fromJsonString(inputStr, RECORD_WITH_SCHEMA);
-    String stageName = recordWithSchema.get("stageName");
+    GenericRecord recordWithSchema = input.getKey().datum();
+    String stageName = recordWithSchema.get("stageName").toString();
+    Object schemaStr = recordWithSchema.get("schema");
+    Schema schema = schemaStr == null ? schemas.get(stageName) : getRecordSchema(schemaStr.toString());
     if (schema == null) {
-      Schema outputSchema = Schema.parseJson((String) recordWithSchema.get("schema"));
-      output = StructuredRecordStringConverter.fromJsonString((String) recordWithSchema.get("record"), outputSchema);
-    } else {
-      output = StructuredRecordStringConverter.fromJsonString(inputStr, schema);
+      throw new IllegalStateException("Schema of records from stage '" + stageName + "' is unknown.");
     }
+
+    ByteBuffer recordBytes = (ByteBuffer) recordWithSchema.get("record");
+    StructuredRecord output = StructuredRecordBinaryConverter.fromBytes(
+      recordBytes.array(), recordBytes.arrayOffset() + recordBytes.position(), recordBytes.remaining(), schema);
     emitter.emit(new KeyValue<>(stageName, output));
   }
 
+  private Schema getRecordSchema(String schemaStr) throws IOException {
+    Schema schema = recordSchemas.get(schemaStr);
+    if (schema == null) {
+      schema = Schema.parseJson(schemaStr);
+      recordSchemas.put(schemaStr, schema);
+    }
+    return schema;
+  }
 }
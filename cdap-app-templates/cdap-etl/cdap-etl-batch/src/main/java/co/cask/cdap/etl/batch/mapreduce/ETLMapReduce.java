@@ -37,6 +37,7 @@ import co.cask.cdap.etl.api.batch.BatchSourceContext;
 import co.cask.cdap.etl.batch.BatchPhaseSpec;
 import co.cask.cdap.etl.batch.LoggedBatchConfigurable;
 import co.cask.cdap.etl.batch.PipelinePluginInstantiator;
+import co.cask.cdap.etl.batch.StructuredRecordWritable;
 import co.cask.cdap.etl.batch.conversion.WritableConversion;
 import co.cask.cdap.etl.batch.conversion.WritableConversions;
 import co.cask.cdap.etl.common.CompositeFinisher;
@@ -69,8 +70,10 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -285,6 +288,14 @@ public class ETLMapReduce extends AbstractMapReduce {
         // for joiner plugin map output is tagged with stageName
         job.setMapOutputValueClass(TaggedWritable.class);
       }
+
+      // register the schemas known at configure time, so that records of them are shuffled without the schema
+      List<Schema> schemas = new ArrayList<>();
+      for (StageInfo stageInfo : phase) {
+        schemas.addAll(stageInfo.getInputSchemas().values());
+        schemas.add(stageInfo.getOutputSchema());
+      }
+      StructuredRecordWritable.setSchemas(hConf, schemas);
     } else {
       job.setNumReduceTasks(0);
     }
@@ -26,6 +26,7 @@ import co.cask.cdap.etl.api.batch.BatchAggregator;
 import co.cask.cdap.etl.api.batch.BatchJoiner;
 import co.cask.cdap.etl.batch.BatchPhaseSpec;
 import co.cask.cdap.etl.batch.PipelinePluginInstantiator;
+import co.cask.cdap.etl.batch.StructuredRecordWritable;
 import co.cask.cdap.etl.batch.TransformExecutorFactory;
 import co.cask.cdap.etl.common.Constants;
 import co.cask.cdap.etl.common.Destroyables;
@@ -35,6 +36,7 @@ import co.cask.cdap.etl.common.TransformExecutor;
 import co.cask.cdap.etl.common.TransformResponse;
 import co.cask.cdap.etl.planner.StageInfo;
 import co.cask.cdap.internal.io.SchemaTypeAdapter;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.SetMultimap;
@@ -57,6 +59,9 @@ import java.util.Set;
  * do mostly the same thing, except the mapper needs to write to an aggregator or to sinks, whereas the reducer
  * needs to read from an aggregator and write to sinks.
  *
+ * Each record is run through the whole pipeline as soon as it arrives. Hadoop reuses the key and value objects
+ * for every record, and sources or other stages may emit their input as is, so records cannot be buffered.
+ *
  * @param <KEY>   the type of key to send into the transform executor
  * @param <VALUE> the type of value to send into the transform executor
  */
@@ -71,10 +76,20 @@ public class TransformRunner<KEY, VALUE> {
   private final TransformExecutor<KeyValue<KEY, VALUE>> transformExecutor;
   private final OutputWriter<Object, Object> outputWriter;
 
+  @VisibleForTesting
+  TransformRunner(TransformExecutor<KeyValue<KEY, VALUE>> transformExecutor,
+                  OutputWriter<Object, Object> outputWriter) {
+    this.transformExecutor = transformExecutor;
+    this.outputWriter = outputWriter;
+    this.transformsWithoutErrorDataset = new HashSet<>();
+    this.transformErrorSinkMap = new HashMap<>();
+  }
+
   public TransformRunner(MapReduceTaskContext<Object, Object> context,
                          Metrics metrics) throws Exception {
     JobContext jobContext = context.getHadoopContext();
     Configuration hConf = jobContext.getConfiguration();
+    StructuredRecordWritable.registerSchemas(hConf);
 
     // figure out whether we are writing to a single output or to multiple outputs
     Map<String, String> properties = context.getSpecification().getProperties();
@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import com.google.common.collect.ImmutableList;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.RawComparator;
+import org.apache.hadoop.io.WritableComparator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tests for {@link StructuredRecordWritable}.
+ */
+public class StructuredRecordWritableTest {
+
+  private static final Schema REGISTERED_SCHEMA = Schema.recordOf(
+    "registered",
+    Schema.Field.of("id", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+  private static final Schema INLINE_SCHEMA = Schema.recordOf(
+    "inline",
+    Schema.Field.of("key", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("values", Schema.arrayOf(Schema.of(Schema.Type.INT))));
+
+  @Test
+  public void testSerialization() throws IOException {
+    Configuration conf = new Configuration();
+    StructuredRecordWritable.setSchemas(conf, ImmutableList.of(REGISTERED_SCHEMA, Schema.of(Schema.Type.STRING)));
+    StructuredRecordWritable.registerSchemas(conf);
+
+    StructuredRecord registered = StructuredRecord.builder(REGISTERED_SCHEMA).set("id", 1L).set("name", "n").build();
+    StructuredRecord inline = StructuredRecord.builder(INLINE_SCHEMA)
+      .set("key", "k")
+      .set("values", ImmutableList.of(1, 2))
+      .build();
+
+    byte[] registeredBytes = serialize(registered);
+    byte[] inlineBytes = serialize(inline);
+    // Registered schemas are not part of the serialized record
+    Assert.assertTrue(registeredBytes.length < REGISTERED_SCHEMA.toString().length());
+    Assert.assertTrue(inlineBytes.length > INLINE_SCHEMA.toString().length());
+
+    Assert.assertEquals(registered, deserialize(registeredBytes, conf).get());
+    StructuredRecord inlineCopy = deserialize(inlineBytes, conf).get();
+    Assert.assertEquals("k", inlineCopy.get("key"));
+    Assert.assertEquals(ImmutableList.of(1, 2), inlineCopy.get("values"));
+  }
+
+  @Test
+  public void testRawComparator() throws IOException {
+    Configuration conf = new Configuration();
+    StructuredRecordWritable.setSchemas(conf, ImmutableList.of(REGISTERED_SCHEMA));
+    StructuredRecordWritable.registerSchemas(conf);
+
+    RawComparator<StructuredRecordWritable> comparator = WritableComparator.get(StructuredRecordWritable.class);
+    Assert.assertTrue(comparator instanceof StructuredRecordWritable.Comparator);
+
+    StructuredRecord[] records = {
+      StructuredRecord.builder(REGISTERED_SCHEMA).set("id", 1L).set("name", "a").build(),
+      StructuredRecord.builder(REGISTERED_SCHEMA).set("id", 1L).set("name", "b").build(),
+      StructuredRecord.builder(REGISTERED_SCHEMA).set("id", 2L).build(),
+      StructuredRecord.builder(INLINE_SCHEMA).set("key", "a").set("values", new int[] { 1 }).build(),
+      StructuredRecord.builder(INLINE_SCHEMA).set("key", "a").set("values", ImmutableList.of(1)).build(),
+      StructuredRecord.builder(INLINE_SCHEMA).set("key", "a").set("values", ImmutableList.of(1, 2)).build()
+    };
+
+    for (StructuredRecord record1 : records) {
+      byte[] bytes1 = serialize(record1);
+      for (StructuredRecord record2 : records) {
+        byte[] bytes2 = serialize(record2);
+        int rawResult = comparator.compare(bytes1, 0, bytes1.length, bytes2, 0, bytes2.length);
+        int result = new StructuredRecordWritable(record1).compareTo(new StructuredRecordWritable(record2));
+        Assert.assertEquals(Integer.signum(result), Integer.signum(rawResult));
+        // Equal records are compared as equal, even if they hold arrays of different types
+        boolean sameValues = Arrays.equals(serialize(record1), serialize(record2));
+        Assert.assertEquals(sameValues, rawResult == 0);
+      }
+    }
+    // Same record compares equal, and records with different values do not
+    Assert.assertEquals(0, compare(comparator, records[3], records[4]));
+    Assert.assertNotEquals(0, compare(comparator, records[0], records[1]));
+    Assert.assertNotEquals(0, compare(comparator, records[4], records[5]));
+  }
+
+  @Test
+  public void testRawComparatorWithMaps() throws IOException {
+    Schema schema = Schema.recordOf(
+      "withMap",
+      Schema.Field.of("key", Schema.of(Schema.Type.STRING)),
+      Schema.Field.of("attributes", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.INT))));
+    Map<String, Integer> attributes = new LinkedHashMap<>();
+    Map<String, Integer> reversedAttributes = new LinkedHashMap<>();
+    for (int i = 0; i < 10; i++) {
+      attributes.put("a" + i, i);
+      reversedAttributes.put("a" + (9 - i), 9 - i);
+    }
+
+    RawComparator<StructuredRecordWritable> comparator = WritableComparator.get(StructuredRecordWritable.class);
+    // equal group keys are grouped together regardless of the iteration order of their maps
+    Assert.assertEquals(0, compare(comparator,
+                                   StructuredRecord.builder(schema)
+                                     .set("key", "k").set("attributes", attributes).build(),
+                                   StructuredRecord.builder(schema)
+                                     .set("key", "k").set("attributes", reversedAttributes).build()));
+    reversedAttributes.put("a0", 10);
+    Assert.assertNotEquals(0, compare(comparator,
+                                      StructuredRecord.builder(schema)
+                                        .set("key", "k").set("attributes", attributes).build(),
+                                      StructuredRecord.builder(schema)
+                                        .set("key", "k").set("attributes", reversedAttributes).build()));
+  }
+
+  private int compare(RawComparator<StructuredRecordWritable> comparator,
+                      StructuredRecord record1, StructuredRecord record2) throws IOException {
+    byte[] bytes1 = serialize(record1);
+    byte[] bytes2 = serialize(record2);
+    return comparator.compare(bytes1, 0, bytes1.length, bytes2, 0, bytes2.length);
+  }
+
+  private byte[] serialize(StructuredRecord record) throws IOException {
+    DataOutputBuffer output = new DataOutputBuffer();
+    new StructuredRecordWritable(record).write(output);
+    return Arrays.copyOf(output.getData(), output.getLength());
+  }
+
+  private StructuredRecordWritable deserialize(byte[] bytes, Configuration conf) throws IOException {
+    DataInputBuffer input = new DataInputBuffer();
+    input.reset(bytes, bytes.length);
+    StructuredRecordWritable writable = new StructuredRecordWritable();
+    writable.setConf(conf);
+    writable.readFields(input);
+    return writable;
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.connector;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.dataset.lib.KeyValue;
+import co.cask.cdap.etl.common.DefaultEmitter;
+import com.google.common.collect.ImmutableMap;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.mapred.AvroKey;
+import org.apache.hadoop.io.NullWritable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link ConnectorSink} and {@link ConnectorSource}.
+ */
+public class ConnectorTest {
+
+  @Test
+  public void testRecordsRoundTrip() throws Exception {
+    Schema knownSchema = Schema.recordOf(
+      "known",
+      Schema.Field.of("x", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("y", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+    Schema unknownSchema = Schema.recordOf(
+      "unknown",
+      Schema.Field.of("z", Schema.arrayOf(Schema.of(Schema.Type.LONG))));
+    Map<String, Schema> schemas = ImmutableMap.of("s1", knownSchema);
+
+    List<KeyValue<String, StructuredRecord>> records = new ArrayList<>();
+    records.add(new KeyValue<>("s1", StructuredRecord.builder(knownSchema).set("x", 1).set("y", "abc").build()));
+    records.add(new KeyValue<>("s1", StructuredRecord.builder(knownSchema).set("x", 2).build()));
+    // records with schemas that are not known to the connector
+    records.add(new KeyValue<>("s2", StructuredRecord.builder(unknownSchema).set("z", new long[] { 1L }).build()));
+    records.add(new KeyValue<>("s1", StructuredRecord.builder(unknownSchema).set("z", new long[] { 2L }).build()));
+
+    ConnectorSink sink = new ConnectorSink("dataset", "phase", schemas);
+    DefaultEmitter<KeyValue<AvroKey<GenericRecord>, NullWritable>> sinkEmitter = new DefaultEmitter<>();
+    for (KeyValue<String, StructuredRecord> record : records) {
+      sink.transform(record, sinkEmitter);
+    }
+
+    List<KeyValue<AvroKey<GenericRecord>, NullWritable>> written = new ArrayList<>(sinkEmitter.getEntries());
+    Assert.assertEquals(records.size(), written.size());
+    Assert.assertNull(written.get(0).getKey().datum().get("schema"));
+    Assert.assertNull(written.get(1).getKey().datum().get("schema"));
+    Assert.assertNotNull(written.get(2).getKey().datum().get("schema"));
+    Assert.assertNotNull(written.get(3).getKey().datum().get("schema"));
+
+    ConnectorSource source = new ConnectorSource("dataset", schemas);
+    DefaultEmitter<KeyValue<String, StructuredRecord>> sourceEmitter = new DefaultEmitter<>();
+    for (KeyValue<AvroKey<GenericRecord>, NullWritable> entry : written) {
+      source.transform(entry, sourceEmitter);
+    }
+
+    List<KeyValue<String, StructuredRecord>> read = new ArrayList<>(sourceEmitter.getEntries());
+    Assert.assertEquals(records.size(), read.size());
+    for (int i = 0; i < 2; i++) {
+      Assert.assertEquals(records.get(i).getKey(), read.get(i).getKey());
+      Assert.assertEquals(records.get(i).getValue(), read.get(i).getValue());
+    }
+    for (int i = 2; i < records.size(); i++) {
+      Assert.assertEquals(records.get(i).getKey(), read.get(i).getKey());
+      Assert.assertEquals(unknownSchema, read.get(i).getValue().getSchema());
+    }
+    Assert.assertEquals(2L, ((List<?>) read.get(3).getValue().get("z")).get(0));
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.batch.mapreduce;
+
+import co.cask.cdap.api.dataset.lib.KeyValue;
+import co.cask.cdap.etl.api.Emitter;
+import co.cask.cdap.etl.api.Transform;
+import co.cask.cdap.etl.api.batch.BatchSource;
+import co.cask.cdap.etl.api.batch.BatchSourceContext;
+import co.cask.cdap.etl.common.TransformDetail;
+import co.cask.cdap.etl.common.TransformExecutor;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for {@link TransformRunner}.
+ */
+public class TransformRunnerTest {
+
+  @Test
+  public void testReusedKeyValues() throws Exception {
+    Map<String, TransformDetail> transformationMap = new HashMap<>();
+    transformationMap.put("source", new TransformDetail(new TextSource(), ImmutableList.of("sink")));
+    transformationMap.put("sink", new TransformDetail(new TextSink(), ImmutableList.<String>of()));
+    TransformExecutor<KeyValue<LongWritable, Text>> executor =
+      new TransformExecutor<>(transformationMap, ImmutableSet.of("source"));
+
+    final List<String> written = new ArrayList<>();
+    OutputWriter<Object, Object> outputWriter = new OutputWriter<Object, Object>(null) {
+      @Override
+      protected void write(String sinkName, KeyValue<Object, Object> output) throws Exception {
+        written.add(output.getValue().toString());
+      }
+    };
+    TransformRunner<LongWritable, Text> runner = new TransformRunner<>(executor, outputWriter);
+
+    // Hadoop reuses the same key and value objects for every record, and both stages emit their input as is
+    LongWritable key = new LongWritable();
+    Text value = new Text();
+    for (String line : ImmutableList.of("a", "b", "c")) {
+      key.set(key.get() + 1);
+      value.set(line);
+      runner.transform(key, value);
+    }
+    Assert.assertEquals(ImmutableList.of("a", "b", "c"), written);
+    runner.destroy();
+  }
+
+  /**
+   * Source that emits the values it reads, which is the default for a {@link BatchSource}.
+   */
+  private static class TextSource extends BatchSource<LongWritable, Text, Text> {
+
+    @Override
+    public void prepareRun(BatchSourceContext context) throws Exception {
+      // no-op
+    }
+  }
+
+  /**
+   * Writes its input as the value of the output.
+   */
+  private static class TextSink extends Transform<Text, KeyValue<Object, Object>> {
+
+    @Override
+    public void transform(Text input, Emitter<KeyValue<Object, Object>> emitter) throws Exception {
+      emitter.emit(new KeyValue<Object, Object>(null, input));
+    }
+  }
+}
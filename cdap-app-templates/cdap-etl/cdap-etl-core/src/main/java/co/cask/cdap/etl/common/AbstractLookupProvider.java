@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -15,12 +15,18 @@
  */
 package co.cask.cdap.etl.common;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.Dataset;
+import co.cask.cdap.api.dataset.lib.CloseableIterator;
+import co.cask.cdap.api.dataset.lib.KeyValue;
 import co.cask.cdap.api.dataset.lib.KeyValueTable;
 import co.cask.cdap.etl.api.Lookup;
 import co.cask.cdap.etl.api.LookupProvider;
 import co.cask.cdap.etl.api.lookup.KeyValueTableLookup;
 
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import javax.annotation.Nullable;
 
 /**
@@ -28,6 +34,18 @@ import javax.annotation.Nullable;
  */
 public abstract class AbstractLookupProvider implements LookupProvider {
 
+  /**
+   * Reads the keys of a lookup table, to fill a cache with before it is used. The values are read through
+   * the {@link Lookup} of the table, so that they have the type it returns.
+   *
+   * @param table the name of the {@link Lookup} table
+   * @param arguments arguments for initializing the {@link Lookup} table
+   * @param limit the maximum number of keys to read
+   * @return the keys of the table
+   * @throws IllegalArgumentException if the table cannot be scanned
+   */
+  public abstract Set<String> scanKeys(String table, Map<String, String> arguments, int limit);
+
   @SuppressWarnings("unchecked")
   protected <T> Lookup<T> getLookup(String table, @Nullable Dataset dataset) {
     if (dataset == null) {
@@ -40,4 +58,21 @@ public abstract class AbstractLookupProvider implements LookupProvider {
       throw new RuntimeException(String.format("Dataset %s does not support lookup", table));
     }
   }
+
+  protected Set<String> scanDatasetKeys(String table, @Nullable Dataset dataset, int limit) {
+    if (dataset == null) {
+      throw new RuntimeException(String.format("Dataset %s does not exist", table));
+    }
+    if (!(dataset instanceof KeyValueTable)) {
+      throw new IllegalArgumentException(String.format("Dataset %s does not support preloading", table));
+    }
+
+    Set<String> keys = new HashSet<>();
+    try (CloseableIterator<KeyValue<byte[], byte[]>> rows = ((KeyValueTable) dataset).scan(null, null)) {
+      while (rows.hasNext() && keys.size() < limit) {
+        keys.add(Bytes.toString(rows.next().getKey()));
+      }
+    }
+    return keys;
+  }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -18,11 +18,14 @@ package co.cask.cdap.etl.common;
 
 import co.cask.cdap.api.metrics.Metrics;
 import co.cask.cdap.api.plugin.PluginContext;
+import co.cask.cdap.etl.api.CacheConfig;
 import co.cask.cdap.etl.api.Lookup;
 import co.cask.cdap.etl.api.LookupProvider;
+import co.cask.cdap.etl.api.LookupTableConfig;
 import co.cask.cdap.etl.api.TransformContext;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Base implementation of {@link TransformContext} for common functionality.
@@ -43,4 +46,23 @@ public abstract class AbstractTransformContext extends AbstractStageContext impl
   public <T> Lookup<T> provide(String table, Map<String, String> arguments) {
     return lookup.provide(table, arguments);
   }
+
+  @Override
+  public <T> Lookup<T> provide(String table, Map<String, String> arguments, LookupTableConfig config) {
+    Lookup<T> tableLookup = this.provide(table, arguments);
+    if (!config.isCacheEnabled()) {
+      return tableLookup;
+    }
+
+    CacheConfig cacheConfig = config.getCacheConfig();
+    CachingLookup<T> cachingLookup = new CachingLookup<>(tableLookup, cacheConfig, getMetrics());
+    if (cacheConfig.isPreload()) {
+      if (!(lookup instanceof AbstractLookupProvider)) {
+        throw new IllegalArgumentException(String.format("Lookup table %s cannot be preloaded", table));
+      }
+      Set<String> keys = ((AbstractLookupProvider) lookup).scanKeys(table, arguments, cachingLookup.getMaxSize());
+      cachingLookup.preload(tableLookup.lookup(keys));
+    }
+    return cachingLookup;
+  }
 }
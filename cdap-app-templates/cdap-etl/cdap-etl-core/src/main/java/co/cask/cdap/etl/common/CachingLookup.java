@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.common;
+
+import co.cask.cdap.etl.api.CacheConfig;
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.StageMetrics;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Lookup} that reads through a cache to another {@link Lookup}. Keys that are not present in the
+ * table are cached too, so that repeated lookups of missing keys do not reach the table either. Batch lookups
+ * fetch all the keys that are not cached with a single batch lookup on the delegate.
+ *
+ * @param <T> the type of object that will be returned for a lookup
+ */
+public class CachingLookup<T> implements Lookup<T> {
+  public static final String CACHE_HITS = "lookup.cache.hits";
+  public static final String CACHE_MISSES = "lookup.cache.misses";
+
+  private final Lookup<T> delegate;
+  private final Cache<String, Optional<T>> cache;
+  private final StageMetrics metrics;
+  private final int maxSize;
+
+  public CachingLookup(Lookup<T> delegate, CacheConfig cacheConfig, StageMetrics metrics) {
+    this.delegate = delegate;
+    this.metrics = metrics;
+    this.maxSize = cacheConfig.getMaxSize() > 0 ? cacheConfig.getMaxSize() : CacheConfig.DEFAULT_MAX_SIZE;
+    CacheBuilder<Object, Object> cacheBuilder = CacheBuilder.newBuilder().maximumSize(maxSize);
+    if (cacheConfig.getExpirySeconds() > 0) {
+      cacheBuilder.expireAfterWrite(cacheConfig.getExpirySeconds(), TimeUnit.SECONDS);
+    }
+    this.cache = cacheBuilder.build();
+  }
+
+  /**
+   * @return the maximum number of elements in the cache
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Adds entries to the cache without looking them up.
+   *
+   * @param entries the entries to add
+   */
+  public void preload(Map<String, T> entries) {
+    for (Map.Entry<String, T> entry : entries.entrySet()) {
+      cache.put(entry.getKey(), Optional.fromNullable(entry.getValue()));
+    }
+  }
+
+  @Override
+  public T lookup(String key) {
+    Optional<T> cached = cache.getIfPresent(key);
+    if (cached != null) {
+      metrics.count(CACHE_HITS, 1);
+      return cached.orNull();
+    }
+    metrics.count(CACHE_MISSES, 1);
+    T value = delegate.lookup(key);
+    cache.put(key, Optional.fromNullable(value));
+    return value;
+  }
+
+  @Override
+  public Map<String, T> lookup(String... keys) {
+    return lookup(ImmutableSet.copyOf(keys));
+  }
+
+  @Override
+  public Map<String, T> lookup(Set<String> keys) {
+    Map<String, T> result = new HashMap<>();
+    Set<String> missing = new HashSet<>();
+    for (String key : keys) {
+      Optional<T> cached = cache.getIfPresent(key);
+      if (cached == null) {
+        missing.add(key);
+      } else if (cached.isPresent()) {
+        result.put(key, cached.get());
+      }
+    }
+    if (missing.size() < keys.size()) {
+      metrics.count(CACHE_HITS, keys.size() - missing.size());
+    }
+    if (missing.isEmpty()) {
+      return result;
+    }
+
+    metrics.count(CACHE_MISSES, missing.size());
+    Map<String, T> values = delegate.lookup(missing);
+    for (String key : missing) {
+      T value = values.get(key);
+      cache.put(key, Optional.fromNullable(value));
+      if (value != null) {
+        result.put(key, value);
+      }
+    }
+    return result;
+  }
+}
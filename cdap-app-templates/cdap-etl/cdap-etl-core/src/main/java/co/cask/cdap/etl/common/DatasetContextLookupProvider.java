@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -19,6 +19,7 @@ import co.cask.cdap.api.data.DatasetContext;
 import co.cask.cdap.etl.api.Lookup;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Implementation of {@link AbstractLookupProvider} that uses {@link DatasetContext}.
@@ -37,4 +38,9 @@ public class DatasetContextLookupProvider extends AbstractLookupProvider {
   public <T> Lookup<T> provide(String table, Map<String, String> arguments) {
     return getLookup(table, context.getDataset(table, arguments));
   }
+
+  @Override
+  public Set<String> scanKeys(String table, Map<String, String> arguments, int limit) {
+    return scanDatasetKeys(table, context.getDataset(table, arguments), limit);
+  }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -37,6 +37,9 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
   private final StageMetrics metrics;
   private final String metricInName;
   private final String metricOutName;
+  // the executors always pass the same emitter for a stage, so the tracking wrapper around it is reused
+  private Emitter<OUT> lastEmitter;
+  private Emitter<OUT> trackedEmitter;
 
   public TrackedTransform(Transformation<IN, OUT> transform, StageMetrics metrics) {
     this(transform, metrics, RECORDS_IN, RECORDS_OUT);
@@ -55,7 +58,11 @@ public class TrackedTransform<IN, OUT> implements Transformation<IN, OUT>, Destr
     if (metricInName != null) {
       metrics.count(metricInName, 1);
     }
-    transform.transform(input, metricOutName == null ? emitter : new TrackedEmitter<>(emitter, metrics, metricOutName));
+    if (emitter != lastEmitter) {
+      lastEmitter = emitter;
+      trackedEmitter = metricOutName == null ? emitter : new TrackedEmitter<>(emitter, metrics, metricOutName);
+    }
+    transform.transform(input, trackedEmitter);
   }
 
   @Override
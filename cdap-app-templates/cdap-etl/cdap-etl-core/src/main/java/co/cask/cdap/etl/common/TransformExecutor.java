@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -19,80 +19,271 @@ package co.cask.cdap.etl.common;
 import co.cask.cdap.etl.api.Destroyable;
 import co.cask.cdap.etl.api.InvalidEntry;
 import co.cask.cdap.etl.api.Transformation;
-import com.google.common.collect.ImmutableList;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
 
 
 /**
- * Executes Transforms one iteration at a time, tracking how many records were input into and output from
- * each transform.
+ * Executes Transforms one iteration or one chunk of inputs at a time, tracking how many records were input into
+ * and output from each transform.
+ *
+ * The stages are ordered topologically once at construction time, so that each iteration is a single pass over
+ * that order where every stage transforms the complete output of its parents. The emitter buffers of the stages
+ * and the {@link TransformResponse} returned from each iteration are reused, so running an iteration does not
+ * allocate anything besides what the transforms themselves emit.
+ *
+ * Inputs can also be processed in chunks. {@link #addInput(Object)} runs only the starting points over an input,
+ * and {@link #runChunk()} runs the rest of the stages once over everything the starting points emitted since the
+ * last chunk. Stages may emit their input as is, so the buffered output can refer to the inputs: callers must not
+ * reuse an input object, as Hadoop does with keys and values, before the chunk has run. Such inputs must be run
+ * with {@link #runOneIteration(Object)} instead.
  *
  * @param <IN> the type of input object to the first transform
  *
  */
 public class TransformExecutor<IN> implements Destroyable {
 
-  private final Set<String> startingPoints;
   private final Map<String, TransformDetail> transformDetailMap;
+  // stages in topological order, along with the indices of their parents in that order
+  private final TransformDetail[] stages;
+  private final String[] stageNames;
+  private final int[][] parents;
+  private final boolean[] startingPoint;
+  private final boolean[] terminal;
+  // singleton list reused to pass the input of an iteration to the starting points
+  private final List<Object> iterationInput;
+  private final Map<String, Collection<InvalidEntry<Object>>> errors;
+  private final TransformResponse response;
 
   public TransformExecutor(Map<String, TransformDetail> transformDetailMap, Set<String> startingPoints) {
     this.transformDetailMap = transformDetailMap;
-    this.startingPoints = startingPoints;
-  }
 
-  public TransformResponse runOneIteration(IN input) throws Exception {
-    for (String stageName : startingPoints) {
-      // no prevStage for starting points
-      executeTransformation(stageName, ImmutableList.of(input));
+    List<String> order = topologicalOrder(transformDetailMap, startingPoints);
+    Map<String, Integer> positions = new HashMap<>();
+    for (String stageName : order) {
+      positions.put(stageName, positions.size());
     }
 
-    Map<String, Collection<Object>> terminalNodeEntriesMap = new HashMap<>();
-    Map<String, Collection<InvalidEntry<Object>>> errors = new HashMap<>();
+    int numStages = order.size();
+    this.stages = new TransformDetail[numStages];
+    this.stageNames = order.toArray(new String[numStages]);
+    this.startingPoint = new boolean[numStages];
+    this.terminal = new boolean[numStages];
+    List<List<Integer>> stageParents = new ArrayList<>(numStages);
+    Map<String, Collection<Object>> sinksResults = new LinkedHashMap<>();
+    for (int i = 0; i < numStages; i++) {
+      stages[i] = transformDetailMap.get(stageNames[i]);
+      startingPoint[i] = startingPoints.contains(stageNames[i]);
+      terminal[i] = stages[i].getNextStages().isEmpty();
+      stageParents.add(new ArrayList<Integer>());
+    }
+    for (int i = 0; i < numStages; i++) {
+      for (String nextStage : stages[i].getNextStages()) {
+        stageParents.get(positions.get(nextStage)).add(i);
+      }
+    }
+    this.parents = new int[numStages][];
+    for (int i = 0; i < numStages; i++) {
+      List<Integer> stageParent = stageParents.get(i);
+      parents[i] = new int[stageParent.size()];
+      for (int j = 0; j < parents[i].length; j++) {
+        parents[i][j] = stageParent.get(j);
+      }
+    }
 
+    // terminal entries are exposed directly, the emitters keep accumulating them until resetEmitter is called
     for (Map.Entry<String, TransformDetail> transformDetailEntry : transformDetailMap.entrySet()) {
       if (transformDetailEntry.getValue().getNextStages().isEmpty()) {
-        // terminal node
-        Collection<Object> entries = transformDetailEntry.getValue().getEntries();
-        if (entries != null) {
-          terminalNodeEntriesMap.put(transformDetailEntry.getKey(), entries);
-        }
+        sinksResults.put(transformDetailEntry.getKey(), transformDetailEntry.getValue().getEntries());
       }
+    }
+    this.iterationInput = Arrays.asList(new Object[1]);
+    this.errors = new HashMap<>();
+    this.response = new TransformResponse(Collections.unmodifiableMap(sinksResults),
+                                          Collections.unmodifiableMap(errors));
+  }
 
-      if (!transformDetailEntry.getValue().getErrors().isEmpty()) {
-        errors.put(transformDetailEntry.getKey(), transformDetailEntry.getValue().getErrors());
+  /**
+   * Runs one input through all the stages.
+   *
+   * @param input the input to the starting points
+   * @return the same response as {@link #getResponse()}
+   */
+  public TransformResponse runOneIteration(IN input) throws Exception {
+    try {
+      addInput(input);
+    } catch (Exception e) {
+      clearStartingPoints();
+      throw e;
+    }
+    return runChunk();
+  }
+
+  /**
+   * Runs a chunk of inputs through all the stages.
+   *
+   * @param inputs the inputs to the starting points
+   * @return the same response as {@link #getResponse()}
+   */
+  public TransformResponse runChunk(Collection<? extends IN> inputs) throws Exception {
+    try {
+      for (IN input : inputs) {
+        addInput(input);
       }
+    } catch (Exception e) {
+      clearStartingPoints();
+      throw e;
     }
-    return new TransformResponse(terminalNodeEntriesMap, errors);
+    return runChunk();
   }
 
-  private <T> void executeTransformation(final String stageName,
-                                         Collection<T> input) throws Exception {
-    if (input == null) {
-      return;
+  /**
+   * Runs the starting points over one input. Their output is buffered until the next call to {@link #runChunk()},
+   * hence the input must not be modified by the caller until then.
+   *
+   * @param input the input to the starting points
+   */
+  @SuppressWarnings("unchecked")
+  public void addInput(IN input) throws Exception {
+    iterationInput.set(0, input);
+    try {
+      for (int i = 0; i < stages.length; i++) {
+        if (startingPoint[i]) {
+          transform(stages[i].getTransformation(), iterationInput, stages[i]);
+        }
+      }
+    } finally {
+      iterationInput.set(0, null);
+    }
+  }
+
+  /**
+   * Runs all the stages after the starting points over the output buffered by {@link #addInput(Object)}.
+   *
+   * @return the same response as {@link #getResponse()}
+   */
+  public TransformResponse runChunk() throws Exception {
+    try {
+      for (int i = 0; i < stages.length; i++) {
+        runStage(i);
+      }
+    } finally {
+      clearStartingPoints();
     }
+    return getResponse();
+  }
 
-    TransformDetail transformDetail = transformDetailMap.get(stageName);
-    Transformation<T, Object> transformation = transformDetail.getTransformation();
+  /**
+   * @return the response containing everything emitted by terminal stages and all errors emitted since the last
+   *         call to {@link #resetEmitter()}. It is only valid until the next iteration or reset.
+   */
+  public TransformResponse getResponse() {
+    errors.clear();
+    for (int i = 0; i < stages.length; i++) {
+      Collection<InvalidEntry<Object>> stageErrors = stages[i].getErrors();
+      if (!stageErrors.isEmpty()) {
+        errors.put(stageNames[i], stageErrors);
+      }
+    }
+    return response;
+  }
 
+  @SuppressWarnings("unchecked")
+  private void runStage(int stage) throws Exception {
+    TransformDetail transformDetail = stages[stage];
+    Transformation<Object, Object> transformation = transformDetail.getTransformation();
 
-    // clear old data for this stageName if its not a terminal node
-    if (!transformDetail.getNextStages().isEmpty()) {
+    // clear old data for this stage if its not a terminal node. The output of starting points is buffered
+    // by addInput and is cleared once the chunk has run
+    if (!terminal[stage] && !startingPoint[stage]) {
       transformDetail.getEntries().clear();
     }
 
-    for (T inputEntry : input) {
-      transformation.transform(inputEntry, transformDetail);
+    for (int parent : parents[stage]) {
+      transform(transformation, stages[parent].getEntries(), transformDetail);
     }
+  }
 
-    Collection<String> nextStages = transformDetail.getNextStages();
-    for (String nextStage : nextStages) {
-      executeTransformation(nextStage, transformDetail.getEntries());
+  private void clearStartingPoints() {
+    for (int i = 0; i < stages.length; i++) {
+      if (startingPoint[i] && !terminal[i]) {
+        stages[i].getEntries().clear();
+      }
     }
+  }
 
+  @SuppressWarnings("unchecked")
+  private void transform(Transformation<Object, Object> transformation, Collection<Object> inputs,
+                         TransformDetail emitter) throws Exception {
+    if (inputs instanceof RandomAccess) {
+      // the emitter buffers are array lists, indexing them avoids an iterator per stage and iteration
+      List<Object> inputList = (List<Object>) inputs;
+      for (int i = 0, size = inputList.size(); i < size; i++) {
+        transformation.transform(inputList.get(i), emitter);
+      }
+      return;
+    }
+    for (Object inputEntry : inputs) {
+      transformation.transform(inputEntry, emitter);
+    }
+  }
+
+  private static List<String> topologicalOrder(Map<String, TransformDetail> transformDetailMap,
+                                               Set<String> startingPoints) {
+    // count the parents of every stage reachable from the starting points
+    Map<String, Integer> inDegrees = new HashMap<>();
+    Deque<String> toVisit = new ArrayDeque<>(startingPoints);
+    for (String stageName : startingPoints) {
+      inDegrees.put(stageName, 0);
+    }
+    while (!toVisit.isEmpty()) {
+      String stageName = toVisit.poll();
+      TransformDetail transformDetail = transformDetailMap.get(stageName);
+      if (transformDetail == null) {
+        throw new IllegalArgumentException(String.format("No transform found for stage '%s'.", stageName));
+      }
+      for (String nextStage : transformDetail.getNextStages()) {
+        Integer inDegree = inDegrees.get(nextStage);
+        if (inDegree == null) {
+          toVisit.add(nextStage);
+          inDegree = 0;
+        }
+        inDegrees.put(nextStage, inDegree + 1);
+      }
+    }
+
+    List<String> order = new ArrayList<>(inDegrees.size());
+    for (Map.Entry<String, Integer> inDegree : inDegrees.entrySet()) {
+      if (inDegree.getValue() == 0) {
+        toVisit.add(inDegree.getKey());
+      }
+    }
+    while (!toVisit.isEmpty()) {
+      String stageName = toVisit.poll();
+      order.add(stageName);
+      for (String nextStage : transformDetailMap.get(stageName).getNextStages()) {
+        int inDegree = inDegrees.get(nextStage) - 1;
+        inDegrees.put(nextStage, inDegree);
+        if (inDegree == 0) {
+          toVisit.add(nextStage);
+        }
+      }
+    }
+    if (order.size() != inDegrees.size()) {
+      throw new IllegalArgumentException("Transform stages contain a cycle.");
+    }
+    return order;
   }
 
   public void resetEmitter() {
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -21,6 +21,7 @@ import co.cask.cdap.api.data.DatasetContext;
 import co.cask.cdap.etl.api.Lookup;
 import co.cask.tephra.TransactionFailureException;
 import com.google.common.base.Function;
+import com.google.common.base.Throwables;
 
 import java.util.Map;
 import java.util.Set;
@@ -80,6 +81,23 @@ public class TxLookupProvider extends AbstractLookupProvider {
     };
   }
 
+  @Override
+  public Set<String> scanKeys(final String table, final Map<String, String> arguments, final int limit) {
+    try {
+      final AtomicReference<Set<String>> result = new AtomicReference<>();
+      tx.execute(new TxRunnable() {
+        @Override
+        public void run(DatasetContext context) throws Exception {
+          result.set(scanDatasetKeys(table, context.getDataset(table, arguments), limit));
+        }
+      });
+      return result.get();
+    } catch (TransactionFailureException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IllegalArgumentException.class);
+      throw new RuntimeException("Failed to execute transaction", e);
+    }
+  }
+
   @Nullable
   private <T, R> R executeLookup(final String table, final Map<String, String> arguments,
                                  final Function<Lookup<T>, R> func) {
@@ -138,6 +138,20 @@ public class PipelinePlanner {
     cdag.insertConnectors();
     Set<String> connectorNodes = cdag.getConnectors();
 
+    // connectors carry the output schemas of the stages that write to them, so that both the writing and
+    // the reading phase know how records are encoded in the local dataset
+    Map<String, StageInfo> connectorStages = new HashMap<>();
+    for (String connectorNode : connectorNodes) {
+      StageInfo.Builder connectorBuilder = StageInfo.builder(connectorNode, Constants.CONNECTOR_TYPE);
+      for (String inputNode : cdag.getNodeInputs(connectorNode)) {
+        StageSpec inputSpec = specs.get(inputNode);
+        if (inputSpec != null && inputSpec.getOutputSchema() != null) {
+          connectorBuilder.addInputSchema(inputNode, inputSpec.getOutputSchema());
+        }
+      }
+      connectorStages.put(connectorNode, connectorBuilder.build());
+    }
+
     // now split the logical pipeline into pipeline phases, using the connectors as split points
     Map<String, Dag> subdags = new HashMap<>();
     // assign some name to each subdag
@@ -169,7 +183,7 @@ public class PipelinePlanner {
     // convert to objects the programs expect.
     Map<String, PipelinePhase> phases = new HashMap<>();
     for (Map.Entry<String, Dag> dagEntry : subdags.entrySet()) {
-      phases.put(dagEntry.getKey(), dagToPipeline(dagEntry.getValue(), connectorNodes, specs));
+      phases.put(dagEntry.getKey(), dagToPipeline(dagEntry.getValue(), connectorStages, specs));
     }
 
     populateActionPhases(specs, actionNodes, phases, phaseConnections, outgoingActionConnections,
@@ -247,11 +261,11 @@ public class PipelinePlanner {
    * The PipelinePhase is what programs will take as input, and keeps track of sources, transforms, sinks, etc.
    *
    * @param dag the dag to convert
-   * @param connectors connector nodes across all dags
+   * @param connectors connector stages across all dags
    * @param specs specifications for every stage
    * @return the converted dag
    */
-  private PipelinePhase dagToPipeline(Dag dag, Set<String> connectors, Map<String, StageSpec> specs) {
+  private PipelinePhase dagToPipeline(Dag dag, Map<String, StageInfo> connectors, Map<String, StageSpec> specs) {
     PipelinePhase.Builder phaseBuilder = PipelinePhase.builder(supportedPluginTypes);
 
     for (String stageName : dag.getTopologicalOrder()) {
@@ -261,8 +275,8 @@ public class PipelinePlanner {
       }
 
       // add connectors
-      if (connectors.contains(stageName)) {
-        phaseBuilder.addStage(StageInfo.builder(stageName, Constants.CONNECTOR_TYPE).build());
+      if (connectors.containsKey(stageName)) {
+        phaseBuilder.addStage(connectors.get(stageName));
         continue;
       }
 
@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.etl.common;
+
+import co.cask.cdap.etl.api.CacheConfig;
+import co.cask.cdap.etl.api.Lookup;
+import co.cask.cdap.etl.api.LookupTableConfig;
+import co.cask.cdap.etl.api.TransformContext;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for {@link CachingLookup}.
+ */
+public class CachingLookupTest {
+
+  @Test
+  public void testReadThrough() {
+    MockMetrics mockMetrics = new MockMetrics();
+    CountingLookup table = new CountingLookup(ImmutableMap.of("k1", "v1", "k2", "v2"));
+    Lookup<String> lookup = new CachingLookup<>(table, new CacheConfig(0, 10),
+                                                new DefaultStageMetrics(mockMetrics, "stage"));
+
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    // missing keys are cached as well
+    Assert.assertNull(lookup.lookup("k3"));
+    Assert.assertNull(lookup.lookup("k3"));
+    Assert.assertEquals(2, table.lookups);
+    Assert.assertEquals(2, mockMetrics.getCount("stage." + CachingLookup.CACHE_HITS));
+    Assert.assertEquals(2, mockMetrics.getCount("stage." + CachingLookup.CACHE_MISSES));
+
+    // only the keys that are not cached are looked up, in a single batch
+    Assert.assertEquals(ImmutableMap.of("k1", "v1", "k2", "v2"), lookup.lookup("k1", "k2", "k3"));
+    Assert.assertEquals(3, table.lookups);
+    Assert.assertEquals(ImmutableSet.of("k2"), table.lastKeys);
+    Assert.assertEquals(ImmutableMap.of("k1", "v1", "k2", "v2"), lookup.lookup("k1", "k2", "k3"));
+    Assert.assertEquals(3, table.lookups);
+    Assert.assertEquals(7, mockMetrics.getCount("stage." + CachingLookup.CACHE_HITS));
+    Assert.assertEquals(3, mockMetrics.getCount("stage." + CachingLookup.CACHE_MISSES));
+  }
+
+  @Test
+  public void testPreload() {
+    MockMetrics mockMetrics = new MockMetrics();
+    CountingLookup table = new CountingLookup(ImmutableMap.of("k1", "v1"));
+    CachingLookup<String> lookup = new CachingLookup<>(table, new CacheConfig(0, 10, true),
+                                                       new DefaultStageMetrics(mockMetrics, "stage"));
+    lookup.preload(ImmutableMap.of("k1", "v1"));
+
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals(0, table.lookups);
+    Assert.assertEquals(1, mockMetrics.getCount("stage." + CachingLookup.CACHE_HITS));
+    Assert.assertEquals(0, mockMetrics.getCount("stage." + CachingLookup.CACHE_MISSES));
+  }
+
+  @Test
+  public void testMaxSize() {
+    CountingLookup table = new CountingLookup(ImmutableMap.of("k1", "v1", "k2", "v2"));
+    Lookup<String> lookup = new CachingLookup<>(table, new CacheConfig(0, 1),
+                                                new DefaultStageMetrics(new MockMetrics(), "stage"));
+    lookup.lookup("k1");
+    lookup.lookup("k2");
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals(3, table.lookups);
+  }
+
+  @Test
+  public void testDefaultMaxSize() {
+    CachingLookup<String> lookup = new CachingLookup<>(new CountingLookup(ImmutableMap.<String, String>of()),
+                                                       new CacheConfig(),
+                                                       new DefaultStageMetrics(new MockMetrics(), "stage"));
+    Assert.assertEquals(CacheConfig.DEFAULT_MAX_SIZE, lookup.getMaxSize());
+  }
+
+  @Test
+  public void testProvideWithConfig() {
+    final CountingLookup table = new CountingLookup(ImmutableMap.of("k1", "v1"));
+    // contexts that override provide(table, arguments) without a lookup provider, as the Spark contexts do
+    TransformContext context = new AbstractTransformContext(null, new MockMetrics(), null, "stage") {
+      @SuppressWarnings("unchecked")
+      @Override
+      public <T> Lookup<T> provide(String name, Map<String, String> arguments) {
+        return (Lookup<T>) table;
+      }
+    };
+    Map<String, String> arguments = ImmutableMap.of();
+
+    LookupTableConfig uncached = new LookupTableConfig(LookupTableConfig.TableType.DATASET);
+    Assert.assertSame(table, context.<String>provide("t", arguments, uncached));
+
+    LookupTableConfig cached = new LookupTableConfig(LookupTableConfig.TableType.DATASET, new CacheConfig(),
+                                                     arguments, true);
+    Lookup<String> lookup = context.provide("t", arguments, cached);
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals("v1", lookup.lookup("k1"));
+    Assert.assertEquals(1, table.lookups);
+
+    LookupTableConfig preloaded = new LookupTableConfig(LookupTableConfig.TableType.DATASET,
+                                                        new CacheConfig(0, 0, true), arguments, true);
+    try {
+      context.provide("t", arguments, preloaded);
+      Assert.fail("Expected a table without a lookup provider to fail preloading");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  /**
+   * Lookup that counts how many times it is called.
+   */
+  private static class CountingLookup implements Lookup<String> {
+    private final Map<String, String> values;
+    private int lookups;
+    private Set<String> lastKeys;
+
+    private CountingLookup(Map<String, String> values) {
+      this.values = values;
+    }
+
+    @Override
+    public String lookup(String key) {
+      lookups++;
+      return values.get(key);
+    }
+
+    @Override
+    public Map<String, String> lookup(String... keys) {
+      return lookup(ImmutableSet.copyOf(keys));
+    }
+
+    @Override
+    public Map<String, String> lookup(Set<String> keys) {
+      lookups++;
+      lastKeys = keys;
+      Map<String, String> result = new HashMap<>();
+      for (String key : keys) {
+        if (values.containsKey(key)) {
+          result.put(key, values.get(key));
+        }
+      }
+      return result;
+    }
+  }
+}
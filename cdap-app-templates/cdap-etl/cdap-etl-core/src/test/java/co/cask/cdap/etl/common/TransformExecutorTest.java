@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  */
@@ -271,6 +272,88 @@ public class TransformExecutorTest {
     Assert.assertEquals(3, mockMetrics.getCount("sink3.records.out"));
   }
 
+  @Test
+  public void testResponseReusedAcrossIterations() throws Exception {
+    Map<String, TransformDetail> transformationMap = new HashMap<>();
+    transformationMap.put("filter", new TransformDetail(new Filter(100d, Threshold.LOWER),
+                                                        ImmutableList.of("sink")));
+    transformationMap.put("sink", new TransformDetail(new DoubleToString(), ImmutableList.<String>of()));
+
+    TransformExecutor<Double> executor = new TransformExecutor<>(transformationMap, ImmutableSet.of("filter"));
+    TransformResponse firstResponse = executor.runOneIteration(10d);
+    assertResults(firstResponse.getSinksResults(), ImmutableMap.of("sink", 0));
+    assertResults(firstResponse.getMapTransformIdToErrorEmitter(), ImmutableMap.of("filter", 1));
+
+    TransformResponse secondResponse = executor.runOneIteration(1000d);
+    Assert.assertSame(firstResponse, secondResponse);
+    Assert.assertSame(secondResponse, executor.getResponse());
+    assertResults(secondResponse.getSinksResults(), ImmutableMap.of("sink", 1));
+    Assert.assertEquals("1000.0", secondResponse.getSinksResults().get("sink").iterator().next());
+
+    executor.resetEmitter();
+    assertResults(executor.getResponse().getSinksResults(), ImmutableMap.of("sink", 0));
+    assertResults(executor.getResponse().getMapTransformIdToErrorEmitter(), new HashMap<String, Integer>());
+  }
+
+  @Test
+  public void testChunks() throws Exception {
+    MockMetrics mockMetrics = new MockMetrics();
+    Map<String, TransformDetail> transformationMap = new HashMap<>();
+    transformationMap.put("transform1",
+                          new TransformDetail(
+                            new TrackedTransform<>(new IntToDouble(),
+                                                   new DefaultStageMetrics(mockMetrics, "transform1")),
+                            ImmutableList.of("transform2", "sink1")));
+    transformationMap.put("transform2",
+                          new TransformDetail(
+                            new TrackedTransform<>(new Filter(100d, Threshold.LOWER),
+                                                   new DefaultStageMetrics(mockMetrics, "transform2")),
+                            ImmutableList.of("sink2")));
+    transformationMap.put("sink1", new TransformDetail(new DoubleToString(), ImmutableList.<String>of()));
+    transformationMap.put("sink2", new TransformDetail(new DoubleToString(), ImmutableList.<String>of()));
+
+    TransformExecutor<Integer> executor = new TransformExecutor<>(transformationMap, ImmutableSet.of("transform1"));
+    TransformResponse transformResponse = executor.runChunk(ImmutableList.of(1, 10, 100, 2000));
+    assertResults(transformResponse.getSinksResults(), ImmutableMap.of("sink1", 12, "sink2", 6));
+    assertResults(transformResponse.getMapTransformIdToErrorEmitter(), ImmutableMap.of("transform2", 6));
+    Assert.assertEquals(12, mockMetrics.getCount("transform1.records.out"));
+    Assert.assertEquals(12, mockMetrics.getCount("transform2.records.in"));
+    Assert.assertEquals(6, mockMetrics.getCount("transform2.records.out"));
+
+    // the output of the starting points is only run through the rest of the stages once
+    executor.runChunk(ImmutableList.of(1000));
+    assertResults(executor.getResponse().getSinksResults(), ImmutableMap.of("sink1", 15, "sink2", 9));
+    Assert.assertEquals(15, mockMetrics.getCount("transform2.records.in"));
+    executor.resetEmitter();
+  }
+
+  @Test
+  public void testChunkOfReusedInputs() throws Exception {
+    Map<String, TransformDetail> transformationMap = new HashMap<>();
+    transformationMap.put("unwrap", new TransformDetail(new Unwrap(), ImmutableList.of("sink")));
+    transformationMap.put("sink", new TransformDetail(new DoubleToString(), ImmutableList.<String>of()));
+
+    TransformExecutor<AtomicReference<Double>> executor =
+      new TransformExecutor<>(transformationMap, ImmutableSet.of("unwrap"));
+    // the caller reuses its input object, which is safe only because the starting point emits objects of its own
+    AtomicReference<Double> input = new AtomicReference<>();
+    for (double value = 1; value <= 3; value++) {
+      input.set(value);
+      executor.addInput(input);
+    }
+    TransformResponse transformResponse = executor.runChunk();
+    Assert.assertEquals(ImmutableList.of("1.0", "2.0", "3.0"),
+                        ImmutableList.copyOf(transformResponse.getSinksResults().get("sink")));
+    executor.resetEmitter();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownNextStage() throws Exception {
+    Map<String, TransformDetail> transformationMap = new HashMap<>();
+    transformationMap.put("transform", new TransformDetail(new IntToDouble(), ImmutableList.of("sink")));
+    new TransformExecutor<Integer>(transformationMap, ImmutableSet.of("transform"));
+  }
+
   private <T> void assertResults(Map<String, Collection<T>> results, Map<String, Integer> expectedListsSize) {
     Assert.assertEquals(expectedListsSize.size(), results.size());
     for (Map.Entry<String, Integer> entry : expectedListsSize.entrySet()) {
@@ -323,6 +406,14 @@ public class TransformExecutorTest {
     }
   }
 
+  private static class Unwrap extends Transform<AtomicReference<Double>, Double> {
+
+    @Override
+    public void transform(AtomicReference<Double> input, Emitter<Double> emitter) throws Exception {
+      emitter.emit(input.get());
+    }
+  }
+
   private static class DoubleToString extends Transform<Double, String> {
 
     @Override
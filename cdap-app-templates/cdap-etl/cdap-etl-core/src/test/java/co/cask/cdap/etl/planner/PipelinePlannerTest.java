@@ -150,9 +150,9 @@ public class PipelinePlannerTest {
      */
     PipelinePhase phase1 = PipelinePhase.builder(pluginTypes)
       .addStage(StageInfo.builder("n1", NODE).addOutputs("n2", "n3", "n4").setOutputSchema(schema).build())
-      .addStage(StageInfo.builder("n2.connector", Constants.CONNECTOR_TYPE).build())
-      .addStage(StageInfo.builder("n3.connector", Constants.CONNECTOR_TYPE).build())
-      .addStage(StageInfo.builder("n4.connector", Constants.CONNECTOR_TYPE).build())
+      .addStage(StageInfo.builder("n2.connector", Constants.CONNECTOR_TYPE).addInputSchema("n1", schema).build())
+      .addStage(StageInfo.builder("n3.connector", Constants.CONNECTOR_TYPE).addInputSchema("n1", schema).build())
+      .addStage(StageInfo.builder("n4.connector", Constants.CONNECTOR_TYPE).addInputSchema("n1", schema).build())
       .addConnections("n1", ImmutableSet.of("n2.connector", "n3.connector", "n4.connector"))
       .build();
     String phase1Name = getPhaseName("n1", "n2.connector", "n3.connector", "n4.connector");
@@ -176,8 +176,8 @@ public class PipelinePlannerTest {
                   .addOutputs("n7")
                   .setOutputSchema(schema)
                   .build())
-      .addStage(StageInfo.builder("n2.connector", Constants.CONNECTOR_TYPE).build())
-      .addStage(StageInfo.builder("n7.connector", Constants.CONNECTOR_TYPE).build())
+      .addStage(StageInfo.builder("n2.connector", Constants.CONNECTOR_TYPE).addInputSchema("n1", schema).build())
+      .addStage(StageInfo.builder("n7.connector", Constants.CONNECTOR_TYPE).addInputSchema("n6", schema).build())
       .addConnection("n2.connector", "n2")
       .addConnection("n2", "n6")
       .addConnection("n6", "n7.connector")
@@ -207,8 +207,8 @@ public class PipelinePlannerTest {
                   .addInputSchema("n1", schema)
                   .addOutputs("n5")
                   .setOutputSchema(schema).build())
-      .addStage(StageInfo.builder("n3.connector", Constants.CONNECTOR_TYPE).build())
-      .addStage(StageInfo.builder("n7.connector", Constants.CONNECTOR_TYPE).build())
+      .addStage(StageInfo.builder("n3.connector", Constants.CONNECTOR_TYPE).addInputSchema("n1", schema).build())
+      .addStage(StageInfo.builder("n7.connector", Constants.CONNECTOR_TYPE).addInputSchema("n6", schema).build())
       .addConnection("n3.connector", "n3")
       .addConnection("n3", "n5")
       .addConnection("n5", "n6")
@@ -234,8 +234,8 @@ public class PipelinePlannerTest {
                   .addInputSchema("n5", schema)
                   .addOutputs("n7")
                   .setOutputSchema(schema).build())
-      .addStage(StageInfo.builder("n4.connector", Constants.CONNECTOR_TYPE).build())
-      .addStage(StageInfo.builder("n7.connector", Constants.CONNECTOR_TYPE).build())
+      .addStage(StageInfo.builder("n4.connector", Constants.CONNECTOR_TYPE).addInputSchema("n1", schema).build())
+      .addStage(StageInfo.builder("n7.connector", Constants.CONNECTOR_TYPE).addInputSchema("n6", schema).build())
       .addConnection("n4.connector", "n4")
       .addConnection("n4", "n6")
       .addConnection("n6", "n7.connector")
@@ -258,8 +258,8 @@ public class PipelinePlannerTest {
                   .addInputSchema("n6", schema)
                   .addOutputs("n8")
                   .setOutputSchema(schema).build())
-      .addStage(StageInfo.builder("n7.connector", Constants.CONNECTOR_TYPE).build())
-      .addStage(StageInfo.builder("n9.connector", Constants.CONNECTOR_TYPE).build())
+      .addStage(StageInfo.builder("n7.connector", Constants.CONNECTOR_TYPE).addInputSchema("n6", schema).build())
+      .addStage(StageInfo.builder("n9.connector", Constants.CONNECTOR_TYPE).addInputSchema("n8", schema).build())
       .addConnection("n7.connector", "n7")
       .addConnection("n7", "n8")
       .addConnection("n8", "n9.connector")
@@ -285,7 +285,7 @@ public class PipelinePlannerTest {
                   .addInputSchema("n8", schema)
                   .addOutputs("n10", "n11")
                   .setOutputSchema(schema).build())
-      .addStage(StageInfo.builder("n9.connector", Constants.CONNECTOR_TYPE).build())
+      .addStage(StageInfo.builder("n9.connector", Constants.CONNECTOR_TYPE).addInputSchema("n8", schema).build())
       .addConnection("n9.connector", "n9")
       .addConnection("n9", "n10")
       .addConnection("n9", "n11")
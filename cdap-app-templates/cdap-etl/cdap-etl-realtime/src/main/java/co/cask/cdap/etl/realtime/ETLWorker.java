@@ -76,7 +76,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -339,47 +338,49 @@ public class ETLWorker extends AbstractWorker {
         continue;
       }
 
-      // For each object emitted by the source, invoke the transformExecutor and collect all the data
-      // to be persisted in the sink.
-      for (Object sourceData : sourceEmitter.getEntries()) {
-        try {
-          TransformResponse transformResponse = transformExecutor.runOneIteration(sourceData);
-
-          for (Map.Entry<String, Collection<Object>> transformedValues :
-            transformResponse.getSinksResults().entrySet()) {
-            dataToSink.put(transformedValues.getKey(), new ArrayList<>());
-            Iterator emitterIterator = transformedValues.getValue().iterator();
-            while (emitterIterator.hasNext()) {
-              if (!hasData) {
-                hasData = true;
-              }
-              dataToSink.get(transformedValues.getKey()).add(emitterIterator.next());
-            }
+      // Run all the objects emitted by the source through the transformExecutor as one chunk. If that fails,
+      // discard its output and run each object on its own, so that one failing object does not drop the others.
+      // Record metrics already emitted for the failed chunk are not rolled back.
+      // The executor accumulates the outputs and errors, so the data to be persisted is collected once at the end.
+      try {
+        transformExecutor.runChunk(sourceEmitter.getEntries());
+      } catch (Exception e) {
+        LOG.debug("Exception thrown while processing a chunk of data, processing each object separately", e);
+        transformExecutor.resetEmitter();
+        for (Object sourceData : sourceEmitter.getEntries()) {
+          try {
+            transformExecutor.runOneIteration(sourceData);
+          } catch (Exception ex) {
+            LOG.warn("Exception thrown while processing data {}", sourceData, ex);
           }
+        }
+      }
+      TransformResponse transformResponse = transformExecutor.getResponse();
 
-          for (Map.Entry<String, Collection<InvalidEntry<Object>>> transformErrorsEntry :
-            transformResponse.getMapTransformIdToErrorEmitter().entrySet()) {
+      for (Map.Entry<String, Collection<Object>> transformedValues : transformResponse.getSinksResults().entrySet()) {
+        dataToSink.put(transformedValues.getKey(), new ArrayList<>(transformedValues.getValue()));
+        if (!transformedValues.getValue().isEmpty()) {
+          hasData = true;
+        }
+      }
 
-            if (!transformErrorsWithoutDataset.contains(transformErrorsEntry.getKey())) {
+      for (Map.Entry<String, Collection<InvalidEntry<Object>>> transformErrorsEntry :
+        transformResponse.getMapTransformIdToErrorEmitter().entrySet()) {
 
-              if (!tranformIdToDatasetName.containsKey(transformErrorsEntry.getKey())
-                && !transformErrorsEntry.getValue().isEmpty()) {
-                transformErrorsWithoutDataset.add(transformErrorsEntry.getKey());
-                LOG.warn("Error records were emitted in transform {}, " +
-                           "but error dataset is not configured for this transform", transformErrorsEntry.getKey());
-              }
-              if (tranformIdToDatasetName.containsKey(transformErrorsEntry.getKey())
-                && !transformErrorsEntry.getValue().isEmpty()) {
-                // add the errors
-                if (!hasData && transformErrorsEntry.getValue().size() > 0) {
-                  hasData = true;
-                }
-                transformIdToErrorRecords.get(transformErrorsEntry.getKey()).addAll(transformErrorsEntry.getValue());
-              }
-            }
+        if (!transformErrorsWithoutDataset.contains(transformErrorsEntry.getKey())) {
+
+          if (!tranformIdToDatasetName.containsKey(transformErrorsEntry.getKey())
+            && !transformErrorsEntry.getValue().isEmpty()) {
+            transformErrorsWithoutDataset.add(transformErrorsEntry.getKey());
+            LOG.warn("Error records were emitted in transform {}, " +
+                       "but error dataset is not configured for this transform", transformErrorsEntry.getKey());
+          }
+          if (tranformIdToDatasetName.containsKey(transformErrorsEntry.getKey())
+            && !transformErrorsEntry.getValue().isEmpty()) {
+            // add the errors
+            hasData = true;
+            transformIdToErrorRecords.get(transformErrorsEntry.getKey()).addAll(transformErrorsEntry.getValue());
           }
-        } catch (Exception e) {
-          LOG.warn("Exception thrown while processing data {}", sourceData, e);
         }
       }
       sourceEmitter.reset();
@@ -421,9 +422,6 @@ public class ETLWorker extends AbstractWorker {
                 KeyValueTable stateTable = context.getDataset(ETLRealtimeApplication.STATE_TABLE);
                 stateTable.write(stateStoreKey, GSON.toJson(nextState));
               }
-
-              // after running one iteration and succesfully writing to sinks and error datasets, reset the emitters.
-              transformExecutor.resetEmitter();
             }
           });
 
@@ -436,6 +434,7 @@ public class ETLWorker extends AbstractWorker {
         // Clear the persisted sink data (in case transaction failure occurred, we will poll the source with old state)
         hasData = false;
         dataToSink.clear();
+        transformExecutor.resetEmitter();
         for (List<InvalidEntry> invalidEntryList : transformIdToErrorRecords.values()) {
           invalidEntryList.clear();
         }
@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data.stream;
+
+import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import co.cask.cdap.common.io.Locations;
+import co.cask.cdap.common.utils.DirUtils;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the write and read throughput of {@link StreamDataFileWriter} and {@link StreamDataFileReader}
+ * for each of the {@link StreamDataFileCompression} codecs. The primary score is in events per second. The
+ * {@code bytes} auxiliary counter reports the event body bytes written or read per second, which gives the
+ * throughput in MB per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StreamDataFileBenchmark {
+
+  private static final int EVENTS = 10000;
+
+  @Param({ "NONE", "SNAPPY", "LZ4", "DEFLATE" })
+  private StreamDataFileCompression compression;
+
+  private File baseDir;
+  private Location dir;
+  private List<StreamEvent> events;
+  private long eventBytes;
+  private Location readEventFile;
+  private List<PositionStreamEvent> readEvents;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    baseDir = Files.createTempDir();
+    dir = new LocalLocationFactory(baseDir).create("stream");
+    dir.mkdirs();
+
+    // CSV like events, which have the kind of redundancy that compression can take advantage of
+    Random random = new Random(0L);
+    Map<String, String> headers = ImmutableMap.of("content.type", "text/csv");
+    events = Lists.newArrayListWithCapacity(EVENTS);
+    long timestamp = System.currentTimeMillis();
+    for (int i = 0; i < EVENTS; i++) {
+      String body = String.format("%d,customer-%05d,product-%04d,%d,%s", timestamp + i, random.nextInt(10000),
+                                  random.nextInt(1000), random.nextInt(100), "web,us-west,completed");
+      events.add(new StreamEvent(headers, Charsets.UTF_8.encode(body), timestamp + i / 100));
+      eventBytes += body.length();
+    }
+
+    readEventFile = writeEvents();
+    readEvents = Lists.newArrayListWithCapacity(EVENTS);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    DirUtils.deleteDirectoryContents(baseDir);
+  }
+
+  /**
+   * Counts the event body bytes processed.
+   */
+  @State(Scope.Thread)
+  @AuxCounters
+  public static class ByteCounters {
+    public long bytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      bytes = 0;
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public long write(ByteCounters counters) throws IOException {
+    Location eventFile = writeEvents();
+    counters.bytes += eventBytes;
+    long size = eventFile.length();
+    eventFile.delete();
+    return size;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(EVENTS)
+  public int read(ByteCounters counters) throws IOException, InterruptedException {
+    StreamDataFileReader reader = StreamDataFileReader.create(Locations.newInputSupplier(readEventFile));
+    try {
+      int count = 0;
+      int size;
+      do {
+        readEvents.clear();
+        size = reader.read(readEvents, 1000, 0, TimeUnit.SECONDS);
+        count += Math.max(size, 0);
+      } while (size > 0);
+      counters.bytes += eventBytes;
+      return count;
+    } finally {
+      reader.close();
+    }
+  }
+
+  private Location writeEvents() throws IOException {
+    Location eventFile = dir.getTempFile(".dat");
+    Location indexFile = dir.getTempFile(".idx");
+    StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventFile),
+                                                           Locations.newOutputSupplier(indexFile), 10000L,
+                                                           ImmutableMap.<String, String>of(), compression);
+    try {
+      for (StreamEvent event : events) {
+        event.getBody().rewind();
+        writer.append(event);
+      }
+    } finally {
+      writer.close();
+    }
+    indexFile.delete();
+    return eventFile;
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.DatasetAdmin;
+import co.cask.cdap.api.dataset.DatasetContext;
+import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.api.dataset.table.Table;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTable;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableAdmin;
+import co.cask.cdap.data2.dataset2.lib.table.leveldb.LevelDBTable;
+import co.cask.cdap.data2.dataset2.lib.table.leveldb.LevelDBTableAdmin;
+import co.cask.cdap.data2.dataset2.lib.table.leveldb.LevelDBTableService;
+import co.cask.cdap.proto.Id;
+import co.cask.tephra.Transaction;
+import com.google.common.io.Files;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the put, get and scan paths of {@link BufferingTable}, which merge the in-transaction
+ * write buffer with the persisted store, against the in-memory and LevelDB implementations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BufferingTableBenchmark {
+
+  private static final int ROWS = 10000;
+  private static final int BATCH_SIZE = 100;
+  private static final int SCAN_SIZE = 1000;
+  private static final byte[] COLUMN = Bytes.toBytes("c");
+  private static final String TABLE_NAME = "bench";
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void put(WriteState state) throws Exception {
+    state.startTx();
+    int start = state.random.nextInt(ROWS - BATCH_SIZE);
+    for (int i = start; i < start + BATCH_SIZE; i++) {
+      state.table.put(state.rowKeys[i], COLUMN, state.value);
+    }
+    state.commitTx();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void get(ReadState state, Blackhole blackhole) {
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      blackhole.consume(state.table.get(state.rowKeys[state.random.nextInt(ROWS)], COLUMN));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SCAN_SIZE)
+  public void scan(ReadState state, Blackhole blackhole) {
+    int start = state.random.nextInt(ROWS - SCAN_SIZE);
+    Scanner scanner = state.table.scan(state.rowKeys[start], state.rowKeys[start + SCAN_SIZE]);
+    try {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        blackhole.consume(row);
+      }
+    } finally {
+      scanner.close();
+    }
+  }
+
+  /**
+   * State for the write benchmark. Each invocation writes and commits a batch of rows in a new transaction.
+   */
+  @State(Scope.Thread)
+  public static class WriteState extends TableState {
+  }
+
+  /**
+   * State for the read benchmarks. A transaction is kept open for each iteration with writes to every tenth
+   * row buffered, so that reads have to merge the buffer with the persisted store.
+   */
+  @State(Scope.Thread)
+  public static class ReadState extends TableState {
+
+    @Setup(Level.Iteration)
+    public void startIteration() throws Exception {
+      startTx();
+      for (int i = 0; i < ROWS; i += 10) {
+        table.put(rowKeys[i], COLUMN, value);
+      }
+    }
+
+    @TearDown(Level.Iteration)
+    public void endIteration() throws Exception {
+      table.rollbackTx();
+    }
+  }
+
+  /**
+   * Base state that creates a table populated with committed rows.
+   */
+  @State(Scope.Thread)
+  public abstract static class TableState {
+
+    @Param({ "inmemory", "leveldb" })
+    String tableType;
+
+    @Param({ "false", "true" })
+    boolean offHeapBuffer;
+
+    BufferingTable table;
+    byte[][] rowKeys;
+    byte[] value;
+    Random random;
+
+    private File localDir;
+    private LevelDBTableService levelDBService;
+    private DatasetAdmin admin;
+    private long writePointer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      CConfiguration cConf = CConfiguration.create();
+      localDir = Files.createTempDir();
+      cConf.set(Constants.CFG_DATA_LEVELDB_DIR, localDir.getAbsolutePath());
+
+      DatasetContext datasetContext = DatasetContext.from(Id.Namespace.DEFAULT.getId());
+      DatasetSpecification spec = DatasetSpecification.builder(TABLE_NAME, "table")
+        .property(Table.PROPERTY_BUFFER_OFF_HEAP, Boolean.toString(offHeapBuffer))
+        .build();
+
+      if ("leveldb".equals(tableType)) {
+        levelDBService = new LevelDBTableService();
+        levelDBService.setConfiguration(cConf);
+        admin = new LevelDBTableAdmin(datasetContext, spec, levelDBService, cConf);
+        admin.create();
+        table = new LevelDBTable(datasetContext, TABLE_NAME, levelDBService, cConf, spec);
+      } else {
+        admin = new InMemoryTableAdmin(datasetContext, TABLE_NAME, cConf);
+        admin.create();
+        table = new InMemoryTable(datasetContext, spec, cConf);
+      }
+
+      rowKeys = new byte[ROWS][];
+      for (int i = 0; i < ROWS; i++) {
+        rowKeys[i] = Bytes.toBytes(String.format("row%08d", i));
+      }
+      value = new byte[64];
+      random = new Random(0L);
+      random.nextBytes(value);
+
+      startTx();
+      for (byte[] row : rowKeys) {
+        table.put(row, COLUMN, value);
+      }
+      commitTx();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+      table.close();
+      admin.drop();
+      if (levelDBService != null) {
+        levelDBService.clearTables();
+      }
+      DirUtils.deleteDirectoryContents(localDir);
+    }
+
+    void startTx() {
+      writePointer++;
+      table.startTx(new Transaction(writePointer - 1, writePointer, new long[0], new long[0],
+                                    Transaction.NO_TX_IN_PROGRESS));
+    }
+
+    void commitTx() throws Exception {
+      table.commitTx();
+      table.postTxCommit();
+    }
+  }
+}
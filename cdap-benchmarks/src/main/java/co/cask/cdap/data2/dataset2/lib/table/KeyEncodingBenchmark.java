@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for row key comparison with {@link Bytes} and key encoding with {@link MDSKey}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class KeyEncodingBenchmark {
+
+  @Param({ "16", "128" })
+  private int keyLength;
+
+  private byte[] key;
+  private byte[] equalKey;
+  private byte[] lastByteDiffKey;
+  private MDSKey mdsKey;
+
+  @Setup
+  public void setup() {
+    key = new byte[keyLength];
+    for (int i = 0; i < keyLength; i++) {
+      key[i] = (byte) i;
+    }
+    equalKey = Arrays.copyOf(key, keyLength);
+    lastByteDiffKey = Arrays.copyOf(key, keyLength);
+    lastByteDiffKey[keyLength - 1]++;
+    mdsKey = encodeKey();
+  }
+
+  @Benchmark
+  public int compareEqual() {
+    return Bytes.compareTo(key, equalKey);
+  }
+
+  @Benchmark
+  public int compareLastByteDiff() {
+    return Bytes.compareTo(key, lastByteDiffKey);
+  }
+
+  @Benchmark
+  public int comparatorLastByteDiff() {
+    return Bytes.BYTES_COMPARATOR.compare(key, lastByteDiffKey);
+  }
+
+  @Benchmark
+  public MDSKey mdsKeyEncode() {
+    return encodeKey();
+  }
+
+  @Benchmark
+  public void mdsKeySplit(Blackhole blackhole) {
+    MDSKey.Splitter splitter = mdsKey.split();
+    blackhole.consume(splitter.getString());
+    blackhole.consume(splitter.getString());
+    blackhole.consume(splitter.getString());
+    blackhole.consume(splitter.getLong());
+    blackhole.consume(splitter.getBytes());
+  }
+
+  private MDSKey encodeKey() {
+    // Key layout similar to the one used for program run records
+    return new MDSKey.Builder()
+      .add("runRecordCompleted")
+      .add("default")
+      .add("PurchaseHistory")
+      .add(Long.MAX_VALUE - 1464052328000L)
+      .add(key)
+      .build();
+  }
+}
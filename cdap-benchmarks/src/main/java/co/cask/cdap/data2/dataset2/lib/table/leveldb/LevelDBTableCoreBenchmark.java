@@ -0,0 +1,153 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table.leveldb;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.utils.DirUtils;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the persist, get and scan paths of {@link LevelDBTableCore}. Setting the iterator pool size to
+ * {@code 0} gives the behavior of creating a new iterator for every read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LevelDBTableCoreBenchmark {
+
+  private static final int ROWS = 10000;
+  private static final int BATCH_SIZE = 100;
+  private static final int SCAN_SIZE = 1000;
+  private static final byte[] COLUMN = Bytes.toBytes("c");
+  private static final byte[][] COLUMNS = { COLUMN };
+  private static final String TABLE_NAME = "bench";
+
+  @Param({ "0", "4" })
+  private int iteratorPoolSize;
+
+  private File localDir;
+  private LevelDBTableService service;
+  private LevelDBTableCore core;
+  private byte[][] rowKeys;
+  private byte[] value;
+  private Random random;
+  private long version;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    localDir = Files.createTempDir();
+    cConf.set(Constants.CFG_DATA_LEVELDB_DIR, localDir.getAbsolutePath());
+    // Measure the table rather than the disk
+    cConf.setBoolean(Constants.CFG_DATA_LEVELDB_FSYNC, false);
+    cConf.setInt(Constants.CFG_DATA_LEVELDB_ITERATOR_POOL_SIZE, iteratorPoolSize);
+
+    service = new LevelDBTableService();
+    service.setConfiguration(cConf);
+    service.ensureTableExists(TABLE_NAME);
+    core = new LevelDBTableCore(TABLE_NAME, service);
+
+    rowKeys = new byte[ROWS][];
+    for (int i = 0; i < ROWS; i++) {
+      rowKeys[i] = Bytes.toBytes(String.format("row%08d", i));
+    }
+    value = new byte[64];
+    random = new Random(0L);
+    random.nextBytes(value);
+
+    NavigableMap<byte[], Map<byte[], byte[]>> changes = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    for (byte[] row : rowKeys) {
+      changes.put(row, Collections.singletonMap(COLUMN, value));
+    }
+    core.persist(changes, ++version);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    service.dropTable(TABLE_NAME);
+    service.clearTables();
+    DirUtils.deleteDirectoryContents(localDir);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void persist() throws Exception {
+    NavigableMap<byte[], Map<byte[], byte[]>> changes = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    int start = random.nextInt(ROWS - BATCH_SIZE);
+    for (int i = start; i < start + BATCH_SIZE; i++) {
+      changes.put(rowKeys[i], Collections.singletonMap(COLUMN, value));
+    }
+    core.persist(changes, ++version);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void get(Blackhole blackhole) throws Exception {
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      blackhole.consume(core.getRow(rowKeys[random.nextInt(ROWS)], COLUMNS, null, null, -1, null));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SCAN_SIZE)
+  public void scan(Blackhole blackhole) throws Exception {
+    int start = random.nextInt(ROWS - SCAN_SIZE);
+    Scanner scanner = core.scan(rowKeys[start], rowKeys[start + SCAN_SIZE], null, null, null);
+    try {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        blackhole.consume(row);
+      }
+    } finally {
+      scanner.close();
+    }
+  }
+
+  @Benchmark
+  public byte[] createKey() {
+    return KeyValue.createKey(rowKeys[random.nextInt(ROWS)], null, COLUMN, version, KeyValue.Type.Put);
+  }
+
+  @Benchmark
+  public byte[] createKeyWithKeyValue() {
+    return new KeyValue(rowKeys[random.nextInt(ROWS)], null, COLUMN, version, KeyValue.Type.Put).getKey();
+  }
+}
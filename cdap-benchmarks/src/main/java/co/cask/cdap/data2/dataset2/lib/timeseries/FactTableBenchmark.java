@@ -0,0 +1,131 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.timeseries;
+
+import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
+import co.cask.cdap.api.dataset.lib.cube.MeasureType;
+import co.cask.cdap.api.dataset.lib.cube.Measurement;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link FactTable#add(List)} and {@link FactTable#scan(FactScan)} on top of the
+ * in-memory metrics table.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FactTableBenchmark {
+
+  private static final int RESOLUTION = 1;
+  private static final int ROLL_TIME = 3600;
+  private static final int CONTEXTS = 20;
+  private static final int MEASURES = 5;
+  private static final int TIME_RANGE = 600;
+  private static final int MEASUREMENTS_PER_ADD = CONTEXTS * MEASURES;
+
+  private FactTable table;
+  private List<List<DimensionValue>> dimensionValues;
+  private long startTs;
+  private long ts;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    InMemoryTableService.create("EntityTable");
+    InMemoryTableService.create("DataTable");
+    table = new FactTable(new InMemoryMetricsTable("DataTable"),
+                          new EntityTable(new InMemoryMetricsTable("EntityTable")), RESOLUTION, ROLL_TIME);
+
+    dimensionValues = Lists.newArrayList();
+    for (int i = 0; i < CONTEXTS; i++) {
+      dimensionValues.add(ImmutableList.of(new DimensionValue("namespace", "ns" + (i % 2)),
+                                           new DimensionValue("app", "app" + (i % 5)),
+                                           new DimensionValue("program", "program" + i)));
+    }
+
+    // Populate the table with one fact per second for each context and measure
+    startTs = System.currentTimeMillis() / 1000;
+    for (ts = startTs; ts < startTs + TIME_RANGE; ts++) {
+      table.add(createFacts(ts));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    InMemoryTableService.drop("EntityTable");
+    InMemoryTableService.drop("DataTable");
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(MEASUREMENTS_PER_ADD)
+  public void add() {
+    table.add(createFacts(ts++));
+  }
+
+  @Benchmark
+  public void scanSingleContext(Blackhole blackhole) {
+    scan(new FactScan(startTs, startTs + TIME_RANGE, "measure0", dimensionValues.get(0)), blackhole);
+  }
+
+  @Benchmark
+  public void scanWithWildcard(Blackhole blackhole) {
+    // Null dimension value matches any value, which is resolved with a fuzzy row filter
+    List<DimensionValue> dimensions = ImmutableList.of(new DimensionValue("namespace", "ns0"),
+                                                       new DimensionValue("app", null),
+                                                       new DimensionValue("program", null));
+    scan(new FactScan(startTs, startTs + TIME_RANGE, "measure0", dimensions), blackhole);
+  }
+
+  private void scan(FactScan scan, Blackhole blackhole) {
+    FactScanner scanner = table.scan(scan);
+    try {
+      while (scanner.hasNext()) {
+        blackhole.consume(scanner.next());
+      }
+    } finally {
+      scanner.close();
+    }
+  }
+
+  private List<Fact> createFacts(long timestamp) {
+    List<Fact> facts = Lists.newArrayListWithCapacity(CONTEXTS);
+    for (List<DimensionValue> dimensions : dimensionValues) {
+      List<Measurement> measurements = Lists.newArrayListWithCapacity(MEASURES);
+      for (int i = 0; i < MEASURES; i++) {
+        measurements.add(new Measurement("measure" + i, MeasureType.COUNTER, i + 1));
+      }
+      facts.add(new Fact(timestamp, dimensions, measurements));
+    }
+    return facts;
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.transaction.queue;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.queue.QueueName;
+import co.cask.cdap.common.utils.DirUtils;
+import co.cask.cdap.data2.dataset2.lib.table.leveldb.LevelDBTableService;
+import co.cask.cdap.data2.queue.ConsumerConfig;
+import co.cask.cdap.data2.queue.DequeueStrategy;
+import co.cask.cdap.data2.queue.QueueConsumer;
+import co.cask.cdap.data2.queue.QueueEntry;
+import co.cask.cdap.data2.queue.QueueProducer;
+import co.cask.cdap.data2.transaction.queue.leveldb.LevelDBQueueAdmin;
+import co.cask.cdap.data2.transaction.queue.leveldb.LevelDBQueueClientFactory;
+import co.cask.cdap.proto.Id;
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionAware;
+import com.google.common.io.Files;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks dequeue of a LevelDB queue by a FIFO consumer group of two instances, with the entries claimed
+ * either one by one after the scan or by the scan itself. Each invocation enqueues a batch for each consumer,
+ * which then dequeue and commit in turn.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class QueueDequeueBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE * 2)
+  public void dequeue(DequeueState state, Blackhole blackhole) throws Exception {
+    dequeue(state, state.consumer1, blackhole);
+    dequeue(state, state.consumer2, blackhole);
+  }
+
+  private void dequeue(DequeueState state, QueueConsumer consumer, Blackhole blackhole) throws Exception {
+    TransactionAware txAware = (TransactionAware) consumer;
+    state.startTx(txAware);
+    for (byte[] entry : consumer.dequeue(BATCH_SIZE)) {
+      blackhole.consume(entry);
+    }
+    state.commitTx(txAware);
+  }
+
+  /**
+   * State that enqueues a batch of entries for each consumer before each invocation.
+   */
+  @State(Scope.Thread)
+  public static class DequeueState {
+
+    @Param({ "false", "true" })
+    boolean scanClaim;
+
+    QueueConsumer consumer1;
+    QueueConsumer consumer2;
+
+    private File localDir;
+    private LevelDBTableService levelDBService;
+    private LevelDBQueueAdmin queueAdmin;
+    private QueueName queueName;
+    private QueueProducer producer;
+    private byte[] value;
+    private long writePointer;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+      CConfiguration cConf = CConfiguration.create();
+      localDir = Files.createTempDir();
+      cConf.set(Constants.CFG_DATA_LEVELDB_DIR, localDir.getAbsolutePath());
+      cConf.setBoolean(QueueConstants.ConfigKeys.DEQUEUE_SCAN_CLAIM_ENABLED, scanClaim);
+
+      levelDBService = new LevelDBTableService();
+      levelDBService.setConfiguration(cConf);
+      queueAdmin = new LevelDBQueueAdmin(cConf, levelDBService);
+      LevelDBQueueClientFactory clientFactory = new LevelDBQueueClientFactory(cConf, levelDBService, queueAdmin);
+
+      queueName = QueueName.fromFlowlet("default", "app", "flow", "flowlet", "out");
+      producer = clientFactory.createProducer(queueName);
+      consumer1 = clientFactory.createConsumer(queueName, new ConsumerConfig(0L, 0, 2, DequeueStrategy.FIFO, null), 1);
+      consumer2 = clientFactory.createConsumer(queueName, new ConsumerConfig(0L, 1, 2, DequeueStrategy.FIFO, null), 1);
+      value = new byte[64];
+    }
+
+    @Setup(Level.Invocation)
+    public void enqueue() throws Exception {
+      TransactionAware txAware = (TransactionAware) producer;
+      startTx(txAware);
+      for (int i = 0; i < BATCH_SIZE * 2; i++) {
+        Bytes.putInt(value, 0, i);
+        producer.enqueue(new QueueEntry(value));
+      }
+      commitTx(txAware);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+      consumer1.close();
+      consumer2.close();
+      producer.close();
+      queueAdmin.dropAllInNamespace(Id.Namespace.DEFAULT);
+      levelDBService.clearTables();
+      DirUtils.deleteDirectoryContents(localDir);
+    }
+
+    void startTx(TransactionAware txAware) {
+      writePointer++;
+      txAware.startTx(new Transaction(writePointer - 1, writePointer, new long[0], new long[0],
+                                      Transaction.NO_TX_IN_PROGRESS));
+    }
+
+    void commitTx(TransactionAware txAware) throws Exception {
+      txAware.commitTx();
+      txAware.postTxCommit();
+    }
+  }
+}
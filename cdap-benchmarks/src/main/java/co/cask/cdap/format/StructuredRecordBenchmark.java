@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.format;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.format.FormatSpecification;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.data.schema.UnsupportedTypeException;
+import co.cask.cdap.api.flow.flowlet.StreamEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for parsing delimited text into {@link StructuredRecord} with {@link DelimitedStringsRecordFormat},
+ * and for a transform over wide records that copies every field into a new record and modifies one of them,
+ * using field names, field positions, or a copy of the input record.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class StructuredRecordBenchmark {
+
+  @Param({ "10", "50" })
+  private int numFields;
+
+  private DelimitedStringsRecordFormat format;
+  private StreamEvent event;
+  private StructuredRecord record;
+  private Schema schema;
+  private String[] fieldNames;
+  private int modifiedPosition;
+  private String modifiedName;
+
+  @Setup
+  public void setup() throws UnsupportedTypeException {
+    List<Schema.Field> fields = new ArrayList<>();
+    StringBuilder body = new StringBuilder();
+    fieldNames = new String[numFields];
+    for (int i = 0; i < numFields; i++) {
+      fieldNames[i] = "field" + i;
+      // alternate between long and string fields
+      if (i % 2 == 0) {
+        fields.add(Schema.Field.of(fieldNames[i], Schema.of(Schema.Type.LONG)));
+        body.append(i * 1000L);
+      } else {
+        fields.add(Schema.Field.of(fieldNames[i], Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+        body.append("value").append(i);
+      }
+      body.append(',');
+    }
+    body.setLength(body.length() - 1);
+    schema = Schema.recordOf("wide", fields);
+    modifiedPosition = numFields - 1;
+    modifiedName = fieldNames[modifiedPosition];
+
+    format = new DelimitedStringsRecordFormat();
+    format.initialize(new FormatSpecification(DelimitedStringsRecordFormat.class.getCanonicalName(), schema,
+                                              Collections.<String, String>emptyMap()));
+    event = new StreamEvent(ByteBuffer.wrap(Bytes.toBytes(body.toString())));
+    record = format.read(event);
+  }
+
+  @Benchmark
+  public StructuredRecord parse() {
+    return format.read(event);
+  }
+
+  @Benchmark
+  public StructuredRecord transformByName() {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (String fieldName : fieldNames) {
+      builder.set(fieldName, record.get(fieldName));
+    }
+    builder.set(modifiedName, "modified");
+    return builder.build();
+  }
+
+  @Benchmark
+  public StructuredRecord transformByPosition() {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    for (int i = 0; i < numFields; i++) {
+      builder.set(i, record.get(i));
+    }
+    builder.set(modifiedPosition, "modified");
+    return builder.build();
+  }
+
+  @Benchmark
+  public StructuredRecord transformCopy() {
+    return StructuredRecord.builder(record).set(modifiedPosition, "modified").build();
+  }
+}
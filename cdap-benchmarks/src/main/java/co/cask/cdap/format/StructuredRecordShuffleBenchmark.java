@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.format;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.io.WritableUtils;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the shuffle of a group by aggregation in an ETL pipeline, comparing the JSON encoding with
+ * inline schemas previously used by the ETL {@code StructuredRecordWritable} against the binary encoding of
+ * {@link StructuredRecordBinaryConverter} with registered schema hashes. Each operation serializes, sorts and
+ * deserializes a batch of key value pairs, and the number of shuffled bytes is reported as an auxiliary counter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StructuredRecordShuffleBenchmark {
+
+  private static final int BATCH_SIZE = 1000;
+  private static final int SCHEMA_HASH_SIZE = 16;
+
+  private static final Schema KEY_SCHEMA = Schema.recordOf(
+    "key",
+    Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("day", Schema.of(Schema.Type.INT)));
+
+  private static final Schema VALUE_SCHEMA = Schema.recordOf(
+    "purchase",
+    Schema.Field.of("user", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("day", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("item", Schema.of(Schema.Type.STRING)),
+    Schema.Field.of("count", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("price", Schema.of(Schema.Type.DOUBLE)),
+    Schema.Field.of("ts", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("coupon", Schema.nullableOf(Schema.of(Schema.Type.STRING))));
+
+  private StructuredRecord[] keys;
+  private StructuredRecord[] values;
+  private final DataOutputBuffer output = new DataOutputBuffer();
+  private final DataInputBuffer input = new DataInputBuffer();
+
+  /**
+   * Reports the number of bytes shuffled.
+   */
+  @State(Scope.Thread)
+  @AuxCounters
+  public static class ShuffleCounters {
+    public long shuffleBytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      shuffleBytes = 0;
+    }
+  }
+
+  @Setup
+  public void setup() {
+    Random random = new Random(0L);
+    keys = new StructuredRecord[BATCH_SIZE];
+    values = new StructuredRecord[BATCH_SIZE];
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      String user = "user" + random.nextInt(100);
+      int day = random.nextInt(30);
+      keys[i] = StructuredRecord.builder(KEY_SCHEMA).set("user", user).set("day", day).build();
+      values[i] = StructuredRecord.builder(VALUE_SCHEMA)
+        .set("user", user)
+        .set("day", day)
+        .set("item", "item" + random.nextInt(10000))
+        .set("count", random.nextInt(10))
+        .set("price", random.nextDouble() * 100)
+        .set("ts", System.currentTimeMillis())
+        .set("coupon", random.nextBoolean() ? null : "coupon" + random.nextInt(10))
+        .build();
+    }
+  }
+
+  @Benchmark
+  public void jsonShuffle(ShuffleCounters counters, Blackhole blackhole) throws IOException {
+    output.reset();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      writeJson(keys[i]);
+      writeJson(values[i]);
+    }
+    counters.shuffleBytes += output.getLength();
+
+    // The JSON encoding is not comparable in raw form, hence keys have to be deserialized for sorting
+    input.reset(output.getData(), output.getLength());
+    StructuredRecord previous = null;
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      StructuredRecord key = readJson();
+      if (previous != null) {
+        blackhole.consume(Integer.compare(previous.hashCode(), key.hashCode()));
+      }
+      previous = key;
+      blackhole.consume(readJson());
+    }
+  }
+
+  @Benchmark
+  public void binaryShuffle(ShuffleCounters counters, Blackhole blackhole) throws IOException {
+    int[] offsets = new int[BATCH_SIZE];
+    output.reset();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      offsets[i] = output.getLength();
+      writeBinary(keys[i]);
+      writeBinary(values[i]);
+    }
+    counters.shuffleBytes += output.getLength();
+
+    // Keys are sorted on the raw bytes, without deserialization
+    byte[] data = output.getData();
+    for (int i = 1; i < BATCH_SIZE; i++) {
+      blackhole.consume(compareBinaryKeys(data, offsets[i - 1], data, offsets[i]));
+    }
+
+    input.reset(data, output.getLength());
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      blackhole.consume(readBinary(KEY_SCHEMA));
+      blackhole.consume(readBinary(VALUE_SCHEMA));
+    }
+  }
+
+  private void writeJson(StructuredRecord record) throws IOException {
+    String schemaStr = record.getSchema().toString();
+    String recordStr = StructuredRecordStringConverter.toJsonString(record);
+    output.writeInt(schemaStr.length());
+    output.write(Bytes.toBytes(schemaStr));
+    output.writeInt(recordStr.length());
+    output.write(Bytes.toBytes(recordStr));
+  }
+
+  private StructuredRecord readJson() throws IOException {
+    byte[] schemaBytes = new byte[input.readInt()];
+    input.readFully(schemaBytes);
+    Schema schema = Schema.parseJson(Bytes.toString(schemaBytes));
+    byte[] recordBytes = new byte[input.readInt()];
+    input.readFully(recordBytes);
+    return StructuredRecordStringConverter.fromJsonString(Bytes.toString(recordBytes), schema);
+  }
+
+  private void writeBinary(StructuredRecord record) throws IOException {
+    byte[] recordBytes = StructuredRecordBinaryConverter.toBytes(record);
+    output.writeByte(0);
+    output.write(record.getSchema().getSchemaHash().toByteArray());
+    WritableUtils.writeVInt(output, recordBytes.length);
+    output.write(recordBytes);
+  }
+
+  private StructuredRecord readBinary(Schema schema) throws IOException {
+    input.skipBytes(1 + SCHEMA_HASH_SIZE);
+    byte[] recordBytes = new byte[WritableUtils.readVInt(input)];
+    input.readFully(recordBytes);
+    return StructuredRecordBinaryConverter.fromBytes(recordBytes, schema);
+  }
+
+  private int compareBinaryKeys(byte[] b1, int s1, byte[] b2, int s2) throws IOException {
+    int cmp = WritableComparator.compareBytes(b1, s1 + 1, SCHEMA_HASH_SIZE, b2, s2 + 1, SCHEMA_HASH_SIZE);
+    if (cmp != 0) {
+      return cmp;
+    }
+    int off1 = s1 + 1 + SCHEMA_HASH_SIZE;
+    int off2 = s2 + 1 + SCHEMA_HASH_SIZE;
+    int len1 = WritableComparator.readVInt(b1, off1);
+    int len2 = WritableComparator.readVInt(b2, off2);
+    off1 += WritableUtils.decodeVIntSize(b1[off1]);
+    off2 += WritableUtils.decodeVIntSize(b2[off2]);
+    return WritableComparator.compareBytes(b1, off1, len1, b2, off2, len2);
+  }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.app.runtime.flow;
+
+import co.cask.cdap.api.flow.flowlet.InputContext;
+import co.cask.cdap.app.queue.InputDatum;
+import co.cask.cdap.app.queue.QueueReader;
+import co.cask.cdap.common.queue.QueueName;
+import com.google.common.collect.Lists;
+import org.apache.twill.common.Threads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for the dispatch loop of {@link FlowletProcessDriver}. It runs the same sequence as the driver,
+ * which drains the {@link FlowletProcessEntry} priority queue, hands the entries to the process executor,
+ * dequeues from each {@link QueueReader} and invokes the {@link ProcessMethod}. Transactions and metrics are
+ * left out, so that the result reflects the overhead of the dispatching itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FlowletDispatchBenchmark {
+
+  @Param({ "1", "8" })
+  private int processMethods;
+
+  @Param({ "1", "100" })
+  private int batchSize;
+
+  private PriorityQueue<FlowletProcessEntry<?>> processQueue;
+  private List<FlowletProcessEntry<?>> processList;
+  private ExecutorService processExecutor;
+  private Runnable processRunner;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    processQueue = new PriorityQueue<>(processMethods);
+    for (int i = 0; i < processMethods; i++) {
+      QueueName queueName = QueueName.fromFlowlet("default", "app", "flow", "flowlet" + i, "out");
+      processQueue.offer(FlowletProcessEntry.create(
+        new ProcessSpecification<>(new StubQueueReader(queueName, batchSize), new StubProcessMethod(), null)));
+    }
+    processList = Lists.newArrayListWithExpectedSize(processMethods * 2);
+    processExecutor = Executors.newSingleThreadExecutor(Threads.createDaemonThreadFactory("flowlet-dispatch"));
+    processRunner = new Runnable() {
+      @Override
+      public void run() {
+        for (FlowletProcessEntry<?> entry : processList) {
+          if (!handleProcessEntry(entry)) {
+            processQueue.offer(entry);
+          }
+        }
+      }
+    };
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    processExecutor.shutdownNow();
+  }
+
+  /**
+   * Performs one round of the driver run loop and returns the number of events processed.
+   */
+  @Benchmark
+  public int dispatch() throws Exception {
+    processQueue.peek().await();
+
+    processList.clear();
+    FlowletProcessEntry<?> entry = processQueue.poll();
+    while (entry != null) {
+      processList.add(entry);
+      entry = processQueue.poll();
+    }
+
+    Future<?> processFuture = processExecutor.submit(processRunner);
+    processFuture.get();
+    return processList.size() * batchSize;
+  }
+
+  private <T> boolean handleProcessEntry(FlowletProcessEntry<T> entry) {
+    if (!entry.shouldProcess()) {
+      return false;
+    }
+    try {
+      InputDatum<T> input = entry.getProcessSpec().getQueueReader().dequeue(0, TimeUnit.MILLISECONDS);
+      if (!input.needProcess()) {
+        entry.backOff();
+        return false;
+      }
+      entry.resetBackOff();
+      ProcessMethod.ProcessResult<T> result = entry.getProcessSpec().getProcessMethod().invoke(input);
+      processQueue.offer(result.isSuccess() ? entry.resetRetry() : entry);
+      return true;
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * A {@link QueueReader} that always returns a batch of the same events.
+   */
+  private static final class StubQueueReader implements QueueReader<byte[]> {
+
+    private final InputDatum<byte[]> input;
+
+    StubQueueReader(QueueName queueName, int batchSize) {
+      List<byte[]> events = Lists.newArrayListWithCapacity(batchSize);
+      for (int i = 0; i < batchSize; i++) {
+        events.add(new byte[64]);
+      }
+      this.input = new StubInputDatum(queueName, events);
+    }
+
+    @Override
+    public InputDatum<byte[]> dequeue(long timeout, TimeUnit timeoutUnit) {
+      return input;
+    }
+  }
+
+  /**
+   * An {@link InputDatum} backed by a list of events.
+   */
+  private static final class StubInputDatum implements InputDatum<byte[]> {
+
+    private final QueueName queueName;
+    private final List<byte[]> events;
+    private final InputContext inputContext;
+
+    StubInputDatum(final QueueName queueName, List<byte[]> events) {
+      this.queueName = queueName;
+      this.events = events;
+      this.inputContext = new InputContext() {
+        @Override
+        public String getOrigin() {
+          return queueName.getSimpleName();
+        }
+
+        @Override
+        public int getRetryCount() {
+          return 0;
+        }
+      };
+    }
+
+    @Override
+    public boolean needProcess() {
+      return !events.isEmpty();
+    }
+
+    @Override
+    public void incrementRetry() {
+      // No-op
+    }
+
+    @Override
+    public int getRetry() {
+      return 0;
+    }
+
+    @Override
+    public InputContext getInputContext() {
+      return inputContext;
+    }
+
+    @Override
+    public QueueName getQueueName() {
+      return queueName;
+    }
+
+    @Override
+    public void reclaim() {
+      // No-op
+    }
+
+    @Override
+    public int size() {
+      return events.size();
+    }
+
+    @Override
+    public Iterator<byte[]> iterator() {
+      return events.iterator();
+    }
+  }
+
+  /**
+   * A {@link ProcessMethod} that consumes every event in the input.
+   */
+  private static final class StubProcessMethod implements ProcessMethod<byte[]> {
+
+    private long checksum;
+
+    @Override
+    public boolean needsInput() {
+      return true;
+    }
+
+    @Override
+    public int getMaxRetries() {
+      return 0;
+    }
+
+    @Override
+    public ProcessResult<byte[]> invoke(InputDatum<byte[]> input) {
+      byte[] last = null;
+      for (byte[] event : input) {
+        checksum += event.length;
+        last = event;
+      }
+      final byte[] event = last;
+      return new ProcessResult<byte[]>() {
+        @Override
+        public byte[] getEvent() {
+          return event;
+        }
+
+        @Override
+        public boolean isSuccess() {
+          return true;
+        }
+
+        @Override
+        public Throwable getCause() {
+          return null;
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.internal.io;
+
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.common.io.BinaryDecoder;
+import co.cask.cdap.common.io.BinaryEncoder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the {@link BinaryEncoder} and {@link BinaryDecoder}, and for encoding objects with the
+ * ASM generated {@link DatumWriter} compared to the {@link ReflectionDatumWriter}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DatumCodecBenchmark {
+
+  private static final TypeToken<Purchase> PURCHASE_TYPE = TypeToken.of(Purchase.class);
+
+  private ByteArrayOutputStream output;
+  private BinaryEncoder encoder;
+  private byte[] primitives;
+  private byte[] encodedPurchase;
+  private Schema schema;
+  private Purchase purchase;
+  private DatumWriter<Purchase> asmWriter;
+  private DatumWriter<Purchase> reflectionWriter;
+  private DatumReader<Purchase> reader;
+
+  @Setup
+  public void setup() throws Exception {
+    output = new ByteArrayOutputStream(1024);
+    encoder = new BinaryEncoder(output);
+    schema = new ReflectionSchemaGenerator().generate(Purchase.class);
+    purchase = new Purchase("customer-12345", "product-abcde", 3, 1999L,
+                            ImmutableList.of(1L, 2L, 3L, 4L), ImmutableMap.of("channel", "web", "region", "us"));
+    asmWriter = new ASMDatumWriterFactory(new ASMFieldAccessorFactory()).create(PURCHASE_TYPE, schema);
+    reflectionWriter = new ReflectionDatumWriter<>(schema);
+    reader = new ReflectionDatumReader<>(schema, PURCHASE_TYPE);
+
+    encodePrimitives();
+    primitives = output.toByteArray();
+    output.reset();
+    asmWriter.encode(purchase, encoder);
+    encodedPurchase = output.toByteArray();
+  }
+
+  @Benchmark
+  public int encodePrimitives() throws IOException {
+    output.reset();
+    encoder.writeInt(123456)
+      .writeLong(1464052328000L)
+      .writeDouble(3.14159d)
+      .writeString("customer-12345")
+      .writeBool(true);
+    return output.size();
+  }
+
+  @Benchmark
+  public void decodePrimitives(Blackhole blackhole) throws IOException {
+    BinaryDecoder decoder = new BinaryDecoder(new ByteArrayInputStream(primitives));
+    blackhole.consume(decoder.readInt());
+    blackhole.consume(decoder.readLong());
+    blackhole.consume(decoder.readDouble());
+    blackhole.consume(decoder.readString());
+    blackhole.consume(decoder.readBool());
+  }
+
+  @Benchmark
+  public int asmWriter() throws IOException {
+    output.reset();
+    asmWriter.encode(purchase, encoder);
+    return output.size();
+  }
+
+  @Benchmark
+  public int reflectionWriter() throws IOException {
+    output.reset();
+    reflectionWriter.encode(purchase, encoder);
+    return output.size();
+  }
+
+  @Benchmark
+  public Purchase reflectionReader() throws IOException {
+    return reader.read(new BinaryDecoder(new ByteArrayInputStream(encodedPurchase)), schema);
+  }
+
+  /**
+   * Record type used for the writer benchmarks.
+   */
+  public static final class Purchase {
+    private String customer;
+    private String product;
+    private int quantity;
+    private long price;
+    private List<Long> items;
+    private Map<String, String> tags;
+
+    public Purchase(String customer, String product, int quantity, long price,
+                    List<Long> items, Map<String, String> tags) {
+      this.customer = customer;
+      this.product = product;
+      this.quantity = quantity;
+      this.price = price;
+      this.items = items;
+      this.tags = tags;
+    }
+  }
+}
@@ -136,6 +136,7 @@ public final class Constants {
     public static final String PROGRAM_EXTRA_CLASSPATH = "app.program.extra.classpath";
     public static final String SPARK_YARN_CLIENT_REWRITE = "app.program.spark.yarn.client.rewrite.enabled";
     public static final String RUNTIME_EXT_DIR = "app.program.runtime.extensions.dir";
+    public static final String FLOWLET_ADAPTIVE_BATCH_ENABLED = "app.program.flowlet.adaptive.batch.enabled";
 
     /**
      * Guice named bindings.
@@ -333,6 +334,9 @@ public final class Constants {
     public static final String FILE_CLEANUP_PERIOD = "stream.file.cleanup.period";
     public static final String BATCH_BUFFER_THRESHOLD = "stream.batch.buffer.threshold";
     public static final String NOTIFICATION_THRESHOLD = "stream.notification.threshold";
+    public static final String GROUP_COMMIT_ENABLED = "stream.group.commit.enabled";
+    public static final String GROUP_COMMIT_WINDOW_MS = "stream.group.commit.window.ms";
+    public static final String GROUP_COMMIT_MAX_REQUESTS = "stream.group.commit.max.requests";
 
     // Stream http service configurations.
     public static final String STREAM_HANDLER = "stream.handler";
@@ -360,6 +364,7 @@ public final class Constants {
     public static final String URL_PREFIX = "stream://";
     public static final String DESCRIPTION = "stream.description";
     public static final String FORMAT_SPECIFICATION = "stream.format.specification";
+    public static final String COMPRESSION = "stream.compression";
 
     /**
      * Contains HTTP headers used by Stream handler.
@@ -420,6 +425,8 @@ public final class Constants {
     public static final String CLIENT_BOSS_THREADS = "router.client.boss.threads";
     public static final String CLIENT_WORKER_THREADS = "router.client.worker.threads";
     public static final String CONNECTION_TIMEOUT_SECS = "router.connection.idle.timeout.secs";
+    public static final String CLIENT_MAX_IDLE_CONNECTIONS = "router.client.max.idle.connections";
+    public static final String CLIENT_MAX_CONNECTIONS = "router.client.max.connections";
 
     /**
      * Defaults.
@@ -662,6 +669,10 @@ public final class Constants {
     public static final String TOKEN_DIGEST_KEY_LENGTH = "security.token.digest.keylength";
     /** Time duration in milliseconds after which an active secret key should be retired. */
     public static final String TOKEN_DIGEST_KEY_EXPIRATION = "security.token.digest.key.expiration.ms";
+    /** Maximum number of validated access tokens to cache. */
+    public static final String TOKEN_VALIDATION_CACHE_SIZE = "security.token.validation.cache.size";
+    /** Time duration in milliseconds after which a cached access token has to be validated again. */
+    public static final String TOKEN_VALIDATION_CACHE_EXPIRATION = "security.token.validation.cache.expiration.ms";
     /** Parent znode used for secret key distribution in ZooKeeper. */
     public static final String DIST_KEY_PARENT_ZNODE = "security.token.distributed.parent.znode";
     /** Deprecated. Use AUTH_SERVER_BIND_ADDRESS instead. **/
@@ -881,6 +892,7 @@ public final class Constants {
   public static final String CFG_DATA_LEVELDB_BLOCKSIZE = "data.local.storage.blocksize";
   public static final String CFG_DATA_LEVELDB_CACHESIZE = "data.local.storage.cachesize";
   public static final String CFG_DATA_LEVELDB_FSYNC = "data.local.storage.fsync";
+  public static final String CFG_DATA_LEVELDB_ITERATOR_POOL_SIZE = "data.local.storage.iterator.pool.size";
 
   /**
    * Defaults for Data Fabric.
@@ -889,6 +901,7 @@ public final class Constants {
   public static final int DEFAULT_DATA_LEVELDB_BLOCKSIZE = 1024;
   public static final long DEFAULT_DATA_LEVELDB_CACHESIZE = 1024 * 1024 * 100;
   public static final boolean DEFAULT_DATA_LEVELDB_FSYNC = true;
+  public static final int DEFAULT_DATA_LEVELDB_ITERATOR_POOL_SIZE = 4;
 
   /**
    * Config for Log Collection.
@@ -18,11 +18,13 @@ package co.cask.cdap.common.metrics;
 
 import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.MetricsContexts;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.proto.Id;
 import co.cask.http.AbstractHandlerHook;
 import co.cask.http.HandlerInfo;
 import co.cask.http.HttpResponder;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -47,6 +49,10 @@ public class MetricsReporterHook extends AbstractHandlerHook {
 
   private final LoadingCache<Map<String, String>, MetricsContext> collectorCache;
 
+  // start time in milliseconds of requests being handled. The same HandlerInfo instance is passed to pre and post
+  // call of a request. Weak keys are used so that entries of requests without post call are not retained.
+  private final Cache<HandlerInfo, Long> requestStartTimes;
+
   public MetricsReporterHook(final MetricsCollectionService metricsCollectionService, String serviceName) {
     this.metricsCollectionService = metricsCollectionService;
     this.serviceName = serviceName;
@@ -63,6 +69,7 @@ public class MetricsReporterHook extends AbstractHandlerHook {
     } else {
       collectorCache = null;
     }
+    this.requestStartTimes = CacheBuilder.newBuilder().weakKeys().build();
   }
 
   @Override
@@ -71,6 +78,7 @@ public class MetricsReporterHook extends AbstractHandlerHook {
       try {
         MetricsContext collector = collectorCache.get(createContext(handlerInfo));
         collector.increment("request.received", 1);
+        requestStartTimes.put(handlerInfo, System.currentTimeMillis());
       } catch (Throwable e) {
         LOG.error("Got exception while getting collector", e);
       }
@@ -103,6 +111,11 @@ public class MetricsReporterHook extends AbstractHandlerHook {
 
         // todo: report metrics broken down by status
         collector.increment("response." + name, 1/*, "status:" + code*/);
+
+        Long startTime = requestStartTimes.asMap().remove(handlerInfo);
+        if (startTime != null) {
+          MetricsContexts.distribution(collector, "response.latency", System.currentTimeMillis() - startTime);
+        }
       } catch (Throwable e) {
         LOG.error("Got exception while getting collector", e);
       }
@@ -16,8 +16,13 @@
 
 package co.cask.cdap.common.metrics;
 
+import co.cask.cdap.api.metrics.AbstractMetricsContext;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.MetricsContexts;
+import co.cask.cdap.api.metrics.MetricsCounter;
+import co.cask.cdap.api.metrics.MetricsGauge;
+import co.cask.cdap.api.metrics.NoopMetricsContext;
 import com.google.common.util.concurrent.AbstractIdleService;
 
 import java.util.Collections;
@@ -28,6 +33,8 @@ import java.util.Map;
  */
 public class NoOpMetricsCollectionService extends AbstractIdleService implements MetricsCollectionService {
 
+  private static final MetricsContext NOOP_CONTEXT = new NoopMetricsContext();
+
   @Override
   protected void startUp() throws Exception {
     // no-op
@@ -40,7 +47,7 @@ public class NoOpMetricsCollectionService extends AbstractIdleService implements
 
   @Override
   public MetricsContext getContext(Map<String, String> tags) {
-    return new MetricsContext() {
+    return new AbstractMetricsContext() {
       @Override
       public void increment(String metricName, long value) {
         // no-op
@@ -51,6 +58,21 @@ public class NoOpMetricsCollectionService extends AbstractIdleService implements
         // no-op
       }
 
+      @Override
+      public void distribution(String metricName, long value) {
+        // no-op
+      }
+
+      @Override
+      public MetricsCounter getCounter(String metricName) {
+        return MetricsContexts.getCounter(NOOP_CONTEXT, metricName);
+      }
+
+      @Override
+      public MetricsGauge getGauge(String metricName) {
+        return MetricsContexts.getGauge(NOOP_CONTEXT, metricName);
+      }
+
       @Override
       public MetricsContext childContext(Map<String, String> tags) {
         return this;
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014 Cask Data, Inc.
+ * Copyright © 2014-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -22,6 +22,7 @@ import co.cask.cdap.data2.transaction.stream.StreamConfig;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.StreamProperties;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import org.junit.Assert;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -159,6 +160,30 @@ public abstract class StreamCoordinatorTestBase {
     Assert.assertEquals(99000L, config.getTTL());
   }
 
+  @Test
+  public void testCompression() throws Exception {
+    StreamAdmin streamAdmin = getStreamAdmin();
+    Id.Stream streamId = Id.Stream.from(Id.Namespace.DEFAULT, "testCompression");
+    streamAdmin.create(streamId);
+
+    final BlockingDeque<String> compressions = new LinkedBlockingDeque<>();
+    getStreamCoordinator().addListener(streamId, new StreamPropertyListener() {
+      @Override
+      public void compressionChanged(Id.Stream streamId, String compression) {
+        compressions.add(compression);
+      }
+    });
+
+    // Stream writers rely on the notification to start new files with the new codec
+    streamAdmin.updateConfig(streamId, new StreamProperties(null, null, null, null, "snappy"));
+    Assert.assertTrue(validateLastElement(compressions, "snappy"));
+
+    // Updating the other properties keeps the compression
+    streamAdmin.updateConfig(streamId, new StreamProperties(1000L, null, null));
+    Assert.assertEquals(StreamDataFileCompression.SNAPPY, streamAdmin.getConfig(streamId).getCompression());
+    Assert.assertEquals(ImmutableList.of("snappy"), ImmutableList.copyOf(compressions));
+  }
+
   @Test
   public void testDeleteStream() throws Exception {
     final Id.Stream streamId = Id.Stream.from(Id.Namespace.DEFAULT, "test");
@@ -28,6 +28,7 @@ import co.cask.cdap.data2.transaction.stream.StreamConfig;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.test.SlowTests;
 import com.google.common.base.Charsets;
+import com.google.common.base.Function;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Throwables;
 import com.google.common.collect.AbstractIterator;
@@ -59,6 +60,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -992,6 +994,108 @@ public abstract class StreamDataFileTestBase {
     reader.close();
   }
 
+  @Test
+  public void testCompressedReadWrite() throws Exception {
+    for (StreamDataFileCompression compression : StreamDataFileCompression.values()) {
+      Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
+      Location eventFile = dir.getTempFile(".dat");
+      Location indexFile = dir.getTempFile(".idx");
+
+      // Write 1000 events with 100 different timestamps, and create index for every 10 timestamps.
+      StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventFile),
+                                                             Locations.newOutputSupplier(indexFile), 10L,
+                                                             ImmutableMap.<String, String>of(), compression);
+      for (int i = 0; i < 100; i++) {
+        for (int j = 0; j < 10; j++) {
+          writer.append(StreamFileTestUtils.createEvent(i, "Compressed " + compression + " " + (i * 10 + j)));
+        }
+      }
+      writer.close();
+
+      // Read all events and verify the content
+      StreamDataFileReader reader = StreamDataFileReader.create(Locations.newInputSupplier(eventFile));
+      List<PositionStreamEvent> events = Lists.newArrayList();
+      Assert.assertEquals(1000, reader.read(events, 1000, 0, TimeUnit.SECONDS));
+      Assert.assertEquals(-1, reader.read(events, 1, 0, TimeUnit.SECONDS));
+      reader.close();
+
+      long lastPosition = -1L;
+      for (int i = 0; i < events.size(); i++) {
+        PositionStreamEvent event = events.get(i);
+        Assert.assertEquals(i / 10, event.getTimestamp());
+        Assert.assertEquals("Compressed " + compression + " " + i,
+                            Charsets.UTF_8.decode(event.getBody().duplicate()).toString());
+        // Event positions must be strictly increasing
+        Assert.assertTrue(event.getStart() > lastPosition);
+        lastPosition = event.getStart();
+      }
+
+      // Reopen readers at each event position. It should resume from the exact event.
+      for (PositionStreamEvent event : ImmutableList.copyOf(events)) {
+        reader = StreamDataFileReader.createWithOffset(Locations.newInputSupplier(eventFile),
+                                                       Locations.newInputSupplier(indexFile), event.getStart());
+        List<PositionStreamEvent> readEvents = Lists.newArrayList();
+        Assert.assertEquals(1, reader.read(readEvents, 1, 0, TimeUnit.SECONDS));
+        reader.close();
+        Assert.assertEquals(event.getStart(), readEvents.get(0).getStart());
+        Assert.assertEquals(event.getBody(), readEvents.get(0).getBody());
+      }
+
+      // Read by start time through the index
+      for (long ts : new long[] {5, 10, 42, 99}) {
+        reader = StreamDataFileReader.createByStartTime(Locations.newInputSupplier(eventFile),
+                                                        Locations.newInputSupplier(indexFile), ts);
+        List<StreamEvent> readEvents = Lists.newArrayList();
+        Assert.assertEquals(1, reader.read(readEvents, 1, 0, TimeUnit.SECONDS));
+        reader.close();
+        Assert.assertEquals(ts, readEvents.get(0).getTimestamp());
+        Assert.assertEquals("Compressed " + compression + " " + (ts * 10),
+                            Charsets.UTF_8.decode(readEvents.get(0).getBody()).toString());
+      }
+    }
+  }
+
+  @Test
+  public void testCompressedSmallEvents() throws Exception {
+    // Many tiny identical events compress to less bytes than the number of events in the block.
+    // The writer should pad the block so that every event still has an unique position.
+    Location dir = StreamFileTestUtils.createTempDir(getLocationFactory());
+    Location eventFile = dir.getTempFile(".dat");
+    Location indexFile = dir.getTempFile(".idx");
+
+    StreamDataFileWriter writer = new StreamDataFileWriter(Locations.newOutputSupplier(eventFile),
+                                                           Locations.newOutputSupplier(indexFile), 10000L,
+                                                           ImmutableMap.<String, String>of(),
+                                                           StreamDataFileCompression.DEFLATE);
+    for (int i = 0; i < 10000; i++) {
+      writer.append(StreamFileTestUtils.createEvent(0, "0"));
+    }
+    writer.append(StreamFileTestUtils.createEvent(1, "1"));
+    writer.close();
+
+    StreamDataFileReader reader = StreamDataFileReader.create(Locations.newInputSupplier(eventFile));
+    List<PositionStreamEvent> events = Lists.newArrayList();
+    Assert.assertEquals(10001, reader.read(events, 20000, 0, TimeUnit.SECONDS));
+    reader.close();
+
+    Set<Long> positions = ImmutableSet.copyOf(Lists.transform(events, new Function<PositionStreamEvent, Long>() {
+      @Override
+      public Long apply(PositionStreamEvent event) {
+        return event.getStart();
+      }
+    }));
+    Assert.assertEquals(10001, positions.size());
+
+    // Resume from the middle of the block
+    reader = StreamDataFileReader.createWithOffset(Locations.newInputSupplier(eventFile),
+                                                   Locations.newInputSupplier(indexFile), events.get(5000).getStart());
+    List<PositionStreamEvent> readEvents = Lists.newArrayList();
+    Assert.assertEquals(5001, reader.read(readEvents, 20000, 0, TimeUnit.SECONDS));
+    reader.close();
+    Assert.assertEquals(events.get(5000).getStart(), readEvents.get(0).getStart());
+    Assert.assertEquals(1L, readEvents.get(5000).getTimestamp());
+  }
+
   private FileWriter<StreamEvent> createWriter(StreamConfig config, String prefix) {
     return new TimePartitionedStreamFileWriter(config.getLocation(), config.getPartitionDuration(),
                                                prefix, config.getIndexInterval(), config.getStreamId().toEntityId(),
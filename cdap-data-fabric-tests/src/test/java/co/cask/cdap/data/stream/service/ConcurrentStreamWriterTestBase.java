@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -135,6 +135,85 @@ public abstract class ConcurrentStreamWriterTestBase {
     streamWriter.close();
   }
 
+  @Test
+  public void testGroupCommitWrite() throws Exception {
+    final String streamName = "testGroupCommitWrite";
+    String namespace = "namespace";
+    Id.Stream streamId = Id.Stream.from(namespace, streamName);
+    StreamAdmin streamAdmin = new TestStreamAdmin(getNamespacedLocationFactory(), Long.MAX_VALUE, 1000);
+    int threads = Runtime.getRuntime().availableProcessors() * 4;
+
+    StreamConfig streamConfig = streamAdmin.getConfig(streamId);
+    streamConfig.getLocation().mkdirs();
+    StreamFileWriterFactory fileWriterFactory = createStreamFileWriterFactory();
+    final AtomicInteger commits = new AtomicInteger();
+    final AtomicInteger committedRequests = new AtomicInteger();
+    StreamMetricsCollectorFactory metricsCollectorFactory = new StreamMetricsCollectorFactory() {
+      @Override
+      public StreamMetricsCollector createMetricsCollector(Id.Stream streamId) {
+        return new StreamMetricsCollector() {
+          @Override
+          public void emitMetrics(long bytesWritten, long eventsWritten) {
+            // No-op
+          }
+
+          @Override
+          public void emitGroupCommitMetrics(int batchSize, long latencyMicros) {
+            commits.incrementAndGet();
+            committedRequests.addAndGet(batchSize);
+          }
+        };
+      }
+    };
+    final ConcurrentStreamWriter streamWriter = new ConcurrentStreamWriter(COORDINATOR_CLIENT, streamAdmin,
+                                                                           fileWriterFactory, threads,
+                                                                           metricsCollectorFactory, impersonator,
+                                                                           5L, 100);
+
+    // Starts n threads to write events through stream writer, half of them write one by one, the other half
+    // writes in batch of size 10
+    final int msgPerThread = 200;
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final CountDownLatch completion = new CountDownLatch(threads);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int i = 0; i < threads / 2; i++) {
+      executor.execute(createWriterTask(streamId, streamWriter, i, msgPerThread, 1, startLatch, completion));
+    }
+    for (int i = threads / 2; i < threads; i++) {
+      executor.execute(createWriterTask(streamId, streamWriter, i, msgPerThread, 10, startLatch, completion));
+    }
+    startLatch.countDown();
+    Assert.assertTrue(completion.await(120, TimeUnit.SECONDS));
+
+    // Write one more event once all writers are done, which is committed on its own
+    streamWriter.enqueue(streamId, ImmutableMap.<String, String>of(), Charsets.UTF_8.encode("Last"));
+
+    // Verify all events are written
+    Location partitionLocation = streamAdmin.getConfig(streamId).getLocation().list().get(0);
+    Location streamLocation = StreamUtils.createStreamLocation(partitionLocation,
+                                                               fileWriterFactory.getFileNamePrefix(),
+                                                               0, StreamFileType.EVENT);
+    StreamDataFileReader reader = StreamDataFileReader.create(Locations.newInputSupplier(streamLocation));
+    List<StreamEvent> events = Lists.newArrayListWithCapacity(threads * msgPerThread + 1);
+    Assert.assertEquals(threads * msgPerThread + 1, reader.read(events, Integer.MAX_VALUE, 0, TimeUnit.SECONDS));
+    Assert.assertEquals("Last", Charsets.UTF_8.decode(events.remove(events.size() - 1).getBody()).toString());
+    Assert.assertTrue(verifyEvents(threads, msgPerThread, events));
+
+    // Requests from concurrent writers should be committed together.
+    // The metrics are emitted by the flusher after completing the requests, hence need to wait for it.
+    int requests = (threads / 2) * msgPerThread + (threads - threads / 2) * (msgPerThread / 10) + 1;
+    long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (committedRequests.get() < requests && System.currentTimeMillis() < deadline) {
+      TimeUnit.MILLISECONDS.sleep(50);
+    }
+    Assert.assertEquals(requests, committedRequests.get());
+    Assert.assertTrue(commits.get() < requests);
+
+    reader.close();
+    streamWriter.close();
+    executor.shutdownNow();
+  }
+
   @Test
   public void testConcurrentAppendFile() throws Exception {
     final String streamName = "testConcurrentFile";
@@ -350,6 +429,11 @@ public abstract class ConcurrentStreamWriterTestBase {
         public void emitMetrics(long bytesWritten, long eventsWritten) {
           // No-op
         }
+
+        @Override
+        public void emitGroupCommitMetrics(int batchSize, long latencyMicros) {
+          // No-op
+        }
       };
     }
   }
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014 Cask Data, Inc.
+ * Copyright © 2014-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -199,7 +199,8 @@ public abstract class AbstractStreamCoordinatorClient extends AbstractIdleServic
           firstNotNull(properties.getFormat(), oldProperties.getFormat()),
           firstNotNull(properties.getNotificationThresholdMB(), oldProperties.getNotificationThresholdMB()),
           firstNotNull(properties.getGeneration(), oldProperties.getGeneration()),
-          firstNotNull(properties.getDescription(), oldProperties.getDescription()));
+          firstNotNull(properties.getDescription(), oldProperties.getDescription()),
+          firstNotNull(properties.getCompression(), oldProperties.getCompression()));
       }
     });
   }
@@ -244,6 +245,12 @@ public abstract class AbstractStreamCoordinatorClient extends AbstractIdleServic
       if (threshold != null && !threshold.equals(oldThreshold)) {
         thresholdChanged(streamId, threshold);
       }
+
+      String compression = properties.getCompression();
+      String oldCompression = (oldProperties == null) ? null : oldProperties.getCompression();
+      if (compression != null && !compression.equals(oldCompression)) {
+        compressionChanged(streamId, compression);
+      }
       oldProperties = properties;
     }
 
@@ -279,6 +286,15 @@ public abstract class AbstractStreamCoordinatorClient extends AbstractIdleServic
       }
     }
 
+    @Override
+    public void compressionChanged(Id.Stream streamId, String compression) {
+      try {
+        listener.compressionChanged(streamId, compression);
+      } catch (Throwable t) {
+        LOG.error("Exception while calling StreamPropertyListener.compressionChanged", t);
+      }
+    }
+
     @Override
     public void deleted(Id.Stream streamId) {
       try {
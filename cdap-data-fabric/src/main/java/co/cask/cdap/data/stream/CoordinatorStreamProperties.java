@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -20,6 +20,8 @@ import co.cask.cdap.api.data.format.FormatSpecification;
 import co.cask.cdap.proto.StreamProperties;
 import com.google.common.base.Objects;
 
+import javax.annotation.Nullable;
+
 /**
  * This class carries stream properties used for coordination purpose.
  */
@@ -29,7 +31,12 @@ public class CoordinatorStreamProperties extends StreamProperties {
 
   public CoordinatorStreamProperties(Long ttl, FormatSpecification format, Integer threshold, Integer generation,
                                      String description) {
-    super(ttl, format, threshold, description);
+    this(ttl, format, threshold, generation, description, null);
+  }
+
+  public CoordinatorStreamProperties(Long ttl, FormatSpecification format, Integer threshold, Integer generation,
+                                     String description, @Nullable String compression) {
+    super(ttl, format, threshold, description, compression);
     this.generation = generation;
   }
 
@@ -45,6 +52,7 @@ public class CoordinatorStreamProperties extends StreamProperties {
       .add("notificationThresholdMB", getNotificationThresholdMB())
       .add("generation", getGeneration())
       .add("description", getDescription())
+      .add("compression", getCompression())
       .toString();
   }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data.stream;
+
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.Nullable;
+
+/**
+ * Compression codecs that can be applied to data blocks in a stream data file.
+ * Blocks written with a codec other than {@link #NONE} are stored in the {@code E3} file format.
+ *
+ * @see StreamDataFileWriter
+ */
+public enum StreamDataFileCompression {
+
+  NONE {
+    @Override
+    public int maxCompressedLength(int length) {
+      return length;
+    }
+
+    @Override
+    public int compress(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+      System.arraycopy(input, offset, output, outputOffset, length);
+      return length;
+    }
+
+    @Override
+    public void decompress(byte[] input, int offset, int length,
+                           byte[] output, int outputOffset, int uncompressedLength) throws IOException {
+      if (length != uncompressedLength) {
+        throw new IOException("Expected " + uncompressedLength + " bytes, but got " + length);
+      }
+      System.arraycopy(input, offset, output, outputOffset, length);
+    }
+  },
+
+  SNAPPY {
+    @Override
+    public int maxCompressedLength(int length) {
+      return Snappy.maxCompressedLength(length);
+    }
+
+    @Override
+    public int compress(byte[] input, int offset, int length, byte[] output, int outputOffset) throws IOException {
+      return Snappy.compress(input, offset, length, output, outputOffset);
+    }
+
+    @Override
+    public void decompress(byte[] input, int offset, int length,
+                           byte[] output, int outputOffset, int uncompressedLength) throws IOException {
+      int size = Snappy.uncompress(input, offset, length, output, outputOffset);
+      if (size != uncompressedLength) {
+        throw new IOException("Expected " + uncompressedLength + " uncompressed bytes, but got " + size);
+      }
+    }
+  },
+
+  LZ4 {
+    @Override
+    public int maxCompressedLength(int length) {
+      return LZ4Factory.fastestInstance().fastCompressor().maxCompressedLength(length);
+    }
+
+    @Override
+    public int compress(byte[] input, int offset, int length, byte[] output, int outputOffset) {
+      return LZ4Factory.fastestInstance().fastCompressor().compress(input, offset, length, output, outputOffset,
+                                                                     output.length - outputOffset);
+    }
+
+    @Override
+    public void decompress(byte[] input, int offset, int length,
+                           byte[] output, int outputOffset, int uncompressedLength) throws IOException {
+      try {
+        int size = LZ4Factory.fastestInstance().fastDecompressor().decompress(input, offset, output,
+                                                                              outputOffset, uncompressedLength);
+        if (size != length) {
+          throw new IOException("Expected " + length + " compressed bytes, but " + size + " were consumed");
+        }
+      } catch (LZ4Exception e) {
+        throw new IOException("Failed to decompress LZ4 block", e);
+      }
+    }
+  },
+
+  DEFLATE {
+    @Override
+    public int maxCompressedLength(int length) {
+      // Worst case expansion of deflate is 5 bytes per 16K block, plus the zlib header and trailer
+      return length + ((length + 16383) / 16384) * 5 + 16;
+    }
+
+    @Override
+    public int compress(byte[] input, int offset, int length, byte[] output, int outputOffset) throws IOException {
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+        deflater.setInput(input, offset, length);
+        deflater.finish();
+        int size = deflater.deflate(output, outputOffset, output.length - outputOffset);
+        if (!deflater.finished()) {
+          throw new IOException("Insufficient buffer space for compressing " + length + " bytes");
+        }
+        return size;
+      } finally {
+        deflater.end();
+      }
+    }
+
+    @Override
+    public void decompress(byte[] input, int offset, int length,
+                           byte[] output, int outputOffset, int uncompressedLength) throws IOException {
+      Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(input, offset, length);
+        int size = inflater.inflate(output, outputOffset, uncompressedLength);
+        if (size != uncompressedLength || !inflater.finished()) {
+          throw new IOException("Expected " + uncompressedLength + " uncompressed bytes, but got " + size);
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("Failed to decompress deflate block", e);
+      } finally {
+        inflater.end();
+      }
+    }
+  };
+
+  /**
+   * Returns the upper bound of the compressed size for the given number of input bytes.
+   */
+  public abstract int maxCompressedLength(int length);
+
+  /**
+   * Compresses the given input into the output buffer.
+   *
+   * @param input buffer containing the bytes to compress
+   * @param offset offset in the input buffer to start with
+   * @param length number of bytes to compress
+   * @param output buffer to write compressed bytes to. It must have at least
+   *               {@link #maxCompressedLength(int) maxCompressedLength(length)} bytes available after outputOffset
+   * @param outputOffset offset in the output buffer to start writing to
+   * @return number of compressed bytes written to the output buffer
+   * @throws IOException if failed to compress
+   */
+  public abstract int compress(byte[] input, int offset, int length,
+                               byte[] output, int outputOffset) throws IOException;
+
+  /**
+   * Decompresses the given input into the output buffer.
+   *
+   * @param input buffer containing the compressed bytes
+   * @param offset offset in the input buffer to start with
+   * @param length number of compressed bytes
+   * @param output buffer to write uncompressed bytes to
+   * @param outputOffset offset in the output buffer to start writing to
+   * @param uncompressedLength number of bytes expected after decompression
+   * @throws IOException if failed to decompress or the result doesn't match with the expected length
+   */
+  public abstract void decompress(byte[] input, int offset, int length,
+                                  byte[] output, int outputOffset, int uncompressedLength) throws IOException;
+
+  /**
+   * Returns the {@link StreamDataFileCompression} represented by the given name. The name is case insensitive.
+   * A {@code null} or empty name is treated as {@link #NONE}.
+   *
+   * @throws IllegalArgumentException if the name is not a supported compression
+   */
+  public static StreamDataFileCompression fromName(@Nullable String name) {
+    if (name == null || name.isEmpty()) {
+      return NONE;
+    }
+    for (StreamDataFileCompression compression : values()) {
+      if (compression.name().equalsIgnoreCase(name)) {
+        return compression;
+      }
+    }
+    throw new IllegalArgumentException("Unsupported stream compression '" + name + "'");
+  }
+}
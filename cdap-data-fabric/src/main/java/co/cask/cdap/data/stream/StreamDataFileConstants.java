@@ -25,6 +25,10 @@ public final class StreamDataFileConstants {
   static final int MAGIC_HEADER_SIZE = 2;
   static final byte[] MAGIC_HEADER_V1 = {'E', '1'};
   static final byte[] MAGIC_HEADER_V2 = {'E', '2'};
+  static final byte[] MAGIC_HEADER_V3 = {'E', '3'};
+
+  // Size of the header in each compressed data block, which is <uncompressed_length> <compressed_length>
+  static final int COMPRESSED_BLOCK_HEADER_SIZE = 8;
 
   static final byte[] INDEX_MAGIC_HEADER_V1 = {'I', '1'};
 
@@ -43,6 +47,9 @@ public final class StreamDataFileConstants {
       // Key to indicate all events in the file is of the same timestamp
       public static final String UNI_TIMESTAMP = "stream.uni.timestamp";
 
+      // Key for the compression codec applied to data blocks. Only present in version 3 file.
+      public static final String COMPRESSION = "stream.compression";
+
       // Key prefix for properties that will be defaulted to all events' header
       public static final String EVENT_HEADER_PREFIX = "event.";
     }
@@ -67,6 +67,7 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
   private boolean eof;
   private Decoder decoder;
   private StreamEvent eventTemplate;
+  private StreamDataFileCompression compression;
 
   /**
    * Opens a new {@link StreamDataFileReader} with the given inputs.
@@ -300,6 +301,12 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
 
     verifySchema(properties);
 
+    // Data blocks are compressed starting from version 3
+    compression = StreamDataFileCompression.NONE;
+    if (fileVersion >= 3) {
+      compression = getCompression(properties);
+    }
+
     // Create event template
     if (fileVersion >= 2) {
       eventTemplate = createEventTemplate(properties);
@@ -323,13 +330,35 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     if (Arrays.equals(magic, StreamDataFileConstants.MAGIC_HEADER_V2)) {
       return 2;
     }
+    if (Arrays.equals(magic, StreamDataFileConstants.MAGIC_HEADER_V3)) {
+      return 3;
+    }
     throw new IOException(
-      String.format("Unsupported stream file format. First two bytes must be %s or %s",
+      String.format("Unsupported stream file format. First two bytes must be %s, %s or %s",
                     Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V1),
-                    Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V2))
+                    Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V2),
+                    Bytes.toStringBinary(StreamDataFileConstants.MAGIC_HEADER_V3))
     );
   }
 
+  /**
+   * Returns the {@link StreamDataFileCompression} recorded in the file properties.
+   *
+   * @throws IOException if the compression property is missing or invalid
+   */
+  private StreamDataFileCompression getCompression(Map<String, String> properties) throws IOException {
+    String compressionKey = StreamDataFileConstants.Property.Key.COMPRESSION;
+    String name = properties.get(compressionKey);
+    if (name == null) {
+      throw new IOException("Missing '" + compressionKey + "' property.");
+    }
+    try {
+      return StreamDataFileCompression.fromName(name);
+    } catch (IllegalArgumentException e) {
+      throw new IOException(e.getMessage(), e);
+    }
+  }
+
   /**
    * Creates a {@link StreamEvent} that will be used as a template for all events consumable from this reader.
    */
@@ -485,7 +514,11 @@ public final class StreamDataFileReader implements FileReader<PositionStreamEven
     // Use the template timestamp if available
     timestamp = eventTemplate.getTimestamp() >= 0 ? eventTemplate.getTimestamp() : timestamp;
     if (acceptTimestamp(filter, timestamp)) {
-      streamEventBuffer.fillBuffer(eventInput, readLength());
+      if (compression == StreamDataFileCompression.NONE) {
+        streamEventBuffer.fillBuffer(eventInput, readLength());
+      } else {
+        streamEventBuffer.fillBuffer(eventInput, readLength(), position, compression);
+      }
       this.timestamp = timestamp;
       return;
     }
@@ -32,9 +32,11 @@ import com.google.common.io.OutputSupplier;
 import com.google.common.primitives.Longs;
 import org.apache.hadoop.fs.Syncable;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import javax.annotation.concurrent.NotThreadSafe;
@@ -59,6 +61,28 @@ import javax.annotation.concurrent.NotThreadSafe;
  * }
  * </pre>
  *
+ * Compressed stream event file (version 3) has the same layout, except the header has magic "E" "3", the properties
+ * contain the compression codec name, and the data block is:
+ *
+ * <pre>
+ * {@code
+ *
+ * data = <timestamp> <length> <compressed_block>
+ * length = Avro encoded int32 for size in bytes of the <compressed_block>
+ * compressed_block = <uncompressed_length> <compressed_length> <compressed_data> <padding>
+ * uncompressed_length = 4 bytes int32 for size in bytes for all <stream_event>s before compression
+ * compressed_length = 4 bytes int32 for size in bytes of <compressed_data>
+ * compressed_data = <stream_event>+ compressed with the codec
+ * padding = zero bytes to make the data block size no smaller than the number of <stream_event>s in it
+ *
+ * }
+ * </pre>
+ *
+ * Since the byte position of an event inside a compressed block is not addressable in the file, events in a
+ * compressed data block are given the position {@code (block_start + event_index_in_block)}. The padding makes
+ * sure those positions are unique and fall within the data block, hence seeking and splitting by file offset
+ * works the same as with the uncompressed format.
+ *
  * Stream index file:
  *
  * <pre>
@@ -84,11 +108,15 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
   private final long indexInterval;
   private final BufferedEncoder encoder;
   private final BufferedEncoder lengthEncoder;
+  private final StreamDataFileCompression compression;
+  private final BlockBuffer blockBuffer;
+  private byte[] compressedBlock;
 
   // Timestamp for the current block
   private long currentTimestamp;
   private long position;
   private long nextIndexTime;
+  private int blockEventCount;
   private boolean synced;
   private boolean closed;
   private long closeTimestamp;
@@ -104,6 +132,17 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
     this(eventOutputSupplier, indexOutputSupplier, indexInterval, ImmutableMap.<String, String>of());
   }
 
+  /**
+   * Constructs a new instance that writes uncompressed data blocks to given outputs. Same as calling
+   * {@link StreamDataFileWriter#StreamDataFileWriter(OutputSupplier, OutputSupplier, long, Map,
+   * StreamDataFileCompression)} with {@link StreamDataFileCompression#NONE}.
+   */
+  public StreamDataFileWriter(OutputSupplier<? extends OutputStream> eventOutputSupplier,
+                              OutputSupplier<? extends OutputStream> indexOutputSupplier,
+                              long indexInterval, Map<String, String> properties) throws IOException {
+    this(eventOutputSupplier, indexOutputSupplier, indexInterval, properties, StreamDataFileCompression.NONE);
+  }
+
   /**
    * Constructs a new instance that writes to given outputs.
    *
@@ -111,11 +150,13 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
    * @param indexOutputSupplier the provider of the {@link OutputStream} for writing the index
    * @param indexInterval the time interval in milliseconds for emitting a new index entry
    * @param properties the property set that will be stored as file properties
+   * @param compression the compression to apply to each data block
    * @throws IOException if there is an error in preparing the output streams
    */
   public StreamDataFileWriter(OutputSupplier<? extends OutputStream> eventOutputSupplier,
                               OutputSupplier<? extends OutputStream> indexOutputSupplier,
-                              long indexInterval, Map<String, String> properties) throws IOException {
+                              long indexInterval, Map<String, String> properties,
+                              StreamDataFileCompression compression) throws IOException {
     this.eventOutput = eventOutputSupplier.getOutput();
     try {
       this.indexOutput = indexOutputSupplier.getOutput();
@@ -124,6 +165,9 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
       throw e;
     }
     this.indexInterval = indexInterval;
+    this.compression = compression;
+    this.blockBuffer = compression == StreamDataFileCompression.NONE ? null : new BlockBuffer(BUFFER_SIZE);
+    this.compressedBlock = new byte[0];
     this.currentTimestamp = -1L;
     this.closeTimestamp = -1L;
 
@@ -222,6 +266,7 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
 
       // Encodes the event data into buffer.
       StreamEventDataCodec.encode(event, encoder);
+      blockEventCount++;
 
       // Optionally flush if already filled up the buffer.
       if (encoder.size() >= flushLimit) {
@@ -235,10 +280,16 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
 
   private void init(Map<String, String> properties) throws IOException {
     // Writes the header for event file
-    encoder.writeRaw(StreamDataFileConstants.MAGIC_HEADER_V2);
-
     Map<String, String> headers = Maps.newHashMap(properties);
     headers.put(StreamDataFileConstants.Property.Key.SCHEMA, StreamEventDataCodec.STREAM_DATA_SCHEMA.toString());
+
+    if (compression == StreamDataFileCompression.NONE) {
+      encoder.writeRaw(StreamDataFileConstants.MAGIC_HEADER_V2);
+      headers.remove(StreamDataFileConstants.Property.Key.COMPRESSION);
+    } else {
+      encoder.writeRaw(StreamDataFileConstants.MAGIC_HEADER_V3);
+      headers.put(StreamDataFileConstants.Property.Key.COMPRESSION, compression.name());
+    }
     StreamUtils.encodeMap(headers, encoder);
 
     long headerSize = encoder.size();
@@ -278,16 +329,22 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
       indexOffset = position - Bytes.SIZEOF_LONG;
     }
 
-    // Writes the size of the encoded event
-    lengthEncoder.writeInt(encoder.size());
-    int size = lengthEncoder.size();
-    lengthEncoder.writeTo(eventOutput);
-    position += size;
+    if (compression == StreamDataFileCompression.NONE) {
+      // Writes the size of the encoded event
+      lengthEncoder.writeInt(encoder.size());
+      int size = lengthEncoder.size();
+      lengthEncoder.writeTo(eventOutput);
+      position += size;
+
+      // Writes all encoded data from the buffer to the output.
+      size = encoder.size();
+      encoder.writeTo(eventOutput);
+      position += size;
+    } else {
+      writeCompressedBlock();
+    }
+    blockEventCount = 0;
 
-    // Writes all encoded data from the buffer to the output.
-    size = encoder.size();
-    encoder.writeTo(eventOutput);
-    position += size;
     if (sync) {
       sync(eventOutput);
     }
@@ -310,6 +367,39 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
     synced = sync;
   }
 
+  /**
+   * Compresses the encoded events in the buffer and writes it as a compressed data block to the output.
+   */
+  private void writeCompressedBlock() throws IOException {
+    int headerSize = StreamDataFileConstants.COMPRESSED_BLOCK_HEADER_SIZE;
+    int uncompressedSize = encoder.size();
+    encoder.writeTo(blockBuffer);
+
+    int maxSize = headerSize + Math.max(compression.maxCompressedLength(uncompressedSize), blockEventCount);
+    if (compressedBlock.length < maxSize) {
+      compressedBlock = new byte[maxSize];
+    }
+
+    int compressedSize = compression.compress(blockBuffer.getBuffer(), 0, uncompressedSize,
+                                              compressedBlock, headerSize);
+    blockBuffer.reset();
+    Bytes.putInt(compressedBlock, 0, uncompressedSize);
+    Bytes.putInt(compressedBlock, Bytes.SIZEOF_INT, compressedSize);
+
+    // Pads the block so that each event in the block can have an unique position within the block
+    int blockSize = headerSize + compressedSize;
+    if (blockSize < blockEventCount) {
+      Arrays.fill(compressedBlock, blockSize, blockEventCount, (byte) 0);
+      blockSize = blockEventCount;
+    }
+
+    lengthEncoder.writeInt(blockSize);
+    int size = lengthEncoder.size();
+    lengthEncoder.writeTo(eventOutput);
+    eventOutput.write(compressedBlock, 0, blockSize);
+    position += size + blockSize;
+  }
+
   private void sync(OutputStream output) throws IOException {
     if (output instanceof Syncable) {
       ((Syncable) output).hsync();
@@ -329,6 +419,20 @@ public final class StreamDataFileWriter implements TimestampCloseable, Flushable
     throw ex;
   }
 
+  /**
+   * A {@link ByteArrayOutputStream} that exposes the internal buffer to avoid copying when compressing.
+   */
+  private static final class BlockBuffer extends ByteArrayOutputStream {
+
+    BlockBuffer(int size) {
+      super(size);
+    }
+
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+
   private static Function<OutputStream, Encoder> createEncoderFactory() {
     return new Function<OutputStream, Encoder>() {
       @Override
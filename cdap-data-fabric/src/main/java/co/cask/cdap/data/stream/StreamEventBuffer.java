@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data.stream;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.common.io.BinaryDecoder;
 import co.cask.cdap.common.io.ByteBuffers;
 import co.cask.cdap.common.io.Decoder;
@@ -43,11 +44,19 @@ final class StreamEventBuffer {
   private ByteBuffer buffer;
   private long basePosition;
 
+  // Fields for compressed data block. Events in a compressed block have position (basePosition + eventIndex).
+  private byte[] compressedBuffer;
+  private boolean compressed;
+  private int eventIndex;
+  private long endPosition;
+
   StreamEventBuffer() {
     this.buffer = ByteBuffers.EMPTY_BUFFER;
     this.bufferInput = new ByteBufferInputStream(buffer);
     this.decoder = new BinaryDecoder(bufferInput);
     this.basePosition = -1L;
+    this.compressedBuffer = new byte[0];
+    this.endPosition = -1L;
   }
 
   /**
@@ -61,17 +70,11 @@ final class StreamEventBuffer {
   void fillBuffer(SeekableInputStream input, int size) throws IOException {
     buffer.clear();
     buffer = ensureCapacity(buffer, size);
+    compressed = false;
 
     try {
       basePosition = input.getPos();
-      int bytesRead = 0;
-      while (bytesRead != size) {
-        int len = input.read(buffer.array(), bytesRead, size - bytesRead);
-        if (len < 0) {
-          throw new EOFException("Expected to read " + size + ", but only " + bytesRead + " was read");
-        }
-        bytesRead += len;
-      }
+      readFully(input, buffer.array(), size);
       buffer.limit(size);
       bufferInput.reset(buffer);
     } catch (IOException e) {
@@ -82,6 +85,53 @@ final class StreamEventBuffer {
     }
   }
 
+  /**
+   * Fills the internal buffer by reading a compressed data block from the given input stream and
+   * decompressing it.
+   *
+   * @param input input stream to read from
+   * @param size number of bytes in the compressed block
+   * @param blockPosition position of the data block in the stream, which is used as the base for event positions
+   * @param compression the compression codec used to compress the block
+   * @throws IOException if failed to read from the stream or failed to decompress
+   * @throws EOFException if failed to read the given number of bytes from the input
+   */
+  void fillBuffer(SeekableInputStream input, int size,
+                  long blockPosition, StreamDataFileCompression compression) throws IOException {
+    int headerSize = StreamDataFileConstants.COMPRESSED_BLOCK_HEADER_SIZE;
+    if (size < headerSize) {
+      throw new IOException("Compressed block size " + size + " is smaller than the block header size");
+    }
+    if (compressedBuffer.length < size) {
+      compressedBuffer = new byte[size];
+    }
+    buffer.clear();
+    compressed = true;
+
+    try {
+      readFully(input, compressedBuffer, size);
+      int uncompressedSize = Bytes.toInt(compressedBuffer, 0);
+      int compressedSize = Bytes.toInt(compressedBuffer, Bytes.SIZEOF_INT);
+      if (compressedSize > size - headerSize) {
+        throw new IOException("Compressed data size " + compressedSize + " exceeds block size " + size);
+      }
+
+      buffer = ensureCapacity(buffer, uncompressedSize);
+      compression.decompress(compressedBuffer, headerSize, compressedSize, buffer.array(), 0, uncompressedSize);
+      buffer.limit(uncompressedSize);
+      bufferInput.reset(buffer);
+
+      basePosition = blockPosition;
+      endPosition = input.getPos();
+      eventIndex = 0;
+    } catch (IOException e) {
+      // Make the buffer has nothing to read
+      buffer.position(buffer.limit());
+      basePosition = -1L;
+      throw e;
+    }
+  }
+
   /**
    * Returns {@code true} if there are events in the buffer, {@code false} otherwise.
    */
@@ -94,7 +144,13 @@ final class StreamEventBuffer {
    * read from the stream.
    */
   long getPosition() {
-    return basePosition >= 0 ? basePosition + buffer.position() : -1L;
+    if (basePosition < 0) {
+      return -1L;
+    }
+    if (compressed) {
+      return hasEvent() ? basePosition + eventIndex : endPosition;
+    }
+    return basePosition + buffer.position();
   }
 
   /**
@@ -102,7 +158,10 @@ final class StreamEventBuffer {
    * been read from the stream.
    */
   long getEndPosition() {
-    return basePosition >= 0 ? basePosition + buffer.limit() : -1L;
+    if (basePosition < 0) {
+      return -1L;
+    }
+    return compressed ? endPosition : basePosition + buffer.limit();
   }
 
   /**
@@ -120,7 +179,8 @@ final class StreamEventBuffer {
       throw new IOException("No more event in the buffer");
     }
 
-    long eventPos = basePosition + buffer.position();
+    long eventPos = getPosition();
+    eventIndex++;
     if (filter.acceptOffset(eventPos)) {
       return new PositionStreamEvent(StreamEventDataCodec.decode(decoder, defaultHeaders), timestamp, eventPos);
     }
@@ -128,6 +188,20 @@ final class StreamEventBuffer {
     return null;
   }
 
+  /**
+   * Reads exactly the given number of bytes from the input into the given byte array.
+   */
+  private void readFully(SeekableInputStream input, byte[] bytes, int size) throws IOException {
+    int bytesRead = 0;
+    while (bytesRead != size) {
+      int len = input.read(bytes, bytesRead, size - bytesRead);
+      if (len < 0) {
+        throw new EOFException("Expected to read " + size + ", but only " + bytesRead + " was read");
+      }
+      bytesRead += len;
+    }
+  }
+
   /**
    * Ensures that the given {@link ByteBuffer} is of sufficient size.
    *
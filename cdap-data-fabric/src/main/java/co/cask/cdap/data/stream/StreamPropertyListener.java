@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014 Cask Data, Inc.
+ * Copyright © 2014-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -53,6 +53,16 @@ public abstract class StreamPropertyListener {
     // Default no-op
   }
 
+  /**
+   * Invoked when the stream compression property is changed.
+   *
+   * @param streamId Id of the stream
+   * @param compression Name of the compression codec of the stream
+   */
+  public void compressionChanged(Id.Stream streamId, String compression) {
+    // Default no-op
+  }
+
   /**
    * Invoked when the stream property is deleted.
    *
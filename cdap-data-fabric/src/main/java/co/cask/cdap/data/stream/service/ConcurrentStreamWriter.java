@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014-2015 Cask Data, Inc.
+ * Copyright © 2014-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -39,12 +39,14 @@ import com.google.common.collect.MapMaker;
 import com.google.common.collect.Sets;
 import com.google.common.io.Closeables;
 import org.apache.twill.common.Cancellable;
+import org.apache.twill.common.Threads;
 import org.apache.twill.filesystem.Location;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.List;
@@ -54,8 +56,14 @@ import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.concurrent.ThreadSafe;
@@ -84,12 +92,20 @@ import javax.annotation.concurrent.ThreadSafe;
  * The spin lock between step 2 to step 8 is necessary as it guarantees events enqueued by all threads would eventually
  * get written and flushed.
  *
+ * Alternatively, when group commit is enabled, each stream has a flusher that performs step 4-6 in a thread pool
+ * shared by all streams. Request threads only enqueue and then block until their request is completed. The flusher
+ * waits for a configurable time window, or until enough requests are queued, before writing all queued requests and
+ * completing them with a single flush. This trades a bounded amount of latency for far fewer flushes when there
+ * are many concurrent small writers.
  */
 @ThreadSafe
 public final class ConcurrentStreamWriter implements Closeable {
 
   private static final Logger LOG = LoggerFactory.getLogger(ConcurrentStreamWriter.class);
 
+  // Interval for checking the flusher state by request threads blocked on a group commit
+  private static final long GROUP_COMMIT_CHECK_INTERVAL_MS = 1000L;
+
   private final StreamCoordinatorClient streamCoordinatorClient;
   private final StreamAdmin streamAdmin;
   private final int workerThreads;
@@ -99,10 +115,28 @@ public final class ConcurrentStreamWriter implements Closeable {
   private final Set<Id.Stream> generationWatched;
   private final List<Cancellable> cancellables;
   private final Lock createLock;
+  private final long groupCommitWindowNanos;
+  private final int groupCommitMaxRequests;
+  private final ScheduledExecutorService groupCommitExecutor;
 
   ConcurrentStreamWriter(StreamCoordinatorClient streamCoordinatorClient, StreamAdmin streamAdmin,
                          StreamFileWriterFactory writerFactory, int workerThreads,
                          StreamMetricsCollectorFactory metricsCollectorFactory, Impersonator impersonator) {
+    this(streamCoordinatorClient, streamAdmin, writerFactory, workerThreads, metricsCollectorFactory, impersonator,
+         -1L, 0);
+  }
+
+  /**
+   * Creates an instance.
+   *
+   * @param groupCommitWindowMillis time window in milliseconds for collecting write requests into one group commit.
+   *                                Group commit is disabled if it is negative.
+   * @param groupCommitMaxRequests maximum number of write requests to collect for one group commit
+   */
+  ConcurrentStreamWriter(StreamCoordinatorClient streamCoordinatorClient, StreamAdmin streamAdmin,
+                         StreamFileWriterFactory writerFactory, int workerThreads,
+                         StreamMetricsCollectorFactory metricsCollectorFactory, Impersonator impersonator,
+                         long groupCommitWindowMillis, int groupCommitMaxRequests) {
     this.streamCoordinatorClient = streamCoordinatorClient;
     this.streamAdmin = streamAdmin;
     this.workerThreads = workerThreads;
@@ -112,6 +146,12 @@ public final class ConcurrentStreamWriter implements Closeable {
     this.generationWatched = Sets.newHashSet();
     this.cancellables = Lists.newArrayList();
     this.createLock = new ReentrantLock();
+    this.groupCommitWindowNanos = groupCommitWindowMillis < 0 ? -1L
+                                                              : TimeUnit.MILLISECONDS.toNanos(groupCommitWindowMillis);
+    this.groupCommitMaxRequests = Math.max(1, groupCommitMaxRequests);
+    this.groupCommitExecutor = groupCommitWindowMillis < 0 ? null : Executors.newScheduledThreadPool(
+      Math.min(workerThreads, Runtime.getRuntime().availableProcessors()),
+      Threads.createDaemonThreadFactory("stream-group-commit-%d"));
   }
 
   public void close(Id.Stream streamId) throws IOException, NotFoundException {
@@ -172,6 +212,10 @@ public final class ConcurrentStreamWriter implements Closeable {
     // Put the event to the queue first and then execute the write asynchronously
     final EventQueue eventQueue = getEventQueue(streamId);
     final WriteRequest writeRequest = eventQueue.append(headers, body);
+    if (eventQueue.isFlusherRunning()) {
+      // The flusher of the group commit will persist the event
+      return;
+    }
     executor.execute(new Runnable() {
       @Override
       public void run() {
@@ -218,6 +262,10 @@ public final class ConcurrentStreamWriter implements Closeable {
         LOG.warn("Failed to close writer.", e);
       }
     }
+
+    if (groupCommitExecutor != null) {
+      groupCommitExecutor.shutdownNow();
+    }
   }
 
   private EventQueue getEventQueue(Id.Stream streamId) throws IOException, NotFoundException {
@@ -245,6 +293,7 @@ public final class ConcurrentStreamWriter implements Closeable {
 
       eventQueue = new EventQueue(streamId, metricsCollectorFactory.createMetricsCollector(streamId));
       eventQueues.put(streamId, eventQueue);
+      eventQueue.startFlusher();
 
       return eventQueue;
 
@@ -267,7 +316,11 @@ public final class ConcurrentStreamWriter implements Closeable {
   private void persistUntilCompleted(Id.Stream streamId, EventQueue eventQueue, WriteRequest request)
     throws IOException {
     while (!request.isCompleted()) {
-      if (!eventQueue.tryWrite()) {
+      if (eventQueue.isFlusherRunning()) {
+        // The group commit flusher persists the request. If the flusher gets stopped because the
+        // event queue is closed, this thread will try to write, which fails the pending requests.
+        request.awaitCompletion(GROUP_COMMIT_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+      } else if (!eventQueue.tryWrite()) {
         Thread.yield();
       }
     }
@@ -308,6 +361,13 @@ public final class ConcurrentStreamWriter implements Closeable {
       closeEventQueue(streamId);
     }
 
+    @Override
+    public void compressionChanged(Id.Stream streamId, String compression) {
+      // The stream files opened so far keep their codec, new writers pick up the new one from the stream config
+      LOG.debug("Compression for stream '{}' changed to {} for stream writer", streamId, compression);
+      closeEventQueue(streamId);
+    }
+
     @Override
     public void deleted(Id.Stream streamId) {
       LOG.debug("Properties deleted for stream '{}' for stream writer", streamId);
@@ -402,11 +462,13 @@ public final class ConcurrentStreamWriter implements Closeable {
     private final WriteRequest.Metrics metrics;
     private final MutableStreamEvent streamEvent;
     private final Function<StreamEventData, StreamEvent> eventTransformer;
+    private final GroupCommitFlusher flusher;
     private FileWriter<StreamEventData> fileWriter;
     private boolean closed;
 
     EventQueue(Id.Stream streamId, StreamMetricsCollectorFactory.StreamMetricsCollector metricsCollector) {
       this.streamId = streamId;
+      this.flusher = groupCommitWindowNanos < 0 ? null : new GroupCommitFlusher(this);
       this.streamEvent = new MutableStreamEvent();
       this.queue = new ConcurrentLinkedQueue<>();
       this.writerFlag = new AtomicBoolean(false);
@@ -428,8 +490,11 @@ public final class ConcurrentStreamWriter implements Closeable {
      * @return A {@link WriteRequest} that contains the status of the request
      */
     WriteRequest append(Map<String, String> headers, ByteBuffer body) {
-      WriteRequest request = new SingleWriteRequest(headers, body);
+      WriteRequest request = new SingleWriteRequest(headers, body, isGroupCommit());
       queue.add(request);
+      if (flusher != null) {
+        flusher.requestAdded();
+      }
       return request;
     }
 
@@ -441,11 +506,37 @@ public final class ConcurrentStreamWriter implements Closeable {
      * @return A {@link WriteRequest} that contains the status of the request
      */
     WriteRequest append(Iterator<? extends StreamEventData> events) {
-      WriteRequest request = new BatchWriteRequest(events);
+      WriteRequest request = new BatchWriteRequest(events, isGroupCommit());
       queue.add(request);
+      if (flusher != null) {
+        flusher.requestAdded();
+      }
       return request;
     }
 
+    /**
+     * Returns {@code true} if write requests are persisted by the group commit flusher.
+     */
+    boolean isGroupCommit() {
+      return flusher != null;
+    }
+
+    /**
+     * Returns {@code true} if the group commit flusher is running.
+     */
+    boolean isFlusherRunning() {
+      return flusher != null && flusher.isRunning();
+    }
+
+    /**
+     * Starts the group commit flusher if group commit is enabled.
+     */
+    void startFlusher() {
+      if (flusher != null) {
+        flusher.start();
+      }
+    }
+
     /**
      * Attempts to append a file to the stream.
      *
@@ -492,10 +583,12 @@ public final class ConcurrentStreamWriter implements Closeable {
     boolean tryWrite() {
       int bytesWritten = 0;
       int eventsWritten = 0;
+      int requestsProcessed = 0;
 
       if (!writerFlag.compareAndSet(false, true)) {
         return false;
       }
+      long startTime = System.nanoTime();
 
       // The visibility of states mutation done while getting hold of the writerFlag,
       // is piggy back on the writerFlag atomic variable update in the finally block,
@@ -518,6 +611,7 @@ public final class ConcurrentStreamWriter implements Closeable {
           }
           bytesWritten = metrics.bytesWritten;
           eventsWritten = metrics.eventsWritten;
+          requestsProcessed = processQueue.size();
         } catch (Throwable t) {
           // On exception, remove this EventQueue from the map and close this event queue
           eventQueues.remove(streamId, this);
@@ -526,12 +620,16 @@ public final class ConcurrentStreamWriter implements Closeable {
           for (WriteRequest processed : processQueue) {
             processed.completed(t);
           }
+          requestsProcessed = processQueue.size();
         }
       } finally {
         writerFlag.set(false);
       }
 
       metricsCollector.emitMetrics(bytesWritten, eventsWritten);
+      if (flusher != null) {
+        flusher.committed(requestsProcessed, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+      }
       return true;
     }
 
@@ -570,6 +668,9 @@ public final class ConcurrentStreamWriter implements Closeable {
     }
 
     private void doClose() {
+      if (flusher != null) {
+        flusher.stop();
+      }
       if (fileWriter != null) {
         Closeables.closeQuietly(fileWriter);
       }
@@ -587,6 +688,84 @@ public final class ConcurrentStreamWriter implements Closeable {
     }
   }
 
+  /**
+   * The flusher for group commit. It collects write requests of an {@link EventQueue} within a time window and then
+   * persists all of them with a single flush. The commits of all streams run in the group commit executor.
+   */
+  private final class GroupCommitFlusher implements Runnable {
+
+    private final EventQueue eventQueue;
+    private final AtomicInteger pendingRequests;
+    private final AtomicBoolean scheduled;
+    private volatile boolean running;
+
+    GroupCommitFlusher(EventQueue eventQueue) {
+      this.eventQueue = eventQueue;
+      this.pendingRequests = new AtomicInteger();
+      this.scheduled = new AtomicBoolean();
+    }
+
+    void start() {
+      running = true;
+    }
+
+    void stop() {
+      running = false;
+    }
+
+    boolean isRunning() {
+      return running;
+    }
+
+    /**
+     * Called after a write request is added to the queue. It schedules a commit at the end of the time window
+     * if none is scheduled yet, or commits right away if the maximum batch size is reached.
+     */
+    void requestAdded() {
+      int pending = pendingRequests.incrementAndGet();
+      if (pending == groupCommitMaxRequests) {
+        schedule(0L);
+      } else if (scheduled.compareAndSet(false, true)) {
+        schedule(groupCommitWindowNanos);
+      }
+    }
+
+    /**
+     * Called after the queued write requests are processed. It's always called from the group commit executor,
+     * except when the flusher is no longer running.
+     */
+    void committed(int requests, long latencyMicros) {
+      pendingRequests.addAndGet(-requests);
+      if (running && requests > 0) {
+        eventQueue.metricsCollector.emitGroupCommitMetrics(requests, latencyMicros);
+      }
+    }
+
+    @Override
+    public void run() {
+      // Requests added from now on may miss this commit, hence they have to schedule the next one
+      scheduled.set(false);
+      if (pendingRequests.get() <= 0) {
+        return;
+      }
+      while (running && !eventQueue.tryWrite()) {
+        Thread.yield();
+      }
+    }
+
+    private void schedule(long delayNanos) {
+      if (!running) {
+        return;
+      }
+      try {
+        groupCommitExecutor.schedule(this, delayNanos, TimeUnit.NANOSECONDS);
+      } catch (RejectedExecutionException e) {
+        // The stream writer is closed, let the request threads write by themselves, which fails the requests
+        running = false;
+      }
+    }
+  }
+
   /**
    * Represents an active write request.
    */
@@ -613,9 +792,19 @@ public final class ConcurrentStreamWriter implements Closeable {
       }
     }
 
+    private final CountDownLatch completion;
     private State state = State.PENDING;
     private Throwable failure;
 
+    /**
+     * Creates a request.
+     *
+     * @param blocking {@code true} if the request can be waited on through {@link #awaitCompletion(long, TimeUnit)}
+     */
+    WriteRequest(boolean blocking) {
+      this.completion = blocking ? new CountDownLatch(1) : null;
+    }
+
     boolean isCompleted() {
       return state != State.PENDING;
     }
@@ -627,6 +816,24 @@ public final class ConcurrentStreamWriter implements Closeable {
     void completed(Throwable failure) {
       this.state = State.COMPLETED;
       this.failure = failure;
+      if (completion != null) {
+        completion.countDown();
+      }
+    }
+
+    /**
+     * Blocks until this request is completed or the timeout elapsed. Only valid for blocking request.
+     *
+     * @return {@code true} if the request is completed
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedIOException {
+      try {
+        return completion.await(timeout, unit);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for stream write to complete");
+      }
     }
 
     Throwable getFailure() {
@@ -650,7 +857,8 @@ public final class ConcurrentStreamWriter implements Closeable {
 
     private final StreamEventData eventData;
 
-    SingleWriteRequest(Map<String, String> headers, ByteBuffer body) {
+    SingleWriteRequest(Map<String, String> headers, ByteBuffer body, boolean blocking) {
+      super(blocking);
       this.eventData = new StreamEventData(headers, body);
     }
 
@@ -669,7 +877,8 @@ public final class ConcurrentStreamWriter implements Closeable {
     private final Iterator<? extends StreamEventData> events;
     private Metrics metrics;
 
-    private BatchWriteRequest(Iterator<? extends StreamEventData> events) {
+    private BatchWriteRequest(Iterator<? extends StreamEventData> events, boolean blocking) {
+      super(blocking);
       this.events = events;
     }
 
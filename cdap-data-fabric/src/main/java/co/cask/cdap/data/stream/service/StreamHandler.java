@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -22,12 +22,14 @@ import co.cask.cdap.api.data.schema.UnsupportedTypeException;
 import co.cask.cdap.api.data.stream.StreamSpecification;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.MetricsContexts;
 import co.cask.cdap.common.BadRequestException;
 import co.cask.cdap.common.NotFoundException;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.namespace.NamespaceQueryAdmin;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
+import co.cask.cdap.data.stream.StreamDataFileCompression;
 import co.cask.cdap.data.stream.StreamFileWriterFactory;
 import co.cask.cdap.data.stream.service.upload.ContentWriterFactory;
 import co.cask.cdap.data.stream.service.upload.LengthBasedContentWriterFactory;
@@ -148,7 +150,10 @@ public final class StreamHandler extends AbstractHttpHandler {
     StreamMetricsCollectorFactory metricsCollectorFactory = createStreamMetricsCollectorFactory();
     this.streamWriter = new ConcurrentStreamWriter(streamCoordinatorClient, streamAdmin, writerFactory,
                                                    cConf.getInt(Constants.Stream.WORKER_THREADS),
-                                                   metricsCollectorFactory, impersonator);
+                                                   metricsCollectorFactory, impersonator,
+                                                   cConf.getBoolean(Constants.Stream.GROUP_COMMIT_ENABLED, false)
+                                                     ? cConf.getLong(Constants.Stream.GROUP_COMMIT_WINDOW_MS) : -1L,
+                                                   cConf.getInt(Constants.Stream.GROUP_COMMIT_MAX_REQUESTS));
     this.namespaceQueryAdmin = namespaceQueryAdmin;
     this.impersonator = impersonator;
     this.authorizationEnforcer = authorizationEnforcer;
@@ -247,6 +252,10 @@ public final class StreamHandler extends AbstractHttpHandler {
       if (streamProperties.getFormat() != null) {
         props.put(Constants.Stream.FORMAT_SPECIFICATION, GSON.toJson(streamProperties.getFormat()));
       }
+
+      if (streamProperties.getCompression() != null) {
+        props.put(Constants.Stream.COMPRESSION, streamProperties.getCompression());
+      }
     }
 
     streamAdmin.create(streamId, props);
@@ -368,6 +377,13 @@ public final class StreamHandler extends AbstractHttpHandler {
               childCollector.increment("collect.events", eventsWritten);
             }
           }
+
+          @Override
+          public void emitGroupCommitMetrics(int batchSize, long latencyMicros) {
+            childCollector.increment("collect.commits", 1);
+            MetricsContexts.distribution(childCollector, "collect.commit.batch.size", batchSize);
+            MetricsContexts.distribution(childCollector, "collect.commit.latency", latencyMicros);
+          }
         };
       }
     };
@@ -443,7 +459,18 @@ public final class StreamHandler extends AbstractHttpHandler {
       return null;
     }
 
-    return new StreamProperties(ttl, formatSpec, threshold, properties.getDescription());
+    // Validate compression
+    String compression = properties.getCompression();
+    if (compression != null) {
+      try {
+        StreamDataFileCompression.fromName(compression);
+      } catch (IllegalArgumentException e) {
+        responder.sendString(HttpResponseStatus.BAD_REQUEST, e.getMessage());
+        return null;
+      }
+    }
+
+    return new StreamProperties(ttl, formatSpec, threshold, properties.getDescription(), compression);
   }
 
   private RejectedExecutionHandler createAsyncRejectedExecutionHandler() {
@@ -516,6 +543,9 @@ public final class StreamHandler extends AbstractHttpHandler {
       if (src.getDescription() != null) {
         json.addProperty("description", src.getDescription());
       }
+      if (src.getCompression() != null) {
+        json.addProperty("compression", src.getCompression());
+      }
       return json;
     }
 
@@ -534,7 +564,8 @@ public final class StreamHandler extends AbstractHttpHandler {
         jsonObj.get("notification.threshold.mb").getAsInt() : null;
 
       String description = jsonObj.has("description") ? jsonObj.get("description").getAsString() : null;
-      return new StreamProperties(ttl, format, threshold, description);
+      String compression = jsonObj.has("compression") ? jsonObj.get("compression").getAsString() : null;
+      return new StreamProperties(ttl, format, threshold, description, compression);
     }
   }
 }
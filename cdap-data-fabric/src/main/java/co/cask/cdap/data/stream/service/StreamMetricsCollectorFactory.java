@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -35,6 +35,14 @@ public interface StreamMetricsCollectorFactory {
      * @param eventsWritten number of events written to the stream
      */
     void emitMetrics(long bytesWritten, long eventsWritten);
+
+    /**
+     * Emit metrics of a group commit. It is called after each commit, only if group commit is enabled.
+     *
+     * @param batchSize number of write requests completed by the commit
+     * @param latencyMicros time in microseconds taken to write and flush the batch
+     */
+    void emitGroupCommitMetrics(int batchSize, long latencyMicros);
   }
 
   /**
@@ -46,8 +46,8 @@ import co.cask.cdap.proto.id.EntityId;
 import co.cask.cdap.proto.id.NamespaceId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
+import co.cask.cdap.security.authorization.AuthorizationEnforcementService;
 import co.cask.cdap.security.spi.authentication.AuthenticationContext;
-import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
 import co.cask.cdap.security.spi.authorization.PrivilegesManager;
 import co.cask.cdap.security.spi.authorization.UnauthorizedException;
 import com.google.common.annotations.VisibleForTesting;
@@ -55,16 +55,16 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -83,7 +83,7 @@ public class DatasetInstanceService {
   private final ExploreFacade exploreFacade;
   private final NamespaceQueryAdmin namespaceQueryAdmin;
   private final LoadingCache<Id.DatasetInstance, DatasetMeta> metaCache;
-  private final AuthorizationEnforcer authorizationEnforcer;
+  private final AuthorizationEnforcementService authorizationEnforcer;
   private final PrivilegesManager privilegesManager;
   private final AuthenticationContext authenticationContext;
 
@@ -94,8 +94,8 @@ public class DatasetInstanceService {
   public DatasetInstanceService(DatasetTypeService typeService, DatasetInstanceManager instanceManager,
                                 DatasetOpExecutor opExecutorClient, ExploreFacade exploreFacade,
                                 NamespaceQueryAdmin namespaceQueryAdmin,
-                                AuthorizationEnforcer authorizationEnforcer, PrivilegesManager privilegesManager,
-                                AuthenticationContext authenticationContext) {
+                                AuthorizationEnforcementService authorizationEnforcer,
+                                PrivilegesManager privilegesManager, AuthenticationContext authenticationContext) {
     this.opExecutorClient = opExecutorClient;
     this.typeService = typeService;
     this.instanceManager = instanceManager;
@@ -130,17 +130,18 @@ public class DatasetInstanceService {
    * @throws IOException if there is a problem in making an HTTP request to check if the namespace exists
    */
   Collection<DatasetSpecification> list(Id.Namespace namespace) throws Exception {
-    final NamespaceId namespaceId = namespace.toEntityId();
+    NamespaceId namespaceId = namespace.toEntityId();
     Principal principal = authenticationContext.getPrincipal();
     ensureNamespaceExists(namespace);
-    Collection<DatasetSpecification> datasets = instanceManager.getAll(namespace);
-    final Predicate<EntityId> filter = authorizationEnforcer.createFilter(principal);
-    return Lists.newArrayList(Iterables.filter(datasets, new com.google.common.base.Predicate<DatasetSpecification>() {
-      @Override
-      public boolean apply(DatasetSpecification spec) {
-        return filter.apply(namespaceId.dataset(spec.getName()));
-      }
-    }));
+    Map<DatasetId, DatasetSpecification> datasets = new LinkedHashMap<>();
+    for (DatasetSpecification spec : instanceManager.getAll(namespace)) {
+      datasets.put(namespaceId.dataset(spec.getName()), spec);
+    }
+    List<DatasetSpecification> result = new ArrayList<>();
+    for (DatasetId datasetId : authorizationEnforcer.filter(datasets.keySet(), principal)) {
+      result.add(datasets.get(datasetId));
+    }
+    return result;
   }
 
   /**
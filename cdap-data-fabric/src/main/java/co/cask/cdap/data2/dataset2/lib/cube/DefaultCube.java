@@ -23,11 +23,13 @@ import co.cask.cdap.api.dataset.lib.cube.CubeExploreQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeFact;
 import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
 import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
+import co.cask.cdap.api.dataset.lib.cube.Distribution;
 import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
 import co.cask.cdap.api.dataset.lib.cube.TimeValue;
 import co.cask.cdap.api.dataset.metrics.MeteredDataset;
 import co.cask.cdap.api.metrics.MetricsCollector;
 import co.cask.cdap.common.utils.ImmutablePair;
+import co.cask.cdap.data2.dataset2.lib.table.AggregatedScanInterruptedException;
 import co.cask.cdap.data2.dataset2.lib.timeseries.Fact;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactScan;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactScanResult;
@@ -35,6 +37,7 @@ import co.cask.cdap.data2.dataset2.lib.timeseries.FactScanner;
 import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -63,6 +66,9 @@ public class DefaultCube implements Cube, MeteredDataset {
   private static final DimensionValueComparator DIMENSION_VALUE_COMPARATOR = new DimensionValueComparator();
   // hard-limit on max records to scan
   private static final int MAX_RECORDS_TO_SCAN = 100 * 1000;
+  // percentile computed by each percentile aggregation function
+  private static final Map<AggregationFunction, Double> PERCENTILES = ImmutableMap.of(
+    AggregationFunction.P50, 50d, AggregationFunction.P95, 95d, AggregationFunction.P99, 99d);
 
   private final Map<Integer, FactTable> resolutionToFactTable;
   private final Map<String, ? extends Aggregation> aggregations;
@@ -209,8 +215,18 @@ public class DefaultCube implements Cube, MeteredDataset {
 
     // 3) execute scan query
     FactTable table = resolutionToFactTable.get(query.getResolution());
-    FactScanner scanner = table.scan(scan);
-    Table<Map<String, String>, String, Map<Long, Long>> resultMap = getTimeSeries(query, scanner);
+    // the table may aggregate facts while scanning, the result is the same as aggregating all facts here
+    FactScanner scanner = table.scan(scan, query.getGroupByDimensions(), query.getMeasurements());
+    Table<Map<String, String>, String, Map<Long, Long>> resultMap;
+    try {
+      resultMap = getTimeSeries(query, scanner);
+    } catch (AggregatedScanInterruptedException e) {
+      // the facts aggregated so far cannot be completed, restart the query without letting the table aggregate them
+      LOG.debug("Restarting query without aggregation in the table: {}", query, e);
+      scanner.close();
+      incrementMetric("cube.query.restart.count", 1);
+      resultMap = getTimeSeries(query, table.scan(scan));
+    }
 
     incrementMetric("cube.query.request.success.count", 1);
     incrementMetric("cube.query.result.size", resultMap.size());
@@ -332,6 +348,8 @@ public class DefaultCube implements Cube, MeteredDataset {
   private Table<Map<String, String>, String, Map<Long, Long>> getTimeSeries(CubeQuery query, FactScanner scanner) {
     // {dimension values, measure} -> {time -> value}s
     Table<Map<String, String>, String, Map<Long, Long>> result = HashBasedTable.create();
+    // distributions to compute percentiles from, merged across all facts of the same series and timestamp
+    Table<Map<String, String>, String, Map<Long, Distribution>> distributions = HashBasedTable.create();
 
     int count = 0;
     while (scanner.hasNext()) {
@@ -388,6 +406,24 @@ public class DefaultCube implements Cube, MeteredDataset {
           result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), value);
         } else if (AggregationFunction.LATEST == function) {
           result.get(seriesDimensions, next.getMeasureName()).put(timeValue.getTimestamp(), timeValue.getValue());
+        } else if (PERCENTILES.containsKey(function)) {
+          Map<Long, Distribution> timeDistributions = distributions.get(seriesDimensions, next.getMeasureName());
+          if (timeDistributions == null) {
+            timeDistributions = Maps.newHashMap();
+            distributions.put(seriesDimensions, next.getMeasureName(), timeDistributions);
+          }
+          Distribution distribution = timeDistributions.get(timeValue.getTimestamp());
+          if (distribution == null) {
+            distribution = new Distribution();
+            timeDistributions.put(timeValue.getTimestamp(), distribution);
+          }
+          Distribution factDistribution = next.getDistributions().get(timeValue.getTimestamp());
+          if (factDistribution != null) {
+            distribution.merge(factDistribution);
+          } else {
+            // not a distribution measure, use the value as a single data point
+            distribution.add(timeValue.getValue());
+          }
         } else {
           // should never happen: developer error
           throw new RuntimeException("Unknown MeasureType: " + function);
@@ -397,6 +433,14 @@ public class DefaultCube implements Cube, MeteredDataset {
         break;
       }
     }
+
+    for (Table.Cell<Map<String, String>, String, Map<Long, Distribution>> cell : distributions.cellSet()) {
+      double percentile = PERCENTILES.get(query.getMeasurements().get(cell.getColumnKey()));
+      Map<Long, Long> timeValues = result.get(cell.getRowKey(), cell.getColumnKey());
+      for (Map.Entry<Long, Distribution> entry : cell.getValue().entrySet()) {
+        timeValues.put(entry.getKey(), entry.getValue().getPercentile(percentile));
+      }
+    }
     return result;
   }
 
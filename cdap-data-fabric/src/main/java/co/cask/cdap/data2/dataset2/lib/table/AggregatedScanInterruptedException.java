@@ -0,0 +1,30 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.dataset.DataSetException;
+
+/**
+ * Thrown by a scanner of an {@link AggregatingMetricsTable} if the scan was interrupted and cannot be resumed
+ * without losing facts. The rows returned so far must be discarded and the facts scanned again.
+ */
+public class AggregatedScanInterruptedException extends DataSetException {
+
+  public AggregatedScanInterruptedException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactAggregation;
+
+import javax.annotation.Nullable;
+
+/**
+ * A {@link MetricsTable} that can aggregate facts while scanning, close to where the data is stored.
+ */
+public interface AggregatingMetricsTable extends MetricsTable {
+
+  /**
+   * Get a scanner for a table that returns facts aggregated with the given {@link FactAggregation}.
+   * Rows returned have the same format as the rows returned by {@link #scan(byte[], byte[], FuzzyRowFilter)},
+   * but the aggregation is best effort: some or all rows may be returned without aggregation, for example if the
+   * server side support for it is not installed. Callers must still aggregate the result. The returned scanner may
+   * fail with {@link AggregatedScanInterruptedException}, in which case the rows it returned must be discarded.
+   *
+   * @param start the row key of the first row to scan. If null, the scan begins at the first row of the table.
+   * @param stop the row key of the last row to scan. If null, the scan goes to the last row of the table.
+   * @param filter if non-null, a fuzzy row filter used to efficiently skip over entire rows.
+   * @param aggregation defines how to aggregate the rows
+   */
+  Scanner scan(@Nullable byte[] start, @Nullable byte[] stop, @Nullable FuzzyRowFilter filter,
+               FactAggregation aggregation);
+}
@@ -38,9 +38,12 @@ import co.cask.tephra.Transaction;
 import co.cask.tephra.TransactionAware;
 import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Predicate;
 import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.PeekingIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +52,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -73,8 +77,11 @@ import javax.annotation.Nullable;
  *       not in in-memory buffer twice, two times it will try to fetch it from persistent store.
  *       Given the snapshot isolation tx model, this can be improved in future implementations.
  * <p>
- * NOTE: current implementation persists changes only at the end of transaction. Beware of OOME. There should be better
- *       implementation for MapReduce case (YMMV though, for counters/aggregations this implementation looks sweet)
+ * NOTE: by default changes are kept on heap and persisted only at the end of transaction. Beware of OOME. For the
+ *       MapReduce case, the {@link Table#PROPERTY_BUFFER_OFF_HEAP} property can be set to keep changes in an
+ *       {@link OffHeapBuffer} instead. The off-heap buffer is persisted as soon as it reaches
+ *       {@link Table#PROPERTY_BUFFER_OFF_HEAP_MAX_SIZE}, even before the transaction commits. Only the keys of
+ *       the changes persisted that way are kept until the transaction completes.
  * <p>
  * NOTE: Using {@link #get(byte[], byte[], byte[], int)} is generally always not efficient since it always hits the
  *       persisted store even if all needed data is in-memory buffer. See more info at method javadoc
@@ -86,6 +93,20 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   protected static final byte[] DELETE_MARKER = new byte[0];
 
+  // Size of each direct memory chunk allocated by the off-heap buffer
+  private static final int OFF_HEAP_CHUNK_SIZE = 1024 * 1024;
+  // Max number of rows passed to a single call of persist() or undo() when the buffer is off-heap
+  private static final int OFF_HEAP_PERSIST_BATCH_ROWS = 1000;
+  // Orders cell keys of the off-heap buffers by row and then by column
+  private static final Comparator<Map.Entry<byte[], byte[]>> CELL_KEY_COMPARATOR =
+    new Comparator<Map.Entry<byte[], byte[]>>() {
+      @Override
+      public int compare(Map.Entry<byte[], byte[]> o1, Map.Entry<byte[], byte[]> o2) {
+        int cmp = Bytes.compareTo(o1.getKey(), o2.getKey());
+        return cmp != 0 ? cmp : Bytes.compareTo(o1.getValue(), o2.getValue());
+      }
+    };
+
   // name of the table
   private final String name;
   // conflict detection level
@@ -102,6 +123,16 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   // Keeps track of what was persisted so far
   private NavigableMap<byte[], NavigableMap<byte[], Update>> toUndo;
 
+  // Off-heap buffer that is used instead of buff if enabled by the table properties, otherwise it is null
+  private OffHeapBuffer offHeapBuff;
+  // Keys of the cells persisted from the off-heap buffer before the transaction commits, without values. They are
+  // kept for conflict detection and rollback. It is null if nothing was persisted early in the current transaction
+  private OffHeapBuffer offHeapPersistedKeys;
+  // Whether the content of the off-heap buffer was persisted by commitTx()
+  private boolean offHeapBuffPersisted;
+  // Size that triggers persisting of the off-heap buffer
+  private final long offHeapBuffMaxSize;
+
   // Report data ops metrics to
   private MetricsCollector metricsCollector;
 
@@ -148,6 +179,12 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // Default uses the above scheme. Subclasses can change it by overriding the #getNameAsTxChangePrefix method
     this.nameAsTxChangePrefix = Bytes.add(new byte[]{(byte) name.length()}, Bytes.toBytes(name));
     this.buff = new ConcurrentSkipListMap<>(Bytes.BYTES_COMPARATOR);
+    if (TableProperties.isOffHeapBufferEnabled(properties)) {
+      this.offHeapBuffMaxSize = TableProperties.getOffHeapBufferMaxSize(properties);
+      this.offHeapBuff = newOffHeapBuffer();
+    } else {
+      this.offHeapBuffMaxSize = 0L;
+    }
   }
 
   /**
@@ -259,6 +296,8 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // releasing resources
     buff = null;
     toUndo = null;
+    offHeapBuff = null;
+    offHeapPersistedKeys = null;
   }
 
   @Override
@@ -271,6 +310,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // starting with fresh buffer when tx starts
     buff.clear();
     toUndo = null;
+    clearOffHeapBuffers();
   }
 
   @Override
@@ -304,6 +344,19 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   private Collection<byte[]> getRowChanges() {
     // we resolve conflicts on row level of individual table
+    if (offHeapBuff != null) {
+      int rowCount = offHeapBuff.getRowCount();
+      Iterator<byte[]> rows = offHeapBuff.rowKeys();
+      if (offHeapPersistedKeys != null) {
+        rowCount += offHeapPersistedKeys.getRowCount();
+        rows = mergeDistinct(offHeapPersistedKeys.rowKeys(), rows, Bytes.BYTES_COMPARATOR);
+      }
+      List<byte[]> changes = new ArrayList<>(rowCount);
+      while (rows.hasNext()) {
+        changes.add(Bytes.add(getNameAsTxChangePrefix(), rows.next()));
+      }
+      return changes;
+    }
     List<byte[]> changes = new ArrayList<>(buff.size());
     for (byte[] changedRow : buff.keySet()) {
       changes.add(Bytes.add(getNameAsTxChangePrefix(), changedRow));
@@ -313,6 +366,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
 
   private Collection<byte[]> getColumnChanges() {
     // we resolve conflicts on row level of individual table
+    if (offHeapBuff != null) {
+      return getOffHeapColumnChanges();
+    }
     List<byte[]> changes = new ArrayList<>(buff.size());
     for (Map.Entry<byte[], NavigableMap<byte[], Update>> rowChange : buff.entrySet()) {
       if (rowChange.getValue() == null) {
@@ -332,8 +388,34 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     return changes;
   }
 
+  private Collection<byte[]> getOffHeapColumnChanges() {
+    Iterator<Map.Entry<byte[], byte[]>> cells = offHeapBuff.cellKeys();
+    if (offHeapPersistedKeys != null) {
+      cells = mergeDistinct(offHeapPersistedKeys.cellKeys(), cells, CELL_KEY_COMPARATOR);
+    }
+    List<byte[]> changes = new ArrayList<>();
+    byte[] row = null;
+    byte[] rowTxChange = null;
+    while (cells.hasNext()) {
+      Map.Entry<byte[], byte[]> cell = cells.next();
+      if (row == null || !Bytes.equals(row, cell.getKey())) {
+        row = cell.getKey();
+        // using length + value format to prevent conflicts like row="ab", column="cd" vs row="abc", column="d"
+        rowTxChange = Bytes.add(Bytes.toBytes(row.length), row);
+      }
+      changes.add(Bytes.add(getNameAsTxChangePrefix(), rowTxChange, cell.getValue()));
+    }
+    return changes;
+  }
+
   @Override
   public boolean commitTx() throws Exception {
+    if (offHeapBuff != null) {
+      // The buffer is kept until the transaction completes, so that it can be undone on rollback
+      offHeapBuffPersisted = true;
+      applyOffHeapBuffer(offHeapBuff, false);
+      return true;
+    }
     if (!buff.isEmpty()) {
       // We first assume that all data will be persisted. So that if exception happen during persist we try to
       // rollback everything we had in in-memory buffer.
@@ -354,6 +436,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     // don't need buffer anymore: tx has been committed
     buff.clear();
     toUndo = null;
+    clearOffHeapBuffers();
   }
 
   @Override
@@ -363,9 +446,116 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       undo(toUndo);
       toUndo = null;
     }
+    if (offHeapBuff != null) {
+      if (offHeapBuffPersisted) {
+        applyOffHeapBuffer(offHeapBuff, true);
+      }
+      if (offHeapPersistedKeys != null) {
+        applyOffHeapBuffer(offHeapPersistedKeys, true);
+      }
+      clearOffHeapBuffers();
+    }
     return true;
   }
 
+  private OffHeapBuffer newOffHeapBuffer() {
+    return new OffHeapBuffer((int) Math.min(offHeapBuffMaxSize, OFF_HEAP_CHUNK_SIZE));
+  }
+
+  /**
+   * Clears the off-heap buffer and releases the keys of the changes persisted in the current transaction.
+   */
+  private void clearOffHeapBuffers() {
+    if (offHeapBuff == null) {
+      return;
+    }
+    offHeapBuff.clear();
+    offHeapBuffPersisted = false;
+    // The keys are not bounded by the max buffer size, hence their memory is not kept for reuse
+    offHeapPersistedKeys = null;
+  }
+
+  /**
+   * Persists the off-heap buffer before the transaction commits. Only the keys of the persisted cells are kept, and
+   * the memory of the buffer is reused for the subsequent changes.
+   */
+  private void persistOffHeapBuffer() throws Exception {
+    if (offHeapPersistedKeys == null) {
+      offHeapPersistedKeys = newOffHeapBuffer();
+    }
+    // Track the keys before persisting, so that changes would be undone on rollback even if persist fails halfway
+    offHeapPersistedKeys.putKeys(offHeapBuff);
+    applyOffHeapBuffer(offHeapBuff, false);
+    offHeapBuff.clear();
+  }
+
+  /**
+   * Persists the off-heap buffer if it has reached the max size, which happens before the transaction commits.
+   * After that, buffered values will be read from the persistent store, which sees changes made by the
+   * current transaction.
+   */
+  private void persistOffHeapBufferIfFull() {
+    if (offHeapBuff.getSize() < offHeapBuffMaxSize) {
+      return;
+    }
+    try {
+      persistOffHeapBuffer();
+    } catch (Exception e) {
+      LOG.debug("persisting buffer failed for table: " + getTransactionAwareName(), e);
+      throw new DataSetException("persisting buffer failed", e);
+    }
+  }
+
+  /**
+   * Calls {@link #persist(NavigableMap)} or {@link #undo(NavigableMap)} with the content of the given off-heap
+   * buffer, with at most {@link #OFF_HEAP_PERSIST_BATCH_ROWS} rows materialized on heap at a time.
+   */
+  private void applyOffHeapBuffer(OffHeapBuffer buffer, boolean undo) throws Exception {
+    Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows = buffer.rows(null, null);
+    while (rows.hasNext()) {
+      NavigableMap<byte[], NavigableMap<byte[], Update>> batch = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      while (rows.hasNext() && batch.size() < OFF_HEAP_PERSIST_BATCH_ROWS) {
+        Map.Entry<byte[], NavigableMap<byte[], Update>> row = rows.next();
+        batch.put(row.getKey(), row.getValue());
+      }
+      if (undo) {
+        undo(batch);
+      } else {
+        persist(batch);
+      }
+    }
+  }
+
+  /**
+   * Merges two sorted iterators of keys of the off-heap buffers, skipping keys that appear in both of them.
+   */
+  private static <T> Iterator<T> mergeDistinct(Iterator<T> first, Iterator<T> second,
+                                               final Comparator<? super T> comparator) {
+    final PeekingIterator<T> merged = Iterators.peekingIterator(
+      Iterators.mergeSorted(Arrays.asList(first, second), comparator));
+    return new AbstractIterator<T>() {
+      @Override
+      protected T computeNext() {
+        if (!merged.hasNext()) {
+          return endOfData();
+        }
+        T next = merged.next();
+        while (merged.hasNext() && comparator.compare(merged.peek(), next) == 0) {
+          merged.next();
+        }
+        return next;
+      }
+    };
+  }
+
+  /**
+   * Returns the buffered changes of the given row, or {@code null} if the row is not in the in-memory buffer.
+   */
+  @Nullable
+  private NavigableMap<byte[], Update> getBufferedRow(byte[] row) {
+    return offHeapBuff == null ? buff.get(row) : offHeapBuff.getRow(row);
+  }
+
   /**
    * NOTE: Depending on the use-case, calling this method may be much less
    *       efficient than calling same method with columns as parameters because it may always require round trip to
@@ -400,7 +590,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   public Row get(byte[] row, byte[] startColumn, byte[] stopColumn, int limit) {
     reportRead(1);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
+    NavigableMap<byte[], Update> buffCols = getBufferedRow(row);
 
     // NOTE: since we cannot tell the exact column set, we always have to go to persisted store.
     //       potential improvement: do not fetch columns available in in-mem buffer (we know them at this point)
@@ -451,7 +641,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
         rowColumns.putAll(persistedRow);
 
         byte[] row = get.getRow();
-        NavigableMap<byte[], Update> buffCols = buff.get(row);
+        NavigableMap<byte[], Update> buffCols = getBufferedRow(row);
 
         // merge what was in the buffer and what was persisted
         if (buffCols != null) {
@@ -483,6 +673,17 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   }
 
   private void putInternal(byte[] row, byte[][] columns, byte[][] values) {
+    if (offHeapBuff != null) {
+      for (int i = 0; i < columns.length; i++) {
+        if (values[i] != null && values[i].length == 0) {
+          warnAboutEmptyValue(columns[i]);
+        }
+        // no need to copy as the off-heap buffer keeps its own copy of the data
+        offHeapBuff.put(row, columns[i], values[i]);
+      }
+      persistOffHeapBufferIfFull();
+      return;
+    }
     NavigableMap<byte[], Update> colVals = buff.get(row);
     boolean newRow = false;
     if (colVals == null) {
@@ -598,7 +799,15 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   @WriteOnly
   @Override
   public void increment(byte[] row, byte[][] columns, long[] amounts) {
-    if (enableReadlessIncrements) {
+    // Once the off-heap buffer is persisted, increments need to read the persisted value, otherwise
+    // another increment persisted in the same transaction would overwrite the earlier one
+    if (enableReadlessIncrements && offHeapBuff != null && offHeapPersistedKeys == null) {
+      for (int i = 0; i < columns.length; i++) {
+        offHeapBuff.increment(row, columns[i], amounts[i]);
+      }
+      reportWrite(1, getSize(row) + getSize(columns) + getSize(amounts));
+      persistOffHeapBufferIfFull();
+    } else if (enableReadlessIncrements && offHeapBuff == null) {
       NavigableMap<byte[], Update> colVals = buff.get(row);
       if (colVals == null) {
         colVals = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
@@ -671,9 +880,9 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   @ReadOnly
   @Override
   public Scanner scan(Scan scan) {
-    NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap = scanBuffer(scan);
+    Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> bufferRows = scanBuffer(scan);
     try {
-      return new BufferingScanner(bufferMap, scanPersisted(scan));
+      return new BufferingScanner(bufferRows, scanPersisted(scan));
     } catch (Exception e) {
       LOG.debug("scan failed for table: " + getTransactionAwareName() +
           ", scan: " + scan.toString(), e);
@@ -681,10 +890,13 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     }
   }
 
-  private NavigableMap<byte[], NavigableMap<byte[], Update>> scanBuffer(Scan scan) {
+  private Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> scanBuffer(Scan scan) {
     NavigableMap<byte[], NavigableMap<byte[], Update>> bufferMap;
     byte[] startRow = scan.getStartRow();
     byte[] stopRow = scan.getStopRow();
+    if (offHeapBuff != null) {
+      return applyFilter(offHeapBuff.rows(startRow, stopRow), scan.getFilter());
+    }
     if (startRow == null && stopRow == null) {
       bufferMap = buff;
     } else if (startRow == null) {
@@ -695,7 +907,27 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       bufferMap = buff.subMap(startRow, true, stopRow, false);
     }
     bufferMap = applyFilter(bufferMap, scan.getFilter());
-    return bufferMap;
+    return bufferMap.entrySet().iterator();
+  }
+
+  private Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> applyFilter(
+                                                        Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows,
+                                                        @Nullable final Filter filter) {
+    if (filter == null) {
+      return rows;
+    }
+
+    // todo: currently we support only FuzzyRowFilter as an experimental feature
+    if (filter instanceof FuzzyRowFilter) {
+      return Iterators.filter(rows, new Predicate<Map.Entry<byte[], NavigableMap<byte[], Update>>>() {
+        @Override
+        public boolean apply(Map.Entry<byte[], NavigableMap<byte[], Update>> input) {
+          return FuzzyRowFilter.ReturnCode.INCLUDE == ((FuzzyRowFilter) filter).filterRow(input.getKey());
+        }
+      });
+    } else {
+      throw new DataSetException("Unknown filter type: " + filter);
+    }
   }
 
   private NavigableMap<byte[], NavigableMap<byte[], Update>> applyFilter(
@@ -722,8 +954,8 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   private Map<byte[], byte[]> getRowMap(byte[] row) throws Exception {
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
-    boolean rowDeleted = buffCols == null && buff.containsKey(row);
+    NavigableMap<byte[], Update> buffCols = getBufferedRow(row);
+    boolean rowDeleted = buffCols == null && offHeapBuff == null && buff.containsKey(row);
     if (rowDeleted) {
       return Collections.emptyMap();
     }
@@ -743,7 +975,7 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   private Map<byte[], byte[]> getRowMap(byte[] row, byte[][] columns) throws Exception {
     NavigableMap<byte[], byte[]> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     // checking if the row was deleted inside this tx
-    NavigableMap<byte[], Update> buffCols = buff.get(row);
+    NavigableMap<byte[], Update> buffCols = getBufferedRow(row);
 
     // if nothing locally, return all from server
     if (buffCols == null) {
@@ -938,11 +1170,11 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
   // they get annotated
 
   @ReadOnly
-  private Iterator<byte[]> getBufferKeyIterator(NavigableMap<byte[], NavigableMap<byte[], Update>> buffer) {
-    final Iterator<byte[]> iterator = buffer.keySet().iterator();
-    return new AbstractIterator<byte[]>() {
+  private Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> getBufferIterator(
+    final Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> iterator) {
+    return new AbstractIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>>() {
       @Override
-      protected byte[] computeNext() {
+      protected Map.Entry<byte[], NavigableMap<byte[], Update>> computeNext() {
         return BufferingTable.this.hasNext(iterator) ? BufferingTable.this.next(iterator) : endOfData();
       }
     };
@@ -958,28 +1190,20 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
     return iterator.next();
   }
 
-  @ReadOnly
-  private NavigableMap<byte[], Update> getFromBuffer(NavigableMap<byte[], NavigableMap<byte[], Update>> buffer,
-                                                     byte[] key) {
-    return buffer.get(key);
-  }
-
   /**
    * Scanner implementation that overlays buffered data on top of already persisted data.
    */
   private class BufferingScanner implements Scanner {
-    private final NavigableMap<byte[], NavigableMap<byte[], Update>> buffer;
     private final Scanner persistedScanner;
-    private final Iterator<byte[]> keyIter;
+    private final Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> bufferIter;
     private byte[] currentKey;
+    private NavigableMap<byte[], Update> currentBuffered;
     private Row currentRow;
 
-    private BufferingScanner(NavigableMap<byte[], NavigableMap<byte[], Update>> buffer, Scanner persistedScanner) {
-      this.buffer = buffer;
-      this.keyIter = getBufferKeyIterator(buffer);
-      if (this.keyIter.hasNext()) {
-        currentKey = keyIter.next();
-      }
+    private BufferingScanner(Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> bufferRows,
+                             Scanner persistedScanner) {
+      this.bufferIter = getBufferIterator(bufferRows);
+      advanceBuffer();
       this.persistedScanner = persistedScanner;
       this.currentRow = this.persistedScanner.next();
     }
@@ -1011,22 +1235,33 @@ public abstract class BufferingTable extends AbstractTable implements MeteredDat
       } else if (order < 0) {
         // buffer row comes first or persisted scanner is empty
         Map<byte[], byte[]> persistedRow = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
-        mergeToPersisted(persistedRow, getFromBuffer(buffer, currentKey), null);
+        mergeToPersisted(persistedRow, currentBuffered, null);
         result = new Result(copy(currentKey), persistedRow);
 
-        currentKey = keyIter.hasNext() ? keyIter.next() : null;
+        advanceBuffer();
       } else {
         // if currentKey and currentRow are equal, merge and advance both
         Map<byte[], byte[]> persisted = currentRow.getColumns();
-        mergeToPersisted(persisted, getFromBuffer(buffer, currentKey), null);
+        mergeToPersisted(persisted, currentBuffered, null);
         result = new Result(currentRow.getRow(), persisted);
 
         currentRow = persistedScanner.next();
-        currentKey = keyIter.hasNext() ? keyIter.next() : null;
+        advanceBuffer();
       }
       return result;
     }
 
+    private void advanceBuffer() {
+      if (bufferIter.hasNext()) {
+        Map.Entry<byte[], NavigableMap<byte[], Update>> entry = bufferIter.next();
+        currentKey = entry.getKey();
+        currentBuffered = entry.getValue();
+      } else {
+        currentKey = null;
+        currentBuffered = null;
+      }
+    }
+
     @Override
     public void close() {
       this.persistedScanner.close();
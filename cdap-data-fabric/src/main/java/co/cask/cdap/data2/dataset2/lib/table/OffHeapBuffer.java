@@ -0,0 +1,546 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Maps;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A sorted row->(column->value) buffer of {@link BufferingTable} that keeps all data in direct memory.
+ * <p>
+ * Cells are stored in a skip list laid out in an append-only arena of direct {@link ByteBuffer} chunks.
+ * Every node of the skip list is addressed by a {@code long} (chunk index in the upper 32 bits and offset in
+ * the lower 32 bits), hence no per-cell object is kept on heap. Data is only materialized into on-heap maps
+ * one row at a time when it is read through {@link #getRow(byte[])} or {@link #rows(byte[], byte[])}.
+ * <p>
+ * A node has the following layout:
+ * <pre>
+ *   level (1 byte) | value address (8 bytes) | row length (4 bytes) | column length (4 bytes) |
+ *   next node addresses (8 bytes * level) | row | column
+ * </pre>
+ * A value record has the following layout:
+ * <pre>
+ *   type (1 byte) | length (4 bytes) | value
+ * </pre>
+ * Values are updated in place if the new value has the same length, otherwise a new value record is appended.
+ * Iterators returned by this class reflect inserts that happen after the iterator is created, similar to
+ * the weakly consistent iterators of {@link java.util.concurrent.ConcurrentSkipListMap}.
+ */
+@NotThreadSafe
+final class OffHeapBuffer {
+
+  private static final int MAX_LEVEL = 24;
+  private static final long NIL = -1L;
+  private static final byte[] EMPTY = new byte[0];
+
+  private static final byte TYPE_PUT = 0;
+  private static final byte TYPE_DELETE = 1;
+  private static final byte TYPE_INCREMENT = 2;
+
+  private static final int VALUE_ADDR_OFFSET = 1;
+  private static final int ROW_LENGTH_OFFSET = 9;
+  private static final int COLUMN_LENGTH_OFFSET = 13;
+  private static final int NEXT_OFFSET = 17;
+  private static final int VALUE_HEADER_SIZE = 5;
+
+  private final int chunkSize;
+  private final List<ByteBuffer> chunks;
+  private final long[] head;
+  private int level;
+  private int currentChunk;
+  private int currentOffset;
+  private long size;
+  private int rows;
+  private int randomSeed;
+
+  /**
+   * Creates an instance.
+   *
+   * @param chunkSize size in bytes of each direct memory chunk allocated by this buffer
+   */
+  OffHeapBuffer(int chunkSize) {
+    Preconditions.checkArgument(chunkSize > 0, "Chunk size must be positive: %s", chunkSize);
+    this.chunkSize = chunkSize;
+    this.chunks = new ArrayList<>();
+    this.head = new long[MAX_LEVEL];
+    this.randomSeed = System.identityHashCode(this) | 0x100;
+    clear();
+  }
+
+  /**
+   * Returns the number of bytes occupied by the buffered data.
+   */
+  long getSize() {
+    return size;
+  }
+
+  /**
+   * Returns {@code true} if there is nothing in this buffer.
+   */
+  boolean isEmpty() {
+    return head[0] == NIL;
+  }
+
+  /**
+   * Returns the number of distinct rows in this buffer.
+   */
+  int getRowCount() {
+    return rows;
+  }
+
+  /**
+   * Removes everything from this buffer. Memory chunks of the default chunk size are retained for reuse.
+   */
+  void clear() {
+    Arrays.fill(head, NIL);
+    level = 1;
+    currentChunk = 0;
+    currentOffset = 0;
+    size = 0L;
+    rows = 0;
+
+    // Drop chunks that were allocated for oversized records
+    Iterator<ByteBuffer> iterator = chunks.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().capacity() != chunkSize) {
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Sets the value of a cell.
+   *
+   * @param value the new value or {@code null} to mark the cell as deleted
+   */
+  void put(byte[] row, byte[] column, @Nullable byte[] value) {
+    long node = findOrInsert(row, column);
+    byte type = value == null ? TYPE_DELETE : TYPE_PUT;
+    setValue(node, type, value == null ? EMPTY : value);
+  }
+
+  /**
+   * Adds the given amount to a cell. The result follows {@link Updates#mergeUpdates(Update, Update)}.
+   *
+   * @throws NumberFormatException if the buffered value of the cell is not convertible to long
+   */
+  void increment(byte[] row, byte[] column, long amount) {
+    long node = findOrInsert(row, column);
+    long valueAddr = getLong(node, VALUE_ADDR_OFFSET);
+    if (valueAddr == NIL) {
+      setValue(node, TYPE_INCREMENT, Bytes.toBytes(amount));
+      return;
+    }
+    byte type = getByte(valueAddr, 0);
+    if (type == TYPE_DELETE) {
+      setValue(node, TYPE_PUT, Bytes.toBytes(amount));
+      return;
+    }
+    if (getInt(valueAddr, 1) != Bytes.SIZEOF_LONG) {
+      throw new NumberFormatException("Attempted to increment a value that is not convertible to long");
+    }
+    // Both put and increment of long are updated in place with the same type
+    ByteBuffer buffer = chunk(valueAddr);
+    int idx = offset(valueAddr) + VALUE_HEADER_SIZE;
+    buffer.putLong(idx, buffer.getLong(idx) + amount);
+  }
+
+  /**
+   * Returns {@code true} if there is any cell in the given row.
+   */
+  boolean containsRow(byte[] row) {
+    long node = seek(row, EMPTY);
+    return node != NIL && rowEquals(node, row);
+  }
+
+  /**
+   * Returns a copy of the buffered cells of the given row, or {@code null} if the row is not in this buffer.
+   * Deleted cells are represented by {@link PutValue} with {@code null} value.
+   */
+  @Nullable
+  NavigableMap<byte[], Update> getRow(byte[] row) {
+    long node = seek(row, EMPTY);
+    if (node == NIL || !rowEquals(node, row)) {
+      return null;
+    }
+    NavigableMap<byte[], Update> columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    readRow(node, row, columns);
+    return columns;
+  }
+
+  /**
+   * Returns an {@link Iterator} over the rows in the given range. Each row is materialized when it is
+   * returned by the iterator.
+   *
+   * @param startRow the first row to include or {@code null} to start from the beginning
+   * @param stopRow the row to stop at (exclusive) or {@code null} to iterate till the end
+   */
+  Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows(@Nullable final byte[] startRow,
+                                                                 @Nullable final byte[] stopRow) {
+    return new AbstractIterator<Map.Entry<byte[], NavigableMap<byte[], Update>>>() {
+
+      private long lastNode = NIL;
+      private byte[] lastRow;
+
+      @Override
+      protected Map.Entry<byte[], NavigableMap<byte[], Update>> computeNext() {
+        long node;
+        if (lastRow == null) {
+          node = startRow == null ? head[0] : seek(startRow, EMPTY);
+        } else {
+          // Continue from the last cell read, skipping cells of the last returned row that were inserted
+          // after it was materialized
+          node = getNext(lastNode, 0);
+          while (node != NIL && rowEquals(node, lastRow)) {
+            node = getNext(node, 0);
+          }
+        }
+        if (node == NIL) {
+          return endOfData();
+        }
+        byte[] row = getRowKey(node);
+        if (stopRow != null && Bytes.compareTo(row, stopRow) >= 0) {
+          return endOfData();
+        }
+        NavigableMap<byte[], Update> columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        lastNode = readRow(node, row, columns);
+        lastRow = row;
+        return Maps.immutableEntry(row, columns);
+      }
+    };
+  }
+
+  /**
+   * Returns an {@link Iterator} over the distinct row keys in this buffer. Cell values are not read.
+   */
+  Iterator<byte[]> rowKeys() {
+    return new AbstractIterator<byte[]>() {
+
+      private long node = head[0];
+
+      @Override
+      protected byte[] computeNext() {
+        if (node == NIL) {
+          return endOfData();
+        }
+        byte[] row = getRowKey(node);
+        do {
+          node = getNext(node, 0);
+        } while (node != NIL && rowEquals(node, row));
+        return row;
+      }
+    };
+  }
+
+  /**
+   * Returns an {@link Iterator} over the keys of all cells in this buffer, as row to column entries.
+   * Cell values are not read.
+   */
+  Iterator<Map.Entry<byte[], byte[]>> cellKeys() {
+    return new AbstractIterator<Map.Entry<byte[], byte[]>>() {
+
+      private long node = head[0];
+      private byte[] row;
+
+      @Override
+      protected Map.Entry<byte[], byte[]> computeNext() {
+        if (node == NIL) {
+          return endOfData();
+        }
+        // Cells of the same row share the row key
+        if (row == null || !rowEquals(node, row)) {
+          row = getRowKey(node);
+        }
+        Map.Entry<byte[], byte[]> key = Maps.immutableEntry(row, getColumnKey(node));
+        node = getNext(node, 0);
+        return key;
+      }
+    };
+  }
+
+  /**
+   * Adds the keys of all cells of the given buffer to this buffer, with empty values.
+   */
+  void putKeys(OffHeapBuffer source) {
+    Iterator<Map.Entry<byte[], byte[]>> keys = source.cellKeys();
+    while (keys.hasNext()) {
+      Map.Entry<byte[], byte[]> key = keys.next();
+      put(key.getKey(), key.getValue(), EMPTY);
+    }
+  }
+
+  /**
+   * Reads all consecutive cells of the given row starting from the given node.
+   *
+   * @return the node of the last cell of the row
+   */
+  private long readRow(long node, byte[] row, NavigableMap<byte[], Update> columns) {
+    long last = node;
+    while (node != NIL && rowEquals(node, row)) {
+      columns.put(getColumnKey(node), getUpdate(getLong(node, VALUE_ADDR_OFFSET)));
+      last = node;
+      node = getNext(node, 0);
+    }
+    return last;
+  }
+
+  private Update getUpdate(long valueAddr) {
+    byte type = getByte(valueAddr, 0);
+    switch (type) {
+      case TYPE_DELETE:
+        return new PutValue(null);
+      case TYPE_INCREMENT:
+        return new IncrementValue(chunk(valueAddr).getLong(offset(valueAddr) + VALUE_HEADER_SIZE));
+      default:
+        return new PutValue(getBytes(valueAddr, VALUE_HEADER_SIZE, getInt(valueAddr, 1)));
+    }
+  }
+
+  /**
+   * Returns the first node that is greater than or equal to the given key, or {@link #NIL} if there is none.
+   */
+  private long seek(byte[] row, byte[] column) {
+    long node = NIL;
+    long next = NIL;
+    for (int i = level - 1; i >= 0; i--) {
+      next = getNext(node, i);
+      while (next != NIL && compare(next, row, column) < 0) {
+        node = next;
+        next = getNext(node, i);
+      }
+    }
+    return next;
+  }
+
+  /**
+   * Returns the node of the given key. A new node without value is inserted if the key doesn't exist.
+   */
+  private long findOrInsert(byte[] row, byte[] column) {
+    long[] predecessors = new long[MAX_LEVEL];
+    long node = NIL;
+    long next = NIL;
+    for (int i = level - 1; i >= 0; i--) {
+      next = getNext(node, i);
+      while (next != NIL && compare(next, row, column) < 0) {
+        node = next;
+        next = getNext(node, i);
+      }
+      predecessors[i] = node;
+    }
+    if (next != NIL && compare(next, row, column) == 0) {
+      return next;
+    }
+
+    // A new row if neither neighbour belongs to the same row
+    if ((node == NIL || !rowEquals(node, row)) && (next == NIL || !rowEquals(next, row))) {
+      rows++;
+    }
+
+    int nodeLevel = randomLevel();
+    if (nodeLevel > level) {
+      for (int i = level; i < nodeLevel; i++) {
+        predecessors[i] = NIL;
+      }
+      level = nodeLevel;
+    }
+
+    long newNode = allocate(NEXT_OFFSET + nodeLevel * Bytes.SIZEOF_LONG + row.length + column.length);
+    ByteBuffer buffer = chunk(newNode);
+    int offset = offset(newNode);
+    buffer.put(offset, (byte) nodeLevel);
+    buffer.putLong(offset + VALUE_ADDR_OFFSET, NIL);
+    buffer.putInt(offset + ROW_LENGTH_OFFSET, row.length);
+    buffer.putInt(offset + COLUMN_LENGTH_OFFSET, column.length);
+    int keyOffset = offset + NEXT_OFFSET + nodeLevel * Bytes.SIZEOF_LONG;
+    putBytes(buffer, keyOffset, row);
+    putBytes(buffer, keyOffset + row.length, column);
+
+    for (int i = 0; i < nodeLevel; i++) {
+      buffer.putLong(offset + NEXT_OFFSET + i * Bytes.SIZEOF_LONG, getNext(predecessors[i], i));
+      setNext(predecessors[i], i, newNode);
+    }
+    return newNode;
+  }
+
+  private void setValue(long node, byte type, byte[] value) {
+    long valueAddr = getLong(node, VALUE_ADDR_OFFSET);
+    if (valueAddr == NIL || getInt(valueAddr, 1) != value.length) {
+      valueAddr = allocate(VALUE_HEADER_SIZE + value.length);
+      chunk(valueAddr).putInt(offset(valueAddr) + 1, value.length);
+      chunk(node).putLong(offset(node) + VALUE_ADDR_OFFSET, valueAddr);
+    }
+    ByteBuffer buffer = chunk(valueAddr);
+    buffer.put(offset(valueAddr), type);
+    putBytes(buffer, offset(valueAddr) + VALUE_HEADER_SIZE, value);
+  }
+
+  /**
+   * Compares the key of the given node with the given key, with row compared first and then column.
+   */
+  private int compare(long node, byte[] row, byte[] column) {
+    ByteBuffer buffer = chunk(node);
+    int offset = offset(node);
+    int rowLength = buffer.getInt(offset + ROW_LENGTH_OFFSET);
+    int keyOffset = offset + NEXT_OFFSET + buffer.get(offset) * Bytes.SIZEOF_LONG;
+    int cmp = compareBytes(buffer, keyOffset, rowLength, row);
+    if (cmp != 0) {
+      return cmp;
+    }
+    return compareBytes(buffer, keyOffset + rowLength, buffer.getInt(offset + COLUMN_LENGTH_OFFSET), column);
+  }
+
+  private boolean rowEquals(long node, byte[] row) {
+    ByteBuffer buffer = chunk(node);
+    int offset = offset(node);
+    int rowLength = buffer.getInt(offset + ROW_LENGTH_OFFSET);
+    return rowLength == row.length
+      && compareBytes(buffer, offset + NEXT_OFFSET + buffer.get(offset) * Bytes.SIZEOF_LONG, rowLength, row) == 0;
+  }
+
+  private static int compareBytes(ByteBuffer buffer, int offset, int length, byte[] bytes) {
+    int len = Math.min(length, bytes.length);
+    for (int i = 0; i < len; i++) {
+      int a = buffer.get(offset + i) & 0xff;
+      int b = bytes[i] & 0xff;
+      if (a != b) {
+        return a - b;
+      }
+    }
+    return length - bytes.length;
+  }
+
+  private byte[] getRowKey(long node) {
+    ByteBuffer buffer = chunk(node);
+    int offset = offset(node);
+    return getBytes(node, NEXT_OFFSET + buffer.get(offset) * Bytes.SIZEOF_LONG,
+                    buffer.getInt(offset + ROW_LENGTH_OFFSET));
+  }
+
+  private byte[] getColumnKey(long node) {
+    ByteBuffer buffer = chunk(node);
+    int offset = offset(node);
+    int rowLength = buffer.getInt(offset + ROW_LENGTH_OFFSET);
+    return getBytes(node, NEXT_OFFSET + buffer.get(offset) * Bytes.SIZEOF_LONG + rowLength,
+                    buffer.getInt(offset + COLUMN_LENGTH_OFFSET));
+  }
+
+  private long getNext(long node, int level) {
+    return node == NIL ? head[level] : getLong(node, NEXT_OFFSET + level * Bytes.SIZEOF_LONG);
+  }
+
+  private void setNext(long node, int level, long next) {
+    if (node == NIL) {
+      head[level] = next;
+    } else {
+      chunk(node).putLong(offset(node) + NEXT_OFFSET + level * Bytes.SIZEOF_LONG, next);
+    }
+  }
+
+  private int randomLevel() {
+    // xorshift random number generator, with each level having 1/4 probability of the level below
+    int x = randomSeed;
+    x ^= x << 13;
+    x ^= x >>> 17;
+    x ^= x << 5;
+    randomSeed = x;
+    int nodeLevel = 1;
+    while ((x & 3) == 0 && nodeLevel < MAX_LEVEL) {
+      nodeLevel++;
+      x >>>= 2;
+    }
+    return nodeLevel;
+  }
+
+  /**
+   * Allocates space for a record of the given size and returns its address.
+   */
+  private long allocate(int recordSize) {
+    size += recordSize;
+    if (recordSize > chunkSize) {
+      // Oversized record gets its own chunk, and subsequent records go to a new chunk.
+      // Chunks after the current one are not in use, hence inserting doesn't change any existing address.
+      if (currentOffset > 0) {
+        currentChunk++;
+      }
+      chunks.add(currentChunk, ByteBuffer.allocateDirect(recordSize));
+      long address = address(currentChunk, 0);
+      currentChunk++;
+      currentOffset = 0;
+      return address;
+    }
+    if (currentChunk < chunks.size() && currentOffset + recordSize > chunkSize) {
+      currentChunk++;
+      currentOffset = 0;
+    }
+    if (currentChunk == chunks.size()) {
+      chunks.add(ByteBuffer.allocateDirect(chunkSize));
+    }
+    long address = address(currentChunk, currentOffset);
+    currentOffset += recordSize;
+    return address;
+  }
+
+  private ByteBuffer chunk(long address) {
+    return chunks.get((int) (address >>> 32));
+  }
+
+  private static int offset(long address) {
+    return (int) address;
+  }
+
+  private static long address(int chunk, int offset) {
+    return ((long) chunk << 32) | offset;
+  }
+
+  private byte getByte(long address, int offset) {
+    return chunk(address).get(offset(address) + offset);
+  }
+
+  private int getInt(long address, int offset) {
+    return chunk(address).getInt(offset(address) + offset);
+  }
+
+  private long getLong(long address, int offset) {
+    return chunk(address).getLong(offset(address) + offset);
+  }
+
+  private byte[] getBytes(long address, int offset, int length) {
+    byte[] bytes = new byte[length];
+    ByteBuffer buffer = chunk(address).duplicate();
+    buffer.position(offset(address) + offset);
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private static void putBytes(ByteBuffer buffer, int offset, byte[] bytes) {
+    ByteBuffer dup = buffer.duplicate();
+    dup.position(offset);
+    dup.put(bytes);
+  }
+}
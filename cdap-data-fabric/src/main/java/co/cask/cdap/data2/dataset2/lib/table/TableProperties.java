@@ -32,6 +32,7 @@ import javax.annotation.Nullable;
 public class TableProperties {
 
   private static final byte[] DEFAULT_DATA_COLUMN_FAMILY = Bytes.toBytes("d");
+  private static final long DEFAULT_OFF_HEAP_BUFFER_MAX_SIZE = 64L * 1024 * 1024;
 
   /**
    * Extract the schema, parsed as Json, from the properties.
@@ -90,6 +91,36 @@ public class TableProperties {
     return !"true".equalsIgnoreCase(props.get(Constants.Dataset.TABLE_TX_DISABLED));
   }
 
+  /**
+   * Returns whether or not the dataset defined in the given specification should buffer changes off-heap.
+   * Defaults to false.
+   */
+  public static boolean isOffHeapBufferEnabled(Map<String, String> props) {
+    return "true".equalsIgnoreCase(props.get(Table.PROPERTY_BUFFER_OFF_HEAP));
+  }
+
+  /**
+   * Returns the maximum size in bytes of the off-heap buffer as being set in the given specification.
+   * If it is not set, the {@link #DEFAULT_OFF_HEAP_BUFFER_MAX_SIZE} will be returned.
+   *
+   * @throws IllegalArgumentException if the property value is not a positive number.
+   */
+  public static long getOffHeapBufferMaxSize(Map<String, String> props) {
+    String value = props.get(Table.PROPERTY_BUFFER_OFF_HEAP_MAX_SIZE);
+    if (value == null) {
+      return DEFAULT_OFF_HEAP_BUFFER_MAX_SIZE;
+    }
+    try {
+      long size = Long.parseLong(value);
+      if (size <= 0) {
+        throw new IllegalArgumentException("Invalid off-heap buffer max size: " + value);
+      }
+      return size;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid off-heap buffer max size: " + value);
+    }
+  }
+
   /**
    * Returns the column family as being set in the given specification.
    * If it is not set, the {@link #DEFAULT_DATA_COLUMN_FAMILY} will be returned.
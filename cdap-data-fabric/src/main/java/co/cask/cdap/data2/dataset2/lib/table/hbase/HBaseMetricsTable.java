@@ -20,17 +20,22 @@ import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DataSetException;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.common.utils.ImmutablePair;
+import co.cask.cdap.data2.dataset2.lib.table.AggregatedScanInterruptedException;
+import co.cask.cdap.data2.dataset2.lib.table.AggregatingMetricsTable;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
-import co.cask.cdap.data2.dataset2.lib.table.MetricsTable;
 import co.cask.cdap.data2.dataset2.lib.table.TableProperties;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactAggregation;
+import co.cask.cdap.data2.increment.hbase.ResumedFactScanException;
 import co.cask.cdap.data2.util.TableId;
 import co.cask.cdap.data2.util.hbase.DeleteBuilder;
 import co.cask.cdap.data2.util.hbase.HBaseTableUtil;
 import co.cask.cdap.data2.util.hbase.PutBuilder;
 import co.cask.cdap.data2.util.hbase.ScanBuilder;
 import co.cask.cdap.proto.id.NamespaceId;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.client.Delete;
@@ -41,6 +46,7 @@ import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.util.Pair;
+import org.apache.hadoop.ipc.RemoteException;
 
 import java.io.IOException;
 import java.util.List;
@@ -52,7 +58,7 @@ import javax.annotation.Nullable;
 /**
  * An HBase metrics table client.
  */
-public class HBaseMetricsTable implements MetricsTable {
+public class HBaseMetricsTable implements AggregatingMetricsTable {
 
   private final HBaseTableUtil tableUtil;
   private final TableId tableId;
@@ -219,6 +225,26 @@ public class HBaseMetricsTable implements MetricsTable {
                       @Nullable FuzzyRowFilter filter) {
     ScanBuilder scanBuilder = tableUtil.buildScan();
     configureRangeScan(scanBuilder, startRow, stopRow, filter);
+    return getScanner(scanBuilder);
+  }
+
+  @Override
+  public Scanner scan(@Nullable byte[] startRow, @Nullable byte[] stopRow, @Nullable FuzzyRowFilter filter,
+                      FactAggregation aggregation) {
+    // The increment handler coprocessor aggregates the rows of each region if the attribute is set
+    ScanBuilder scanBuilder = tableUtil.buildScan();
+    configureRangeScan(scanBuilder, startRow, stopRow, filter);
+    scanBuilder.setAttribute(FactAggregation.SCAN_ATTRIBUTE, aggregation.toBytes());
+    // Lets the coprocessor tell a scan resumed in the middle of a region, which it refuses
+    scanBuilder.setAttribute(FactAggregation.START_ROW_ATTRIBUTE, startRow == null ? new byte[0] : startRow);
+    try {
+      return new AggregatedScanner(hTable.getScanner(scanBuilder.build()), columnFamily);
+    } catch (IOException e) {
+      throw new DataSetException("Scan failed on table " + tableId, e);
+    }
+  }
+
+  private Scanner getScanner(ScanBuilder scanBuilder) {
     try {
       ResultScanner resultScanner = hTable.getScanner(scanBuilder.build());
       return new HBaseScanner(resultScanner, columnFamily);
@@ -253,4 +279,31 @@ public class HBaseMetricsTable implements MetricsTable {
   public void close() throws IOException {
     hTable.close();
   }
+
+  /**
+   * Scanner of aggregated facts, which fails with {@link AggregatedScanInterruptedException} if the coprocessor
+   * refused to resume the scan in the middle of a region.
+   */
+  private final class AggregatedScanner extends HBaseScanner {
+
+    AggregatedScanner(ResultScanner scanner, byte[] columnFamily) {
+      super(scanner, columnFamily);
+    }
+
+    @Override
+    public Row next() {
+      try {
+        return super.next();
+      } catch (RuntimeException e) {
+        for (Throwable cause : Throwables.getCausalChain(e)) {
+          // The exception is not unwrapped if its class is unknown to the client
+          if (cause instanceof ResumedFactScanException || (cause instanceof RemoteException &&
+            ResumedFactScanException.class.getName().equals(((RemoteException) cause).getClassName()))) {
+            throw new AggregatedScanInterruptedException("Aggregated scan interrupted on table " + tableId, e);
+          }
+        }
+        throw e;
+      }
+    }
+  }
 }
@@ -928,6 +928,84 @@ public class KeyValue {
     out.write(this.bytes, this.offset, this.length);
   }
 
+  /**
+   * Creates the key portion of a KeyValue. This is equivalent to {@code new KeyValue(...).getKey()}, but writes the
+   * key directly instead of creating the full KeyValue buffer and copying the key out of it.
+   * @param row row key
+   * @param family family name
+   * @param qualifier column qualifier, or null for an empty qualifier
+   * @param timestamp version timestamp
+   * @param type key type
+   * @return the key in a new byte array
+   */
+  public static byte[] createKey(final byte[] row, final byte[] family, final byte[] qualifier,
+                                 final long timestamp, final Type type) {
+    if (row == null) {
+      throw new IllegalArgumentException("Row is null");
+    }
+    int rlength = row.length;
+    if (rlength > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("Row > " + Short.MAX_VALUE);
+    }
+    int flength = family == null ? 0 : family.length;
+    if (flength > Byte.MAX_VALUE) {
+      throw new IllegalArgumentException("Family > " + Byte.MAX_VALUE);
+    }
+    int qlength = qualifier == null ? 0 : qualifier.length;
+    if (qlength > Integer.MAX_VALUE - rlength - flength - KEY_INFRASTRUCTURE_SIZE) {
+      throw new IllegalArgumentException("Qualifier > " + Integer.MAX_VALUE);
+    }
+
+    byte[] key = new byte[KEY_INFRASTRUCTURE_SIZE + rlength + flength + qlength];
+    int pos = Bytes.putShort(key, 0, (short) (rlength & 0x0000ffff));
+    pos = Bytes.putBytes(key, pos, row, 0, rlength);
+    pos = Bytes.putByte(key, pos, (byte) (flength & 0x0000ff));
+    if (flength != 0) {
+      pos = Bytes.putBytes(key, pos, family, 0, flength);
+    }
+    if (qlength != 0) {
+      pos = Bytes.putBytes(key, pos, qualifier, 0, qlength);
+    }
+    pos = Bytes.putLong(key, pos, timestamp);
+    Bytes.putByte(key, pos, type.getCode());
+    return key;
+  }
+
+  /**
+   * @param key the key portion of a KeyValue
+   * @return the length of the row in the key. The row starts at offset {@link #ROW_LENGTH_SIZE}.
+   */
+  public static short getKeyRowLength(final byte[] key) {
+    return Bytes.toShort(key, 0);
+  }
+
+  /**
+   * @param key the key portion of a KeyValue
+   * @param rlength the row length of the key, as returned by {@link #getKeyRowLength(byte[])}
+   * @return the offset of the qualifier in the key
+   */
+  public static int getKeyQualifierOffset(final byte[] key, final int rlength) {
+    int foffset = ROW_LENGTH_SIZE + rlength + FAMILY_LENGTH_SIZE;
+    return foffset + key[foffset - 1];
+  }
+
+  /**
+   * @param key the key portion of a KeyValue
+   * @param qoffset the qualifier offset of the key, as returned by {@link #getKeyQualifierOffset(byte[], int)}
+   * @return the length of the qualifier in the key
+   */
+  public static int getKeyQualifierLength(final byte[] key, final int qoffset) {
+    return key.length - TIMESTAMP_TYPE_SIZE - qoffset;
+  }
+
+  /**
+   * @param key the key portion of a KeyValue
+   * @return the timestamp of the key
+   */
+  public static long getKeyTimestamp(final byte[] key) {
+    return Bytes.toLong(key, key.length - TIMESTAMP_TYPE_SIZE);
+  }
+
   public static KeyValue fromKey(byte[] key) {
     int len = key.length + (2 * Bytes.SIZEOF_INT);
     byte[] kvBytes = new byte[len];
@@ -0,0 +1,191 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table.leveldb;
+
+import org.iq80.leveldb.DB;
+import org.iq80.leveldb.DBIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of idle {@link DBIterator}s of a LevelDB table, so that point gets and scans do not need to create a new
+ * iterator for every call. A LevelDB iterator only sees the data written before it was created, hence every write
+ * to the table must be followed by {@link #invalidate()}. Iterators created before the latest write are closed
+ * instead of being reused.
+ */
+final class LevelDBIteratorPool implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(LevelDBIteratorPool.class);
+
+  private final DB db;
+  private final int maxIdle;
+  private final Deque<PooledIterator> idle;
+  private final AtomicLong writeVersion;
+  private boolean closed;
+
+  LevelDBIteratorPool(DB db, int maxIdle) {
+    this.db = db;
+    this.maxIdle = maxIdle;
+    this.idle = new ArrayDeque<>();
+    this.writeVersion = new AtomicLong();
+  }
+
+  /**
+   * @return the table this pool creates iterators for
+   */
+  DB getDB() {
+    return db;
+  }
+
+  /**
+   * Returns an iterator that sees all writes completed before this call. Closing the returned iterator
+   * returns it to the pool. The iterator position is undefined, hence it must be positioned with one of the
+   * seek methods before use.
+   */
+  DBIterator iterator() {
+    // The version must be read before creating the iterator, so that a concurrent write makes it stale
+    long version = writeVersion.get();
+    if (maxIdle > 0) {
+      synchronized (this) {
+        PooledIterator iterator;
+        while ((iterator = idle.pollFirst()) != null) {
+          if (iterator.version == version) {
+            iterator.released = false;
+            return iterator;
+          }
+          closeQuietly(iterator.delegate);
+        }
+      }
+    }
+    return new PooledIterator(db.iterator(), version);
+  }
+
+  /**
+   * Marks all existing iterators as stale. Must be called after every write to the table.
+   */
+  void invalidate() {
+    writeVersion.incrementAndGet();
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    PooledIterator iterator;
+    while ((iterator = idle.pollFirst()) != null) {
+      closeQuietly(iterator.delegate);
+    }
+  }
+
+  private void release(PooledIterator iterator) {
+    synchronized (this) {
+      if (!closed && idle.size() < maxIdle && iterator.version == writeVersion.get()) {
+        idle.addFirst(iterator);
+        return;
+      }
+    }
+    closeQuietly(iterator.delegate);
+  }
+
+  private static void closeQuietly(DBIterator iterator) {
+    try {
+      iterator.close();
+    } catch (Exception e) {
+      LOG.warn("Error closing LevelDB iterator", e);
+    }
+  }
+
+  /**
+   * A {@link DBIterator} that returns the underlying iterator to the pool on close.
+   */
+  private final class PooledIterator implements DBIterator {
+
+    private final DBIterator delegate;
+    private final long version;
+    private boolean released;
+
+    private PooledIterator(DBIterator delegate, long version) {
+      this.delegate = delegate;
+      this.version = version;
+    }
+
+    @Override
+    public void seek(byte[] key) {
+      delegate.seek(key);
+    }
+
+    @Override
+    public void seekToFirst() {
+      delegate.seekToFirst();
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> peekNext() {
+      return delegate.peekNext();
+    }
+
+    @Override
+    public boolean hasPrev() {
+      return delegate.hasPrev();
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> prev() {
+      return delegate.prev();
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> peekPrev() {
+      return delegate.peekPrev();
+    }
+
+    @Override
+    public void seekToLast() {
+      delegate.seekToLast();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return delegate.hasNext();
+    }
+
+    @Override
+    public Map.Entry<byte[], byte[]> next() {
+      return delegate.next();
+    }
+
+    @Override
+    public void remove() {
+      delegate.remove();
+    }
+
+    @Override
+    public void close() throws IOException {
+      // Guard against closing twice, which would put the same iterator into the pool twice
+      if (!released) {
+        released = true;
+        release(this);
+      }
+    }
+  }
+}
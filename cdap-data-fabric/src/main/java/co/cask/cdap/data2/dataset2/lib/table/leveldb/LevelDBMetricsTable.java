@@ -19,11 +19,15 @@ package co.cask.cdap.data2.dataset2.lib.table.leveldb;
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DataSetException;
 import co.cask.cdap.api.dataset.DatasetContext;
+import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.data2.dataset2.lib.table.AggregatingMetricsTable;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
-import co.cask.cdap.data2.dataset2.lib.table.MetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryScanner;
 import co.cask.cdap.data2.dataset2.lib.table.inmemory.PrefixedNamespaces;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactAggregation;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactAggregator;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
@@ -37,7 +41,7 @@ import javax.annotation.Nullable;
 /**
  * A metrics table client based on leveldb.
  */
-public class LevelDBMetricsTable implements MetricsTable {
+public class LevelDBMetricsTable implements AggregatingMetricsTable {
 
   private static final Function<Long, byte[]> LONG_TO_BYTES = new Function<Long, byte[]>() {
     @Override
@@ -144,6 +148,24 @@ public class LevelDBMetricsTable implements MetricsTable {
     }
   }
 
+  @Override
+  public Scanner scan(@Nullable byte[] start, @Nullable byte[] stop, @Nullable FuzzyRowFilter filter,
+                      FactAggregation aggregation) {
+    // Aggregate while reading from LevelDB, so that only aggregated rows are decoded into facts
+    FactAggregator aggregator = new FactAggregator(aggregation);
+    try (Scanner scanner = core.scan(start, stop, filter, null, null)) {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        for (Map.Entry<byte[], byte[]> column : row.getColumns().entrySet()) {
+          aggregator.add(row.getRow(), column.getKey(), column.getValue());
+        }
+      }
+    } catch (IOException e) {
+      throw new DataSetException("Scan failed on table " + tableName, e);
+    }
+    return new InMemoryScanner(aggregator.getResults().entrySet().iterator());
+  }
+
   @Override
   public void close() throws IOException {
     // Do nothing
@@ -91,6 +91,25 @@ public class LevelDBTableCore {
     return service.getWriteOptions();
   }
 
+  /**
+   * Returns an iterator over the table. The iterator may be reused from an earlier read, hence it must be closed
+   * when done and positioned with a seek before use.
+   */
+  private DBIterator getIterator() throws IOException {
+    return service.getIteratorPool(tableName).iterator();
+  }
+
+  /**
+   * Writes a batch to the table with the configured write options, and invalidates the iterators created before.
+   */
+  private void write(DB db, WriteBatch batch) throws IOException {
+    try {
+      db.write(batch, getWriteOptions());
+    } finally {
+      service.getIteratorPool(tableName).invalidate();
+    }
+  }
+
 
   public synchronized boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
     byte[] existing = getRow(row, new byte[][] { column }, null, null, -1, null).get(column);
@@ -167,11 +186,15 @@ public class LevelDBTableCore {
         batch.put(key, column.getValue() == null ? DELETE_MARKER : column.getValue());
       }
     }
-    db.write(batch, service.getWriteOptions());
+    write(db, batch);
   }
 
   public void put(byte[] row, byte[] column, byte[] value, long version) throws IOException {
-    getDB().put(createPutKey(row, column, version), value);
+    try {
+      getDB().put(createPutKey(row, column, version), value, getWriteOptions());
+    } finally {
+      service.getIteratorPool(tableName).invalidate();
+    }
   }
 
   public void undo(Map<byte[], ? extends Map<byte[], ?>> persisted, long version) throws IOException {
@@ -186,7 +209,7 @@ public class LevelDBTableCore {
         batch.delete(key);
       }
     }
-    db.write(batch, service.getWriteOptions());
+    write(db, batch);
   }
 
   public Scanner scan(byte[] startRow, byte[] stopRow,
@@ -200,7 +223,7 @@ public class LevelDBTableCore {
       Arrays.sort(columns, Bytes.BYTES_COMPARATOR);
     }
 
-    DBIterator iterator = getDB().iterator();
+    DBIterator iterator = getIterator();
     seekToStart(iterator, startRow);
     byte[] endKey = stopRow == null ? null : createEndKey(stopRow);
     return new LevelDBScanner(iterator, endKey, filter, columns, tx);
@@ -223,7 +246,7 @@ public class LevelDBTableCore {
 
     byte[] startKey = createStartKey(row, columns == null ? startCol : columns[0]);
     byte[] endKey = createEndKey(row, columns == null ? stopCol : upperBound(columns[columns.length - 1]));
-    try (DBIterator iterator = getDB().iterator()) {
+    try (DBIterator iterator = getIterator()) {
       iterator.seek(startKey);
       return getRow(iterator, endKey, tx, false, columns, limit).getSecond();
     }
@@ -263,26 +286,24 @@ public class LevelDBTableCore {
     throws IOException {
 
     byte[] rowBeingRead = null;
-    byte[] previousRow = null;
-    byte[] previousCol = null;
+    byte[] previousKey = null;
     NavigableMap<byte[], byte[]> map = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
 
+    // the row and qualifier are compared in place in the keys, and only copied for the returned row and columns
     while (iterator.hasNext()) {
       Map.Entry<byte[], byte[]> entry = iterator.peekNext();
+      byte[] key = entry.getKey();
 
       // if we have reached past the endKey, nothing was found, return null
-      if (endKey != null && KeyValue.KEY_COMPARATOR.compare(entry.getKey(), endKey) >= 0) {
+      if (endKey != null && KeyValue.KEY_COMPARATOR.compare(key, endKey) >= 0) {
         break;
       }
 
       // if this is part of a multi-row scan and we reach the next row, stop without advancing iterator
-      KeyValue kv = KeyValue.fromKey(entry.getKey());
-      if (multiRow) {
-        byte[] rowKey = kv.getRow();
-        if (rowBeingRead != null) {
-          if (Bytes.compareTo(rowKey, rowBeingRead) > 0) {
-            break;
-          }
+      int rowLength = KeyValue.getKeyRowLength(key);
+      if (multiRow && rowBeingRead != null) {
+        if (Bytes.compareTo(key, KeyValue.ROW_LENGTH_SIZE, rowLength, rowBeingRead, 0, rowBeingRead.length) > 0) {
+          break;
         }
       }
 
@@ -290,31 +311,28 @@ public class LevelDBTableCore {
       iterator.next();
 
       // Determine if this KV is visible
-      if (tx != null && !tx.isVisible(kv.getTimestamp())) {
+      if (tx != null && !tx.isVisible(KeyValue.getKeyTimestamp(key))) {
         continue;
       }
 
       // have we seen this row & column before?
-      byte[] row = kv.getRow();
-      byte[] column = kv.getQualifier();
-      boolean seenThisColumn = previousRow != null && Bytes.equals(previousRow, row) &&
-                               previousCol != null && Bytes.equals(previousCol, column);
-      if (seenThisColumn) {
+      if (previousKey != null && isSameColumn(previousKey, key)) {
         continue;
       }
       // remember that this is the last column we have seen
-      previousRow = row;
-      previousCol = column;
+      previousKey = key;
 
       // is it a column we want?
-      if (columns == null || Arrays.binarySearch(columns, column, Bytes.BYTES_COMPARATOR) >= 0) {
+      int qualifierOffset = KeyValue.getKeyQualifierOffset(key, rowLength);
+      int qualifierLength = KeyValue.getKeyQualifierLength(key, qualifierOffset);
+      if (columns == null || containsColumn(columns, key, qualifierOffset, qualifierLength)) {
         byte[] value = entry.getValue();
         // only add to map if it is not a delete
         if (tx == null || !Bytes.equals(value, DELETE_MARKER)) {
-          map.put(column, value);
+          map.put(Arrays.copyOfRange(key, qualifierOffset, qualifierOffset + qualifierLength), value);
           // first time we add a column. must remember the row key to know when to stop
           if (multiRow && rowBeingRead == null) {
-            rowBeingRead = kv.getRow();
+            rowBeingRead = Arrays.copyOfRange(key, KeyValue.ROW_LENGTH_SIZE, KeyValue.ROW_LENGTH_SIZE + rowLength);
           }
           if (limit > 0 && map.size() >= limit) {
             break;
@@ -326,22 +344,51 @@ public class LevelDBTableCore {
     return new ImmutablePair<>(rowBeingRead, map);
   }
 
+  /**
+   * Returns whether two keys are of the same row and column, that is, they only differ in timestamp and type.
+   */
+  private static boolean isSameColumn(byte[] key1, byte[] key2) {
+    int length = key1.length - KeyValue.TIMESTAMP_TYPE_SIZE;
+    return key1.length == key2.length && Bytes.equals(key1, 0, length, key2, 0, length);
+  }
+
+  /**
+   * Binary searches the sorted columns for the qualifier at the given position of a key.
+   */
+  private static boolean containsColumn(byte[][] columns, byte[] key, int qualifierOffset, int qualifierLength) {
+    int low = 0;
+    int high = columns.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = Bytes.compareTo(columns[mid], 0, columns[mid].length, key, qualifierOffset, qualifierLength);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
   public void deleteRows(byte[] prefix) throws IOException {
     Preconditions.checkNotNull(prefix, "prefix must not be null");
     DB db = getDB();
     WriteBatch batch = db.createWriteBatch();
-    try (DBIterator iterator = db.iterator()) {
+    try (DBIterator iterator = getIterator()) {
       iterator.seek(createStartKey(prefix));
       while (iterator.hasNext()) {
-        Map.Entry<byte[], byte[]> entry = iterator.next();
-        if (!Bytes.startsWith(KeyValue.fromKey(entry.getKey()).getRow(), prefix)) {
+        byte[] key = iterator.next().getKey();
+        if (KeyValue.getKeyRowLength(key) < prefix.length
+          || !Bytes.equals(key, KeyValue.ROW_LENGTH_SIZE, prefix.length, prefix, 0, prefix.length)) {
           // iterator is past prefix
           break;
         }
-        batch.delete(entry.getKey());
+        batch.delete(key);
       }
-      db.write(batch);
     }
+    write(db, batch);
   }
 
   /**
@@ -358,7 +405,7 @@ public class LevelDBTableCore {
     byte[] startKey = createStartKey(currentRow);
     DB db = getDB();
     WriteBatch batch = db.createWriteBatch();
-    try (DBIterator iterator = db.iterator()) {
+    try (DBIterator iterator = getIterator()) {
       iterator.seek(startKey);
       if (!iterator.hasNext()) {
         return; // nothing in the db to delete
@@ -367,8 +414,9 @@ public class LevelDBTableCore {
 
       // iterate over the database and the rows to delete, collecting (raw) keys to delete
       while (entry != null && currentRow != null) {
-        KeyValue kv = KeyValue.fromKey(entry.getKey());
-        int comp = Bytes.compareTo(kv.getRow(), currentRow);
+        byte[] key = entry.getKey();
+        int comp = Bytes.compareTo(key, KeyValue.ROW_LENGTH_SIZE, KeyValue.getKeyRowLength(key),
+                                   currentRow, 0, currentRow.length);
         if (comp == 0) {
           // same row -> delete
           batch.delete(entry.getKey());
@@ -384,7 +432,7 @@ public class LevelDBTableCore {
       }
     }
     // delete all the entries that were found
-    db.write(batch, getWriteOptions());
+    write(db, batch);
   }
 
   public void deleteRange(byte[] startRow, byte[] stopRow, @Nullable FuzzyRowFilter filter, @Nullable byte[][] columns)
@@ -398,11 +446,11 @@ public class LevelDBTableCore {
     }
 
     DB db = getDB();
-    DBIterator iterator = db.iterator();
+    DBIterator iterator = getIterator();
     seekToStart(iterator, startRow);
     byte[] endKey = stopRow == null ? null : createEndKey(stopRow);
 
-    DBIterator deleteIterator = db.iterator();
+    DBIterator deleteIterator = getIterator();
     seekToStart(deleteIterator, startRow);
     final int deletesPerRound = 1024; // todo make configurable
     try (Scanner scanner = new LevelDBScanner(iterator, endKey, filter, columns, null)) {
@@ -420,7 +468,7 @@ public class LevelDBTableCore {
           // perform the deletes when we have built up a batch.
           if (deletesInBatch >= deletesPerRound) {
             // delete all the entries that were found
-            db.write(batch, getWriteOptions());
+            write(db, batch);
             batch = db.createWriteBatch();
             deletesInBatch = 0;
           }
@@ -429,7 +477,7 @@ public class LevelDBTableCore {
 
       // perform any outstanding deletes
       if (deletesInBatch > 0) {
-        db.write(batch, getWriteOptions());
+        write(db, batch);
       }
     } finally {
       deleteIterator.close();
@@ -439,10 +487,10 @@ public class LevelDBTableCore {
   public void deleteColumn(byte[] row, byte[] column) throws IOException {
     DB db = getDB();
     WriteBatch batch = db.createWriteBatch();
-    try (DBIterator iterator = db.iterator()) {
+    try (DBIterator iterator = getIterator()) {
       addToDeleteBatch(batch, iterator, row, column);
-      db.write(batch);
     }
+    write(db, batch);
   }
 
   /**
@@ -547,11 +595,11 @@ public class LevelDBTableCore {
   // ------- helpers to create the keys for writes and scans ----------
 
   private static byte[] createPutKey(byte[] rowKey, byte[] columnKey, long version) {
-    return new KeyValue(rowKey, DATA_COLFAM, columnKey, version, KeyValue.Type.Put).getKey();
+    return KeyValue.createKey(rowKey, DATA_COLFAM, columnKey, version, KeyValue.Type.Put);
   }
 
   private static byte[] createStartKey(byte[] row) { // the first possible key of a row
-    return new KeyValue(row, DATA_COLFAM, null, KeyValue.LATEST_TIMESTAMP, KeyValue.Type.Maximum).getKey();
+    return KeyValue.createKey(row, DATA_COLFAM, null, KeyValue.LATEST_TIMESTAMP, KeyValue.Type.Maximum);
   }
 
   private static byte[] createEndKey(byte[] row) {
@@ -559,16 +607,16 @@ public class LevelDBTableCore {
   }
 
   private static byte[] createStartKey(byte[] row, byte[] column) {
-    return new KeyValue(row, DATA_COLFAM, column, KeyValue.LATEST_TIMESTAMP, KeyValue.Type.Maximum).getKey();
+    return KeyValue.createKey(row, DATA_COLFAM, column, KeyValue.LATEST_TIMESTAMP, KeyValue.Type.Maximum);
   }
 
   private static byte[] createEndKey(byte[] row, byte[] column) {
     if (column != null) {
       // we have a stop column and can use that as an upper bound
-      return new KeyValue(row, DATA_COLFAM, column, KeyValue.LATEST_TIMESTAMP, KeyValue.Type.Maximum).getKey();
+      return KeyValue.createKey(row, DATA_COLFAM, column, KeyValue.LATEST_TIMESTAMP, KeyValue.Type.Maximum);
     } else {
       // no stop column - use next column family as upper bound
-      return new KeyValue(row, NEXT_COLFAM, null, KeyValue.LATEST_TIMESTAMP, KeyValue.Type.Maximum).getKey();
+      return KeyValue.createKey(row, NEXT_COLFAM, null, KeyValue.LATEST_TIMESTAMP, KeyValue.Type.Maximum);
     }
   }
 }
@@ -58,8 +58,10 @@ public class LevelDBTableService {
   private long cacheSize;
   private String basePath;
   private WriteOptions writeOptions;
+  private int iteratorPoolSize;
 
   private final ConcurrentMap<String, DB> tables = Maps.newConcurrentMap();
+  private final ConcurrentMap<String, LevelDBIteratorPool> iteratorPools = Maps.newConcurrentMap();
 
   private static final LevelDBTableService SINGLETON = new LevelDBTableService();
 
@@ -86,6 +88,8 @@ public class LevelDBTableService {
     cacheSize = config.getLong(Constants.CFG_DATA_LEVELDB_CACHESIZE, Constants.DEFAULT_DATA_LEVELDB_CACHESIZE);
     writeOptions = new WriteOptions().sync(
       config.getBoolean(Constants.CFG_DATA_LEVELDB_FSYNC, Constants.DEFAULT_DATA_LEVELDB_FSYNC));
+    iteratorPoolSize = config.getInt(Constants.CFG_DATA_LEVELDB_ITERATOR_POOL_SIZE,
+                                     Constants.DEFAULT_DATA_LEVELDB_ITERATOR_POOL_SIZE);
   }
 
   /**
@@ -93,6 +97,10 @@ public class LevelDBTableService {
    */
   public void clearTables() {
     tables.clear();
+    for (LevelDBIteratorPool pool : iteratorPools.values()) {
+      pool.close();
+    }
+    iteratorPools.clear();
   }
 
   public Collection<String> list() throws Exception {
@@ -167,6 +175,28 @@ public class LevelDBTableService {
     return db;
   }
 
+  /**
+   * Returns the pool of iterators for the given table. Writes to the table must invalidate the pool.
+   */
+  LevelDBIteratorPool getIteratorPool(String tableName) throws IOException {
+    DB db = getTable(tableName);
+    LevelDBIteratorPool pool = iteratorPools.get(tableName);
+    if (pool == null || pool.getDB() != db) {
+      synchronized (iteratorPools) {
+        pool = iteratorPools.get(tableName);
+        // the table may have been dropped and reopened since the pool was created
+        if (pool == null || pool.getDB() != db) {
+          if (pool != null) {
+            pool.close();
+          }
+          pool = new LevelDBIteratorPool(db, iteratorPoolSize);
+          iteratorPools.put(tableName, pool);
+        }
+      }
+    }
+    return pool;
+  }
+
   public void ensureTableExists(String tableName) throws IOException {
     DB db = tables.get(tableName);
     if (db == null) {
@@ -217,6 +247,10 @@ public class LevelDBTableService {
   }
 
   public void dropTable(String name) throws IOException {
+    LevelDBIteratorPool pool = iteratorPools.remove(name);
+    if (pool != null) {
+      pool.close();
+    }
     DB db = tables.remove(name);
     if (db != null) {
       db.close();
@@ -0,0 +1,191 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.timeseries;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Defines how the facts returned by a scan of a {@link FactTable} are aggregated before they are returned, so that
+ * the aggregation can be executed close to the data, e.g. in a coprocessor. Facts are grouped by the encoded
+ * values of the group by dimensions, the measure and the time base of the row. All cells of a group with the same
+ * timestamp are aggregated with the function of the measure. See {@link FactAggregator}.
+ * <p/>
+ * Only encoded ids are used, hence it can be applied without access to the entity table.
+ */
+public final class FactAggregation {
+
+  /**
+   * Name of the scan attribute that carries the encoded aggregation.
+   */
+  public static final String SCAN_ATTRIBUTE = "cdap.metrics.fact.aggregation";
+
+  /**
+   * Name of the scan attribute that carries the start row of the whole scan, empty if it starts at the first row of
+   * the table. See {@link #isResumed(byte[], byte[], byte[])}.
+   */
+  public static final String START_ROW_ATTRIBUTE = "cdap.metrics.fact.aggregation.start";
+
+  private static final byte VERSION = 1;
+
+  private final int idSize;
+  private final int resolution;
+  private final long startTs;
+  private final long endTs;
+  // indexes of the group by dimensions in the row key
+  private final int[] groupByDimensions;
+  // encoded measure name -> function to aggregate values of the measure
+  private final Map<Long, AggregationFunction> functions;
+
+  public FactAggregation(int idSize, int resolution, long startTs, long endTs, int[] groupByDimensions,
+                         Map<Long, AggregationFunction> functions) {
+    this.idSize = idSize;
+    this.resolution = resolution;
+    this.startTs = startTs;
+    this.endTs = endTs;
+    this.groupByDimensions = Arrays.copyOf(groupByDimensions, groupByDimensions.length);
+    Arrays.sort(this.groupByDimensions);
+    this.functions = Collections.unmodifiableMap(new HashMap<>(functions));
+  }
+
+  public int getIdSize() {
+    return idSize;
+  }
+
+  public int getResolution() {
+    return resolution;
+  }
+
+  public long getStartTs() {
+    return startTs;
+  }
+
+  public long getEndTs() {
+    return endTs;
+  }
+
+  /**
+   * @return sorted indexes of the dimensions to group by
+   */
+  public int[] getGroupByDimensions() {
+    return Arrays.copyOf(groupByDimensions, groupByDimensions.length);
+  }
+
+  /**
+   * @return the function to aggregate values of the measure with the given encoded name, or {@code null} if values
+   *         of the measure are not part of the result
+   */
+  @Nullable
+  public AggregationFunction getFunction(long measureId) {
+    return functions.get(measureId);
+  }
+
+  /**
+   * Tells whether the scan of a region resumes a scan that was interrupted after returning some aggregated rows,
+   * for example after a timeout or a region move. The scan of a region normally starts either at the start row of the
+   * whole scan or at the start of the region. The rows of a region are aggregated in batches and the groups of a
+   * batch interleave, hence a scan resumed after an aggregated row would miss the rows of the groups not returned yet.
+   *
+   * @param scanStartRow the start row of the scan of the region
+   * @param startRow the start row of the whole scan, as set in {@link #START_ROW_ATTRIBUTE}, or {@code null} if the
+   *                 client did not set it
+   * @param regionStartKey the start key of the region
+   */
+  public static boolean isResumed(byte[] scanStartRow, @Nullable byte[] startRow, byte[] regionStartKey) {
+    return startRow != null && !Arrays.equals(scanStartRow, startRow) && !Arrays.equals(scanStartRow, regionStartKey);
+  }
+
+  public byte[] toBytes() {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bos);
+    try {
+      output.writeByte(VERSION);
+      output.writeInt(idSize);
+      output.writeInt(resolution);
+      output.writeLong(startTs);
+      output.writeLong(endTs);
+      output.writeInt(groupByDimensions.length);
+      for (int dimension : groupByDimensions) {
+        output.writeInt(dimension);
+      }
+      output.writeInt(functions.size());
+      for (Map.Entry<Long, AggregationFunction> entry : functions.entrySet()) {
+        output.writeLong(entry.getKey());
+        output.writeUTF(entry.getValue().name());
+      }
+      output.close();
+    } catch (IOException e) {
+      // SHOULD NEVER happen
+      throw new RuntimeException(e);
+    }
+    return bos.toByteArray();
+  }
+
+  /**
+   * Decodes a {@link FactAggregation} encoded with {@link #toBytes()}.
+   *
+   * @throws IllegalArgumentException if the given bytes are not a valid encoded aggregation
+   */
+  public static FactAggregation fromBytes(byte[] bytes) {
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+    try {
+      byte version = input.readByte();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported fact aggregation version " + version);
+      }
+      int idSize = input.readInt();
+      int resolution = input.readInt();
+      long startTs = input.readLong();
+      long endTs = input.readLong();
+      int[] groupByDimensions = new int[input.readInt()];
+      for (int i = 0; i < groupByDimensions.length; i++) {
+        groupByDimensions[i] = input.readInt();
+      }
+      int size = input.readInt();
+      Map<Long, AggregationFunction> functions = new HashMap<>();
+      for (int i = 0; i < size; i++) {
+        long measureId = input.readLong();
+        functions.put(measureId, AggregationFunction.valueOf(input.readUTF()));
+      }
+      return new FactAggregation(idSize, resolution, startTs, endTs, groupByDimensions, functions);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to decode fact aggregation", e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "FactAggregation{" +
+      "idSize=" + idSize +
+      ", resolution=" + resolution +
+      ", startTs=" + startTs +
+      ", endTs=" + endTs +
+      ", groupByDimensions=" + Arrays.toString(groupByDimensions) +
+      ", functions=" + functions +
+      '}';
+  }
+}
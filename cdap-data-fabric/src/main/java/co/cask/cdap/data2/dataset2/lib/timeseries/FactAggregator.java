@@ -0,0 +1,211 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.timeseries;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.Distribution;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Aggregates the cells of fact rows as defined by a {@link FactAggregation}, producing rows in the same format as
+ * stored in a {@link FactTable}, so that they can be read by {@link FactScanner}.
+ * <p/>
+ * Each resulting row carries the key of the first row of its group, hence results are ordered the same way as the
+ * rows they were aggregated from. Values of distribution measures are kept as distributions, so that percentiles
+ * can still be computed from the result; values of other measures queried for percentiles are turned into
+ * distributions. Rows that have no value for a group by dimension, measures without an aggregation function and
+ * cells outside of the time range are dropped, the same way as they are ignored when aggregating the query result.
+ * <p/>
+ * This class is used in coprocessors, hence it must only depend on classes available in the region server.
+ * It is not thread safe.
+ */
+public final class FactAggregator {
+
+  private final FactAggregation aggregation;
+  private final int idSize;
+  private final int[] groupByOffsets;
+  private final Map<ByteBuffer, Group> groups;
+
+  private byte[] lastRow;
+  private Group lastGroup;
+
+  public FactAggregator(FactAggregation aggregation) {
+    this.aggregation = aggregation;
+    this.idSize = aggregation.getIdSize();
+    int[] groupByDimensions = aggregation.getGroupByDimensions();
+    this.groupByOffsets = new int[groupByDimensions.length];
+    for (int i = 0; i < groupByDimensions.length; i++) {
+      groupByOffsets[i] = FactCodec.getDimensionValueOffset(idSize, groupByDimensions[i]);
+    }
+    this.groups = new LinkedHashMap<>();
+  }
+
+  /**
+   * Adds a cell of a fact row. Cells of the same row are expected to be added one after another.
+   */
+  public void add(byte[] row, byte[] column, byte[] value) {
+    if (lastRow == null || !Arrays.equals(lastRow, row)) {
+      lastRow = row;
+      lastGroup = getGroup(row);
+    }
+    if (lastGroup == null) {
+      return;
+    }
+
+    int timeBase = Bytes.toInt(row, FactCodec.getTimeBaseOffset(idSize));
+    long ts = timeBase + (long) Bytes.toShort(column) * aggregation.getResolution();
+    if (ts < aggregation.getStartTs() || ts > aggregation.getEndTs()) {
+      return;
+    }
+    lastGroup.add(column, value);
+  }
+
+  /**
+   * Returns the aggregated rows and clears this aggregator.
+   *
+   * @return map from row key to columns of the row
+   */
+  public NavigableMap<byte[], NavigableMap<byte[], byte[]>> getResults() {
+    NavigableMap<byte[], NavigableMap<byte[], byte[]>> results = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    for (Group group : groups.values()) {
+      if (!group.values.isEmpty()) {
+        results.put(group.row, group.getColumns());
+      }
+    }
+    groups.clear();
+    lastRow = null;
+    lastGroup = null;
+    return results;
+  }
+
+  /**
+   * Returns the group of the given row, or {@code null} if the row should not be aggregated.
+   */
+  private Group getGroup(byte[] row) {
+    int measureOffset = row.length - idSize;
+    AggregationFunction function = aggregation.getFunction(readEncoded(row, measureOffset));
+    if (function == null) {
+      return null;
+    }
+
+    // group key is agg group and time base, group by dimension values and measure
+    int prefixLength = FactCodec.getDimensionValueOffset(idSize, 0);
+    byte[] key = new byte[prefixLength + (groupByOffsets.length + 1) * idSize];
+    System.arraycopy(row, 0, key, 0, prefixLength);
+    int offset = prefixLength;
+    for (int groupByOffset : groupByOffsets) {
+      if (groupByOffset + idSize > measureOffset || readEncoded(row, groupByOffset) == 0) {
+        // null values are not returned as group by values
+        return null;
+      }
+      System.arraycopy(row, groupByOffset, key, offset, idSize);
+      offset += idSize;
+    }
+    System.arraycopy(row, measureOffset, key, offset, idSize);
+
+    ByteBuffer groupKey = ByteBuffer.wrap(key);
+    Group group = groups.get(groupKey);
+    if (group == null) {
+      group = new Group(row, function);
+      groups.put(groupKey, group);
+    }
+    return group;
+  }
+
+  private long readEncoded(byte[] bytes, int offset) {
+    long id = 0;
+    for (int i = 0; i < idSize; i++) {
+      id = (id << 8) | (bytes[offset + i] & 0xff);
+    }
+    return id;
+  }
+
+  /**
+   * Aggregated values of a group, by column.
+   */
+  private static final class Group {
+    private final byte[] row;
+    private final AggregationFunction function;
+    private final boolean percentile;
+    private final NavigableMap<byte[], Object> values;
+
+    private Group(byte[] row, AggregationFunction function) {
+      this.row = row;
+      this.function = function;
+      this.percentile = function == AggregationFunction.P50
+        || function == AggregationFunction.P95 || function == AggregationFunction.P99;
+      this.values = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    }
+
+    void add(byte[] column, byte[] value) {
+      if (value.length < Bytes.SIZEOF_LONG) {
+        return;
+      }
+      // values longer than a long are distributions, see FactTable.add
+      Distribution distribution = value.length > Bytes.SIZEOF_LONG ? Distribution.fromBytes(value) : null;
+      Object existing = values.get(column);
+
+      if (percentile) {
+        Distribution merged = existing == null ? new Distribution() : (Distribution) existing;
+        if (distribution != null) {
+          merged.merge(distribution);
+        } else {
+          merged.add(Bytes.toLong(value));
+        }
+        values.put(column, merged);
+        return;
+      }
+
+      long newValue = distribution == null ? Bytes.toLong(value) : distribution.getCount();
+      if (existing != null) {
+        long current = (Long) existing;
+        switch (function) {
+          case SUM:
+            newValue += current;
+            break;
+          case MAX:
+            newValue = Math.max(current, newValue);
+            break;
+          case MIN:
+            newValue = Math.min(current, newValue);
+            break;
+          default:
+            // LATEST: the value of the row scanned last is kept
+            break;
+        }
+      }
+      values.put(column, newValue);
+    }
+
+    NavigableMap<byte[], byte[]> getColumns() {
+      NavigableMap<byte[], byte[]> columns = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+      for (Map.Entry<byte[], Object> entry : values.entrySet()) {
+        Object value = entry.getValue();
+        columns.put(entry.getKey(), value instanceof Distribution
+          ? ((Distribution) value).toBytes() : Bytes.toBytes((Long) value));
+      }
+      return columns;
+    }
+  }
+}
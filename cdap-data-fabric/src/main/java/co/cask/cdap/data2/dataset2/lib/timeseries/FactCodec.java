@@ -253,9 +253,7 @@ public class FactCodec {
     // todo: assert count of dimension values is same as dimension names?
     List<DimensionValue> dimensions = Lists.newArrayListWithCapacity(dimensionNames.length);
     for (int i = 0; i < dimensionNames.length; i++) {
-      // dimension values go right after encoded agg group and timebase (encoded as int)
-      long encodedDimensionValue =
-        readEncoded(rowKey, VERSION.length + entityTable.getIdSize() *  (i + 1) + Bytes.SIZEOF_INT);
+      long encodedDimensionValue = readEncoded(rowKey, getDimensionValueOffset(entityTable.getIdSize(), i));
       String dimensionValue = entityTable.getName(encodedDimensionValue, dimensionNames[i]);
       dimensions.add(new DimensionValue(dimensionNames[i], dimensionValue));
     }
@@ -264,14 +262,32 @@ public class FactCodec {
   }
 
   public long getTimestamp(byte[] rowKey, byte[] column) {
-    // timebase is encoded as int after the encoded agg group
-    int timebase = Bytes.toInt(rowKey, VERSION.length + entityTable.getIdSize());
+    int timebase = Bytes.toInt(rowKey, getTimeBaseOffset(entityTable.getIdSize()));
     // time leftover is encoded as 2 byte column name
     int leftover = Bytes.toShort(column) * resolution;
 
     return timebase + leftover;
   }
 
+  /**
+   * Returns the offset of the time base in a row key.
+   * @param idSize size of encoded ids
+   */
+  static int getTimeBaseOffset(int idSize) {
+    // timebase is encoded as int after the encoded agg group
+    return VERSION.length + idSize;
+  }
+
+  /**
+   * Returns the offset of an encoded dimension value in a row key.
+   * @param idSize size of encoded ids
+   * @param index position of the dimension in the aggregation group
+   */
+  static int getDimensionValueOffset(int idSize, int index) {
+    // dimension values go right after encoded agg group and timebase (encoded as int)
+    return VERSION.length + idSize * (index + 1) + Bytes.SIZEOF_INT;
+  }
+
   static byte[][] getSplits(int aggGroupsCount) {
     // Row key format:
     // <version><encoded agg group><time base>...
@@ -18,12 +18,14 @@ package co.cask.cdap.data2.dataset2.lib.timeseries;
 
 import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
+import co.cask.cdap.api.dataset.lib.cube.Distribution;
 import co.cask.cdap.api.dataset.lib.cube.TimeValue;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 import java.util.Collection;
 import java.util.Iterator;
@@ -108,6 +110,7 @@ public final class FactScanner implements Iterator<FactScanResult> {
 
           boolean exhausted = false;
           List<TimeValue> timeValues = Lists.newLinkedList();
+          Map<Long, Distribution> distributions = null;
           // todo: entry set is ordered by ts?
           for (Map.Entry<byte[], byte[]> columnValue : rowResult.getColumns().entrySet()) {
             long ts = codec.getTimestamp(rowKey, columnValue.getKey());
@@ -120,8 +123,20 @@ public final class FactScanner implements Iterator<FactScanResult> {
               break;
             }
 
+            byte[] value = columnValue.getValue();
+            if (value.length > Bytes.SIZEOF_LONG) {
+              // distribution measure, see FactTable.add
+              Distribution distribution = Distribution.fromBytes(value);
+              if (distributions == null) {
+                distributions = Maps.newHashMap();
+              }
+              distributions.put(ts, distribution);
+              timeValues.add(new TimeValue(ts, distribution.getCount()));
+              continue;
+            }
+
             // todo: move Bytes.toLong into codec?
-            TimeValue timeValue = new TimeValue(ts, Bytes.toLong(columnValue.getValue()));
+            TimeValue timeValue = new TimeValue(ts, Bytes.toLong(value));
             timeValues.add(timeValue);
           }
 
@@ -130,6 +145,9 @@ public final class FactScanner implements Iterator<FactScanResult> {
           }
 
           // todo: can return empty list, if all data is < startTs or > endTs
+          if (distributions != null) {
+            return new FactScanResult(measureName, dimensionValues, timeValues, distributions);
+          }
           return new FactScanResult(measureName, dimensionValues, timeValues);
         }
 
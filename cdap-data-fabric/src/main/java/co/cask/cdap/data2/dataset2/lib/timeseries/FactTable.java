@@ -16,13 +16,16 @@
 package co.cask.cdap.data2.dataset2.lib.timeseries;
 
 import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
 import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
+import co.cask.cdap.api.dataset.lib.cube.Distribution;
 import co.cask.cdap.api.dataset.lib.cube.MeasureType;
 import co.cask.cdap.api.dataset.lib.cube.Measurement;
 import co.cask.cdap.api.dataset.table.Row;
 import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.metrics.MetricsCollector;
 import co.cask.cdap.common.utils.ImmutablePair;
+import co.cask.cdap.data2.dataset2.lib.table.AggregatingMetricsTable;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import co.cask.cdap.data2.dataset2.lib.table.MetricsTable;
 import com.google.common.base.Function;
@@ -60,6 +63,8 @@ public final class FactTable implements Closeable {
   // hard limits on some ops to stay on safe side
   private static final int MAX_RECORDS_TO_SCAN_DURING_SEARCH = 10 * 1000 * 1000;
   private static final int MAX_SCANS_DURING_SEARCH = 10 * 1000;
+  // limit on attempts to merge a distribution into a cell that is concurrently updated
+  private static final int MAX_MERGE_ATTEMPTS = 100;
 
   private static final Function<byte[], Long> BYTES_TO_LONG = new Function<byte[], Long>() {
     @Override
@@ -85,6 +90,7 @@ public final class FactTable implements Closeable {
 
   private final String putCountMetric;
   private final String incrementCountMetric;
+  private final String mergeCountMetric;
 
   @Nullable
   private MetricsCollector metrics;
@@ -112,6 +118,7 @@ public final class FactTable implements Closeable {
     this.rollTime = rollTime;
     this.putCountMetric = "factTable." + resolution + ".put.count";
     this.incrementCountMetric = "factTable." + resolution + ".increment.count";
+    this.mergeCountMetric = "factTable." + resolution + ".merge.count";
   }
 
   public void setMetricsCollector(MetricsCollector metrics) {
@@ -122,6 +129,8 @@ public final class FactTable implements Closeable {
     // Simply collecting all rows/cols/values that need to be put to the underlying table.
     NavigableMap<byte[], NavigableMap<byte[], byte[]>> gaugesTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     NavigableMap<byte[], NavigableMap<byte[], byte[]>> incrementsTable = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    NavigableMap<byte[], NavigableMap<byte[], Distribution>> distributionsTable =
+      Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     for (Fact fact : facts) {
       for (Measurement measurement : fact.getMeasurements()) {
         byte[] rowKey = codec.createRowKey(fact.getDimensionValues(), measurement.getName(), fact.getTimestamp());
@@ -129,6 +138,8 @@ public final class FactTable implements Closeable {
 
         if (MeasureType.COUNTER == measurement.getType()) {
           inc(incrementsTable, rowKey, column, measurement.getValue());
+        } else if (MeasureType.DISTRIBUTION == measurement.getType() && measurement.getDistribution() != null) {
+          merge(distributionsTable, rowKey, column, measurement.getDistribution());
         } else {
           set(gaugesTable, rowKey, column, Bytes.toBytes(measurement.getValue()));
         }
@@ -144,12 +155,42 @@ public final class FactTable implements Closeable {
     // todo: replace with single call, to be able to optimize rpcs in underlying table
     timeSeriesTable.put(convertedGaugesTable);
     timeSeriesTable.increment(convertedIncrementsTable);
+    int merges = 0;
+    for (Map.Entry<byte[], NavigableMap<byte[], Distribution>> row : distributionsTable.entrySet()) {
+      for (Map.Entry<byte[], Distribution> cell : row.getValue().entrySet()) {
+        mergeDistribution(row.getKey(), cell.getKey(), cell.getValue());
+        merges++;
+      }
+    }
     if (metrics != null) {
       metrics.increment(putCountMetric, convertedGaugesTable.size());
       metrics.increment(incrementCountMetric, convertedIncrementsTable.size());
+      if (merges > 0) {
+        metrics.increment(mergeCountMetric, merges);
+      }
     }
   }
 
+  /**
+   * Merges the given {@link Distribution} into the one stored in a cell, using compare-and-swap so that concurrent
+   * writers of the same cell don't lose data points.
+   */
+  private void mergeDistribution(byte[] row, byte[] column, Distribution distribution) {
+    for (int i = 0; i < MAX_MERGE_ATTEMPTS; i++) {
+      byte[] existing = timeSeriesTable.get(row, column);
+      Distribution merged = new Distribution().merge(distribution);
+      // A cell that holds a number was written with a different measure type, and gets replaced
+      if (existing != null && existing.length > Bytes.SIZEOF_LONG) {
+        merged.merge(Distribution.fromBytes(existing));
+      }
+      if (timeSeriesTable.swap(row, column, existing, merged.toBytes())) {
+        return;
+      }
+    }
+    LOG.warn("Failed to merge distribution into fact table after {} attempts, dropping {} data points.",
+             MAX_MERGE_ATTEMPTS, distribution.getCount());
+  }
+
   private class MeasureNameComparator implements Comparator<String> {
     private final Map<String, Long> measureNameToEntityIdMap;
 
@@ -167,6 +208,47 @@ public final class FactTable implements Closeable {
     return new FactScanner(getScanner(scan), codec, scan.getStartTs(), scan.getEndTs(), scan.getMeasureNames());
   }
 
+  /**
+   * Scans facts, letting the underlying table aggregate them by the given dimensions and time if it supports it.
+   * Facts returned may be aggregated partially or not at all, hence the caller must still aggregate them.
+   *
+   * @param scan specifies the facts to scan
+   * @param groupByDimensions names of the dimensions to group facts by
+   * @param functions aggregation function of each measure to scan
+   */
+  public FactScanner scan(FactScan scan, Collection<String> groupByDimensions,
+                          Map<String, AggregationFunction> functions) {
+    if (!(timeSeriesTable instanceof AggregatingMetricsTable)) {
+      return scan(scan);
+    }
+
+    List<DimensionValue> dimensionValues = scan.getDimensionValues();
+    int[] groupByIndexes = new int[groupByDimensions.size()];
+    int i = 0;
+    for (String dimensionName : groupByDimensions) {
+      int index = -1;
+      for (int j = 0; j < dimensionValues.size() && index < 0; j++) {
+        if (dimensionName.equals(dimensionValues.get(j).getName())) {
+          index = j;
+        }
+      }
+      if (index < 0) {
+        // facts scanned don't have the dimension, nothing to group by
+        return scan(scan);
+      }
+      groupByIndexes[i++] = index;
+    }
+
+    Map<Long, AggregationFunction> encodedFunctions = Maps.newHashMap();
+    for (Map.Entry<String, AggregationFunction> entry : functions.entrySet()) {
+      encodedFunctions.put(codec.getMeasureEntityId(entry.getKey()), entry.getValue());
+    }
+    FactAggregation aggregation = new FactAggregation(entityTable.getIdSize(), resolution, scan.getStartTs(),
+                                                      scan.getEndTs(), groupByIndexes, encodedFunctions);
+    return new FactScanner(getScanner(scan, aggregation), codec,
+                           scan.getStartTs(), scan.getEndTs(), scan.getMeasureNames());
+  }
+
   private List<String> getSortedMeasures(Collection<String> measures) {
     Map<String, Long> measureToEntityMap = new HashMap<>();
     List<String> measureNames = new ArrayList<>();
@@ -181,6 +263,10 @@ public final class FactTable implements Closeable {
   }
 
   private Scanner getScanner(FactScan scan) {
+    return getScanner(scan, null);
+  }
+
+  private Scanner getScanner(FactScan scan, @Nullable FactAggregation aggregation) {
 
     // sort the measures based on their entity ids and based on that get the start and end row key metric names
     List<String> measureNames = getSortedMeasures(scan.getMeasureNames());
@@ -211,6 +297,9 @@ public final class FactTable implements Closeable {
                 timeSeriesTable, scan, toPrettyLog(startRow), toPrettyLog(endRow), fuzzyRowFilter);
     }
 
+    if (aggregation != null) {
+      return ((AggregatingMetricsTable) timeSeriesTable).scan(startRow, endRow, fuzzyRowFilter, aggregation);
+    }
     return timeSeriesTable.scan(startRow, endRow, fuzzyRowFilter);
   }
 
@@ -487,6 +576,22 @@ public final class FactTable implements Closeable {
     rowMap.put(column, value);
   }
 
+  private static void merge(NavigableMap<byte[], NavigableMap<byte[], Distribution>> distributionsTable,
+                            byte[] rowKey, byte[] column, Distribution distribution) {
+    NavigableMap<byte[], Distribution> row = distributionsTable.get(rowKey);
+    if (row == null) {
+      row = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      distributionsTable.put(rowKey, row);
+    }
+    Distribution existing = row.get(column);
+    if (existing == null) {
+      // copy so that the given distribution is not modified by merges
+      row.put(column, new Distribution().merge(distribution));
+    } else {
+      existing.merge(distribution);
+    }
+  }
+
   private String toPrettyLog(byte[] key) {
     StringBuilder sb = new StringBuilder("{");
     for (byte b : key) {
@@ -0,0 +1,32 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.increment.hbase;
+
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactAggregation;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+
+/**
+ * Thrown by the increment handler coprocessor when a scan that aggregates facts is resumed in the middle of a region,
+ * as the rows aggregated so far cannot be told apart from the rest. See {@link FactAggregation#isResumed}.
+ * The client must restart its query instead of retrying the scan.
+ */
+public class ResumedFactScanException extends DoNotRetryIOException {
+
+  public ResumedFactScanException(String message) {
+    super(message);
+  }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data2.metadata.dataset;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.data2.dataset2.lib.table.MDSKey;
 import co.cask.cdap.proto.Id;
 
@@ -28,6 +29,9 @@ import javax.annotation.Nullable;
 final class MdsKey {
   private static final byte[] VALUE_ROW_PREFIX = {'v'}; // value row prefix to store metadata value
   private static final byte[] INDEX_ROW_PREFIX = {'i'}; // index row prefix used for metadata search
+  private static final byte[] POSTING_ROW_PREFIX = {'t'}; // posting row prefix of the inverted search index
+  private static final byte[] INDEX_BUILT_ROW = {'b'}; // row marking that the inverted search index is built
+  private static final byte TERM_TERMINATOR = 0;
 
   static String getMetadataKey(String type, byte[] rowKey) {
     MDSKey.Splitter keySplitter = new MDSKey(rowKey).split();
@@ -142,6 +146,77 @@ final class MdsKey {
     return key.getKey();
   }
 
+  static byte[] getIndexBuiltRowKey() {
+    MDSKey key = new MDSKey.Builder().add(MdsKey.INDEX_BUILT_ROW).build();
+    return key.getKey();
+  }
+
+  static byte[] getPostingRowPrefix() {
+    MDSKey key = new MDSKey.Builder().add(MdsKey.POSTING_ROW_PREFIX).build();
+    return key.getKey();
+  }
+
+  /**
+   * Creates a key for a posting row of the inverted search index in the format:
+   * [{@link #POSTING_ROW_PREFIX}][term][{@link #TERM_TERMINATOR}][entityKey]. The term is not length encoded, so
+   * that all postings of terms sharing a prefix can be scanned together, and postings of the same term are sorted
+   * by the entity key.
+   *
+   * @param term the namespaced search term
+   * @param entityKey the entity key as created by {@link #getEntityKey(Id.NamespacedId)}; if {@code null}, the
+   *                  returned key is the prefix of all postings of the term
+   */
+  static byte[] getPostingKey(String term, @Nullable byte[] entityKey) {
+    byte[] termPrefix = Bytes.add(getPostingRowPrefix(), Bytes.toBytes(term), new byte[] { TERM_TERMINATOR });
+    return entityKey == null ? termPrefix : Bytes.add(termPrefix, entityKey);
+  }
+
+  /**
+   * Returns the prefix of posting rows of all terms starting with the given term prefix.
+   */
+  static byte[] getPostingTermPrefix(String termPrefix) {
+    return Bytes.add(getPostingRowPrefix(), Bytes.toBytes(termPrefix));
+  }
+
+  /**
+   * Returns the offset of the entity key in the given posting row key, or {@code -1} if it is not a valid posting key.
+   */
+  static int getPostingEntityKeyOffset(byte[] postingKey) {
+    for (int i = getPostingRowPrefix().length; i < postingKey.length; i++) {
+      if (postingKey[i] == TERM_TERMINATOR) {
+        return i + 1;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Returns whether the given term can be stored in a posting row key.
+   */
+  static boolean isValidPostingTerm(String term) {
+    return term.indexOf(TERM_TERMINATOR) < 0;
+  }
+
+  /**
+   * Creates the key of an entity in the format [targetType][targetId], which sorts entities by type and id.
+   */
+  static byte[] getEntityKey(Id.NamespacedId targetId) {
+    MDSKey.Builder builder = new MDSKey.Builder();
+    builder.add(KeyHelper.getTargetType(targetId));
+    KeyHelper.addTargetIdToKey(builder, targetId);
+    return builder.build().getKey();
+  }
+
+  static String getTargetTypeFromEntityKey(byte[] entityKey) {
+    return new MDSKey(entityKey).split().getString();
+  }
+
+  static Id.NamespacedId getNamespacedIdFromEntityKey(byte[] entityKey) {
+    MDSKey.Splitter keySplitter = new MDSKey(entityKey).split();
+    String type = keySplitter.getString();
+    return KeyHelper.getTargetIdIdFromKey(keySplitter, type);
+  }
+
   private static MDSKey.Builder getMDSKeyPrefix(Id.NamespacedId targetId, byte[] rowPrefix) {
     String targetType = KeyHelper.getTargetType(targetId);
     MDSKey.Builder builder = new MDSKey.Builder();
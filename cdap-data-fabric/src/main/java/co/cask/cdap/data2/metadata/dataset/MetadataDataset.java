@@ -27,6 +27,7 @@ import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.common.utils.ImmutablePair;
 import co.cask.cdap.data2.dataset2.lib.table.FuzzyRowFilter;
 import co.cask.cdap.data2.dataset2.lib.table.MDSKey;
+import co.cask.cdap.data2.metadata.dataset.PostingLists.Posting;
 import co.cask.cdap.data2.metadata.indexer.DefaultValueIndexer;
 import co.cask.cdap.data2.metadata.indexer.Indexer;
 import co.cask.cdap.data2.metadata.indexer.SchemaIndexer;
@@ -34,16 +35,21 @@ import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.codec.NamespacedIdCodec;
 import co.cask.cdap.proto.metadata.MetadataSearchTargetType;
 import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.base.Splitter;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Sets;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import org.apache.commons.codec.binary.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,15 +60,24 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.regex.Pattern;
 import javax.annotation.Nullable;
 
 /**
  * Dataset that manages Metadata using an {@link IndexedTable}.
+ * <p>
+ * Besides the metadata values and their index rows, it maintains an inverted index for searching. For each
+ * namespaced index value (term), it keeps a posting list of the entities having the term in one of their metadata
+ * fields, sorted by entity, with one column per field holding the weight of the field.
+ * </p>
  */
 public class MetadataDataset extends AbstractDataset {
   private static final Logger LOG = LoggerFactory.getLogger(MetadataDataset.class);
@@ -75,6 +90,11 @@ public class MetadataDataset extends AbstractDataset {
   private static final String HISTORY_COLUMN = "h"; // column for metadata history
   private static final String VALUE_COLUMN = "v";  // column for metadata value
   private static final String TAGS_SEPARATOR = ",";
+  private static final String POSTING_COLUMN_PREFIX = "f"; // column prefix for the fields of a posting
+
+  // Weight of a match in a metadata field. The relevance score of an entity is the number of matching metadata
+  // fields, which is the number of its index rows matching the search terms.
+  private static final int FIELD_WEIGHT = 1;
 
   // Fuzzy key is of form <row key, key mask>. We want to compare row keys.
   private static final Comparator<ImmutablePair<byte[], byte[]>> FUZZY_KEY_COMPARATOR =
@@ -85,11 +105,35 @@ public class MetadataDataset extends AbstractDataset {
       }
     };
 
+  // Sorts by descending score, then by entity key, so that the order is stable across pages
+  private static final Comparator<Posting> RELEVANCE_COMPARATOR = new Comparator<Posting>() {
+    @Override
+    public int compare(Posting o1, Posting o2) {
+      int cmp = Integer.compare(o2.getWeight(), o1.getWeight());
+      return cmp != 0 ? cmp : Bytes.compareTo(o1.getEntityKey(), o2.getEntityKey());
+    }
+  };
+
   static final String INDEX_COLUMN = "i";          // column for metadata indexes
 
   public static final String TAGS_KEY = "tags";
   public static final String KEYVALUE_SEPARATOR = ":";
 
+  /**
+   * Operator for combining the terms of a search query.
+   */
+  public enum SearchOperator {
+    /**
+     * Matches entities that match all the search terms.
+     */
+    AND,
+
+    /**
+     * Matches entities that match any of the search terms.
+     */
+    OR
+  }
+
   private final IndexedTable indexedTable;
 
   public MetadataDataset(IndexedTable indexedTable) {
@@ -527,16 +571,7 @@ public class MetadataDataset extends AbstractDataset {
     boolean includeAllTypes = types.isEmpty() || types.contains(MetadataSearchTargetType.ALL);
     List<MetadataEntry> results = new ArrayList<>();
     for (String searchTerm : getSearchTerms(namespaceId, searchQuery)) {
-      Scanner scanner;
-      if (searchTerm.endsWith("*")) {
-        // if prefixed search get start and stop key
-        byte[] startKey = Bytes.toBytes(searchTerm.substring(0, searchTerm.lastIndexOf("*")));
-        byte[] stopKey = Bytes.stopKeyForPrefix(startKey);
-        scanner = indexedTable.scanByIndex(Bytes.toBytes(INDEX_COLUMN), startKey, stopKey);
-      } else {
-        byte[] value = Bytes.toBytes(searchTerm);
-        scanner = indexedTable.readByIndex(Bytes.toBytes(INDEX_COLUMN), value);
-      }
+      Scanner scanner = scanIndex(searchTerm);
       try {
         Row next;
         while ((next = scanner.next()) != null) {
@@ -566,6 +601,258 @@ public class MetadataDataset extends AbstractDataset {
     return results;
   }
 
+  /**
+   * Returns a {@link Scanner} over the index rows matching a namespaced search term, which can have '*' at the end
+   * for a prefix search.
+   */
+  private Scanner scanIndex(String searchTerm) {
+    if (searchTerm.endsWith("*")) {
+      // if prefixed search get start and stop key
+      byte[] startKey = Bytes.toBytes(searchTerm.substring(0, searchTerm.lastIndexOf("*")));
+      byte[] stopKey = Bytes.stopKeyForPrefix(startKey);
+      return indexedTable.scanByIndex(Bytes.toBytes(INDEX_COLUMN), startKey, stopKey);
+    }
+    return indexedTable.readByIndex(Bytes.toBytes(INDEX_COLUMN), Bytes.toBytes(searchTerm));
+  }
+
+  /**
+   * Searches entities that match the specified search query in the specified namespace and {@link Id.Namespace#SYSTEM}
+   * and ranks them by relevance. The relevance score of an entity is the number of its metadata fields that matched
+   * the search terms, as counted by {@link #search}. Since all matching entities have to be ranked, the offset and
+   * limit are applied after evaluating the query. Until the inverted index is built, the metadata indexes are
+   * scanned instead.
+   *
+   * @param namespaceId the namespace to search in
+   * @param searchQuery the search query, which is a space separated list of terms. Each term could be of two forms:
+   *                    [key]:[value] or just [value] and can have '*' at the end for a prefix search
+   * @param types the {@link MetadataSearchTargetType} to restrict the search to, if empty all types are searched
+   * @param operator the {@link SearchOperator} to combine the search terms with
+   * @param offset the number of results to skip
+   * @param limit the maximum number of results to return
+   * @return the {@link SearchResults} sorted by descending relevance score
+   */
+  public SearchResults searchByRelevance(String namespaceId, String searchQuery, Set<MetadataSearchTargetType> types,
+                                         SearchOperator operator, int offset, int limit) {
+    Preconditions.checkArgument(offset >= 0, "Offset must not be negative: %s", offset);
+    Preconditions.checkArgument(limit >= 0, "Limit must not be negative: %s", limit);
+
+    List<Scanner> scanners = new ArrayList<>();
+    try {
+      List<Posting> matches = Lists.newArrayList(getPostings(namespaceId, searchQuery, types, operator,
+                                                             null, scanners));
+      Collections.sort(matches, RELEVANCE_COMPARATOR);
+
+      LinkedHashMap<Id.NamespacedId, Integer> results = new LinkedHashMap<>();
+      int end = (int) Math.min(matches.size(), (long) offset + limit);
+      for (int i = offset; i < end; i++) {
+        Posting posting = matches.get(i);
+        results.put(MdsKey.getNamespacedIdFromEntityKey(posting.getEntityKey()), posting.getWeight());
+      }
+      return new SearchResults(results, null);
+    } finally {
+      closeScanners(scanners);
+    }
+  }
+
+  /**
+   * Searches entities that match the specified search query in the specified namespace and {@link Id.Namespace#SYSTEM}
+   * using the inverted index, and returns them ordered by entity. Posting lists are merged as they are scanned,
+   * so only the postings up to the requested page are read for terms without '*'. The cursor returned in the
+   * {@link SearchResults} can be used to fetch the next page. Until the inverted index is built, the metadata indexes
+   * are scanned instead.
+   *
+   * @param namespaceId the namespace to search in
+   * @param searchQuery the search query, which is a space separated list of terms. Each term could be of two forms:
+   *                    [key]:[value] or just [value] and can have '*' at the end for a prefix search
+   * @param types the {@link MetadataSearchTargetType} to restrict the search to, if empty all types are searched
+   * @param operator the {@link SearchOperator} to combine the search terms with
+   * @param cursor the cursor returned by a previous search to continue from, or {@code null} to start from the first
+   *               result
+   * @param offset the number of results to skip after the cursor
+   * @param limit the maximum number of results to return
+   * @return the {@link SearchResults} sorted by entity
+   */
+  public SearchResults searchByEntity(String namespaceId, String searchQuery, Set<MetadataSearchTargetType> types,
+                                      SearchOperator operator, @Nullable String cursor, int offset, int limit) {
+    Preconditions.checkArgument(offset >= 0, "Offset must not be negative: %s", offset);
+    Preconditions.checkArgument(limit >= 0, "Limit must not be negative: %s", limit);
+    byte[] startAfter = cursor == null ? null : Base64.decodeBase64(cursor);
+
+    List<Scanner> scanners = new ArrayList<>();
+    try {
+      Iterator<Posting> matches = getPostings(namespaceId, searchQuery, types, operator, startAfter, scanners);
+      Iterators.advance(matches, offset);
+
+      LinkedHashMap<Id.NamespacedId, Integer> results = new LinkedHashMap<>();
+      byte[] lastEntityKey = null;
+      while (results.size() < limit && matches.hasNext()) {
+        Posting posting = matches.next();
+        results.put(MdsKey.getNamespacedIdFromEntityKey(posting.getEntityKey()), posting.getWeight());
+        lastEntityKey = posting.getEntityKey();
+      }
+      String nextCursor = lastEntityKey != null && matches.hasNext()
+        ? Base64.encodeBase64URLSafeString(lastEntityKey) : null;
+      return new SearchResults(results, nextCursor);
+    } finally {
+      closeScanners(scanners);
+    }
+  }
+
+  /**
+   * Returns the postings of entities matching the specified search query, sorted by entity key.
+   *
+   * @param startAfter if not {@code null}, only postings of entities after this entity key are returned
+   * @param scanners list to add the opened {@link Scanner Scanners} to, which have to be closed by the caller
+   */
+  private Iterator<Posting> getPostings(String namespaceId, String searchQuery,
+                                        Set<MetadataSearchTargetType> types, SearchOperator operator,
+                                        @Nullable byte[] startAfter, List<Scanner> scanners) {
+    boolean indexBuilt = isSearchIndexBuilt();
+    List<Iterator<Posting>> termPostings = new ArrayList<>();
+    for (String term : getFormattedSearchTerms(searchQuery)) {
+      // An entity matches a term if it matches it in either the given or the system namespace
+      List<Iterator<Posting>> namespacedPostings = new ArrayList<>();
+      for (String namespacedTerm : getNamespacedSearchTerms(namespaceId, term)) {
+        namespacedPostings.add(indexBuilt ? getPostings(namespacedTerm, startAfter, scanners)
+                                          : getIndexPostings(namespacedTerm, startAfter));
+      }
+      termPostings.add(PostingLists.union(namespacedPostings));
+    }
+
+    Iterator<Posting> postings = operator == SearchOperator.AND
+      ? PostingLists.intersect(termPostings) : PostingLists.union(termPostings);
+
+    if (types.isEmpty() || types.contains(MetadataSearchTargetType.ALL)) {
+      return postings;
+    }
+    final Set<MetadataSearchTargetType> targetTypes = types;
+    return Iterators.filter(postings, new Predicate<Posting>() {
+      @Override
+      public boolean apply(Posting posting) {
+        String targetType = MdsKey.getTargetTypeFromEntityKey(posting.getEntityKey());
+        return targetTypes.contains(MetadataSearchTargetType.valueOfSerializedForm(targetType));
+      }
+    });
+  }
+
+  /**
+   * Returns the posting list of a namespaced search term, sorted by entity key.
+   */
+  private Iterator<Posting> getPostings(String term, @Nullable byte[] startAfter, List<Scanner> scanners) {
+    if (term.endsWith("*")) {
+      return getPrefixPostings(term.substring(0, term.lastIndexOf("*")), startAfter);
+    }
+    if (!MdsKey.isValidPostingTerm(term)) {
+      return Collections.emptyIterator();
+    }
+
+    final byte[] termPrefix = MdsKey.getPostingKey(term, null);
+    // Start right after the cursor, which is the smallest key larger than the posting key of the cursor
+    byte[] startKey = startAfter == null ? termPrefix : Bytes.add(MdsKey.getPostingKey(term, startAfter), new byte[1]);
+    final Scanner scanner = indexedTable.scan(startKey, Bytes.stopKeyForPrefix(termPrefix));
+    scanners.add(scanner);
+
+    return new AbstractIterator<Posting>() {
+      @Override
+      protected Posting computeNext() {
+        Row row;
+        while ((row = scanner.next()) != null) {
+          int weight = getPostingWeight(row);
+          if (weight > 0) {
+            return new Posting(Arrays.copyOfRange(row.getRow(), termPrefix.length, row.getRow().length), weight);
+          }
+        }
+        return endOfData();
+      }
+    };
+  }
+
+  /**
+   * Returns the merged posting lists of all the namespaced search terms with the given prefix, sorted by entity key.
+   */
+  private Iterator<Posting> getPrefixPostings(String termPrefix, @Nullable byte[] startAfter) {
+    if (!MdsKey.isValidPostingTerm(termPrefix)) {
+      return Collections.emptyIterator();
+    }
+
+    // Postings of different terms are not sorted by entity, hence collect them before merging
+    NavigableMap<byte[], Integer> weights = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    byte[] startKey = MdsKey.getPostingTermPrefix(termPrefix);
+    try (Scanner scanner = indexedTable.scan(startKey, Bytes.stopKeyForPrefix(startKey))) {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        byte[] rowKey = row.getRow();
+        int offset = MdsKey.getPostingEntityKeyOffset(rowKey);
+        int weight = getPostingWeight(row);
+        if (offset < 0 || weight <= 0) {
+          continue;
+        }
+        byte[] entityKey = Arrays.copyOfRange(rowKey, offset, rowKey.length);
+        if (startAfter != null && Bytes.compareTo(entityKey, startAfter) <= 0) {
+          continue;
+        }
+        Integer existing = weights.get(entityKey);
+        weights.put(entityKey, existing == null ? weight : existing + weight);
+      }
+    }
+    return toPostings(weights);
+  }
+
+  /**
+   * Returns the postings of a namespaced search term read from the metadata indexes, sorted by entity key. This is
+   * used until the inverted index is built, since metadata written before it existed has no postings.
+   */
+  private Iterator<Posting> getIndexPostings(String term, @Nullable byte[] startAfter) {
+    // Index rows are not sorted by entity, hence collect them before merging
+    NavigableMap<byte[], Integer> weights = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    try (Scanner scanner = scanIndex(term)) {
+      Row row;
+      while ((row = scanner.next()) != null) {
+        if (row.getString(INDEX_COLUMN) == null) {
+          continue;
+        }
+        byte[] rowKey = row.getRow();
+        String targetType = MdsKey.getTargetType(rowKey);
+        byte[] entityKey = MdsKey.getEntityKey(MdsKey.getNamespacedIdFromKey(targetType, rowKey));
+        if (startAfter != null && Bytes.compareTo(entityKey, startAfter) <= 0) {
+          continue;
+        }
+        Integer existing = weights.get(entityKey);
+        weights.put(entityKey, existing == null ? FIELD_WEIGHT : existing + FIELD_WEIGHT);
+      }
+    }
+    return toPostings(weights);
+  }
+
+  private Iterator<Posting> toPostings(NavigableMap<byte[], Integer> weights) {
+    List<Posting> postings = new ArrayList<>(weights.size());
+    for (Map.Entry<byte[], Integer> entry : weights.entrySet()) {
+      postings.add(new Posting(entry.getKey(), entry.getValue()));
+    }
+    return postings.iterator();
+  }
+
+  /**
+   * Returns the sum of the weights of all fields in a posting row.
+   */
+  private int getPostingWeight(Row row) {
+    int weight = 0;
+    for (Map.Entry<byte[], byte[]> column : row.getColumns().entrySet()) {
+      byte[] value = column.getValue();
+      if (value != null && value.length == Bytes.SIZEOF_INT
+        && Bytes.startsWith(column.getKey(), Bytes.toBytes(POSTING_COLUMN_PREFIX))) {
+        weight += Bytes.toInt(value);
+      }
+    }
+    return weight;
+  }
+
+  private void closeScanners(List<Scanner> scanners) {
+    for (Scanner scanner : scanners) {
+      scanner.close();
+    }
+  }
+
   /**
    * Prepares search terms from the specified search query by
    * <ol>
@@ -580,6 +867,17 @@ public class MetadataDataset extends AbstractDataset {
    * @return formatted search query which is namespaced
    */
   private Iterable<String> getSearchTerms(String namespaceId, String searchQuery) {
+    List<String> searchTerms = new ArrayList<>();
+    for (String term : getFormattedSearchTerms(searchQuery)) {
+      searchTerms.addAll(getNamespacedSearchTerms(namespaceId, term));
+    }
+    return searchTerms;
+  }
+
+  /**
+   * Splits the specified search query into lower cased terms, with spaces around {@link #KEYVALUE_SEPARATOR} removed.
+   */
+  private List<String> getFormattedSearchTerms(String searchQuery) {
     List<String> searchTerms = new ArrayList<>();
     for (String term : Splitter.on(SPACE_SEPARATOR_PATTERN).omitEmptyStrings().trimResults().split(searchQuery)) {
       String formattedSearchTerm = term.toLowerCase();
@@ -589,12 +887,21 @@ public class MetadataDataset extends AbstractDataset {
         String[] split = formattedSearchTerm.split(KEYVALUE_SEPARATOR, 2);
         formattedSearchTerm = split[0].trim() + KEYVALUE_SEPARATOR + split[1].trim();
       }
-      searchTerms.add(namespaceId + KEYVALUE_SEPARATOR + formattedSearchTerm);
-      // for non-system namespaces, also add the system namespace, so entities from system namespace are surfaced
-      // in the search results as well
-      if (!Id.Namespace.SYSTEM.getId().equals(namespaceId)) {
-        searchTerms.add(Id.Namespace.SYSTEM.getId() + KEYVALUE_SEPARATOR + formattedSearchTerm);
-      }
+      searchTerms.add(formattedSearchTerm);
+    }
+    return searchTerms;
+  }
+
+  /**
+   * Prepends the specified namespaceId and {@link Id.Namespace#SYSTEM} to a formatted search term.
+   */
+  private List<String> getNamespacedSearchTerms(String namespaceId, String formattedSearchTerm) {
+    List<String> searchTerms = new ArrayList<>(2);
+    searchTerms.add(namespaceId + KEYVALUE_SEPARATOR + formattedSearchTerm);
+    // for non-system namespaces, also add the system namespace, so entities from system namespace are surfaced
+    // in the search results as well
+    if (!Id.Namespace.SYSTEM.getId().equals(namespaceId)) {
+      searchTerms.add(Id.Namespace.SYSTEM.getId() + KEYVALUE_SEPARATOR + formattedSearchTerm);
     }
     return searchTerms;
   }
@@ -624,26 +931,35 @@ public class MetadataDataset extends AbstractDataset {
 
     for (String index : indexes) {
       // store the index with key of the metadata, so that we allow searches of the form [key]:[value]
-      indexedTable.put(getIndexPut(targetId, metadataKey, metadataKey + KEYVALUE_SEPARATOR + index));
+      storeIndex(targetId, metadataKey, metadataKey + KEYVALUE_SEPARATOR + index);
       // store just the index value
-      indexedTable.put(getIndexPut(targetId, metadataKey, index));
+      storeIndex(targetId, metadataKey, index);
     }
   }
 
   /**
-   * Creates a {@link Put} for the a metadata index
+   * Stores a metadata index, which is an index row with the value to be indexed in the {@link #INDEX_COLUMN},
+   * and the field of the entity in the posting list of the value in the inverted index.
    *
    * @param targetId the {@link Id.NamespacedId} from which the metadata index has to be created
    * @param metadataKey the key of the metadata entry
    * @param index the index for this metadata
-   * @return {@link Put} which is a index row with the value to be indexed in the {@link #INDEX_COLUMN}
    */
-  private Put getIndexPut(Id.NamespacedId targetId, String metadataKey, String index) {
+  private void storeIndex(Id.NamespacedId targetId, String metadataKey, String index) {
     MDSKey mdsIndexKey = MdsKey.getMDSIndexKey(targetId, metadataKey, index.toLowerCase());
     String namespacedIndex = MdsKey.getNamespaceId(mdsIndexKey) + KEYVALUE_SEPARATOR + index.toLowerCase();
     Put put = new Put(mdsIndexKey.getKey());
     put.add(Bytes.toBytes(INDEX_COLUMN), Bytes.toBytes(namespacedIndex));
-    return put;
+    indexedTable.put(put);
+
+    if (MdsKey.isValidPostingTerm(namespacedIndex)) {
+      byte[] postingKey = MdsKey.getPostingKey(namespacedIndex, MdsKey.getEntityKey(targetId));
+      indexedTable.put(postingKey, getPostingColumn(metadataKey), Bytes.toBytes(FIELD_WEIGHT));
+    }
+  }
+
+  private byte[] getPostingColumn(String metadataKey) {
+    return Bytes.toBytes(POSTING_COLUMN_PREFIX + metadataKey);
   }
 
   /**
@@ -659,7 +975,18 @@ public class MetadataDataset extends AbstractDataset {
   }
 
   /**
-   * Rebuilds all the indexes in the {@link MetadataDataset} in batches.
+   * Returns whether the inverted search index has been built by {@link #rebuildIndexes(byte[], int)}. Until then,
+   * searches read the metadata indexes instead, since metadata written before the inverted index existed has no
+   * postings.
+   */
+  public boolean isSearchIndexBuilt() {
+    return indexedTable.get(MdsKey.getIndexBuiltRowKey(), Bytes.toBytes(VALUE_COLUMN)) != null;
+  }
+
+  /**
+   * Rebuilds all the indexes in the {@link MetadataDataset} in batches. This also populates the posting lists of
+   * the inverted index for the metadata values in the batch, hence it can be used to build the inverted index
+   * incrementally. Once the last batch is rebuilt, the inverted index is marked as built.
    *
    * @param startRowKey the key of the row to start the scan for the current batch with
    * @param limit the batch size
@@ -694,6 +1021,7 @@ public class MetadataDataset extends AbstractDataset {
       }
       Row startRowForNextBatch = scanner.next();
       if (startRowForNextBatch == null) {
+        indexedTable.put(MdsKey.getIndexBuiltRowKey(), Bytes.toBytes(VALUE_COLUMN), Bytes.toBytes(true));
         return null;
       }
       return startRowForNextBatch.getRow();
@@ -701,7 +1029,8 @@ public class MetadataDataset extends AbstractDataset {
   }
 
   /**
-   * Delete all indexes in the metadata dataset.
+   * Delete all indexes in the metadata dataset. This also marks the inverted index as not built, so that searches
+   * read the metadata indexes until {@link #rebuildIndexes(byte[], int)} completes.
    *
    * @param limit the number of rows (indexes) to delete
    * @return the offset at which to start deletion
@@ -710,6 +1039,7 @@ public class MetadataDataset extends AbstractDataset {
     byte[] indexStartPrefix = MdsKey.getIndexRowPrefix();
     byte[] indexStopPrefix = Bytes.stopKeyForPrefix(indexStartPrefix);
     int count = 0;
+    indexedTable.delete(MdsKey.getIndexBuiltRowKey());
     Row row;
     try (Scanner scanner = indexedTable.scan(indexStartPrefix, indexStopPrefix)) {
       while (count < limit && ((row = scanner.next()) != null)) {
@@ -738,10 +1068,20 @@ public class MetadataDataset extends AbstractDataset {
    * @return {@code true} if the row was deleted, {@code false} otherwise
    */
   private boolean deleteIndexRow(Row row) {
-    if (row.get(INDEX_COLUMN) == null) {
+    String index = row.getString(INDEX_COLUMN);
+    if (index == null) {
       return false;
     }
-    indexedTable.delete(new Delete(row.getRow()));
+    byte[] rowKey = row.getRow();
+    indexedTable.delete(new Delete(rowKey));
+
+    // remove the field of the entity from the posting list of the index
+    if (MdsKey.isValidPostingTerm(index)) {
+      String targetType = MdsKey.getTargetType(rowKey);
+      Id.NamespacedId targetId = MdsKey.getNamespacedIdFromKey(targetType, rowKey);
+      String metadataKey = MdsKey.getMetadataKey(targetType, rowKey);
+      indexedTable.delete(MdsKey.getPostingKey(index, MdsKey.getEntityKey(targetId)), getPostingColumn(metadataKey));
+    }
     return true;
   }
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.metadata.dataset;
+
+import co.cask.cdap.api.common.Bytes;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Helper methods for merging posting lists of the inverted search index of {@link MetadataDataset}.
+ * All posting lists are expected to be sorted by the entity key, without duplicate entity keys.
+ */
+final class PostingLists {
+
+  private static final Comparator<PeekingIterator<Posting>> HEAD_COMPARATOR =
+    new Comparator<PeekingIterator<Posting>>() {
+      @Override
+      public int compare(PeekingIterator<Posting> o1, PeekingIterator<Posting> o2) {
+        return Bytes.compareTo(o1.peek().getEntityKey(), o2.peek().getEntityKey());
+      }
+    };
+
+  /**
+   * Returns the union of the given posting lists. Weights of postings of the same entity are summed up.
+   */
+  static Iterator<Posting> union(Collection<? extends Iterator<Posting>> postingLists) {
+    if (postingLists.size() == 1) {
+      return postingLists.iterator().next();
+    }
+
+    final PriorityQueue<PeekingIterator<Posting>> heads =
+      new PriorityQueue<>(Math.max(1, postingLists.size()), HEAD_COMPARATOR);
+    for (Iterator<Posting> postingList : postingLists) {
+      if (postingList.hasNext()) {
+        heads.add(Iterators.peekingIterator(postingList));
+      }
+    }
+
+    return new AbstractIterator<Posting>() {
+      @Override
+      protected Posting computeNext() {
+        PeekingIterator<Posting> head = heads.poll();
+        if (head == null) {
+          return endOfData();
+        }
+        Posting posting = head.next();
+        byte[] entityKey = posting.getEntityKey();
+        int weight = posting.getWeight();
+        requeue(head);
+
+        // Merge postings of the same entity from the other lists
+        while (!heads.isEmpty() && Bytes.equals(entityKey, heads.peek().peek().getEntityKey())) {
+          head = heads.poll();
+          weight += head.next().getWeight();
+          requeue(head);
+        }
+        return new Posting(entityKey, weight);
+      }
+
+      private void requeue(PeekingIterator<Posting> head) {
+        if (head.hasNext()) {
+          heads.add(head);
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns the intersection of the given posting lists. Weights of postings of the same entity are summed up.
+   */
+  static Iterator<Posting> intersect(Collection<? extends Iterator<Posting>> postingLists) {
+    if (postingLists.size() == 1) {
+      return postingLists.iterator().next();
+    }
+
+    final List<PeekingIterator<Posting>> lists = new ArrayList<>(postingLists.size());
+    for (Iterator<Posting> postingList : postingLists) {
+      lists.add(Iterators.peekingIterator(postingList));
+    }
+
+    return new AbstractIterator<Posting>() {
+      @Override
+      protected Posting computeNext() {
+        if (lists.isEmpty()) {
+          return endOfData();
+        }
+        while (true) {
+          // Find the largest head among all lists, then advance all lists to it
+          byte[] target = null;
+          for (PeekingIterator<Posting> list : lists) {
+            if (!list.hasNext()) {
+              return endOfData();
+            }
+            byte[] entityKey = list.peek().getEntityKey();
+            if (target == null || Bytes.compareTo(entityKey, target) > 0) {
+              target = entityKey;
+            }
+          }
+
+          int weight = 0;
+          boolean matched = true;
+          for (PeekingIterator<Posting> list : lists) {
+            while (list.hasNext() && Bytes.compareTo(list.peek().getEntityKey(), target) < 0) {
+              list.next();
+            }
+            if (!list.hasNext()) {
+              return endOfData();
+            }
+            if (Bytes.equals(list.peek().getEntityKey(), target)) {
+              weight += list.peek().getWeight();
+            } else {
+              matched = false;
+            }
+          }
+
+          if (matched) {
+            for (PeekingIterator<Posting> list : lists) {
+              list.next();
+            }
+            return new Posting(target, weight);
+          }
+        }
+      }
+    };
+  }
+
+  private PostingLists() {
+  }
+
+  /**
+   * An entry of a posting list, which is an entity matching a search term together with the weight of the match.
+   */
+  static final class Posting {
+    private final byte[] entityKey;
+    private final int weight;
+
+    Posting(byte[] entityKey, int weight) {
+      this.entityKey = entityKey;
+      this.weight = weight;
+    }
+
+    /**
+     * Returns the entity key as created by {@link MdsKey#getEntityKey(co.cask.cdap.proto.Id.NamespacedId)}.
+     */
+    byte[] getEntityKey() {
+      return entityKey;
+    }
+
+    int getWeight() {
+      return weight;
+    }
+  }
+}
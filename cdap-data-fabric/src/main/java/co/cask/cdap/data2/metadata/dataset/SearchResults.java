@@ -0,0 +1,140 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.metadata.dataset;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.proto.Id;
+import co.cask.cdap.proto.metadata.MetadataSearchSortOrder;
+import org.apache.commons.codec.binary.Base64;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * A page of results of a search in the {@link MetadataDataset}.
+ */
+public final class SearchResults {
+
+  private final Map<Id.NamespacedId, Integer> results;
+  private final String cursor;
+
+  SearchResults(LinkedHashMap<Id.NamespacedId, Integer> results, @Nullable String cursor) {
+    this.results = Collections.unmodifiableMap(results);
+    this.cursor = cursor;
+  }
+
+  /**
+   * Returns the matching entities mapped to their relevance scores, in the order of the search results.
+   */
+  public Map<Id.NamespacedId, Integer> getResults() {
+    return results;
+  }
+
+  /**
+   * Returns the cursor for fetching the next page of results, or {@code null} if there are no more results.
+   * It is only set for searches sorted by entity.
+   */
+  @Nullable
+  public String getCursor() {
+    return cursor;
+  }
+
+  /**
+   * Merges the results of the same search in several {@link MetadataDataset MetadataDatasets} into one page. Each of
+   * the given results must hold the first {@code offset + limit} results of its dataset in the given order. An entity
+   * found in several datasets is scored with its highest score.
+   *
+   * @param pages the results to merge
+   * @param sortOrder the order of the given results and of the merged results
+   * @param offset the number of merged results to skip
+   * @param limit the maximum number of merged results to return
+   * @return the merged {@link SearchResults}, with a cursor for the next page if sorted by
+   *         {@link MetadataSearchSortOrder#ENTITY}
+   */
+  public static SearchResults merge(Collection<SearchResults> pages, MetadataSearchSortOrder sortOrder,
+                                    int offset, int limit) {
+    final Map<byte[], Integer> scores = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    Map<byte[], Id.NamespacedId> entities = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+    boolean hasMore = false;
+    for (SearchResults page : pages) {
+      hasMore |= page.getCursor() != null;
+      for (Map.Entry<Id.NamespacedId, Integer> entry : page.getResults().entrySet()) {
+        byte[] entityKey = MdsKey.getEntityKey(entry.getKey());
+        Integer score = scores.get(entityKey);
+        scores.put(entityKey, score == null ? entry.getValue() : Math.max(score, entry.getValue()));
+        entities.put(entityKey, entry.getKey());
+      }
+    }
+
+    // Entities are sorted by entity key, which is also the order among entities with the same relevance score
+    List<byte[]> entityKeys = new ArrayList<>(scores.keySet());
+    if (sortOrder == MetadataSearchSortOrder.RELEVANCE) {
+      Collections.sort(entityKeys, new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] o1, byte[] o2) {
+          int cmp = Integer.compare(scores.get(o2), scores.get(o1));
+          return cmp != 0 ? cmp : Bytes.compareTo(o1, o2);
+        }
+      });
+    }
+
+    LinkedHashMap<Id.NamespacedId, Integer> results = new LinkedHashMap<>();
+    int end = (int) Math.min(entityKeys.size(), (long) offset + limit);
+    for (int i = offset; i < end; i++) {
+      byte[] entityKey = entityKeys.get(i);
+      results.put(entities.get(entityKey), scores.get(entityKey));
+    }
+    String cursor = null;
+    if (sortOrder == MetadataSearchSortOrder.ENTITY && end > offset && (hasMore || end < entityKeys.size())) {
+      cursor = Base64.encodeBase64URLSafeString(entityKeys.get(end - 1));
+    }
+    return new SearchResults(results, cursor);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    SearchResults that = (SearchResults) o;
+    return Objects.equals(results, that.results) && Objects.equals(cursor, that.cursor);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(results, cursor);
+  }
+
+  @Override
+  public String toString() {
+    return "SearchResults{" +
+      "results=" + results +
+      ", cursor='" + cursor + '\'' +
+      '}';
+  }
+}
@@ -27,6 +27,7 @@ import co.cask.cdap.data2.dataset2.DatasetFramework;
 import co.cask.cdap.data2.metadata.dataset.Metadata;
 import co.cask.cdap.data2.metadata.dataset.MetadataDataset;
 import co.cask.cdap.data2.metadata.dataset.MetadataEntry;
+import co.cask.cdap.data2.metadata.dataset.SearchResults;
 import co.cask.cdap.data2.metadata.indexer.Indexer;
 import co.cask.cdap.data2.metadata.publisher.MetadataChangePublisher;
 import co.cask.cdap.data2.transaction.Transactions;
@@ -35,10 +36,13 @@ import co.cask.cdap.proto.audit.AuditType;
 import co.cask.cdap.proto.metadata.MetadataChangeRecord;
 import co.cask.cdap.proto.metadata.MetadataRecord;
 import co.cask.cdap.proto.metadata.MetadataScope;
+import co.cask.cdap.proto.metadata.MetadataSearchResponse;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecord;
+import co.cask.cdap.proto.metadata.MetadataSearchSortOrder;
 import co.cask.cdap.proto.metadata.MetadataSearchTargetType;
 import co.cask.tephra.TransactionExecutor;
 import co.cask.tephra.TransactionExecutorFactory;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -49,8 +53,6 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -73,15 +75,6 @@ public class DefaultMetadataStore implements MetadataStore {
   private static final Set<String> EMPTY_TAGS = ImmutableSet.of();
   private static final int BATCH_SIZE = 1000;
 
-  private static final Comparator<Map.Entry<Id.NamespacedId, Integer>> SEARCH_RESULT_DESC_SCORE_COMPARATOR =
-    new Comparator<Map.Entry<Id.NamespacedId, Integer>>() {
-      @Override
-      public int compare(Map.Entry<Id.NamespacedId, Integer> o1, Map.Entry<Id.NamespacedId, Integer> o2) {
-        // sort in descending order
-        return o2.getValue() - o1.getValue();
-      }
-    };
-
   private final TransactionExecutorFactory txExecutorFactory;
   private final DatasetFramework dsFramework;
   private final MetadataChangePublisher changePublisher;
@@ -372,26 +365,49 @@ public class DefaultMetadataStore implements MetadataStore {
   public Set<MetadataSearchResultRecord> searchMetadataOnType(final MetadataScope scope, final String namespaceId,
                                                               final String searchQuery,
                                                               final Set<MetadataSearchTargetType> types) {
-    // Execute search query
-    Iterable<MetadataEntry> results = execute(new TransactionExecutor.Function<MetadataDataset,
-      Iterable<MetadataEntry>>() {
+    // Execute search query. Results are ranked by the number of matching metadata fields
+    SearchResults results = search(scope, namespaceId, searchQuery, types, MetadataSearchSortOrder.RELEVANCE,
+                                   Integer.MAX_VALUE, null);
+    return addMetadataToResults(results);
+  }
+
+  @Override
+  public MetadataSearchResponse search(String namespaceId, String searchQuery, Set<MetadataSearchTargetType> types,
+                                       MetadataSearchSortOrder sortOrder, int offset, int limit,
+                                       @Nullable String cursor) {
+    Preconditions.checkArgument(offset >= 0, "Offset must not be negative: %s", offset);
+    Preconditions.checkArgument(limit >= 0, "Limit must not be negative: %s", limit);
+    Preconditions.checkArgument(cursor == null || sortOrder == MetadataSearchSortOrder.ENTITY,
+                                "A cursor is only supported when sorting by %s", MetadataSearchSortOrder.ENTITY);
+
+    // The results of both scopes are merged before skipping the offset, hence each scope returns the whole range
+    int scopeLimit = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+    List<SearchResults> scopeResults = new ArrayList<>();
+    for (MetadataScope scope : MetadataScope.values()) {
+      scopeResults.add(search(scope, namespaceId, searchQuery, types, sortOrder, scopeLimit, cursor));
+    }
+    SearchResults results = SearchResults.merge(scopeResults, sortOrder, offset, limit);
+    return new MetadataSearchResponse(sortOrder, offset, limit, results.getCursor(), addMetadataToResults(results));
+  }
+
+  private SearchResults search(MetadataScope scope, final String namespaceId, final String searchQuery,
+                               final Set<MetadataSearchTargetType> types, final MetadataSearchSortOrder sortOrder,
+                               final int limit, @Nullable final String cursor) {
+    return execute(new TransactionExecutor.Function<MetadataDataset, SearchResults>() {
       @Override
-      public Iterable<MetadataEntry> apply(MetadataDataset input) throws Exception {
-        return input.search(namespaceId, searchQuery, types);
+      public SearchResults apply(MetadataDataset input) throws Exception {
+        if (sortOrder == MetadataSearchSortOrder.ENTITY) {
+          return input.searchByEntity(namespaceId, searchQuery, types, MetadataDataset.SearchOperator.OR,
+                                      cursor, 0, limit);
+        }
+        return input.searchByRelevance(namespaceId, searchQuery, types, MetadataDataset.SearchOperator.OR, 0, limit);
       }
     }, scope);
+  }
 
-    // Score results
-    final Map<Id.NamespacedId, Integer> weightedResults = new HashMap<>();
-    for (MetadataEntry metadataEntry : results) {
-      Integer score = weightedResults.get(metadataEntry.getTargetId());
-      score = score == null ? 0 : score;
-      weightedResults.put(metadataEntry.getTargetId(), score + 1);
-    }
-
-    // Sort the results by score
+  private Set<MetadataSearchResultRecord> addMetadataToResults(SearchResults results) {
+    Map<Id.NamespacedId, Integer> weightedResults = results.getResults();
     List<Map.Entry<Id.NamespacedId, Integer>> resultList = new ArrayList<>(weightedResults.entrySet());
-    Collections.sort(resultList, SEARCH_RESULT_DESC_SCORE_COMPARATOR);
 
     // Fetch metadata for entities in the result list
     // Note: since the fetch is happening in a different transaction, the metadata for entities may have been
@@ -473,11 +489,15 @@ public class DefaultMetadataStore implements MetadataStore {
   @Override
   public void rebuildIndexes() {
     byte[] row = null;
-    while ((row = rebuildIndex(row, MetadataScope.SYSTEM)) != null) {
-      LOG.debug("Completed a batch for rebuilding system metadata indexes.");
+    if (!isSearchIndexBuilt(MetadataScope.SYSTEM)) {
+      while ((row = rebuildIndex(row, MetadataScope.SYSTEM)) != null) {
+        LOG.debug("Completed a batch for rebuilding system metadata indexes.");
+      }
     }
-    while ((row = rebuildIndex(row, MetadataScope.USER)) != null) {
-      LOG.debug("Completed a batch for rebuilding business metadata indexes.");
+    if (!isSearchIndexBuilt(MetadataScope.USER)) {
+      while ((row = rebuildIndex(row, MetadataScope.USER)) != null) {
+        LOG.debug("Completed a batch for rebuilding business metadata indexes.");
+      }
     }
   }
 
@@ -519,6 +539,15 @@ public class DefaultMetadataStore implements MetadataStore {
     txExecutor.executeUnchecked(func, metadataDataset);
   }
 
+  private boolean isSearchIndexBuilt(MetadataScope scope) {
+    return execute(new TransactionExecutor.Function<MetadataDataset, Boolean>() {
+      @Override
+      public Boolean apply(MetadataDataset input) throws Exception {
+        return input.isSearchIndexBuilt();
+      }
+    }, scope);
+  }
+
   private byte[] rebuildIndex(final byte[] startRowKey, MetadataScope scope) {
     return execute(new TransactionExecutor.Function<MetadataDataset, byte[]>() {
       @Override
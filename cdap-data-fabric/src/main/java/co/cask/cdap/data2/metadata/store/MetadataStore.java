@@ -21,7 +21,9 @@ import co.cask.cdap.data2.metadata.indexer.Indexer;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.metadata.MetadataRecord;
 import co.cask.cdap.proto.metadata.MetadataScope;
+import co.cask.cdap.proto.metadata.MetadataSearchResponse;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecord;
+import co.cask.cdap.proto.metadata.MetadataSearchSortOrder;
 import co.cask.cdap.proto.metadata.MetadataSearchTargetType;
 
 import java.util.Map;
@@ -197,6 +199,22 @@ public interface MetadataStore {
   Set<MetadataSearchResultRecord> searchMetadataOnType(MetadataScope scope, String namespaceId, String searchQuery,
                                                        Set<MetadataSearchTargetType> types);
 
+  /**
+   * Search the Metadata Dataset for the specified target types in both {@link MetadataScope#USER} and
+   * {@link MetadataScope#SYSTEM}, and return one page of the results.
+   *
+   * @param namespaceId the namespace to search in
+   * @param searchQuery the search query, which could be of two forms: [key]:[value] or just [value]
+   * @param types the {@link MetadataSearchTargetType} to restrict the search to, if empty all types are searched
+   * @param sortOrder the {@link MetadataSearchSortOrder} of the results
+   * @param offset the number of results to skip
+   * @param limit the maximum number of results to return
+   * @param cursor the cursor returned with a previous page to continue from, only supported with
+   *               {@link MetadataSearchSortOrder#ENTITY}
+   */
+  MetadataSearchResponse search(String namespaceId, String searchQuery, Set<MetadataSearchTargetType> types,
+                                MetadataSearchSortOrder sortOrder, int offset, int limit, @Nullable String cursor);
+
   /**
    * Returns the snapshot of the metadata for entities on or before the given time in both {@link MetadataScope#USER}
    * and {@link MetadataScope#SYSTEM}.
@@ -219,7 +237,8 @@ public interface MetadataStore {
   Set<MetadataRecord> getSnapshotBeforeTime(MetadataScope scope,  Set<Id.NamespacedId> entityIds, long timeMillis);
 
   /**
-   * Rebuild stale metadata indexes.
+   * Rebuild stale metadata indexes. Scopes whose search index has already been built are skipped, unless their
+   * indexes were deleted with {@link #deleteAllIndexes()}.
    */
   void rebuildIndexes();
 
@@ -19,13 +19,16 @@ import co.cask.cdap.data2.metadata.indexer.Indexer;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.metadata.MetadataRecord;
 import co.cask.cdap.proto.metadata.MetadataScope;
+import co.cask.cdap.proto.metadata.MetadataSearchResponse;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecord;
+import co.cask.cdap.proto.metadata.MetadataSearchSortOrder;
 import co.cask.cdap.proto.metadata.MetadataSearchTargetType;
 import com.google.common.collect.ImmutableSet;
 
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import javax.annotation.Nullable;
 
 /**
  * Implementation of {@link MetadataStore} used in memory mode.
@@ -136,6 +139,14 @@ public class NoOpMetadataStore implements MetadataStore {
     return Collections.emptySet();
   }
 
+  @Override
+  public MetadataSearchResponse search(String namespaceId, String searchQuery, Set<MetadataSearchTargetType> types,
+                                       MetadataSearchSortOrder sortOrder, int offset, int limit,
+                                       @Nullable String cursor) {
+    return new MetadataSearchResponse(sortOrder, offset, limit, null,
+                                      Collections.<MetadataSearchResultRecord>emptySet());
+  }
+
   @Override
   public Set<MetadataRecord> getSnapshotBeforeTime(Set<Id.NamespacedId> entityIds, long timeMillis) {
     return ImmutableSet.<MetadataRecord>builder()
@@ -82,6 +82,8 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
 
   // Maximum amount of time spent in dequeue to avoid transaction timeout.
   private final long maxDequeueMillis;
+  // Whether to claim FIFO entries with the scan that fetches them
+  private final boolean scanClaimEnabled;
 
   private byte[] scanStartRow;
   private boolean committed;
@@ -95,6 +97,17 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
     throws IOException, InterruptedException;
   protected abstract QueueScanner getScanner(byte[] startRow, byte[] stopRow, int numRows) throws IOException;
 
+  /**
+   * Returns a {@link QueueScanner} that also claims up to {@code maxClaims} of the unclaimed entries it returns,
+   * by atomically setting their state to the given value. Entries claimed this way are returned with the new state,
+   * hence no separate {@link #claimEntry(byte[], byte[])} call is needed for them.
+   * By default, no entry is claimed by the scanner.
+   */
+  protected QueueScanner getClaimingScanner(byte[] startRow, byte[] stopRow, int numRows,
+                                            byte[] claimedStateValue, int maxClaims) throws IOException {
+    return getScanner(startRow, stopRow, numRows);
+  }
+
   protected AbstractQueueConsumer(CConfiguration cConf, ConsumerConfig consumerConfig, QueueName queueName) {
     this(cConf, consumerConfig, queueName, null);
   }
@@ -117,6 +130,7 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
                                 "Invalid value for %s", QueueConstants.ConfigKeys.DEQUEUE_TX_PERCENT);
     long txTimeout = TimeUnit.SECONDS.toMillis(cConf.getLong(TxConstants.Manager.CFG_TX_TIMEOUT));
     this.maxDequeueMillis = txTimeout * dequeuePercent / 100;
+    this.scanClaimEnabled = cConf.getBoolean(QueueConstants.ConfigKeys.DEQUEUE_SCAN_CLAIM_ENABLED, true);
   }
 
   @Override
@@ -221,7 +235,8 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
     boolean isReachedDequeueTimeLimit = false;
     Stopwatch stopwatch = new Stopwatch();
     stopwatch.start();
-    while (consumingEntries.size() < maxBatchSize && getEntries(consumingEntries, maxBatchSize, stopwatch)) {
+    while (consumingEntries.size() < maxBatchSize
+      && getEntries(consumingEntries, maxBatchSize, stopwatch, claimedStateValue)) {
 
       // ANDREAS: this while loop should stop once getEntries/populateCache reaches the end of the queue. Currently, it
       // will retry as long as it gets at least one entry in every round, even if that is an entry that must be ignored
@@ -235,6 +250,7 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
         while (iterator.hasNext()) {
           SimpleQueueEntry entry = iterator.next().getValue();
 
+          // Entries claimed by the scan already have the claimed state of this instance
           if (entry.getState() == null ||
             QueueEntryRow.getStateInstanceId(entry.getState()) >= getConfig().getGroupSize()) {
             // If not able to claim it, remove it, and move to next one.
@@ -281,16 +297,17 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
    * Try to dequeue (claim) entries up to a maximum size.
    * @param entries For claimed entries to fill in.
    * @param maxBatchSize Maximum number of entries to claim.
+   * @param claimedStateValue The state value for claiming entries, or {@code null} if no claim is needed.
    * @return The entries instance.
    * @throws java.io.IOException
    */
-  private boolean getEntries(SortedMap<byte[], SimpleQueueEntry> entries,
-                             int maxBatchSize, Stopwatch stopwatch) throws IOException {
+  private boolean getEntries(SortedMap<byte[], SimpleQueueEntry> entries, int maxBatchSize, Stopwatch stopwatch,
+                             @Nullable byte[] claimedStateValue) throws IOException {
     boolean hasEntry = fetchFromCache(entries, maxBatchSize);
 
     // If not enough entries from the cache, try to get more.
     if (entries.size() < maxBatchSize) {
-      populateRowCache(entries.keySet(), maxBatchSize, stopwatch);
+      populateRowCache(entries.keySet(), maxBatchSize, stopwatch, claimedStateValue);
       hasEntry = fetchFromCache(entries, maxBatchSize) || hasEntry;
     }
 
@@ -311,15 +328,18 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
     return true;
   }
 
-  private void populateRowCache(Set<byte[]> excludeRows, int maxBatchSize, Stopwatch stopwatch) throws IOException {
+  private void populateRowCache(Set<byte[]> excludeRows, int maxBatchSize, Stopwatch stopwatch,
+                                @Nullable byte[] claimedStateValue) throws IOException {
 
     long readPointer = transaction.getReadPointer();
 
-    // Scan the table for queue entries.
+    // Scan the table for queue entries. Only claim as many entries as needed for the batch,
+    // so that the entries prefetched into the cache are still available to other consumer instances.
     int numRows = Math.max(MIN_FETCH_ROWS, maxBatchSize * PREFETCH_BATCHES);
-    QueueScanner scanner = getScanner(scanStartRow,
-                                      QueueEntryRow.getStopRowForTransaction(queueRowPrefix, transaction),
-                                      numRows);
+    byte[] stopRow = QueueEntryRow.getStopRowForTransaction(queueRowPrefix, transaction);
+    QueueScanner scanner = (claimedStateValue == null || !scanClaimEnabled)
+      ? getScanner(scanStartRow, stopRow, numRows)
+      : getClaimingScanner(scanStartRow, stopRow, numRows, claimedStateValue, maxBatchSize - excludeRows.size());
     try {
       // Try fill up the cache
       boolean firstScannedRow = true;
@@ -365,8 +385,11 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
 
         byte[] stateBytes = entry.getSecond().get(stateColumnName);
 
+        // Entries just claimed by the scanner have the state written by the current transaction,
+        // which would otherwise be ignored
         int counter = Bytes.toInt(rowKey, rowKey.length - 4, Ints.BYTES);
-        if (!shouldInclude(writePointer, counter, metaBytes, stateBytes)) {
+        boolean claimed = claimedStateValue != null && Arrays.equals(claimedStateValue, stateBytes);
+        if (!claimed && !shouldInclude(writePointer, counter, metaBytes, stateBytes)) {
           continue;
         }
 
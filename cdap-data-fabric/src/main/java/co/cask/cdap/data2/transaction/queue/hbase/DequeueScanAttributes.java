@@ -16,6 +16,7 @@
 
 package co.cask.cdap.data2.transaction.queue.hbase;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.data2.queue.ConsumerConfig;
 import co.cask.cdap.data2.queue.DequeueStrategy;
 import co.cask.tephra.Transaction;
@@ -38,6 +39,8 @@ import javax.annotation.Nullable;
 public class DequeueScanAttributes {
   private static final String ATTR_CONSUMER_CONFIG = "cdap.queue.dequeue.consumerConfig";
   private static final String ATTR_TX = "cdap.queue.dequeue.transaction";
+  private static final String ATTR_CLAIMED_STATE = "cdap.queue.dequeue.claimedState";
+  private static final String ATTR_MAX_CLAIMS = "cdap.queue.dequeue.maxClaims";
 
   public static Map<String, byte[]> addAttribute(ConsumerConfig consumerConfig, Map<String, byte[]> attributes) {
     try {
@@ -59,6 +62,21 @@ public class DequeueScanAttributes {
     }
   }
 
+  /**
+   * Adds the attributes for claiming up to the given number of entries returned by the dequeue scan.
+   *
+   * @param claimedStateValue the state column value for claimed entries
+   * @param maxClaims maximum number of entries to claim
+   * @param attributes the attributes map to add to
+   * @return the given attributes map
+   */
+  public static Map<String, byte[]> addClaimAttributes(byte[] claimedStateValue, int maxClaims,
+                                                       Map<String, byte[]> attributes) {
+    attributes.put(ATTR_CLAIMED_STATE, claimedStateValue);
+    attributes.put(ATTR_MAX_CLAIMS, Bytes.toBytes(maxClaims));
+    return attributes;
+  }
+
   @Nullable
   public static ConsumerConfig getConsumerConfig(Scan scan) {
     byte[] consumerConfigAttr = scan.getAttribute(ATTR_CONSUMER_CONFIG);
@@ -81,6 +99,42 @@ public class DequeueScanAttributes {
     }
   }
 
+  /**
+   * Returns the state column value for claiming entries returned by the dequeue scan, or {@code null} if
+   * the scan doesn't claim entries.
+   */
+  @Nullable
+  public static byte[] getClaimedStateValue(Scan scan) {
+    return scan.getAttribute(ATTR_CLAIMED_STATE);
+  }
+
+  /**
+   * Returns the maximum number of entries to be claimed by the dequeue scan.
+   */
+  public static int getMaxClaims(Scan scan) {
+    byte[] maxClaimsAttr = scan.getAttribute(ATTR_MAX_CLAIMS);
+    return maxClaimsAttr == null ? 0 : Bytes.toInt(maxClaimsAttr);
+  }
+
+  /**
+   * Divides the maximum number of entries to claim by a dequeue scan among the scans that the dequeue scan is
+   * distributed to, since each of them claims entries separately. The remainder goes to the first scans, so that
+   * the scans together claim exactly the maximum number of entries, even if it is smaller than the number of scans.
+   *
+   * @param scan the dequeue scan
+   * @param scans the scans the dequeue scan is distributed to
+   */
+  public static void divideClaims(Scan scan, Scan[] scans) {
+    int maxClaims = getMaxClaims(scan);
+    if (maxClaims <= 0) {
+      return;
+    }
+    for (int i = 0; i < scans.length; i++) {
+      int claims = maxClaims / scans.length + (i < maxClaims % scans.length ? 1 : 0);
+      scans[i].setAttribute(ATTR_MAX_CLAIMS, Bytes.toBytes(claims));
+    }
+  }
+
   private static byte[] toBytes(ConsumerConfig consumerConfig) throws IOException {
     ByteArrayDataOutput dataOutput = ByteStreams.newDataOutput();
     write(dataOutput, consumerConfig);
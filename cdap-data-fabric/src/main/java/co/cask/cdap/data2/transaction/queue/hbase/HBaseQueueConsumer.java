@@ -125,6 +125,23 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
 
   @Override
   protected QueueScanner getScanner(byte[] startRow, byte[] stopRow, int numRows) throws IOException {
+    return getScanner(startRow, stopRow, numRows, new HashMap<String, byte[]>());
+  }
+
+  /**
+   * Returns a scanner that claims entries on the region servers with the {@code DequeueScanObserver}, so that
+   * no separate check and put call is needed for claiming each of them.
+   */
+  @Override
+  protected QueueScanner getClaimingScanner(byte[] startRow, byte[] stopRow, int numRows,
+                                            byte[] claimedStateValue, int maxClaims) throws IOException {
+    return getScanner(startRow, stopRow, numRows,
+                      DequeueScanAttributes.addClaimAttributes(claimedStateValue, maxClaims,
+                                                               new HashMap<String, byte[]>()));
+  }
+
+  private QueueScanner getScanner(byte[] startRow, byte[] stopRow, int numRows,
+                                  Map<String, byte[]> attributes) throws IOException {
     if (!canConsume) {
       // Need to wait if nothing every consumers reached the last barrier
       byte[] barrierStartRow = state.getPreviousBarrier();
@@ -134,8 +151,7 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
       }
     }
 
-    Map<String, byte[]> attributes = DequeueScanAttributes.addAttribute(transaction,
-                                     DequeueScanAttributes.addAttribute(getConfig(), new HashMap<String, byte[]>()));
+    DequeueScanAttributes.addAttribute(transaction, DequeueScanAttributes.addAttribute(getConfig(), attributes));
     Scan scan = createScan(startRow, getScanStopRow(stopRow), numRows, attributes);
 
     return queueStrategy.createScanner(getConfig(), hTable, scan, numRows);
@@ -97,13 +97,17 @@ public final class SaltedHBaseQueueStrategy implements HBaseQueueStrategy {
   @Override
   public QueueScanner createScanner(ConsumerConfig consumerConfig,
                                     HTable hTable, Scan scan, int numRows) throws IOException {
-    // we should roughly divide by number of buckets, but don't want another RPC for the case we are not exactly right
     ScanBuilder distributedScan = tableUtil.buildScan(scan);
+
+    // we should roughly divide by number of buckets, but don't want another RPC for the case we are not exactly right
     int caching = (int) (1.1 * numRows / distributorBuckets);
     distributedScan.setCaching(caching);
 
-    ResultScanner scanner = DistributedScanner.create(hTable, distributedScan.build(),
-                                                      rowKeyDistributor, scansExecutor);
+    Scan originalScan = distributedScan.build();
+    Scan[] scans = rowKeyDistributor.getDistributedScans(originalScan);
+    // Each bucket is scanned separately, hence also the entries to claim
+    DequeueScanAttributes.divideClaims(scan, scans);
+    ResultScanner scanner = DistributedScanner.create(hTable, originalScan, scans, rowKeyDistributor, scansExecutor);
     return new HBaseQueueScanner(scanner, numRows, rowKeyConverter);
   }
 
@@ -130,7 +130,11 @@ public final class ShardedHBaseQueueStrategy implements HBaseQueueStrategy, Clos
       byte[] rowKey = getShardedKey(consumerConfig, consumerConfig.getInstanceId(), scan.getStopRow());
       shardedScan.setStopRow(rowKey);
     }
-    return DistributedScanner.create(hTable, shardedScan.build(), rowKeyDistributor, scansExecutor);
+    Scan originalScan = shardedScan.build();
+    Scan[] scans = rowKeyDistributor.getDistributedScans(originalScan);
+    // Each bucket is scanned separately, hence also the entries to claim
+    DequeueScanAttributes.divideClaims(scan, scans);
+    return DistributedScanner.create(hTable, originalScan, scans, rowKeyDistributor, scansExecutor);
   }
 
   @Override
@@ -25,15 +25,21 @@ import co.cask.cdap.data2.dataset2.lib.table.leveldb.KeyValue;
 import co.cask.cdap.data2.dataset2.lib.table.leveldb.LevelDBTableCore;
 import co.cask.cdap.data2.queue.ConsumerConfig;
 import co.cask.cdap.data2.transaction.queue.AbstractQueueConsumer;
+import co.cask.cdap.data2.transaction.queue.QueueEntryRow;
 import co.cask.cdap.data2.transaction.queue.QueueEvictor;
 import co.cask.cdap.data2.transaction.queue.QueueScanner;
 import co.cask.tephra.Transaction;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
 import com.google.common.util.concurrent.Uninterruptibles;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.Set;
@@ -162,4 +168,90 @@ public final class LevelDBQueueConsumer extends AbstractQueueConsumer {
       }
     };
   }
+
+  /**
+   * Returns a scanner that reads ahead up to the entries to claim, so that all of them are claimed under one lock
+   * and persisted with one write, instead of one {@link #claimEntry(byte[], byte[])} call per entry.
+   */
+  @Override
+  protected QueueScanner getClaimingScanner(byte[] startRow, byte[] stopRow, int numRows,
+                                            byte[] claimedStateValue, int maxClaims) throws IOException {
+    final QueueScanner scanner = getScanner(startRow, stopRow, numRows);
+    final List<ImmutablePair<byte[], Map<byte[], byte[]>>> rows = Lists.newArrayList();
+    NavigableMap<byte[], NavigableMap<byte[], byte[]>> claims = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    try {
+      ImmutablePair<byte[], Map<byte[], byte[]>> row;
+      while (claims.size() < maxClaims && rows.size() < numRows && (row = scanner.next()) != null) {
+        rows.add(row);
+        if (isClaimable(row.getFirst(), row.getSecond())) {
+          NavigableMap<byte[], byte[]> columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+          columns.put(stateColumnName, claimedStateValue);
+          claims.put(row.getFirst(), columns);
+        }
+      }
+      claimEntries(claims);
+    } catch (IOException e) {
+      scanner.close();
+      throw e;
+    }
+
+    // Returns the rows read ahead, with the state of claimed entries updated, followed by the rest of the rows
+    for (int i = 0; i < rows.size(); i++) {
+      ImmutablePair<byte[], Map<byte[], byte[]>> row = rows.get(i);
+      if (claims.containsKey(row.getFirst())) {
+        Map<byte[], byte[]> columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        columns.putAll(row.getSecond());
+        columns.put(stateColumnName, claimedStateValue);
+        rows.set(i, new ImmutablePair<>(row.getFirst(), columns));
+      }
+    }
+    return new QueueScanner() {
+      private final Iterator<ImmutablePair<byte[], Map<byte[], byte[]>>> iterator = rows.iterator();
+
+      @Override
+      public ImmutablePair<byte[], Map<byte[], byte[]>> next() throws IOException {
+        return iterator.hasNext() ? iterator.next() : scanner.next();
+      }
+
+      @Override
+      public void close() throws IOException {
+        scanner.close();
+      }
+    };
+  }
+
+  /**
+   * Returns {@code true} if the given row is a visible queue entry that is not claimed by any consumer instance.
+   */
+  private boolean isClaimable(byte[] rowKey, Map<byte[], byte[]> columns) {
+    // Row key is queue_name + writePointer + counter
+    long writePointer = Bytes.toLong(rowKey, rowKey.length - Longs.BYTES - Ints.BYTES);
+    return transaction.isVisible(writePointer)
+      && columns.get(QueueEntryRow.DATA_COLUMN) != null
+      && columns.get(QueueEntryRow.META_COLUMN) != null
+      && columns.get(stateColumnName) == null;
+  }
+
+  /**
+   * Claims the given entries. Entries that are claimed by other consumer instances since they were scanned are
+   * removed from the given map.
+   */
+  private void claimEntries(NavigableMap<byte[], NavigableMap<byte[], byte[]>> claims) throws IOException {
+    if (claims.isEmpty()) {
+      return;
+    }
+    synchronized (this.lock) {
+      Iterator<byte[]> iterator = claims.keySet().iterator();
+      while (iterator.hasNext()) {
+        Map<byte[], byte[]> row = core.getRow(iterator.next(), new byte[][] { stateColumnName },
+                                              null, null, -1, Transaction.ALL_VISIBLE_LATEST);
+        if (row.get(stateColumnName) != null) {
+          iterator.remove();
+        }
+      }
+      if (!claims.isEmpty()) {
+        core.persist(claims, KeyValue.LATEST_TIMESTAMP);
+      }
+    }
+  }
 }
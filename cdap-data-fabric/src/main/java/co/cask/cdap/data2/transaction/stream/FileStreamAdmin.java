@@ -28,6 +28,7 @@ import co.cask.cdap.common.namespace.NamespacedLocationFactory;
 import co.cask.cdap.common.utils.OSDetector;
 import co.cask.cdap.data.stream.CoordinatorStreamProperties;
 import co.cask.cdap.data.stream.StreamCoordinatorClient;
+import co.cask.cdap.data.stream.StreamDataFileCompression;
 import co.cask.cdap.data.stream.StreamFileOffset;
 import co.cask.cdap.data.stream.StreamUtils;
 import co.cask.cdap.data.stream.service.StreamMetaStore;
@@ -314,7 +315,8 @@ public class FileStreamAdmin implements StreamAdmin {
           }
 
           return new StreamConfig(streamId, config.getPartitionDuration(), config.getIndexInterval(),
-                                  config.getTTL(), getStreamLocation(streamId), config.getFormat(), threshold);
+                                  config.getTTL(), getStreamLocation(streamId), config.getFormat(), threshold,
+                                  config.getCompression());
         }
       });
     } catch (Exception ex) {
@@ -329,8 +331,11 @@ public class FileStreamAdmin implements StreamAdmin {
     ensureAccess(streamId.toEntityId());
     StreamConfig config = getConfig(streamId);
     StreamSpecification spec = streamMetaStore.getStream(streamId);
+    // No compression is left out of the properties, so that they stay the same as before compression was added
+    String compression = config.getCompression() == StreamDataFileCompression.NONE
+      ? null : config.getCompression().name().toLowerCase();
     return new StreamProperties(config.getTTL(), config.getFormat(), config.getNotificationThresholdMB(),
-                                spec.getDescription());
+                                spec.getDescription(), compression);
   }
 
   @Override
@@ -368,7 +373,7 @@ public class FileStreamAdmin implements StreamAdmin {
           publishAudit(streamId, AuditType.UPDATE);
           return new CoordinatorStreamProperties(properties.getTTL(), properties.getFormat(),
                                                  properties.getNotificationThresholdMB(), null,
-                                                 properties.getDescription());
+                                                 properties.getDescription(), properties.getCompression());
         }
       });
   }
@@ -441,9 +446,11 @@ public class FileStreamAdmin implements StreamAdmin {
             formatSpec = GSON.fromJson(properties.getProperty(Constants.Stream.FORMAT_SPECIFICATION),
                                        FormatSpecification.class);
           }
+          StreamDataFileCompression compression =
+            StreamDataFileCompression.fromName(properties.getProperty(Constants.Stream.COMPRESSION));
 
           final StreamConfig config = new StreamConfig(streamId, partitionDuration, indexInterval,
-                                                       ttl, streamLocation, formatSpec, threshold);
+                                                       ttl, streamLocation, formatSpec, threshold, compression);
           ImpersonationUtils.doAs(ugi, new Callable<Void>() {
             @Override
             public Void call() throws Exception {
@@ -691,6 +698,9 @@ public class FileStreamAdmin implements StreamAdmin {
     if (properties.getNotificationThresholdMB() != null) {
       builder.setNotificationThreshold(properties.getNotificationThresholdMB());
     }
+    if (properties.getCompression() != null) {
+      builder.setCompression(StreamDataFileCompression.fromName(properties.getCompression()));
+    }
 
     // update stream description
     String description = properties.getDescription();
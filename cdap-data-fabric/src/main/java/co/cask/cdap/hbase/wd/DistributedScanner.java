@@ -107,8 +107,20 @@ public class DistributedScanner implements ResultScanner {
                                           Scan originalScan,
                                           AbstractRowKeyDistributor keyDistributor,
                                           ExecutorService scansExecutor) throws IOException {
-    Scan[] scans = keyDistributor.getDistributedScans(originalScan);
+    return create(hTable, originalScan, keyDistributor.getDistributedScans(originalScan), keyDistributor,
+                  scansExecutor);
+  }
 
+  /**
+   * Creates a scanner over the scans that the original scan was distributed to with
+   * {@link AbstractRowKeyDistributor#getDistributedScans(Scan)}, so that the scan of each bucket can be
+   * modified before it is opened.
+   */
+  public static DistributedScanner create(HTableInterface hTable,
+                                          Scan originalScan,
+                                          Scan[] scans,
+                                          AbstractRowKeyDistributor keyDistributor,
+                                          ExecutorService scansExecutor) throws IOException {
     ResultScanner[] rss = new ResultScanner[scans.length];
     for (int i = 0; i < scans.length; i++) {
       rss[i] = hTable.getScanner(scans[i]);
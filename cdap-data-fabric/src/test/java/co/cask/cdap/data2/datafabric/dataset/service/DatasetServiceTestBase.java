@@ -233,7 +233,7 @@ public abstract class DatasetServiceTestBase {
       cConf, impersonator, txSystemClientService, inMemoryDatasetFramework, txExecutorFactory, defaultModules);
 
     instanceService = new DatasetInstanceService(typeService, instanceManager, opExecutor, exploreFacade,
-                                                 namespaceQueryAdmin, authEnforcer, privilegesManager,
+                                                 namespaceQueryAdmin, authEnforcementService, privilegesManager,
                                                  authenticationContext);
 
     service = new DatasetService(cConf, discoveryService, discoveryServiceClient, metricsCollectionService,
@@ -21,9 +21,11 @@ import co.cask.cdap.api.dataset.lib.cube.Cube;
 import co.cask.cdap.api.dataset.lib.cube.CubeDeleteQuery;
 import co.cask.cdap.api.dataset.lib.cube.CubeFact;
 import co.cask.cdap.api.dataset.lib.cube.CubeQuery;
+import co.cask.cdap.api.dataset.lib.cube.Distribution;
 import co.cask.cdap.api.dataset.lib.cube.Interpolator;
 import co.cask.cdap.api.dataset.lib.cube.Interpolators;
 import co.cask.cdap.api.dataset.lib.cube.MeasureType;
+import co.cask.cdap.api.dataset.lib.cube.Measurement;
 import co.cask.cdap.api.dataset.lib.cube.TimeSeries;
 import co.cask.cdap.api.dataset.lib.cube.TimeValue;
 import com.google.common.collect.ImmutableList;
@@ -247,6 +249,58 @@ public abstract class AbstractCubeTest {
 
   }
 
+  @Test
+  public void testDistributions() throws Exception {
+    Aggregation agg1 = new DefaultAggregation(ImmutableList.of("dim1"));
+    Aggregation agg2 = new DefaultAggregation(ImmutableList.of("dim1", "dim2"));
+
+    int res1 = 1;
+    int res100 = 100;
+    Cube cube = getCube("myDistributionCube", new int[] {res1, res100},
+                        ImmutableMap.of("agg1", agg1, "agg2", agg2));
+
+    // write some data, distributions written to the same time bucket get merged
+    writeDistribution(cube, "metric1", 1, 1, 50, "1", "1");
+    writeDistribution(cube, "metric1", 1, 51, 100, "1", "1");
+    writeDistribution(cube, "metric1", 1, 101, 200, "1", "2");
+    writeDistribution(cube, "metric1", 2, 1, 10, "1", "1");
+
+    // now let's query!
+    verifyCountQuery(cube, "agg1", 0, 150, res1, "metric1", AggregationFunction.SUM,
+                     ImmutableMap.of("dim1", "1"), new ArrayList<String>(),
+                     ImmutableList.of(
+                       new TimeSeries("metric1", new HashMap<String, String>(), timeValues(1, 200, 2, 10))));
+    verifyCountQuery(cube, "agg1", 0, 150, res1, "metric1", AggregationFunction.P50,
+                     ImmutableMap.of("dim1", "1"), new ArrayList<String>(),
+                     ImmutableList.of(
+                       new TimeSeries("metric1", new HashMap<String, String>(), timeValues(1, 100, 2, 5))));
+    verifyCountQuery(cube, "agg1", 0, 150, res1, "metric1", AggregationFunction.P95,
+                     ImmutableMap.of("dim1", "1"), new ArrayList<String>(),
+                     ImmutableList.of(
+                       new TimeSeries("metric1", new HashMap<String, String>(), timeValues(1, 190, 2, 10))));
+
+    // all data points are in the same time bucket with the coarser resolution
+    verifyCountQuery(cube, "agg1", 0, 150, res100, "metric1", AggregationFunction.P50,
+                     ImmutableMap.of("dim1", "1"), new ArrayList<String>(),
+                     ImmutableList.of(
+                       new TimeSeries("metric1", new HashMap<String, String>(), timeValues(0, 95))));
+    verifyCountQuery(cube, "agg1", 0, 150, res100, "metric1", AggregationFunction.P99,
+                     ImmutableMap.of("dim1", "1"), new ArrayList<String>(),
+                     ImmutableList.of(
+                       new TimeSeries("metric1", new HashMap<String, String>(), timeValues(0, 198))));
+
+    // distributions are merged across the facts being aggregated at query time
+    verifyCountQuery(cube, "agg2", 0, 150, res1, "metric1", AggregationFunction.P50,
+                     ImmutableMap.of("dim1", "1"), new ArrayList<String>(),
+                     ImmutableList.of(
+                       new TimeSeries("metric1", new HashMap<String, String>(), timeValues(1, 100, 2, 5))));
+    verifyCountQuery(cube, "agg2", 0, 150, res1, "metric1", AggregationFunction.P50,
+                     ImmutableMap.of("dim1", "1"), ImmutableList.of("dim2"),
+                     ImmutableList.of(
+                       new TimeSeries("metric1", dimensionValues("dim2", "1"), timeValues(1, 50, 2, 5)),
+                       new TimeSeries("metric1", dimensionValues("dim2", "2"), timeValues(1, 150))));
+  }
+
   @Test
   public void testInterpolate() throws Exception {
     Aggregation agg1 = new DefaultAggregation(ImmutableList.of("dim1", "dim2", "dim3"),
@@ -334,6 +388,17 @@ public abstract class AbstractCubeTest {
     cube.add(getFact(measureName, ts, value, MeasureType.GAUGE, dims));
   }
 
+  private void writeDistribution(Cube cube, String measureName, long ts,
+                                 long fromValue, long toValue, String... dims) throws Exception {
+    Distribution distribution = new Distribution();
+    for (long value = fromValue; value <= toValue; value++) {
+      distribution.add(value);
+    }
+    cube.add(new CubeFact(ts)
+               .addDimensionValues(dimValuesByValues(dims))
+               .addMeasurement(new Measurement(measureName, distribution)));
+  }
+
   private void writeIncViaBatchWritable(Cube cube, String measureName, long ts,
                                         long value, String... dims) throws Exception {
     // null for key: it is ignored
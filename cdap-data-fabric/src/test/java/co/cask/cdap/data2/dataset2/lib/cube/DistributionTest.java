@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.lib.cube.Distribution;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link Distribution}.
+ */
+public class DistributionTest {
+
+  @Test
+  public void testPercentiles() {
+    Distribution distribution = new Distribution();
+    Assert.assertTrue(distribution.isEmpty());
+    Assert.assertEquals(0L, distribution.getPercentile(50));
+
+    // Small values are exact
+    for (int i = 100; i > 0; i--) {
+      distribution.add(i);
+    }
+    Assert.assertEquals(100L, distribution.getCount());
+    Assert.assertEquals(5050L, distribution.getSum());
+    Assert.assertEquals(1L, distribution.getMin());
+    Assert.assertEquals(100L, distribution.getMax());
+    Assert.assertEquals(50L, distribution.getPercentile(50));
+    Assert.assertEquals(95L, distribution.getPercentile(95));
+    Assert.assertEquals(99L, distribution.getPercentile(99));
+    Assert.assertEquals(100L, distribution.getPercentile(100));
+
+    // Negative values are recorded as zero
+    distribution.add(-10);
+    Assert.assertEquals(0L, distribution.getMin());
+    Assert.assertEquals(0L, distribution.getPercentile(0.5));
+  }
+
+  @Test
+  public void testAccuracy() {
+    Random random = new Random(0L);
+    long[] values = new long[10000];
+    Distribution distribution = new Distribution();
+    for (int i = 0; i < values.length; i++) {
+      values[i] = (long) Math.abs(random.nextGaussian() * 1000000L);
+      distribution.add(values[i]);
+    }
+    Arrays.sort(values);
+
+    for (double percentile : new double[] { 1, 25, 50, 75, 95, 99, 99.9, 100 }) {
+      long expected = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+      long actual = distribution.getPercentile(percentile);
+      Assert.assertTrue("Percentile " + percentile + " expected " + expected + " actual " + actual,
+                        Math.abs(actual - expected) <= expected / 100);
+    }
+    Assert.assertEquals(values[0], distribution.getMin());
+    Assert.assertEquals(values[values.length - 1], distribution.getMax());
+  }
+
+  @Test
+  public void testMerge() {
+    Distribution all = new Distribution();
+    Distribution first = new Distribution();
+    Distribution second = new Distribution();
+    for (long i = 0; i < 1000; i++) {
+      long value = i * i * 37;
+      all.add(value);
+      if (i % 3 == 0) {
+        first.add(value);
+      } else {
+        second.add(value);
+      }
+    }
+    Assert.assertEquals(all, new Distribution().merge(first).merge(second));
+    Assert.assertEquals(all, second.merge(new Distribution()).merge(first));
+  }
+
+  @Test
+  public void testEncoding() {
+    Distribution distribution = new Distribution();
+    Assert.assertEquals(distribution, Distribution.fromBytes(distribution.toBytes()));
+    Assert.assertTrue(distribution.toBytes().length > 8);
+
+    distribution.add(Long.MAX_VALUE);
+    distribution.add(0L);
+    distribution.add(12345L);
+    byte[] bytes = distribution.toBytes();
+    Distribution decoded = Distribution.fromBytes(bytes);
+    Assert.assertEquals(distribution, decoded);
+    Assert.assertEquals(Long.MAX_VALUE, decoded.getPercentile(100));
+
+    try {
+      Distribution.fromBytes(Arrays.copyOf(bytes, bytes.length - 1));
+      Assert.fail("Expected IllegalArgumentException");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.cube;
+
+import co.cask.cdap.api.dataset.DatasetContext;
+import co.cask.cdap.api.dataset.DatasetProperties;
+import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.lib.cube.Cube;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.guice.ConfigModule;
+import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
+import co.cask.cdap.common.guice.NonCustomLocationUnitTestModule;
+import co.cask.cdap.data.runtime.DataFabricLevelDBModule;
+import co.cask.cdap.data.runtime.DataSetsModules;
+import co.cask.cdap.data.runtime.TransactionMetricsModule;
+import co.cask.cdap.data2.dataset2.lib.table.leveldb.LevelDBMetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.leveldb.LevelDBMetricsTableDefinition;
+import co.cask.cdap.data2.dataset2.lib.table.leveldb.LevelDBTableAdmin;
+import co.cask.cdap.data2.dataset2.lib.table.leveldb.LevelDBTableService;
+import co.cask.cdap.data2.dataset2.lib.timeseries.EntityTable;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactTable;
+import co.cask.cdap.proto.Id;
+import co.cask.cdap.security.auth.context.AuthenticationContextModules;
+import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
+import co.cask.cdap.security.authorization.AuthorizationTestModule;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Map;
+
+/**
+ * Runs the {@link AbstractCubeTest} on LevelDB metrics tables, which aggregate facts while scanning.
+ */
+public class LevelDBCubeTest extends AbstractCubeTest {
+
+  @ClassRule
+  public static TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private static final DatasetContext CONTEXT = DatasetContext.from(Id.Namespace.SYSTEM.getId());
+
+  private static CConfiguration cConf;
+  private static LevelDBTableService service;
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, tmpFolder.newFolder().getAbsolutePath());
+    Injector injector = Guice.createInjector(
+      new ConfigModule(cConf),
+      new NonCustomLocationUnitTestModule().getModule(),
+      new DiscoveryRuntimeModule().getStandaloneModules(),
+      new DataSetsModules().getStandaloneModules(),
+      new DataFabricLevelDBModule(),
+      new TransactionMetricsModule(),
+      new AuthorizationTestModule(),
+      new AuthorizationEnforcementModule().getStandaloneModules(),
+      new AuthenticationContextModules().getMasterModule());
+    service = injector.getInstance(LevelDBTableService.class);
+  }
+
+  @Override
+  protected Cube getCube(final String name, int[] resolutions, Map<String, ? extends Aggregation> aggregations) {
+    FactTableSupplier supplier = new FactTableSupplier() {
+      @Override
+      public FactTable get(int resolution, int rollTime) {
+        return new FactTable(getTable("DataTable-" + name + "-" + resolution),
+                             new EntityTable(getTable("EntityTable-" + name)), resolution, rollTime);
+      }
+    };
+
+    return new DefaultCube(resolutions, supplier, aggregations, ImmutableMap.<String, AggregationAlias>of());
+  }
+
+  private LevelDBMetricsTable getTable(String name) {
+    try {
+      DatasetSpecification spec = new LevelDBMetricsTableDefinition("foo").configure(name, DatasetProperties.EMPTY);
+      LevelDBTableAdmin admin = new LevelDBTableAdmin(CONTEXT, spec, service, cConf);
+      if (!admin.exists()) {
+        admin.create();
+      }
+      return new LevelDBMetricsTable(CONTEXT, name, service, cConf);
+    } catch (Exception e) {
+      throw Throwables.propagate(e);
+    }
+  }
+}
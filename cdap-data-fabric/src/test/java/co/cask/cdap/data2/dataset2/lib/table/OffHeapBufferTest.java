@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table;
+
+import co.cask.cdap.api.common.Bytes;
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link OffHeapBuffer}.
+ */
+public class OffHeapBufferTest {
+
+  @Test
+  public void testPutAndGet() {
+    OffHeapBuffer buffer = new OffHeapBuffer(128);
+    Assert.assertTrue(buffer.isEmpty());
+    Assert.assertNull(buffer.getRow(Bytes.toBytes("r1")));
+
+    buffer.put(Bytes.toBytes("r1"), Bytes.toBytes("c2"), Bytes.toBytes("v2"));
+    buffer.put(Bytes.toBytes("r1"), Bytes.toBytes("c1"), Bytes.toBytes("v1"));
+    buffer.put(Bytes.toBytes("r0"), Bytes.toBytes("c1"), null);
+    // Overwrite with value of the same and different length
+    buffer.put(Bytes.toBytes("r1"), Bytes.toBytes("c2"), Bytes.toBytes("x2"));
+    buffer.put(Bytes.toBytes("r1"), Bytes.toBytes("c1"), Bytes.toBytes("value1"));
+    // Oversized value that is larger than the chunk size
+    byte[] large = new byte[1000];
+    new Random().nextBytes(large);
+    buffer.put(Bytes.toBytes("r2"), Bytes.toBytes("c1"), large);
+
+    Assert.assertFalse(buffer.isEmpty());
+    Assert.assertEquals(3, buffer.getRowCount());
+    Assert.assertTrue(buffer.containsRow(Bytes.toBytes("r0")));
+    Assert.assertFalse(buffer.containsRow(Bytes.toBytes("r")));
+
+    NavigableMap<byte[], Update> row = buffer.getRow(Bytes.toBytes("r1"));
+    Assert.assertNotNull(row);
+    Assert.assertEquals(2, row.size());
+    Assert.assertArrayEquals(Bytes.toBytes("value1"), ((PutValue) row.get(Bytes.toBytes("c1"))).getValue());
+    Assert.assertArrayEquals(Bytes.toBytes("x2"), ((PutValue) row.get(Bytes.toBytes("c2"))).getValue());
+
+    row = buffer.getRow(Bytes.toBytes("r0"));
+    Assert.assertNotNull(row);
+    Assert.assertTrue(row.containsKey(Bytes.toBytes("c1")));
+    Assert.assertNull(((PutValue) row.get(Bytes.toBytes("c1"))).getValue());
+
+    row = buffer.getRow(Bytes.toBytes("r2"));
+    Assert.assertNotNull(row);
+    Assert.assertArrayEquals(large, ((PutValue) row.get(Bytes.toBytes("c1"))).getValue());
+
+    // Cleared buffer should be empty and reusable
+    buffer.clear();
+    Assert.assertTrue(buffer.isEmpty());
+    Assert.assertEquals(0L, buffer.getSize());
+    Assert.assertNull(buffer.getRow(Bytes.toBytes("r1")));
+    buffer.put(Bytes.toBytes("r3"), Bytes.toBytes("c3"), Bytes.toBytes("v3"));
+    Assert.assertEquals(1, buffer.getRowCount());
+    Assert.assertArrayEquals(Bytes.toBytes("v3"),
+                             ((PutValue) buffer.getRow(Bytes.toBytes("r3")).get(Bytes.toBytes("c3"))).getValue());
+  }
+
+  @Test
+  public void testIncrement() {
+    OffHeapBuffer buffer = new OffHeapBuffer(1024);
+    byte[] row = Bytes.toBytes("r");
+
+    // Increment on absent cell stays as increment
+    buffer.increment(row, Bytes.toBytes("c1"), 3L);
+    buffer.increment(row, Bytes.toBytes("c1"), 4L);
+    // Increment on put becomes a put
+    buffer.put(row, Bytes.toBytes("c2"), Bytes.toBytes(10L));
+    buffer.increment(row, Bytes.toBytes("c2"), 5L);
+    // Increment on delete becomes a put
+    buffer.put(row, Bytes.toBytes("c3"), null);
+    buffer.increment(row, Bytes.toBytes("c3"), 2L);
+    // Put on increment replaces it
+    buffer.increment(row, Bytes.toBytes("c4"), 2L);
+    buffer.put(row, Bytes.toBytes("c4"), Bytes.toBytes("v4"));
+
+    NavigableMap<byte[], Update> columns = buffer.getRow(row);
+    Assert.assertNotNull(columns);
+    Assert.assertEquals(7L, ((IncrementValue) columns.get(Bytes.toBytes("c1"))).getValue().longValue());
+    Assert.assertEquals(15L, Bytes.toLong(((PutValue) columns.get(Bytes.toBytes("c2"))).getValue()));
+    Assert.assertEquals(2L, Bytes.toLong(((PutValue) columns.get(Bytes.toBytes("c3"))).getValue()));
+    Assert.assertArrayEquals(Bytes.toBytes("v4"), ((PutValue) columns.get(Bytes.toBytes("c4"))).getValue());
+
+    try {
+      buffer.increment(row, Bytes.toBytes("c4"), 1L);
+      Assert.fail("Expected NumberFormatException");
+    } catch (NumberFormatException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testRandomOperations() {
+    OffHeapBuffer buffer = new OffHeapBuffer(4096);
+    NavigableMap<byte[], NavigableMap<byte[], byte[]>> expected = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    Random random = new Random(1L);
+
+    for (int i = 0; i < 20000; i++) {
+      byte[] row = Bytes.toBytes("row" + random.nextInt(500));
+      byte[] column = Bytes.toBytes("col" + random.nextInt(20));
+      byte[] value = Bytes.toBytes("value" + random.nextInt(100000));
+      buffer.put(row, column, value);
+
+      NavigableMap<byte[], byte[]> columns = expected.get(row);
+      if (columns == null) {
+        columns = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+        expected.put(row, columns);
+      }
+      columns.put(column, value);
+    }
+
+    Assert.assertEquals(expected.size(), buffer.getRowCount());
+    assertRows(expected, buffer.rows(null, null));
+
+    byte[] startRow = Bytes.toBytes("row2");
+    byte[] stopRow = Bytes.toBytes("row4");
+    assertRows(expected.subMap(startRow, true, stopRow, false), buffer.rows(startRow, stopRow));
+    assertRows(expected.tailMap(startRow, true), buffer.rows(startRow, null));
+    assertRows(expected.headMap(stopRow, false), buffer.rows(null, stopRow));
+  }
+
+  @Test
+  public void testIterateWithInsert() {
+    OffHeapBuffer buffer = new OffHeapBuffer(1024);
+    buffer.put(Bytes.toBytes("r1"), Bytes.toBytes("c1"), Bytes.toBytes("v1"));
+    buffer.put(Bytes.toBytes("r3"), Bytes.toBytes("c1"), Bytes.toBytes("v3"));
+
+    Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows = buffer.rows(null, null);
+    Assert.assertArrayEquals(Bytes.toBytes("r1"), rows.next().getKey());
+
+    // Inserts after the iterator position are visible, while new cells of the returned row are not repeated
+    buffer.put(Bytes.toBytes("r1"), Bytes.toBytes("c2"), Bytes.toBytes("v1"));
+    buffer.put(Bytes.toBytes("r2"), Bytes.toBytes("c1"), Bytes.toBytes("v2"));
+
+    Assert.assertArrayEquals(Bytes.toBytes("r2"), rows.next().getKey());
+    Assert.assertArrayEquals(Bytes.toBytes("r3"), rows.next().getKey());
+    Assert.assertFalse(rows.hasNext());
+  }
+
+  @Test
+  public void testKeys() {
+    OffHeapBuffer buffer = new OffHeapBuffer(1024);
+    buffer.put(Bytes.toBytes("r2"), Bytes.toBytes("c1"), Bytes.toBytes("v1"));
+    buffer.put(Bytes.toBytes("r1"), Bytes.toBytes("c2"), null);
+    buffer.increment(Bytes.toBytes("r1"), Bytes.toBytes("c1"), 1L);
+
+    Iterator<byte[]> rowKeys = buffer.rowKeys();
+    Assert.assertArrayEquals(Bytes.toBytes("r1"), rowKeys.next());
+    Assert.assertArrayEquals(Bytes.toBytes("r2"), rowKeys.next());
+    Assert.assertFalse(rowKeys.hasNext());
+
+    // Keys copied to another buffer are merged with the ones already there
+    OffHeapBuffer keys = new OffHeapBuffer(1024);
+    keys.put(Bytes.toBytes("r1"), Bytes.toBytes("c1"), Bytes.toBytes("v0"));
+    keys.put(Bytes.toBytes("r3"), Bytes.toBytes("c1"), Bytes.toBytes("v3"));
+    keys.putKeys(buffer);
+    Assert.assertEquals(3, keys.getRowCount());
+
+    Iterator<Map.Entry<byte[], byte[]>> cellKeys = keys.cellKeys();
+    String[][] expected = { {"r1", "c1"}, {"r1", "c2"}, {"r2", "c1"}, {"r3", "c1"} };
+    for (String[] cell : expected) {
+      Map.Entry<byte[], byte[]> key = cellKeys.next();
+      Assert.assertEquals(cell[0], Bytes.toString(key.getKey()));
+      Assert.assertEquals(cell[1], Bytes.toString(key.getValue()));
+    }
+    Assert.assertFalse(cellKeys.hasNext());
+  }
+
+  private void assertRows(NavigableMap<byte[], NavigableMap<byte[], byte[]>> expected,
+                          Iterator<Map.Entry<byte[], NavigableMap<byte[], Update>>> rows) {
+    for (Map.Entry<byte[], NavigableMap<byte[], byte[]>> expectedRow : expected.entrySet()) {
+      Assert.assertTrue(rows.hasNext());
+      Map.Entry<byte[], NavigableMap<byte[], Update>> row = rows.next();
+      Assert.assertArrayEquals(expectedRow.getKey(), row.getKey());
+      Assert.assertEquals(expectedRow.getValue().size(), row.getValue().size());
+      for (Map.Entry<byte[], byte[]> expectedColumn : expectedRow.getValue().entrySet()) {
+        Assert.assertArrayEquals(expectedColumn.getValue(),
+                                 ((PutValue) row.getValue().get(expectedColumn.getKey())).getValue());
+      }
+    }
+    Assert.assertFalse(rows.hasNext());
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.table.leveldb;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.DatasetAdmin;
+import co.cask.cdap.api.dataset.DatasetContext;
+import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.table.ConflictDetection;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
+import co.cask.cdap.api.dataset.table.Table;
+import co.cask.tephra.Transaction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Runs the {@link LevelDBTableTest} with the off-heap buffer enabled.
+ */
+public class LevelDBOffHeapTableTest extends LevelDBTableTest {
+
+  private static final byte[] COLUMN = Bytes.toBytes("c");
+
+  @Override
+  protected LevelDBTable getTable(DatasetContext datasetContext, String name,
+                                  ConflictDetection level) throws IOException {
+    return getTable(datasetContext, name, level, null);
+  }
+
+  private LevelDBTable getTable(DatasetContext datasetContext, String name,
+                                ConflictDetection level, String maxBufferSize) throws IOException {
+    DatasetSpecification.Builder builder = DatasetSpecification
+      .builder(name, "table")
+      .property(Table.PROPERTY_CONFLICT_LEVEL, level.name())
+      .property(Table.PROPERTY_BUFFER_OFF_HEAP, "true");
+    if (maxBufferSize != null) {
+      builder.property(Table.PROPERTY_BUFFER_OFF_HEAP_MAX_SIZE, maxBufferSize);
+    }
+    return new LevelDBTable(datasetContext, name, service, cConf, builder.build());
+  }
+
+  @Test
+  public void testPersistBeforeCommit() throws Exception {
+    String tableName = "testPersistBeforeCommit";
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, tableName);
+    admin.create();
+    try {
+      int rows = 200;
+      // Small buffer size so that the buffer gets persisted multiple times in a transaction
+      LevelDBTable table = getTable(CONTEXT1, tableName, ConflictDetection.ROW, "1024");
+      Transaction tx = txClient.startShort();
+      table.startTx(tx);
+      writeRows(table, rows);
+
+      // Changes are visible within the transaction, and all of them are reported for conflict detection
+      verifyRows(table, rows);
+      Set<byte[]> changes = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+      changes.addAll(table.getTxChanges());
+      Assert.assertEquals(rows, changes.size());
+      Assert.assertEquals(rows, table.getTxChanges().size());
+
+      // Rollback should undo all persisted changes
+      Assert.assertTrue(table.rollbackTx());
+      txClient.abort(tx);
+
+      tx = txClient.startShort();
+      table.startTx(tx);
+      Scanner scanner = table.scan(null, null);
+      Assert.assertNull(scanner.next());
+      scanner.close();
+
+      // Write again and commit
+      writeRows(table, rows);
+      Assert.assertTrue(txClient.canCommit(tx, table.getTxChanges()));
+      Assert.assertTrue(table.commitTx());
+      Assert.assertTrue(txClient.commit(tx));
+      table.postTxCommit();
+
+      tx = txClient.startShort();
+      table.startTx(tx);
+      verifyRows(table, rows);
+      txClient.commit(tx);
+    } finally {
+      admin.drop();
+    }
+  }
+
+  @Test
+  public void testRollbackAfterCommit() throws Exception {
+    String tableName = "testRollbackAfterCommit";
+    DatasetAdmin admin = getTableAdmin(CONTEXT1, tableName);
+    admin.create();
+    try {
+      int rows = 200;
+      LevelDBTable table = getTable(CONTEXT1, tableName, ConflictDetection.COLUMN, "1024");
+      Transaction tx = txClient.startShort();
+      table.startTx(tx);
+      writeRows(table, rows);
+
+      // Each changed cell is reported once, whether it was persisted early or not
+      Set<byte[]> changes = new TreeSet<>(Bytes.BYTES_COMPARATOR);
+      changes.addAll(table.getTxChanges());
+      Assert.assertEquals(rows, changes.size());
+      Assert.assertEquals(rows, table.getTxChanges().size());
+
+      // Rollback after the changes were persisted by commit should undo all of them
+      Assert.assertTrue(table.commitTx());
+      Assert.assertTrue(table.rollbackTx());
+      txClient.abort(tx);
+
+      tx = txClient.startShort();
+      table.startTx(tx);
+      Scanner scanner = table.scan(null, null);
+      Assert.assertNull(scanner.next());
+      scanner.close();
+      txClient.commit(tx);
+    } finally {
+      admin.drop();
+    }
+  }
+
+  private void writeRows(Table table, int rows) {
+    for (int i = 0; i < rows; i++) {
+      table.put(Bytes.toBytes(String.format("row%04d", i)), COLUMN, Bytes.toBytes(i));
+      // Overwrite values persisted earlier in the same transaction
+      if (i % 10 == 0 && i > 0) {
+        table.put(Bytes.toBytes(String.format("row%04d", i / 10)), COLUMN, Bytes.toBytes(i / 10));
+      }
+    }
+  }
+
+  private void verifyRows(Table table, int rows) {
+    Assert.assertArrayEquals(Bytes.toBytes(7), table.get(Bytes.toBytes("row0007"), COLUMN));
+    Scanner scanner = table.scan(null, null);
+    try {
+      Row row;
+      int count = 0;
+      while ((row = scanner.next()) != null) {
+        Assert.assertArrayEquals(Bytes.toBytes(String.format("row%04d", count)), row.getRow());
+        Assert.assertEquals(count, Bytes.toInt(row.get(COLUMN)));
+        count++;
+      }
+      Assert.assertEquals(rows, count);
+    } finally {
+      scanner.close();
+    }
+  }
+}
@@ -16,10 +16,13 @@
 
 package co.cask.cdap.data2.dataset2.lib.table.leveldb;
 
+import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.api.dataset.DatasetContext;
 import co.cask.cdap.api.dataset.DatasetProperties;
 import co.cask.cdap.api.dataset.DatasetSpecification;
 import co.cask.cdap.api.dataset.table.ConflictDetection;
+import co.cask.cdap.api.dataset.table.Row;
+import co.cask.cdap.api.dataset.table.Scanner;
 import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
@@ -42,6 +45,7 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.util.Collections;
 
 /**
  * test for LevelDB tables.
@@ -54,7 +58,7 @@ public class LevelDBTableTest extends BufferingTableTest<LevelDBTable> {
   static LevelDBTableService service;
   static Injector injector = null;
 
-  private static CConfiguration cConf;
+  static CConfiguration cConf;
 
   @BeforeClass
   public static void init() throws Exception {
@@ -114,4 +118,43 @@ public class LevelDBTableTest extends BufferingTableTest<LevelDBTable> {
       service.list().contains(tableName);
     }
   }
+
+  @Test
+  public void testIteratorReuse() throws Exception {
+    String tableName = "testIteratorReuse";
+    byte[] column = Bytes.toBytes("c");
+    service.ensureTableExists(tableName);
+    try {
+      LevelDBTableCore reader = new LevelDBTableCore(tableName, service);
+      LevelDBTableCore writer = new LevelDBTableCore(tableName, service);
+      for (int i = 0; i < 10; i++) {
+        byte[] row = Bytes.toBytes("r" + i);
+        // the reader releases its iterator to the pool, which must not be reused after the write
+        Assert.assertTrue(reader.getRow(row, null, null, null, -1, null).isEmpty());
+        writer.put(row, column, Bytes.toBytes(i), 1L);
+        Assert.assertArrayEquals(Bytes.toBytes(i), reader.getRow(row, new byte[][] { column },
+                                                                  null, null, -1, null).get(column));
+        Scanner scanner = reader.scan(null, null, null, null, null);
+        int count = 0;
+        Row result;
+        while ((result = scanner.next()) != null) {
+          Assert.assertArrayEquals(Bytes.toBytes("r" + count), result.getRow());
+          count++;
+        }
+        Assert.assertEquals(i + 1, count);
+        // closing twice must not return the same iterator to the pool twice
+        scanner.close();
+        scanner.close();
+      }
+
+      writer.deleteRows(Collections.singleton(Bytes.toBytes("r0")));
+      Assert.assertTrue(reader.getRow(Bytes.toBytes("r0"), null, null, null, -1, null).isEmpty());
+      writer.deleteRows(Bytes.toBytes("r"));
+      Scanner scanner = reader.scan(null, null, null, null, null);
+      Assert.assertNull(scanner.next());
+      scanner.close();
+    } finally {
+      service.dropTable(tableName);
+    }
+  }
 }
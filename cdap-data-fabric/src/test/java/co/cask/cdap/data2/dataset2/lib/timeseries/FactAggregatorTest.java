@@ -0,0 +1,111 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.dataset2.lib.timeseries;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
+import co.cask.cdap.api.dataset.lib.cube.Distribution;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import javax.annotation.Nullable;
+
+/**
+ * Tests for {@link FactAggregator}.
+ */
+public class FactAggregatorTest {
+
+  private static final int RESOLUTION = 10;
+  private static final int ROLL_TIME = 100;
+
+  @Test
+  public void testAggregate() {
+    InMemoryTableService.create("AggregatorEntityTable");
+    EntityTable entityTable = new EntityTable(new InMemoryMetricsTable("AggregatorEntityTable"));
+    FactCodec codec = new FactCodec(entityTable, RESOLUTION, ROLL_TIME);
+
+    // group by the first dimension, only in the time range of [100, 180]
+    FactAggregation aggregation = FactAggregation.fromBytes(new FactAggregation(
+      entityTable.getIdSize(), RESOLUTION, 100, 180, new int[] {0},
+      ImmutableMap.of(codec.getMeasureEntityId("count"), AggregationFunction.SUM,
+                      codec.getMeasureEntityId("gauge"), AggregationFunction.MAX,
+                      codec.getMeasureEntityId("latency"), AggregationFunction.P50)).toBytes());
+    FactAggregator aggregator = new FactAggregator(aggregation);
+
+    add(aggregator, codec, "app1", "f1", "count", 100, Bytes.toBytes(1L));
+    add(aggregator, codec, "app1", "f2", "count", 100, Bytes.toBytes(2L));
+    add(aggregator, codec, "app1", "f2", "count", 110, Bytes.toBytes(5L));
+    add(aggregator, codec, "app2", "f1", "count", 100, Bytes.toBytes(4L));
+    // out of the time range
+    add(aggregator, codec, "app1", "f3", "count", 190, Bytes.toBytes(8L));
+    // no value for the group by dimension
+    add(aggregator, codec, null, "f1", "count", 100, Bytes.toBytes(16L));
+    // measure that is not queried
+    add(aggregator, codec, "app1", "f1", "other", 100, Bytes.toBytes(32L));
+    add(aggregator, codec, "app1", "f1", "gauge", 100, Bytes.toBytes(3L));
+    add(aggregator, codec, "app1", "f2", "gauge", 100, Bytes.toBytes(7L));
+    // percentiles are computed from distributions and plain values
+    add(aggregator, codec, "app1", "f1", "latency", 100, new Distribution().add(10).add(20).toBytes());
+    add(aggregator, codec, "app1", "f2", "latency", 100, Bytes.toBytes(30L));
+
+    NavigableMap<byte[], NavigableMap<byte[], byte[]>> results = aggregator.getResults();
+    Map<String, byte[]> values = Maps.newHashMap();
+    for (Map.Entry<byte[], NavigableMap<byte[], byte[]>> row : results.entrySet()) {
+      String measureName = codec.getMeasureName(row.getKey());
+      String app = codec.getDimensionValues(row.getKey()).get(0).getValue();
+      for (Map.Entry<byte[], byte[]> column : row.getValue().entrySet()) {
+        values.put(measureName + "." + app + "." + codec.getTimestamp(row.getKey(), column.getKey()),
+                   column.getValue());
+      }
+    }
+
+    Assert.assertEquals(4, results.size());
+    Assert.assertEquals(5, values.size());
+    Assert.assertEquals(3L, Bytes.toLong(values.get("count.app1.100")));
+    Assert.assertEquals(5L, Bytes.toLong(values.get("count.app1.110")));
+    Assert.assertEquals(4L, Bytes.toLong(values.get("count.app2.100")));
+    Assert.assertEquals(7L, Bytes.toLong(values.get("gauge.app1.100")));
+    Distribution latency = Distribution.fromBytes(values.get("latency.app1.100"));
+    Assert.assertEquals(3L, latency.getCount());
+    Assert.assertEquals(20L, latency.getPercentile(50));
+
+    // each result row has the key of the first row of its group
+    Assert.assertTrue(Arrays.equals(results.firstKey(), createRowKey(codec, "app1", "f1", "count", 100)));
+
+    // aggregator is cleared after getting the results
+    Assert.assertTrue(aggregator.getResults().isEmpty());
+  }
+
+  private void add(FactAggregator aggregator, FactCodec codec, @Nullable String app, String flowlet,
+                   String measureName, long ts, byte[] value) {
+    aggregator.add(createRowKey(codec, app, flowlet, measureName, ts), codec.createColumn(ts), value);
+  }
+
+  private byte[] createRowKey(FactCodec codec, @Nullable String app, String flowlet, String measureName, long ts) {
+    return codec.createRowKey(ImmutableList.of(new DimensionValue("app", app), new DimensionValue("flowlet", flowlet)),
+                              measureName, ts);
+  }
+}
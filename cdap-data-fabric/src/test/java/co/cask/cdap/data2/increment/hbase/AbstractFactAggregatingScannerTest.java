@@ -0,0 +1,250 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.increment.hbase;
+
+import co.cask.cdap.api.dataset.lib.cube.AggregationFunction;
+import co.cask.cdap.api.dataset.lib.cube.DimensionValue;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.data.hbase.HBaseTestBase;
+import co.cask.cdap.data.hbase.HBaseTestFactory;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryMetricsTable;
+import co.cask.cdap.data2.dataset2.lib.table.inmemory.InMemoryTableService;
+import co.cask.cdap.data2.dataset2.lib.timeseries.EntityTable;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactAggregation;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactCodec;
+import co.cask.cdap.data2.increment.hbase.AbstractIncrementHandlerTest.ColumnCell;
+import co.cask.cdap.data2.util.TableId;
+import co.cask.cdap.data2.util.hbase.HBaseTableUtil;
+import co.cask.cdap.data2.util.hbase.HBaseTableUtilFactory;
+import co.cask.cdap.proto.Id;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Common test cases for HBase version-specific {@code FactAggregatingScannerTest} implementations.
+ */
+public abstract class AbstractFactAggregatingScannerTest {
+
+  @ClassRule
+  public static final HBaseTestBase TEST_HBASE = new HBaseTestFactory().get();
+
+  protected static final byte[] FAMILY = Bytes.toBytes("d");
+  private static final byte[] EMPTY_BYTES = new byte[0];
+  private static final int RESOLUTION = 10;
+  private static final int ROLL_TIME = 100;
+  private static final long TS = 100;
+
+  protected static Configuration conf;
+  protected static CConfiguration cConf;
+
+  private static HBaseTableUtil tableUtil;
+  private static FactCodec codec;
+  private static FactAggregation byApp;
+  private static FactAggregation byFlowlet;
+
+  @BeforeClass
+  public static void setupBeforeClass() throws Exception {
+    conf = TEST_HBASE.getConfiguration();
+    cConf = CConfiguration.create();
+    tableUtil = new HBaseTableUtilFactory(cConf).get();
+
+    InMemoryTableService.create("FactAggregatingScannerEntityTable");
+    EntityTable entityTable = new EntityTable(new InMemoryMetricsTable("FactAggregatingScannerEntityTable"));
+    codec = new FactCodec(entityTable, RESOLUTION, ROLL_TIME);
+    Map<Long, AggregationFunction> functions = ImmutableMap.of(codec.getMeasureEntityId("count"),
+                                                               AggregationFunction.SUM);
+    byApp = new FactAggregation(entityTable.getIdSize(), RESOLUTION, 0, Long.MAX_VALUE, new int[] {0}, functions);
+    byFlowlet = new FactAggregation(entityTable.getIdSize(), RESOLUTION, 0, Long.MAX_VALUE, new int[] {1},
+                                    functions);
+  }
+
+  @Test
+  public void testAggregation() throws Exception {
+    try (RegionWrapper region = createRegion("TestFactAggregation")) {
+      // the scanner opened by the coprocessor aggregates the rows, all of them in one batch
+      ScannerWrapper scanner = region.getScanner(createScan(byApp, EMPTY_BYTES, EMPTY_BYTES));
+      Assert.assertTrue(scanner.isAggregating());
+      List<byte[]> rows = Lists.newArrayList();
+      Assert.assertEquals(ImmutableMap.of("app1", 3L, "app2", 12L, "app3", 48L), readAll(scanner, 0, rows));
+      Assert.assertEquals(3, rows.size());
+
+      // the partial aggregates of each batch are returned
+      scanner = region.getAggregatingScanner(createScan(byFlowlet, EMPTY_BYTES, EMPTY_BYTES), byFlowlet, 4);
+      rows.clear();
+      Assert.assertEquals(ImmutableMap.of("f1", 21L, "f2", 42L), readAll(scanner, 1, rows));
+      Assert.assertEquals(4, rows.size());
+
+      // a scan can start in the middle of the region if it is the start of the whole scan
+      byte[] startRow = createRowKey("app2", "f1");
+      scanner = region.getScanner(createScan(byApp, startRow, startRow));
+      Assert.assertTrue(scanner.isAggregating());
+      Assert.assertEquals(ImmutableMap.of("app2", 12L, "app3", 48L), readAll(scanner, 0, rows));
+    }
+  }
+
+  @Test
+  public void testResumeMidBatch() throws Exception {
+    try (RegionWrapper region = createRegion("TestFactAggregationResume")) {
+      // flowlets are interleaved in the only batch of the region
+      ScannerWrapper scanner = region.getScanner(createScan(byFlowlet, EMPTY_BYTES, EMPTY_BYTES));
+      List<ColumnCell> cells = Lists.newArrayList();
+      Assert.assertTrue(scanner.next(cells));
+      byte[] lastRow = cells.get(0).getRow();
+      scanner.close();
+
+      // the client scanner resumes after the last row it received: the rows of the groups not returned yet would be
+      // partially lost, hence the scan must fail for the client to restart its query
+      try {
+        region.getScanner(createScan(byFlowlet, EMPTY_BYTES, Bytes.add(lastRow, new byte[] {0})));
+        Assert.fail("Expected resuming the aggregation in the middle of the region to fail");
+      } catch (ResumedFactScanException e) {
+        // expected
+      }
+
+      // scans of clients that do not set the start row of the whole scan are not checked
+      Scan scan = tableUtil.buildScan()
+        .setAttribute(FactAggregation.SCAN_ATTRIBUTE, byFlowlet.toBytes())
+        .setStartRow(Bytes.add(lastRow, new byte[] {0}))
+        .build();
+      scanner = region.getScanner(scan);
+      Assert.assertTrue(scanner.isAggregating());
+      scanner.close();
+    }
+  }
+
+  @Test
+  public void testReseek() throws Exception {
+    try (RegionWrapper region = createRegion("TestFactAggregationReseek")) {
+      ScannerWrapper scanner = region.getAggregatingScanner(createScan(byApp, EMPTY_BYTES, EMPTY_BYTES), byApp, 2);
+      Assert.assertTrue(scanner.next(Lists.<ColumnCell>newArrayList()));
+
+      // rows already read cannot be aggregated again
+      try {
+        scanner.reseek(createRowKey("app1", "f2"));
+        Assert.fail("Expected reseek to a row already read to fail");
+      } catch (DoNotRetryIOException e) {
+        // expected
+      }
+
+      // the aggregated rows not returned yet are skipped along with the rows before the given one
+      scanner.reseek(createRowKey("app3", "f1"));
+      Assert.assertEquals(ImmutableMap.of("app3", 48L), readAll(scanner, 0, Lists.<byte[]>newArrayList()));
+    }
+  }
+
+  /**
+   * Creates a region with the count of each flowlet of three apps.
+   */
+  private RegionWrapper createRegion(String tableName) throws Exception {
+    RegionWrapper region = createRegion(TableId.from(Id.Namespace.DEFAULT.getId(), tableName));
+    long value = 1;
+    for (String app : new String[] {"app1", "app2", "app3"}) {
+      for (String flowlet : new String[] {"f1", "f2"}) {
+        region.put(tableUtil.buildPut(createRowKey(app, flowlet))
+                     .add(FAMILY, codec.createColumn(TS), Bytes.toBytes(value))
+                     .build());
+        value *= 2;
+      }
+    }
+    return region;
+  }
+
+  private Scan createScan(FactAggregation aggregation, byte[] startRow, byte[] scanStartRow) {
+    return tableUtil.buildScan()
+      .setAttribute(FactAggregation.SCAN_ATTRIBUTE, aggregation.toBytes())
+      .setAttribute(FactAggregation.START_ROW_ATTRIBUTE, startRow)
+      .setStartRow(scanStartRow)
+      .build();
+  }
+
+  private Map<String, Long> readAll(ScannerWrapper scanner, int dimension, List<byte[]> rows) throws Exception {
+    Map<String, Long> totals = Maps.newHashMap();
+    List<ColumnCell> cells = Lists.newArrayList();
+    boolean hasMore;
+    do {
+      cells.clear();
+      hasMore = scanner.next(cells);
+      if (!cells.isEmpty()) {
+        rows.add(cells.get(0).getRow());
+      }
+      for (ColumnCell cell : cells) {
+        String value = codec.getDimensionValues(cell.getRow()).get(dimension).getValue();
+        Long total = totals.get(value);
+        totals.put(value, (total == null ? 0L : total) + Bytes.toLong(cell.getValue()));
+      }
+    } while (hasMore);
+    scanner.close();
+    return totals;
+  }
+
+  private byte[] createRowKey(String app, String flowlet) {
+    return codec.createRowKey(ImmutableList.of(new DimensionValue("app", app), new DimensionValue("flowlet", flowlet)),
+                              "count", TS);
+  }
+
+  /**
+   * Creates and initializes a region with the {@link #FAMILY} column family and the increment handler coprocessor.
+   */
+  public abstract RegionWrapper createRegion(TableId tableId) throws Exception;
+
+  /**
+   * Version-specific access to a region.
+   */
+  public interface RegionWrapper extends Closeable {
+    void put(Put put) throws IOException;
+
+    /**
+     * Opens a scanner the same way as the region server does, through the coprocessors of the region.
+     */
+    ScannerWrapper getScanner(Scan scan) throws IOException;
+
+    /**
+     * Opens a {@code FactAggregatingScanner} that reads batches of the given number of rows.
+     */
+    ScannerWrapper getAggregatingScanner(Scan scan, FactAggregation aggregation, int batchRows) throws IOException;
+  }
+
+  /**
+   * Version-specific access to a region scanner.
+   */
+  public interface ScannerWrapper extends Closeable {
+    /**
+     * @return {@code true} if the scanner is a {@code FactAggregatingScanner}
+     */
+    boolean isAggregating();
+
+    boolean next(List<ColumnCell> cells) throws IOException;
+
+    void reseek(byte[] row) throws IOException;
+  }
+}
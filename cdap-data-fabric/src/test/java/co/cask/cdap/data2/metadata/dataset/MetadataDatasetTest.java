@@ -38,6 +38,7 @@ import org.junit.Test;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -444,6 +445,96 @@ public class MetadataDatasetTest {
     dataset.removeProperties(sysArtifact);
   }
 
+  @Test
+  public void testInvertedIndexSearch() throws Exception {
+    MetadataDataset dataset =
+      getDataset(Id.DatasetInstance.from(DatasetFrameworkTestUtil.NAMESPACE_ID, "testInvertedIndexSearch"));
+    dataset.addTags(app1, "shared", "apponly");
+    dataset.setProperty(flow1, "desc", "shared flow");
+    dataset.addTags(dataset1, "shared");
+    dataset.setProperty(dataset1, "desc", "shared dataset");
+    dataset.addTags(stream1, "other");
+
+    // Until the inverted index is built, searches read the metadata indexes
+    Assert.assertFalse(dataset.isSearchIndexBuilt());
+    verifyInvertedIndexSearch(dataset);
+
+    byte[] startRowKey = null;
+    while ((startRowKey = dataset.rebuildIndexes(startRowKey, 2)) != null) {
+      Assert.assertFalse(dataset.isSearchIndexBuilt());
+    }
+    Assert.assertTrue(dataset.isSearchIndexBuilt());
+    verifyInvertedIndexSearch(dataset);
+
+    // Removing metadata removes the entities from the posting lists
+    Set<MetadataSearchTargetType> all = ImmutableSet.of(MetadataSearchTargetType.ALL);
+    dataset.removeTags(app1);
+    dataset.removeProperties(flow1);
+    SearchResults results = dataset.searchByRelevance("ns1", "shared", all, MetadataDataset.SearchOperator.OR,
+                                                      0, 10);
+    Assert.assertEquals(ImmutableSet.of(dataset1), results.getResults().keySet());
+    results = dataset.searchByRelevance("ns1", "apponly", all, MetadataDataset.SearchOperator.OR, 0, 10);
+    Assert.assertTrue(results.getResults().isEmpty());
+
+    // Deleting the indexes marks the inverted index as not built
+    dataset.deleteAllIndexes(1);
+    Assert.assertFalse(dataset.isSearchIndexBuilt());
+
+    // cleanup
+    dataset.removeTags(dataset1);
+    dataset.removeProperties(dataset1);
+    dataset.removeTags(stream1);
+  }
+
+  private void verifyInvertedIndexSearch(MetadataDataset dataset) {
+    Set<MetadataSearchTargetType> all = ImmutableSet.of(MetadataSearchTargetType.ALL);
+
+    // OR matches any term, AND matches all terms. Entities are ranked by the number of matching metadata fields.
+    SearchResults results = dataset.searchByRelevance("ns1", "shared apponly", all,
+                                                      MetadataDataset.SearchOperator.OR, 0, 10);
+    Assert.assertEquals(ImmutableList.of(app1, dataset1, flow1), ImmutableList.copyOf(results.getResults().keySet()));
+    Assert.assertEquals(ImmutableList.of(2, 2, 1), ImmutableList.copyOf(results.getResults().values()));
+    Assert.assertNull(results.getCursor());
+    results = dataset.searchByRelevance("ns1", "shared apponly", all, MetadataDataset.SearchOperator.AND, 0, 10);
+    Assert.assertEquals(ImmutableSet.of(app1), results.getResults().keySet());
+    results = dataset.searchByRelevance("ns1", "desc:shared*", all, MetadataDataset.SearchOperator.AND, 0, 10);
+    Assert.assertEquals(ImmutableSet.of(flow1, dataset1), results.getResults().keySet());
+
+    // Offset and limit are applied after ranking. Entities with the same score are sorted by entity.
+    results = dataset.searchByRelevance("ns1", "shared", all, MetadataDataset.SearchOperator.OR, 0, 10);
+    Assert.assertEquals(ImmutableList.of(dataset1, flow1, app1), ImmutableList.copyOf(results.getResults().keySet()));
+    results = dataset.searchByRelevance("ns1", "shared", all, MetadataDataset.SearchOperator.OR, 1, 1);
+    Assert.assertEquals(ImmutableSet.of(flow1), results.getResults().keySet());
+    results = dataset.searchByRelevance("ns1", "shared", ImmutableSet.of(MetadataSearchTargetType.PROGRAM),
+                                        MetadataDataset.SearchOperator.OR, 0, 10);
+    Assert.assertEquals(ImmutableSet.of(flow1), results.getResults().keySet());
+
+    // Page through the results sorted by entity with a cursor
+    Set<Id.NamespacedId> paged = new HashSet<>();
+    String cursor = null;
+    int pages = 0;
+    do {
+      results = dataset.searchByEntity("ns1", "shar*", all, MetadataDataset.SearchOperator.OR, cursor, 0, 1);
+      Assert.assertEquals(1, results.getResults().size());
+      paged.addAll(results.getResults().keySet());
+      cursor = results.getCursor();
+      pages++;
+    } while (cursor != null);
+    Assert.assertEquals(3, pages);
+    Assert.assertEquals(ImmutableSet.of(app1, flow1, dataset1), paged);
+
+    results = dataset.searchByEntity("ns1", "shared", all, MetadataDataset.SearchOperator.OR, null, 0, 2);
+    Assert.assertEquals(2, results.getResults().size());
+    Assert.assertNotNull(results.getCursor());
+    SearchResults next = dataset.searchByEntity("ns1", "shared", all, MetadataDataset.SearchOperator.OR,
+                                                results.getCursor(), 0, 2);
+    Assert.assertEquals(1, next.getResults().size());
+    Assert.assertNull(next.getCursor());
+    Assert.assertEquals(next.getResults(), dataset.searchByEntity("ns1", "shared", all,
+                                                                  MetadataDataset.SearchOperator.OR,
+                                                                  null, 2, 2).getResults());
+  }
+
   @Test
   public void testUpdateSearch() throws Exception {
     dataset.setProperty(flow1, "key1", "value1");
@@ -614,6 +705,10 @@ public class MetadataDatasetTest {
     Assert.assertEquals(1, searchResults.size());
     searchResults = dataset.search(namespaceId, "datasetKey:dataset*", targetTypes);
     Assert.assertEquals(1, searchResults.size());
+    // The inverted index is rebuilt too
+    SearchResults results = dataset.searchByRelevance(namespaceId, "flowValue datasetKey:dataset*", targetTypes,
+                                                      MetadataDataset.SearchOperator.OR, 0, 10);
+    Assert.assertEquals(ImmutableSet.of(flow1, dataset1), results.getResults().keySet());
   }
 
   @Test
@@ -37,7 +37,10 @@ import co.cask.cdap.proto.metadata.Metadata;
 import co.cask.cdap.proto.metadata.MetadataChangeRecord;
 import co.cask.cdap.proto.metadata.MetadataRecord;
 import co.cask.cdap.proto.metadata.MetadataScope;
+import co.cask.cdap.proto.metadata.MetadataSearchResponse;
 import co.cask.cdap.proto.metadata.MetadataSearchResultRecord;
+import co.cask.cdap.proto.metadata.MetadataSearchSortOrder;
+import co.cask.cdap.proto.metadata.MetadataSearchTargetType;
 import co.cask.cdap.security.auth.context.AuthenticationContextModules;
 import co.cask.cdap.security.authorization.AuthorizationEnforcementModule;
 import co.cask.cdap.security.authorization.AuthorizationTestModule;
@@ -348,6 +351,63 @@ public class MetadataStoreTest {
     Assert.assertEquals(expected, actual);
   }
 
+  @Test
+  public void testPagedSearch() throws Exception {
+    Id.Stream stream1 = Id.Stream.from("ns3", "s1");
+    Id.Application app1 = Id.Application.from("ns3", "app1");
+    Id.DatasetInstance dataset1 = Id.DatasetInstance.from("ns3", "ds1");
+    Set<MetadataSearchTargetType> all = ImmutableSet.of(MetadataSearchTargetType.ALL);
+
+    // The stream matches two fields, the app matches one field in each scope, the dataset one system field
+    store.setProperties(MetadataScope.USER, stream1, ImmutableMap.of("desc", "paged"));
+    store.addTags(MetadataScope.USER, stream1, "paged");
+    store.addTags(MetadataScope.USER, app1, "paged");
+    store.addTags(MetadataScope.SYSTEM, app1, "paged");
+    store.setProperties(MetadataScope.SYSTEM, dataset1, ImmutableMap.of("desc", "paged"));
+
+    // Results of both scopes are ranked together, and offset and limit apply to the merged results
+    MetadataSearchResponse response = store.search("ns3", "paged", all, MetadataSearchSortOrder.RELEVANCE,
+                                                   0, 2, null);
+    Assert.assertEquals(ImmutableList.of(stream1, app1), getEntityIds(response));
+    Assert.assertEquals(new MetadataSearchResultRecord(
+                          stream1, ImmutableMap.of(MetadataScope.USER,
+                                                   new Metadata(ImmutableMap.of("desc", "paged"),
+                                                                ImmutableSet.of("paged")))),
+                        response.getResults().iterator().next());
+    Assert.assertNull(response.getCursor());
+    response = store.search("ns3", "paged", all, MetadataSearchSortOrder.RELEVANCE, 2, 2, null);
+    Assert.assertEquals(ImmutableList.of(dataset1), getEntityIds(response));
+
+    // Page through the results sorted by entity with a cursor. The app is found in both scopes but returned once
+    List<Id.NamespacedId> paged = new ArrayList<>();
+    String cursor = null;
+    do {
+      response = store.search("ns3", "paged", all, MetadataSearchSortOrder.ENTITY, 0, 1, cursor);
+      paged.addAll(getEntityIds(response));
+      cursor = response.getCursor();
+    } while (cursor != null);
+    Assert.assertEquals(3, paged.size());
+    Assert.assertEquals(ImmutableSet.of(stream1, app1, dataset1), ImmutableSet.copyOf(paged));
+    response = store.search("ns3", "paged", all, MetadataSearchSortOrder.ENTITY, 1, 5, null);
+    Assert.assertEquals(paged.subList(1, 3), getEntityIds(response));
+    Assert.assertNull(response.getCursor());
+
+    try {
+      store.search("ns3", "paged", all, MetadataSearchSortOrder.RELEVANCE, 0, 1, "cursor");
+      Assert.fail("A cursor is only supported when sorting by entity");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+  }
+
+  private List<Id.NamespacedId> getEntityIds(MetadataSearchResponse response) {
+    List<Id.NamespacedId> entityIds = new ArrayList<>();
+    for (MetadataSearchResultRecord record : response.getResults()) {
+      entityIds.add(record.getEntityId());
+    }
+    return entityIds;
+  }
+
   @AfterClass
   public static void teardown() {
     txManager.stopAndWait();
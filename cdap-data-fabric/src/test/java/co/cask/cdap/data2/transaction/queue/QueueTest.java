@@ -230,6 +230,58 @@ public abstract class QueueTest {
     verifyQueueIsEmpty(queueName, consumerConfigs);
   }
 
+  @Test(timeout = TIMEOUT_MS)
+  public void testFifoClaim() throws Exception {
+    QueueName queueName = QueueName.fromFlowlet(Id.Namespace.DEFAULT.getId(), "app", "flow", "flowlet", "fifoclaim");
+    configureGroups(queueName, ImmutableList.of(new ConsumerGroupConfig(0L, 2, DequeueStrategy.FIFO, null)));
+
+    List<ConsumerConfig> consumerConfigs = ImmutableList.of(
+      new ConsumerConfig(0, 0, 2, DequeueStrategy.FIFO, null),
+      new ConsumerConfig(0, 1, 2, DequeueStrategy.FIFO, null)
+    );
+
+    createEnqueueRunnable(queueName, 100, 10, null).run();
+
+    try (
+      QueueConsumer consumer1 = queueClientFactory.createConsumer(queueName, consumerConfigs.get(0), 1);
+      QueueConsumer consumer2 = queueClientFactory.createConsumer(queueName, consumerConfigs.get(1), 1)
+    ) {
+      TransactionContext txContext1 = createTxContext(consumer1);
+      TransactionContext txContext2 = createTxContext(consumer2);
+
+      // The first consumer only claims the entries it dequeues, even though more entries are fetched
+      txContext1.start();
+      Assert.assertEquals(ImmutableList.of(0, 1), toInts(consumer1.dequeue(2)));
+
+      txContext2.start();
+      List<Integer> values = toInts(consumer2.dequeue(100));
+      Assert.assertEquals(98, values.size());
+      Assert.assertEquals(2, values.get(0).intValue());
+      Assert.assertEquals(99, values.get(97).intValue());
+      txContext2.finish();
+
+      // Claimed entries stay with the first consumer after abort
+      txContext1.abort();
+      txContext2.start();
+      Assert.assertTrue(consumer2.dequeue(100).isEmpty());
+      txContext2.finish();
+
+      txContext1.start();
+      Assert.assertEquals(ImmutableList.of(0, 1), toInts(consumer1.dequeue(100)));
+      txContext1.finish();
+    }
+
+    verifyQueueIsEmpty(queueName, consumerConfigs);
+  }
+
+  private List<Integer> toInts(DequeueResult<byte[]> result) {
+    List<Integer> values = Lists.newArrayList();
+    for (byte[] bytes : result) {
+      values.add(Bytes.toInt(bytes));
+    }
+    return values;
+  }
+
   @Test(timeout = TIMEOUT_MS)
   public void testRollback() throws Exception {
     QueueName queueName = QueueName.fromFlowlet(Id.Namespace.DEFAULT.getId(), "app",
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.transaction.queue.hbase;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.data2.transaction.queue.QueueConstants;
+import co.cask.cdap.hbase.wd.RowKeyDistributorByHashPrefix;
+import org.apache.hadoop.hbase.client.Scan;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests for {@link DequeueScanAttributes}.
+ */
+public class DequeueScanAttributesTest {
+
+  @Test
+  public void testDivideClaims() throws Exception {
+    // Use the default number of buckets of the queue tables
+    int buckets = CConfiguration.create().getInt(QueueConstants.ConfigKeys.QUEUE_TABLE_PRESPLITS);
+    RowKeyDistributorByHashPrefix distributor =
+      new RowKeyDistributorByHashPrefix(new RowKeyDistributorByHashPrefix.OneByteSimpleHash(buckets));
+
+    for (int maxClaims : new int[] { 1, buckets - 1, buckets, buckets + 1, 10 * buckets + 3 }) {
+      Scan scan = new Scan(Bytes.toBytes("queue"), Bytes.toBytes("queuf"));
+      for (Map.Entry<String, byte[]> attribute :
+        DequeueScanAttributes.addClaimAttributes(new byte[] { 1 }, maxClaims, new HashMap<String, byte[]>())
+          .entrySet()) {
+        scan.setAttribute(attribute.getKey(), attribute.getValue());
+      }
+
+      Scan[] scans = distributor.getDistributedScans(scan);
+      Assert.assertEquals(buckets, scans.length);
+      DequeueScanAttributes.divideClaims(scan, scans);
+
+      // The scans together claim exactly the requested number of entries, spread as evenly as possible
+      int total = 0;
+      for (Scan bucketScan : scans) {
+        int claims = DequeueScanAttributes.getMaxClaims(bucketScan);
+        Assert.assertTrue(claims == maxClaims / buckets || claims == maxClaims / buckets + 1);
+        total += claims;
+      }
+      Assert.assertEquals(maxClaims, total);
+    }
+  }
+}
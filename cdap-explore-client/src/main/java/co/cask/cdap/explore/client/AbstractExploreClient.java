@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -23,6 +23,7 @@ import co.cask.cdap.explore.service.Explore;
 import co.cask.cdap.explore.service.ExploreException;
 import co.cask.cdap.explore.service.HandleNotFoundException;
 import co.cask.cdap.explore.service.MetaDataInfo;
+import co.cask.cdap.explore.service.QueryResultChunkCodec;
 import co.cask.cdap.proto.ColumnDesc;
 import co.cask.cdap.proto.Id;
 import co.cask.cdap.proto.NamespaceMeta;
@@ -35,6 +36,7 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
 import com.google.common.util.concurrent.AbstractFuture;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
@@ -46,6 +48,8 @@ import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Arrays;
@@ -380,7 +384,8 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
   }
 
   /**
-   * Result iterator which polls Explore service using HTTP to get next results.
+   * Result iterator which streams results from the Explore service using HTTP, in chunks of the fetch size.
+   * If the service does not support streaming, it polls the service to get the next results instead.
    */
   private static final class ClientExploreExecutionResult extends AbstractIterator<QueryResult>
     implements ExploreExecutionResult {
@@ -389,6 +394,8 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
 
     private int fetchSize = DEFAULT_FETCH_SIZE;
     private Iterator<QueryResult> delegate;
+    private DataInputStream resultStream;
+    private boolean streamUnsupported;
     private List<ColumnDesc> resultSchema = null;
 
     private final ExploreHttpClient exploreClient;
@@ -416,15 +423,18 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
         return delegate.next();
       }
       try {
-        // call the endpoint 'next' to get more results and set delegate
-        List<QueryResult> nextResults = convertRows(exploreClient.nextResults(handle, fetchSize));
+        List<QueryResult> nextResults = convertRows(fetchNextResults());
         delegate = nextResults.iterator();
 
         // At this point, if delegate has no result, there are no more results at all
         if (!delegate.hasNext()) {
+          Closeables.closeQuietly(resultStream);
           return endOfData();
         }
         return delegate.next();
+      } catch (IOException e) {
+        LOG.error("Exception while reading the results of query {}", handle.getHandle(), e);
+        throw Throwables.propagate(e);
       } catch (ExploreException e) {
         LOG.error("Exception while iterating through the results of query {}", handle.getHandle(), e);
         throw Throwables.propagate(e);
@@ -435,6 +445,28 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
       }
     }
 
+    /**
+     * Reads the next chunk of results from the result stream, or calls the endpoint 'next' to get more results if
+     * the service does not support streaming.
+     */
+    private List<QueryResult> fetchNextResults() throws ExploreException, HandleNotFoundException, IOException {
+      if (resultStream == null && !streamUnsupported) {
+        try {
+          // The fetch size is sent when the stream is opened, hence changing it afterwards has no effect
+          resultStream = new DataInputStream(new BufferedInputStream(exploreClient.streamResults(handle, fetchSize)));
+        } catch (HandleNotFoundException e) {
+          // A service without the 'stream' endpoint responds with 404 as well. The 'next' endpoint tells whether the
+          // handle is actually unknown.
+          LOG.debug("Cannot stream the results of query {}, getting them in batches instead", handle.getHandle());
+          streamUnsupported = true;
+        }
+      }
+      if (resultStream != null) {
+        return QueryResultChunkCodec.decode(resultStream);
+      }
+      return exploreClient.nextResults(handle, fetchSize);
+    }
+
     private List<QueryResult> convertRows(List<QueryResult> rows) throws ExploreException {
       List<ColumnDesc> schema = getResultSchema();
       ImmutableList.Builder<QueryResult> builder = ImmutableList.builder();
@@ -458,7 +490,7 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
             } else if (schemaColumn.getType().equals("TINYINT")) {
               columnValue = ((Double) columnValue).byteValue();
             }
-          } else if ("BINARY".equals(columnType)) {
+          } else if ("BINARY".equals(columnType) && !(columnValue instanceof byte[])) {
             // A BINARY value is a byte array, which is deserialized by GSon into a list of
             // double objects - here we recreate a byte[] object.
             List<Object> binary;
@@ -498,6 +530,7 @@ public abstract class AbstractExploreClient extends ExploreHttpClient implements
 
     @Override
     public void close() throws IOException {
+      Closeables.closeQuietly(resultStream);
       try {
         exploreClient.close(handle);
       } catch (HandleNotFoundException e) {
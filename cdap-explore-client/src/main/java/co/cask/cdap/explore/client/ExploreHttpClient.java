@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -27,6 +27,7 @@ import co.cask.cdap.explore.service.Explore;
 import co.cask.cdap.explore.service.ExploreException;
 import co.cask.cdap.explore.service.HandleNotFoundException;
 import co.cask.cdap.explore.service.MetaDataInfo;
+import co.cask.cdap.explore.service.QueryResultChunkCodec;
 import co.cask.cdap.explore.service.TableNotFoundException;
 import co.cask.cdap.explore.utils.ColumnsArgs;
 import co.cask.cdap.explore.utils.FunctionsArgs;
@@ -59,14 +60,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
 import java.net.HttpURLConnection;
 import java.net.InetSocketAddress;
 import java.net.URL;
+import java.security.GeneralSecurityException;
 import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nullable;
+import javax.net.ssl.HttpsURLConnection;
 
 /**
  * The methods of this class call the HTTP APIs exposed by explore and return the raw information
@@ -254,6 +259,50 @@ abstract class ExploreHttpClient implements Explore {
     throw new ExploreException("Cannot get next results. Reason: " + response);
   }
 
+  /**
+   * Opens a stream of the results of a query, encoded in chunks by {@link QueryResultChunkCodec}. The service fetches
+   * the results in batches of the given size, and only fetches the next batch when the client is ready to receive it.
+   *
+   * @param handle handle of the query
+   * @param size number of rows in each chunk
+   * @return an {@link InputStream} of the encoded results, which must be closed by the caller
+   * @throws HandleNotFoundException if the handle is unknown, or if the service does not support streaming results
+   */
+  protected InputStream streamResults(QueryHandle handle, int size) throws ExploreException, HandleNotFoundException {
+    String resolvedUrl = resolve(String.format("data/explore/queries/%s/%s", handle.getHandle(), "stream"));
+    try {
+      HttpRequestConfig requestConfig = createRequestConfig();
+      HttpURLConnection conn = (HttpURLConnection) new URL(resolvedUrl).openConnection();
+      conn.setConnectTimeout(requestConfig.getConnectTimeout());
+      conn.setReadTimeout(requestConfig.getReadTimeout());
+      if (conn instanceof HttpsURLConnection && !requestConfig.isVerifySSLCert()) {
+        HttpRequests.disableCertCheck((HttpsURLConnection) conn);
+      }
+      conn.setRequestMethod("POST");
+      if (getAuthToken() != null && !getAuthToken().isEmpty()) {
+        conn.setRequestProperty("Authorization", "Bearer " + getAuthToken());
+      }
+      conn.setDoOutput(true);
+      try (OutputStream os = conn.getOutputStream()) {
+        os.write(GSON.toJson(ImmutableMap.of("size", size)).getBytes(Charsets.UTF_8));
+      }
+
+      int responseCode = conn.getResponseCode();
+      if (responseCode == HttpURLConnection.HTTP_OK) {
+        return conn.getInputStream();
+      }
+      String responseMessage = conn.getResponseMessage();
+      conn.disconnect();
+      if (responseCode == HttpURLConnection.HTTP_NOT_FOUND) {
+        throw new HandleNotFoundException("Handle " + handle.getHandle() + "not found.");
+      }
+      throw new ExploreException(String.format("Cannot stream results. Reason: %d %s", responseCode, responseMessage));
+    } catch (IOException | GeneralSecurityException e) {
+      throw new ExploreException(String.format("Error connecting to Explore Service at %s while streaming results",
+                                               resolvedUrl), e);
+    }
+  }
+
   @Override
   public List<QueryResult> previewResults(QueryHandle handle)
     throws ExploreException, HandleNotFoundException, SQLException {
@@ -0,0 +1,271 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.explore.service;
+
+import co.cask.cdap.proto.QueryResult;
+import com.google.common.base.Charsets;
+import com.google.common.base.Preconditions;
+import com.google.gson.Gson;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encodes and decodes query results in a compact, column oriented binary format, used for streaming the results
+ * of a query from the Explore service in chunks.
+ * <p>
+ * A chunk starts with the number of rows and the number of columns. Then the values of each column follow, as a type
+ * tag, a bitmap of the null values if there is any, and the non-null values in their native binary form. Values of
+ * types without a native form, or columns with values of mixed types, are written as JSON. A chunk without any row
+ * marks the end of the results.
+ * </p>
+ */
+public final class QueryResultChunkCodec {
+
+  private static final Gson GSON = new Gson();
+
+  // Type tags of the columns
+  private static final byte TYPE_NULL = 0;
+  private static final byte TYPE_BOOLEAN = 1;
+  private static final byte TYPE_BYTE = 2;
+  private static final byte TYPE_SHORT = 3;
+  private static final byte TYPE_INT = 4;
+  private static final byte TYPE_LONG = 5;
+  private static final byte TYPE_DOUBLE = 6;
+  private static final byte TYPE_STRING = 7;
+  private static final byte TYPE_BINARY = 8;
+  private static final byte TYPE_JSON = 9;
+
+  private QueryResultChunkCodec() {
+  }
+
+  /**
+   * Encodes the given rows as one chunk. Encoding an empty list of rows writes the end of the results.
+   *
+   * @param rows the rows to encode, all of which must have the same number of columns
+   * @param output the {@link DataOutput} to write to
+   * @throws IOException if failed to write to the output
+   */
+  public static void encode(List<QueryResult> rows, DataOutput output) throws IOException {
+    output.writeInt(rows.size());
+    if (rows.isEmpty()) {
+      return;
+    }
+    int columns = rows.get(0).getColumns().size();
+    for (QueryResult row : rows) {
+      Preconditions.checkArgument(row.getColumns().size() == columns, "Rows have different number of columns.");
+    }
+    output.writeInt(columns);
+
+    for (int column = 0; column < columns; column++) {
+      byte type = getColumnType(rows, column);
+      output.writeByte(type);
+      if (type == TYPE_NULL) {
+        continue;
+      }
+      writeNulls(rows, column, output);
+      for (QueryResult row : rows) {
+        Object value = row.getColumns().get(column);
+        if (value != null) {
+          writeValue(type, value, output);
+        }
+      }
+    }
+  }
+
+  /**
+   * Decodes one chunk of rows.
+   *
+   * @param input the {@link DataInput} to read from
+   * @return the rows decoded, or an empty list if the end of the results is reached
+   * @throws IOException if failed to read from the input
+   */
+  public static List<QueryResult> decode(DataInput input) throws IOException {
+    int rows = input.readInt();
+    if (rows == 0) {
+      return Collections.emptyList();
+    }
+    int columns = input.readInt();
+    Object[][] values = new Object[rows][columns];
+
+    for (int column = 0; column < columns; column++) {
+      byte type = input.readByte();
+      if (type == TYPE_NULL) {
+        continue;
+      }
+      byte[] nulls = null;
+      if (input.readBoolean()) {
+        nulls = new byte[(rows + 7) / 8];
+        input.readFully(nulls);
+      }
+      for (int row = 0; row < rows; row++) {
+        if (nulls == null || (nulls[row >> 3] & (1 << (row & 7))) == 0) {
+          values[row][column] = readValue(type, input);
+        }
+      }
+    }
+
+    List<QueryResult> results = new ArrayList<>(rows);
+    for (Object[] row : values) {
+      results.add(new QueryResult(Arrays.asList(row)));
+    }
+    return results;
+  }
+
+  /**
+   * Returns the type tag of the given column, which is the type shared by all its non-null values.
+   */
+  private static byte getColumnType(List<QueryResult> rows, int column) {
+    byte columnType = TYPE_NULL;
+    for (QueryResult row : rows) {
+      Object value = row.getColumns().get(column);
+      if (value == null) {
+        continue;
+      }
+      byte type = getType(value);
+      if (columnType == TYPE_NULL) {
+        columnType = type;
+      } else if (columnType != type) {
+        return TYPE_JSON;
+      }
+    }
+    return columnType;
+  }
+
+  private static byte getType(Object value) {
+    if (value instanceof Boolean) {
+      return TYPE_BOOLEAN;
+    }
+    if (value instanceof Byte) {
+      return TYPE_BYTE;
+    }
+    if (value instanceof Short) {
+      return TYPE_SHORT;
+    }
+    if (value instanceof Integer) {
+      return TYPE_INT;
+    }
+    if (value instanceof Long) {
+      return TYPE_LONG;
+    }
+    if (value instanceof Double) {
+      return TYPE_DOUBLE;
+    }
+    if (value instanceof String) {
+      return TYPE_STRING;
+    }
+    if (value instanceof byte[] || value instanceof ByteBuffer) {
+      return TYPE_BINARY;
+    }
+    return TYPE_JSON;
+  }
+
+  private static void writeNulls(List<QueryResult> rows, int column, DataOutput output) throws IOException {
+    byte[] nulls = new byte[(rows.size() + 7) / 8];
+    boolean hasNull = false;
+    for (int row = 0; row < rows.size(); row++) {
+      if (rows.get(row).getColumns().get(column) == null) {
+        nulls[row >> 3] |= 1 << (row & 7);
+        hasNull = true;
+      }
+    }
+    output.writeBoolean(hasNull);
+    if (hasNull) {
+      output.write(nulls);
+    }
+  }
+
+  private static void writeValue(byte type, Object value, DataOutput output) throws IOException {
+    switch (type) {
+      case TYPE_BOOLEAN:
+        output.writeBoolean((Boolean) value);
+        break;
+      case TYPE_BYTE:
+        output.writeByte((Byte) value);
+        break;
+      case TYPE_SHORT:
+        output.writeShort((Short) value);
+        break;
+      case TYPE_INT:
+        output.writeInt((Integer) value);
+        break;
+      case TYPE_LONG:
+        output.writeLong((Long) value);
+        break;
+      case TYPE_DOUBLE:
+        output.writeDouble((Double) value);
+        break;
+      case TYPE_STRING:
+        writeBytes(((String) value).getBytes(Charsets.UTF_8), output);
+        break;
+      case TYPE_BINARY:
+        if (value instanceof ByteBuffer) {
+          ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+          byte[] bytes = new byte[buffer.remaining()];
+          buffer.get(bytes);
+          writeBytes(bytes, output);
+        } else {
+          writeBytes((byte[]) value, output);
+        }
+        break;
+      default:
+        writeBytes(GSON.toJson(value).getBytes(Charsets.UTF_8), output);
+    }
+  }
+
+  private static Object readValue(byte type, DataInput input) throws IOException {
+    switch (type) {
+      case TYPE_BOOLEAN:
+        return input.readBoolean();
+      case TYPE_BYTE:
+        return input.readByte();
+      case TYPE_SHORT:
+        return input.readShort();
+      case TYPE_INT:
+        return input.readInt();
+      case TYPE_LONG:
+        return input.readLong();
+      case TYPE_DOUBLE:
+        return input.readDouble();
+      case TYPE_STRING:
+        return new String(readBytes(input), Charsets.UTF_8);
+      case TYPE_BINARY:
+        return readBytes(input);
+      case TYPE_JSON:
+        return GSON.fromJson(new String(readBytes(input), Charsets.UTF_8), Object.class);
+      default:
+        throw new IOException("Unknown column type " + type);
+    }
+  }
+
+  private static void writeBytes(byte[] bytes, DataOutput output) throws IOException {
+    output.writeInt(bytes.length);
+    output.write(bytes);
+  }
+
+  private static byte[] readBytes(DataInput input) throws IOException {
+    byte[] bytes = new byte[input.readInt()];
+    input.readFully(bytes);
+    return bytes;
+  }
+}
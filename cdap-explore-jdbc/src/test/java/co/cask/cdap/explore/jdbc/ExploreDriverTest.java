@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014 Cask Data, Inc.
+ * Copyright © 2014-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -17,6 +17,7 @@
 package co.cask.cdap.explore.jdbc;
 
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.explore.service.QueryResultChunkCodec;
 import co.cask.cdap.proto.ColumnDesc;
 import co.cask.cdap.proto.QueryHandle;
 import co.cask.cdap.proto.QueryResult;
@@ -27,12 +28,15 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBufferInputStream;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.junit.AfterClass;
@@ -168,6 +172,50 @@ public class ExploreDriverTest {
     statement.close();
   }
 
+  @Test
+  public void testStreamedResults() throws Exception {
+    Connection connection = DriverManager.getConnection(exploreServiceUrl);
+    PreparedStatement statement = connection.prepareStatement(MockExploreExecutorHandler.MULTI_CHUNK_QUERY);
+    statement.setFetchSize(2);
+    ResultSet resultSet = statement.executeQuery();
+
+    // Results are streamed in three chunks of the fetch size, and null values are preserved
+    for (int i = 1; i <= 5; i++) {
+      Assert.assertTrue(resultSet.next());
+      Assert.assertEquals(i, resultSet.getInt(1));
+      if (i == 3) {
+        Assert.assertNull(resultSet.getString(2));
+        Assert.assertTrue(resultSet.wasNull());
+      } else {
+        Assert.assertEquals("value" + i, resultSet.getString(2));
+      }
+    }
+    Assert.assertFalse(resultSet.next());
+    Assert.assertEquals(ImmutableList.of(2), MockExploreExecutorHandler.STREAM_FETCH_SIZES);
+
+    resultSet.close();
+    statement.close();
+  }
+
+  @Test
+  public void testStreamFallback() throws Exception {
+    Connection connection = DriverManager.getConnection(exploreServiceUrl);
+    PreparedStatement statement = connection.prepareStatement(MockExploreExecutorHandler.NO_STREAM_QUERY);
+    ResultSet resultSet = statement.executeQuery();
+
+    // Results are fetched through the 'next' endpoint if the service has no 'stream' endpoint
+    Assert.assertTrue(resultSet.next());
+    Assert.assertEquals(1, resultSet.getInt(1));
+    Assert.assertEquals("one", resultSet.getString(2));
+    Assert.assertTrue(resultSet.next());
+    Assert.assertEquals(2, resultSet.getInt(1));
+    Assert.assertEquals("two", resultSet.getString(2));
+    Assert.assertFalse(resultSet.next());
+
+    resultSet.close();
+    statement.close();
+  }
+
   @Test(timeout = 2000L)
   public void testCancelQuery() throws Exception {
     Connection connection = DriverManager.getConnection(exploreServiceUrl);
@@ -195,11 +243,16 @@ public class ExploreDriverTest {
   @Path(Constants.Gateway.API_VERSION_3)
   public static class MockExploreExecutorHandler extends AbstractHttpHandler {
     static final String LONG_RUNNING_QUERY = "long_running_query";
+    static final String MULTI_CHUNK_QUERY = "multi_chunk_query";
+    static final String NO_STREAM_QUERY = "no_stream_query";
+    static final List<Integer> STREAM_FETCH_SIZES = Lists.newArrayList();
 
     private static final Set<String> handleWithFetchedResutls = Sets.newHashSet();
     private static final Set<String> closedHandles = Sets.newHashSet();
     private static final Set<String> canceledHandles = Sets.newHashSet();
     private static final Set<String> longRunningQueries = Sets.newHashSet();
+    private static final Set<String> multiChunkQueries = Sets.newHashSet();
+    private static final Set<String> noStreamQueries = Sets.newHashSet();
 
     @GET
     @Path("explore/status")
@@ -215,6 +268,10 @@ public class ExploreDriverTest {
         Map<String, String> args = decodeArguments(request);
         if (LONG_RUNNING_QUERY.equals(args.get("query"))) {
           longRunningQueries.add(handle.getHandle());
+        } else if (MULTI_CHUNK_QUERY.equals(args.get("query"))) {
+          multiChunkQueries.add(handle.getHandle());
+        } else if (NO_STREAM_QUERY.equals(args.get("query"))) {
+          noStreamQueries.add(handle.getHandle());
         }
         responder.sendJson(HttpResponseStatus.OK, handle);
       } catch (IOException e) {
@@ -280,6 +337,38 @@ public class ExploreDriverTest {
       responder.sendJson(HttpResponseStatus.OK, rows);
     }
 
+    @POST
+    @Path("data/explore/queries/{id}/stream")
+    public void streamQueryResults(HttpRequest request, HttpResponder responder,
+                                   @PathParam("id") String id) throws IOException {
+      // Respond as a service without the 'stream' endpoint would
+      if (closedHandles.contains(id) || noStreamQueries.contains(id)) {
+        responder.sendStatus(HttpResponseStatus.NOT_FOUND);
+        return;
+      }
+      List<QueryResult> rows = Lists.newArrayList();
+      int size = Integer.parseInt(decodeArguments(request).get("size"));
+      if (multiChunkQueries.contains(id)) {
+        STREAM_FETCH_SIZES.add(size);
+        for (int i = 1; i <= 5; i++) {
+          rows.add(new QueryResult(Lists.<Object>newArrayList(i, i == 3 ? null : "value" + i)));
+        }
+      } else if (!canceledHandles.contains(id) && !handleWithFetchedResutls.contains(id)) {
+        rows.add(new QueryResult(ImmutableList.<Object>of("1", "one")));
+        rows.add(new QueryResult(ImmutableList.<Object>of("2", "two")));
+        handleWithFetchedResutls.add(id);
+      }
+
+      ChannelBuffer content = ChannelBuffers.dynamicBuffer();
+      ChannelBufferOutputStream output = new ChannelBufferOutputStream(content);
+      for (List<QueryResult> chunk : Lists.partition(rows, size)) {
+        QueryResultChunkCodec.encode(chunk, output);
+      }
+      QueryResultChunkCodec.encode(ImmutableList.<QueryResult>of(), output);
+      responder.sendContent(HttpResponseStatus.OK, content, "application/octet-stream",
+                            ImmutableMultimap.<String, String>of());
+    }
+
     private Map<String, String> decodeArguments(HttpRequest request) throws IOException {
       ChannelBuffer content = request.getContent();
       if (!content.readable()) {
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014-2015 Cask Data, Inc.
+ * Copyright © 2014-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -20,16 +20,22 @@ import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.explore.service.ExploreException;
 import co.cask.cdap.explore.service.ExploreService;
 import co.cask.cdap.explore.service.HandleNotFoundException;
+import co.cask.cdap.explore.service.QueryResultChunkCodec;
 import co.cask.cdap.proto.ColumnDesc;
 import co.cask.cdap.proto.QueryHandle;
 import co.cask.cdap.proto.QueryResult;
 import co.cask.cdap.proto.QueryStatus;
+import co.cask.http.BodyProducer;
 import co.cask.http.ChunkResponder;
 import co.cask.http.HttpResponder;
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Lists;
 import com.google.common.io.Closeables;
 import com.google.inject.Inject;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBufferOutputStream;
 import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
@@ -157,6 +163,36 @@ public class QueryExecutorHttpHandler extends AbstractQueryExecutorHttpHandler {
     }
   }
 
+  @POST
+  @Path("data/explore/queries/{id}/stream")
+  public void streamQueryResults(HttpRequest request, HttpResponder responder,
+                                 @PathParam("id") String id) throws IOException, ExploreException {
+    // NOTE: this call is a POST because it is not idempotent: cursor of results is moved
+    try {
+      QueryHandle handle = QueryHandle.fromId(id);
+      Map<String, String> args = decodeArguments(request);
+      int size = args.containsKey("size") ? Integer.valueOf(args.get("size")) : 100;
+      List<QueryResult> results;
+      if (handle.equals(QueryHandle.NO_OP)) {
+        results = Lists.newArrayList();
+      } else {
+        // Fetch the first batch before responding, so that an invalid handle or a failed query is reported
+        results = exploreService.nextResults(handle, size);
+      }
+      responder.sendContent(HttpResponseStatus.OK, new QueryResultsBodyProducer(handle, size, results),
+                            ImmutableMultimap.of(HttpHeaders.Names.CONTENT_TYPE, "application/octet-stream"));
+    } catch (IllegalArgumentException e) {
+      LOG.debug("Got exception:", e);
+      responder.sendString(HttpResponseStatus.BAD_REQUEST, e.getMessage());
+    } catch (SQLException e) {
+      LOG.debug("Got exception:", e);
+      responder.sendString(HttpResponseStatus.BAD_REQUEST,
+                           String.format("[SQLState %s] %s", e.getSQLState(), e.getMessage()));
+    } catch (HandleNotFoundException e) {
+      responder.sendStatus(HttpResponseStatus.NOT_FOUND);
+    }
+  }
+
   @POST
   @Path("data/explore/queries/{id}/preview")
   public void getQueryResultPreview(HttpRequest request, HttpResponder responder,
@@ -247,4 +283,50 @@ public class QueryExecutorHttpHandler extends AbstractQueryExecutorHttpHandler {
       }
     }
   }
+
+  /**
+   * A {@link BodyProducer} that streams the results of a query in chunks encoded by {@link QueryResultChunkCodec}.
+   * The next batch of results is only fetched when the previous chunk has been written to the client, so a slow
+   * client does not cause results to pile up in memory.
+   */
+  private final class QueryResultsBodyProducer extends BodyProducer {
+
+    private final QueryHandle handle;
+    private final int size;
+    private List<QueryResult> firstResults;
+    private boolean done;
+
+    QueryResultsBodyProducer(QueryHandle handle, int size, List<QueryResult> firstResults) {
+      this.handle = handle;
+      this.size = size;
+      this.firstResults = firstResults;
+    }
+
+    @Override
+    public ChannelBuffer nextChunk() throws Exception {
+      if (done) {
+        return ChannelBuffers.EMPTY_BUFFER;
+      }
+      List<QueryResult> results = firstResults;
+      firstResults = null;
+      if (results == null) {
+        results = exploreService.nextResults(handle, size);
+      }
+      // An empty chunk is encoded to mark the end of the results
+      done = results.isEmpty();
+      ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+      QueryResultChunkCodec.encode(results, new ChannelBufferOutputStream(buffer));
+      return buffer;
+    }
+
+    @Override
+    public void finished() throws Exception {
+      LOG.trace("Finished streaming results for query {}", handle);
+    }
+
+    @Override
+    public void handleError(Throwable cause) {
+      LOG.warn("Failed to stream results for query {}", handle, cause);
+    }
+  }
 }
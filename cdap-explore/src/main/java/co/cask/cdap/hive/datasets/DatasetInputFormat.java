@@ -19,7 +19,11 @@ package co.cask.cdap.hive.datasets;
 import co.cask.cdap.api.data.batch.RecordScannable;
 import co.cask.cdap.api.data.batch.RecordScanner;
 import co.cask.cdap.api.data.batch.Split;
+import co.cask.cdap.api.dataset.DatasetManagementException;
+import co.cask.cdap.api.dataset.lib.ObjectMappedTable;
+import co.cask.cdap.api.dataset.table.Table;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.gson.Gson;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -35,6 +39,8 @@ import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.JobContext;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.DataInput;
 import java.io.DataOutput;
@@ -46,6 +52,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * Map reduce input format to read from datasets that implement RecordScannable.
  */
 public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
+  private static final Logger LOG = LoggerFactory.getLogger(DatasetInputFormat.class);
   private static final Gson GSON = new Gson();
 
   @Override
@@ -61,7 +68,7 @@ public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
         JobContext jobContext = ShimLoader.getHadoopShims().newJobContext(job);
         Path[] tablePaths = FileInputFormat.getInputPaths(jobContext);
 
-        List<Split> dsSplits = recordScannable.getSplits();
+        List<Split> dsSplits = getSplits(recordScannable, datasetAccessor, jobConf);
 
         InputSplit[] inputSplits = new InputSplit[dsSplits.size()];
         for (int i = 0; i < dsSplits.size(); i++) {
@@ -72,6 +79,35 @@ public class DatasetInputFormat implements InputFormat<Void, ObjectWritable> {
     }
   }
 
+  /**
+   * Gets the splits of the dataset. For datasets that support scanning a range of rows, only the splits covering
+   * the row key range of the predicates pushed down by {@link DatasetStorageHandler} are returned.
+   */
+  private List<Split> getSplits(RecordScannable recordScannable, DatasetAccessor datasetAccessor,
+                                JobConf jobConf) throws IOException {
+    if (!(recordScannable instanceof Table) && !(recordScannable instanceof ObjectMappedTable)) {
+      return recordScannable.getSplits();
+    }
+
+    RowKeyRange range;
+    try {
+      range = RowKeyRange.fromFilter(jobConf, datasetAccessor.getDatasetSpec());
+    } catch (DatasetManagementException e) {
+      throw new IOException("Could not get dataset specification", e);
+    }
+    if (range == null) {
+      return recordScannable.getSplits();
+    }
+    LOG.debug("Scanning {} of dataset {}", range, datasetAccessor.getDatasetId());
+    if (range.isEmpty()) {
+      return ImmutableList.of();
+    }
+    if (recordScannable instanceof Table) {
+      return ((Table) recordScannable).getSplits(-1, range.getStart(), range.getStop());
+    }
+    return ((ObjectMappedTable<?>) recordScannable).getSplits(-1, range.getStart(), range.getStop());
+  }
+
   @Override
   public RecordReader<Void, ObjectWritable> getRecordReader(final InputSplit split, JobConf jobConf, Reporter reporter)
     throws IOException {
@@ -23,6 +23,7 @@ import co.cask.cdap.api.data.schema.UnsupportedTypeException;
 import co.cask.cdap.api.dataset.Dataset;
 import co.cask.cdap.api.dataset.DatasetManagementException;
 import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.table.Table;
 import co.cask.cdap.common.ServiceUnavailableException;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.data.dataset.SystemDatasetInstantiator;
@@ -35,6 +36,7 @@ import co.cask.cdap.proto.Id;
 import com.google.common.collect.Lists;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
 import org.apache.hadoop.hive.serde2.SerDe;
 import org.apache.hadoop.hive.serde2.SerDeException;
 import org.apache.hadoop.hive.serde2.SerDeStats;
@@ -49,7 +51,9 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Properties;
+import javax.annotation.Nullable;
 
 /**
  * SerDe to serialize Dataset Objects. It MUST implement the deprecated SerDe interface instead of extending the
@@ -63,6 +67,7 @@ public class DatasetSerDe implements SerDe {
   private ObjectDeserializer deserializer;
   private ObjectSerializer serializer;
   private Schema schema;
+  private Schema.Field rowKeyField;
 
   @Override
   public void initialize(Configuration conf, Properties properties) throws SerDeException {
@@ -95,7 +100,7 @@ public class DatasetSerDe implements SerDe {
       getDatasetSchema(conf, datasetId);
     }
 
-    this.deserializer = new ObjectDeserializer(properties, schema);
+    this.deserializer = new ObjectDeserializer(properties, schema, getProjectedColumns(conf));
     ArrayList<String> columnNames = Lists.newArrayList(StringUtils.split(properties.getProperty("columns"), ","));
     this.serializer = new ObjectSerializer(columnNames);
     this.objectInspector = deserializer.getInspector();
@@ -114,9 +119,11 @@ public class DatasetSerDe implements SerDe {
       // some datasets like Table and ObjectMappedTable have schema in the dataset properties
       try {
         DatasetSpecification datasetSpec = hiveContext.getDatasetSpec(datasetId);
-        String schemaStr = datasetSpec.getProperty("schema");
+        String schemaStr = datasetSpec.getProperty(Table.PROPERTY_SCHEMA);
         if (schemaStr != null) {
           schema = Schema.parseJson(schemaStr);
+          String rowField = datasetSpec.getProperty(Table.PROPERTY_SCHEMA_ROW_FIELD);
+          rowKeyField = rowField == null ? null : schema.getField(rowField);
           return;
         }
       } catch (DatasetManagementException | ServiceUnavailableException e) {
@@ -152,6 +159,31 @@ public class DatasetSerDe implements SerDe {
     }
   }
 
+  /**
+   * Returns the ids of the columns read by the query, or {@code null} if all columns are read.
+   */
+  @Nullable
+  private Collection<Integer> getProjectedColumns(@Nullable Configuration conf) {
+    if (conf == null) {
+      return null;
+    }
+    try {
+      return ColumnProjectionUtils.isReadAllColumns(conf) ? null : ColumnProjectionUtils.getReadColumnIDs(conf);
+    } catch (LinkageError e) {
+      // Older versions of Hive don't have the method to tell whether all columns are read
+      return null;
+    }
+  }
+
+  /**
+   * Returns the field of the schema that is the row key of the dataset, or {@code null} if the dataset
+   * doesn't have its schema in the dataset properties.
+   */
+  @Nullable
+  Schema.Field getRowKeyField() {
+    return rowKeyField;
+  }
+
   @Override
   public Class<? extends Writable> getSerializedClass() {
     return Text.class;
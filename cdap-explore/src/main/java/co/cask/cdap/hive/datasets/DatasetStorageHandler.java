@@ -16,32 +16,43 @@
 
 package co.cask.cdap.hive.datasets;
 
+import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.ConfigurationUtil;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.hive.context.CConfCodec;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import org.apache.hadoop.hive.ql.index.IndexPredicateAnalyzer;
+import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
 import org.apache.hadoop.hive.ql.metadata.DefaultStorageHandler;
+import org.apache.hadoop.hive.ql.metadata.HiveStoragePredicateHandler;
+import org.apache.hadoop.hive.ql.plan.ExprNodeDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
 import org.apache.hadoop.hive.ql.plan.TableDesc;
+import org.apache.hadoop.hive.serde2.Deserializer;
 import org.apache.hadoop.hive.serde2.SerDe;
 import org.apache.hadoop.mapred.InputFormat;
+import org.apache.hadoop.mapred.JobConf;
 import org.apache.hadoop.mapred.OutputFormat;
 import org.apache.hadoop.mapred.SequenceFileOutputFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 /**
- * HiveStorageHandler to access Datasets.
+ * HiveStorageHandler to access Datasets. For datasets that have a row key in their schema, such as Table and
+ * ObjectMappedTable, predicates on the row key are pushed down to limit the range of rows scanned.
  *
  * <p>
  * Referred to by string rather than {@code Class.getName()} in {@code ExploreServiceUtils.traceExploreDependencies()}
  * because this class extends a Hive class, which isn't present in the {@code ExploreServiceUtils} class loader.
  * </p>
  */
-public class DatasetStorageHandler extends DefaultStorageHandler {
+public class DatasetStorageHandler extends DefaultStorageHandler implements HiveStoragePredicateHandler {
   private static final Logger LOG = LoggerFactory.getLogger(DatasetStorageHandler.class);
 
   @SuppressWarnings("unchecked")
@@ -91,6 +102,40 @@ public class DatasetStorageHandler extends DefaultStorageHandler {
     LOG.debug("Got dataset {} in namespace {} for external table {}", datasetName, namespce, tableDesc.getTableName());
   }
 
+  @Override
+  public DecomposedPredicate decomposePredicate(JobConf jobConf, Deserializer deserializer, ExprNodeDesc predicate) {
+    if (!(deserializer instanceof DatasetSerDe) || !(predicate instanceof ExprNodeGenericFuncDesc)) {
+      return null;
+    }
+    Schema.Field rowKeyField = ((DatasetSerDe) deserializer).getRowKeyField();
+    if (rowKeyField == null) {
+      return null;
+    }
+
+    try {
+      IndexPredicateAnalyzer analyzer = RowKeyRange.createAnalyzer(rowKeyField);
+      if (analyzer == null) {
+        return null;
+      }
+      List<IndexSearchCondition> conditions = Lists.newArrayList();
+      analyzer.analyzePredicate(predicate, conditions);
+      if (conditions.isEmpty()) {
+        return null;
+      }
+
+      // The pushed predicate becomes the filter expression in the job configuration, from which
+      // DatasetInputFormat computes the row key range. Since conditions with constants that cannot be
+      // converted to row keys are ignored there, Hive still evaluates the complete predicate on the rows read.
+      DecomposedPredicate decomposedPredicate = new DecomposedPredicate();
+      decomposedPredicate.pushedPredicate = analyzer.translateSearchConditions(conditions);
+      decomposedPredicate.residualPredicate = (ExprNodeGenericFuncDesc) predicate;
+      return decomposedPredicate;
+    } catch (Throwable t) {
+      LOG.warn("Exception analyzing query predicate. A full table scan will be performed.", t);
+      return null;
+    }
+  }
+
   private boolean writesEnabled() {
     try {
       CConfiguration cConf = ConfigurationUtil.get(getConf(), Constants.Explore.CCONF_KEY, CConfCodec.INSTANCE);
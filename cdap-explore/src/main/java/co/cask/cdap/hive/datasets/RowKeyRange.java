@@ -0,0 +1,263 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.hive.datasets;
+
+import co.cask.cdap.api.common.Bytes;
+import co.cask.cdap.api.data.schema.Schema;
+import co.cask.cdap.api.dataset.DatasetSpecification;
+import co.cask.cdap.api.dataset.table.Table;
+import com.google.common.collect.Lists;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.Utilities;
+import org.apache.hadoop.hive.ql.index.IndexPredicateAnalyzer;
+import org.apache.hadoop.hive.ql.index.IndexSearchCondition;
+import org.apache.hadoop.hive.ql.plan.ExprNodeConstantDesc;
+import org.apache.hadoop.hive.ql.plan.ExprNodeGenericFuncDesc;
+import org.apache.hadoop.hive.ql.plan.TableScanDesc;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqual;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPEqualOrLessThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPGreaterThan;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDFOPLessThan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Range of row keys to scan, derived from the predicates on the row key column that Hive pushed down to
+ * {@link DatasetStorageHandler}. The start row is inclusive and the stop row is exclusive, with {@code null}
+ * meaning unbounded.
+ */
+final class RowKeyRange {
+
+  private static final Logger LOG = LoggerFactory.getLogger(RowKeyRange.class);
+
+  private static final String OP_EQUAL = GenericUDFOPEqual.class.getName();
+  private static final String OP_GREATER = GenericUDFOPGreaterThan.class.getName();
+  private static final String OP_GREATER_OR_EQUAL = GenericUDFOPEqualOrGreaterThan.class.getName();
+  private static final String OP_LESS = GenericUDFOPLessThan.class.getName();
+  private static final String OP_LESS_OR_EQUAL = GenericUDFOPEqualOrLessThan.class.getName();
+
+  private final byte[] start;
+  private final byte[] stop;
+
+  private RowKeyRange(@Nullable byte[] start, @Nullable byte[] stop) {
+    this.start = start;
+    this.stop = stop;
+  }
+
+  /**
+   * Returns the row key field of a dataset that has its schema in the dataset properties, such as {@link Table}
+   * and {@link co.cask.cdap.api.dataset.lib.ObjectMappedTable}, or {@code null} if there is none.
+   */
+  @Nullable
+  static Schema.Field getRowKeyField(DatasetSpecification spec) throws IOException {
+    String schemaStr = spec.getProperty(Table.PROPERTY_SCHEMA);
+    String rowField = spec.getProperty(Table.PROPERTY_SCHEMA_ROW_FIELD);
+    if (schemaStr == null || rowField == null) {
+      return null;
+    }
+    return Schema.parseJson(schemaStr).getField(rowField);
+  }
+
+  /**
+   * Creates an {@link IndexPredicateAnalyzer} that picks the conditions on the given row key field which can be
+   * turned into a range of row keys. Since the row key bytes of numbers do not sort in numeric order, only
+   * equality is supported for them.
+   *
+   * @return the analyzer, or {@code null} if the type of row key doesn't support any condition
+   */
+  @Nullable
+  static IndexPredicateAnalyzer createAnalyzer(Schema.Field rowKeyField) {
+    IndexPredicateAnalyzer analyzer = new IndexPredicateAnalyzer();
+    switch (getType(rowKeyField)) {
+      case STRING:
+      case BYTES:
+        analyzer.addComparisonOp(OP_GREATER);
+        analyzer.addComparisonOp(OP_GREATER_OR_EQUAL);
+        analyzer.addComparisonOp(OP_LESS);
+        analyzer.addComparisonOp(OP_LESS_OR_EQUAL);
+        // fall through
+      case BOOLEAN:
+      case INT:
+      case LONG:
+        analyzer.addComparisonOp(OP_EQUAL);
+        break;
+      default:
+        return null;
+    }
+    // Hive column names are always lower case
+    analyzer.clearAllowedColumnNames();
+    analyzer.allowColumnName(rowKeyField.getName().toLowerCase());
+    return analyzer;
+  }
+
+  /**
+   * Creates a {@link RowKeyRange} from the filter expression that Hive pushed down into the job configuration.
+   *
+   * @return the range of row keys to scan, or {@code null} if the whole dataset needs to be scanned
+   */
+  @Nullable
+  static RowKeyRange fromFilter(Configuration conf, DatasetSpecification spec) {
+    // the conf contains a 'hive.io.filter.expr.serialized' key which contains the serialized form of ExprNodeDesc
+    String serializedExpr = conf.get(TableScanDesc.FILTER_EXPR_CONF_STR);
+    if (serializedExpr == null) {
+      return null;
+    }
+
+    try {
+      Schema.Field rowKeyField = getRowKeyField(spec);
+      IndexPredicateAnalyzer analyzer = rowKeyField == null ? null : createAnalyzer(rowKeyField);
+      if (analyzer == null) {
+        return null;
+      }
+
+      ExprNodeGenericFuncDesc expr;
+      // Older versions of Hive use Utilities.deserializeExpression(String, Configuration),
+      // whereas newer versions use Utilities.deserializeExpression(String).
+      try {
+        expr = Utilities.deserializeExpression(serializedExpr);
+      } catch (NoSuchMethodError e) {
+        expr = (ExprNodeGenericFuncDesc) Utilities.class.getMethod(
+          "deserializeExpression", String.class, Configuration.class).invoke(null, serializedExpr, conf);
+      }
+
+      List<IndexSearchCondition> conditions = Lists.newArrayList();
+      analyzer.analyzePredicate(expr, conditions);
+      return create(getType(rowKeyField), conditions);
+    } catch (Throwable t) {
+      LOG.warn("Exception analyzing query predicate for dataset {}. A full table scan will be performed.",
+               spec.getName(), t);
+      return null;
+    }
+  }
+
+  /**
+   * Creates a {@link RowKeyRange} that is the intersection of all the given conditions. Conditions with
+   * constants that cannot be converted to row key bytes are ignored.
+   */
+  @Nullable
+  static RowKeyRange create(Schema.Type rowKeyType, List<IndexSearchCondition> conditions) {
+    byte[] start = null;
+    byte[] stop = null;
+    boolean bounded = false;
+    for (IndexSearchCondition condition : conditions) {
+      ExprNodeConstantDesc value = condition.getConstantDesc();
+      byte[] key = value == null ? null : toRowKey(rowKeyType, value.getValue());
+      if (key == null) {
+        continue;
+      }
+      String op = condition.getComparisonOp();
+      byte[] conditionStart = null;
+      byte[] conditionStop = null;
+      if (OP_EQUAL.equals(op)) {
+        conditionStart = key;
+        conditionStop = Bytes.add(key, new byte[] { 0 });
+      } else if (OP_GREATER.equals(op)) {
+        conditionStart = Bytes.add(key, new byte[] { 0 });
+      } else if (OP_GREATER_OR_EQUAL.equals(op)) {
+        conditionStart = key;
+      } else if (OP_LESS.equals(op)) {
+        conditionStop = key;
+      } else if (OP_LESS_OR_EQUAL.equals(op)) {
+        conditionStop = Bytes.add(key, new byte[] { 0 });
+      } else {
+        continue;
+      }
+      if (conditionStart != null && (start == null || Bytes.compareTo(conditionStart, start) > 0)) {
+        start = conditionStart;
+      }
+      if (conditionStop != null && (stop == null || Bytes.compareTo(conditionStop, stop) < 0)) {
+        stop = conditionStop;
+      }
+      bounded = true;
+    }
+    return bounded ? new RowKeyRange(start, stop) : null;
+  }
+
+  /**
+   * Returns the inclusive start row, or {@code null} if there is no lower bound.
+   */
+  @Nullable
+  byte[] getStart() {
+    return start;
+  }
+
+  /**
+   * Returns the exclusive stop row, or {@code null} if there is no upper bound.
+   */
+  @Nullable
+  byte[] getStop() {
+    return stop;
+  }
+
+  /**
+   * Returns {@code true} if no row key can be in this range.
+   */
+  boolean isEmpty() {
+    return start != null && stop != null && Bytes.compareTo(start, stop) >= 0;
+  }
+
+  private static Schema.Type getType(Schema.Field field) {
+    Schema schema = field.getSchema();
+    return schema.isNullable() ? schema.getNonNullable().getType() : schema.getType();
+  }
+
+  /**
+   * Encodes a constant of a Hive predicate the same way as the row key is encoded by the dataset.
+   */
+  @Nullable
+  private static byte[] toRowKey(Schema.Type rowKeyType, @Nullable Object value) {
+    if (value == null) {
+      return null;
+    }
+    switch (rowKeyType) {
+      case STRING:
+        return value instanceof String ? Bytes.toBytes((String) value) : null;
+      case BYTES:
+        if (value instanceof byte[]) {
+          return (byte[]) value;
+        }
+        return value instanceof ByteBuffer ? Bytes.toBytes((ByteBuffer) value) : null;
+      case BOOLEAN:
+        return value instanceof Boolean ? Bytes.toBytes((Boolean) value) : null;
+      case INT:
+        // Only accept integral constants, as comparing with a fraction cannot be an exact match
+        return isIntegral(value) ? Bytes.toBytes(((Number) value).intValue()) : null;
+      case LONG:
+        return isIntegral(value) ? Bytes.toBytes(((Number) value).longValue()) : null;
+      default:
+        return null;
+    }
+  }
+
+  private static boolean isIntegral(Object value) {
+    return value instanceof Byte || value instanceof Short || value instanceof Integer || value instanceof Long;
+  }
+
+  @Override
+  public String toString() {
+    return "RowKeyRange{" +
+      "start=" + (start == null ? null : Bytes.toStringBinary(start)) +
+      ", stop=" + (stop == null ? null : Bytes.toStringBinary(stop)) +
+      '}';
+  }
+}
@@ -43,6 +43,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
+import javax.annotation.Nullable;
 
 /**
  * Helper class for translating objects that fit a cdap {@link Schema} into objects
@@ -55,6 +56,8 @@ public class ObjectDeserializer {
   // we can almost do without the schema. The problem is that everything in Hive is lowercase,
   // but when we look up record fields we need the case sensitive field name.
   private final Schema schema;
+  // whether each of the fields is read by the query, or null if all fields are read
+  private final boolean[] projection;
 
   /**
    * Creates an ObjectTranslator that will be able to deserialize objects that fit a {@link Schema} into objects
@@ -75,9 +78,25 @@ public class ObjectDeserializer {
    * @param fieldOffset Ignore columns before the offset when flattening records
    */
   public ObjectDeserializer(Properties properties, Schema schema, int fieldOffset) {
+    this(properties, schema, fieldOffset, null);
+  }
+
+  /**
+   * Creates an ObjectTranslator that only translates the given columns when flattening records. All other
+   * columns are left as {@code null}, which saves the cost of translating columns that are not read by a query.
+   *
+   * @param properties Properties object passed to a SerDe during initialization that contains the table columns
+   * @param projectedColumns ids of the columns to translate, or {@code null} to translate all columns
+   */
+  public ObjectDeserializer(Properties properties, Schema schema, @Nullable Collection<Integer> projectedColumns) {
+    this(properties, schema, 0, projectedColumns);
+  }
+
+  private ObjectDeserializer(Properties properties, Schema schema, int fieldOffset,
+                             @Nullable Collection<Integer> projectedColumns) {
     this(Lists.newArrayList(properties.getProperty(serdeConstants.LIST_COLUMNS).split(",")),
          TypeInfoUtils.getTypeInfosFromTypeString(properties.getProperty(serdeConstants.LIST_COLUMN_TYPES)),
-         schema, fieldOffset);
+         schema, fieldOffset, projectedColumns);
   }
 
   public ObjectDeserializer(List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema) {
@@ -86,12 +105,19 @@ public class ObjectDeserializer {
 
   @VisibleForTesting
   ObjectDeserializer(List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema, int fieldOffset) {
+    this(fieldNames, fieldTypes, schema, fieldOffset, null);
+  }
+
+  @VisibleForTesting
+  ObjectDeserializer(List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema, int fieldOffset,
+                     @Nullable Collection<Integer> projectedColumns) {
     this.fieldNames = fieldNames.subList(fieldOffset, fieldNames.size());
     this.fieldTypes = fieldTypes.subList(fieldOffset, fieldTypes.size());
     // inspector should still use all names and types passed in. This is in case there are some fields that are
     // determined outside of this class, such as the stream case where timestamp and headers are read elsewhere
     this.inspector = createInspector(fieldNames, fieldTypes);
     this.schema = schema;
+    this.projection = createProjection(fieldNames.size(), fieldOffset, projectedColumns);
   }
 
   /**
@@ -116,7 +142,7 @@ public class ObjectDeserializer {
     if (fieldTypes.size() == 1) {
       return deserializeField(obj, fieldTypes.get(0), schema);
     } else {
-      return flattenRecord(obj, fieldNames, fieldTypes, schema);
+      return flattenRecord(obj, fieldNames, fieldTypes, schema, projection);
     }
   }
 
@@ -130,11 +156,12 @@ public class ObjectDeserializer {
    * @throws IllegalAccessException
    */
   public List<Object> translateRecord(Object obj) throws NoSuchFieldException, IllegalAccessException {
-    return flattenRecord(obj, fieldNames, fieldTypes, schema);
+    return flattenRecord(obj, fieldNames, fieldTypes, schema, projection);
   }
 
-  private List<Object> flattenRecord(Object obj, List<String> fieldNames, List<TypeInfo> fieldTypes,
-                                     Schema schema) throws NoSuchFieldException, IllegalAccessException {
+  private List<Object> flattenRecord(Object obj, List<String> fieldNames, List<TypeInfo> fieldTypes, Schema schema,
+                                     @Nullable boolean[] projection)
+    throws NoSuchFieldException, IllegalAccessException {
     boolean isNullable = schema.isNullable();
     if (obj == null) {
       if (isNullable) {
@@ -150,6 +177,10 @@ public class ObjectDeserializer {
     Map<String, Schema.Field> fieldMap = getFieldMap(schema);
     List<Object> objectFields = Lists.newArrayListWithCapacity(fieldNames.size());
     for (int i = 0; i < fieldNames.size(); i++) {
+      if (projection != null && !projection[i]) {
+        objectFields.add(null);
+        continue;
+      }
       String hiveName = fieldNames.get(i);
       TypeInfo fieldType = fieldTypes.get(i);
       Schema.Field schemaField = fieldMap.get(hiveName);
@@ -160,6 +191,24 @@ public class ObjectDeserializer {
     return objectFields;
   }
 
+  /**
+   * Creates the projection of the fields after the given offset from the ids of the projected columns.
+   */
+  @Nullable
+  private static boolean[] createProjection(int columns, int fieldOffset,
+                                            @Nullable Collection<Integer> projectedColumns) {
+    if (projectedColumns == null) {
+      return null;
+    }
+    boolean[] projection = new boolean[columns - fieldOffset];
+    for (int column : projectedColumns) {
+      if (column >= fieldOffset && column < columns) {
+        projection[column - fieldOffset] = true;
+      }
+    }
+    return projection;
+  }
+
   /**
    * Translate a field that fits a {@link Schema} field into a type that Hive understands.
    * For example, a ByteBuffer is allowed by schema but Hive only understands byte arrays, so all ByteBuffers must
@@ -203,7 +252,7 @@ public class ObjectDeserializer {
         StructTypeInfo structTypeInfo = (StructTypeInfo) typeInfo;
         ArrayList<String> innerFieldNames = structTypeInfo.getAllStructFieldNames();
         ArrayList<TypeInfo> innerFieldTypes = structTypeInfo.getAllStructFieldTypeInfos();
-        return flattenRecord(field, innerFieldNames, innerFieldTypes, schema);
+        return flattenRecord(field, innerFieldNames, innerFieldTypes, schema, null);
       case UNION:
         // TODO: decide what to do here
         return field;
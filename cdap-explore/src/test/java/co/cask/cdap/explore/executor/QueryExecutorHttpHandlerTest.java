@@ -0,0 +1,158 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.explore.executor;
+
+import co.cask.cdap.explore.service.ExploreService;
+import co.cask.cdap.explore.service.HandleNotFoundException;
+import co.cask.cdap.explore.service.QueryResultChunkCodec;
+import co.cask.cdap.proto.QueryHandle;
+import co.cask.cdap.proto.QueryResult;
+import co.cask.http.NettyHttpService;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.gson.Gson;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tests for the results streaming endpoint of {@link QueryExecutorHttpHandler}.
+ */
+public class QueryExecutorHttpHandlerTest {
+
+  private static final Gson GSON = new Gson();
+
+  // Results remaining for each query handle
+  private static final Map<QueryHandle, List<QueryResult>> RESULTS = new ConcurrentHashMap<>();
+  // Sizes requested from ExploreService.nextResults
+  private static final List<Integer> FETCH_SIZES = Collections.synchronizedList(Lists.<Integer>newArrayList());
+
+  private static NettyHttpService httpService;
+
+  @BeforeClass
+  public static void start() throws Exception {
+    // Only nextResults is needed by the streaming endpoint
+    ExploreService exploreService = (ExploreService) Proxy.newProxyInstance(
+      ExploreService.class.getClassLoader(), new Class<?>[] { ExploreService.class }, new InvocationHandler() {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+          if (!"nextResults".equals(method.getName())) {
+            throw new UnsupportedOperationException(method.getName());
+          }
+          List<QueryResult> results = RESULTS.get(args[0]);
+          if (results == null) {
+            throw new HandleNotFoundException("Unknown handle " + args[0]);
+          }
+          int size = (Integer) args[1];
+          FETCH_SIZES.add(size);
+          List<QueryResult> batch = ImmutableList.copyOf(results.subList(0, Math.min(size, results.size())));
+          results.subList(0, batch.size()).clear();
+          return batch;
+        }
+      });
+
+    httpService = NettyHttpService.builder()
+      .addHttpHandlers(ImmutableList.of(new QueryExecutorHttpHandler(exploreService)))
+      .setHost(InetAddress.getLoopbackAddress().getHostName())
+      .build();
+    httpService.startAndWait();
+  }
+
+  @AfterClass
+  public static void stop() {
+    httpService.stopAndWait();
+  }
+
+  @Test
+  public void testStreamResults() throws Exception {
+    QueryHandle handle = QueryHandle.generate();
+    List<QueryResult> results = Lists.newArrayList();
+    for (int i = 0; i < 5; i++) {
+      results.add(new QueryResult(Lists.<Object>newArrayList(i, i == 2 ? null : "value" + i)));
+    }
+    RESULTS.put(handle, Lists.newArrayList(results));
+    FETCH_SIZES.clear();
+
+    HttpURLConnection conn = openStream(handle, 2);
+    Assert.assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+    Assert.assertEquals("application/octet-stream", conn.getContentType());
+    List<List<QueryResult>> chunks = Lists.newArrayList();
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(conn.getInputStream()))) {
+      List<QueryResult> chunk = QueryResultChunkCodec.decode(input);
+      while (!chunk.isEmpty()) {
+        chunks.add(chunk);
+        chunk = QueryResultChunkCodec.decode(input);
+      }
+      // nothing follows the empty chunk that marks the end of the results
+      Assert.assertEquals(-1, input.read());
+    }
+
+    // results come in chunks of the requested size, which is also the size of each fetch
+    Assert.assertEquals(ImmutableList.of(results.subList(0, 2), results.subList(2, 4), results.subList(4, 5)),
+                        chunks);
+    Assert.assertEquals(ImmutableList.of(2, 2, 2, 2), FETCH_SIZES);
+  }
+
+  @Test
+  public void testStreamNoResults() throws Exception {
+    HttpURLConnection conn = openStream(QueryHandle.NO_OP, 10);
+    Assert.assertEquals(HttpURLConnection.HTTP_OK, conn.getResponseCode());
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(conn.getInputStream()))) {
+      Assert.assertTrue(QueryResultChunkCodec.decode(input).isEmpty());
+      Assert.assertEquals(-1, input.read());
+    }
+  }
+
+  @Test
+  public void testStreamUnknownHandle() throws Exception {
+    HttpURLConnection conn = openStream(QueryHandle.generate(), 10);
+    Assert.assertEquals(HttpURLConnection.HTTP_NOT_FOUND, conn.getResponseCode());
+    conn.disconnect();
+  }
+
+  private HttpURLConnection openStream(QueryHandle handle, int size) throws IOException {
+    InetSocketAddress address = httpService.getBindAddress();
+    URL url = new URL(String.format("http://%s:%d/v3/data/explore/queries/%s/stream",
+                                    address.getHostName(), address.getPort(), handle.getHandle()));
+    HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+    conn.setRequestMethod("POST");
+    conn.setDoOutput(true);
+    try (OutputStream os = conn.getOutputStream()) {
+      os.write(GSON.toJson(ImmutableMap.of("size", size)).getBytes(Charsets.UTF_8));
+    }
+    return conn;
+  }
+}
@@ -22,6 +22,7 @@ import co.cask.cdap.api.data.schema.Schema;
 import co.cask.cdap.internal.io.ReflectionSchemaGenerator;
 import co.cask.cdap.internal.io.SchemaGenerator;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
@@ -369,6 +370,28 @@ public class ObjectDeserializerTest {
     assertSimpleRecordEquals(expected, translated);
   }
 
+  @Test
+  public void testFlattenProjectedRecord() throws Exception {
+    SimpleRecord simpleRecord = new SimpleRecord(new URI("http://abc.com"), new URL("http://123.com"));
+    HiveSimpleRecord hiveSimpleRecord = new HiveSimpleRecord(simpleRecord);
+    List<String> fieldNames = HiveSimpleRecord.getFieldNames();
+    List<Object> expected = hiveSimpleRecord.getAsList();
+    // only translate the first and the string fields
+    int stringFieldIdx = fieldNames.indexOf("stringfield");
+    ObjectDeserializer translator =
+      new ObjectDeserializer(fieldNames, HiveSimpleRecord.getFieldTypes(),
+                             schemaGenerator.generate(SimpleRecord.class), 0, ImmutableSet.of(0, stringFieldIdx));
+    List<Object> translated = translator.translateRecord(simpleRecord);
+    Assert.assertEquals(expected.size(), translated.size());
+    for (int i = 0; i < translated.size(); i++) {
+      if (i == 0 || i == stringFieldIdx) {
+        Assert.assertEquals(expected.get(i), translated.get(i));
+      } else {
+        Assert.assertNull(translated.get(i));
+      }
+    }
+  }
+
   @SuppressWarnings("unchecked")
   @Test
   public void testNestedRecord() throws Exception {
@@ -111,7 +111,7 @@ public class DelimitedStringsRecordFormat extends AbstractStreamEventRecordForma
     if (!getDefaultSchema().equals(schema)) {
       String mapping = settings.get(MAPPING);
       if (mapping != null) {
-        this.recordMaker = new MappedSchemaRecordMaker(parseMapping(mapping, schema));
+        this.recordMaker = new MappedSchemaRecordMaker(parseMapping(mapping, schema), schema);
         for (Schema.Field field : schema.getFields()) {
           if (!field.getSchema().isSimpleOrNullableSimple()) {
             throw new IllegalArgumentException(
@@ -192,7 +192,7 @@ public class DelimitedStringsRecordFormat extends AbstractStreamEventRecordForma
       StructuredRecord.Builder builder = StructuredRecord.builder(schema);
 
       List<String> fields = Lists.newArrayList(bodyFields);
-      builder.set("body", fields.toArray(new String[fields.size()]));
+      builder.set(0, fields.toArray(new String[fields.size()]));
 
       return builder.build();
     }
@@ -206,16 +206,17 @@ public class DelimitedStringsRecordFormat extends AbstractStreamEventRecordForma
     @Override
     public StructuredRecord make(Schema schema, Iterator<String> bodyFields) {
       StructuredRecord.Builder builder = StructuredRecord.builder(schema);
-      Iterator<Schema.Field> fieldsIterator = schema.getFields().iterator();
-      while (fieldsIterator.hasNext()) {
-        Schema.Field field = fieldsIterator.next();
+      List<Schema.Field> schemaFields = schema.getFields();
+      int numFields = schemaFields.size();
+      for (int i = 0; i < numFields; i++) {
+        Schema.Field field = schemaFields.get(i);
         Schema fieldSchema = field.getSchema();
         String fieldName = field.getName();
         if (isStringArray(fieldSchema)) {
-          if (!fieldsIterator.hasNext()) {
+          if (i == numFields - 1) {
             // only do varargs-style string array parsing on bodyField if it's the last field
             List<String> fields = Lists.newArrayList(bodyFields);
-            builder.set(fieldName, fields.toArray(new String[fields.size()]));
+            builder.set(i, fields.toArray(new String[fields.size()]));
           } else {
             throw new UnexpectedFormatException(
               String.format("string array type field '%s' must be the last schema field", fieldName));
@@ -224,7 +225,7 @@ public class DelimitedStringsRecordFormat extends AbstractStreamEventRecordForma
           // simple type (not string array)
           String bodyField = bodyFields.hasNext() ? bodyFields.next() : null;
           String val = parseBodyValue(bodyField, fieldSchema);
-          builder.convertAndSet(fieldName, val);
+          builder.convertAndSet(i, val);
         }
       }
       return builder.build();
@@ -235,11 +236,17 @@ public class DelimitedStringsRecordFormat extends AbstractStreamEventRecordForma
    * {@link RecordMaker} that uses the "mapping" setting and a schema.
    */
   private static class MappedSchemaRecordMaker implements RecordMaker {
-    private final Map<String, Integer> mapping;
+    // index in the body of each schema field, or -1 if the field is not mapped
+    private final int[] bodyIndexes;
     private final int lastMappingIndex;
 
-    private MappedSchemaRecordMaker(Map<String, Integer> mapping) {
-      this.mapping = mapping;
+    private MappedSchemaRecordMaker(Map<String, Integer> mapping, Schema schema) {
+      List<Schema.Field> fields = schema.getFields();
+      this.bodyIndexes = new int[fields.size()];
+      for (int i = 0; i < bodyIndexes.length; i++) {
+        Integer index = mapping.get(fields.get(i).getName());
+        bodyIndexes[i] = index == null ? -1 : index;
+      }
       this.lastMappingIndex = Collections.max(mapping.values());
     }
 
@@ -248,13 +255,12 @@ public class DelimitedStringsRecordFormat extends AbstractStreamEventRecordForma
       StructuredRecord.Builder builder = StructuredRecord.builder(schema);
       // TODO: only read what's necessary from event.getBody() (e.g. if mapping is "0:f0", then only read first entry)
       List<String> fields = Lists.newArrayList(Iterators.limit(bodyFields, lastMappingIndex + 1));
-      for (Schema.Field field : schema.getFields()) {
-        Schema fieldSchema = field.getSchema();
-        String fieldName = field.getName();
-        int index = mapping.get(fieldName);
-        if (index < fields.size()) {
-          String val = parseBodyValue(fields.get(index), fieldSchema);
-          builder.convertAndSet(fieldName, val);
+      List<Schema.Field> schemaFields = schema.getFields();
+      for (int i = 0; i < bodyIndexes.length; i++) {
+        int index = bodyIndexes[i];
+        if (index >= 0 && index < fields.size()) {
+          String val = parseBodyValue(fields.get(index), schemaFields.get(i).getSchema());
+          builder.convertAndSet(i, val);
         }
       }
       return builder.build();
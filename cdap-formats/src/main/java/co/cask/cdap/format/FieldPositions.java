@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.format;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+
+/**
+ * Tells whether the fields of a {@link StructuredRecord} can be accessed by their position in a record schema,
+ * which is the case if the record has the same schema. This is the common case when converting records, hence the
+ * result of the last comparison is kept, so that converting records of the same schema instances doesn't compare
+ * the schemas for every record.
+ */
+final class FieldPositions {
+
+  private static volatile FieldPositions last;
+
+  private final Schema schema;
+  private final Schema recordSchema;
+  private final boolean same;
+
+  /**
+   * Returns {@code true} if the values of a record of the given record schema are in the field order
+   * of the given schema.
+   */
+  static boolean same(Schema schema, Schema recordSchema) {
+    if (schema == recordSchema) {
+      return true;
+    }
+    FieldPositions positions = last;
+    if (positions == null || positions.schema != schema || positions.recordSchema != recordSchema) {
+      positions = new FieldPositions(schema, recordSchema, schema.equals(recordSchema));
+      last = positions;
+    }
+    return positions.same;
+  }
+
+  private FieldPositions(Schema schema, Schema recordSchema, boolean same) {
+    this.schema = schema;
+    this.recordSchema = recordSchema;
+    this.same = same;
+  }
+}
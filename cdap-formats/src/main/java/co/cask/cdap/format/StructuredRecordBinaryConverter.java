@@ -0,0 +1,379 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.format;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.UnsignedBytes;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.Encoder;
+import org.apache.avro.io.EncoderFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * Utility class for converting {@link StructuredRecord} to and from the Avro binary encoding. The schema is not
+ * part of the encoded form, hence the same schema must be used for decoding.
+ * <p>
+ * Unlike the json encoding of {@link StructuredRecordStringConverter}, the encoding of equal records with the same
+ * schema is identical, so that encoded records can be compared as raw bytes. To make it independent of the
+ * iteration order of maps, map entries are written in the order of their encoded keys.
+ * </p>
+ */
+public final class StructuredRecordBinaryConverter {
+
+  // Known Java type to schema type mapping
+  // Doesn't have map and array as those need to use instanceof to check
+  private static final Map<Class<?>, Schema.Type> TYPE_TO_SCHEMA = new IdentityHashMap<>(
+    ImmutableMap.<Class<?>, Schema.Type>builder()
+      .put(Boolean.class, Schema.Type.BOOLEAN)
+      .put(Byte.class, Schema.Type.INT)
+      .put(Short.class, Schema.Type.INT)
+      .put(Integer.class, Schema.Type.INT)
+      .put(Long.class, Schema.Type.LONG)
+      .put(Float.class, Schema.Type.FLOAT)
+      .put(Double.class, Schema.Type.DOUBLE)
+      .put(String.class, Schema.Type.STRING)
+      .put(ByteBuffer.class, Schema.Type.BYTES)
+      .put(byte[].class, Schema.Type.BYTES)
+      .put(StructuredRecord.class, Schema.Type.RECORD)
+      .build()
+  );
+
+  /**
+   * Converts a {@link StructuredRecord} to bytes.
+   */
+  public static byte[] toBytes(StructuredRecord record) throws IOException {
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    BinaryEncoder encoder = EncoderFactory.get().directBinaryEncoder(os, null);
+    write(record, encoder);
+    encoder.flush();
+    return os.toByteArray();
+  }
+
+  /**
+   * Converts bytes to a {@link StructuredRecord} based on the schema.
+   */
+  public static StructuredRecord fromBytes(byte[] bytes, Schema schema) throws IOException {
+    return fromBytes(bytes, 0, bytes.length, schema);
+  }
+
+  /**
+   * Converts part of a byte array to a {@link StructuredRecord} based on the schema.
+   */
+  public static StructuredRecord fromBytes(byte[] bytes, int offset, int length, Schema schema) throws IOException {
+    BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(bytes, offset, length, null);
+    return read(schema, decoder);
+  }
+
+  /**
+   * Writes a {@link StructuredRecord} with the given {@link Encoder}.
+   */
+  public static void write(StructuredRecord record, Encoder encoder) throws IOException {
+    writeValue(encoder, record.getSchema(), record);
+  }
+
+  /**
+   * Reads a {@link StructuredRecord} of the given schema with the given {@link Decoder}.
+   */
+  public static StructuredRecord read(Schema schema, Decoder decoder) throws IOException {
+    if (schema.getType() != Schema.Type.RECORD) {
+      throw new IOException("Expects a record schema. Got: " + schema);
+    }
+    return readRecord(decoder, schema);
+  }
+
+  private static void writeValue(Encoder encoder, Schema schema, @Nullable Object value) throws IOException {
+    if (value == null && schema.getType() != Schema.Type.NULL && schema.getType() != Schema.Type.UNION) {
+      throw new IOException("Null value is not allowed for non-nullable schema: " + schema);
+    }
+    switch (schema.getType()) {
+      case NULL:
+        encoder.writeNull();
+        break;
+      case BOOLEAN:
+        encoder.writeBoolean((Boolean) value);
+        break;
+      case INT:
+        encoder.writeInt(((Number) value).intValue());
+        break;
+      case LONG:
+        encoder.writeLong(((Number) value).longValue());
+        break;
+      case FLOAT:
+        encoder.writeFloat(((Number) value).floatValue());
+        break;
+      case DOUBLE:
+        encoder.writeDouble(((Number) value).doubleValue());
+        break;
+      case BYTES:
+        writeBytes(encoder, value);
+        break;
+      case STRING:
+        encoder.writeString(value.toString());
+        break;
+      case ENUM:
+        writeEnum(encoder, schema, value);
+        break;
+      case ARRAY:
+        writeArray(encoder, schema.getComponentSchema(), value);
+        break;
+      case MAP:
+        writeMap(encoder, schema.getMapSchema(), value);
+        break;
+      case RECORD:
+        writeRecord(encoder, schema, value);
+        break;
+      case UNION:
+        writeUnion(encoder, schema, value);
+        break;
+    }
+  }
+
+  private static void writeBytes(Encoder encoder, Object value) throws IOException {
+    if (value instanceof ByteBuffer) {
+      // writeBytes does not change the buffer position
+      encoder.writeBytes((ByteBuffer) value);
+    } else if (value instanceof byte[]) {
+      encoder.writeBytes((byte[]) value);
+    } else {
+      throw new IOException("Expects either ByteBuffer or byte[]. Got " + value.getClass());
+    }
+  }
+
+  private static void writeEnum(Encoder encoder, Schema schema, Object value) throws IOException {
+    String symbol = value instanceof Enum ? ((Enum) value).name() : value.toString();
+    int idx = schema.getEnumIndex(symbol);
+    if (idx < 0) {
+      throw new IOException("Value " + symbol + " is not a symbol of enum: " + schema);
+    }
+    encoder.writeEnum(idx);
+  }
+
+  private static void writeArray(Encoder encoder, Schema elementSchema, Object value) throws IOException {
+    encoder.writeArrayStart();
+    if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      encoder.setItemCount(collection.size());
+      for (Object element : collection) {
+        encoder.startItem();
+        writeValue(encoder, elementSchema, element);
+      }
+    } else if (value.getClass().isArray()) {
+      // Handles arrays of both objects and primitives
+      int length = Array.getLength(value);
+      encoder.setItemCount(length);
+      for (int i = 0; i < length; i++) {
+        encoder.startItem();
+        writeValue(encoder, elementSchema, Array.get(value, i));
+      }
+    } else {
+      throw new IOException("Expects either Collection or array. Got: " + value.getClass());
+    }
+    encoder.writeArrayEnd();
+  }
+
+  private static void writeMap(Encoder encoder, Map.Entry<Schema, Schema> entrySchema,
+                               Object value) throws IOException {
+    if (!(value instanceof Map)) {
+      throw new IOException("Expects Map. Got: " + value.getClass());
+    }
+    Map<?, ?> map = (Map<?, ?>) value;
+    encoder.writeMapStart();
+    encoder.setItemCount(map.size());
+    if (map.size() == 1) {
+      Map.Entry<?, ?> entry = map.entrySet().iterator().next();
+      encoder.startItem();
+      writeValue(encoder, entrySchema.getKey(), entry.getKey());
+      writeValue(encoder, entrySchema.getValue(), entry.getValue());
+    } else if (!map.isEmpty()) {
+      // sort the entries by their encoded keys, so that equal maps are encoded the same regardless of their order
+      SortedMap<byte[], Object> sortedEntries = new TreeMap<>(UnsignedBytes.lexicographicalComparator());
+      ByteArrayOutputStream os = new ByteArrayOutputStream();
+      BinaryEncoder keyEncoder = null;
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        os.reset();
+        keyEncoder = EncoderFactory.get().directBinaryEncoder(os, keyEncoder);
+        writeValue(keyEncoder, entrySchema.getKey(), entry.getKey());
+        keyEncoder.flush();
+        sortedEntries.put(os.toByteArray(), entry.getValue());
+      }
+      for (Map.Entry<byte[], Object> entry : sortedEntries.entrySet()) {
+        encoder.startItem();
+        encoder.writeFixed(entry.getKey());
+        writeValue(encoder, entrySchema.getValue(), entry.getValue());
+      }
+    }
+    encoder.writeMapEnd();
+  }
+
+  private static void writeRecord(Encoder encoder, Schema schema, Object value) throws IOException {
+    if (!(value instanceof StructuredRecord)) {
+      throw new IOException("Expects StructuredRecord. Got: " + value.getClass());
+    }
+    StructuredRecord record = (StructuredRecord) value;
+    List<Schema.Field> fields = schema.getFields();
+    boolean samePositions = FieldPositions.same(schema, record.getSchema());
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
+      writeValue(encoder, field.getSchema(), samePositions ? record.get(i) : record.get(field.getName()));
+    }
+  }
+
+  private static void writeUnion(Encoder encoder, Schema unionSchema, @Nullable Object value) throws IOException {
+    Schema.Type type = getSchemaType(value);
+    List<Schema> schemas = unionSchema.getUnionSchemas();
+    for (int i = 0; i < schemas.size(); i++) {
+      Schema schema = schemas.get(i);
+      // Just match the type, not matching the detail schema as it'd be too expensive.
+      // Enum values can only be told apart from strings by the schema
+      if (schema.getType() == type || (type == Schema.Type.STRING && schema.getType() == Schema.Type.ENUM)) {
+        encoder.writeIndex(i);
+        writeValue(encoder, schema, value);
+        return;
+      }
+    }
+    throw new IOException("Value type " + type + " not valid in union: " + unionSchema);
+  }
+
+  private static Object readValue(Decoder decoder, Schema schema) throws IOException {
+    switch (schema.getType()) {
+      case NULL:
+        decoder.readNull();
+        return null;
+      case BOOLEAN:
+        return decoder.readBoolean();
+      case INT:
+        return decoder.readInt();
+      case LONG:
+        return decoder.readLong();
+      case FLOAT:
+        return decoder.readFloat();
+      case DOUBLE:
+        return decoder.readDouble();
+      case BYTES:
+        ByteBuffer buffer = decoder.readBytes(null);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+      case STRING:
+        return decoder.readString();
+      case ENUM:
+        // Currently there is no standard container to represent enum type
+        return schema.getEnumValue(decoder.readEnum());
+      case ARRAY:
+        return readArray(decoder, schema.getComponentSchema());
+      case MAP:
+        return readMap(decoder, schema.getMapSchema());
+      case RECORD:
+        return readRecord(decoder, schema);
+      case UNION:
+        List<Schema> schemas = schema.getUnionSchemas();
+        int idx = decoder.readIndex();
+        if (idx < 0 || idx >= schemas.size()) {
+          throw new IOException("Union index " + idx + " out of range for union: " + schema);
+        }
+        return readValue(decoder, schemas.get(idx));
+    }
+    throw new IOException("Unsupported schema: " + schema);
+  }
+
+  private static List<Object> readArray(Decoder decoder, Schema elementSchema) throws IOException {
+    List<Object> result = new ArrayList<>();
+    for (long count = decoder.readArrayStart(); count > 0; count = decoder.arrayNext()) {
+      for (long i = 0; i < count; i++) {
+        result.add(readValue(decoder, elementSchema));
+      }
+    }
+    return result;
+  }
+
+  private static Map<Object, Object> readMap(Decoder decoder, Map.Entry<Schema, Schema> mapSchema) throws IOException {
+    Map<Object, Object> result = new HashMap<>();
+    for (long count = decoder.readMapStart(); count > 0; count = decoder.mapNext()) {
+      for (long i = 0; i < count; i++) {
+        Object key = readValue(decoder, mapSchema.getKey());
+        result.put(key, readValue(decoder, mapSchema.getValue()));
+      }
+    }
+    return result;
+  }
+
+  private static StructuredRecord readRecord(Decoder decoder, Schema schema) throws IOException {
+    StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    List<Schema.Field> fields = schema.getFields();
+    for (int i = 0; i < fields.size(); i++) {
+      builder.set(i, readValue(decoder, fields.get(i).getSchema()));
+    }
+    return builder.build();
+  }
+
+  private static Schema.Type getSchemaType(@Nullable Object value) throws IOException {
+    if (value == null) {
+      return Schema.Type.NULL;
+    }
+
+    Class<?> cls = value.getClass();
+    Schema.Type type = TYPE_TO_SCHEMA.get(cls);
+    if (type != null) {
+      return type;
+    }
+
+    if (Collection.class.isAssignableFrom(cls) || cls.isArray()) {
+      return Schema.Type.ARRAY;
+    }
+
+    if (Map.class.isAssignableFrom(cls)) {
+      return Schema.Type.MAP;
+    }
+
+    // ByteBuffer.wrap and allocate return subclasses of ByteBuffer
+    if (value instanceof ByteBuffer) {
+      return Schema.Type.BYTES;
+    }
+
+    if (value instanceof StructuredRecord) {
+      return Schema.Type.RECORD;
+    }
+
+    if (value instanceof Enum) {
+      return Schema.Type.ENUM;
+    }
+
+    throw new IOException("Unsupported type found in StructuredRecord: " + cls);
+  }
+
+  private StructuredRecordBinaryConverter() {
+    //inaccessible constructor for static class
+  }
+}
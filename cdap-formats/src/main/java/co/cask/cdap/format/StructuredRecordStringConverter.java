@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -233,17 +233,18 @@ public final class StructuredRecordStringConverter {
 
   private static StructuredRecord readRecord(JsonReader reader, Schema schema) throws IOException {
     StructuredRecord.Builder builder = StructuredRecord.builder(schema);
+    List<Schema.Field> fields = schema.getFields();
 
     reader.beginObject();
     while (reader.peek() != JsonToken.END_OBJECT) {
-      Schema.Field field = schema.getField(reader.nextName());
-      if (field == null) {
+      int position = schema.getFieldIndex(reader.nextName());
+      if (position < 0) {
         // Ignore unrecognized fields
         reader.skipValue();
         continue;
       }
 
-      builder.set(field.getName(), readJson(reader, field.getSchema()));
+      builder.set(position, readJson(reader, fields.get(position).getSchema()));
     }
     reader.endObject();
 
@@ -377,9 +378,12 @@ public final class StructuredRecordStringConverter {
     }
 
     StructuredRecord record = (StructuredRecord) value;
+    List<Schema.Field> fields = schema.getFields();
+    boolean samePositions = FieldPositions.same(schema, record.getSchema());
     writer.beginObject();
-    for (Schema.Field field : schema.getFields()) {
-      Object fieldValue = record.get(field.getName());
+    for (int i = 0; i < fields.size(); i++) {
+      Schema.Field field = fields.get(i);
+      Object fieldValue = samePositions ? record.get(i) : record.get(field.getName());
       if (fieldValue != null) {
         writer.name(field.getName());
         writeJson(writer, field.getSchema(), fieldValue);
@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.format;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.schema.Schema;
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test for {@link StructuredRecordBinaryConverter}.
+ */
+public class StructuredRecordBinaryConverterTest {
+
+  private static final Schema INNER_SCHEMA = Schema.recordOf(
+    "inner",
+    Schema.Field.of("headers", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.LONG))),
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)));
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "complexRecord",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("score", Schema.of(Schema.Type.DOUBLE)),
+    Schema.Field.of("ratio", Schema.of(Schema.Type.FLOAT)),
+    Schema.Field.of("graduated", Schema.of(Schema.Type.BOOLEAN)),
+    Schema.Field.of("time", Schema.of(Schema.Type.LONG)),
+    Schema.Field.of("binary", Schema.of(Schema.Type.BYTES)),
+    Schema.Field.of("buffer", Schema.nullableOf(Schema.of(Schema.Type.BYTES))),
+    Schema.Field.of("grade", Schema.enumWith("A", "B", "C")),
+    Schema.Field.of("tags", Schema.arrayOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("values", Schema.arrayOf(Schema.of(Schema.Type.INT))),
+    Schema.Field.of("inner", Schema.nullableOf(INNER_SCHEMA)));
+
+  @Test
+  public void testConversion() throws Exception {
+    StructuredRecord inner = StructuredRecord.builder(INNER_SCHEMA)
+      .set("headers", ImmutableMap.of("h1", 1L, "h2", 2L))
+      .set("id", 3)
+      .build();
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("id", 1)
+      .set("name", "Bob")
+      .set("score", 3.4d)
+      .set("ratio", 0.5f)
+      .set("graduated", true)
+      .set("time", 1234567890123L)
+      .set("binary", "Bob".getBytes(Charsets.UTF_8))
+      .set("buffer", ByteBuffer.wrap(new byte[] { 1, 2, 3 }))
+      .set("grade", "B")
+      .set("tags", ImmutableList.of("x", "y"))
+      .set("values", new int[] { 4, 5, 6 })
+      .set("inner", inner)
+      .build();
+
+    byte[] bytes = StructuredRecordBinaryConverter.toBytes(record);
+
+    StructuredRecord decoded = StructuredRecordBinaryConverter.fromBytes(bytes, SCHEMA);
+    Assert.assertEquals(1, (int) decoded.<Integer>get("id"));
+    Assert.assertEquals("Bob", decoded.get("name"));
+    Assert.assertEquals(3.4d, decoded.<Double>get("score"), 0d);
+    Assert.assertEquals(0.5f, decoded.<Float>get("ratio"), 0f);
+    Assert.assertTrue(decoded.<Boolean>get("graduated"));
+    Assert.assertEquals(1234567890123L, (long) decoded.<Long>get("time"));
+    Assert.assertArrayEquals("Bob".getBytes(Charsets.UTF_8), decoded.<byte[]>get("binary"));
+    Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, decoded.<byte[]>get("buffer"));
+    Assert.assertEquals("B", decoded.get("grade"));
+    Assert.assertEquals(ImmutableList.of("x", "y"), decoded.<List<String>>get("tags"));
+    Assert.assertEquals(ImmutableList.of(4, 5, 6), decoded.<List<Integer>>get("values"));
+    StructuredRecord decodedInner = decoded.get("inner");
+    Assert.assertEquals(ImmutableMap.of("h1", 1L, "h2", 2L), decodedInner.<Map<String, Long>>get("headers"));
+    Assert.assertEquals(3, (int) decodedInner.<Integer>get("id"));
+
+    // Re-encoding gives the same bytes
+    Assert.assertArrayEquals(bytes, StructuredRecordBinaryConverter.toBytes(decoded));
+  }
+
+  @Test
+  public void testMapOrder() throws Exception {
+    // the same entries in a different iteration order
+    Map<String, Long> headers = new LinkedHashMap<>();
+    Map<String, Long> reversedHeaders = new LinkedHashMap<>();
+    for (int i = 0; i < 10; i++) {
+      headers.put("header" + i, (long) i);
+      reversedHeaders.put("header" + (9 - i), (long) (9 - i));
+    }
+    StructuredRecord record = StructuredRecord.builder(INNER_SCHEMA).set("headers", headers).set("id", 1).build();
+    StructuredRecord reversed = StructuredRecord.builder(INNER_SCHEMA)
+      .set("headers", reversedHeaders).set("id", 1).build();
+
+    byte[] bytes = StructuredRecordBinaryConverter.toBytes(record);
+    Assert.assertArrayEquals(bytes, StructuredRecordBinaryConverter.toBytes(reversed));
+    Assert.assertEquals(headers, StructuredRecordBinaryConverter.fromBytes(bytes, INNER_SCHEMA).get("headers"));
+  }
+
+  @Test
+  public void testFieldOrder() throws Exception {
+    Schema outerSchema = Schema.recordOf("outer", Schema.Field.of("inner", INNER_SCHEMA));
+    Schema reversedSchema = Schema.recordOf(
+      "inner",
+      Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+      Schema.Field.of("headers", Schema.mapOf(Schema.of(Schema.Type.STRING), Schema.of(Schema.Type.LONG))));
+
+    // inner records of an equal schema instance and of a schema with the fields in a different order
+    for (Schema innerSchema : ImmutableList.of(Schema.parseJson(INNER_SCHEMA.toString()), reversedSchema)) {
+      StructuredRecord inner = StructuredRecord.builder(innerSchema)
+        .set("headers", ImmutableMap.of("h1", 1L))
+        .set("id", 2)
+        .build();
+      StructuredRecord record = StructuredRecord.builder(outerSchema).set("inner", inner).build();
+
+      StructuredRecord decoded = StructuredRecordBinaryConverter.fromBytes(
+        StructuredRecordBinaryConverter.toBytes(record), outerSchema).get("inner");
+      Assert.assertEquals(ImmutableMap.of("h1", 1L), decoded.<Map<String, Long>>get("headers"));
+      Assert.assertEquals(2, (int) decoded.<Integer>get("id"));
+    }
+  }
+
+  @Test
+  public void testNulls() throws Exception {
+    StructuredRecord record = StructuredRecord.builder(SCHEMA)
+      .set("id", 1)
+      .set("score", 0d)
+      .set("ratio", 0f)
+      .set("graduated", false)
+      .set("time", 0L)
+      .set("binary", new byte[0])
+      .set("grade", "A")
+      .set("tags", ImmutableList.of())
+      .set("values", ImmutableList.of())
+      .build();
+
+    StructuredRecord decoded = StructuredRecordBinaryConverter.fromBytes(
+      StructuredRecordBinaryConverter.toBytes(record), SCHEMA);
+    Assert.assertNull(decoded.get("name"));
+    Assert.assertNull(decoded.get("buffer"));
+    Assert.assertNull(decoded.get("inner"));
+    Assert.assertEquals(0, decoded.<byte[]>get("binary").length);
+    Assert.assertTrue(decoded.<List<String>>get("tags").isEmpty());
+  }
+}
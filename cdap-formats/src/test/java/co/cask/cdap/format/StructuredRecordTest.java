@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.format;
+
+import co.cask.cdap.api.data.format.StructuredRecord;
+import co.cask.cdap.api.data.format.UnexpectedFormatException;
+import co.cask.cdap.api.data.schema.Schema;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.Map;
+
+/**
+ * Tests for {@link StructuredRecord}.
+ */
+public class StructuredRecordTest {
+
+  private static final Schema SCHEMA = Schema.recordOf(
+    "record",
+    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+    Schema.Field.of("score", Schema.of(Schema.Type.DOUBLE)));
+
+  @Test
+  public void testPositionalAccess() {
+    Assert.assertEquals(0, SCHEMA.getFieldIndex("id"));
+    Assert.assertEquals(2, SCHEMA.getFieldIndex("score"));
+    Assert.assertEquals(-1, SCHEMA.getFieldIndex("missing"));
+    Assert.assertEquals(-1, Schema.of(Schema.Type.INT).getFieldIndex("id"));
+
+    StructuredRecord byName = StructuredRecord.builder(SCHEMA).set("id", 1).set("score", 2.0d).build();
+    StructuredRecord byPosition = StructuredRecord.builder(SCHEMA).set(0, 1).convertAndSet(2, "2.0").build();
+    Assert.assertEquals(byName, byPosition);
+    Assert.assertEquals(byName.hashCode(), byPosition.hashCode());
+    Assert.assertEquals(1, byPosition.get("id"));
+    Assert.assertEquals(1, byPosition.get(0));
+    Assert.assertNull(byPosition.get(1));
+    Assert.assertNull(byPosition.get("missing"));
+    Assert.assertEquals(2.0d, byPosition.<Double>get(2), 0.0d);
+
+    try {
+      StructuredRecord.builder(SCHEMA).set(3, 1);
+      Assert.fail("Expected UnexpectedFormatException");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+    try {
+      StructuredRecord.builder(SCHEMA).set(0, null);
+      Assert.fail("Expected UnexpectedFormatException");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+    try {
+      StructuredRecord.builder(SCHEMA).set(0, 1).build();
+      Assert.fail("Expected UnexpectedFormatException");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testBuilderReuse() {
+    StructuredRecord.Builder builder = StructuredRecord.builder(SCHEMA);
+    StructuredRecord first = builder.set("id", 1).set("name", "first").set("score", 1.0d).build();
+    // modifying the builder doesn't change records built already
+    StructuredRecord second = builder.set("id", 2).set("name", null).build();
+    Assert.assertEquals(1, first.get("id"));
+    Assert.assertEquals("first", first.get("name"));
+    Assert.assertEquals(2, second.get("id"));
+    Assert.assertNull(second.get("name"));
+    Assert.assertEquals(1.0d, second.<Double>get("score"), 0.0d);
+
+    // copies of a record share values until modified
+    StructuredRecord copy = StructuredRecord.builder(first).build();
+    Assert.assertEquals(first, copy);
+    StructuredRecord modified = StructuredRecord.builder(first).set("score", 5.0d).build();
+    Assert.assertEquals(1.0d, first.<Double>get("score"), 0.0d);
+    Assert.assertEquals(5.0d, modified.<Double>get("score"), 0.0d);
+    Assert.assertEquals("first", modified.get("name"));
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    // the serialized form is the one of records that kept their values in a map, so that they stay compatible
+    ObjectStreamClass streamClass = ObjectStreamClass.lookup(StructuredRecord.class);
+    Assert.assertEquals(-4648752378975451591L, streamClass.getSerialVersionUID());
+    Assert.assertEquals(2, streamClass.getFields().length);
+    Assert.assertEquals(Map.class, streamClass.getField("fields").getType());
+    Assert.assertEquals(Schema.class, streamClass.getField("schema").getType());
+
+    StructuredRecord record = StructuredRecord.builder(SCHEMA).set("id", 1).set("score", 2.0d).build();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(record);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      StructuredRecord copy = (StructuredRecord) in.readObject();
+      Assert.assertEquals(record, copy);
+      Assert.assertNull(copy.get("name"));
+      Assert.assertEquals(2.0d, copy.<Double>get(2), 0.0d);
+    }
+  }
+}
@@ -16,6 +16,9 @@
 
 package co.cask.cdap.gateway.router;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.NoopMetricsContext;
 import co.cask.cdap.common.ServiceBindException;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
@@ -23,10 +26,14 @@ import co.cask.cdap.common.conf.SConfiguration;
 import co.cask.cdap.gateway.router.handlers.HttpRequestHandler;
 import co.cask.cdap.gateway.router.handlers.HttpStatusRequestHandler;
 import co.cask.cdap.gateway.router.handlers.IdleEventProcessor;
+import co.cask.cdap.gateway.router.handlers.OutboundConnectionPool;
+import co.cask.cdap.gateway.router.handlers.OutboundResponseDecoder;
 import co.cask.cdap.gateway.router.handlers.SecurityAuthenticationHttpHandler;
+import co.cask.cdap.proto.Id;
 import co.cask.cdap.security.auth.AccessTokenTransformer;
 import co.cask.cdap.security.auth.TokenValidator;
 import co.cask.cdap.security.tools.SSLHandlerFactory;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -55,7 +62,6 @@ import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioWorkerPool;
 import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
 import org.jboss.netty.handler.codec.http.HttpRequestEncoder;
-import org.jboss.netty.handler.codec.http.HttpResponseDecoder;
 import org.jboss.netty.handler.codec.http.HttpResponseEncoder;
 import org.jboss.netty.handler.timeout.IdleStateHandler;
 import org.jboss.netty.util.HashedWheelTimer;
@@ -99,10 +105,14 @@ public class NettyRouter extends AbstractIdleService {
   private final boolean sslEnabled;
   private final SSLHandlerFactory sslHandlerFactory;
   private final int connectionTimeout;
+  private final int maxIdleConnections;
+  private final int maxConnections;
+  private MetricsContext metricsContext;
 
   private Timer timer;
   private ServerBootstrap serverBootstrap;
   private ClientBootstrap clientBootstrap;
+  private OutboundConnectionPool connectionPool;
   private DiscoveryServiceClient discoveryServiceClient;
 
   @Inject
@@ -154,10 +164,24 @@ public class NettyRouter extends AbstractIdleService {
       this.sslHandlerFactory = null;
     }
     this.connectionTimeout = cConf.getInt(Constants.Router.CONNECTION_TIMEOUT_SECS);
+    this.maxIdleConnections = cConf.getInt(Constants.Router.CLIENT_MAX_IDLE_CONNECTIONS);
+    this.maxConnections = cConf.getInt(Constants.Router.CLIENT_MAX_CONNECTIONS);
+    this.metricsContext = new NoopMetricsContext();
     LOG.info("Using connection timeout: {}", connectionTimeout);
     LOG.info("Service to Port Mapping - {}", this.serviceToPortMap);
   }
 
+  /**
+   * Sets the {@link MetricsCollectionService} for emitting metrics about the connections to the services and the
+   * latency of proxied requests.
+   */
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.NAMESPACE, Id.Namespace.SYSTEM.getId(),
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.GATEWAY));
+  }
+
   @Override
   protected void startUp() throws Exception {
     ChannelUpstreamHandler connectionTracker = new SimpleChannelUpstreamHandler() {
@@ -187,6 +211,7 @@ public class NettyRouter extends AbstractIdleService {
       }
     } finally {
       serverBootstrap.shutdown();
+      connectionPool.close();
       clientBootstrap.shutdown();
       clientBootstrap.releaseExternalResources();
       serverBootstrap.releaseExternalResources();
@@ -220,6 +245,11 @@ public class NettyRouter extends AbstractIdleService {
     return serviceLookup;
   }
 
+  @VisibleForTesting
+  OutboundConnectionPool getConnectionPool() {
+    return connectionPool;
+  }
+
   private ExecutorService createExecutorService(int threadPoolSize, String name) {
     return Executors.newFixedThreadPool(threadPoolSize,
                                         new ThreadFactoryBuilder()
@@ -258,7 +288,7 @@ public class NettyRouter extends AbstractIdleService {
           }
           // for now there's only one hardcoded rule, but if there will be more, we may want it generic and configurable
           pipeline.addLast("http-request-handler",
-                           new HttpRequestHandler(clientBootstrap, serviceLookup, ImmutableList.<ProxyRule>of()));
+                           new HttpRequestHandler(connectionPool, serviceLookup, ImmutableList.<ProxyRule>of()));
           return pipeline;
         }
       }
@@ -319,7 +349,7 @@ public class NettyRouter extends AbstractIdleService {
         pipeline.addLast("tracker", connectionTracker);
         pipeline.addLast("request-encoder", new HttpRequestEncoder());
         // outbound handler gets dynamically added here (after 'request-encoder')
-        pipeline.addLast("response-decoder", new HttpResponseDecoder());
+        pipeline.addLast("response-decoder", new OutboundResponseDecoder());
         // disable the read-specific and write-specific timeouts; we only utilize IdleState#ALL_IDLE
         pipeline.addLast("idle-event-generator",
                          new IdleStateHandler(timer, 0, 0, connectionTimeout));
@@ -329,6 +359,8 @@ public class NettyRouter extends AbstractIdleService {
     });
 
     clientBootstrap.setOption("bufferFactory", new DirectChannelBufferFactory());
+    connectionPool = new OutboundConnectionPool(clientBootstrap, maxIdleConnections, maxConnections,
+                                                metricsContext, timer);
   }
 
   private boolean isSSLEnabled() {
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014-2015 Cask Data, Inc.
+ * Copyright © 2014-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -16,23 +16,27 @@
 
 package co.cask.cdap.gateway.router;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.common.ServiceBindException;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.guice.ConfigModule;
 import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
 import co.cask.cdap.common.guice.IOModule;
+import co.cask.cdap.common.guice.KafkaClientModule;
 import co.cask.cdap.common.guice.LocationRuntimeModule;
 import co.cask.cdap.common.guice.ZKClientModule;
 import co.cask.cdap.common.kerberos.SecurityUtil;
 import co.cask.cdap.common.namespace.guice.NamespaceClientRuntimeModule;
 import co.cask.cdap.common.runtime.DaemonMain;
+import co.cask.cdap.metrics.guice.MetricsClientRuntimeModule;
 import co.cask.cdap.security.guice.SecurityModules;
 import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.Futures;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import org.apache.twill.internal.Services;
+import org.apache.twill.kafka.client.KafkaClientService;
 import org.apache.twill.zookeeper.ZKClientService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +48,8 @@ public class RouterMain extends DaemonMain {
   private static final Logger LOG = LoggerFactory.getLogger(RouterMain.class);
 
   private ZKClientService zkClientService;
+  private KafkaClientService kafkaClientService;
+  private MetricsCollectionService metricsCollectionService;
   private NettyRouter router;
 
   public static void main(String[] args) {
@@ -80,6 +86,8 @@ public class RouterMain extends DaemonMain {
 
       Injector injector = createGuiceInjector(cConf);
       zkClientService = injector.getInstance(ZKClientService.class);
+      kafkaClientService = injector.getInstance(KafkaClientService.class);
+      metricsCollectionService = injector.getInstance(MetricsCollectionService.class);
 
       // Get the Router
       router = injector.getInstance(NettyRouter.class);
@@ -94,14 +102,14 @@ public class RouterMain extends DaemonMain {
   @Override
   public void start() {
     LOG.info("Starting Router...");
-    Futures.getUnchecked(Services.chainStart(zkClientService, router));
+    Futures.getUnchecked(Services.chainStart(zkClientService, kafkaClientService, metricsCollectionService, router));
     LOG.info("Router started.");
   }
 
   @Override
   public void stop() {
     LOG.info("Stopping Router...");
-    Futures.getUnchecked(Services.chainStop(router, zkClientService));
+    Futures.getUnchecked(Services.chainStop(router, metricsCollectionService, kafkaClientService, zkClientService));
     LOG.info("Router stopped.");
   }
 
@@ -114,9 +122,11 @@ public class RouterMain extends DaemonMain {
     return Guice.createInjector(
       new ConfigModule(cConf),
       new ZKClientModule(),
+      new KafkaClientModule(),
       new LocationRuntimeModule().getDistributedModules(),
       new NamespaceClientRuntimeModule().getDistributedModules(),
       new DiscoveryRuntimeModule().getDistributedModules(),
+      new MetricsClientRuntimeModule().getDistributedModules(),
       new RouterModules().getDistributedModules(),
       new SecurityModules().getDistributedModules(),
       new IOModule()
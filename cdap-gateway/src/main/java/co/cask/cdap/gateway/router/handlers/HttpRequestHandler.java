@@ -20,10 +20,10 @@ import co.cask.cdap.common.HandlerException;
 import co.cask.cdap.common.discovery.EndpointStrategy;
 import co.cask.cdap.gateway.router.ProxyRule;
 import co.cask.cdap.gateway.router.RouterServiceLookup;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Queues;
 import com.google.common.io.Closeables;
 import org.apache.twill.discovery.Discoverable;
-import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
@@ -44,12 +44,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
-import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -61,22 +61,23 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(HttpRequestHandler.class);
 
-  private final ClientBootstrap clientBootstrap;
+  private final OutboundConnectionPool connectionPool;
   private final RouterServiceLookup serviceLookup;
-  // Data structure is used to clean up the channel futures on connection close.
-  private final Map<WrappedDiscoverable, MessageSender> discoveryLookup;
+  // Senders bound to this inbound channel, one for each endpoint, so that requests to the same endpoint are sent
+  // through the same connection and responses are relayed in order.
+  private final ConcurrentMap<WrappedDiscoverable, MessageSender> discoveryLookup;
   private final List<ProxyRule> proxyRules;
 
   private final AtomicInteger exceptionsHandled = new AtomicInteger(0);
   private MessageSender chunkSender;
   private volatile boolean channelClosed;
 
-  public HttpRequestHandler(ClientBootstrap clientBootstrap,
+  public HttpRequestHandler(OutboundConnectionPool connectionPool,
                             RouterServiceLookup serviceLookup,
                             List<ProxyRule> proxyRules) {
-    this.clientBootstrap = clientBootstrap;
+    this.connectionPool = connectionPool;
     this.serviceLookup = serviceLookup;
-    this.discoveryLookup = new HashMap<>();
+    this.discoveryLookup = Maps.newConcurrentMap();
     this.proxyRules = proxyRules;
   }
 
@@ -108,35 +109,12 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
       WrappedDiscoverable discoverable = getDiscoverable(request,
                                                          (InetSocketAddress) inboundChannel.getLocalAddress());
 
-      // If no event sender, make new connection, otherwise reuse existing one.
-      MessageSender sender =  discoveryLookup.get(discoverable);
-      if (sender == null || !sender.isConnected()) {
-        InetSocketAddress address = discoverable.getSocketAddress();
-
-        ChannelFuture future = clientBootstrap.connect(address);
-        final Channel outboundChannel = future.getChannel();
-        outboundChannel.getPipeline().addAfter("request-encoder",
-                                               "outbound-handler", new OutboundHandler(inboundChannel));
-        sender = new MessageSender(inboundChannel, future);
+      // Reuse the connection bound to this channel for the endpoint. Otherwise lease one from the pool.
+      MessageSender sender = discoveryLookup.get(discoverable);
+      if (sender == null || !sender.startRequest()) {
+        sender = new MessageSender(inboundChannel, discoverable);
+        sender.startRequest();
         discoveryLookup.put(discoverable, sender);
-
-        // Remember the in-flight outbound channel
-        inboundChannel.setAttachment(outboundChannel);
-        outboundChannel.getCloseFuture().addListener(new ChannelFutureListener() {
-          @Override
-          public void operationComplete(ChannelFuture future) throws Exception {
-            inboundChannel.getPipeline().execute(new Runnable() {
-              @Override
-              public void run() {
-                // When the outbound channel closed,
-                // close the inbound channel as well if it carries the in-flight request
-                if (outboundChannel.equals(inboundChannel.getAttachment())) {
-                  closeOnFlush(inboundChannel);
-                }
-              }
-            });
-          }
-        });
       }
 
       // Send the message.
@@ -238,22 +216,89 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
    * It uses a lock-free algorithm similar to the one
    * in {@link co.cask.cdap.data.stream.service.ConcurrentStreamWriter} to do the write through the
    * channel callback.
+   *
+   * The outbound connection is leased from the {@link OutboundConnectionPool} and stays bound to the inbound channel
+   * until the inbound channel is closed. It is then released back to the pool if no response is in progress and
+   * the last response allows the connection to be kept alive.
    */
-  private static final class MessageSender implements Closeable {
+  private final class MessageSender implements Closeable, OutboundResponseDecoder.Listener {
     private final Channel inBoundChannel;
+    private final WrappedDiscoverable discoverable;
     private final ChannelFuture channelFuture;
+    private final OutboundHandler outboundHandler;
+    private final OutboundResponseDecoder responseDecoder;
     private final Queue<OutboundMessage> messages;
     private final AtomicBoolean writer;
+    // Start time of the requests with responses in progress, guarded by this
+    private final Queue<Long> requestStartTimes;
+    private final ChannelFutureListener closeListener;
+    private boolean keepAlive;
+    private boolean released;
 
-    private MessageSender(Channel inBoundChannel, ChannelFuture channelFuture) {
+    private MessageSender(Channel inBoundChannel, WrappedDiscoverable discoverable) {
       this.inBoundChannel = inBoundChannel;
-      this.channelFuture = channelFuture;
+      this.discoverable = discoverable;
+      this.channelFuture = connectionPool.acquire(discoverable);
       this.messages = Queues.newConcurrentLinkedQueue();
       this.writer = new AtomicBoolean(false);
+      this.requestStartTimes = new LinkedList<>();
+
+      Channel outboundChannel = channelFuture.getChannel();
+      this.outboundHandler = outboundChannel.getPipeline().get(OutboundHandler.class);
+      this.responseDecoder = outboundChannel.getPipeline().get(OutboundResponseDecoder.class);
+      outboundHandler.setInboundChannel(inBoundChannel);
+      responseDecoder.setListener(this);
+      this.closeListener = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+          release(false);
+        }
+      };
+      outboundChannel.getCloseFuture().addListener(closeListener);
     }
 
-    private boolean isConnected() {
-      return channelFuture.getChannel().isConnected();
+    /**
+     * Marks the start of a new request sent through this sender.
+     *
+     * @return {@code false} if the connection is already released, in which case a new sender is needed
+     */
+    private synchronized boolean startRequest() {
+      if (released) {
+        return false;
+      }
+      requestStartTimes.add(System.nanoTime());
+      return true;
+    }
+
+    @Override
+    public synchronized void responseCompleted(boolean reusable) {
+      Long startTime = requestStartTimes.poll();
+      if (startTime != null) {
+        connectionPool.recordLatency(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+      }
+      keepAlive = reusable;
+    }
+
+    /**
+     * Releases the outbound connection back to the pool if it is not yet released.
+     */
+    private void release(boolean reusable) {
+      synchronized (this) {
+        if (released) {
+          return;
+        }
+        released = true;
+      }
+      Channel outboundChannel = channelFuture.getChannel();
+      outboundChannel.getCloseFuture().removeListener(closeListener);
+      responseDecoder.setListener(null);
+      // A connection that is not reused gets closed. Keep relaying to the inbound channel until then, so that the
+      // inbound channel gets closed as well if the response is delimited by closing the connection.
+      if (reusable) {
+        outboundHandler.setInboundChannel(null);
+      }
+      discoveryLookup.remove(discoverable, this);
+      connectionPool.release(discoverable, outboundChannel, reusable);
     }
 
     private void send(Object msg) {
@@ -270,6 +315,7 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
           public void operationComplete(ChannelFuture future) throws Exception {
             if (!future.isSuccess()) {
               closeOnFlush(inBoundChannel);
+              release(false);
               return;
             }
 
@@ -307,8 +353,12 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
     }
 
     @Override
-    public void close() throws IOException {
-      closeOnFlush(channelFuture.getChannel());
+    public void close() {
+      boolean reusable;
+      synchronized (this) {
+        reusable = keepAlive && requestStartTimes.isEmpty();
+      }
+      release(reusable);
     }
   }
 
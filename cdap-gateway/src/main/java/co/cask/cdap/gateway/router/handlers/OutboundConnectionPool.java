@@ -0,0 +1,303 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.gateway.router.handlers;
+
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.MetricsContexts;
+import co.cask.cdap.common.HandlerException;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.Timer;
+import org.jboss.netty.util.TimerTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of keep-alive connections to discoverable endpoints, shared by all inbound channels of the router.
+ * A connection is leased by an inbound channel and is returned to the pool when the inbound channel is closed,
+ * so that clients that make a new connection for every request do not pay the connection setup cost to the
+ * service every time. The number of leased and of idle connections for each endpoint is bounded, and idle
+ * connections are closed by {@link IdleEventProcessor} after the idle timeout. The connections of an endpoint are
+ * forgotten once none of them is leased or idle.
+ *
+ * The pool utilization and the latency of proxied requests are emitted to the given {@link MetricsContext}.
+ * The numbers of leased and idle connections are emitted periodically.
+ */
+public final class OutboundConnectionPool implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(OutboundConnectionPool.class);
+  private static final long GAUGES_REPORT_INTERVAL_SECS = 1L;
+
+  private final ClientBootstrap clientBootstrap;
+  private final int maxIdlePerEndpoint;
+  private final int maxLeasedPerEndpoint;
+  private final MetricsContext metricsContext;
+  private final ConcurrentMap<WrappedDiscoverable, EndpointConnections> endpoints;
+  private final AtomicInteger leased;
+  private final AtomicInteger idle;
+  private final Timeout gaugesReport;
+  private volatile boolean closed;
+
+  /**
+   * Creates a pool that creates new connections with the given {@link ClientBootstrap}. The pipeline of the
+   * bootstrap must have a {@code request-encoder} handler and a {@link OutboundResponseDecoder}.
+   *
+   * @param clientBootstrap the bootstrap for creating new connections
+   * @param maxIdlePerEndpoint maximum number of idle connections kept for each endpoint, {@code 0} to disable pooling
+   * @param maxLeasedPerEndpoint maximum number of connections leased at the same time for each endpoint,
+   *                             {@code 0} for no limit
+   * @param metricsContext the context for emitting the pool metrics
+   * @param timer the timer for emitting the gauges of the pool periodically
+   */
+  public OutboundConnectionPool(ClientBootstrap clientBootstrap, int maxIdlePerEndpoint, int maxLeasedPerEndpoint,
+                                MetricsContext metricsContext, Timer timer) {
+    this.clientBootstrap = clientBootstrap;
+    this.maxIdlePerEndpoint = maxIdlePerEndpoint;
+    this.maxLeasedPerEndpoint = maxLeasedPerEndpoint;
+    this.metricsContext = metricsContext;
+    this.endpoints = Maps.newConcurrentMap();
+    this.leased = new AtomicInteger();
+    this.idle = new AtomicInteger();
+    this.gaugesReport = timer.newTimeout(new TimerTask() {
+      @Override
+      public void run(Timeout timeout) throws Exception {
+        reportGauges();
+        if (!closed) {
+          timeout.getTimer().newTimeout(this, GAUGES_REPORT_INTERVAL_SECS, TimeUnit.SECONDS);
+        }
+      }
+    }, GAUGES_REPORT_INTERVAL_SECS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Leases a connection to the given endpoint. An idle connection is reused if there is one, otherwise a new
+   * connection is created. The connection must be given back with {@link #release(WrappedDiscoverable, Channel,
+   * boolean)}.
+   *
+   * @return a {@link ChannelFuture} that completes when the connection is ready to use
+   * @throws HandlerException if the maximum number of connections to the endpoint are already leased
+   */
+  public ChannelFuture acquire(WrappedDiscoverable discoverable) {
+    final EndpointConnections connections = lease(discoverable);
+    leased.incrementAndGet();
+
+    // The endpoint connections cannot be removed while a connection is leased, hence the idle connections
+    // can be taken without holding the lock
+    Channel channel = connections.idleChannels.poll();
+    while (channel != null) {
+      idle.decrementAndGet();
+      if (channel.isConnected()) {
+        metricsContext.increment("router.connections.reused", 1);
+        return Channels.succeededFuture(channel);
+      }
+      channel = connections.idleChannels.poll();
+    }
+
+    metricsContext.increment("router.connections.created", 1);
+    ChannelFuture future = clientBootstrap.connect(discoverable.getSocketAddress());
+    final Channel newChannel = future.getChannel();
+    newChannel.getPipeline().addAfter("request-encoder", "outbound-handler", new OutboundHandler());
+    // Remove the connection from the pool when it is closed while being idle, e.g. by the IdleEventProcessor
+    newChannel.getCloseFuture().addListener(new ChannelFutureListener() {
+      @Override
+      public void operationComplete(ChannelFuture future) throws Exception {
+        if (connections.idleChannels.remove(newChannel)) {
+          idle.decrementAndGet();
+          removeIfUnused(connections);
+        }
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Gives back a connection leased by {@link #acquire(WrappedDiscoverable)}.
+   *
+   * @param reusable {@code true} to keep the connection in the pool, {@code false} to close it
+   */
+  public void release(WrappedDiscoverable discoverable, Channel channel, boolean reusable) {
+    EndpointConnections connections = endpoints.get(discoverable);
+    leased.decrementAndGet();
+
+    boolean pooled = false;
+    synchronized (connections) {
+      connections.leased--;
+      if (reusable && maxIdlePerEndpoint > 0 && !closed && channel.isConnected()) {
+        // Count the connection as idle before offering it, so that the count never goes negative when the
+        // connection is taken or closed right after being offered
+        idle.incrementAndGet();
+        pooled = connections.idleChannels.offer(channel);
+        if (!pooled) {
+          idle.decrementAndGet();
+          LOG.trace("Maximum idle connections to {} reached, closing connection {}",
+                    discoverable.getSocketAddress(), channel);
+        }
+      }
+      if (!pooled) {
+        removeIfUnused(connections);
+      }
+    }
+
+    if (pooled) {
+      // The pool may have been closed concurrently, in which case the connection is closed here
+      if (closed && connections.idleChannels.remove(channel)) {
+        idle.decrementAndGet();
+        removeIfUnused(connections);
+        channel.close();
+      }
+      return;
+    }
+
+    if (channel.isConnected()) {
+      HttpRequestHandler.closeOnFlush(channel);
+    } else {
+      channel.close();
+    }
+  }
+
+  /**
+   * Records the latency of a proxied request, from the time the request is received until the response is
+   * completed.
+   */
+  void recordLatency(long latency, TimeUnit unit) {
+    MetricsContexts.distribution(metricsContext, "router.response.latency", unit.toMillis(latency));
+  }
+
+  /**
+   * Returns the number of connections currently leased.
+   */
+  public int getLeasedConnections() {
+    return leased.get();
+  }
+
+  /**
+   * Returns the number of idle connections in the pool.
+   */
+  public int getIdleConnections() {
+    return idle.get();
+  }
+
+  /**
+   * Returns the number of endpoints that have leased or idle connections.
+   */
+  @VisibleForTesting
+  int getEndpoints() {
+    return endpoints.size();
+  }
+
+  /**
+   * Closes all idle connections. Connections released after this call are closed instead of being pooled.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    gaugesReport.cancel();
+    for (EndpointConnections connections : endpoints.values()) {
+      Channel channel = connections.idleChannels.poll();
+      while (channel != null) {
+        idle.decrementAndGet();
+        channel.close();
+        channel = connections.idleChannels.poll();
+      }
+      removeIfUnused(connections);
+    }
+    reportGauges();
+  }
+
+  /**
+   * Counts a new lease of a connection to the given endpoint.
+   *
+   * @return the connections of the endpoint
+   * @throws HandlerException if the maximum number of connections to the endpoint are already leased
+   */
+  private EndpointConnections lease(WrappedDiscoverable discoverable) {
+    while (true) {
+      EndpointConnections connections = endpoints.get(discoverable);
+      if (connections == null) {
+        EndpointConnections newConnections = new EndpointConnections(discoverable);
+        connections = endpoints.putIfAbsent(discoverable, newConnections);
+        if (connections == null) {
+          connections = newConnections;
+        }
+      }
+      synchronized (connections) {
+        // The connections may have just been removed from the map, in which case a new one is created
+        if (!connections.removed) {
+          if (maxLeasedPerEndpoint > 0 && connections.leased >= maxLeasedPerEndpoint) {
+            metricsContext.increment("router.connections.rejected", 1);
+            throw new HandlerException(HttpResponseStatus.SERVICE_UNAVAILABLE,
+                                       String.format("Too many connections to %s", discoverable.getSocketAddress()));
+          }
+          connections.leased++;
+          return connections;
+        }
+      }
+    }
+  }
+
+  /**
+   * Removes the connections of an endpoint from the pool if none of them is leased or idle.
+   */
+  private void removeIfUnused(EndpointConnections connections) {
+    synchronized (connections) {
+      if (!connections.removed && connections.leased == 0 && connections.idleChannels.isEmpty()) {
+        connections.removed = true;
+        endpoints.remove(connections.discoverable, connections);
+      }
+    }
+  }
+
+  /**
+   * Emits the number of leased and idle connections.
+   */
+  private void reportGauges() {
+    metricsContext.gauge("router.connections.leased", leased.get());
+    metricsContext.gauge("router.connections.idle", idle.get());
+  }
+
+  /**
+   * The idle connections and the number of leased connections of an endpoint. The number of leased connections and
+   * the removal from the pool are guarded by the instance lock. Connections are added to the idle connections
+   * while holding the lock too, so that they cannot be added after the removal.
+   */
+  private final class EndpointConnections {
+    private final WrappedDiscoverable discoverable;
+    private final BlockingQueue<Channel> idleChannels;
+    private int leased;
+    private boolean removed;
+
+    private EndpointConnections(WrappedDiscoverable discoverable) {
+      this.discoverable = discoverable;
+      this.idleChannels = Queues.newArrayBlockingQueue(Math.max(1, maxIdlePerEndpoint));
+    }
+  }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014 Cask Data, Inc.
+ * Copyright © 2014-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -28,28 +28,68 @@ import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 /**
- * Handles requests to and from a discoverable endpoint.
+ * Handles requests to and from a discoverable endpoint. Response bytes are relayed to the inbound channel that
+ * currently leases the connection as they are, without being decoded and encoded again.
  */
 public class OutboundHandler extends SimpleChannelUpstreamHandler {
   private static final Logger LOG = LoggerFactory.getLogger(OutboundHandler.class);
 
-  private final Channel inboundChannel;
+  private volatile Channel inboundChannel;
 
-  public OutboundHandler(Channel inboundChannel) {
+  /**
+   * Sets the inbound channel to relay responses to.
+   *
+   * @param inboundChannel the inbound channel, or {@code null} if the connection is not leased
+   */
+  public void setInboundChannel(@Nullable Channel inboundChannel) {
     this.inboundChannel = inboundChannel;
   }
 
   @Override
   public void messageReceived(ChannelHandlerContext ctx, MessageEvent event) throws Exception {
-    // write the channel buffer to inbound channel
+    Channel inboundChannel = this.inboundChannel;
+    if (inboundChannel == null) {
+      LOG.trace("Closing idle connection {} that received unexpected data.", ctx.getChannel());
+      ctx.getChannel().close();
+      return;
+    }
+    // write the channel buffer to inbound channel, after the response decoder has seen it, so that a response is
+    // known to be completed before the client receives all of it and possibly closes the inbound channel
     ChannelBuffer wrappedMessage = ChannelBuffers.wrappedBuffer((ChannelBuffer) event.getMessage());
-    Channels.write(inboundChannel, wrappedMessage);
-    super.messageReceived(ctx, event);
+    try {
+      super.messageReceived(ctx, event);
+    } finally {
+      Channels.write(inboundChannel, wrappedMessage);
+    }
+  }
+
+  @Override
+  public void channelClosed(final ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+    final Channel inboundChannel = this.inboundChannel;
+    if (inboundChannel != null) {
+      inboundChannel.getPipeline().execute(new Runnable() {
+        @Override
+        public void run() {
+          // When the outbound channel closed,
+          // close the inbound channel as well if it carries the in-flight request
+          if (ctx.getChannel().equals(inboundChannel.getAttachment())) {
+            HttpRequestHandler.closeOnFlush(inboundChannel);
+          }
+        }
+      });
+    }
+    super.channelClosed(ctx, e);
   }
 
   @Override
   public void channelInterestChanged(ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
+    final Channel inboundChannel = this.inboundChannel;
+    if (inboundChannel == null) {
+      return;
+    }
     inboundChannel.getPipeline().execute(new Runnable() {
       @Override
       public void run() {
@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.gateway.router.handlers;
+
+import com.google.common.collect.Queues;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelDownstreamHandler;
+import org.jboss.netty.channel.ChannelEvent;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMessage;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseDecoder;
+
+import java.util.Queue;
+import javax.annotation.Nullable;
+
+/**
+ * Decodes responses from a discoverable endpoint in order to find out when each response is completed and
+ * whether the connection can be returned to the {@link OutboundConnectionPool} afterwards. The response bytes are
+ * relayed to the inbound channel by {@link OutboundHandler} before reaching this decoder.
+ *
+ * It also watches the requests written to the channel, since the response to a HEAD request has no content even if
+ * it carries a content length.
+ */
+public class OutboundResponseDecoder extends HttpResponseDecoder implements ChannelDownstreamHandler {
+
+  // Methods of the requests written for which the response is not yet completed, in the order they were sent
+  private final Queue<HttpMethod> methods = Queues.newConcurrentLinkedQueue();
+  private volatile boolean requestBodyPending;
+  // Only accessed from the IO thread of the channel
+  private boolean responseKeepAlive;
+  private volatile Listener listener;
+
+  /**
+   * Listener to get notified when a response is completed.
+   */
+  public interface Listener {
+
+    /**
+     * Called when a response is completed.
+     *
+     * @param reusable {@code true} if both the request and the response were completed and the endpoint allows
+     *                 the connection to be kept alive
+     */
+    void responseCompleted(boolean reusable);
+  }
+
+  /**
+   * Sets the {@link Listener} to notify for completed responses.
+   *
+   * @param listener the listener, or {@code null} to stop notifying
+   */
+  public void setListener(@Nullable Listener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public void handleDownstream(ChannelHandlerContext ctx, ChannelEvent e) throws Exception {
+    if (e instanceof MessageEvent) {
+      Object message = ((MessageEvent) e).getMessage();
+      if (message instanceof HttpRequest) {
+        HttpRequest request = (HttpRequest) message;
+        methods.add(request.getMethod());
+        requestBodyPending = request.isChunked();
+      } else if (message instanceof HttpChunk && ((HttpChunk) message).isLast()) {
+        requestBodyPending = false;
+      }
+    }
+    ctx.sendDownstream(e);
+  }
+
+  @Override
+  protected boolean isContentAlwaysEmpty(HttpMessage msg) {
+    return HttpMethod.HEAD.equals(methods.peek()) || super.isContentAlwaysEmpty(msg);
+  }
+
+  @Override
+  protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer,
+                          State state) throws Exception {
+    Object decoded = super.decode(ctx, channel, buffer, state);
+    if (decoded instanceof Object[]) {
+      for (Object message : (Object[]) decoded) {
+        checkCompleted(message);
+      }
+    } else if (decoded != null) {
+      checkCompleted(decoded);
+    }
+    return decoded;
+  }
+
+  private void checkCompleted(Object message) {
+    if (message instanceof HttpResponse) {
+      HttpResponse response = (HttpResponse) message;
+      // Informational response such as 100-continue is followed by the actual response
+      if (response.getStatus().getCode() < 200) {
+        return;
+      }
+      responseKeepAlive = HttpHeaders.isKeepAlive(response);
+      if (response.isChunked()) {
+        return;
+      }
+    } else if (!(message instanceof HttpChunk) || !((HttpChunk) message).isLast()) {
+      return;
+    }
+
+    methods.poll();
+    Listener listener = this.listener;
+    if (listener != null) {
+      listener.responseCompleted(responseKeepAlive && !requestBodyPending);
+    }
+  }
+}
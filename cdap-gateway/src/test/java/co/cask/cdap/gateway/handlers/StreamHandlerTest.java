@@ -153,6 +153,41 @@ public class StreamHandlerTest extends GatewayTestBase {
     Assert.assertEquals(expected, actual);
   }
 
+  @Test
+  public void testUpdateCompression() throws Exception {
+    // A stream created without compression has no compression in its properties
+    HttpURLConnection urlConn = openURL(createURL("streams/stream2"), HttpMethod.PUT);
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+    Assert.assertNull(getStreamProperties("stream2").getCompression());
+
+    // Set a compression and check that it got persisted
+    StreamProperties newProps = new StreamProperties(null, null, null, null, "snappy");
+    urlConn = openURL(createPropertiesURL("stream2"), HttpMethod.PUT);
+    urlConn.setDoOutput(true);
+    urlConn.getOutputStream().write(GSON.toJson(newProps).getBytes(Charsets.UTF_8));
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+    Assert.assertEquals("snappy", getStreamProperties("stream2").getCompression());
+
+    // Turning compression off leaves it out of the properties again
+    newProps = new StreamProperties(null, null, null, null, "none");
+    urlConn = openURL(createPropertiesURL("stream2"), HttpMethod.PUT);
+    urlConn.setDoOutput(true);
+    urlConn.getOutputStream().write(GSON.toJson(newProps).getBytes(Charsets.UTF_8));
+    Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+    Assert.assertNull(getStreamProperties("stream2").getCompression());
+
+    // An unknown compression is rejected
+    newProps = new StreamProperties(null, null, null, null, "zip");
+    urlConn = openURL(createPropertiesURL("stream2"), HttpMethod.PUT);
+    urlConn.setDoOutput(true);
+    urlConn.getOutputStream().write(GSON.toJson(newProps).getBytes(Charsets.UTF_8));
+    Assert.assertEquals(HttpResponseStatus.BAD_REQUEST.getCode(), urlConn.getResponseCode());
+    urlConn.disconnect();
+  }
+
   @Test
   public void testStreamCreate() throws Exception {
     // Try to get info on a non-existent stream
@@ -420,6 +455,17 @@ public class StreamHandlerTest extends GatewayTestBase {
   }
 
 
+  private StreamProperties getStreamProperties(String streamName) throws Exception {
+    HttpURLConnection urlConn = openURL(createStreamInfoURL(streamName), HttpMethod.GET);
+    try {
+      Assert.assertEquals(HttpResponseStatus.OK.getCode(), urlConn.getResponseCode());
+      return GSON.fromJson(new String(ByteStreams.toByteArray(urlConn.getInputStream()), Charsets.UTF_8),
+                           StreamProperties.class);
+    } finally {
+      urlConn.disconnect();
+    }
+  }
+
   private HttpResponse createStream(Id.Stream streamId, int... allowedErrorCodes) throws Exception {
     URL url = createURL(streamId.getNamespaceId(), "streams/" + streamId.getId());
     HttpRequest request = HttpRequest.put(url).build();
@@ -16,8 +16,10 @@
 
 package co.cask.cdap.gateway.handlers.metrics;
 
+import co.cask.cdap.api.dataset.lib.cube.Distribution;
 import co.cask.cdap.api.metrics.MetricDeleteQuery;
 import co.cask.cdap.api.metrics.MetricType;
+import co.cask.cdap.api.metrics.MetricValue;
 import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.api.metrics.Metrics;
 import co.cask.cdap.api.metrics.MetricsContext;
@@ -556,6 +558,35 @@ public class MetricsHandlerTestRun extends MetricsSuiteTestBase {
     metricStore.delete(deleteQuery);
   }
 
+  @Test
+  public void testPercentiles() throws Exception {
+    long start = 1;
+    Map<String, String> sliceBy = getFlowletContext("resolutions", "WordCount1", "WordCounter", "run1", "splitter");
+
+    Distribution first = new Distribution();
+    Distribution second = new Distribution();
+    for (int i = 1; i <= 100; i++) {
+      first.add(i);
+      second.add(i + 100);
+    }
+    metricStore.add(new MetricValues(sliceBy, start, ImmutableList.of(new MetricValue("latency", first))));
+    metricStore.add(new MetricValues(sliceBy, start + 1, ImmutableList.of(new MetricValue("latency", second))));
+
+    MetricQueryResult queryResult = post(
+      "/v3/metrics/query?" + getTags("resolutions", "WordCount1", "WordCounter", "splitter") +
+        "&metric=system.latency&metric=system.latency:p50&metric=system.latency:p99&aggregate=true",
+      MetricQueryResult.class);
+    Map<String, Long> values = Maps.newHashMap();
+    for (MetricQueryResult.TimeSeries timeSeries : queryResult.getSeries()) {
+      values.put(timeSeries.getMetricName(), timeSeries.getData()[0].getValue());
+    }
+    Assert.assertEquals(ImmutableMap.of("system.latency", 200L, "system.latency:p50", 100L,
+                                        "system.latency:p99", 198L), values);
+
+    MetricDeleteQuery deleteQuery = new MetricDeleteQuery(start, start + 1, sliceBy);
+    metricStore.delete(deleteQuery);
+  }
+
   private void verifyGroupByResult(String url, List<TimeSeriesResult> groupByResult) throws Exception {
     MetricQueryResult result = post(url, MetricQueryResult.class);
     Assert.assertEquals(groupByResult.size(), result.getSeries().length);
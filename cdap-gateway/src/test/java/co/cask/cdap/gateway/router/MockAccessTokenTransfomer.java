@@ -1,5 +1,5 @@
 /*
- * Copyright © 2015 Cask Data, Inc.
+ * Copyright © 2015-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.gateway.router;
 
+import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.security.auth.AccessTokenIdentifier;
 import co.cask.cdap.security.auth.AccessTokenTransformer;
 
@@ -25,7 +26,7 @@ import java.util.LinkedHashSet;
 public class MockAccessTokenTransfomer extends AccessTokenTransformer {
 
   public MockAccessTokenTransfomer() {
-    super(null, null);
+    super(CConfiguration.create(), null, null);
   }
 
   @Override
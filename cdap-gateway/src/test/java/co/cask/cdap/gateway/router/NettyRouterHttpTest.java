@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014-2015 Cask Data, Inc.
+ * Copyright © 2014-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -92,6 +92,7 @@ public class NettyRouterHttpTest extends NettyRouterTestBase {
       cConf.setBoolean(Constants.Router.WEBAPP_ENABLED, true);
       cConf.setInt(Constants.Router.WEBAPP_PORT, 0);
       cConf.setInt(Constants.Router.CONNECTION_TIMEOUT_SECS, CONNECTION_IDLE_TIMEOUT_SECS);
+      cConf.setInt(Constants.Router.CLIENT_MAX_IDLE_CONNECTIONS, 10);
       router =
         new NettyRouter(cConf, sConfiguration, InetAddresses.forString(hostname),
                         new RouterServiceLookup((DiscoveryServiceClient) discoveryService,
@@ -113,6 +114,11 @@ public class NettyRouterHttpTest extends NettyRouterTestBase {
     public int lookupService(String serviceName) {
       return serviceMap.get(serviceName);
     }
+
+    @Override
+    public int getIdleConnections() {
+      return router.getConnectionPool().getIdleConnections();
+    }
   }
 
 }
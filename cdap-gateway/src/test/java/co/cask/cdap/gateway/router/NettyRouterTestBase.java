@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014-2015 Cask Data, Inc.
+ * Copyright © 2014-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -19,6 +19,7 @@ package co.cask.cdap.gateway.router;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.discovery.ResolvingDiscoverable;
 import co.cask.cdap.common.utils.Networks;
+import co.cask.cdap.common.utils.Tasks;
 import co.cask.http.AbstractHttpHandler;
 import co.cask.http.ChunkResponder;
 import co.cask.http.HttpResponder;
@@ -80,6 +81,7 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -431,6 +433,37 @@ public abstract class NettyRouterTestBase {
     Assert.assertEquals(1, defaultServer1.getNumConnectionsClosed() + defaultServer2.getNumConnectionsClosed());
   }
 
+  @Test
+  public void testConnectionReuse() throws Exception {
+    defaultServer2.cancelRegistration();
+
+    String path = "/v2/ping";
+    URI uri = new URI(resolveURI(Constants.Router.GATEWAY_DISCOVERY_NAME, path));
+    for (int i = 0; i < 5; i++) {
+      // each request is made with a new client connection
+      Socket socket = getSocketFactory().createSocket(uri.getHost(), uri.getPort());
+      try {
+        PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+        String firstLine = makeRequest(uri, out, socket.getInputStream());
+        Assert.assertEquals("HTTP/1.1 200 OK\r", firstLine);
+      } finally {
+        socket.close();
+      }
+      // wait for the router to return the connection to the pool when the client connection is closed
+      Tasks.waitFor(1, new Callable<Integer>() {
+        @Override
+        public Integer call() throws Exception {
+          return routerService.getIdleConnections();
+        }
+      }, 5, TimeUnit.SECONDS, 10, TimeUnit.MILLISECONDS);
+    }
+
+    // the connection to the server is kept alive by the router and reused across client connections
+    Assert.assertEquals(5, defaultServer1.getNumRequests());
+    Assert.assertEquals(1, defaultServer1.getNumConnectionsOpened());
+    Assert.assertEquals(0, defaultServer1.getNumConnectionsClosed());
+  }
+
   private String makeRequest(URI uri, PrintWriter out, InputStream inputStream) throws IOException {
 
     //Send request
@@ -570,6 +603,11 @@ public abstract class NettyRouterTestBase {
    */
   public abstract static class RouterService extends AbstractIdleService {
     public abstract int lookupService(String serviceName);
+
+    /**
+     * Returns the number of idle connections from the router to the services.
+     */
+    public abstract int getIdleConnections();
   }
 
   /**
@@ -0,0 +1,253 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.gateway.router.handlers;
+
+import co.cask.cdap.api.metrics.NoopMetricsContext;
+import co.cask.cdap.common.HandlerException;
+import co.cask.cdap.common.utils.Tasks;
+import org.apache.twill.discovery.Discoverable;
+import org.jboss.netty.bootstrap.ClientBootstrap;
+import org.jboss.netty.bootstrap.ServerBootstrap;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.ChannelPipelineFactory;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.channel.group.ChannelGroup;
+import org.jboss.netty.channel.group.DefaultChannelGroup;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.codec.http.HttpRequestEncoder;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.timeout.IdleStateHandler;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for {@link OutboundConnectionPool}.
+ */
+public class OutboundConnectionPoolTest {
+
+  private static final int IDLE_TIMEOUT_SECS = 1;
+
+  private ChannelGroup serverChannels;
+  private ServerBootstrap serverBootstrap;
+  private ClientBootstrap clientBootstrap;
+  private Timer timer;
+  private WrappedDiscoverable discoverable;
+
+  @Before
+  public void init() {
+    // A server that only keeps track of the accepted connections
+    serverChannels = new DefaultChannelGroup();
+    serverBootstrap = new ServerBootstrap(new NioServerSocketChannelFactory());
+    serverBootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+      @Override
+      public ChannelPipeline getPipeline() throws Exception {
+        return Channels.pipeline(new SimpleChannelUpstreamHandler() {
+          @Override
+          public void channelOpen(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+            serverChannels.add(e.getChannel());
+            super.channelOpen(ctx, e);
+          }
+        });
+      }
+    });
+    Channel serverChannel = serverBootstrap.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    serverChannels.add(serverChannel);
+    final InetSocketAddress serverAddress = (InetSocketAddress) serverChannel.getLocalAddress();
+    discoverable = new WrappedDiscoverable(new Discoverable() {
+      @Override
+      public String getName() {
+        return "test.service";
+      }
+
+      @Override
+      public InetSocketAddress getSocketAddress() {
+        return serverAddress;
+      }
+    });
+
+    // The same client pipeline as the router has
+    timer = new HashedWheelTimer();
+    clientBootstrap = new ClientBootstrap(new NioClientSocketChannelFactory());
+    clientBootstrap.setPipelineFactory(new ChannelPipelineFactory() {
+      @Override
+      public ChannelPipeline getPipeline() throws Exception {
+        ChannelPipeline pipeline = Channels.pipeline();
+        pipeline.addLast("request-encoder", new HttpRequestEncoder());
+        pipeline.addLast("response-decoder", new OutboundResponseDecoder());
+        pipeline.addLast("idle-event-generator", new IdleStateHandler(timer, 0, 0, IDLE_TIMEOUT_SECS));
+        pipeline.addLast("idle-event-processor", new IdleEventProcessor());
+        return pipeline;
+      }
+    });
+  }
+
+  @After
+  public void finish() {
+    clientBootstrap.releaseExternalResources();
+    serverChannels.close().awaitUninterruptibly();
+    serverBootstrap.releaseExternalResources();
+    timer.stop();
+  }
+
+  @Test
+  public void testReuse() throws Exception {
+    OutboundConnectionPool pool = createPool(2, 0);
+    Channel channel = acquire(pool);
+    Assert.assertEquals(1, pool.getLeasedConnections());
+
+    pool.release(discoverable, channel, true);
+    Assert.assertEquals(0, pool.getLeasedConnections());
+    Assert.assertEquals(1, pool.getIdleConnections());
+
+    // the idle connection is reused
+    Assert.assertSame(channel, acquire(pool));
+    Assert.assertEquals(1, pool.getLeasedConnections());
+    Assert.assertEquals(0, pool.getIdleConnections());
+
+    // a connection that is not reusable is closed
+    pool.release(discoverable, channel, false);
+    Assert.assertTrue(channel.getCloseFuture().await(5, TimeUnit.SECONDS));
+    Assert.assertEquals(0, pool.getIdleConnections());
+    Assert.assertNotSame(channel, acquire(pool));
+    pool.close();
+  }
+
+  @Test
+  public void testMaxIdle() throws Exception {
+    OutboundConnectionPool pool = createPool(1, 0);
+    Channel channel1 = acquire(pool);
+    Channel channel2 = acquire(pool);
+    Assert.assertEquals(2, pool.getLeasedConnections());
+
+    pool.release(discoverable, channel1, true);
+    pool.release(discoverable, channel2, true);
+    Assert.assertEquals(0, pool.getLeasedConnections());
+    Assert.assertEquals(1, pool.getIdleConnections());
+    // the connection beyond the maximum idle connections is closed
+    Assert.assertTrue(channel2.getCloseFuture().await(5, TimeUnit.SECONDS));
+    Assert.assertTrue(channel1.isConnected());
+    pool.close();
+  }
+
+  @Test
+  public void testIdleEviction() throws Exception {
+    final OutboundConnectionPool pool = createPool(2, 0);
+    Channel channel = acquire(pool);
+    pool.release(discoverable, channel, true);
+    Assert.assertEquals(1, pool.getIdleConnections());
+
+    // the idle connection gets closed after the idle timeout and is removed from the pool
+    Assert.assertTrue(channel.getCloseFuture().await(IDLE_TIMEOUT_SECS * 5, TimeUnit.SECONDS));
+    Tasks.waitFor(0, new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        return pool.getIdleConnections();
+      }
+    }, 5, TimeUnit.SECONDS, 10, TimeUnit.MILLISECONDS);
+    Assert.assertEquals(0, pool.getEndpoints());
+
+    Channel newChannel = acquire(pool);
+    Assert.assertNotSame(channel, newChannel);
+    Assert.assertTrue(newChannel.isConnected());
+    pool.close();
+  }
+
+  @Test
+  public void testEndpointRemoval() throws Exception {
+    OutboundConnectionPool pool = createPool(2, 0);
+    Channel channel1 = acquire(pool);
+    Channel channel2 = acquire(pool);
+    Assert.assertEquals(1, pool.getEndpoints());
+
+    // the endpoint is kept as long as it has a leased or an idle connection
+    pool.release(discoverable, channel1, false);
+    Assert.assertEquals(1, pool.getEndpoints());
+    pool.release(discoverable, channel2, true);
+    Assert.assertEquals(1, pool.getEndpoints());
+    Assert.assertSame(channel2, acquire(pool));
+    pool.release(discoverable, channel2, false);
+    Assert.assertEquals(0, pool.getEndpoints());
+
+    // a new lease adds the endpoint again
+    Channel channel3 = acquire(pool);
+    Assert.assertEquals(1, pool.getEndpoints());
+    pool.release(discoverable, channel3, true);
+    pool.close();
+    Assert.assertEquals(0, pool.getEndpoints());
+  }
+
+  @Test
+  public void testMaxLeased() throws Exception {
+    OutboundConnectionPool pool = createPool(2, 1);
+    Channel channel = acquire(pool);
+    try {
+      pool.acquire(discoverable);
+      Assert.fail("Expected the lease to be rejected");
+    } catch (HandlerException e) {
+      Assert.assertEquals(HttpResponseStatus.SERVICE_UNAVAILABLE, e.getFailureStatus());
+    }
+    Assert.assertEquals(1, pool.getLeasedConnections());
+
+    // idle connections do not count towards the limit
+    pool.release(discoverable, channel, true);
+    Assert.assertSame(channel, acquire(pool));
+    pool.close();
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    OutboundConnectionPool pool = createPool(2, 0);
+    Channel channel1 = acquire(pool);
+    Channel channel2 = acquire(pool);
+    pool.release(discoverable, channel1, true);
+
+    // idle connections are closed
+    pool.close();
+    Assert.assertEquals(0, pool.getIdleConnections());
+    Assert.assertTrue(channel1.getCloseFuture().await(5, TimeUnit.SECONDS));
+
+    // connections released after the pool is closed are not kept
+    Assert.assertTrue(channel2.isConnected());
+    pool.release(discoverable, channel2, true);
+    Assert.assertEquals(0, pool.getIdleConnections());
+    Assert.assertEquals(0, pool.getLeasedConnections());
+    Assert.assertTrue(channel2.getCloseFuture().await(5, TimeUnit.SECONDS));
+  }
+
+  private OutboundConnectionPool createPool(int maxIdle, int maxLeased) {
+    return new OutboundConnectionPool(clientBootstrap, maxIdle, maxLeased, new NoopMetricsContext(), timer);
+  }
+
+  private Channel acquire(OutboundConnectionPool pool) throws InterruptedException {
+    return pool.acquire(discoverable).await().getChannel();
+  }
+}
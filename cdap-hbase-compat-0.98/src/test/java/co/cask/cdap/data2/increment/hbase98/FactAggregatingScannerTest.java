@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.increment.hbase98;
+
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactAggregation;
+import co.cask.cdap.data2.increment.hbase.AbstractFactAggregatingScannerTest;
+import co.cask.cdap.data2.increment.hbase.AbstractIncrementHandlerTest.ColumnCell;
+import co.cask.cdap.data2.util.TableId;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for {@link FactAggregatingScanner} implementation.
+ */
+public class FactAggregatingScannerTest extends AbstractFactAggregatingScannerTest {
+
+  @Override
+  public RegionWrapper createRegion(TableId tableId) throws Exception {
+    HRegion region = IncrementSummingScannerTest.createRegion(conf, cConf, tableId, new HColumnDescriptor(FAMILY));
+    region.initialize();
+    return new HBase98RegionWrapper(region);
+  }
+
+  private static final class HBase98RegionWrapper implements RegionWrapper {
+    private final HRegion region;
+
+    private HBase98RegionWrapper(HRegion region) {
+      this.region = region;
+    }
+
+    @Override
+    public void put(Put put) throws IOException {
+      region.put(put);
+    }
+
+    @Override
+    public ScannerWrapper getScanner(Scan scan) throws IOException {
+      RegionScanner scanner = region.getScanner(scan);
+      return new HBase98ScannerWrapper(region.getCoprocessorHost().postScannerOpen(scan, scanner));
+    }
+
+    @Override
+    public ScannerWrapper getAggregatingScanner(Scan scan, FactAggregation aggregation,
+                                                int batchRows) throws IOException {
+      RegionScanner scanner = region.getScanner(scan);
+      return new HBase98ScannerWrapper(new FactAggregatingScanner(aggregation, scanner, batchRows));
+    }
+
+    @Override
+    public void close() throws IOException {
+      region.close();
+    }
+  }
+
+  private static final class HBase98ScannerWrapper implements ScannerWrapper {
+    private final RegionScanner scanner;
+
+    private HBase98ScannerWrapper(RegionScanner scanner) {
+      this.scanner = scanner;
+    }
+
+    @Override
+    public boolean isAggregating() {
+      return scanner instanceof FactAggregatingScanner;
+    }
+
+    @Override
+    public boolean next(List<ColumnCell> cells) throws IOException {
+      List<Cell> results = new ArrayList<>();
+      boolean hasMore = scanner.next(results);
+      for (Cell cell : results) {
+        cells.add(IncrementHandlerTest.convertCell(cell));
+      }
+      return hasMore;
+    }
+
+    @Override
+    public void reseek(byte[] row) throws IOException {
+      scanner.reseek(row);
+    }
+
+    @Override
+    public void close() throws IOException {
+      scanner.close();
+    }
+  }
+}
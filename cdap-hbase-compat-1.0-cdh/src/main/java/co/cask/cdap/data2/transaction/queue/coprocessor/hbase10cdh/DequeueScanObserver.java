@@ -17,22 +17,44 @@
 package co.cask.cdap.data2.transaction.queue.coprocessor.hbase10cdh;
 
 import co.cask.cdap.data2.queue.ConsumerConfig;
+import co.cask.cdap.data2.transaction.queue.QueueEntryRow;
 import co.cask.cdap.data2.transaction.queue.hbase.DequeueScanAttributes;
 import co.cask.tephra.Transaction;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.BaseRegionObserver;
 import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.CompareFilter;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.regionserver.InternalScanner;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.util.Bytes;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- *
+ * Region observer for dequeue scans. It adds the {@link DequeueFilter} to the scan, and if the scan asks for it,
+ * claims the FIFO entries returned by the scan for the consumer instance, so that the consumer doesn't need
+ * a separate check and put call for claiming each entry.
  */
 public class DequeueScanObserver extends BaseRegionObserver {
+
+  private final ConcurrentMap<InternalScanner, ScanClaims> scanClaims = new ConcurrentHashMap<>();
+
   @Override
   public RegionScanner preScannerOpen(ObserverContext<RegionCoprocessorEnvironment> e, Scan scan, RegionScanner s)
     throws IOException {
@@ -55,4 +77,75 @@ public class DequeueScanObserver extends BaseRegionObserver {
 
     return super.preScannerOpen(e, scan, s);
   }
+
+  @Override
+  public RegionScanner postScannerOpen(ObserverContext<RegionCoprocessorEnvironment> e, Scan scan, RegionScanner s)
+    throws IOException {
+    ConsumerConfig consumerConfig = DequeueScanAttributes.getConsumerConfig(scan);
+    byte[] claimedStateValue = DequeueScanAttributes.getClaimedStateValue(scan);
+    int maxClaims = DequeueScanAttributes.getMaxClaims(scan);
+
+    if (s != null && consumerConfig != null && claimedStateValue != null && maxClaims > 0) {
+      byte[] stateColumnName = Bytes.add(QueueEntryRow.STATE_COLUMN_PREFIX, Bytes.toBytes(consumerConfig.getGroupId()));
+      scanClaims.put(s, new ScanClaims(stateColumnName, claimedStateValue, maxClaims));
+    }
+    return super.postScannerOpen(e, scan, s);
+  }
+
+  @Override
+  public boolean postScannerNext(ObserverContext<RegionCoprocessorEnvironment> e, InternalScanner s,
+                                 List<Result> results, int limit, boolean hasMore) throws IOException {
+    ScanClaims claims = scanClaims.get(s);
+    if (claims == null) {
+      return super.postScannerNext(e, s, results, limit, hasMore);
+    }
+
+    // Rows returned already passed the DequeueFilter. The ones without the state column are not claimed by anyone.
+    ListIterator<Result> iterator = results.listIterator();
+    while (claims.remaining.get() > 0 && iterator.hasNext()) {
+      Result result = iterator.next();
+      if (result.isEmpty() || result.containsColumn(QueueEntryRow.COLUMN_FAMILY, claims.stateColumnName)) {
+        continue;
+      }
+      byte[] row = result.getRow();
+      Put put = new Put(row);
+      put.add(QueueEntryRow.COLUMN_FAMILY, claims.stateColumnName, claims.claimedStateValue);
+
+      // Same as a client side checkAndPut with null value, which only succeeds if there is no state column.
+      // If failed, the row is returned as is and the consumer would find it claimed by someone else.
+      if (e.getEnvironment().getRegion().checkAndMutate(row, QueueEntryRow.COLUMN_FAMILY, claims.stateColumnName,
+                                                        CompareFilter.CompareOp.EQUAL,
+                                                        new BinaryComparator(HConstants.EMPTY_BYTE_ARRAY),
+                                                        put, true)) {
+        claims.remaining.decrementAndGet();
+        List<Cell> cells = new ArrayList<>(result.listCells());
+        cells.add(new KeyValue(row, QueueEntryRow.COLUMN_FAMILY, claims.stateColumnName, claims.claimedStateValue));
+        Collections.sort(cells, KeyValue.COMPARATOR);
+        iterator.set(Result.create(cells));
+      }
+    }
+    return super.postScannerNext(e, s, results, limit, hasMore);
+  }
+
+  @Override
+  public void postScannerClose(ObserverContext<RegionCoprocessorEnvironment> e, InternalScanner s)
+    throws IOException {
+    scanClaims.remove(s);
+    super.postScannerClose(e, s);
+  }
+
+  /**
+   * The claims to be made by a dequeue scan.
+   */
+  private static final class ScanClaims {
+    private final byte[] stateColumnName;
+    private final byte[] claimedStateValue;
+    private final AtomicInteger remaining;
+
+    private ScanClaims(byte[] stateColumnName, byte[] claimedStateValue, int maxClaims) {
+      this.stateColumnName = stateColumnName;
+      this.claimedStateValue = claimedStateValue;
+      this.remaining = new AtomicInteger(maxClaims);
+    }
+  }
 }
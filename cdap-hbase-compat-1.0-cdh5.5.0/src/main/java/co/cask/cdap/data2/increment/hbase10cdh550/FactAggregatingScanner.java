@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.data2.increment.hbase10cdh550;
+
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactAggregation;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactAggregator;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.DoNotRetryIOException;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.regionserver.RegionScanner;
+import org.apache.hadoop.hbase.regionserver.ScannerContext;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+
+/**
+ * Aggregates the facts read by a {@link RegionScanner} with a {@link FactAggregator}, so that only the aggregated
+ * rows are returned to the client. Rows are read in batches of a bounded number of rows, and the partial aggregates
+ * of a batch are returned one row per call to {@code next}, before the next batch is read. The client aggregates
+ * the rows of all batches, the same way as it aggregates the rows of all regions.
+ * <p/>
+ * The groups of a batch interleave, hence the client scanner cannot resume after the last row it received without
+ * losing facts: {@link IncrementHandler} refuses such scans, so that the client restarts its query instead.
+ */
+class FactAggregatingScanner implements RegionScanner {
+
+  // Maximum number of rows read for one batch of aggregated rows
+  static final int BATCH_ROWS = 1000;
+
+  private final RegionScanner scanner;
+  private final FactAggregator aggregator;
+  private final int batchRows;
+  private final List<Cell> batchCells;
+  private Iterator<Map.Entry<byte[], NavigableMap<byte[], byte[]>>> results;
+  private boolean hasMore;
+  private byte[] lastRow;
+  private byte[] family;
+  private long timestamp;
+
+  FactAggregatingScanner(FactAggregation aggregation, RegionScanner scanner) {
+    this(aggregation, scanner, BATCH_ROWS);
+  }
+
+  FactAggregatingScanner(FactAggregation aggregation, RegionScanner scanner, int batchRows) {
+    this.scanner = scanner;
+    this.aggregator = new FactAggregator(aggregation);
+    this.batchRows = batchRows;
+    this.batchCells = new ArrayList<>();
+    this.results = Collections.emptyIterator();
+    this.hasMore = true;
+  }
+
+  @Override
+  public HRegionInfo getRegionInfo() {
+    return scanner.getRegionInfo();
+  }
+
+  @Override
+  public boolean isFilterDone() throws IOException {
+    return scanner.isFilterDone();
+  }
+
+  @Override
+  public boolean reseek(byte[] row) throws IOException {
+    if (lastRow != null && Bytes.compareTo(row, lastRow) <= 0) {
+      // The rows from the given one were already read, and possibly aggregated into returned rows
+      throw new DoNotRetryIOException("Cannot reseek to row " + Bytes.toStringBinary(row) +
+                                        " which is not after the last aggregated row " + Bytes.toStringBinary(lastRow));
+    }
+    // The aggregated rows not returned yet only hold rows before the given one, hence they are skipped
+    aggregator.getResults();
+    results = Collections.emptyIterator();
+    hasMore = true;
+    return scanner.reseek(row);
+  }
+
+  @Override
+  public long getMaxResultSize() {
+    return scanner.getMaxResultSize();
+  }
+
+  @Override
+  public long getMvccReadPoint() {
+    return scanner.getMvccReadPoint();
+  }
+
+  @Override
+  public int getBatch() {
+    return scanner.getBatch();
+  }
+
+  @Override
+  public boolean nextRaw(List<Cell> cells) throws IOException {
+    return nextResult(cells, true);
+  }
+
+  @Override
+  public boolean nextRaw(List<Cell> cells, ScannerContext scannerContext) throws IOException {
+    // limits of the context are ignored, as each result row is built in memory already
+    return nextRaw(cells);
+  }
+
+  @Override
+  public boolean next(List<Cell> cells) throws IOException {
+    return nextResult(cells, false);
+  }
+
+  @Override
+  public boolean next(List<Cell> cells, ScannerContext scannerContext) throws IOException {
+    // limits of the context are ignored, as each result row is built in memory already
+    return next(cells);
+  }
+
+  @Override
+  public void close() throws IOException {
+    scanner.close();
+  }
+
+  /**
+   * Adds the cells of the next aggregated row, reading the next batch of rows if all aggregated rows of the previous
+   * batch were returned. No cell is added if no row of the batch is part of the result.
+   *
+   * @return {@code true} if more aggregated rows may follow
+   */
+  private boolean nextResult(List<Cell> cells, boolean raw) throws IOException {
+    if (!results.hasNext()) {
+      if (!hasMore) {
+        return false;
+      }
+      aggregate(raw);
+    }
+    if (results.hasNext()) {
+      Map.Entry<byte[], NavigableMap<byte[], byte[]>> row = results.next();
+      for (Map.Entry<byte[], byte[]> column : row.getValue().entrySet()) {
+        cells.add(new KeyValue(row.getKey(), family, column.getKey(), timestamp, column.getValue()));
+      }
+    }
+    return results.hasNext() || hasMore;
+  }
+
+  private void aggregate(boolean raw) throws IOException {
+    int rows = 0;
+    timestamp = 0L;
+    while (hasMore && rows < batchRows) {
+      batchCells.clear();
+      hasMore = raw ? scanner.nextRaw(batchCells) : scanner.next(batchCells);
+      if (batchCells.isEmpty()) {
+        continue;
+      }
+      // all cells returned by one call are of the same row
+      lastRow = CellUtil.cloneRow(batchCells.get(0));
+      if (family == null) {
+        family = CellUtil.cloneFamily(batchCells.get(0));
+      }
+      for (Cell cell : batchCells) {
+        timestamp = Math.max(timestamp, cell.getTimestamp());
+        aggregator.add(lastRow, CellUtil.cloneQualifier(cell), CellUtil.cloneValue(cell));
+      }
+      rows++;
+    }
+    batchCells.clear();
+    results = aggregator.getResults().entrySet().iterator();
+  }
+}
@@ -17,7 +17,9 @@
 package co.cask.cdap.data2.increment.hbase10;
 
 import co.cask.cdap.data2.dataset2.lib.table.hbase.HBaseTable;
+import co.cask.cdap.data2.dataset2.lib.timeseries.FactAggregation;
 import co.cask.cdap.data2.increment.hbase.IncrementHandlerState;
+import co.cask.cdap.data2.increment.hbase.ResumedFactScanException;
 import co.cask.cdap.data2.increment.hbase.TimestampOracle;
 import co.cask.cdap.data2.util.hbase.HTable10NameConverter;
 import com.google.common.annotations.VisibleForTesting;
@@ -193,7 +195,22 @@ public class IncrementHandler extends BaseRegionObserver {
   public RegionScanner postScannerOpen(ObserverContext<RegionCoprocessorEnvironment> ctx, Scan scan,
                                        RegionScanner scanner)
     throws IOException {
-    return new IncrementSummingScanner(region, scan.getBatch(), scanner, ScanType.USER_SCAN);
+    byte[] aggregation = scan.getAttribute(FactAggregation.SCAN_ATTRIBUTE);
+    if (aggregation != null &&
+      FactAggregation.isResumed(scan.getStartRow(), scan.getAttribute(FactAggregation.START_ROW_ATTRIBUTE),
+                                scanner.getRegionInfo().getStartKey())) {
+      // The rows aggregated so far are unknown, hence the client must restart its query
+      scanner.close();
+      throw new ResumedFactScanException("Cannot resume aggregating facts from row " +
+                                           Bytes.toStringBinary(scan.getStartRow()) + " in region " +
+                                           scanner.getRegionInfo().getRegionNameAsString());
+    }
+    RegionScanner summingScanner = new IncrementSummingScanner(region, scan.getBatch(), scanner,
+                                                               ScanType.USER_SCAN);
+    if (aggregation != null) {
+      return new FactAggregatingScanner(FactAggregation.fromBytes(aggregation), summingScanner);
+    }
+    return summingScanner;
   }
 
   @Override
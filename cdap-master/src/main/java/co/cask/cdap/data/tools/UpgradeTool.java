@@ -24,6 +24,7 @@ import co.cask.cdap.app.guice.AppFabricServiceRuntimeModule;
 import co.cask.cdap.app.guice.AuthorizationModule;
 import co.cask.cdap.app.guice.ProgramRunnerRuntimeModule;
 import co.cask.cdap.app.guice.ServiceStoreModules;
+import co.cask.cdap.app.store.Store;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.guice.ConfigModule;
 import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
@@ -111,6 +112,7 @@ public class UpgradeTool {
   private final ExistingEntitySystemMetadataWriter existingEntitySystemMetadataWriter;
   private final DatasetServiceManager datasetServiceManager;
   private final NamespaceStore nsStore;
+  private final Store store;
 
   /**
    * Set of Action available in this tool.
@@ -123,6 +125,7 @@ public class UpgradeTool {
               "  3. System metadata for all existing entities\n" +
               "  4. Metadata indexes for all existing metadata\n" +
               "  5. Any metadata that may have left behind for deleted datasets (This metadata will be removed).\n" +
+              "  6. Indexes of existing program run records\n" +
               "  Note: Once you run the upgrade tool you cannot rollback to the previous version."),
     UPGRADE_HBASE("After an HBase upgrade, updates the coprocessor jars of all user and \n" +
                     "system HBase tables to a version that is compatible with the new HBase \n" +
@@ -153,6 +156,7 @@ public class UpgradeTool {
     this.dsSpecUpgrader = injector.getInstance(DatasetSpecificationUpgrader.class);
     this.queueAdmin = injector.getInstance(QueueAdmin.class);
     this.nsStore = injector.getInstance(NamespaceStore.class);
+    this.store = injector.getInstance(Store.class);
 
     Runtime.getRuntime().addShutdownHook(new Thread() {
       @Override
@@ -389,6 +393,8 @@ public class UpgradeTool {
       metadataStore.deleteAllIndexes();
       LOG.info("Re-building metadata indexes...");
       metadataStore.rebuildIndexes();
+      LOG.info("Building program run record indexes...");
+      store.rebuildRunRecordIndexes();
     } finally {
       datasetServiceManager.shutDown();
     }
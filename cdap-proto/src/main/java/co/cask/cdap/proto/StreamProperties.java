@@ -32,6 +32,7 @@ public class StreamProperties {
   @SerializedName("notification.threshold.mb")
   private final Integer notificationThresholdMB;
   private final String description;
+  private final String compression;
 
   public StreamProperties(Long ttl, FormatSpecification format, Integer notificationThresholdMB) {
     this(ttl, format, notificationThresholdMB, null);
@@ -39,10 +40,16 @@ public class StreamProperties {
 
   public StreamProperties(Long ttl, FormatSpecification format, Integer notificationThresholdMB,
                           @Nullable String description) {
+    this(ttl, format, notificationThresholdMB, description, null);
+  }
+
+  public StreamProperties(Long ttl, FormatSpecification format, Integer notificationThresholdMB,
+                          @Nullable String description, @Nullable String compression) {
     this.ttl = ttl;
     this.format = format;
     this.notificationThresholdMB = notificationThresholdMB;
     this.description = description;
+    this.compression = compression;
   }
 
   /**
@@ -75,6 +82,16 @@ public class StreamProperties {
     return description;
   }
 
+  /**
+   * @return The compression codec applied to the stream data files. Changing it makes the stream writers
+   *         close their current files, so that events written afterwards go to new files with the new codec.
+   *         Existing files keep the codec they were written with.
+   */
+  @Nullable
+  public String getCompression() {
+    return compression;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -89,12 +106,13 @@ public class StreamProperties {
     return Objects.equals(ttl, that.ttl) &&
       Objects.equals(format, that.format) &
       Objects.equals(notificationThresholdMB, that.notificationThresholdMB) &
-      Objects.equals(description, that.description);
+      Objects.equals(description, that.description) &&
+      Objects.equals(compression, that.compression);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(ttl, format, notificationThresholdMB, description);
+    return Objects.hash(ttl, format, notificationThresholdMB, description, compression);
   }
 
   @Override
@@ -104,6 +122,7 @@ public class StreamProperties {
       ", format=" + format +
       ", notificationThresholdMB=" + notificationThresholdMB +
       ", description=" + description +
+      ", compression=" + compression +
       '}';
   }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.cdap.proto.metadata;
+
+import co.cask.cdap.api.annotation.Beta;
+
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Represents a page of metadata search results.
+ */
+@Beta
+public class MetadataSearchResponse {
+  private final MetadataSearchSortOrder sort;
+  private final int offset;
+  private final int limit;
+  private final String cursor;
+  private final Set<MetadataSearchResultRecord> results;
+
+  public MetadataSearchResponse(MetadataSearchSortOrder sort, int offset, int limit, @Nullable String cursor,
+                                Set<MetadataSearchResultRecord> results) {
+    this.sort = sort;
+    this.offset = offset;
+    this.limit = limit;
+    this.cursor = cursor;
+    this.results = results;
+  }
+
+  public MetadataSearchSortOrder getSort() {
+    return sort;
+  }
+
+  public int getOffset() {
+    return offset;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * @return the cursor for fetching the next page of results, or {@code null} if there are no more results or the
+   *         results are not sorted by {@link MetadataSearchSortOrder#ENTITY}
+   */
+  @Nullable
+  public String getCursor() {
+    return cursor;
+  }
+
+  public Set<MetadataSearchResultRecord> getResults() {
+    return results;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof MetadataSearchResponse)) {
+      return false;
+    }
+    MetadataSearchResponse that = (MetadataSearchResponse) o;
+    return offset == that.offset &&
+      limit == that.limit &&
+      sort == that.sort &&
+      Objects.equals(cursor, that.cursor) &&
+      Objects.equals(results, that.results);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(sort, offset, limit, cursor, results);
+  }
+
+  @Override
+  public String toString() {
+    return "MetadataSearchResponse{" +
+      "sort=" + sort +
+      ", offset=" + offset +
+      ", limit=" + limit +
+      ", cursor='" + cursor + '\'' +
+      ", results=" + results +
+      '}';
+  }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014 Cask Data, Inc.
+ * Copyright © 2014-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -16,24 +16,70 @@
 
 package co.cask.cdap.security.auth;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.MetricsContexts;
+import co.cask.cdap.api.metrics.NoopMetricsContext;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Codec;
+import co.cask.cdap.proto.Id;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
 import org.apache.commons.codec.binary.Base64;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * It takes the access token and transforms it to Access Token Identifier.
+ * Results are cached with the same settings as the {@link AccessTokenValidator} cache, since clients send the same
+ * access token with many requests. If a {@link MetricsCollectionService} is available, cache hits and misses are
+ * emitted as the {@code token.transform.cache.hit} and {@code token.transform.cache.miss} metrics, and the time
+ * taken by transformations that miss the cache as the {@code token.transform.latency.us} distribution.
  */
 public class AccessTokenTransformer {
+
   private final Codec<AccessToken> accessTokenCodec;
   private final Codec<AccessTokenIdentifier> accessTokenIdentifierCodec;
+  // null if caching is disabled
+  private final LoadingCache<String, AccessTokenIdentifierPair> identifierPairs;
+  private volatile MetricsContext metricsContext;
 
   @Inject
-  public AccessTokenTransformer(Codec<AccessToken> accessTokenCodec,
+  public AccessTokenTransformer(CConfiguration cConf, Codec<AccessToken> accessTokenCodec,
                                 Codec<AccessTokenIdentifier> accessTokenIdentifierCodec) {
     this.accessTokenCodec = accessTokenCodec;
     this.accessTokenIdentifierCodec = accessTokenIdentifierCodec;
+    this.metricsContext = new NoopMetricsContext();
+
+    long cacheSize = cConf.getLong(Constants.Security.TOKEN_VALIDATION_CACHE_SIZE);
+    this.identifierPairs = cacheSize <= 0 ? null : CacheBuilder.newBuilder()
+      .maximumSize(cacheSize)
+      .expireAfterWrite(cConf.getLong(Constants.Security.TOKEN_VALIDATION_CACHE_EXPIRATION), TimeUnit.MILLISECONDS)
+      .build(new CacheLoader<String, AccessTokenIdentifierPair>() {
+        @Override
+        public AccessTokenIdentifierPair load(String accessToken) throws Exception {
+          metricsContext.increment("token.transform.cache.miss", 1);
+          return createIdentifierPair(accessToken);
+        }
+      });
+  }
+
+  /**
+   * Sets the {@link MetricsCollectionService} for emitting cache and latency metrics.
+   */
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.NAMESPACE, Id.Namespace.SYSTEM.getId(),
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.GATEWAY));
   }
 
   /**
@@ -43,10 +89,32 @@ public class AccessTokenTransformer {
    * @throws IOException
    */
   public AccessTokenIdentifierPair transform(String accessToken) throws IOException {
+    if (identifierPairs == null) {
+      return createIdentifierPair(accessToken);
+    }
+    AccessTokenIdentifierPair identifierPair = identifierPairs.getIfPresent(accessToken);
+    if (identifierPair != null) {
+      metricsContext.increment("token.transform.cache.hit", 1);
+      return identifierPair;
+    }
+    try {
+      return identifierPairs.get(accessToken);
+    } catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), IOException.class);
+      throw Throwables.propagate(e.getCause());
+    } catch (UncheckedExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+  }
+
+  private AccessTokenIdentifierPair createIdentifierPair(String accessToken) throws IOException {
+    long startTime = System.nanoTime();
     byte[] decodedAccessToken = Base64.decodeBase64(accessToken);
     AccessToken accessTokenObj = accessTokenCodec.decode(decodedAccessToken);
     AccessTokenIdentifier accessTokenIdentifierObj = accessTokenObj.getIdentifier();
     byte[] encodedAccessTokenIdentifier = accessTokenIdentifierCodec.encode(accessTokenIdentifierObj);
+    MetricsContexts.distribution(metricsContext, "token.transform.latency.us",
+                                 TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
     return new AccessTokenIdentifierPair(Base64.encodeBase64String(encodedAccessTokenIdentifier).trim(),
                                          accessTokenIdentifierObj);
   }
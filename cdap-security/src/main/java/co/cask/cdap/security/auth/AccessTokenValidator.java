@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014 Cask Data, Inc.
+ * Copyright © 2014-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -16,7 +16,18 @@
 
 package co.cask.cdap.security.auth;
 
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.MetricsContexts;
+import co.cask.cdap.api.metrics.NoopMetricsContext;
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.common.io.Codec;
+import co.cask.cdap.proto.Id;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
 import org.apache.commons.codec.binary.Base64;
@@ -24,20 +35,65 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * This class validates the accessToken and returns the different states
  * of accessToken validation.
+ *
+ * Tokens that are found valid are cached together with their expiration time, so that validating the same token
+ * again does not need to decode it and recompute its digest. A secret key is only removed by the
+ * {@link KeyManager} after all tokens signed with it have expired, hence checking the expiration time is enough for
+ * the cached tokens. Cache entries are also dropped after a configurable time, to bound how long a token stays
+ * valid after its key is removed in any other way.
+ *
+ * If a {@link MetricsCollectionService} is available, cache hits and misses are emitted as the
+ * {@code token.validation.cache.hit} and {@code token.validation.cache.miss} metrics, and the time taken by
+ * validations that miss the cache as the {@code token.validation.latency.us} distribution.
  */
 public class AccessTokenValidator extends AbstractIdleService implements TokenValidator {
   private static final Logger LOG = LoggerFactory.getLogger(AccessTokenValidator.class);
   private final TokenManager tokenManager;
   private final Codec<AccessToken> accessTokenCodec;
+  // Maps from valid token to its expiration timestamp
+  private final Cache<String, Long> validTokens;
+  private final AtomicLong validations;
+  private volatile MetricsContext metricsContext;
 
   @Inject
-  public AccessTokenValidator(TokenManager tokenManager, Codec<AccessToken> accessTokenCodec) {
+  public AccessTokenValidator(CConfiguration cConf, TokenManager tokenManager, Codec<AccessToken> accessTokenCodec) {
+    this(tokenManager, accessTokenCodec, cConf.getLong(Constants.Security.TOKEN_VALIDATION_CACHE_SIZE),
+         cConf.getLong(Constants.Security.TOKEN_VALIDATION_CACHE_EXPIRATION));
+  }
+
+  /**
+   * Creates an instance with the given cache settings.
+   *
+   * @param cacheSize maximum number of valid tokens to cache, {@code 0} to disable caching
+   * @param cacheExpiration time in milliseconds after which a cached token has to be validated again
+   */
+  AccessTokenValidator(TokenManager tokenManager, Codec<AccessToken> accessTokenCodec,
+                       long cacheSize, long cacheExpiration) {
     this.tokenManager = tokenManager;
     this.accessTokenCodec = accessTokenCodec;
+    this.metricsContext = new NoopMetricsContext();
+    this.validTokens = CacheBuilder.newBuilder()
+      .maximumSize(cacheSize)
+      .expireAfterWrite(cacheExpiration, TimeUnit.MILLISECONDS)
+      .recordStats()
+      .build();
+    this.validations = new AtomicLong();
+  }
+
+  /**
+   * Sets the {@link MetricsCollectionService} for emitting cache and latency metrics.
+   */
+  @Inject(optional = true)
+  public void setMetricsCollectionService(MetricsCollectionService metricsCollectionService) {
+    this.metricsContext = metricsCollectionService.getContext(ImmutableMap.of(
+      Constants.Metrics.Tag.NAMESPACE, Id.Namespace.SYSTEM.getId(),
+      Constants.Metrics.Tag.COMPONENT, Constants.Service.GATEWAY));
   }
 
   @Override
@@ -58,11 +114,26 @@ public class AccessTokenValidator extends AbstractIdleService implements TokenVa
       LOG.debug("Token is missing");
       return TokenState.MISSING;
     }
+
+    Long expireTime = validTokens.getIfPresent(token);
+    if (expireTime != null) {
+      metricsContext.increment("token.validation.cache.hit", 1);
+      if (expireTime >= System.currentTimeMillis()) {
+        return TokenState.VALID;
+      }
+      validTokens.invalidate(token);
+      LOG.debug("Token is expired");
+      return TokenState.EXPIRED;
+    }
+
+    metricsContext.increment("token.validation.cache.miss", 1);
+    long startTime = System.nanoTime();
     byte[] decodedToken = Base64.decodeBase64(token);
 
     try {
       accessToken = accessTokenCodec.decode(decodedToken);
       tokenManager.validateSecret(accessToken);
+      validTokens.put(token, accessToken.getIdentifier().getExpireTimestamp());
     } catch (IOException ioe) {
       state = TokenState.INVALID;
       LOG.debug("Unknown Schema version for Access Token. {}", ioe);
@@ -70,6 +141,23 @@ public class AccessTokenValidator extends AbstractIdleService implements TokenVa
       state = ite.getReason();
       LOG.debug("{} {}", state, ite);
     }
+    MetricsContexts.distribution(metricsContext, "token.validation.latency.us",
+                                 TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime));
+    validations.incrementAndGet();
     return state;
   }
+
+  /**
+   * Returns statistics of the valid token cache, which include the ratio of validations served from the cache.
+   */
+  public CacheStats getCacheStats() {
+    return validTokens.stats();
+  }
+
+  /**
+   * Returns the number of validations that were not served from the cache.
+   */
+  public long getValidationCount() {
+    return validations.get();
+  }
 }
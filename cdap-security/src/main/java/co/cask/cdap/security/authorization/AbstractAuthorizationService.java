@@ -45,7 +45,8 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * An {@link AbstractScheduledService} that maintains a cache of privileges. The cache is updated periodically using
- * the provided {@link PrivilegesFetcher}.
+ * the provided {@link PrivilegesFetcher}, and entries can be invalidated as soon as privileges are known to change
+ * using {@link #invalidate(Principal)} and {@link #invalidateAll()}.
  */
 public class AbstractAuthorizationService extends AbstractScheduledService {
 
@@ -60,7 +61,7 @@ public class AbstractAuthorizationService extends AbstractScheduledService {
   private final PrivilegesFetcher privilegesFetcher;
   private final int cacheTtlSecs;
   private final int cacheRefreshIntervalSecs;
-  private final LoadingCache<Principal, Map<EntityId, Set<Action>>> authPolicyCache;
+  private final LoadingCache<Principal, PrivilegeTrie> authPolicyCache;
   private final String serviceName;
 
   private ScheduledExecutorService executor;
@@ -77,11 +78,11 @@ public class AbstractAuthorizationService extends AbstractScheduledService {
     validateCacheConfig();
     this.authPolicyCache = CacheBuilder.newBuilder()
       .expireAfterWrite(cacheTtlSecs, TimeUnit.SECONDS)
-      .build(new CacheLoader<Principal, Map<EntityId, Set<Action>>>() {
+      .build(new CacheLoader<Principal, PrivilegeTrie>() {
         @SuppressWarnings("NullableProblems")
         @Override
-        public Map<EntityId, Set<Action>> load(Principal principal) throws Exception {
-          return fetchPrivileges(principal);
+        public PrivilegeTrie load(Principal principal) throws Exception {
+          return new PrivilegeTrie(fetchPrivileges(principal));
         }
       });
   }
@@ -136,8 +137,24 @@ public class AbstractAuthorizationService extends AbstractScheduledService {
     LOG.info("Shutdown authorization {} service successfully.", serviceName);
   }
 
+  /**
+   * Removes the cached privileges of the specified principal, so that they are fetched again the next time they
+   * are needed. This should be called whenever privileges of the principal are known to have changed.
+   */
+  public void invalidate(Principal principal) {
+    authPolicyCache.invalidate(principal);
+  }
+
+  /**
+   * Removes the cached privileges of all principals. This should be called whenever a change in privileges may
+   * affect more than one principal, for example, when privileges are granted to a group or a role.
+   */
+  public void invalidateAll() {
+    authPolicyCache.invalidateAll();
+  }
+
   @VisibleForTesting
-  Map<Principal, Map<EntityId, Set<Action>>> getCache() {
+  Map<Principal, PrivilegeTrie> getCache() {
     return authPolicyCache.asMap();
   }
 
@@ -172,7 +189,14 @@ public class AbstractAuthorizationService extends AbstractScheduledService {
   }
 
   protected Map<EntityId, Set<Action>> getPrivileges(Principal principal) throws Exception {
-    return cacheEnabled ? authPolicyCache.get(principal) : fetchPrivileges(principal);
+    return getPrivilegeTrie(principal);
+  }
+
+  /**
+   * Returns the privileges of the specified principal, indexed by entity hierarchy for enforcement and filtering.
+   */
+  PrivilegeTrie getPrivilegeTrie(Principal principal) throws Exception {
+    return cacheEnabled ? authPolicyCache.get(principal) : new PrivilegeTrie(fetchPrivileges(principal));
   }
 
   /**
@@ -202,7 +226,7 @@ public class AbstractAuthorizationService extends AbstractScheduledService {
    * Updates privileges of the specified user in the cache.
    */
   private void updatePrivileges(Principal principal) throws Exception {
-    Map<EntityId, Set<Action>> privileges = fetchPrivileges(principal);
+    PrivilegeTrie privileges = new PrivilegeTrie(fetchPrivileges(principal));
     authPolicyCache.put(principal, privileges);
     LOG.info("Updated privileges for principal {} as {}", principal, privileges);
   }
@@ -17,13 +17,60 @@
 package co.cask.cdap.security.authorization;
 
 import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.proto.security.Action;
+import co.cask.cdap.proto.security.Principal;
 import co.cask.cdap.security.spi.authorization.AuthorizationEnforcer;
+import co.cask.cdap.security.spi.authorization.UnauthorizedException;
 import com.google.common.util.concurrent.Service;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
 /**
  * An {@link AuthorizationEnforcer} used to enforce authorization policies in programs. If caching is enabled using
  * {@link Constants.Security.Authorization#CACHE_ENABLED}, authorization policies are cached locally.
  * A thread refreshes the cached policies periodically.
+ *
+ * Invalidation through {@link #invalidate(Principal)} and {@link #invalidateAll()} only applies to the cache of the
+ * current process. Privileges changed through another process are picked up by the periodic refresh, and a cached
+ * entry is never used for longer than {@link Constants.Security.Authorization#CACHE_TTL_SECS} after it was fetched,
+ * which bounds how long a revoked privilege can still be honored.
  */
 public interface AuthorizationEnforcementService extends Service, AuthorizationEnforcer {
+
+  /**
+   * Enforces authorization for the specified {@link Principal} for the specified {@link Action actions} on each of
+   * the specified entities. The privileges of the principal are only looked up once for all the entities.
+   *
+   * @param entities the entities on which authorization is to be enforced
+   * @param principal the {@link Principal} that performs the actions
+   * @param actions the {@link Action actions} being performed
+   * @throws UnauthorizedException if the principal is not authorized to perform the actions on any of the entities
+   * @throws Exception if any other errors occurred while performing the authorization enforcement check
+   */
+  void enforce(Collection<? extends EntityId> entities, Principal principal, Set<Action> actions) throws Exception;
+
+  /**
+   * Returns the entities on which the specified {@link Principal} has any privilege, either directly or through one
+   * of their ancestors, in the same order as they are given. The privileges of the principal are only looked up once
+   * for all the entities.
+   *
+   * @param entities the entities to filter
+   * @param principal the {@link Principal} to filter the entities for
+   * @return the entities visible to the principal
+   * @throws Exception if any errors occurred while fetching the privileges of the principal
+   */
+  <T extends EntityId> List<T> filter(Collection<T> entities, Principal principal) throws Exception;
+
+  /**
+   * Invalidates the cached privileges of the specified {@link Principal} in this process.
+   */
+  void invalidate(Principal principal);
+
+  /**
+   * Invalidates the cached privileges of all principals in this process.
+   */
+  void invalidateAll();
 }
@@ -20,7 +20,6 @@ import co.cask.cdap.api.Predicate;
 import co.cask.cdap.common.conf.CConfiguration;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.proto.id.EntityId;
-import co.cask.cdap.proto.id.ParentedId;
 import co.cask.cdap.proto.security.Action;
 import co.cask.cdap.proto.security.Principal;
 import co.cask.cdap.security.spi.authorization.PrivilegesFetcher;
@@ -34,9 +33,10 @@ import com.google.inject.Singleton;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
 import javax.annotation.Nullable;
 
@@ -74,49 +74,59 @@ public class DefaultAuthorizationEnforcementService extends AbstractAuthorizatio
 
   @Override
   public void enforce(EntityId entity, Principal principal, Set<Action> actions) throws Exception {
-    if (!isSecurityAuthorizationEnabled()) {
-      return;
-    }
-    // For accessing system datasets for internal operations like recording metadata, usage, lineage, etc
-    if (Principal.SYSTEM.equals(principal)) {
+    enforce(Collections.singleton(entity), principal, actions);
+  }
+
+  @Override
+  public void enforce(Collection<? extends EntityId> entities, Principal principal,
+                      Set<Action> actions) throws Exception {
+    if (bypassAuthorization(principal)) {
       return;
     }
-    // If the principal is a superuser, allow access
-    if (isSuperUser(principal)) {
-      return;
+    PrivilegeTrie privileges = getPrivilegeTrie(principal);
+    for (EntityId entity : entities) {
+      doEnforce(entity, principal, actions, privileges);
     }
-
-    doEnforce(entity, principal, actions, true);
   }
 
   @Override
-  public Predicate<EntityId> createFilter(Principal principal) throws Exception {
-    if (!isSecurityAuthorizationEnabled()) {
-      return ALLOW_ALL;
+  public <T extends EntityId> List<T> filter(Collection<T> entities, Principal principal) throws Exception {
+    if (bypassAuthorization(principal)) {
+      return new ArrayList<>(entities);
     }
-    // For accessing system datasets for internal operations like recording metadata, usage, lineage, etc
-    if (Principal.SYSTEM.equals(principal)) {
-      return ALLOW_ALL;
+    PrivilegeTrie privileges = getPrivilegeTrie(principal);
+    List<T> result = new ArrayList<>(entities.size());
+    for (T entity : entities) {
+      if (privileges.isVisible(entity)) {
+        result.add(entity);
+      }
     }
-    // If the principal is a super user, do not filter
-    if (isSuperUser(principal)) {
+    return result;
+  }
+
+  @Override
+  public Predicate<EntityId> createFilter(Principal principal) throws Exception {
+    if (bypassAuthorization(principal)) {
       return ALLOW_ALL;
     }
-    Map<EntityId, Set<Action>> privileges = getPrivileges(principal);
-    final Set<EntityId> allowedEntities = privileges != null ? privileges.keySet() : new HashSet<EntityId>();
-
+    final PrivilegeTrie privileges = getPrivilegeTrie(principal);
     return new Predicate<EntityId>() {
       @Override
       public boolean apply(EntityId entityId) {
-        boolean parentPassed = false;
-        if (entityId instanceof ParentedId) {
-          parentPassed = apply(((ParentedId) entityId).getParent());
-        }
-        return (parentPassed || allowedEntities.contains(entityId));
+        return privileges.isVisible(entityId);
       }
     };
   }
 
+  /**
+   * Returns whether authorization checks can be skipped for the specified principal.
+   */
+  private boolean bypassAuthorization(Principal principal) {
+    // For accessing system datasets for internal operations like recording metadata, usage, lineage, etc.
+    // If the principal is a superuser, allow access
+    return !isSecurityAuthorizationEnabled() || Principal.SYSTEM.equals(principal) || isSuperUser(principal);
+  }
+
   private Set<Principal> getSuperUsers(@Nullable String superUsers) {
     ImmutableSet.Builder<Principal> result = new ImmutableSet.Builder<>();
     if (superUsers != null) {
@@ -135,31 +145,16 @@ public class DefaultAuthorizationEnforcementService extends AbstractAuthorizatio
     return securityEnabled && authorizationEnabled;
   }
 
-  private boolean doEnforce(EntityId entity, Principal principal,
-                            Set<Action> actions, boolean exceptionOnFailure) throws Exception {
-    if (entity instanceof ParentedId) {
-      if (doEnforce(((ParentedId) entity).getParent(), principal, actions, false)) {
-        return true;
-      }
+  private void doEnforce(EntityId entity, Principal principal, Set<Action> actions,
+                         PrivilegeTrie privileges) throws UnauthorizedException {
+    if (privileges.isAllowed(entity, actions)) {
+      return;
     }
-
-    Set<Action> allowedActions = getPrivileges(principal).get(entity);
+    Set<Action> allowedActions = privileges.get(entity);
     LOG.trace("Enforcing actions {} on {} for {}. Allowed actions are {}", actions, entity, principal, allowedActions);
     if (allowedActions == null) {
-      if (exceptionOnFailure) {
-        throw new UnauthorizedException(principal, actions, entity);
-      }
-      return false;
-    }
-
-    // If a principal has ALL privileges on the entity, authorization should succeed
-    // Otherwise check for the specific actions requested
-    if (allowedActions.contains(Action.ALL) || allowedActions.containsAll(actions)) {
-      return true;
-    }
-    if (exceptionOnFailure) {
-      throw new UnauthorizedException(principal, Sets.difference(actions, allowedActions), entity);
+      throw new UnauthorizedException(principal, actions, entity);
     }
-    return false;
+    throw new UnauthorizedException(principal, Sets.difference(actions, allowedActions), entity);
   }
 }
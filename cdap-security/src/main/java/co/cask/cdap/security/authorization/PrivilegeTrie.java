@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.security.authorization;
+
+import co.cask.cdap.proto.id.EntityId;
+import co.cask.cdap.proto.security.Action;
+import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.ImmutableMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * The privileges of a principal, indexed by the hierarchy of the entities they are granted on. Checking whether an
+ * entity is accessible walks down from the root of the entity hierarchy, and stops as soon as there is no privilege
+ * granted on the current entity or any of its descendants, instead of looking up every ancestor of the entity.
+ * <p>
+ * Instances are immutable and are also a {@link Map} from each entity to the actions granted on it.
+ * </p>
+ */
+final class PrivilegeTrie extends ForwardingMap<EntityId, Set<Action>> {
+
+  private final Map<EntityId, Set<Action>> privileges;
+  private final Node root;
+
+  PrivilegeTrie(Map<EntityId, Set<Action>> privileges) {
+    this.privileges = ImmutableMap.copyOf(privileges);
+    this.root = new Node();
+    for (Map.Entry<EntityId, Set<Action>> entry : this.privileges.entrySet()) {
+      Node node = root;
+      for (EntityId entityId : entry.getKey().getHierarchy()) {
+        node = node.getOrAddChild(entityId);
+      }
+      node.actions = entry.getValue();
+    }
+  }
+
+  @Override
+  protected Map<EntityId, Set<Action>> delegate() {
+    return privileges;
+  }
+
+  /**
+   * Returns whether any privilege is granted on the given entity or on any of its ancestors.
+   */
+  boolean isVisible(EntityId entityId) {
+    Node node = root;
+    for (EntityId current : entityId.getHierarchy()) {
+      node = node.children.get(current);
+      if (node == null) {
+        return false;
+      }
+      if (node.actions != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Returns whether all the given actions, or {@link Action#ALL}, are granted on either the given entity or one of
+   * its ancestors.
+   */
+  boolean isAllowed(EntityId entityId, Set<Action> actions) {
+    Node node = root;
+    for (EntityId current : entityId.getHierarchy()) {
+      node = node.children.get(current);
+      if (node == null) {
+        return false;
+      }
+      if (node.actions != null && (node.actions.contains(Action.ALL) || node.actions.containsAll(actions))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A node in the trie, holding the actions granted on one entity and the nodes of its children that have
+   * privileges granted on them or on any of their descendants.
+   */
+  private static final class Node {
+    private final Map<EntityId, Node> children = new HashMap<>();
+    @Nullable
+    private Set<Action> actions;
+
+    Node getOrAddChild(EntityId entityId) {
+      Node child = children.get(entityId);
+      if (child == null) {
+        child = new Node();
+        children.put(entityId, child);
+      }
+      return child;
+    }
+  }
+}
@@ -16,6 +16,7 @@
 
 package co.cask.cdap.security.authorization;
 
+import co.cask.cdap.proto.security.Principal;
 import co.cask.cdap.security.spi.authorization.PrivilegesFetcher;
 import com.google.common.util.concurrent.Service;
 
@@ -24,4 +25,14 @@ import com.google.common.util.concurrent.Service;
  * (explore, stream service) or program containers.
  */
 public interface PrivilegesFetcherProxyService extends Service, PrivilegesFetcher {
+
+  /**
+   * Invalidates the cached privileges of the specified {@link Principal}.
+   */
+  void invalidate(Principal principal);
+
+  /**
+   * Invalidates the cached privileges of all principals.
+   */
+  void invalidateAll();
 }
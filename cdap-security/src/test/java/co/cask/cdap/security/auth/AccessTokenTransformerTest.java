@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.security.auth;
+
+import co.cask.cdap.common.conf.CConfiguration;
+import co.cask.cdap.common.conf.Constants;
+import co.cask.cdap.common.guice.ConfigModule;
+import co.cask.cdap.common.guice.DiscoveryRuntimeModule;
+import co.cask.cdap.common.guice.IOModule;
+import co.cask.cdap.common.io.Codec;
+import co.cask.cdap.security.guice.InMemorySecurityModule;
+import com.google.common.collect.Lists;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AccessTokenTransformer}.
+ */
+public class AccessTokenTransformerTest {
+
+  @Test
+  public void testCache() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setLong(Constants.Security.TOKEN_VALIDATION_CACHE_SIZE, 100);
+    RecordingMetricsCollectionService metricsCollectionService = new RecordingMetricsCollectionService();
+    Injector injector = createInjector(cConf);
+    AccessTokenTransformer transformer = injector.getInstance(AccessTokenTransformer.class);
+    transformer.setMetricsCollectionService(metricsCollectionService);
+
+    String token = createToken(injector, "testuser");
+    AccessTokenTransformer.AccessTokenIdentifierPair identifierPair = transformer.transform(token);
+    Assert.assertEquals("testuser", identifierPair.getAccessTokenIdentifierObj().getUsername());
+    Assert.assertSame(identifierPair, transformer.transform(token));
+    Assert.assertSame(identifierPair, transformer.transform(token));
+
+    Assert.assertEquals(2, metricsCollectionService.getCount("token.transform.cache.hit"));
+    Assert.assertEquals(1, metricsCollectionService.getCount("token.transform.cache.miss"));
+    Assert.assertEquals(1, metricsCollectionService.getDistributionCount("token.transform.latency.us"));
+  }
+
+  @Test
+  public void testCacheDisabled() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setLong(Constants.Security.TOKEN_VALIDATION_CACHE_SIZE, 0);
+    RecordingMetricsCollectionService metricsCollectionService = new RecordingMetricsCollectionService();
+    Injector injector = createInjector(cConf);
+    AccessTokenTransformer transformer = injector.getInstance(AccessTokenTransformer.class);
+    transformer.setMetricsCollectionService(metricsCollectionService);
+
+    String token = createToken(injector, "testuser");
+    AccessTokenTransformer.AccessTokenIdentifierPair identifierPair = transformer.transform(token);
+    Assert.assertNotSame(identifierPair, transformer.transform(token));
+    Assert.assertEquals(identifierPair.getAccessTokenIdentifierStr(),
+                        transformer.transform(token).getAccessTokenIdentifierStr());
+
+    Assert.assertEquals(0, metricsCollectionService.getCount("token.transform.cache.hit"));
+    Assert.assertEquals(3, metricsCollectionService.getDistributionCount("token.transform.latency.us"));
+  }
+
+  private Injector createInjector(CConfiguration cConf) {
+    return Guice.createInjector(new IOModule(), new InMemorySecurityModule(), new ConfigModule(cConf),
+                                new DiscoveryRuntimeModule().getInMemoryModules());
+  }
+
+  private String createToken(Injector injector, String user) throws Exception {
+    TokenManager tokenManager = injector.getInstance(TokenManager.class);
+    tokenManager.startAndWait();
+    try {
+      Codec<AccessToken> tokenCodec = injector.getInstance(AccessTokenCodec.class);
+      long now = System.currentTimeMillis();
+      AccessTokenIdentifier identifier = new AccessTokenIdentifier(user, Lists.newArrayList("users"),
+                                                                   now, now + 3600 * 1000);
+      return Base64.encodeBase64String(tokenCodec.encode(tokenManager.signIdentifier(identifier)));
+    } finally {
+      tokenManager.stopAndWait();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.security.auth;
+
+import co.cask.cdap.api.metrics.AbstractMetricsContext;
+import co.cask.cdap.api.metrics.MetricsCollectionService;
+import co.cask.cdap.api.metrics.MetricsContext;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.AbstractIdleService;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link MetricsCollectionService} that keeps the sum of the increments and the number of distribution data points
+ * for each metric, regardless of the context tags.
+ */
+final class RecordingMetricsCollectionService extends AbstractIdleService implements MetricsCollectionService {
+
+  private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, AtomicLong> distributions = new ConcurrentHashMap<>();
+
+  @Override
+  protected void startUp() throws Exception {
+    // no-op
+  }
+
+  @Override
+  protected void shutDown() throws Exception {
+    // no-op
+  }
+
+  @Override
+  public MetricsContext getContext(final Map<String, String> tags) {
+    return new AbstractMetricsContext() {
+      @Override
+      public MetricsContext childContext(Map<String, String> childTags) {
+        return getContext(ImmutableMap.<String, String>builder().putAll(tags).putAll(childTags).build());
+      }
+
+      @Override
+      public MetricsContext childContext(String tagName, String tagValue) {
+        return childContext(ImmutableMap.of(tagName, tagValue));
+      }
+
+      @Override
+      public Map<String, String> getTags() {
+        return tags;
+      }
+
+      @Override
+      public void distribution(String metricName, long value) {
+        add(distributions, metricName, 1);
+      }
+
+      @Override
+      public void increment(String metricName, long value) {
+        add(counters, metricName, value);
+      }
+
+      @Override
+      public void gauge(String metricName, long value) {
+        // no-op
+      }
+    };
+  }
+
+  /**
+   * Returns the sum of the increments of the given counter metric.
+   */
+  long getCount(String metricName) {
+    AtomicLong count = counters.get(metricName);
+    return count == null ? 0L : count.get();
+  }
+
+  /**
+   * Returns the number of data points recorded for the given distribution metric.
+   */
+  long getDistributionCount(String metricName) {
+    AtomicLong count = distributions.get(metricName);
+    return count == null ? 0L : count.get();
+  }
+
+  private void add(ConcurrentMap<String, AtomicLong> metrics, String metricName, long value) {
+    AtomicLong count = metrics.get(metricName);
+    if (count == null) {
+      AtomicLong newCount = new AtomicLong();
+      count = metrics.putIfAbsent(metricName, newCount);
+      if (count == null) {
+        count = newCount;
+      }
+    }
+    count.addAndGet(value);
+  }
+}
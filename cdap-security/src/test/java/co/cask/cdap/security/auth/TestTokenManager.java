@@ -1,5 +1,5 @@
 /*
- * Copyright © 2014 Cask Data, Inc.
+ * Copyright © 2014-2016 Cask Data, Inc.
  *
  * Licensed under the Apache License, Version 2.0 (the "License"); you may not
  * use this file except in compliance with the License. You may obtain a copy of
@@ -20,12 +20,15 @@ import co.cask.cdap.api.common.Bytes;
 import co.cask.cdap.common.io.Codec;
 import co.cask.cdap.common.utils.ImmutablePair;
 import com.google.common.collect.Lists;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Assert;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
@@ -112,4 +115,47 @@ public abstract class TestTokenManager {
 
     tokenManager.stopAndWait();
   }
+
+  @Test
+  public void testValidatorCache() throws Exception {
+    ImmutablePair<TokenManager, Codec<AccessToken>> pair = getTokenManagerAndCodec();
+    TokenManager tokenManager = pair.getFirst();
+    Codec<AccessToken> tokenCodec = pair.getSecond();
+    AccessTokenValidator validator = new AccessTokenValidator(tokenManager, tokenCodec, 100, 60000);
+    RecordingMetricsCollectionService metricsCollectionService = new RecordingMetricsCollectionService();
+    validator.setMetricsCollectionService(metricsCollectionService);
+    validator.startAndWait();
+
+    long now = System.currentTimeMillis();
+    List<String> groups = Lists.newArrayList("users");
+    String token = Base64.encodeBase64String(tokenCodec.encode(
+      tokenManager.signIdentifier(new AccessTokenIdentifier("testuser", groups, now, now + TOKEN_DURATION))));
+    String expiringToken = Base64.encodeBase64String(tokenCodec.encode(
+      tokenManager.signIdentifier(new AccessTokenIdentifier("testuser", groups, now, now + 500))));
+
+    // repeated validations of a valid token are served from the cache
+    for (int i = 0; i < 3; i++) {
+      Assert.assertEquals(TokenState.VALID, validator.validate(token));
+    }
+    Assert.assertEquals(2, validator.getCacheStats().hitCount());
+    Assert.assertEquals(1, validator.getValidationCount());
+    Assert.assertEquals(2, metricsCollectionService.getCount("token.validation.cache.hit"));
+    Assert.assertEquals(1, metricsCollectionService.getCount("token.validation.cache.miss"));
+    Assert.assertEquals(1, metricsCollectionService.getDistributionCount("token.validation.latency.us"));
+
+    // invalid tokens are not cached
+    String invalidToken = Base64.encodeBase64String(new byte[] { 1, 2, 3 });
+    Assert.assertEquals(TokenState.INVALID, validator.validate(invalidToken));
+    Assert.assertEquals(TokenState.INVALID, validator.validate(invalidToken));
+    Assert.assertEquals(3, validator.getValidationCount());
+    Assert.assertEquals(3, metricsCollectionService.getCount("token.validation.cache.miss"));
+
+    // cached tokens still expire
+    Assert.assertEquals(TokenState.VALID, validator.validate(expiringToken));
+    TimeUnit.MILLISECONDS.sleep(now + 600 - System.currentTimeMillis());
+    Assert.assertEquals(TokenState.EXPIRED, validator.validate(expiringToken));
+    Assert.assertEquals(TokenState.EXPIRED, validator.validate(expiringToken));
+
+    validator.stopAndWait();
+  }
 }
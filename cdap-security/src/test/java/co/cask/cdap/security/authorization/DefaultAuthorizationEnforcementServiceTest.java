@@ -30,6 +30,7 @@ import co.cask.cdap.proto.security.Privilege;
 import co.cask.cdap.security.spi.authorization.Authorizer;
 import co.cask.cdap.security.spi.authorization.PrivilegesFetcher;
 import co.cask.cdap.security.spi.authorization.UnauthorizedException;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Service;
 import org.apache.twill.filesystem.Location;
@@ -215,6 +216,83 @@ public class DefaultAuthorizationEnforcementServiceTest extends AuthorizationTes
     }
   }
 
+  @Test
+  public void testBulkEnforceAndFilter() throws Exception {
+    try (AuthorizerInstantiator authorizerInstantiator = new AuthorizerInstantiator(CCONF, AUTH_CONTEXT_FACTORY)) {
+      Authorizer authorizer = authorizerInstantiator.get();
+      NamespaceId ns1 = new NamespaceId("bulk1");
+      NamespaceId ns2 = new NamespaceId("bulk2");
+      DatasetId ds11 = ns1.dataset("ds1");
+      DatasetId ds12 = ns1.dataset("ds2");
+      DatasetId ds21 = ns2.dataset("ds1");
+      DatasetId ds22 = ns2.dataset("ds2");
+      StreamId s21 = ns2.stream("s1");
+      authorizer.grant(ns1, ALICE, Collections.singleton(Action.READ));
+      authorizer.grant(ds21, ALICE, ImmutableSet.of(Action.READ, Action.WRITE));
+      authorizer.grant(s21, ALICE, Collections.singleton(Action.ALL));
+      DefaultAuthorizationEnforcementService authEnforcementService =
+        new DefaultAuthorizationEnforcementService(authorizer, CCONF);
+      authEnforcementService.startAndWait();
+      try {
+        // READ is granted on the namespace for ds11 and ds12, on the dataset itself for ds21 and through ALL for s21
+        authEnforcementService.enforce(ImmutableList.<EntityId>of(ns1, ds11, ds12, ds21, s21), ALICE,
+                                       Collections.singleton(Action.READ));
+        authEnforcementService.enforce(ImmutableList.of(ds21, s21), ALICE, ImmutableSet.of(Action.READ, Action.WRITE));
+        try {
+          authEnforcementService.enforce(ImmutableList.of(ds11, ds21), ALICE, Collections.singleton(Action.WRITE));
+          Assert.fail("Expected alice to not have WRITE privilege on " + ds11);
+        } catch (UnauthorizedException expected) {
+          // expected
+        }
+        try {
+          authEnforcementService.enforce(ImmutableList.of(ds21, ds22), ALICE, Collections.singleton(Action.READ));
+          Assert.fail("Expected alice to not have READ privilege on " + ds22);
+        } catch (UnauthorizedException expected) {
+          // expected
+        }
+
+        // filter should keep the order of the entities, and only return the ones with privileges on them or parents
+        Assert.assertEquals(ImmutableList.<EntityId>of(ds12, ns1, s21, ds21, ds11),
+                            authEnforcementService.filter(ImmutableList.<EntityId>of(ds12, ns2, ns1, s21, ds22,
+                                                                                      ds21, ds11), ALICE));
+        Assert.assertTrue(authEnforcementService.filter(ImmutableList.of(ds11, ds21), BOB).isEmpty());
+      } finally {
+        authEnforcementService.stopAndWait();
+      }
+    }
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    try (AuthorizerInstantiator authorizerInstantiator = new AuthorizerInstantiator(CCONF, AUTH_CONTEXT_FACTORY)) {
+      Authorizer authorizer = authorizerInstantiator.get();
+      NamespaceId ns = new NamespaceId("invalidate");
+      DefaultAuthorizationEnforcementService authEnforcementService =
+        new DefaultAuthorizationEnforcementService(authorizer, CCONF);
+      authEnforcementService.startAndWait();
+      try {
+        assertAuthorizationFailure(authEnforcementService, ns, ALICE, Action.ADMIN);
+        assertAuthorizationFailure(authEnforcementService, ns, BOB, Action.ADMIN);
+        authorizer.grant(ns, ALICE, Collections.singleton(Action.ADMIN));
+        authorizer.grant(ns, BOB, Collections.singleton(Action.ADMIN));
+
+        // without a refresh, the cached privileges are still used
+        assertAuthorizationFailure(authEnforcementService, ns, ALICE, Action.ADMIN);
+
+        // invalidating alice's privileges should only reload hers
+        authEnforcementService.invalidate(ALICE);
+        authEnforcementService.enforce(ns, ALICE, Action.ADMIN);
+        assertAuthorizationFailure(authEnforcementService, ns, BOB, Action.ADMIN);
+
+        authEnforcementService.invalidateAll();
+        Assert.assertTrue(authEnforcementService.getCache().isEmpty());
+        authEnforcementService.enforce(ns, BOB, Action.ADMIN);
+      } finally {
+        authEnforcementService.stopAndWait();
+      }
+    }
+  }
+
   @Test
   public void testResiliency() throws Exception {
     CConfiguration cConfCopy = CConfiguration.copy(CCONF);
@@ -222,9 +300,10 @@ public class DefaultAuthorizationEnforcementServiceTest extends AuthorizationTes
     CountDownLatch countDownLatch = new CountDownLatch(10);
     DefaultAuthorizationEnforcementService authorizationEnforcementService =
       new DefaultAuthorizationEnforcementService(new FailingPrivilegesFetcher(countDownLatch), cConfCopy);
-    Map<Principal, Map<EntityId, Set<Action>>> cache = authorizationEnforcementService.getCache();
-    cache.put(new Principal("bob", Principal.PrincipalType.USER), Collections.<EntityId, Set<Action>>emptyMap());
-    cache.put(new Principal("tom", Principal.PrincipalType.USER), Collections.<EntityId, Set<Action>>emptyMap());
+    Map<Principal, PrivilegeTrie> cache = authorizationEnforcementService.getCache();
+    PrivilegeTrie noPrivileges = new PrivilegeTrie(Collections.<EntityId, Set<Action>>emptyMap());
+    cache.put(new Principal("bob", Principal.PrincipalType.USER), noPrivileges);
+    cache.put(new Principal("tom", Principal.PrincipalType.USER), noPrivileges);
     authorizationEnforcementService.startAndWait();
     try {
       // CountDownLatch is initialized to 10 and we have 2 users in the cache, so it should countdown twice in every
@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.metrics;
+
+/**
+ * Base class for {@link MetricsContext} implementations that can hand out {@link MetricsCounter} and
+ * {@link MetricsGauge} instances bound to a metric, and that support distribution metrics. By default, the bound
+ * instances update the metric through {@link #increment(String, long)} and {@link #gauge(String, long)}.
+ * Implementations override {@link #getCounter(String)} and {@link #getGauge(String)} to resolve the metric only once.
+ * Use {@link MetricsContexts} to get bound instances from any {@link MetricsContext}, or to record a distribution.
+ */
+public abstract class AbstractMetricsContext implements MetricsContext {
+
+  /**
+   * Records a data point of a distribution metric, such as a latency, for which percentiles can be queried.
+   * @param metricName Name of the metric.
+   * @param value value of the data point.
+   */
+  public abstract void distribution(String metricName, long value);
+
+  /**
+   * Returns a {@link MetricsCounter} for updating the given counter metric in this context.
+   * @param metricName Name of the metric.
+   */
+  public MetricsCounter getCounter(String metricName) {
+    return MetricsContexts.newCounter(this, metricName);
+  }
+
+  /**
+   * Returns a {@link MetricsGauge} for updating the given gauge metric in this context.
+   * @param metricName Name of the metric.
+   */
+  public MetricsGauge getGauge(String metricName) {
+    return MetricsContexts.newGauge(this, metricName);
+  }
+}
@@ -15,8 +15,11 @@
  */
 package co.cask.cdap.api.metrics;
 
+import co.cask.cdap.api.dataset.lib.cube.Distribution;
 import com.google.common.base.Objects;
 
+import javax.annotation.Nullable;
+
 /**
  * Carries the "raw" emitted metric data point: metric name, type, and value
  */
@@ -25,6 +28,7 @@ public class MetricValue {
   String name;
   MetricType type;
   long value;
+  Distribution distribution;
 
   public MetricValue (String name, MetricType type, long value) {
     this.name = name;
@@ -32,6 +36,14 @@ public class MetricValue {
     this.value = value;
   }
 
+  /**
+   * Creates a {@link MetricType#DISTRIBUTION} metric value. The value is the number of data points in the distribution.
+   */
+  public MetricValue(String name, Distribution distribution) {
+    this(name, MetricType.DISTRIBUTION, distribution.getCount());
+    this.distribution = distribution;
+  }
+
   public String getName() {
     return name;
   }
@@ -44,12 +56,21 @@ public class MetricValue {
     return value;
   }
 
+  /**
+   * Returns the data points of a {@link MetricType#DISTRIBUTION} metric, or {@code null} for other metric types.
+   */
+  @Nullable
+  public Distribution getDistribution() {
+    return distribution;
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
       .add("name", name)
       .add("type", type)
       .add("value", value)
+      .add("distribution", distribution)
       .toString();
   }
 }
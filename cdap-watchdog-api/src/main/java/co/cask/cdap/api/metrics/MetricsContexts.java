@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.metrics;
+
+/**
+ * Utility methods for getting {@link MetricsCounter} and {@link MetricsGauge} instances from a
+ * {@link MetricsContext}. It is cheaper to update a metric through them than through
+ * {@link MetricsContext#increment(String, long)} or {@link MetricsContext#gauge(String, long)} if the context is an
+ * {@link AbstractMetricsContext} that resolves the metric once, hence they should be used for metrics updated
+ * frequently. For any other context, they update the metric through the context.
+ * <p/>
+ * Distribution metrics are only supported by {@link AbstractMetricsContext}, see
+ * {@link #distribution(MetricsContext, String, long)}.
+ */
+public final class MetricsContexts {
+
+  /**
+   * Returns a {@link MetricsCounter} for updating the given counter metric in the given context.
+   * @param context the context of the metric.
+   * @param metricName Name of the metric.
+   */
+  public static MetricsCounter getCounter(MetricsContext context, String metricName) {
+    if (context instanceof AbstractMetricsContext) {
+      return ((AbstractMetricsContext) context).getCounter(metricName);
+    }
+    return newCounter(context, metricName);
+  }
+
+  /**
+   * Returns a {@link MetricsGauge} for updating the given gauge metric in the given context.
+   * @param context the context of the metric.
+   * @param metricName Name of the metric.
+   */
+  public static MetricsGauge getGauge(MetricsContext context, String metricName) {
+    if (context instanceof AbstractMetricsContext) {
+      return ((AbstractMetricsContext) context).getGauge(metricName);
+    }
+    return newGauge(context, metricName);
+  }
+
+  /**
+   * Records a data point of a distribution metric in the given context, if the context supports distribution
+   * metrics. The data point is dropped otherwise.
+   * @param context the context of the metric.
+   * @param metricName Name of the metric.
+   * @param value value of the data point.
+   */
+  public static void distribution(MetricsContext context, String metricName, long value) {
+    if (context instanceof AbstractMetricsContext) {
+      ((AbstractMetricsContext) context).distribution(metricName, value);
+    }
+  }
+
+  static MetricsCounter newCounter(final MetricsContext context, final String metricName) {
+    return new MetricsCounter() {
+      @Override
+      public void increment(long value) {
+        context.increment(metricName, value);
+      }
+    };
+  }
+
+  static MetricsGauge newGauge(final MetricsContext context, final String metricName) {
+    return new MetricsGauge() {
+      @Override
+      public void set(long value) {
+        context.gauge(metricName, value);
+      }
+    };
+  }
+
+  private MetricsContexts() {
+  }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.api.metrics;
+
+/**
+ * A gauge metric bound to a {@link MetricsContext} and a metric name, obtained from
+ * {@link MetricsContexts#getGauge(MetricsContext, String)}. Using it avoids resolving the metric on every update.
+ */
+public interface MetricsGauge {
+
+  /**
+   * Gauges the metric value at the current time.
+   * @param value value of the metric.
+   */
+  void set(long value);
+}
@@ -23,7 +23,21 @@ import java.util.Map;
 /**
  * A no-op implementation of {@link MetricsContext}.
  */
-public final class NoopMetricsContext implements MetricsContext {
+public final class NoopMetricsContext extends AbstractMetricsContext {
+
+  private static final MetricsCounter NOOP_COUNTER = new MetricsCounter() {
+    @Override
+    public void increment(long value) {
+      // no-op
+    }
+  };
+
+  private static final MetricsGauge NOOP_GAUGE = new MetricsGauge() {
+    @Override
+    public void set(long value) {
+      // no-op
+    }
+  };
 
   private final Map<String, String> tags;
 
@@ -59,4 +73,19 @@ public final class NoopMetricsContext implements MetricsContext {
   public void gauge(String metricName, long value) {
     // no-op
   }
+
+  @Override
+  public void distribution(String metricName, long value) {
+    // no-op
+  }
+
+  @Override
+  public MetricsCounter getCounter(String metricName) {
+    return NOOP_COUNTER;
+  }
+
+  @Override
+  public MetricsGauge getGauge(String metricName) {
+    return NOOP_GAUGE;
+  }
 }
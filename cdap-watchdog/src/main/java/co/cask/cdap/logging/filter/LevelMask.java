@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.filter;
+
+import ch.qos.logback.classic.Level;
+
+/**
+ * Helper methods for summarizing log levels as a bit mask. A mask of the levels of a set of log events, together
+ * with the mask of the levels a {@link Filter} can match, tells whether the filter can match any of the events.
+ */
+public final class LevelMask {
+
+  private static final Level[] LEVELS = { Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR };
+  // Bit for any other level
+  private static final int OTHER = 1 << LEVELS.length;
+
+  /**
+   * Mask that includes all levels.
+   */
+  public static final int ALL = (OTHER << 1) - 1;
+
+  /**
+   * Returns the mask of the given level.
+   */
+  public static int of(Level level) {
+    for (int i = 0; i < LEVELS.length; i++) {
+      if (LEVELS[i].equals(level)) {
+        return 1 << i;
+      }
+    }
+    return OTHER;
+  }
+
+  /**
+   * Returns the mask of levels of log events that the given {@link Filter} may match. The result is conservative,
+   * hence events of levels not in the mask are guaranteed to not match, while events of levels in the mask may match.
+   */
+  public static int of(Filter filter) {
+    if (filter instanceof LogLevelExpression) {
+      Level filterLevel = ((LogLevelExpression) filter).getLevel();
+      int mask = OTHER;
+      for (int i = 0; i < LEVELS.length; i++) {
+        if (LEVELS[i].isGreaterOrEqual(filterLevel)) {
+          mask |= 1 << i;
+        }
+      }
+      return mask;
+    }
+    if (filter instanceof AndFilter) {
+      int mask = ALL;
+      for (Filter expression : ((AndFilter) filter).getExpressions()) {
+        mask &= of(expression);
+      }
+      return mask;
+    }
+    if (filter instanceof OrFilter) {
+      int mask = 0;
+      for (Filter expression : ((OrFilter) filter).getExpressions()) {
+        mask |= of(expression);
+      }
+      return mask;
+    }
+    return ALL;
+  }
+
+  private LevelMask() {
+  }
+}
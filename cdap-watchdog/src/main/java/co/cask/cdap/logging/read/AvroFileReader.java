@@ -22,6 +22,7 @@ import co.cask.cdap.common.io.SeekableInputStream;
 import co.cask.cdap.data2.security.Impersonator;
 import co.cask.cdap.logging.filter.Filter;
 import co.cask.cdap.logging.serialize.LoggingEvent;
+import co.cask.cdap.logging.write.LogBlockIndex;
 import co.cask.cdap.proto.id.NamespaceId;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
@@ -37,13 +38,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
 
 /**
- * Reads log events from an Avro file.
+ * Reads log events from an Avro file. If the file has a {@link LogBlockIndex}, it is used to locate the blocks to read
+ * and to skip the blocks that cannot match the filter. Filters are evaluated before decoding the whole log event.
  */
 public class AvroFileReader {
   private static final Logger LOG = LoggerFactory.getLogger(AvroFileReader.class);
@@ -60,46 +64,11 @@ public class AvroFileReader {
     try {
       DataFileReader<GenericRecord> dataFileReader = createReader(file, namespaceId, impersonator);
       try {
-        ILoggingEvent loggingEvent;
-        GenericRecord datum;
-        if (dataFileReader.hasNext()) {
-          datum = dataFileReader.next();
-          loggingEvent = LoggingEvent.decode(datum);
-          long prevPrevSyncPos = 0;
-          long prevSyncPos = 0;
-          // Seek to time fromTimeMs
-          while (loggingEvent.getTimeStamp() < fromTimeMs && dataFileReader.hasNext()) {
-            // Seek to the next sync point
-            long curPos = dataFileReader.tell();
-            prevPrevSyncPos = prevSyncPos;
-            prevSyncPos = dataFileReader.previousSync();
-            LOG.trace("Syncing to pos {}", curPos);
-            dataFileReader.sync(curPos);
-            if (dataFileReader.hasNext()) {
-              loggingEvent = LoggingEvent.decode(dataFileReader.next(datum));
-            }
-          }
-
-          // We're now likely past the record with fromTimeMs, rewind to the previous sync point
-          dataFileReader.sync(prevPrevSyncPos);
-          LOG.trace("Final sync pos {}", prevPrevSyncPos);
-
-          // Start reading events from file
-          int count = 0;
-          long prevTimestamp = -1;
-          while (dataFileReader.hasNext()) {
-            loggingEvent = LoggingEvent.decode(dataFileReader.next(datum));
-            if (loggingEvent.getTimeStamp() >= fromTimeMs && logFilter.match(loggingEvent)) {
-              ++count;
-              if ((count > maxEvents || loggingEvent.getTimeStamp() >= toTimeMs)
-                && loggingEvent.getTimeStamp() != prevTimestamp) {
-                break;
-              }
-              callback.handle(new LogEvent(loggingEvent,
-                                           new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, loggingEvent.getTimeStamp())));
-            }
-            prevTimestamp = loggingEvent.getTimeStamp();
-          }
+        LogBlockIndex index = readIndex(file, namespaceId, impersonator);
+        if (index != null && index.size() > 0) {
+          readLog(dataFileReader, index, logFilter, fromTimeMs, toTimeMs, maxEvents, callback);
+        } else {
+          readLog(dataFileReader, logFilter, fromTimeMs, toTimeMs, maxEvents, callback);
         }
       } finally {
         try {
@@ -114,6 +83,99 @@ public class AvroFileReader {
     }
   }
 
+  /**
+   * Reads log events by scanning the sync blocks of the file sequentially to find events at fromTimeMs.
+   */
+  private void readLog(DataFileReader<GenericRecord> dataFileReader, Filter logFilter, long fromTimeMs,
+                       long toTimeMs, int maxEvents, Callback callback) throws IOException {
+    ILoggingEvent loggingEvent;
+    GenericRecord datum;
+    if (dataFileReader.hasNext()) {
+      datum = dataFileReader.next();
+      loggingEvent = LoggingEvent.decodeFilterFields(datum);
+      long prevPrevSyncPos = 0;
+      long prevSyncPos = 0;
+      // Seek to time fromTimeMs
+      while (loggingEvent.getTimeStamp() < fromTimeMs && dataFileReader.hasNext()) {
+        // Seek to the next sync point
+        long curPos = dataFileReader.tell();
+        prevPrevSyncPos = prevSyncPos;
+        prevSyncPos = dataFileReader.previousSync();
+        LOG.trace("Syncing to pos {}", curPos);
+        dataFileReader.sync(curPos);
+        if (dataFileReader.hasNext()) {
+          loggingEvent = LoggingEvent.decodeFilterFields(dataFileReader.next(datum));
+        }
+      }
+
+      // We're now likely past the record with fromTimeMs, rewind to the previous sync point
+      dataFileReader.sync(prevPrevSyncPos);
+      LOG.trace("Final sync pos {}", prevPrevSyncPos);
+
+      // Start reading events from file
+      int count = 0;
+      long prevTimestamp = -1;
+      while (dataFileReader.hasNext()) {
+        datum = dataFileReader.next(datum);
+        loggingEvent = LoggingEvent.decodeFilterFields(datum);
+        if (loggingEvent.getTimeStamp() >= fromTimeMs && logFilter.match(loggingEvent)) {
+          ++count;
+          if ((count > maxEvents || loggingEvent.getTimeStamp() >= toTimeMs)
+            && loggingEvent.getTimeStamp() != prevTimestamp) {
+            break;
+          }
+          callback.handle(new LogEvent(LoggingEvent.decode(datum),
+                                       new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, loggingEvent.getTimeStamp())));
+        }
+        prevTimestamp = loggingEvent.getTimeStamp();
+      }
+    }
+  }
+
+  /**
+   * Reads log events using the {@link LogBlockIndex} of the file to find the block with events at fromTimeMs, and
+   * to skip blocks that do not have events of levels matched by the filter.
+   */
+  private void readLog(DataFileReader<GenericRecord> dataFileReader, LogBlockIndex index, Filter logFilter,
+                       long fromTimeMs, long toTimeMs, int maxEvents, Callback callback) throws IOException {
+    LogBlockFilter blockFilter = new LogBlockFilter(logFilter);
+    int count = 0;
+    long prevTimestamp = -1;
+    long position = -1;
+    GenericRecord datum = null;
+
+    // Blocks before the first block only have events before fromTimeMs.
+    // The part of the file after the last indexed block is read without index.
+    for (int block = index.findFirstBlock(fromTimeMs); block <= index.size(); block++) {
+      long startPosition = block < index.size() ? index.getStart(block) : index.getIndexedEnd();
+      long endPosition = block < index.size() ? index.getEnd(block) : -1L;
+      if (block < index.size() && !blockFilter.mayMatch(index, block)) {
+        continue;
+      }
+      // No need to seek if continuing from the previous block
+      if (startPosition != position) {
+        LOG.trace("Seeking to block at pos {}", startPosition);
+        dataFileReader.seek(startPosition);
+      }
+
+      while (dataFileReader.hasNext() && (endPosition == -1 || dataFileReader.previousSync() < endPosition)) {
+        datum = dataFileReader.next(datum);
+        ILoggingEvent loggingEvent = LoggingEvent.decodeFilterFields(datum);
+        if (loggingEvent.getTimeStamp() >= fromTimeMs && logFilter.match(loggingEvent)) {
+          ++count;
+          if ((count > maxEvents || loggingEvent.getTimeStamp() >= toTimeMs)
+            && loggingEvent.getTimeStamp() != prevTimestamp) {
+            return;
+          }
+          callback.handle(new LogEvent(LoggingEvent.decode(datum),
+                                       new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, loggingEvent.getTimeStamp())));
+        }
+        prevTimestamp = loggingEvent.getTimeStamp();
+      }
+      position = endPosition;
+    }
+  }
+
   public Collection<LogEvent> readLogPrev(Location file, Filter logFilter, long fromTimeMs, final int maxEvents,
                                           NamespaceId namespaceId, Impersonator impersonator) {
     try {
@@ -124,6 +186,11 @@ public class AvroFileReader {
           return ImmutableList.of();
         }
 
+        LogBlockIndex index = readIndex(file, namespaceId, impersonator);
+        if (index != null && index.size() > 0) {
+          return readLogPrev(dataFileReader, index, logFilter, fromTimeMs, maxEvents);
+        }
+
         List<List<LogEvent>> logSegments = Lists.newArrayList();
         List<LogEvent> logSegment;
         int count = 0;
@@ -182,6 +249,42 @@ public class AvroFileReader {
     }
   }
 
+  /**
+   * Reads log events backwards from fromTimeMs using the {@link LogBlockIndex} of the file to find the block with
+   * events at fromTimeMs, and to skip blocks that do not have events of levels matched by the filter.
+   */
+  private Collection<LogEvent> readLogPrev(DataFileReader<GenericRecord> dataFileReader, LogBlockIndex index,
+                                           Filter logFilter, long fromTimeMs, int maxEvents) throws IOException {
+    LogBlockFilter blockFilter = new LogBlockFilter(logFilter);
+    List<List<LogEvent>> logSegments = Lists.newArrayList();
+    int count = 0;
+
+    // The part of the file after the last indexed block is read without index
+    dataFileReader.seek(index.getIndexedEnd());
+    List<LogEvent> logSegment = readToEndSyncPosition(dataFileReader, logFilter, fromTimeMs, -1);
+    if (!logSegment.isEmpty()) {
+      logSegments.add(logSegment);
+      count += logSegment.size();
+    }
+
+    // Blocks after the last block only have events after fromTimeMs
+    for (int block = index.findLastBlock(fromTimeMs); block >= 0 && count < maxEvents; block--) {
+      if (index.getMinTimestamp(block) > fromTimeMs || !blockFilter.mayMatch(index, block)) {
+        continue;
+      }
+      dataFileReader.seek(index.getStart(block));
+      logSegment = readToEndSyncPosition(dataFileReader, logFilter, fromTimeMs, index.getEnd(block));
+      if (!logSegment.isEmpty()) {
+        logSegments.add(logSegment);
+        count += logSegment.size();
+      }
+      LOG.trace("Read logevents {} from block at position {}", count, index.getStart(block));
+    }
+
+    int skip = count >= maxEvents ? count - maxEvents : 0;
+    return Lists.newArrayList(Iterables.skip(Iterables.concat(Lists.reverse(logSegments)), skip));
+  }
+
   /**
    *  Read current block in Avro file from current block sync marker to next block sync marker
    */
@@ -195,7 +298,7 @@ public class AvroFileReader {
     // or read until endSyncPosition has reached
     while (dataFileReader.hasNext() && (endSyncPosition == -1 || (currentSyncPosition < endSyncPosition))) {
       datum = dataFileReader.next(datum);
-      ILoggingEvent loggingEvent = LoggingEvent.decode(datum);
+      ILoggingEvent loggingEvent = LoggingEvent.decodeFilterFields(datum);
 
       // Stop when reached fromTimeMs
       if (loggingEvent.getTimeStamp() > fromTimeMs) {
@@ -203,7 +306,7 @@ public class AvroFileReader {
       }
 
       if (logFilter.match(loggingEvent)) {
-        logSegment.add(new LogEvent(loggingEvent,
+        logSegment.add(new LogEvent(LoggingEvent.decode(datum),
                                     new LogOffset(LogOffset.INVALID_KAFKA_OFFSET, loggingEvent.getTimeStamp())));
       }
       currentSyncPosition = dataFileReader.previousSync();
@@ -228,6 +331,32 @@ public class AvroFileReader {
     return startPosition;
   }
 
+  /**
+   * Reads the {@link LogBlockIndex} of the given log file.
+   *
+   * @return the index, or {@code null} if the file has no index or it cannot be read
+   */
+  @Nullable
+  private LogBlockIndex readIndex(final Location file, NamespaceId namespaceId, Impersonator impersonator) {
+    try {
+      return impersonator.doAs(namespaceId, new Callable<LogBlockIndex>() {
+        @Override
+        public LogBlockIndex call() throws Exception {
+          Location indexLocation = LogBlockIndex.getIndexLocation(file);
+          if (!indexLocation.exists()) {
+            return null;
+          }
+          try (InputStream is = indexLocation.getInputStream()) {
+            return LogBlockIndex.read(is);
+          }
+        }
+      });
+    } catch (Exception e) {
+      LOG.warn("Failed to read index of log file {}. Reading without index.", file, e);
+      return null;
+    }
+  }
+
   private DataFileReader<GenericRecord> createReader(Location location, NamespaceId namespaceId,
                                                      Impersonator impersonator) throws IOException {
     return new DataFileReader<>(new LocationSeekableInput(location, namespaceId, impersonator),
@@ -0,0 +1,77 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.logging.read;
+
+import co.cask.cdap.logging.filter.AndFilter;
+import co.cask.cdap.logging.filter.Filter;
+import co.cask.cdap.logging.filter.LevelMask;
+import co.cask.cdap.logging.filter.MdcExpression;
+import co.cask.cdap.logging.filter.OrFilter;
+import co.cask.cdap.logging.write.LogBlockIndex;
+
+/**
+ * Evaluates a {@link Filter} against the summary of a block in a {@link LogBlockIndex}, to skip reading blocks
+ * that cannot have matching log events. The level of the log events is checked with the {@link LevelMask} of the
+ * block, and each {@link MdcExpression} is checked with the bloom filter of the block.
+ */
+final class LogBlockFilter {
+
+  private final Filter filter;
+  private final int levelMask;
+
+  LogBlockFilter(Filter filter) {
+    this.filter = filter;
+    this.levelMask = LevelMask.of(filter);
+  }
+
+  /**
+   * Returns whether the given block may have log events matching the filter. A {@code false} result guarantees
+   * that no log event in the block matches the filter.
+   */
+  boolean mayMatch(LogBlockIndex index, int block) {
+    return (index.getLevelMask(block) & levelMask) != 0 && mayMatch(filter, index, block);
+  }
+
+  private static boolean mayMatch(Filter filter, LogBlockIndex index, int block) {
+    if (filter instanceof MdcExpression) {
+      MdcExpression expression = (MdcExpression) filter;
+      // Expression with null value never matches, but leave it to the filter
+      if (expression.getKey() == null || expression.getValue() == null) {
+        return true;
+      }
+      return index.mightContainMdc(block, expression.getKey(), expression.getValue());
+    }
+    if (filter instanceof AndFilter) {
+      for (Filter expression : ((AndFilter) filter).getExpressions()) {
+        if (!mayMatch(expression, index, block)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (filter instanceof OrFilter) {
+      for (Filter expression : ((OrFilter) filter).getExpressions()) {
+        if (mayMatch(expression, index, block)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return true;
+  }
+}
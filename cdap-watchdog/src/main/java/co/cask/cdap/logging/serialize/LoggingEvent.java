@@ -260,6 +260,19 @@ public final class LoggingEvent implements ILoggingEvent {
     return loggingEvent;
   }
 
+  /**
+   * Decodes only the timestamp, level and MDC of the given datum, which are all the fields used for filtering
+   * log events. It is cheaper than {@link #decode(GenericRecord)}, and can be used to evaluate filters before
+   * decoding the whole log event.
+   */
+  public static ILoggingEvent decodeFilterFields(GenericRecord datum) {
+    LoggingEvent loggingEvent = new LoggingEvent();
+    loggingEvent.level = (Integer) datum.get("level");
+    loggingEvent.mdc = decodeMdcMap((Map<?, ?>) datum.get("mdc"));
+    loggingEvent.timestamp = (Long) datum.get("timestamp");
+    return loggingEvent;
+  }
+
   static Map<String, String> decodeMdcMap(Map<?, ?> map) {
     if (map == null) {
       return null;
@@ -20,9 +20,11 @@ import co.cask.cdap.common.logging.LoggingContext;
 import co.cask.cdap.common.namespace.NamespacedLocationFactory;
 import co.cask.cdap.data2.security.Impersonator;
 import co.cask.cdap.logging.context.LoggingContextHelper;
+import co.cask.cdap.logging.filter.LevelMask;
 import co.cask.cdap.proto.id.NamespaceId;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.avro.Schema;
 import org.apache.avro.file.DataFileWriter;
 import org.apache.avro.generic.GenericDatumWriter;
@@ -33,6 +35,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
+import java.io.DataOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
@@ -40,12 +43,14 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Helper class that manages writing of KafkaLogEvent to Avro files. The events are written into appropriate files
- * based on the LoggingContext of the event. The files are also rotated based on size. This class is not thread-safe.
+ * based on the LoggingContext of the event. The files are also rotated based on size. Alongside each file, a
+ * {@link LogBlockIndex} of the blocks written is maintained. This class is not thread-safe.
  */
 public final class AvroFileWriter implements Closeable, Flushable {
   private static final Logger LOG = LoggerFactory.getLogger(AvroFileWriter.class);
@@ -253,6 +258,10 @@ public final class AvroFileWriter implements Closeable, Flushable {
         if (avroFile.getLocation().exists()) {
           avroFile.getLocation().delete();
         }
+        Location indexLocation = LogBlockIndex.getIndexLocation(avroFile.getLocation());
+        if (indexLocation.exists()) {
+          indexLocation.delete();
+        }
       }
     } catch (IOException e) {
       LOG.error("Error while closing and deleting file {}", avroFile.getLocation(), e);
@@ -264,6 +273,7 @@ public final class AvroFileWriter implements Closeable, Flushable {
    *
    * Since there is no way to check the state of the underlying file on an exception,
    * all methods of this class assume that the file state is bad on any exception and close the file.
+   * The block index of the file is best effort. Failure to write it only stops the indexing of the file.
    */
   public class AvroFile implements Closeable {
     private final Location location;
@@ -272,6 +282,16 @@ public final class AvroFileWriter implements Closeable, Flushable {
     private long lastModifiedTs;
     private boolean isOpen = false;
 
+    // Index of the file, and the summary of the events appended since the last indexed block
+    private FSDataOutputStream indexOutputStream;
+    private DataOutputStream indexOutput;
+    private long blockStart;
+    private long blockMinTs;
+    private long blockMaxTs;
+    private int blockLevelMask;
+    private int blockEvents;
+    private final Set<Long> blockMdcHashes = Sets.newHashSet();
+
     public AvroFile(Location location) {
       this.location = location;
     }
@@ -289,11 +309,25 @@ public final class AvroFileWriter implements Closeable, Flushable {
         this.dataFileWriter.create(schema, this.outputStream);
         this.dataFileWriter.setSyncInterval(syncIntervalBytes);
         this.lastModifiedTs = System.currentTimeMillis();
+        this.blockStart = dataFileWriter.sync();
       } catch (Exception e) {
         close();
         throw new IOException("Exception while creating file " + location, e);
       }
       this.isOpen = true;
+      openIndex();
+    }
+
+    private void openIndex() {
+      Location indexLocation = LogBlockIndex.getIndexLocation(location);
+      try {
+        indexOutputStream = new FSDataOutputStream(indexLocation.getOutputStream(), null);
+        indexOutput = new DataOutputStream(indexOutputStream);
+        LogBlockIndex.writeHeader(indexOutput);
+      } catch (Exception e) {
+        LOG.warn("Failed to create index file {}. Log file {} will not be indexed.", indexLocation, location, e);
+        closeIndex();
+      }
     }
 
     public boolean isOpen() {
@@ -312,6 +346,21 @@ public final class AvroFileWriter implements Closeable, Flushable {
         close();
         throw new IOException("Exception while appending to file " + location, e);
       }
+
+      long timestamp = event.getLogEvent().getTimeStamp();
+      blockMinTs = blockEvents == 0 ? timestamp : Math.min(blockMinTs, timestamp);
+      blockMaxTs = blockEvents == 0 ? timestamp : Math.max(blockMaxTs, timestamp);
+      blockLevelMask |= LevelMask.of(event.getLogEvent().getLevel());
+      blockEvents++;
+
+      Map<?, ?> mdc = (Map<?, ?>) event.getGenericRecord().get("mdc");
+      if (mdc != null) {
+        for (Map.Entry<?, ?> entry : mdc.entrySet()) {
+          if (entry.getKey() != null && entry.getValue() != null) {
+            blockMdcHashes.add(LogBlockIndex.hashMdc(entry.getKey().toString(), entry.getValue().toString()));
+          }
+        }
+      }
     }
 
     public long getPos() throws IOException {
@@ -329,22 +378,83 @@ public final class AvroFileWriter implements Closeable, Flushable {
 
     public void flush() throws IOException {
       try {
+        indexBlock();
         dataFileWriter.flush();
         outputStream.hflush();
       } catch (Exception e) {
         close();
         throw new IOException("Exception while flushing file " + location, e);
       }
+      flushIndex(false);
     }
 
     public void sync() throws IOException {
       try {
+        indexBlock();
         dataFileWriter.flush();
         outputStream.hsync();
       } catch (Exception e) {
         close();
         throw new IOException("Exception while syncing file " + location, e);
       }
+      flushIndex(true);
+    }
+
+    /**
+     * Ends the current block of the data file, and adds the events appended since the last indexed block to the
+     * index. The index entry is only buffered, and has to be flushed after the data file is flushed, so that the
+     * index never refers to unflushed data.
+     */
+    private void indexBlock() throws IOException {
+      if (blockEvents == 0) {
+        return;
+      }
+      long blockEnd = dataFileWriter.sync();
+      if (indexOutput != null) {
+        try {
+          LogBlockIndex.writeEntry(indexOutput, blockStart, blockEnd, blockMinTs, blockMaxTs,
+                                   blockLevelMask, blockMdcHashes);
+        } catch (IOException e) {
+          LOG.warn("Failed to write index of log file {}. The rest of the file will not be indexed.", location, e);
+          closeIndex();
+        }
+      }
+      blockStart = blockEnd;
+      blockLevelMask = 0;
+      blockEvents = 0;
+      blockMdcHashes.clear();
+    }
+
+    private void flushIndex(boolean sync) {
+      if (indexOutput == null) {
+        return;
+      }
+      try {
+        indexOutput.flush();
+        if (sync) {
+          indexOutputStream.hsync();
+        } else {
+          indexOutputStream.hflush();
+        }
+      } catch (IOException e) {
+        LOG.warn("Failed to flush index of log file {}. The rest of the file will not be indexed.", location, e);
+        closeIndex();
+      }
+    }
+
+    private void closeIndex() {
+      try {
+        if (indexOutput != null) {
+          indexOutput.close();
+        } else if (indexOutputStream != null) {
+          indexOutputStream.close();
+        }
+      } catch (IOException e) {
+        LOG.warn("Failed to close index of log file {}", location, e);
+      } finally {
+        indexOutput = null;
+        indexOutputStream = null;
+      }
     }
 
     @Override
@@ -358,11 +468,20 @@ public final class AvroFileWriter implements Closeable, Flushable {
 
       try {
         if (dataFileWriter != null) {
-          dataFileWriter.close();
+          try {
+            indexBlock();
+          } finally {
+            dataFileWriter.close();
+          }
+          flushIndex(false);
         }
       } finally {
-        if (outputStream != null) {
-          outputStream.close();
+        try {
+          if (outputStream != null) {
+            outputStream.close();
+          }
+        } finally {
+          closeIndex();
         }
       }
     }
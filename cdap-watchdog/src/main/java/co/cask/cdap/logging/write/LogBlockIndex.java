@@ -0,0 +1,337 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.logging.write;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.apache.twill.filesystem.Location;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import javax.annotation.Nullable;
+
+/**
+ * A time sorted index of the blocks of a log file, which is stored in a sidecar file next to the log file.
+ * Each entry of the index covers a contiguous range of the log file between two Avro sync positions, and records
+ * the smallest and largest timestamps, the {@link co.cask.cdap.logging.filter.LevelMask} and a bloom filter of
+ * the MDC entries of the log events in the range. Entries are appended as the log file is written, hence a
+ * partially written index still describes a prefix of the log file.
+ */
+public final class LogBlockIndex {
+
+  private static final String INDEX_FILE_SUFFIX = ".idx";
+  private static final int VERSION = 2;
+  // Version without bloom filters
+  private static final int VERSION_1 = 1;
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+  // About 1% false positive rate with 10 bits per entry
+  private static final int BLOOM_BITS_PER_ENTRY = 10;
+  private static final int BLOOM_HASHES = 7;
+  // Upper bound of the bloom filter size of a block, to detect corrupted index
+  private static final int MAX_BLOOM_LONGS = 1 << 20;
+
+  private final long[] starts;
+  private final long[] ends;
+  private final long[] minTimestamps;
+  private final int[] levelMasks;
+  // Bloom filter of MDC entries of each block, null if the index does not have bloom filters
+  private final long[][] blooms;
+  // Running maximum of the largest timestamps, and running minimum from the end of the smallest timestamps.
+  // Both are non-decreasing, hence can be binary searched even if events are not strictly sorted in the log file.
+  private final long[] runningMaxTimestamps;
+  private final long[] runningMinTimestamps;
+  private final int size;
+
+  private LogBlockIndex(long[] starts, long[] ends, long[] minTimestamps, long[] maxTimestamps,
+                        int[] levelMasks, long[][] blooms, int size) {
+    this.starts = starts;
+    this.ends = ends;
+    this.minTimestamps = minTimestamps;
+    this.levelMasks = levelMasks;
+    this.blooms = blooms;
+    this.size = size;
+    this.runningMaxTimestamps = new long[size];
+    this.runningMinTimestamps = new long[size];
+    for (int i = 0; i < size; i++) {
+      runningMaxTimestamps[i] = i == 0 ? maxTimestamps[i] : Math.max(runningMaxTimestamps[i - 1], maxTimestamps[i]);
+    }
+    for (int i = size - 1; i >= 0; i--) {
+      runningMinTimestamps[i] = i == size - 1
+        ? minTimestamps[i] : Math.min(runningMinTimestamps[i + 1], minTimestamps[i]);
+    }
+  }
+
+  /**
+   * Returns the location of the index file of the given log file.
+   */
+  public static Location getIndexLocation(Location logFile) {
+    return logFile.getLocationFactory().create(URI.create(logFile.toURI().toString() + INDEX_FILE_SUFFIX));
+  }
+
+  /**
+   * Returns the hash of an MDC entry, to be added to the bloom filter of a block with
+   * {@link #writeEntry(DataOutput, long, long, long, long, int, Collection)}.
+   */
+  public static long hashMdc(String key, String value) {
+    return HASH_FUNCTION.newHasher()
+      .putString(key, Charsets.UTF_8)
+      .putByte((byte) 0)
+      .putString(value, Charsets.UTF_8)
+      .hash().asLong();
+  }
+
+  /**
+   * Writes the header of an index file.
+   */
+  static void writeHeader(DataOutput output) throws IOException {
+    output.writeInt(VERSION);
+  }
+
+  /**
+   * Writes an index entry.
+   *
+   * @param output the output to write to
+   * @param start the sync position of the log file where the block starts
+   * @param end the sync position of the log file where the block ends
+   * @param minTimestamp the smallest timestamp of the log events in the block
+   * @param maxTimestamp the largest timestamp of the log events in the block
+   * @param levelMask the level mask of the log events in the block
+   * @param mdcHashes distinct hashes of the MDC entries of the log events in the block, as computed by
+   *                  {@link #hashMdc(String, String)}
+   */
+  static void writeEntry(DataOutput output, long start, long end, long minTimestamp, long maxTimestamp,
+                         int levelMask, Collection<Long> mdcHashes) throws IOException {
+    output.writeLong(start);
+    output.writeLong(end);
+    output.writeLong(minTimestamp);
+    output.writeLong(maxTimestamp);
+    output.writeInt(levelMask);
+
+    long[] bloom = new long[Math.max(1, (mdcHashes.size() * BLOOM_BITS_PER_ENTRY + 63) / 64)];
+    for (long hash : mdcHashes) {
+      int hash1 = (int) hash;
+      int hash2 = (int) (hash >>> 32);
+      for (int i = 1; i <= BLOOM_HASHES; i++) {
+        int bit = getBloomBit(hash1, hash2, i, bloom.length);
+        bloom[bit >>> 6] |= 1L << bit;
+      }
+    }
+    output.writeInt(bloom.length);
+    for (long bits : bloom) {
+      output.writeLong(bits);
+    }
+  }
+
+  /**
+   * Reads an index from the given input. A partially written trailing entry is ignored.
+   *
+   * @return the {@link LogBlockIndex}, or {@code null} if the input is not a supported index
+   */
+  @Nullable
+  public static LogBlockIndex read(InputStream input) throws IOException {
+    DataInput in = new DataInputStream(input);
+    int version;
+    try {
+      version = in.readInt();
+      if (version != VERSION && version != VERSION_1) {
+        return null;
+      }
+    } catch (EOFException e) {
+      return null;
+    }
+
+    int capacity = 64;
+    long[] starts = new long[capacity];
+    long[] ends = new long[capacity];
+    long[] minTimestamps = new long[capacity];
+    long[] maxTimestamps = new long[capacity];
+    int[] levelMasks = new int[capacity];
+    long[][] blooms = version == VERSION_1 ? null : new long[capacity][];
+    int size = 0;
+    while (true) {
+      long start;
+      long end;
+      long minTimestamp;
+      long maxTimestamp;
+      int levelMask;
+      long[] bloom = null;
+      try {
+        start = in.readLong();
+        end = in.readLong();
+        minTimestamp = in.readLong();
+        maxTimestamp = in.readLong();
+        levelMask = in.readInt();
+        if (blooms != null) {
+          int bloomLength = in.readInt();
+          if (bloomLength <= 0 || bloomLength > MAX_BLOOM_LONGS) {
+            // Corrupted entry, only use the entries before it
+            break;
+          }
+          bloom = new long[bloomLength];
+          for (int i = 0; i < bloomLength; i++) {
+            bloom[i] = in.readLong();
+          }
+        }
+      } catch (EOFException e) {
+        break;
+      }
+      if (size == capacity) {
+        capacity *= 2;
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+        minTimestamps = Arrays.copyOf(minTimestamps, capacity);
+        maxTimestamps = Arrays.copyOf(maxTimestamps, capacity);
+        levelMasks = Arrays.copyOf(levelMasks, capacity);
+        if (blooms != null) {
+          blooms = Arrays.copyOf(blooms, capacity);
+        }
+      }
+      starts[size] = start;
+      ends[size] = end;
+      minTimestamps[size] = minTimestamp;
+      maxTimestamps[size] = maxTimestamp;
+      levelMasks[size] = levelMask;
+      if (blooms != null) {
+        blooms[size] = bloom;
+      }
+      size++;
+    }
+    return new LogBlockIndex(starts, ends, minTimestamps, maxTimestamps, levelMasks, blooms, size);
+  }
+
+  /**
+   * Returns the number of blocks in the index.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the sync position where the given block starts.
+   */
+  public long getStart(int block) {
+    return starts[block];
+  }
+
+  /**
+   * Returns the sync position where the given block ends, which is also where the next block starts.
+   */
+  public long getEnd(int block) {
+    return ends[block];
+  }
+
+  /**
+   * Returns the smallest timestamp of the log events in the given block.
+   */
+  public long getMinTimestamp(int block) {
+    return minTimestamps[block];
+  }
+
+  /**
+   * Returns the level mask of the log events in the given block.
+   */
+  public int getLevelMask(int block) {
+    return levelMasks[block];
+  }
+
+  /**
+   * Returns whether the given block may have log events with the given MDC entry. A {@code false} result
+   * guarantees that no log event in the block has the entry.
+   */
+  public boolean mightContainMdc(int block, String key, String value) {
+    if (blooms == null) {
+      return true;
+    }
+    long[] bloom = blooms[block];
+    long hash = hashMdc(key, value);
+    int hash1 = (int) hash;
+    int hash2 = (int) (hash >>> 32);
+    for (int i = 1; i <= BLOOM_HASHES; i++) {
+      int bit = getBloomBit(hash1, hash2, i, bloom.length);
+      if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the sync position where the indexed part of the log file ends, or {@code -1} if the index is empty.
+   */
+  public long getIndexedEnd() {
+    return size == 0 ? -1L : ends[size - 1];
+  }
+
+  /**
+   * Returns the first block that may contain log events with timestamp larger than or equal to the given timestamp.
+   * All blocks before it only contain log events with smaller timestamps.
+   *
+   * @return the block, or {@link #size()} if there is no such block
+   */
+  public int findFirstBlock(long timestamp) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (runningMaxTimestamps[mid] < timestamp) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns the last block that may contain log events with timestamp smaller than or equal to the given timestamp.
+   * All blocks after it only contain log events with larger timestamps.
+   *
+   * @return the block, or {@code -1} if there is no such block
+   */
+  public int findLastBlock(long timestamp) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (runningMinTimestamps[mid] <= timestamp) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low - 1;
+  }
+
+  /**
+   * Returns the i-th bit position of a bloom filter of the given number of longs, using double hashing.
+   */
+  private static int getBloomBit(int hash1, int hash2, int i, int bloomLength) {
+    int combined = hash1 + i * hash2;
+    if (combined < 0) {
+      combined = ~combined;
+    }
+    return combined % (bloomLength * 64);
+  }
+}
@@ -79,6 +79,10 @@ public final class LogCleanup implements Runnable {
                                                     location.delete();
                                                     parentDirs.put(namespacedLogBaseDir, getParent(location));
                                                   }
+                                                  Location index = LogBlockIndex.getIndexLocation(location);
+                                                  if (index.exists()) {
+                                                    index.delete();
+                                                  }
                                                   return null;
                                                 }
                                               });
@@ -15,15 +15,16 @@
  */
 package co.cask.cdap.metrics.collect;
 
+import co.cask.cdap.api.metrics.AbstractMetricsContext;
 import co.cask.cdap.api.metrics.MetricType;
 import co.cask.cdap.api.metrics.MetricValue;
 import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.api.metrics.MetricsCollectionService;
 import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.MetricsCounter;
+import co.cask.cdap.api.metrics.MetricsGauge;
 import co.cask.cdap.common.conf.Constants;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -33,16 +34,25 @@ import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
- * Base class for {@link MetricsCollectionService} which collect metrics through a set of cached
- * {@link AggregatedMetricsEmitter}.
+ * Base class for {@link MetricsCollectionService} which collect metrics through a set of
+ * {@link AggregatedMetricsEmitter}s.
+ * <p>
+ * Each {@link MetricsContext} keeps the emitters of its metrics, so that updating a metric only involves a lookup
+ * by metric name, or no lookup at all through a {@link MetricsCounter} or {@link MetricsGauge}. Emitters and
+ * contexts that have been idle for a while are retired, and get attached back when they are updated again.
+ * </p>
  */
 public abstract class AggregatedMetricsCollectionService extends AbstractScheduledService
                                                          implements MetricsCollectionService {
@@ -50,34 +60,19 @@ public abstract class AggregatedMetricsCollectionService extends AbstractSchedul
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsCollectionService.class);
   private static final long CACHE_EXPIRE_MINUTES = 1;
 
-  private final LoadingCache<Map<String, String>, MetricsContext> collectors;
-  private final LoadingCache<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> emitters;
+  private final ConcurrentMap<Map<String, String>, MetricsContextImpl> contexts;
+  private final long expireSeconds;
 
   private ScheduledExecutorService executorService;
 
   public AggregatedMetricsCollectionService() {
-    this.collectors = CacheBuilder.newBuilder()
-      .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
-      .build(createCollectorLoader());
-
-    this.emitters = CacheBuilder.newBuilder()
-      // NOTE : we don't need to have removalListener to  emit metrics, as we have expireAfterAccess set for a minute,
-      // emitters.get() is used to increment/gauge and that would reset the access time,
-      // and since runOneIteration() emits all the metrics for the scheduled duration (every 1 second)
-      // there wont be any loss of emitter entries.
-      .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
-      .build(new CacheLoader<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>() {
-        @Override
-        public LoadingCache<String, AggregatedMetricsEmitter> load(Map<String, String> tags) throws Exception {
-          return CacheBuilder.newBuilder().expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES).
-            build(new CacheLoader<String, AggregatedMetricsEmitter>() {
-              @Override
-              public AggregatedMetricsEmitter load(String metricName) throws Exception {
-                return new AggregatedMetricsEmitter(metricName);
-              }
-            });
-        }
-      });
+    this(TimeUnit.MINUTES.toSeconds(CACHE_EXPIRE_MINUTES));
+  }
+
+  @VisibleForTesting
+  AggregatedMetricsCollectionService(long expireSeconds) {
+    this.contexts = new ConcurrentHashMap<>();
+    this.expireSeconds = expireSeconds;
   }
 
   /**
@@ -129,7 +124,19 @@ public abstract class AggregatedMetricsCollectionService extends AbstractSchedul
 
   @Override
   public final MetricsContext getContext(final Map<String, String> tags) {
-    return collectors.getUnchecked(tags);
+    return getContextImpl(tags);
+  }
+
+  private MetricsContextImpl getContextImpl(Map<String, String> tags) {
+    MetricsContextImpl context = contexts.get(tags);
+    if (context == null) {
+      context = new MetricsContextImpl(tags);
+      MetricsContextImpl existing = contexts.putIfAbsent(context.getTags(), context);
+      if (existing != null) {
+        context = existing;
+      }
+    }
+    return context;
   }
 
   @Override
@@ -145,75 +152,140 @@ public abstract class AggregatedMetricsCollectionService extends AbstractSchedul
   }
 
   private Iterator<MetricValues> getMetrics(final long timestamp) {
-    // NOTE : emitters.asMap does not reset the access time in cache,
-    // so it's the preferred way to access the cache entries. as we access and emit metrics every second.
-    final Iterator<Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>> iterator =
-      emitters.asMap().entrySet().iterator();
+    final Iterator<MetricsContextImpl> iterator = contexts.values().iterator();
     return new AbstractIterator<MetricValues>() {
       @Override
       protected MetricValues computeNext() {
         while (iterator.hasNext()) {
-          Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> entry = iterator.next();
-          Map<String, AggregatedMetricsEmitter> metricEmitters = entry.getValue().asMap();
+          MetricsContextImpl context = iterator.next();
+          Collection<AggregatedMetricsEmitter> metricEmitters = context.emitters.values();
           // +1 because we add extra metric about how many metric values did we emit in this context (see below)
           List<MetricValue> metricValues = Lists.newArrayListWithCapacity(metricEmitters.size() + 1);
-          for (Map.Entry<String, AggregatedMetricsEmitter> emitterEntry : metricEmitters.entrySet()) {
-            MetricValue metricValue = emitterEntry.getValue().emit();
+          for (AggregatedMetricsEmitter emitter : metricEmitters) {
+            MetricValue metricValue = emitter.emit();
             // skip increment by 0
             if (metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0) {
-              continue;
+              if (isExpired(emitter.getIdleSince(), timestamp)) {
+                metricValue = retire(context, emitter);
+              } else {
+                if (emitter.getIdleSince() == 0) {
+                  emitter.setIdleSince(timestamp);
+                }
+                continue;
+              }
+            } else {
+              emitter.setIdleSince(0);
+            }
+            if (metricValue != null) {
+              metricValues.add(metricValue);
             }
-            metricValues.add(metricValue);
           }
 
           if (metricValues.isEmpty()) {
             // skip if there are no metric values to send
+            if (context.emitters.isEmpty()) {
+              retireIfExpired(context, timestamp);
+            }
             continue;
           }
+          context.idleSince = 0;
 
           // number of emitted metrics
           metricValues.add(new MetricValue("metrics.emitted.count", MetricType.COUNTER, metricValues.size() + 1));
 
           LOG.trace("Emit metric {}", metricValues);
-          return new MetricValues(entry.getKey(), timestamp, metricValues);
+          return new MetricValues(context.getTags(), timestamp, metricValues);
         }
         return endOfData();
       }
     };
   }
 
-  private CacheLoader<Map<String, String>, MetricsContext> createCollectorLoader() {
-    return new CacheLoader<Map<String, String>, MetricsContext>() {
-      @Override
-      public MetricsContext load(final Map<String, String> collectorKey) throws Exception {
-        return new MetricsContextImpl(collectorKey);
-      }
-    };
+  private boolean isExpired(long idleSince, long timestamp) {
+    return idleSince != 0 && timestamp - idleSince >= expireSeconds;
+  }
+
+  /**
+   * Removes an idle emitter from its context.
+   *
+   * @return the value updated to the emitter before it was removed, or {@code null} if there is none
+   */
+  @Nullable
+  private MetricValue retire(MetricsContextImpl context, AggregatedMetricsEmitter emitter) {
+    emitter.setRetired(true);
+    context.emitters.remove(emitter.getName(), emitter);
+    // Flush out values updated concurrently. Updates that happened after this will reattach the emitter.
+    MetricValue metricValue = emitter.emit();
+    if (metricValue.getType() == MetricType.COUNTER && metricValue.getValue() == 0) {
+      return null;
+    }
+    return metricValue;
+  }
+
+  /**
+   * Removes a context without emitters if it has been idle long enough.
+   */
+  private void retireIfExpired(MetricsContextImpl context, long timestamp) {
+    if (context.idleSince == 0) {
+      context.idleSince = timestamp;
+      return;
+    }
+    if (!isExpired(context.idleSince, timestamp)) {
+      return;
+    }
+    // Emitters created after the context is marked as retired get retired as well, see MetricsContextImpl.getEmitter
+    context.retired = true;
+    if (context.emitters.isEmpty()) {
+      contexts.remove(context.getTags(), context);
+    } else {
+      context.retired = false;
+    }
   }
 
-  private final class MetricsContextImpl implements MetricsContext {
+  final class MetricsContextImpl extends AbstractMetricsContext {
 
     private final Map<String, String> tags;
+    private final ConcurrentMap<String, AggregatedMetricsEmitter> emitters;
+    // set when the context is removed from the service
+    private volatile boolean retired;
+    // time in seconds since the context has no emitter, or 0 if it has, only accessed by the publishing thread
+    private long idleSince;
 
     private MetricsContextImpl(final Map<String, String> tags) {
       this.tags = ImmutableMap.copyOf(tags);
+      this.emitters = new ConcurrentHashMap<>();
     }
 
     @Override
     public void increment(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).increment(value);
+      getEmitter(metricName).increment(value);
     }
 
     @Override
     public void gauge(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).gauge(value);
+      getEmitter(metricName).gauge(value);
+    }
+
+    @Override
+    public void distribution(String metricName, long value) {
+      getEmitter(metricName).distribution(value);
+    }
+
+    @Override
+    public MetricsCounter getCounter(String metricName) {
+      return getEmitter(metricName);
+    }
+
+    @Override
+    public MetricsGauge getGauge(String metricName) {
+      return getEmitter(metricName);
     }
 
     @Override
     public MetricsContext childContext(String tagName, String tagValue) {
       ImmutableMap<String, String> allTags = ImmutableMap.<String, String>builder()
         .putAll(tags).put(tagName, tagValue).build();
-      return collectors.getUnchecked(allTags);
+      return getContextImpl(allTags);
     }
 
     @Override
@@ -230,7 +302,41 @@ public abstract class AggregatedMetricsCollectionService extends AbstractSchedul
       Map<String, String> allTags = Maps.newHashMap();
       allTags.putAll(this.tags);
       allTags.putAll(tags);
-      return collectors.getUnchecked(allTags);
+      return getContextImpl(allTags);
+    }
+
+    private AggregatedMetricsEmitter getEmitter(String metricName) {
+      AggregatedMetricsEmitter emitter = emitters.get(metricName);
+      if (emitter == null) {
+        emitter = new AggregatedMetricsEmitter(this, metricName);
+        AggregatedMetricsEmitter existing = emitters.putIfAbsent(metricName, emitter);
+        if (existing != null) {
+          emitter = existing;
+        } else if (retired) {
+          // This context is no longer published, the emitter will be attached to the active context on update
+          emitter.setRetired(true);
+        }
+      }
+      return emitter;
+    }
+
+    /**
+     * Attaches a retired emitter of this context back to the active context of the same tags.
+     */
+    void reattach(AggregatedMetricsEmitter emitter) {
+      MetricsContextImpl context = getContextImpl(tags);
+      AggregatedMetricsEmitter current = context.emitters.putIfAbsent(emitter.getName(), emitter);
+      if (current == null || current == emitter) {
+        emitter.setIdleSince(0);
+        // If the context got retired concurrently, the next update will try again
+        emitter.setRetired(context.retired);
+        return;
+      }
+      // Another emitter is active for the metric, move values to it
+      emitter.transferTo(current);
+      if (context != this) {
+        emitters.replace(emitter.getName(), emitter, current);
+      }
     }
   }
 }
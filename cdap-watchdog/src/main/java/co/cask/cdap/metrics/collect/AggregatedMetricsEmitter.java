@@ -15,8 +15,11 @@
  */
 package co.cask.cdap.metrics.collect;
 
+import co.cask.cdap.api.dataset.lib.cube.Distribution;
 import co.cask.cdap.api.metrics.MetricType;
 import co.cask.cdap.api.metrics.MetricValue;
+import co.cask.cdap.api.metrics.MetricsCounter;
+import co.cask.cdap.api.metrics.MetricsGauge;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,41 +29,142 @@ import java.util.concurrent.atomic.AtomicLong;
 /**
  * {@link MetricsEmitter} that aggregates  values for a metric
  * during collection and emit the aggregated value when emit.
+ * <p>
+ * An emitter that stays idle is retired by {@link AggregatedMetricsCollectionService}. As instances can be held
+ * as {@link MetricsCounter} or {@link MetricsGauge} by callers, an update to a retired emitter attaches it back to
+ * its context, so that no update is lost.
+ * </p>
+ * <p>
+ * Updates within a publishing interval are applied in order: setting a gauge discards the increments made before it,
+ * and increments made after it are added to the gauge value. Concurrent updates are applied in no particular order.
+ * </p>
  */
-final class AggregatedMetricsEmitter implements MetricsEmitter {
+final class AggregatedMetricsEmitter implements MetricsEmitter, MetricsCounter, MetricsGauge {
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsEmitter.class);
 
+  private final AggregatedMetricsCollectionService.MetricsContextImpl context;
   private final String name;
-  // metric value
-  private final AtomicLong value;
+  // counter value, or the increments since the last gauge if the gauge is used
+  private final StripedCounter counter;
+  // last gauge value
+  private final AtomicLong gaugeValue;
   // specifies if the metric type is gauge or counter
   private final AtomicBoolean gaugeUsed;
+  // data points recorded for distribution metric, guarded by this
+  private Distribution distribution;
+  // set when the emitter is removed from its context
+  private volatile boolean retired;
+  // time in seconds since the emitter has nothing to emit, or 0 if it is active
+  private volatile long idleSince;
 
-  AggregatedMetricsEmitter(String name) {
+  AggregatedMetricsEmitter(AggregatedMetricsCollectionService.MetricsContextImpl context, String name) {
     if (name == null || name.isEmpty()) {
       LOG.warn("Creating emmitter with " + (name == null ? "null" : "empty") + " name, ");
     }
 
+    this.context = context;
     this.name = name;
-    this.value = new AtomicLong();
+    this.counter = new StripedCounter();
+    this.gaugeValue = new AtomicLong();
     this.gaugeUsed = new AtomicBoolean(false);
   }
 
-  void increment(long value) {
-    this.value.addAndGet(value);
+  String getName() {
+    return name;
   }
 
+  @Override
+  public void increment(long value) {
+    counter.add(value);
+    if (retired) {
+      context.reattach(this);
+    }
+  }
+
+  @Override
+  public void set(long value) {
+    gauge(value);
+  }
+
+  void gauge(long value) {
+    gaugeValue.set(value);
+    // the gauge replaces the increments made before it
+    counter.sumThenReset();
+    gaugeUsed.set(true);
+    if (retired) {
+      context.reattach(this);
+    }
+  }
+
+  void distribution(long value) {
+    synchronized (this) {
+      if (distribution == null) {
+        distribution = new Distribution();
+      }
+      distribution.add(value);
+    }
+    if (retired) {
+      context.reattach(this);
+    }
+  }
 
   @Override
   public MetricValue emit() {
-    // todo CDAP-2195 - potential race condition , reseting value and type has to be done together
-    long value = this.value.getAndSet(0);
-    MetricType type = gaugeUsed.getAndSet(false) ? MetricType.GAUGE : MetricType.COUNTER;
-    return new MetricValue(name, type, value);
+    Distribution distribution = takeDistribution();
+    if (distribution != null) {
+      return new MetricValue(name, distribution);
+    }
+
+    long value = counter.sumThenReset();
+    // A gauge reports the latest value plus the increments made after it
+    if (gaugeUsed.getAndSet(false)) {
+      return new MetricValue(name, MetricType.GAUGE, gaugeValue.get() + value);
+    }
+    return new MetricValue(name, MetricType.COUNTER, value);
+  }
+
+  boolean isRetired() {
+    return retired;
+  }
+
+  void setRetired(boolean retired) {
+    this.retired = retired;
+  }
+
+  long getIdleSince() {
+    return idleSince;
+  }
+
+  void setIdleSince(long idleSince) {
+    this.idleSince = idleSince;
+  }
+
+  /**
+   * Moves all values collected by this emitter to the given one.
+   */
+  void transferTo(AggregatedMetricsEmitter emitter) {
+    long value = counter.sumThenReset();
+    if (gaugeUsed.getAndSet(false)) {
+      emitter.gauge(gaugeValue.get());
+    }
+    if (value != 0) {
+      emitter.increment(value);
+    }
+    Distribution distribution = takeDistribution();
+    if (distribution != null) {
+      synchronized (emitter) {
+        if (emitter.distribution == null) {
+          emitter.distribution = distribution;
+        } else {
+          emitter.distribution.merge(distribution);
+        }
+      }
+    }
   }
 
-  public void gauge(long value) {
-    this.value.set(value);
-    this.gaugeUsed.set(true);
+  private synchronized Distribution takeDistribution() {
+    Distribution distribution = this.distribution;
+    this.distribution = null;
+    return distribution;
   }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.cdap.metrics.collect;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A long counter that spreads updates from different threads over separate cells when there is contention,
+ * so that concurrent updates don't compete for the same cache line. Until contention is detected, all updates
+ * go to a single base value.
+ */
+final class StripedCounter {
+
+  // Number of longs in a cell, such that each cell occupies its own cache line
+  private static final int CELL_SIZE = 8;
+  private static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+
+  private final AtomicLong base = new AtomicLong();
+  private volatile AtomicLongArray cells;
+
+  /**
+   * Adds the given value.
+   */
+  void add(long value) {
+    AtomicLongArray cells = this.cells;
+    if (cells == null) {
+      long current = base.get();
+      if (base.compareAndSet(current, current + value)) {
+        return;
+      }
+      cells = inflate();
+    }
+    cells.getAndAdd(stripe() * CELL_SIZE, value);
+  }
+
+  /**
+   * Returns the current sum and resets it to zero. Values added concurrently may or may not be included in
+   * the result, but they are never lost.
+   */
+  long sumThenReset() {
+    long sum = base.getAndSet(0L);
+    AtomicLongArray cells = this.cells;
+    if (cells != null) {
+      for (int i = 0; i < cells.length(); i += CELL_SIZE) {
+        if (cells.get(i) != 0L) {
+          sum += cells.getAndSet(i, 0L);
+        }
+      }
+    }
+    return sum;
+  }
+
+  private synchronized AtomicLongArray inflate() {
+    if (cells == null) {
+      cells = new AtomicLongArray(STRIPES * CELL_SIZE);
+    }
+    return cells;
+  }
+
+  private static int stripe() {
+    // Spread the sequential thread ids
+    long h = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+    return (int) (h >>> 32) & (STRIPES - 1);
+  }
+
+  private static int stripes(int processors) {
+    return Integer.highestOneBit(Math.max(1, Math.min(processors, 64)) * 2 - 1);
+  }
+}
@@ -82,6 +82,14 @@ public class MetricsHandler extends AbstractHttpHandler {
 
   public static final String ANY_TAG_VALUE = "*";
 
+  // suffixes of metric names for querying percentiles of distribution metrics, e.g. "system.request.latency:p99"
+  private static final char AGGREGATION_SEPARATOR = ':';
+  private static final Map<String, AggregationFunction> AGGREGATION_SUFFIXES = ImmutableMap.of(
+    "p50", AggregationFunction.P50,
+    "p95", AggregationFunction.P95,
+    "p99", AggregationFunction.P99
+  );
+
   private final MetricStore metricStore;
 
   private static final Map<String, String> tagNameToHuman;
@@ -334,12 +342,27 @@ public class MetricsHandler extends AbstractHttpHandler {
 
     MetricQueryRequest.TimeRange timeRange = queryRequest.getTimeRange();
 
-    MetricDataQuery query = new MetricDataQuery(timeRange.getStart(), timeRange.getEnd(),
-                                                timeRange.getResolutionInSeconds(),
-                                                timeRange.getCount(), toMetrics(queryRequest.getMetrics()),
-                                                tagsSliceBy, transformGroupByTags(queryRequest.getGroupBy()),
-                                                timeRange.getInterpolate());
-    Collection<MetricTimeSeries> queryResult = metricStore.query(query);
+    // Metrics requested with different aggregation functions are queried separately, as a query
+    // can only aggregate the same metric with one function
+    List<MetricTimeSeries> queryResult = Lists.newArrayList();
+    for (Map.Entry<AggregationFunction, Map<String, String>> entry : toMetrics(queryRequest.getMetrics()).entrySet()) {
+      Map<String, AggregationFunction> metrics = Maps.newHashMap();
+      for (String metricName : entry.getValue().keySet()) {
+        metrics.put(metricName, entry.getKey());
+      }
+      MetricDataQuery query = new MetricDataQuery(timeRange.getStart(), timeRange.getEnd(),
+                                                  timeRange.getResolutionInSeconds(),
+                                                  timeRange.getCount(), metrics,
+                                                  tagsSliceBy, transformGroupByTags(queryRequest.getGroupBy()),
+                                                  timeRange.getInterpolate());
+      for (MetricTimeSeries timeSeries : metricStore.query(query)) {
+        String requestedName = entry.getValue().get(timeSeries.getMetricName());
+        if (requestedName != null && !requestedName.equals(timeSeries.getMetricName())) {
+          timeSeries = new MetricTimeSeries(requestedName, timeSeries.getTagValues(), timeSeries.getTimeValues());
+        }
+        queryResult.add(timeSeries);
+      }
+    }
 
     long endTime = timeRange.getEnd();
     if (timeRange.getResolutionInSeconds() == Integer.MAX_VALUE && endTime == 0) {
@@ -350,11 +373,27 @@ public class MetricsHandler extends AbstractHttpHandler {
     return decorate(queryResult, timeRange.getStart(), endTime, timeRange.getResolutionInSeconds());
   }
 
-  private Map<String, AggregationFunction> toMetrics(List<String> metrics) {
-    Map<String, AggregationFunction> result = Maps.newHashMap();
+  /**
+   * Parses the requested metrics into a map from aggregation function to the metrics aggregated with it, keyed by
+   * metric name with the value being the metric name as requested.
+   */
+  private Map<AggregationFunction, Map<String, String>> toMetrics(List<String> metrics) {
+    Map<AggregationFunction, Map<String, String>> result = Maps.newEnumMap(AggregationFunction.class);
     for (String metric : metrics) {
       // todo: figure out metric type
-      result.put(metric, AggregationFunction.SUM);
+      AggregationFunction function = AggregationFunction.SUM;
+      String metricName = metric;
+      int idx = metric.lastIndexOf(AGGREGATION_SEPARATOR);
+      if (idx > 0 && AGGREGATION_SUFFIXES.containsKey(metric.substring(idx + 1))) {
+        function = AGGREGATION_SUFFIXES.get(metric.substring(idx + 1));
+        metricName = metric.substring(0, idx);
+      }
+      Map<String, String> functionMetrics = result.get(function);
+      if (functionMetrics == null) {
+        functionMetrics = Maps.newHashMap();
+        result.put(function, functionMetrics);
+      }
+      functionMetrics.put(metricName, metric);
     }
     return result;
   }
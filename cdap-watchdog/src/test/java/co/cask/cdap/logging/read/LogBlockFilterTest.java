@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.logging.read;
+
+import ch.qos.logback.classic.Level;
+import co.cask.cdap.logging.filter.AndFilter;
+import co.cask.cdap.logging.filter.Filter;
+import co.cask.cdap.logging.filter.FilterParser;
+import co.cask.cdap.logging.filter.MdcExpression;
+import co.cask.cdap.logging.write.LogBlockIndex;
+import co.cask.cdap.logging.write.LogBlockIndexTest;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * Tests for {@link LogBlockFilter}.
+ */
+public class LogBlockFilterTest {
+
+  @Test
+  public void testMayMatch() throws Exception {
+    // Block 0 has INFO events of run1, block 1 has ERROR events of run2
+    LogBlockIndex index = LogBlockIndexTest.createIndex(
+      ImmutableList.<Map<String, String>>of(ImmutableMap.of(".runId", "run1", ".applicationId", "app"),
+                                            ImmutableMap.of(".runId", "run2", ".applicationId", "app")),
+      ImmutableList.of(Level.INFO, Level.ERROR));
+
+    assertMayMatch(index, Filter.EMPTY_FILTER, true, true);
+    assertMayMatch(index, new MdcExpression(".runId", "run1"), true, false);
+    assertMayMatch(index, new MdcExpression(".runId", "run3"), false, false);
+    assertMayMatch(index, FilterParser.parse("loglevel=WARN"), false, true);
+    assertMayMatch(index, FilterParser.parse(".runId=run1 AND loglevel=WARN"), false, false);
+    assertMayMatch(index, FilterParser.parse(".runId=run1 OR loglevel=WARN"), true, true);
+    assertMayMatch(index, FilterParser.parse(".applicationId=app OR .runId=run3"), true, true);
+    assertMayMatch(index, new AndFilter(ImmutableList.of(new MdcExpression(".applicationId", "app"),
+                                                          new MdcExpression(".runId", "run2"))), false, true);
+  }
+
+  private void assertMayMatch(LogBlockIndex index, Filter filter, boolean... expected) {
+    LogBlockFilter blockFilter = new LogBlockFilter(filter);
+    for (int i = 0; i < expected.length; i++) {
+      Assert.assertEquals("Block " + i + " with filter " + filter, expected[i], blockFilter.mayMatch(index, i));
+    }
+  }
+}
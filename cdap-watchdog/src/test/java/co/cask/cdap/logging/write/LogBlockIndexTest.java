@@ -0,0 +1,206 @@
+/*
+ * Copyright © 2016 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.cdap.logging.write;
+
+import ch.qos.logback.classic.Level;
+import co.cask.cdap.logging.filter.AndFilter;
+import co.cask.cdap.logging.filter.Filter;
+import co.cask.cdap.logging.filter.LevelMask;
+import co.cask.cdap.logging.filter.LogLevelExpression;
+import co.cask.cdap.logging.filter.OrFilter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for {@link LogBlockIndex}.
+ */
+public class LogBlockIndexTest {
+
+  private static final List<Long> NO_MDC = ImmutableList.of();
+
+  @Test
+  public void testReadWrite() throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    LogBlockIndex.writeHeader(out);
+    for (int i = 0; i < 100; i++) {
+      LogBlockIndex.writeEntry(out, i * 10, (i + 1) * 10, i * 100, i * 100 + 99, LevelMask.of(Level.INFO), NO_MDC);
+    }
+    out.close();
+
+    LogBlockIndex index = LogBlockIndex.read(new ByteArrayInputStream(bos.toByteArray()));
+    Assert.assertNotNull(index);
+    Assert.assertEquals(100, index.size());
+    Assert.assertEquals(500L, index.getStart(50));
+    Assert.assertEquals(510L, index.getEnd(50));
+    Assert.assertEquals(5000L, index.getMinTimestamp(50));
+    Assert.assertEquals(LevelMask.of(Level.INFO), index.getLevelMask(50));
+    Assert.assertEquals(1000L, index.getIndexedEnd());
+
+    // A partially written entry is ignored
+    byte[] bytes = bos.toByteArray();
+    index = LogBlockIndex.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 3)));
+    Assert.assertNotNull(index);
+    Assert.assertEquals(99, index.size());
+    Assert.assertEquals(990L, index.getIndexedEnd());
+
+    // Empty or unknown input is not an index
+    Assert.assertNull(LogBlockIndex.read(new ByteArrayInputStream(new byte[0])));
+    Assert.assertNull(LogBlockIndex.read(new ByteArrayInputStream(new byte[] {0, 0, 0, 9})));
+
+    // Only the header
+    index = LogBlockIndex.read(new ByteArrayInputStream(Arrays.copyOf(bytes, 4)));
+    Assert.assertNotNull(index);
+    Assert.assertEquals(0, index.size());
+    Assert.assertEquals(-1L, index.getIndexedEnd());
+  }
+
+  @Test
+  public void testFindBlock() throws IOException {
+    // Blocks with timestamps [0, 10], [5, 20], [15, 18], [30, 40]
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    LogBlockIndex.writeHeader(out);
+    LogBlockIndex.writeEntry(out, 0, 100, 0, 10, LevelMask.ALL, NO_MDC);
+    LogBlockIndex.writeEntry(out, 100, 200, 5, 20, LevelMask.ALL, NO_MDC);
+    LogBlockIndex.writeEntry(out, 200, 300, 15, 18, LevelMask.ALL, NO_MDC);
+    LogBlockIndex.writeEntry(out, 300, 400, 30, 40, LevelMask.ALL, NO_MDC);
+    out.close();
+
+    LogBlockIndex index = LogBlockIndex.read(new ByteArrayInputStream(bos.toByteArray()));
+    Assert.assertNotNull(index);
+
+    Assert.assertEquals(0, index.findFirstBlock(0));
+    Assert.assertEquals(0, index.findFirstBlock(10));
+    Assert.assertEquals(1, index.findFirstBlock(11));
+    Assert.assertEquals(1, index.findFirstBlock(19));
+    Assert.assertEquals(3, index.findFirstBlock(21));
+    Assert.assertEquals(4, index.findFirstBlock(41));
+
+    Assert.assertEquals(-1, index.findLastBlock(-1));
+    Assert.assertEquals(0, index.findLastBlock(4));
+    Assert.assertEquals(1, index.findLastBlock(5));
+    Assert.assertEquals(2, index.findLastBlock(29));
+    Assert.assertEquals(3, index.findLastBlock(30));
+    Assert.assertEquals(3, index.findLastBlock(100));
+  }
+
+  @Test
+  public void testMdcBloomFilter() throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    LogBlockIndex.writeHeader(out);
+    for (int i = 0; i < 10; i++) {
+      Set<Long> mdcHashes = Sets.newHashSet();
+      for (int j = 0; j < 100; j++) {
+        mdcHashes.add(LogBlockIndex.hashMdc(".runId", "run" + (i * 100 + j)));
+      }
+      mdcHashes.add(LogBlockIndex.hashMdc(".applicationId", "app" + (i % 2)));
+      LogBlockIndex.writeEntry(out, i * 10, (i + 1) * 10, i, i, LevelMask.ALL, mdcHashes);
+    }
+    // Block without MDC
+    LogBlockIndex.writeEntry(out, 100, 110, 10, 10, LevelMask.ALL, NO_MDC);
+    out.close();
+
+    LogBlockIndex index = LogBlockIndex.read(new ByteArrayInputStream(bos.toByteArray()));
+    Assert.assertNotNull(index);
+    Assert.assertEquals(11, index.size());
+
+    int falsePositives = 0;
+    for (int i = 0; i < 10; i++) {
+      // No false negative
+      for (int j = 0; j < 100; j++) {
+        Assert.assertTrue(index.mightContainMdc(i, ".runId", "run" + (i * 100 + j)));
+      }
+      Assert.assertTrue(index.mightContainMdc(i, ".applicationId", "app" + (i % 2)));
+      for (int j = 0; j < 100; j++) {
+        if (index.mightContainMdc(i, ".runId", "other" + j)) {
+          falsePositives++;
+        }
+      }
+      // Key and value are not mixed up
+      if (index.mightContainMdc(i, ".applicationId", "run" + (i * 100))) {
+        falsePositives++;
+      }
+    }
+    Assert.assertTrue("Too many false positives " + falsePositives, falsePositives < 50);
+    Assert.assertFalse(index.mightContainMdc(10, ".runId", "run0"));
+
+    // Index without bloom filters may contain anything
+    bos = new ByteArrayOutputStream();
+    out = new DataOutputStream(bos);
+    out.writeInt(1);
+    out.writeLong(0);
+    out.writeLong(10);
+    out.writeLong(0);
+    out.writeLong(1);
+    out.writeInt(LevelMask.ALL);
+    out.close();
+    index = LogBlockIndex.read(new ByteArrayInputStream(bos.toByteArray()));
+    Assert.assertNotNull(index);
+    Assert.assertEquals(1, index.size());
+    Assert.assertTrue(index.mightContainMdc(0, ".runId", "run0"));
+  }
+
+  @Test
+  public void testLevelMask() {
+    int warn = LevelMask.of(new LogLevelExpression("WARN"));
+    Assert.assertEquals(0, warn & LevelMask.of(Level.INFO));
+    Assert.assertNotEquals(0, warn & LevelMask.of(Level.WARN));
+    Assert.assertNotEquals(0, warn & LevelMask.of(Level.ERROR));
+
+    Filter filter = new AndFilter(ImmutableList.of(new LogLevelExpression("INFO"), new LogLevelExpression("ERROR")));
+    Assert.assertEquals(0, LevelMask.of(filter) & LevelMask.of(Level.WARN));
+    Assert.assertNotEquals(0, LevelMask.of(filter) & LevelMask.of(Level.ERROR));
+
+    filter = new OrFilter(ImmutableList.of(new LogLevelExpression("ERROR"), new LogLevelExpression("WARN")));
+    Assert.assertEquals(0, LevelMask.of(filter) & LevelMask.of(Level.DEBUG));
+    Assert.assertNotEquals(0, LevelMask.of(filter) & LevelMask.of(Level.WARN));
+
+    Assert.assertEquals(LevelMask.ALL, LevelMask.of(Filter.EMPTY_FILTER));
+  }
+
+  /**
+   * Creates a {@link LogBlockIndex} with one block for each of the given MDC and log level.
+   */
+  public static LogBlockIndex createIndex(List<Map<String, String>> mdcs, List<Level> levels) throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bos);
+    LogBlockIndex.writeHeader(out);
+    for (int i = 0; i < mdcs.size(); i++) {
+      Set<Long> mdcHashes = Sets.newHashSet();
+      for (Map.Entry<String, String> entry : mdcs.get(i).entrySet()) {
+        mdcHashes.add(LogBlockIndex.hashMdc(entry.getKey(), entry.getValue()));
+      }
+      LogBlockIndex.writeEntry(out, i, i + 1, i, i, LevelMask.of(levels.get(i)), mdcHashes);
+    }
+    out.close();
+    return LogBlockIndex.read(new ByteArrayInputStream(bos.toByteArray()));
+  }
+}
@@ -18,10 +18,14 @@ package co.cask.cdap.metrics.collect;
 import co.cask.cdap.api.metrics.MetricValue;
 import co.cask.cdap.api.metrics.MetricValues;
 import co.cask.cdap.api.metrics.MetricsContext;
+import co.cask.cdap.api.metrics.MetricsContexts;
+import co.cask.cdap.api.metrics.MetricsCounter;
+import co.cask.cdap.api.metrics.MetricsGauge;
 import co.cask.cdap.common.conf.Constants;
 import co.cask.cdap.test.SlowTests;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -29,8 +33,10 @@ import org.junit.experimental.categories.Category;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
@@ -155,6 +161,127 @@ public class AggregatedMetricsCollectionServiceTest {
     }
   }
 
+  @Test
+  public void testBoundCounter() throws Exception {
+    final List<MetricValues> published = Lists.newArrayList();
+    // Emitters expire on the second consecutive publish without updates
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(0) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    Map<String, String> tags = ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NAMESPACE);
+    MetricsCounter counter = MetricsContexts.getCounter(service.getContext(tags), METRIC);
+    counter.increment(3);
+    counter.increment(4);
+    service.runOneIteration();
+    Assert.assertEquals(1, published.size());
+    Assert.assertEquals(7L, getMetricValue(published.get(0).getMetrics(), METRIC));
+
+    // Idle rounds retire the emitter and then the context, without publishing anything
+    published.clear();
+    for (int i = 0; i < 3; i++) {
+      service.runOneIteration();
+    }
+    Assert.assertTrue(published.isEmpty());
+
+    // The handle keeps working after retirement
+    counter.increment(5);
+    service.runOneIteration();
+    Assert.assertEquals(1, published.size());
+    Assert.assertEquals(tags, published.get(0).getTags());
+    Assert.assertEquals(5L, getMetricValue(published.get(0).getMetrics(), METRIC));
+
+    // Retire again, then update through the context before the handle, so that the handle value gets transferred
+    published.clear();
+    for (int i = 0; i < 3; i++) {
+      service.runOneIteration();
+    }
+    service.getContext(tags).increment(METRIC, 1);
+    counter.increment(2);
+    counter.increment(2);
+    service.runOneIteration();
+    Assert.assertEquals(1, published.size());
+    Assert.assertEquals(5L, getMetricValue(published.get(0).getMetrics(), METRIC));
+  }
+
+  @Test
+  public void testGaugeAndIncrement() throws Exception {
+    final List<MetricValues> published = Lists.newArrayList();
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(0) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    MetricsContext context = service.getContext(EMPTY_TAGS);
+    MetricsGauge gauge = MetricsContexts.getGauge(context, METRIC);
+    // increments before the gauge are replaced by it, increments after it are added to it
+    context.increment(METRIC, 5);
+    gauge.set(10);
+    context.increment(METRIC, 2);
+    MetricsContexts.getCounter(context, METRIC).increment(1);
+    service.runOneIteration();
+    Assert.assertEquals(1, published.size());
+    Assert.assertEquals(13L, getMetricValue(published.get(0).getMetrics(), METRIC));
+  }
+
+  @Test
+  public void testConcurrentIncrement() throws Exception {
+    final List<MetricValues> published = Lists.newArrayList();
+    final AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(0) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    int threadCount = 8;
+    final int increments = 100000;
+    final MetricsCounter counter = MetricsContexts.getCounter(service.getContext(EMPTY_TAGS), METRIC);
+    final CountDownLatch startLatch = new CountDownLatch(1);
+    final CountDownLatch doneLatch = new CountDownLatch(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      final boolean useContext = i % 2 == 0;
+      new Thread() {
+        @Override
+        public void run() {
+          try {
+            startLatch.await();
+            for (int j = 0; j < increments; j++) {
+              if (useContext) {
+                service.getContext(EMPTY_TAGS).increment(METRIC, 1);
+              } else {
+                counter.increment(1);
+              }
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          } finally {
+            doneLatch.countDown();
+          }
+        }
+      }.start();
+    }
+
+    // Publish while the metric is being updated
+    startLatch.countDown();
+    boolean done = false;
+    while (!done) {
+      done = doneLatch.await(1, TimeUnit.MILLISECONDS);
+      service.runOneIteration();
+    }
+
+    long total = 0;
+    for (MetricValues metricValues : published) {
+      total += getMetricValue(metricValues.getMetrics(), METRIC);
+    }
+    Assert.assertEquals((long) threadCount * increments, total);
+  }
+
   private void verifyCounterMetricsValue(MetricValues metricValues) {
     Assert.assertNotNull(metricValues);
     Map<String, String> tags = metricValues.getTags();